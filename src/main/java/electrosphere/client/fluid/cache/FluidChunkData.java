@@ -64,6 +64,11 @@ public class FluidChunkData {
      */
     boolean homogenous = false;
 
+    /**
+     * The replication version of this data, or 0 if it was not received in a versioned format
+     */
+    int version = 0;
+
     /**
      * Allocates the buffers for this chunk
      */
@@ -207,6 +212,33 @@ public class FluidChunkData {
         this.velocityZ = this.bVelocityZ.asFloatBuffer();
     }
 
+    /**
+     * Copies the buffers of another chunk's data into this one. Both must be allocated
+     * @param other The other chunk's data
+     */
+    public void copyFrom(FluidChunkData other){
+        this.bWeights.put(0, other.bWeights, 0, other.bWeights.capacity());
+        this.bVelocityX.put(0, other.bVelocityX, 0, other.bVelocityX.capacity());
+        this.bVelocityY.put(0, other.bVelocityY, 0, other.bVelocityY.capacity());
+        this.bVelocityZ.put(0, other.bVelocityZ, 0, other.bVelocityZ.capacity());
+    }
+
+    /**
+     * Gets the replication version of this data
+     * @return The version, or 0 if it was not received in a versioned format
+     */
+    public int getVersion(){
+        return version;
+    }
+
+    /**
+     * Sets the replication version of this data
+     * @param version The version
+     */
+    public void setVersion(int version){
+        this.version = version;
+    }
+
     /**
      * Gets whether this chunk is homogenous or not
      * @return true if it is homogenous, false otherwise
@@ -2,8 +2,10 @@ package electrosphere.client.fluid.manager;
 
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -19,6 +21,7 @@ import electrosphere.logger.LoggerInterface;
 import electrosphere.net.parser.net.message.TerrainMessage;
 import electrosphere.renderer.meshgen.FluidChunkModelGeneration;
 import electrosphere.renderer.model.Model;
+import electrosphere.server.physics.fluid.manager.FluidChunkWireFormat;
 import electrosphere.server.physics.fluid.manager.ServerFluidChunk;
 import electrosphere.server.physics.terrain.manager.ServerTerrainManager;
 
@@ -45,6 +48,11 @@ public class ClientFluidManager {
     //The queue of fluid chunk data to be buffered to gpu
     static List<FluidChunkGenQueueItem> fluidChunkGenerationQueue = new LinkedList<FluidChunkGenQueueItem>();
 
+    /**
+     * Chunks that a full resync has been requested for
+     */
+    Set<String> pendingResyncs = new HashSet<String>();
+
     /**
      * The number of messages parsed this frame
      */
@@ -70,16 +78,20 @@ public class ClientFluidManager {
         for(TerrainMessage message : messageQueue){
             switch(message.getMessageSubtype()){
                 case SENDFLUIDDATA: {
-                    ByteBuffer buffer = ByteBuffer.wrap(message.getchunkData());
-                    FluidChunkData data = this.parseFluidDataBuffer(buffer);
+                    FluidChunkData data = this.parseFluidPayload(message);
+                    pendingResyncs.remove(fluidCache.getKey(message.getworldX(), message.getworldY(), message.getworldZ()));
                     fluidCache.addChunkDataToCache(
                         message.getworldX(), message.getworldY(), message.getworldZ(), 
                         data
                     );
                 } break;
                 case UPDATEFLUIDDATA: {
-                    ByteBuffer buffer = ByteBuffer.wrap(message.getchunkData());
-                    FluidChunkData data = this.parseFluidDataBuffer(buffer);
+                    FluidChunkData data = this.parseFluidPayload(message);
+                    if(data == null){
+                        //a delta we can't apply, get the current state instead
+                        this.requestResync(message.getworldX(), message.getworldY(), message.getworldZ());
+                        break;
+                    }
                     fluidCache.addChunkDataToCache(
                         message.getworldX(), message.getworldY(), message.getworldZ(), 
                         data
@@ -100,6 +112,40 @@ public class ClientFluidManager {
         lock.unlock();
     }
     
+    /**
+     * Parses the payload of a fluid data message
+     * @param message The message
+     * @return The fluid data, or null if the message is a delta that can't be applied to the data the client has
+     */
+    private FluidChunkData parseFluidPayload(TerrainMessage message){
+        byte[] payload = message.getchunkData();
+        if(FluidChunkWireFormat.isVersioned(payload)){
+            FluidChunkData previous = fluidCache.getSubChunkDataAtPoint(message.getworldX(), message.getworldY(), message.getworldZ());
+            return FluidChunkWireFormat.decode(payload, previous);
+        }
+        return this.parseFluidDataBuffer(ByteBuffer.wrap(payload));
+    }
+
+    /**
+     * Requests the full state of a chunk from the server, if it hasn't already been requested
+     * @param worldX The world x coordinate of the chunk
+     * @param worldY The world y coordinate of the chunk
+     * @param worldZ The world z coordinate of the chunk
+     */
+    private void requestResync(int worldX, int worldY, int worldZ){
+        if(pendingResyncs.add(fluidCache.getKey(worldX, worldY, worldZ)) && Globals.clientState.clientConnection != null){
+            Globals.clientState.clientConnection.queueOutgoingMessage(TerrainMessage.constructRequestFluidDataMessage(worldX, worldY, worldZ));
+        }
+    }
+
+    /**
+     * Gets the number of chunks waiting on a full resync from the server
+     * @return The number of chunks
+     */
+    public int getPendingResyncCount(){
+        return pendingResyncs.size();
+    }
+    
     public void attachFluidMessage(TerrainMessage message){
         lock.lock();
         messageQueue.add(message);
@@ -179,8 +225,8 @@ public class ClientFluidManager {
      */
     private FluidChunkData parseFluidDataBuffer(ByteBuffer buffer){
         FluidChunkData data = new FluidChunkData();
-        FloatBuffer floatBuffer = buffer.asFloatBuffer();
         float homogenous = buffer.getFloat();
+        FloatBuffer floatBuffer = buffer.asFloatBuffer();
         if(homogenous == ServerFluidChunk.IS_HOMOGENOUS){
             data.setHomogenous(true);
         } else {
@@ -46,7 +46,7 @@ public class ClientInteractionEngine {
         DBody rigidBody = null;
         Collidable collidable;
         long categoryBit = Collidable.TYPE_OBJECT_BIT;
-        CollisionEngine.lockOde();
+        Globals.clientState.clientSceneWrapper.getInteractionEngine().lockOde();
         lock.lock();
         interactables.add(rVal);
         switch(physicsTemplate.getType()){
@@ -162,7 +162,7 @@ public class ClientInteractionEngine {
             }
         }
         lock.unlock();
-        CollisionEngine.unlockOde();
+        Globals.clientState.clientSceneWrapper.getInteractionEngine().unlockOde();
     }
 
     /**
@@ -6,7 +6,6 @@ import java.util.LinkedList;
 import java.util.List;
 
 import org.joml.Vector3f;
-import org.lwjgl.BufferUtils;
 
 import electrosphere.entity.state.collidable.TriGeomData;
 
@@ -100,6 +99,36 @@ public class TerrainChunkData implements TriGeomData {
         this.lod = lod;
     }
 
+    /**
+     * Creates an object holding a chunk whose attributes were emitted straight into the buffers to send to the gpu.
+     * Only the vertices and face elements are kept as arrays (for collision); the other array getters return null.
+     * @param vertices The vertices
+     * @param faceElements The face elements
+     * @param vertexArrayBufferData The vertex buffer
+     * @param normalArrayBufferData The normal buffer
+     * @param textureArrayBufferData The uv buffer
+     * @param elementArrayBufferData The face element buffer
+     * @param samplerBuffer The texture sampler index buffer
+     * @param ratioBuffer The texture sampler ratio buffer
+     * @param lod The LOD of the model
+     */
+    public TerrainChunkData(
+        float[] vertices, int[] faceElements,
+        FloatBuffer vertexArrayBufferData, FloatBuffer normalArrayBufferData, FloatBuffer textureArrayBufferData,
+        IntBuffer elementArrayBufferData, FloatBuffer samplerBuffer, FloatBuffer ratioBuffer,
+        int lod
+    ){
+        this.vertices = vertices;
+        this.faceElements = faceElements;
+        this.vertexArrayBufferData = vertexArrayBufferData;
+        this.normalArrayBufferData = normalArrayBufferData;
+        this.textureArrayBufferData = textureArrayBufferData;
+        this.elementArrayBufferData = elementArrayBufferData;
+        this.samplerBuffer = samplerBuffer;
+        this.ratioBuffer = ratioBuffer;
+        this.lod = lod;
+    }
+
     /**
      * Constructor used by the pool
      */
@@ -110,29 +139,6 @@ public class TerrainChunkData implements TriGeomData {
         this.samplerTriangles = new LinkedList<Vector3f>();
     }
 
-    /**
-     * Allocates and fills the buffers to send to the gpu
-     */
-    public void constructBuffers(){
-        vertexArrayBufferData = BufferUtils.createFloatBuffer(vertices.length);
-        vertexArrayBufferData.put(vertices);
-
-        normalArrayBufferData = BufferUtils.createFloatBuffer(normals.length);
-        normalArrayBufferData.put(normals);
-
-        textureArrayBufferData = BufferUtils.createFloatBuffer(uvs.length);
-        textureArrayBufferData.put(uvs);
-
-        elementArrayBufferData = BufferUtils.createIntBuffer(faceElements.length);
-        elementArrayBufferData.put(faceElements);
-
-        samplerBuffer = BufferUtils.createFloatBuffer(textureSamplers.length);
-        samplerBuffer.put(this.textureSamplers);
-        
-        ratioBuffer = BufferUtils.createFloatBuffer(textureRatioVectors.length);
-        ratioBuffer.put(this.textureRatioVectors);
-    }
-
     @Override
     public float[] getVertices(){
         return vertices;
@@ -11,6 +11,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.Semaphore;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
 import org.joml.Vector3i;
 
@@ -22,16 +24,19 @@ import electrosphere.client.terrain.cells.ClientDrawCellManager;
 import electrosphere.client.terrain.cells.DrawCell;
 import electrosphere.client.terrain.cells.VoxelTextureAtlas;
 import electrosphere.client.terrain.data.TerrainChunkData;
+import electrosphere.client.terrain.data.TerrainChunkDataPool;
 import electrosphere.engine.Globals;
 import electrosphere.entity.ClientEntityUtils;
 import electrosphere.entity.Entity;
 import electrosphere.logger.LoggerInterface;
 import electrosphere.mem.BlockChunkPool;
+import electrosphere.net.parser.net.message.NetworkMessage;
 import electrosphere.net.parser.net.message.TerrainMessage;
 import electrosphere.renderer.meshgen.TransvoxelModelGeneration;
 import electrosphere.renderer.model.Model;
 import electrosphere.server.physics.terrain.manager.ServerTerrainChunk;
 import electrosphere.server.physics.terrain.manager.ServerTerrainManager;
+import electrosphere.server.physics.terrain.manager.TerrainChunkWireFormat;
 import electrosphere.util.math.HashUtils;
 
 /**
@@ -63,6 +68,11 @@ public class ClientTerrainManager {
      * The interpolation ratio of terrain
      */
     public static final int INTERPOLATION_RATIO = ServerTerrainManager.SERVER_TERRAIN_MANAGER_INTERPOLATION_RATIO;
+
+    /**
+     * Inflater for each thread decoding chunk payloads
+     */
+    private static final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
     
     /**
      * caches chunks from server
@@ -348,6 +358,133 @@ public class ClientTerrainManager {
         Globals.profiler.endCpuSample();
     }
 
+    /**
+     * Parses a reduced chunk data message off of the wire, decoding its payload into a pooled chunk attached as the message's extra data
+     * @param message The message
+     * @param buff The buffer, positioned after the message's type bytes
+     */
+    public static void parseReducedChunkData(NetworkMessage message, ByteBuffer buff){
+        TerrainMessage castMessage = (TerrainMessage)message;
+        //get meta data
+        castMessage.setworldX(buff.getInt());
+        castMessage.setworldY(buff.getInt());
+        castMessage.setworldZ(buff.getInt());
+        castMessage.setchunkResolution(buff.getInt());
+        castMessage.sethomogenousValue(buff.getInt());
+
+        //construct extra data
+        ChunkData chunk = TerrainChunkDataPool.getData();
+        chunk.setWorldX(castMessage.getworldX());
+        chunk.setWorldY(castMessage.getworldY());
+        chunk.setWorldZ(castMessage.getworldZ());
+        chunk.setStride(castMessage.getchunkResolution());
+        chunk.setHomogenousValue(castMessage.gethomogenousValue());
+
+        //get main data blob
+        ClientTerrainManager.decodeChunkPayload(chunk, buff);
+
+        //attach extra data
+        List<Object> extraData = new LinkedList<Object>();
+        extraData.add(chunk);
+        castMessage.setExtraData(extraData);
+    }
+
+    /**
+     * Decodes the payload of a reduced chunk data message into a chunk
+     * @param chunk The chunk. Its homogenous value must already be set
+     * @param buff The buffer, positioned at the start of the payload. Is advanced past the payload
+     */
+    public static void decodeChunkPayload(ChunkData chunk, ByteBuffer buff){
+        if(chunk.getHomogenousValue() != ChunkData.NOT_HOMOGENOUS){
+            buff.get();
+            return;
+        }
+        //the payload carries its own format, so chunks queued before the format was negotiated still decode correctly
+        int format = buff.get();
+        switch(format){
+            case TerrainChunkWireFormat.FORMAT_RAW: {
+                for(int x = 0; x < ChunkData.CHUNK_DATA_SIZE; x++){
+                    for(int z = 0; z < ChunkData.CHUNK_DATA_SIZE; z++){
+                        for(int y = 0; y < ChunkData.CHUNK_DATA_SIZE; y++){
+                            chunk.setWeight(x, y, z, buff.getFloat());
+                        }
+                    }
+                }
+                for(int x = 0; x < ChunkData.CHUNK_DATA_SIZE; x++){
+                    for(int z = 0; z < ChunkData.CHUNK_DATA_SIZE; z++){
+                        for(int y = 0; y < ChunkData.CHUNK_DATA_SIZE; y++){
+                            chunk.setType(x, y, z, buff.getInt());
+                        }
+                    }
+                }
+            } break;
+            case TerrainChunkWireFormat.FORMAT_COMPACT: {
+                int flags = buff.get();
+                int bodyLength = buff.getInt();
+                int payloadLength = buff.getInt();
+                ByteBuffer payload = buff.slice();
+                payload.limit(payloadLength);
+                buff.position(buff.position() + payloadLength);
+                ByteBuffer body = payload;
+                if((flags & TerrainChunkWireFormat.FLAG_DEFLATED) != 0){
+                    byte[] inflated = new byte[bodyLength];
+                    Inflater inflater = inflaters.get();
+                    inflater.reset();
+                    inflater.setInput(payload);
+                    try {
+                        int inflatedLength = inflater.inflate(inflated);
+                        if(inflatedLength != bodyLength || !inflater.finished()){
+                            throw new Error("Inflated unexpected number of bytes! " + inflatedLength + " " + bodyLength);
+                        }
+                    } catch (DataFormatException e){
+                        throw new Error("Failed to inflate chunk payload!", e);
+                    }
+                    body = ByteBuffer.wrap(inflated);
+                }
+
+                //weights
+                boolean quantized = (flags & TerrainChunkWireFormat.FLAG_QUANTIZED) != 0;
+                for(int x = 0; x < ChunkData.CHUNK_DATA_SIZE; x++){
+                    for(int z = 0; z < ChunkData.CHUNK_DATA_SIZE; z++){
+                        for(int y = 0; y < ChunkData.CHUNK_DATA_SIZE; y++){
+                            if(quantized){
+                                chunk.setWeight(x, y, z, body.getShort() / TerrainChunkWireFormat.QUANTIZE_SCALE);
+                            } else {
+                                chunk.setWeight(x, y, z, body.getFloat());
+                            }
+                        }
+                    }
+                }
+
+                //types
+                int paletteSize = body.getInt();
+                if(paletteSize < 1){
+                    throw new Error("Invalid voxel palette size! " + paletteSize);
+                }
+                int[] palette = new int[paletteSize];
+                for(int i = 0; i < paletteSize; i++){
+                    palette[i] = body.getInt();
+                }
+                for(int x = 0; x < ChunkData.CHUNK_DATA_SIZE; x++){
+                    for(int z = 0; z < ChunkData.CHUNK_DATA_SIZE; z++){
+                        for(int y = 0; y < ChunkData.CHUNK_DATA_SIZE; y++){
+                            int paletteIndex = 0;
+                            if(paletteSize > TerrainChunkWireFormat.MAX_BYTE_PALETTE_SIZE){
+                                paletteIndex = body.getShort() & 0xFFFF;
+                            } else if(paletteSize > 1){
+                                paletteIndex = body.get() & 0xFF;
+                            }
+                            chunk.setType(x, y, z, palette[paletteIndex]);
+                        }
+                    }
+                }
+            } break;
+            default: {
+                throw new Error("Unsupported chunk format! " + format);
+            }
+        }
+    }
+
     /**
      * Gets all chunks in the terrain cache
      * @return The collection of all chunk data objects
@@ -7,6 +7,8 @@ import java.util.List;
 import electrosphere.client.terrain.data.TerrainChunkDataPool;
 import electrosphere.engine.Globals;
 import electrosphere.mem.BlockChunkPool;
+import electrosphere.mem.MemoryPools;
+import electrosphere.mem.ObjectPool;
 import electrosphere.renderer.ui.imgui.ImGuiLinePlot;
 import electrosphere.renderer.ui.imgui.ImGuiLinePlot.ImGuiLinePlotDataset;
 import electrosphere.renderer.ui.imgui.ImGuiWindow;
@@ -78,6 +80,14 @@ public class ImGuiMemory {
                 if(ImGui.collapsingHeader("Object Pools")){
                     ImGui.text("Block Chunk Pool: " + BlockChunkPool.getPoolSize());
                     ImGui.text("Terrain Chunk Pool: " + TerrainChunkDataPool.getPoolSize());
+                    for(ObjectPool<?> pool : MemoryPools.getPools()){
+                        ImGui.text(pool.getName() + " - hits: " + pool.getHitCount() + " misses: " + pool.getMissCount() + " drops: " + pool.getDropCount() + " high water: " + pool.getHighWaterMark() + " depot: " + pool.getDepotSize());
+                    }
+                    if(MemoryPools.isLeakDetectionEnabled()){
+                        if(ImGui.button("Report leaks")){
+                            MemoryPools.reportLeaks();
+                        }
+                    }
                 }
 
                 //memory usage graph
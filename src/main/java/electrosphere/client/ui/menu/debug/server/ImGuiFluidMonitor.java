@@ -37,6 +37,8 @@ public class ImGuiFluidMonitor {
                     }
                     ImGui.text("Broadcast Size (This Frame): " + fluidManager.getBroadcastSize());
                     ImGui.text("Active Chunk Count (This Frame): " + fluidManager.getActiveChunkCount());
+                    ImGui.text("Active Island Count: " + fluidManager.getActiveIslandCount());
+                    ImGui.text("Sleeping Chunk Count: " + fluidManager.getSleepingChunkCount());
                     ImGui.text("Normalization Ratio: " + ServerFluidChunk.getNormalizationRatio());
                     ImGui.text("Mass: " + ServerFluidChunk.getMassCount());
 
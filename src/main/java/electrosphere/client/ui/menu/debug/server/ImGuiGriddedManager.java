@@ -7,6 +7,7 @@ import electrosphere.renderer.ui.imgui.ImGuiWindow;
 import electrosphere.renderer.ui.imgui.ImGuiWindow.ImGuiWindowCallback;
 import electrosphere.server.datacell.Realm;
 import electrosphere.server.datacell.gridded.GriddedDataCellManager;
+import electrosphere.server.physics.terrain.manager.ServerChunkCache;
 import imgui.ImGui;
 
 /**
@@ -41,6 +42,14 @@ public class ImGuiGriddedManager {
                         ImGui.text("Playerless tracking map size: " + manager.getCellPlayerlessFrameMap().keySet().size());
                     }
                     ImGui.text("Cells cleaned last frame: " + manager.getNumCleaned());
+                    ServerChunkCache chunkCache = Globals.serverState.realmManager.first().getServerWorldData().getServerTerrainManager().getChunkCache();
+                    if(chunkCache != null && ImGui.collapsingHeader("Terrain Chunk Cache")){
+                        for(int stride = ServerChunkCache.STRIDE_FULL_RES; stride <= ServerChunkCache.STRIDE_SIXTEENTH_RES; stride++){
+                            ImGui.text("Stride " + stride + " - Size: " + chunkCache.getSize(stride) + "/" + chunkCache.getBudget(stride) + " Hits: " + chunkCache.getHits(stride) + " Misses: " + chunkCache.getMisses(stride) + " Evictions: " + chunkCache.getEvictions(stride));
+                        }
+                        ImGui.text("Pending write-back: " + chunkCache.getPendingWriteBackCount());
+                        ImGui.text("Written back: " + chunkCache.getWriteBacks());
+                    }
                     if(ImGui.button("Player Data Cell Info")){
                         Entity playerEntity = Globals.serverState.playerManager.getFirstPlayer().getPlayerEntity();
                         Realm realm = Globals.serverState.realmManager.getEntityRealm(playerEntity);
@@ -116,9 +116,10 @@ public class CollisionEngine {
     protected DBhvSpace space;
 
     /**
-     * Lock for thread-safeing all ODE calls
+     * Lock for thread-safeing all ODE calls against this engine's world and space.
+     * Each engine owns its own world and space, so engines never need to lock each other out.
      */
-    private static ReentrantLock spaceLock = new ReentrantLock();
+    private final ReentrantLock spaceLock = new ReentrantLock();
 
     /**
      * The contact group for caching collisions between collision and physics calls
@@ -1600,16 +1601,16 @@ public class CollisionEngine {
     }
 
     /**
-     * Locks the ode library
+     * Locks this engine's ode world and space
      */
-    public static void lockOde(){
+    public void lockOde(){
         spaceLock.lock();
     }
 
     /**
-     * Unlocks the ode library
+     * Unlocks this engine's ode world and space
      */
-    public static void unlockOde(){
+    public void unlockOde(){
         spaceLock.unlock();
     }
 
@@ -1618,7 +1619,7 @@ public class CollisionEngine {
      * @return The status of the collision engine
      */
     public String getStatus(){
-        CollisionEngine.lockOde();
+        this.lockOde();
         String message = "" +
         "Name: " + this.name + "\n" +
         "Bodies: " + this.bodies.size() + "\n" +
@@ -1634,7 +1635,7 @@ public class CollisionEngine {
         "Final Collision Count: " + this.finalCollisionCount + "\n" +
         ""
         ;
-        CollisionEngine.unlockOde();
+        this.unlockOde();
         return message;
     }
 
@@ -74,7 +74,7 @@ public class PhysicsEntityUtils {
         if(physicsTemplate.getKinematic()){
             categoryBit = Collidable.TYPE_STATIC_BIT;
         }
-        CollisionEngine.lockOde();
+        Globals.clientState.clientSceneWrapper.getCollisionEngine().lockOde();
         if(physicsTemplate.getKinematic()){
             PhysicsEntityUtils.clientAttachGeom(rVal, physicsTemplate, EntityUtils.getPosition(rVal));
         } else {
@@ -281,7 +281,7 @@ public class PhysicsEntityUtils {
                 ClientGravityTree.getClientGravityTree(rVal).updatePhysicsPair(PhysicsEntityUtils.getCollidable(rVal),PhysicsEntityUtils.getDBody(rVal));
             }
         }
-        CollisionEngine.unlockOde();
+        Globals.clientState.clientSceneWrapper.getCollisionEngine().unlockOde();
     }
 
     /**
@@ -299,7 +299,7 @@ public class PhysicsEntityUtils {
             categoryBit = Collidable.TYPE_STATIC_BIT;
         }
         CollisionEngine engine = Globals.clientState.clientSceneWrapper.getCollisionEngine();
-        CollisionEngine.lockOde();
+        engine.lockOde();
         switch(physicsTemplate.getType()){
             case CollidableTemplate.COLLIDABLE_TYPE_CYLINDER: {
 
@@ -394,7 +394,7 @@ public class PhysicsEntityUtils {
         if(ClientGravityTree.hasClientGravityTree(rVal)){
             ClientGravityTree.getClientGravityTree(rVal).updatePhysicsPair(PhysicsEntityUtils.getCollidable(rVal),PhysicsEntityUtils.getDBody(rVal));
         }
-        CollisionEngine.unlockOde();
+        engine.unlockOde();
         return geom;
     }
 
@@ -416,7 +416,7 @@ public class PhysicsEntityUtils {
         if(physicsTemplate.getKinematic()){
             categoryBit = Collidable.TYPE_STATIC_BIT;
         }
-        CollisionEngine.lockOde();
+        realm.getCollisionEngine().lockOde();
         if(physicsTemplate.getKinematic()){
             PhysicsEntityUtils.serverAttachGeom(realm,rVal,physicsTemplate,position);
         } else {
@@ -626,7 +626,7 @@ public class PhysicsEntityUtils {
                 ServerGravityTree.getServerGravityTree(rVal).updatePhysicsPair(PhysicsEntityUtils.getCollidable(rVal),PhysicsEntityUtils.getDBody(rVal));
             }
         }
-        CollisionEngine.unlockOde();
+        realm.getCollisionEngine().unlockOde();
     }
 
     /**
@@ -646,7 +646,7 @@ public class PhysicsEntityUtils {
         if(physicsTemplate.getKinematic()){
             categoryBit = Collidable.TYPE_STATIC_BIT;
         }
-        CollisionEngine.lockOde();
+        realm.getCollisionEngine().lockOde();
         DGeom geom = null;
         switch(physicsTemplate.getType()){
             case CollidableTemplate.COLLIDABLE_TYPE_CYLINDER: {
@@ -750,7 +750,7 @@ public class PhysicsEntityUtils {
         if(ServerGravityTree.hasServerGravityTree(rVal)){
             ServerGravityTree.getServerGravityTree(rVal).updatePhysicsPair(PhysicsEntityUtils.getCollidable(rVal),PhysicsEntityUtils.getDBody(rVal));
         }
-        CollisionEngine.unlockOde();
+        realm.getCollisionEngine().unlockOde();
         return geom;
     }
 
@@ -762,13 +762,13 @@ public class PhysicsEntityUtils {
      * @return The rigid body created (note, attachment has already been performed)
      */
     public static void clientAttachTriGeomRigidBody(Entity terrain, TriGeomData data){
-        CollisionEngine.lockOde();
+        Globals.clientState.clientSceneWrapper.getCollisionEngine().lockOde();
         DBody terrainBody = CollisionBodyCreation.generateBodyFromTerrainData(Globals.clientState.clientSceneWrapper.getCollisionEngine(), data, Collidable.TYPE_STATIC_BIT);
         CollisionBodyCreation.setAutoDisable(Globals.clientState.clientSceneWrapper.getCollisionEngine(), terrainBody, true, LINEAR_THRESHOLD, ANGULAR_THRESHOLD, STEP_THRESHOLD);
         Collidable collidable = new Collidable(terrain,Collidable.TYPE_STATIC, false);
         Globals.clientState.clientSceneWrapper.getCollisionEngine().registerCollisionObject(terrainBody, collidable, EntityUtils.getPosition(terrain));
         PhysicsEntityUtils.setDBody(terrain,terrainBody);
-        CollisionEngine.unlockOde();
+        Globals.clientState.clientSceneWrapper.getCollisionEngine().unlockOde();
         terrain.putData(EntityDataStrings.PHYSICS_COLLIDABLE, collidable);
     }
 
@@ -779,12 +779,12 @@ public class PhysicsEntityUtils {
      * @return The rigid body created (note, attachment has already been performed)
      */
     public static void clientAttachTriGeomCollider(Entity terrain, TriGeomData data){
-        CollisionEngine.lockOde();
+        Globals.clientState.clientSceneWrapper.getCollisionEngine().lockOde();
         DGeom terrainGeom = CollisionBodyCreation.generateGeomFromTerrainData(Globals.clientState.clientSceneWrapper.getCollisionEngine(), data, Collidable.TYPE_STATIC_BIT);
         Collidable collidable = new Collidable(terrain,Collidable.TYPE_STATIC, true);
         PhysicsEntityUtils.setCollidable(terrain, collidable);
         Globals.clientState.clientSceneWrapper.getCollisionEngine().registerCollisionObject(terrainGeom, collidable, EntityUtils.getPosition(terrain));
-        CollisionEngine.unlockOde();
+        Globals.clientState.clientSceneWrapper.getCollisionEngine().unlockOde();
         PhysicsEntityUtils.setDGeom(terrain,terrainGeom);
     }
 
@@ -1,6 +1,7 @@
 package electrosphere.data.settings;
 
 import electrosphere.logger.LoggerInterface;
+import electrosphere.net.parser.net.raw.NetworkParser;
 import electrosphere.util.FileUtils;
 
 /**
@@ -58,8 +59,14 @@ public class UserSettings {
     boolean graphicsDebugDrawClientCellColliders;
     boolean graphicsDebugDrawServerCellColliders;
     boolean graphicsDebugDrawServerFacingVectors;
+    //debug memory
+    boolean debugMemoryPoolLeakDetection;
     //debug network
     boolean netRunNetMonitor;
+    //network
+    int netServerBytesPerTick;
+    boolean netFluidFullReplication;
+    int netMaxBatchSize;
 
 
     float graphicsViewRange;
@@ -150,6 +157,38 @@ public class UserSettings {
     public boolean getNetRunNetMonitor(){
         return netRunNetMonitor;
     }
+
+    /**
+     * Gets whether pooled objects are tracked from when they are got until they are released, to find ones that are never released
+     * @return true to track pooled objects
+     */
+    public boolean getDebugMemoryPoolLeakDetection(){
+        return debugMemoryPoolLeakDetection;
+    }
+
+    /**
+     * Gets the number of bytes of bulk data (terrain, fluids) the server sends each player per frame
+     * @return The number of bytes, or 0 if there is no budget
+     */
+    public int getNetServerBytesPerTick(){
+        return netServerBytesPerTick;
+    }
+
+    /**
+     * Gets whether fluid updates are sent as full chunk buffers instead of versioned deltas
+     * @return true to send full buffers, false to send deltas
+     */
+    public boolean getNetFluidFullReplication(){
+        return netFluidFullReplication;
+    }
+
+    /**
+     * Gets the maximum number of messages a network parser coalesces into a single write
+     * @return The number of messages, or 0 to use the parser's default
+     */
+    public int getNetMaxBatchSize(){
+        return netMaxBatchSize;
+    }
     
 
     public void setGraphicsDebugDrawCollisionSpheresClient(boolean draw){
@@ -316,6 +355,12 @@ public class UserSettings {
 
         //debug settings
         rVal.netRunNetMonitor = false;
+        rVal.debugMemoryPoolLeakDetection = false;
+
+        //network settings
+        rVal.netServerBytesPerTick = 32 * 1024;
+        rVal.netFluidFullReplication = false;
+        rVal.netMaxBatchSize = NetworkParser.DEFAULT_MAX_BATCH_SIZE;
         
         return rVal;
     }
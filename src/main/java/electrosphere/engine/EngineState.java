@@ -173,6 +173,31 @@ public class EngineState {
          */
         public static boolean ERROR_CHECK_OPENGL = true;
 
+        /**
+         * Migrates saves that store one file per chunk to region files when they are loaded
+         */
+        public static boolean MIGRATE_SAVES_TO_REGION = false;
+
+        /**
+         * Stores server terrain voxel weights off-heap
+         */
+        public static boolean OFF_HEAP_VOXELS = false;
+
+        /**
+         * Only recomputes which data cells a player is interested in when the player changes chunk
+         */
+        public static boolean INCREMENTAL_INTEREST_MANAGEMENT = true;
+
+        /**
+         * The radius in chunks of the region around the center of the world to pre-generate when a save is loaded. 0 disables pre-generation.
+         */
+        public static int PREGEN_RADIUS = 0;
+
+        /**
+         * Pre-generates fluid chunks along with terrain and block chunks
+         */
+        public static boolean PREGEN_FLUIDS = false;
+
     }
 
 }
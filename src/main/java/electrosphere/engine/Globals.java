@@ -18,6 +18,7 @@ import electrosphere.engine.assetmanager.AssetDataStrings;
 import electrosphere.engine.assetmanager.AssetManager;
 import electrosphere.engine.profiler.Profiler;
 import electrosphere.logger.LoggerInterface;
+import electrosphere.mem.MemoryPools;
 import electrosphere.net.config.NetConfig;
 import electrosphere.net.monitor.NetMonitor;
 import electrosphere.renderer.RenderingEngine;
@@ -174,6 +175,8 @@ public class Globals {
         if(Globals.gameConfigCurrent.getSettings().getNetRunNetMonitor()){
             netMonitor = new NetMonitor();
         }
+        //pool leak detection
+        MemoryPools.setLeakDetection(Globals.gameConfigCurrent.getSettings().getDebugMemoryPoolLeakDetection());
 
 
         //add services here
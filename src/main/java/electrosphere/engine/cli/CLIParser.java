@@ -22,6 +22,25 @@ public class CLIParser {
                 case "--maxLogs": {
                     LoggerInterface.setInitLogLevel(LogLevel.LOOP_DEBUG);
                 } break;
+                case "--migrateRegions": {
+                    EngineState.EngineFlags.MIGRATE_SAVES_TO_REGION = true;
+                } break;
+                case "--offHeapVoxels": {
+                    EngineState.EngineFlags.OFF_HEAP_VOXELS = true;
+                } break;
+                case "--fullInterestRecompute": {
+                    EngineState.EngineFlags.INCREMENTAL_INTEREST_MANAGEMENT = false;
+                } break;
+                case "--pregen": {
+                    if(i + 1 >= argList.size()){
+                        throw new Error("--pregen requires a radius in chunks");
+                    }
+                    i++;
+                    EngineState.EngineFlags.PREGEN_RADIUS = Integer.parseInt(argList.get(i));
+                } break;
+                case "--pregenFluids": {
+                    EngineState.EngineFlags.PREGEN_FLUIDS = true;
+                } break;
             }
         }
         //check properties
@@ -9,7 +9,9 @@ import electrosphere.engine.signal.Signal.SignalType;
 import electrosphere.entity.scene.SceneGenerator;
 import electrosphere.logger.LoggerInterface;
 import electrosphere.renderer.ui.elements.Window;
+import electrosphere.server.datacell.Realm;
 import electrosphere.server.saves.SaveUtils;
+import electrosphere.server.saves.pregen.WorldPregenerator;
 
 public class ServerLoading {
     
@@ -44,6 +46,11 @@ public class ServerLoading {
         SaveUtils.loadSave(saveName, false);
         //initialize the "virtual" objects simulation
         LoadingUtils.initMacroSimulation();
+        //pre-generate the area around the center of the world
+        if(EngineState.EngineFlags.PREGEN_RADIUS > 0){
+            Realm realm = Globals.serverState.realmManager.first();
+            WorldPregenerator.pregenerateAroundCenter(saveName, realm.getServerWorldData(), realm.getMacroData(), EngineState.EngineFlags.PREGEN_RADIUS, EngineState.EngineFlags.PREGEN_FLUIDS);
+        }
 
 
         LoggerInterface.loggerEngine.INFO("run server: " + EngineState.EngineFlags.RUN_SERVER + " run client: " + EngineState.EngineFlags.RUN_CLIENT);
@@ -50,6 +50,21 @@ public class ThreadCounts {
      */
     public static final int SERVER_TERRAIN_GENERATION_THREADS = 2;
 
+    /**
+     * Number of threads for stepping realm physics concurrently (in addition to the main server thread)
+     */
+    public static final int REALM_PHYSICS_THREADS = 4;
+
+    /**
+     * Number of selector threads servicing server socket connections
+     */
+    public static final int SERVER_SELECTOR_THREADS = 2;
+
+    /**
+     * Number of threads for the java fluid simulator
+     */
+    public static final int SERVER_FLUID_SIMULATION_THREADS = 4;
+
     /**
      * Default thread count for the thread manager
      */
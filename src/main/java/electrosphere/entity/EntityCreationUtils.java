@@ -51,6 +51,8 @@ public class EntityCreationUtils {
         }
         //register to entity data cell mapper
         Globals.serverState.entityDataCellMapper.registerEntity(rVal, cell);
+        //track spatially
+        realm.getEntityIndex().update(rVal, position);
         //enable behavior tree tracking
         ServerBehaviorTreeUtils.registerEntity(rVal);
 
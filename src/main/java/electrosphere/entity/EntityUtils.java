@@ -61,6 +61,7 @@ public class EntityUtils {
                 if(dataCell != null){
                     dataCell.getScene().deregisterEntity(e);
                 }
+                realm.getEntityIndex().remove(e);
             }
             Globals.serverState.realmManager.removeEntity(e);
         }
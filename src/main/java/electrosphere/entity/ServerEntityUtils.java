@@ -102,6 +102,7 @@ public class ServerEntityUtils {
         ServerEntityUtils.repositionEntityRecursive(realm, entity, position);
         //reposition entity
         CollisionObjUtils.serverPositionCharacter(entity, position);
+        realm.getEntityIndex().update(entity, position);
 
         //error checking
         if(position.x != startX || position.y != startY || position.z != startZ){
@@ -109,6 +110,21 @@ public class ServerEntityUtils {
         }
     }
 
+    /**
+     * Updates the realm's spatial index after a server entity was moved in place, without going through repositionEntity
+     * @param entity The entity
+     */
+    public static void reindexEntity(Entity entity){
+        if(Globals.serverState.realmManager == null){
+            return;
+        }
+        Realm realm = Globals.serverState.realmManager.getEntityRealm(entity);
+        if(realm == null){
+            return;
+        }
+        realm.getEntityIndex().update(entity, EntityUtils.getPosition(entity));
+    }
+
     /**
      * Called to reposition the entity
      * @param realm The realm containing the entity
@@ -5,6 +5,7 @@ import electrosphere.entity.Entity;
 import electrosphere.entity.EntityDataStrings;
 import electrosphere.entity.EntityTags;
 import electrosphere.entity.EntityUtils;
+import electrosphere.entity.ServerEntityUtils;
 import electrosphere.logger.LoggerInterface;
 import electrosphere.renderer.actor.Actor;
 import electrosphere.server.datacell.ServerDataCell;
@@ -80,11 +81,13 @@ public class AttachUtils {
                         new Quaterniond(EntityUtils.getRotation(parent)),
                         new Vector3d(EntityUtils.getScale(parent))
                     );
+                    ServerEntityUtils.reindexEntity(currentEntity);
                 }
             } else if(currentEntity.getData(EntityDataStrings.ATTACH_TARGET_BASE)!=null){
                 Vector3d positionOffset = getVectorOffset(currentEntity);
                 Vector3d parentPosition = EntityUtils.getPosition(parent);
                 EntityUtils.setPosition(currentEntity, new Vector3d(parentPosition).add(positionOffset));
+                ServerEntityUtils.reindexEntity(currentEntity);
             }
         }
     }
@@ -127,6 +130,7 @@ public class AttachUtils {
                     EntityUtils.setPosition(currentEntity, position);
                     EntityUtils.getRotation(currentEntity).set(rotation);
                     EntityUtils.getScale(currentEntity).set(scale);
+                    ServerEntityUtils.reindexEntity(currentEntity);
                 }
             }
         }
@@ -254,6 +258,7 @@ public class AttachUtils {
                     EntityUtils.setPosition(currentEntity, position);
                     EntityUtils.getRotation(currentEntity).set(rotation);
                     EntityUtils.getScale(currentEntity).set(scale);
+                    ServerEntityUtils.reindexEntity(currentEntity);
                 }
             }
         }
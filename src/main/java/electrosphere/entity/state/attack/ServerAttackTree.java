@@ -12,6 +12,7 @@ import electrosphere.engine.Globals;
 import electrosphere.entity.Entity;
 import electrosphere.entity.EntityDataStrings;
 import electrosphere.entity.EntityUtils;
+import electrosphere.entity.ServerEntityUtils;
 import electrosphere.entity.btree.BehaviorTree;
 import electrosphere.entity.btree.StateTransitionUtil;
 import electrosphere.entity.btree.StateTransitionUtil.StateTransitionUtilItem;
@@ -317,6 +318,7 @@ public class ServerAttackTree implements BehaviorTree {
             switch(message.getMessageSubtype()){
                 case ATTACKUPDATE:
                     EntityUtils.getPosition(parent).set(message.getpositionX(),message.getpositionY(),message.getpositionZ());
+                    ServerEntityUtils.reindexEntity(parent);
                     break;
                 case STARTATTACK: {
                     this.start();
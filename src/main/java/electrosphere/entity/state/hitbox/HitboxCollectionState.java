@@ -207,7 +207,7 @@ public class HitboxCollectionState {
      */
     private void createBody(){
         CollisionEngine collisionEngine = this.manager.getCollisionEngine();
-        CollisionEngine.lockOde();
+        collisionEngine.lockOde();
         //create the shapes
         for(HitboxData hitboxDataRaw : this.rawData){
             DGeom geom = null;
@@ -287,7 +287,7 @@ public class HitboxCollectionState {
         this.collidable = new Collidable(this.parent, Collidable.TYPE_OBJECT, true);
         Vector3d entPos = EntityUtils.getPosition(this.parent);
         collisionEngine.registerCollisionObject(this.body, this.collidable, entPos);
-        CollisionEngine.unlockOde();
+        collisionEngine.unlockOde();
     }
 
     /**
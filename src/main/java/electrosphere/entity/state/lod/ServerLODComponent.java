@@ -41,6 +41,16 @@ public class ServerLODComponent implements BehaviorTree {
      * Low resolution
      */
     public static final int LOW_RES = 0;
+
+    /**
+     * The longest number of frames between network updates of an entity to a distant player
+     */
+    public static final int MAX_NETWORK_UPDATE_INTERVAL = 8;
+
+    /**
+     * The minimum number of frames between network updates of a low resolution entity
+     */
+    public static final int LOW_RES_NETWORK_UPDATE_INTERVAL = 4;
     
     /**
      * The current LOD level
@@ -86,6 +96,26 @@ public class ServerLODComponent implements BehaviorTree {
     }
 
 
+    /**
+     * Gets the number of frames between network updates of an entity for a player at a given distance.
+     * The interval doubles each time the distance passes another multiple of the LOD radius.
+     * @param distance The distance between the entity and the player
+     * @param lodLevel The LOD level of the entity
+     * @return The number of frames
+     */
+    public static int getNetworkUpdateInterval(double distance, int lodLevel){
+        int rVal = 1;
+        double radius = LOD_RADIUS;
+        while(distance >= radius && rVal < MAX_NETWORK_UPDATE_INTERVAL){
+            rVal = rVal * 2;
+            radius = radius * 2;
+        }
+        if(lodLevel == LOW_RES){
+            rVal = Math.max(rVal, LOW_RES_NETWORK_UPDATE_INTERVAL);
+        }
+        return rVal;
+    }
+
     /**
      * <p> (initially) Automatically generated </p>
      * <p>
@@ -5,6 +5,7 @@ import org.joml.Vector3d;
 import electrosphere.entity.Entity;
 import electrosphere.entity.EntityDataStrings;
 import electrosphere.entity.EntityUtils;
+import electrosphere.entity.ServerEntityUtils;
 import electrosphere.entity.btree.BehaviorTree;
 import electrosphere.server.datacell.utils.ServerBehaviorTreeUtils;
 
@@ -49,6 +50,7 @@ public class ProjectileTree implements BehaviorTree {
 
         Vector3d positionCurrent = EntityUtils.getPosition(parent);
         positionCurrent.add(vector);
+        ServerEntityUtils.reindexEntity(parent);
 
     }
 
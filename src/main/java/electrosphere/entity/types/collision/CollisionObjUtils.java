@@ -73,7 +73,8 @@ public class CollisionObjUtils {
      * @param position The server
      */
     public static void serverPositionCharacter(Entity e, Vector3d position){
-        CollisionEngine.lockOde();
+        CollisionEngine collisionEngine = Globals.serverState.realmManager.getEntityRealm(e).getCollisionEngine();
+        collisionEngine.lockOde();
         double startX = position.x;
         double startY = position.y;
         double startZ = position.z;
@@ -85,7 +86,6 @@ public class CollisionObjUtils {
         Quaterniond rotation = EntityUtils.getRotation(e);
         DBody body = PhysicsEntityUtils.getDBody(e);
         DGeom geom = PhysicsEntityUtils.getDGeom(e);
-        CollisionEngine collisionEngine = Globals.serverState.realmManager.getEntityRealm(e).getCollisionEngine();
         if(body != null){
             PhysicsUtils.setRigidBodyTransform(collisionEngine, position, rotation, body);
         }
@@ -114,7 +114,7 @@ public class CollisionObjUtils {
         if(startX != entPos.x || startX != entPos.x || startX != entPos.x){
             throw new Error("Position not preserved while positioning entity! " + startX + "," + startY + "," + startZ + "   " + entPos.x + "," + entPos.y + "," + entPos.z + "   " + position.x + "," + position.y + "," + position.z);
         }
-        CollisionEngine.unlockOde();
+        collisionEngine.unlockOde();
     }
 
     /**
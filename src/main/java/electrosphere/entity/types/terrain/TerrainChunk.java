@@ -31,6 +31,7 @@ import electrosphere.logger.LoggerInterface;
 import electrosphere.renderer.meshgen.TransvoxelModelGeneration;
 import electrosphere.renderer.meshgen.TransvoxelModelGeneration.TransvoxelChunkData;
 import electrosphere.server.datacell.Realm;
+import electrosphere.server.physics.terrain.manager.VoxelStorage;
 
 /**
  * Utilities for creating terrain chunk entities
@@ -68,8 +69,7 @@ public class TerrainChunk {
             generationService.submit(() -> {
                 TerrainChunkData data;
                 try {
-                    data = TransvoxelModelGeneration.generateTerrainChunkData(chunkData);
-                    data.constructBuffers();
+                    data = TransvoxelModelGeneration.generateTerrainChunkBuffers(chunkData);
                     if(Globals.clientState.clientScene.containsEntity(rVal) && data.getFaceElements().length > 0){
                         String modelPath = ClientTerrainManager.queueTerrainGridGeneration(data, atlas, notifyTarget, toDelete);
                         EntityCreationUtils.makeEntityDrawablePreexistingModel(rVal, modelPath);
@@ -111,13 +111,12 @@ public class TerrainChunk {
     }
 
     /**
-     * Generates terrain chunk data from a set of weights and values
-     * @param weights The weights
-     * @param values The values
+     * Generates terrain chunk data straight from a chunk's voxel storage
+     * @param voxels The voxel storage
      * @return The terrain chunk data
      */
-    public static TerrainChunkData serverGenerateTerrainChunkData(float[][][] weights, int[][][] values){
-        TransvoxelChunkData chunkData = new TransvoxelChunkData(weights, values, ClientDrawCellManager.FULL_RES_LOD);
+    public static TerrainChunkData serverGenerateTerrainChunkData(VoxelStorage voxels){
+        TransvoxelChunkData chunkData = new TransvoxelChunkData(voxels, ClientDrawCellManager.FULL_RES_LOD);
         TerrainChunkData data = TransvoxelModelGeneration.generateTerrainChunkData(chunkData);
         return data;
     }
@@ -1,61 +1,55 @@
 package electrosphere.mem;
 
-import java.util.LinkedList;
-import java.util.List;
-import java.util.concurrent.locks.ReentrantLock;
-
 import electrosphere.client.block.BlockChunkData;
 
 /**
- * A pool for temporary vectors
+ * A pool for block chunk arrays
  */
 public class BlockChunkPool {
-    
+
     /**
-     * Structure to store not-in-use objects
+     * Number of arrays in a magazine. Each array is half a megabyte, so threads hold few of them
      */
-    static List<short[]> shortPool = new LinkedList<short[]>();
+    static final int MAGAZINE_SIZE = 4;
 
     /**
-     * Lock for thread-safeing operations
+     * Number of full magazines kept in the shared depot
+     */
+    static final int DEPOT_CAPACITY = 64;
+    
+    /**
+     * Pool of block chunk sized short arrays
      */
-    static ReentrantLock lock = new ReentrantLock();
+    static final ObjectPool<short[]> shortPool = new ObjectPool<short[]>(
+        "Block Chunk short[]",
+        () -> new short[BlockChunkData.TOTAL_DATA_WIDTH],
+        null,
+        MAGAZINE_SIZE,
+        DEPOT_CAPACITY
+    );
 
     /**
      * Gets a short[] from the pool. Allocates if no free one is available.
-     * @param type The type of the message
      * @return A short[]
      */
     public static short[] getShort(){
-        short[] rVal = null;
-        lock.lock();
-        if(shortPool.size() > 0){
-            rVal = shortPool.remove(0);
-        } else {
-            rVal = new short[BlockChunkData.CHUNK_DATA_WIDTH * BlockChunkData.CHUNK_DATA_WIDTH * BlockChunkData.CHUNK_DATA_WIDTH];
-        }
-        lock.unlock();
-        return rVal;
+        return shortPool.get();
     }
 
     /**
-     * Releases a Vector3f back into the pool
+     * Releases a short[] back into the pool
      * @param data The object to release
      */
     public static void release(short[] data){
-        lock.lock();
-        if(data != null){
-            BlockChunkPool.shortPool.add(data);
-        }
-        lock.unlock();
+        shortPool.release(data);
     }
 
     /**
-     * Gets the size of the short pool
+     * Gets the number of arrays held in the shared depot
      * @return The size of the short pool
      */
     public static int getPoolSize(){
-        return shortPool.size();
+        return shortPool.getDepotSize();
     }
 
 }
@@ -0,0 +1,74 @@
+package electrosphere.mem;
+
+import electrosphere.server.physics.fluid.manager.ServerFluidChunk;
+
+/**
+ * A pool for the arrays that track the state of fluid chunks sent to clients
+ */
+public class FluidChunkPool {
+
+    /**
+     * Number of arrays in a magazine
+     */
+    static final int MAGAZINE_SIZE = 8;
+
+    /**
+     * Number of full magazines kept in the shared depot
+     */
+    static final int DEPOT_CAPACITY = 16;
+
+    /**
+     * Pool of quantized weight arrays, one value per cell
+     */
+    static final ObjectPool<short[]> weightPool = new ObjectPool<short[]>(
+        "Fluid chunk short[]",
+        () -> new short[ServerFluidChunk.BUFFER_SIZE],
+        null,
+        MAGAZINE_SIZE,
+        DEPOT_CAPACITY
+    );
+
+    /**
+     * Pool of quantized velocity arrays, three values per cell
+     */
+    static final ObjectPool<byte[]> velocityPool = new ObjectPool<byte[]>(
+        "Fluid chunk byte[]",
+        () -> new byte[ServerFluidChunk.BUFFER_SIZE * 3],
+        null,
+        MAGAZINE_SIZE,
+        DEPOT_CAPACITY
+    );
+
+    /**
+     * Gets a weight array from the pool. The contents are whatever the last user left in it.
+     * @return The array
+     */
+    public static short[] getWeights(){
+        return weightPool.get();
+    }
+
+    /**
+     * Releases a weight array back into the pool
+     * @param data The array
+     */
+    public static void release(short[] data){
+        weightPool.release(data);
+    }
+
+    /**
+     * Gets a velocity array from the pool. The contents are whatever the last user left in it.
+     * @return The array
+     */
+    public static byte[] getVelocities(){
+        return velocityPool.get();
+    }
+
+    /**
+     * Releases a velocity array back into the pool
+     * @param data The array
+     */
+    public static void release(byte[] data){
+        velocityPool.release(data);
+    }
+
+}
@@ -1,9 +1,5 @@
 package electrosphere.mem;
 
-import java.util.LinkedList;
-import java.util.List;
-import java.util.concurrent.locks.ReentrantLock;
-
 import org.joml.Matrix4d;
 import org.joml.Vector3d;
 import org.joml.Vector3f;
@@ -12,42 +8,59 @@ import org.joml.Vector3f;
  * A pool for temporary joml objects
  */
 public class JomlPool {
-    
+
     /**
-     * Structure to store not-in-use objects
+     * Number of full magazines kept in the shared depot
      */
-    static List<Vector3f> vec3fPool = new LinkedList<Vector3f>();
-
+    static final int DEPOT_CAPACITY = 32;
+    
     /**
-     * Structure to store not-in-use objects
+     * Pool of Vector3f
      */
-    static List<Vector3d> vec3dPool = new LinkedList<Vector3d>();
+    static final ObjectPool<Vector3f> vec3fPool = new ObjectPool<Vector3f>(
+        "Vector3f",
+        Vector3f::new,
+        (Vector3f data) -> {
+            data.x = 0;
+            data.y = 0;
+            data.z = 0;
+        },
+        ObjectPool.DEFAULT_MAGAZINE_SIZE,
+        DEPOT_CAPACITY
+    );
 
     /**
-     * Structure to store not-in-use objects
+     * Pool of Vector3d
      */
-    static List<Matrix4d> mat4dPool = new LinkedList<Matrix4d>();
+    static final ObjectPool<Vector3d> vec3dPool = new ObjectPool<Vector3d>(
+        "Vector3d",
+        Vector3d::new,
+        (Vector3d data) -> {
+            data.x = 0;
+            data.y = 0;
+            data.z = 0;
+        },
+        ObjectPool.DEFAULT_MAGAZINE_SIZE,
+        DEPOT_CAPACITY
+    );
 
     /**
-     * Lock for thread-safeing operations
+     * Pool of Matrix4d
      */
-    static ReentrantLock lock = new ReentrantLock();
+    static final ObjectPool<Matrix4d> mat4dPool = new ObjectPool<Matrix4d>(
+        "Matrix4d",
+        Matrix4d::new,
+        Matrix4d::identity,
+        ObjectPool.DEFAULT_MAGAZINE_SIZE,
+        DEPOT_CAPACITY
+    );
 
     /**
      * Gets a Vector3f from the pool. Allocates if no free one is available.
-     * @param type The type of the message
      * @return A Vector3f
      */
     public static Vector3f getF(){
-        Vector3f rVal = null;
-        lock.lock();
-        if(vec3fPool.size() > 0){
-            rVal = vec3fPool.remove(0);
-        } else {
-            rVal = new Vector3f();
-        }
-        lock.unlock();
-        return rVal;
+        return vec3fPool.get();
     }
 
     /**
@@ -55,14 +68,7 @@ public class JomlPool {
      * @param data The object to release
      */
     public static void release(Vector3f data){
-        data.x = 0;
-        data.y = 0;
-        data.z = 0;
-        lock.lock();
-        if(JomlPool.vec3fPool.size() < 1000){
-            JomlPool.vec3fPool.add(data);
-        }
-        lock.unlock();
+        vec3fPool.release(data);
     }
 
     /**
@@ -70,15 +76,7 @@ public class JomlPool {
      * @return A Vector3d
      */
     public static Vector3d getD(){
-        Vector3d rVal = null;
-        lock.lock();
-        if(vec3dPool.size() > 0){
-            rVal = vec3dPool.remove(0);
-        } else {
-            rVal = new Vector3d();
-        }
-        lock.unlock();
-        return rVal;
+        return vec3dPool.get();
     }
 
     /**
@@ -86,15 +84,7 @@ public class JomlPool {
      * @return A Matrix4d
      */
     public static Matrix4d getMat(){
-        Matrix4d rVal = null;
-        lock.lock();
-        if(mat4dPool.size() > 0){
-            rVal = mat4dPool.remove(0);
-        } else {
-            rVal = new Matrix4d();
-        }
-        lock.unlock();
-        return rVal;
+        return mat4dPool.get();
     }
 
     /**
@@ -102,14 +92,7 @@ public class JomlPool {
      * @param data The object to release
      */
     public static void release(Vector3d data){
-        data.x = 0;
-        data.y = 0;
-        data.z = 0;
-        lock.lock();
-        if(JomlPool.vec3dPool.size() < 1000){
-            JomlPool.vec3dPool.add(data);
-        }
-        lock.unlock();
+        vec3dPool.release(data);
     }
 
     /**
@@ -117,12 +100,7 @@ public class JomlPool {
      * @param data The object to release
      */
     public static void release(Matrix4d data){
-        data.identity();
-        lock.lock();
-        if(JomlPool.mat4dPool.size() < 1000){
-            JomlPool.mat4dPool.add(data);
-        }
-        lock.unlock();
+        mat4dPool.release(data);
     }
 
 }
@@ -0,0 +1,70 @@
+package electrosphere.mem;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Tracks every object pool for metrics and leak detection
+ */
+public class MemoryPools {
+
+    /**
+     * All pools that have been created
+     */
+    static List<ObjectPool<?>> pools = new CopyOnWriteArrayList<ObjectPool<?>>();
+
+    /**
+     * true to track where every pooled object was got from until it is released
+     */
+    static volatile boolean leakDetection = false;
+
+    /**
+     * Registers a pool
+     * @param pool The pool
+     */
+    static void register(ObjectPool<?> pool){
+        pools.add(pool);
+    }
+
+    /**
+     * Gets all pools that have been created
+     * @return The pools
+     */
+    public static List<ObjectPool<?>> getPools(){
+        return pools;
+    }
+
+    /**
+     * Enables or disables leak detection. Tracking records a stack trace on every get, so this is for debugging only
+     * @param enabled true to enable leak detection
+     */
+    public static void setLeakDetection(boolean enabled){
+        MemoryPools.leakDetection = enabled;
+        if(!enabled){
+            for(ObjectPool<?> pool : pools){
+                pool.clearLeakTracking();
+            }
+        }
+    }
+
+    /**
+     * Checks if leak detection is enabled
+     * @return true if it is enabled
+     */
+    public static boolean isLeakDetectionEnabled(){
+        return leakDetection;
+    }
+
+    /**
+     * Logs every pooled object that has been got and not released since leak detection was enabled
+     * @return The number of objects that haven't been released
+     */
+    public static int reportLeaks(){
+        int rVal = 0;
+        for(ObjectPool<?> pool : pools){
+            rVal = rVal + pool.reportLeaks();
+        }
+        return rVal;
+    }
+
+}
@@ -0,0 +1,339 @@
+package electrosphere.mem;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import electrosphere.logger.LoggerInterface;
+
+/**
+ * A pool of reusable objects that threads can get from and release to without contending on a lock.
+ * <p>
+ * Each thread keeps two magazines (small stacks) of free objects. Gets and releases are served from them without any synchronization.
+ * When a thread runs out, or fills up, it exchanges whole magazines with a depot shared by all threads. The depot is a lock-free queue,
+ * so threads only touch shared state once per magazine's worth of operations, and never block.
+ * </p>
+ * <p>
+ * Objects don't have to be released on the thread that got them, and objects the pool didn't create can be released into it as long as
+ * they are interchangeable with the ones it creates. Objects left in the magazines of a thread that exits are garbage collected.
+ * </p>
+ */
+public class ObjectPool<T> {
+
+    /**
+     * The number of objects in a magazine for small objects
+     */
+    public static final int DEFAULT_MAGAZINE_SIZE = 32;
+
+    /**
+     * The name of the pool
+     */
+    private final String name;
+
+    /**
+     * The number of objects in a magazine
+     */
+    private final int magazineSize;
+
+    /**
+     * Creates new objects
+     */
+    private final Supplier<T> factory;
+
+    /**
+     * Resets objects as they are released. Can be null
+     */
+    private final Consumer<T> reset;
+
+    /**
+     * The maximum number of full magazines kept in the depot. Objects released beyond that are dropped for the garbage collector
+     */
+    private final int depotCapacity;
+
+    /**
+     * Full magazines shared between threads
+     */
+    private final ConcurrentLinkedQueue<Object[]> fullMagazines = new ConcurrentLinkedQueue<Object[]>();
+
+    /**
+     * Empty magazines shared between threads
+     */
+    private final ConcurrentLinkedQueue<Object[]> emptyMagazines = new ConcurrentLinkedQueue<Object[]>();
+
+    /**
+     * The number of full magazines in the depot
+     */
+    private final AtomicInteger fullMagazineCount = new AtomicInteger(0);
+
+    /**
+     * The magazines of each thread
+     */
+    private final ThreadLocal<ThreadCache> caches;
+
+    /**
+     * Number of gets served with a pooled object
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * Number of gets that had to create an object
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Number of releases that were dropped because the pool was full
+     */
+    private final LongAdder drops = new LongAdder();
+
+    /**
+     * The number of objects created by the pool that haven't been dropped. Only changes on a miss or a drop
+     */
+    private final AtomicLong live = new AtomicLong(0);
+
+    /**
+     * The most objects that have been live at once
+     */
+    private final AtomicLong highWater = new AtomicLong(0);
+
+    /**
+     * The objects that have been got and not released, along with where they were got. Only tracked while leak detection is enabled
+     */
+    private final Map<Object,Throwable> outstanding = Collections.synchronizedMap(new IdentityHashMap<Object,Throwable>());
+
+    /**
+     * Constructor
+     * @param name The name of the pool
+     * @param factory Creates new objects
+     * @param reset Resets objects as they are released. Can be null
+     * @param magazineSize The number of objects in a magazine. Each thread holds up to two magazines
+     * @param depotCapacity The maximum number of full magazines kept in the depot
+     */
+    public ObjectPool(String name, Supplier<T> factory, Consumer<T> reset, int magazineSize, int depotCapacity){
+        if(magazineSize < 1 || depotCapacity < 1){
+            throw new Error("Pool must be able to hold at least one magazine of one object! " + name + " " + magazineSize + " " + depotCapacity);
+        }
+        this.name = name;
+        this.factory = factory;
+        this.reset = reset;
+        this.magazineSize = magazineSize;
+        this.depotCapacity = depotCapacity;
+        this.caches = ThreadLocal.withInitial(() -> new ThreadCache(magazineSize));
+        MemoryPools.register(this);
+    }
+
+    /**
+     * Gets an object from the pool. Creates one if no free one is available.
+     * @return The object
+     */
+    @SuppressWarnings("unchecked")
+    public T get(){
+        ThreadCache cache = this.caches.get();
+        T rVal = null;
+        if(cache.loadedCount == 0){
+            if(cache.previousCount > 0){
+                cache.swap();
+            } else {
+                Object[] full = this.fullMagazines.poll();
+                if(full != null){
+                    this.fullMagazineCount.decrementAndGet();
+                    //the previous magazine is empty, return it to the depot
+                    this.emptyMagazines.offer(cache.previous);
+                    cache.previous = cache.loaded;
+                    cache.previousCount = 0;
+                    cache.loaded = full;
+                    cache.loadedCount = this.magazineSize;
+                }
+            }
+        }
+        if(cache.loadedCount > 0){
+            cache.loadedCount--;
+            rVal = (T)cache.loaded[cache.loadedCount];
+            cache.loaded[cache.loadedCount] = null;
+            this.hits.increment();
+        } else {
+            rVal = this.factory.get();
+            this.misses.increment();
+            long count = this.live.incrementAndGet();
+            long currentHighWater = this.highWater.get();
+            while(count > currentHighWater && !this.highWater.compareAndSet(currentHighWater, count)){
+                currentHighWater = this.highWater.get();
+            }
+        }
+        if(MemoryPools.isLeakDetectionEnabled()){
+            this.outstanding.put(rVal, new Throwable("Got from pool " + this.name));
+        }
+        return rVal;
+    }
+
+    /**
+     * Releases an object back into the pool
+     * @param data The object to release
+     */
+    public void release(T data){
+        if(data == null){
+            return;
+        }
+        if(MemoryPools.isLeakDetectionEnabled() && this.outstanding.remove(data) == null){
+            LoggerInterface.loggerEngine.WARNING("Object released into pool " + this.name + " that was not got from it, or was released twice");
+        }
+        if(this.reset != null){
+            this.reset.accept(data);
+        }
+        ThreadCache cache = this.caches.get();
+        if(cache.loadedCount == this.magazineSize){
+            if(cache.previousCount == 0){
+                cache.swap();
+            } else if(this.fullMagazineCount.incrementAndGet() <= this.depotCapacity){
+                //hand the full previous magazine to the depot and start on an empty one
+                this.fullMagazines.offer(cache.previous);
+                cache.previous = cache.loaded;
+                cache.previousCount = this.magazineSize;
+                Object[] empty = this.emptyMagazines.poll();
+                cache.loaded = empty != null ? empty : new Object[this.magazineSize];
+                cache.loadedCount = 0;
+            } else {
+                //the pool is full, let the collector have it
+                this.fullMagazineCount.decrementAndGet();
+                this.drops.increment();
+                this.live.decrementAndGet();
+                return;
+            }
+        }
+        cache.loaded[cache.loadedCount] = data;
+        cache.loadedCount++;
+    }
+
+    /**
+     * Logs every object that has been got and not released since leak detection was enabled
+     * @return The number of objects that haven't been released
+     */
+    public int reportLeaks(){
+        int rVal = 0;
+        synchronized(this.outstanding){
+            for(Throwable origin : this.outstanding.values()){
+                LoggerInterface.loggerEngine.WARNING("Pooled object was never released: " + this.name);
+                LoggerInterface.loggerEngine.ERROR(origin);
+                rVal++;
+            }
+        }
+        return rVal;
+    }
+
+    /**
+     * Clears the objects tracked for leak detection
+     */
+    public void clearLeakTracking(){
+        this.outstanding.clear();
+    }
+
+    /**
+     * Gets the name of the pool
+     * @return The name
+     */
+    public String getName(){
+        return name;
+    }
+
+    /**
+     * Gets the number of gets that were served with a pooled object
+     * @return The number of hits
+     */
+    public long getHitCount(){
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of gets that had to create an object
+     * @return The number of misses
+     */
+    public long getMissCount(){
+        return misses.sum();
+    }
+
+    /**
+     * Gets the number of released objects that were dropped because the pool was full
+     * @return The number of drops
+     */
+    public long getDropCount(){
+        return drops.sum();
+    }
+
+    /**
+     * Gets the most objects created by the pool that have been in use or pooled at once
+     * @return The high water mark
+     */
+    public long getHighWaterMark(){
+        return highWater.get();
+    }
+
+    /**
+     * Gets the number of objects held in the shared depot. Objects held by individual threads aren't counted
+     * @return The number of objects
+     */
+    public int getDepotSize(){
+        return fullMagazineCount.get() * magazineSize;
+    }
+
+    /**
+     * Gets the number of objects that have been got and not released. Only tracked while leak detection is enabled
+     * @return The number of objects
+     */
+    public int getOutstandingCount(){
+        return outstanding.size();
+    }
+
+    /**
+     * The magazines held by a single thread
+     */
+    static class ThreadCache {
+
+        /**
+         * The magazine objects are got from and released to
+         */
+        Object[] loaded;
+
+        /**
+         * The number of objects in the loaded magazine
+         */
+        int loadedCount = 0;
+
+        /**
+         * The magazine used before the loaded one. Kept so a thread alternating gets and releases at a magazine boundary doesn't hit the depot every time
+         */
+        Object[] previous;
+
+        /**
+         * The number of objects in the previous magazine
+         */
+        int previousCount = 0;
+
+        /**
+         * Constructor
+         * @param magazineSize The number of objects in a magazine
+         */
+        ThreadCache(int magazineSize){
+            this.loaded = new Object[magazineSize];
+            this.previous = new Object[magazineSize];
+        }
+
+        /**
+         * Swaps the loaded and previous magazines
+         */
+        void swap(){
+            Object[] magazine = this.loaded;
+            int count = this.loadedCount;
+            this.loaded = this.previous;
+            this.loadedCount = this.previousCount;
+            this.previous = magazine;
+            this.previousCount = count;
+        }
+
+    }
+
+}
@@ -0,0 +1,47 @@
+package electrosphere.mem;
+
+import electrosphere.server.physics.terrain.manager.ServerTerrainChunk;
+
+/**
+ * A pool for the temporary arrays used while generating terrain chunks
+ */
+public class TerrainChunkPool {
+
+    /**
+     * Number of arrays in a magazine
+     */
+    static final int MAGAZINE_SIZE = 8;
+
+    /**
+     * Number of full magazines kept in the shared depot
+     */
+    static final int DEPOT_CAPACITY = 16;
+
+    /**
+     * Pool of per-column float fields (heightfields, gradients)
+     */
+    static final ObjectPool<float[][]> floatColumnPool = new ObjectPool<float[][]>(
+        "Terrain column float[][]",
+        () -> new float[ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE][ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE],
+        null,
+        MAGAZINE_SIZE,
+        DEPOT_CAPACITY
+    );
+
+    /**
+     * Gets a per-column field from the pool. The contents are whatever the last user left in it.
+     * @return The field, indexed [x][z]
+     */
+    public static float[][] getFloatColumnField(){
+        return floatColumnPool.get();
+    }
+
+    /**
+     * Releases a per-column field back into the pool
+     * @param data The field
+     */
+    public static void release(float[][] data){
+        floatColumnPool.release(data);
+    }
+
+}
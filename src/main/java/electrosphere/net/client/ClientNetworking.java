@@ -1,8 +1,7 @@
 package electrosphere.net.client;
 
 import electrosphere.client.block.BlockChunkData;
-import electrosphere.client.terrain.cache.ChunkData;
-import electrosphere.client.terrain.data.TerrainChunkDataPool;
+import electrosphere.client.terrain.manager.ClientTerrainManager;
 import electrosphere.engine.Globals;
 import electrosphere.logger.LoggerInterface;
 import electrosphere.mem.BlockChunkPool;
@@ -13,6 +12,7 @@ import electrosphere.net.parser.net.message.TypeBytes;
 import electrosphere.net.parser.net.message.NetworkMessage.MessageType;
 import electrosphere.net.parser.net.message.ServerMessage.ServerMessageType;
 import electrosphere.net.parser.net.raw.NetworkParser;
+import electrosphere.net.synchronization.transport.MovementDeltaDecoder;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -86,6 +86,11 @@ public class ClientNetworking implements Runnable {
 
     //Signals the thread to stop
     boolean shouldDisconnect = false;
+
+    /**
+     * Expands the move update batches sent by the server
+     */
+    MovementDeltaDecoder movementDecoder = new MovementDeltaDecoder();
     
     /**
      * Creates a ClientNetworking object with a server address and port
@@ -176,6 +181,9 @@ public class ClientNetworking implements Runnable {
 
         //create parser
         parser = new NetworkParser(inputStream,outputStream);
+        if(Globals.gameConfigCurrent != null && Globals.gameConfigCurrent.getSettings() != null && Globals.gameConfigCurrent.getSettings().getNetMaxBatchSize() > 0){
+            parser.setMaxBatchSize(Globals.gameConfigCurrent.getSettings().getNetMaxBatchSize());
+        }
 
         //
         //register custom message parsers
@@ -211,56 +219,7 @@ public class ClientNetworking implements Runnable {
                 }
             }
         });
-        parser.registerCustomParser(TypeBytes.MESSAGE_TYPE_TERRAIN, TypeBytes.TERRAIN_MESSAGE_TYPE_SENDREDUCEDCHUNKDATA, (NetworkMessage message, ByteBuffer buff) -> {
-            TerrainMessage castMessage = (TerrainMessage)message;
-            //get meta data
-            castMessage.setworldX(buff.getInt());
-            castMessage.setworldY(buff.getInt());
-            castMessage.setworldZ(buff.getInt());
-            castMessage.setchunkResolution(buff.getInt());
-            castMessage.sethomogenousValue(buff.getInt());
-
-            //construct extra data
-            ChunkData chunk = TerrainChunkDataPool.getData();
-            chunk.setWorldX(castMessage.getworldX());
-            chunk.setWorldY(castMessage.getworldY());
-            chunk.setWorldZ(castMessage.getworldZ());
-            chunk.setStride(castMessage.getchunkResolution());
-            chunk.setHomogenousValue(castMessage.gethomogenousValue());
-
-            //get main data blob
-            if(castMessage.gethomogenousValue() == BlockChunkData.NOT_HOMOGENOUS){
-                for(int x = 0; x < ChunkData.CHUNK_DATA_SIZE; x++){
-                    for(int z = 0; z < ChunkData.CHUNK_DATA_SIZE; z++){
-                        for(int y = 0; y < ChunkData.CHUNK_DATA_SIZE; y++){
-                            chunk.setWeight(x, y, z, buff.getFloat());
-                        }
-                    }
-                }
-                int firstType = -1;
-                boolean homogenous = true;
-                for(int x = 0; x < ChunkData.CHUNK_DATA_SIZE; x++){
-                    for(int z = 0; z < ChunkData.CHUNK_DATA_SIZE; z++){
-                        for(int y = 0; y < ChunkData.CHUNK_DATA_SIZE; y++){
-                            int typeCurr = buff.getInt();
-                            chunk.setType(x, y, z, typeCurr);
-                            if(firstType == -1){
-                                firstType = typeCurr;
-                            } else if(homogenous && firstType == typeCurr){
-                                homogenous = false;
-                            }
-                        }
-                    }
-                }
-            } else {
-                buff.get();
-            }
-
-            //attach extra data
-            List<Object> extraData = new LinkedList<Object>();
-            extraData.add(chunk);
-            castMessage.setExtraData(extraData);
-        });
+        parser.registerCustomParser(TypeBytes.MESSAGE_TYPE_TERRAIN, TypeBytes.TERRAIN_MESSAGE_TYPE_SENDREDUCEDCHUNKDATA, ClientTerrainManager::parseReducedChunkData);
         
 
 
@@ -293,7 +252,11 @@ public class ClientNetworking implements Runnable {
             //outgoing messages
             try {
                 LoggerInterface.loggerNetworking.DEBUG_LOOP("[CLIENT] Try to write messages out");
+                int queueDepth = parser.getOutgoingQueueDepth();
                 parser.pushMessagesOut();
+                if(Globals.netMonitor != null && this.netMonitorHandle != null && queueDepth > 0){
+                    Globals.netMonitor.logFlush(this.netMonitorHandle, queueDepth, parser.getIncomingQueueDepth(), parser.getLastFlushBytes(), parser.getLastFlushMessages());
+                }
             } catch(IOException e){
                 LoggerInterface.loggerNetworking.ERROR(e);
             }
@@ -471,6 +434,14 @@ public class ClientNetworking implements Runnable {
         return initialized;
     }
 
+    /**
+     * Gets the decoder for move update batches. Must only be used from the thread handling synchronous messages
+     * @return The decoder
+     */
+    public MovementDeltaDecoder getMovementDecoder(){
+        return this.movementDecoder;
+    }
+
     /**
      * Gets the total number of bytes read by this connection
      * @return The total number of bytes
@@ -5,7 +5,9 @@ import electrosphere.logger.LoggerInterface;
 import electrosphere.net.parser.net.message.AuthMessage;
 import electrosphere.net.parser.net.message.CharacterMessage;
 import electrosphere.net.parser.net.message.LoreMessage;
+import electrosphere.net.parser.net.message.TerrainMessage;
 import electrosphere.net.template.ClientProtocolTemplate;
+import electrosphere.server.physics.terrain.manager.TerrainChunkWireFormat;
 
 /**
  * The client protocol for handling auth messages
@@ -23,6 +25,8 @@ public class AuthProtocol implements ClientProtocolTemplate<AuthMessage> {
             case AUTHSUCCESS: {
                 //clean password hash from memory
                 Globals.clientState.clientPassword = "";
+                //negotiate chunk wire format before any chunks can be requested
+                Globals.clientState.clientConnection.queueOutgoingMessage(TerrainMessage.constructChunkFormatMessage(TerrainChunkWireFormat.LATEST_FORMAT));
                 //request playable races
                 Globals.clientState.clientConnection.queueOutgoingMessage(LoreMessage.constructRequestRacesMessage());
                 //request characters available to this player
@@ -1,6 +1,7 @@
 package electrosphere.net.client.protocol;
 
 import java.util.Arrays;
+import java.util.LinkedList;
 import java.util.List;
 
 import org.joml.Quaterniond;
@@ -49,6 +50,23 @@ public class EntityProtocol implements ClientProtocolTemplate<EntityMessage> {
         Globals.profiler.beginAggregateCpuSample("EntityProtocol.handleSyncMessage");
         LoggerInterface.loggerNetworking.DEBUG_LOOP("Parse entity message of type " + message.getMessageSubtype());
 
+        //batches don't target a single entity, expand them and handle each update on its own
+        if(message.getMessageSubtype() == EntityMessageType.MOVEUPDATEBATCH){
+            List<EntityMessage> moveUpdates = new LinkedList<EntityMessage>();
+            Globals.clientState.clientConnection.getMovementDecoder().decode(message.gettime(), message.getmovementData(), moveUpdates);
+            Globals.clientState.clientConnection.release(message);
+            for(EntityMessage moveUpdate : moveUpdates){
+                this.handleSyncMessage(moveUpdate);
+            }
+            Globals.profiler.endCpuSample();
+            return;
+        }
+
+        //the server drops its movement baseline for the entity when it sends these, drop ours at the same point in the stream
+        if(message.getMessageSubtype() == EntityMessageType.CREATE || message.getMessageSubtype() == EntityMessageType.DESTROY){
+            Globals.clientState.clientConnection.getMovementDecoder().forget(message.getentityID());
+        }
+
         if(Globals.clientState.clientScene != null && Globals.clientState.clientSynchronizationManager.isDeleted(message.getentityID())){
             Globals.profiler.endCpuSample();
             return;
@@ -170,6 +188,7 @@ public class EntityProtocol implements ClientProtocolTemplate<EntityMessage> {
                 //to be implemented
                 throw new UnsupportedOperationException();
             case STARTATTACK:
+            case MOVEUPDATEBATCH:
                 //silently ignore
                 break;
         }
@@ -23,6 +23,15 @@ public class TerrainProtocol implements ClientProtocolTemplate<TerrainMessage> {
 
     @Override
     public TerrainMessage handleAsyncMessage(TerrainMessage message) {
+        switch(message.getMessageSubtype()){
+            case CHUNKFORMAT: {
+                //chunk payloads carry their own format, so the reply is informational
+                LoggerInterface.loggerNetworking.DEBUG("(Client) Server chunk format " + message.getchunkFormatVersion());
+                return null;
+            }
+            default: {
+            } break;
+        }
         return message;
     }
 
@@ -7,6 +7,7 @@ import java.nio.file.Files;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.google.gson.Gson;
 
@@ -20,6 +21,11 @@ public class NetMonitor {
     private Map<String,FileOutputStream> handleFileMap = new HashMap<String,FileOutputStream>();
     private Map<String,Boolean> writtenInitialMap = new HashMap<String,Boolean>();
 
+    /**
+     * Queue/flush counters for each connection
+     */
+    private Map<String,ConnectionStats> statsMap = new ConcurrentHashMap<String,ConnectionStats>();
+
     private Gson gson;
 
     public NetMonitor(){
@@ -41,6 +47,7 @@ public class NetMonitor {
             FileOutputStream fileStream = new FileOutputStream(file, false);
             handleFileMap.put(handle, fileStream);
             writtenInitialMap.put(handle,false);
+            statsMap.put(handle, new ConnectionStats());
             fileStream.write("{\"messages\":[".getBytes());
         } catch (IOException e) {
             LoggerInterface.loggerNetworking.ERROR("Can't open NetMonitor file", e);
@@ -74,6 +81,69 @@ public class NetMonitor {
         }
     }
 
+    /**
+     * Logs a flush of the outgoing queue of the connection at the given handle
+     * @param handle The handle of the connection
+     * @param outgoingQueueDepth The number of messages that were waiting in the outgoing queue when the flush started
+     * @param incomingQueueDepth The number of parsed messages waiting to be handled
+     * @param bytes The number of bytes written by the flush
+     * @param messages The number of messages written by the flush
+     */
+    public void logFlush(String handle, int outgoingQueueDepth, int incomingQueueDepth, int bytes, int messages){
+        ConnectionStats stats = statsMap.get(handle);
+        if(stats == null){
+            throw new Error("Failed to find stats at handle " + handle);
+        }
+        synchronized(stats){
+            stats.flushCount++;
+            stats.totalBytesFlushed = stats.totalBytesFlushed + bytes;
+            stats.totalMessagesFlushed = stats.totalMessagesFlushed + messages;
+            stats.lastBytesPerFlush = bytes;
+            stats.maxBytesPerFlush = Math.max(stats.maxBytesPerFlush, bytes);
+            stats.lastOutgoingQueueDepth = outgoingQueueDepth;
+            stats.maxOutgoingQueueDepth = Math.max(stats.maxOutgoingQueueDepth, outgoingQueueDepth);
+            stats.lastIncomingQueueDepth = incomingQueueDepth;
+            stats.maxIncomingQueueDepth = Math.max(stats.maxIncomingQueueDepth, incomingQueueDepth);
+        }
+    }
+
+    /**
+     * Logs the counters of one priority class of the outgoing scheduler of the connection at the given handle
+     * @param handle The handle of the connection
+     * @param priorityClass The name of the priority class
+     * @param queueDepth The number of messages currently held for the class
+     * @param messagesSent The total number of messages sent for the class
+     * @param bytesSent The total number of bytes sent for the class
+     * @param superseded The total number of messages of the class that were dropped because a newer one replaced them
+     */
+    public void logPriorityClass(String handle, String priorityClass, int queueDepth, long messagesSent, long bytesSent, long superseded){
+        ConnectionStats stats = statsMap.get(handle);
+        if(stats == null){
+            throw new Error("Failed to find stats at handle " + handle);
+        }
+        synchronized(stats){
+            PriorityClassStats classStats = stats.priorityClassStats.get(priorityClass);
+            if(classStats == null){
+                classStats = new PriorityClassStats();
+                stats.priorityClassStats.put(priorityClass, classStats);
+            }
+            classStats.lastQueueDepth = queueDepth;
+            classStats.maxQueueDepth = Math.max(classStats.maxQueueDepth, queueDepth);
+            classStats.messagesSent = messagesSent;
+            classStats.bytesSent = bytesSent;
+            classStats.superseded = superseded;
+        }
+    }
+
+    /**
+     * Gets the queue/flush counters of the connection at the given handle
+     * @param handle The handle of the connection
+     * @return The counters if the handle exists, null otherwise
+     */
+    public ConnectionStats getStats(String handle){
+        return statsMap.get(handle);
+    }
+
     /**
      * Closes down the NetMonitor and closes all files
      */
@@ -82,7 +152,12 @@ public class NetMonitor {
             FileOutputStream outStream = handleFileMap.get(key);
             if(outStream != null){
                 try {
-                    outStream.write("]}".getBytes());
+                    outStream.write("],\"stats\":".getBytes());
+                    ConnectionStats stats = statsMap.get(key);
+                    synchronized(stats){
+                        outStream.write(gson.toJson(stats).getBytes());
+                    }
+                    outStream.write("}".getBytes());
                     outStream.close();
                 } catch (IOException e) {
                     LoggerInterface.loggerNetworking.ERROR("NetMonitor failed to close file", e);
@@ -105,4 +180,177 @@ public class NetMonitor {
         }
     }
 
+    /**
+     * Queue depth and flush size counters for a single connection
+     */
+    public static class ConnectionStats {
+
+        /**
+         * The number of flushes that wrote at least one message
+         */
+        long flushCount;
+
+        /**
+         * The total number of bytes written across all flushes
+         */
+        long totalBytesFlushed;
+
+        /**
+         * The total number of messages written across all flushes
+         */
+        long totalMessagesFlushed;
+
+        /**
+         * The number of bytes written by the most recent flush
+         */
+        int lastBytesPerFlush;
+
+        /**
+         * The largest number of bytes written by a single flush
+         */
+        int maxBytesPerFlush;
+
+        /**
+         * The depth of the outgoing queue at the start of the most recent flush
+         */
+        int lastOutgoingQueueDepth;
+
+        /**
+         * The deepest the outgoing queue has been at the start of a flush
+         */
+        int maxOutgoingQueueDepth;
+
+        /**
+         * The depth of the incoming queue at the most recent flush
+         */
+        int lastIncomingQueueDepth;
+
+        /**
+         * The deepest the incoming queue has been at a flush
+         */
+        int maxIncomingQueueDepth;
+
+        /**
+         * Outgoing scheduler counters for each priority class
+         */
+        Map<String,PriorityClassStats> priorityClassStats = new HashMap<String,PriorityClassStats>();
+
+        /**
+         * Gets the number of flushes that wrote at least one message
+         * @return The number of flushes
+         */
+        public long getFlushCount(){
+            return flushCount;
+        }
+
+        /**
+         * Gets the average number of bytes written per flush
+         * @return The average number of bytes
+         */
+        public double getAverageBytesPerFlush(){
+            if(flushCount == 0){
+                return 0;
+            }
+            return totalBytesFlushed / (double)flushCount;
+        }
+
+        /**
+         * Gets the largest number of bytes written by a single flush
+         * @return The number of bytes
+         */
+        public int getMaxBytesPerFlush(){
+            return maxBytesPerFlush;
+        }
+
+        /**
+         * Gets the deepest the outgoing queue has been at the start of a flush
+         * @return The number of messages
+         */
+        public int getMaxOutgoingQueueDepth(){
+            return maxOutgoingQueueDepth;
+        }
+
+        /**
+         * Gets the deepest the incoming queue has been at a flush
+         * @return The number of messages
+         */
+        public int getMaxIncomingQueueDepth(){
+            return maxIncomingQueueDepth;
+        }
+
+        /**
+         * Gets the outgoing scheduler counters of a priority class
+         * @param priorityClass The name of the priority class
+         * @return The counters if the class has been logged, null otherwise
+         */
+        public PriorityClassStats getPriorityClassStats(String priorityClass){
+            return priorityClassStats.get(priorityClass);
+        }
+
+    }
+
+    /**
+     * Outgoing scheduler counters for a single priority class of a connection
+     */
+    public static class PriorityClassStats {
+
+        /**
+         * The number of messages held for the class at the most recent frame
+         */
+        int lastQueueDepth;
+
+        /**
+         * The most messages held for the class at a frame
+         */
+        int maxQueueDepth;
+
+        /**
+         * The total number of messages sent for the class
+         */
+        long messagesSent;
+
+        /**
+         * The total number of bytes sent for the class
+         */
+        long bytesSent;
+
+        /**
+         * The total number of messages dropped because a newer one replaced them
+         */
+        long superseded;
+
+        /**
+         * Gets the most messages held for the class at a frame
+         * @return The number of messages
+         */
+        public int getMaxQueueDepth(){
+            return maxQueueDepth;
+        }
+
+        /**
+         * Gets the total number of messages sent for the class
+         * @return The number of messages
+         */
+        public long getMessagesSent(){
+            return messagesSent;
+        }
+
+        /**
+         * Gets the total number of bytes sent for the class
+         * @return The number of bytes
+         */
+        public long getBytesSent(){
+            return bytesSent;
+        }
+
+        /**
+         * Gets the total number of messages dropped because a newer one replaced them
+         * @return The number of messages
+         */
+        public long getSuperseded(){
+            return superseded;
+        }
+
+    }
+
 }
@@ -1,7 +1,5 @@
 package electrosphere.net.parser.net.message;
 
-import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import electrosphere.net.parser.util.ByteStreamUtils;
 import java.util.Map;
@@ -106,7 +104,7 @@ public class AuthMessage extends NetworkMessage {
         lenAccumulator = lenAccumulator + userlen;
         int passlen = byteBuffer.getInt();
         lenAccumulator = lenAccumulator + passlen;
-        if(byteBuffer.remaining() < 8 + lenAccumulator){
+        if(byteBuffer.remaining() < lenAccumulator){
             return null;
         }
         AuthMessage rVal = (AuthMessage)pool.get(MessageType.AUTH_MESSAGE);
@@ -170,109 +168,65 @@ public class AuthMessage extends NetworkMessage {
         return rVal;
     }
 
-    @Deprecated
     @Override
-    void serialize(){
-        byte[] intValues = new byte[8];
-        byte[] stringBytes;
+    public int getSerializedSize(){
         switch(this.messageType){
-            case AUTHREQUEST:
-                rawBytes = new byte[2];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_AUTH;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.AUTH_MESSAGE_TYPE_AUTHREQUEST;
-                break;
-            case AUTHDETAILS:
-                rawBytes = new byte[2+4+user.length()+4+pass.length()];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_AUTH;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.AUTH_MESSAGE_TYPE_AUTHDETAILS;
-                intValues = ByteStreamUtils.serializeIntToBytes(user.length());
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                stringBytes = user.getBytes();
-                for(int i = 0; i < user.length(); i++){
-                    rawBytes[6+i] = stringBytes[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(pass.length());
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+user.length()+i] = intValues[i];
-                }
-                stringBytes = pass.getBytes();
-                for(int i = 0; i < pass.length(); i++){
-                    rawBytes[10+user.length()+i] = stringBytes[i];
-                }
-                break;
-            case AUTHSUCCESS:
-                rawBytes = new byte[2];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_AUTH;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.AUTH_MESSAGE_TYPE_AUTHSUCCESS;
-                break;
-            case AUTHFAILURE:
-                rawBytes = new byte[2];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_AUTH;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.AUTH_MESSAGE_TYPE_AUTHFAILURE;
-                break;
+            case AUTHREQUEST: {
+                return TypeBytes.AUTH_MESSAGE_TYPE_AUTHREQUEST_SIZE;
+            }
+            case AUTHDETAILS: {
+                return 10 + ByteStreamUtils.getStringSize(user) + ByteStreamUtils.getStringSize(pass);
+            }
+            case AUTHSUCCESS: {
+                return TypeBytes.AUTH_MESSAGE_TYPE_AUTHSUCCESS_SIZE;
+            }
+            case AUTHFAILURE: {
+                return TypeBytes.AUTH_MESSAGE_TYPE_AUTHFAILURE_SIZE;
+            }
         }
-        serialized = true;
+        throw new Error("Unsupported message type! " + this.messageType);
     }
 
     @Override
-    public void write(OutputStream stream) throws IOException {
+    public void write(ByteBuffer buffer){
         switch(this.messageType){
             case AUTHREQUEST: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_AUTH);
-                stream.write(TypeBytes.AUTH_MESSAGE_TYPE_AUTHREQUEST);
-                
-                //
-                //Write body of packet
+                buffer.put(TypeBytes.MESSAGE_TYPE_AUTH);
+                buffer.put(TypeBytes.AUTH_MESSAGE_TYPE_AUTHREQUEST);
             } break;
             case AUTHDETAILS: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_AUTH);
-                stream.write(TypeBytes.AUTH_MESSAGE_TYPE_AUTHDETAILS);
+                buffer.put(TypeBytes.MESSAGE_TYPE_AUTH);
+                buffer.put(TypeBytes.AUTH_MESSAGE_TYPE_AUTHDETAILS);
                 
                 //
                 //Write variable length table in packet
-                ByteStreamUtils.writeInt(stream, user.getBytes().length);
-                ByteStreamUtils.writeInt(stream, pass.getBytes().length);
+                buffer.putInt(ByteStreamUtils.getStringSize(user));
+                buffer.putInt(ByteStreamUtils.getStringSize(pass));
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeString(stream, user);
-                ByteStreamUtils.writeString(stream, pass);
+                ByteStreamUtils.putString(buffer, user);
+                ByteStreamUtils.putString(buffer, pass);
             } break;
             case AUTHSUCCESS: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_AUTH);
-                stream.write(TypeBytes.AUTH_MESSAGE_TYPE_AUTHSUCCESS);
-                
-                //
-                //Write body of packet
+                buffer.put(TypeBytes.MESSAGE_TYPE_AUTH);
+                buffer.put(TypeBytes.AUTH_MESSAGE_TYPE_AUTHSUCCESS);
             } break;
             case AUTHFAILURE: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_AUTH);
-                stream.write(TypeBytes.AUTH_MESSAGE_TYPE_AUTHFAILURE);
-                
-                //
-                //Write body of packet
+                buffer.put(TypeBytes.MESSAGE_TYPE_AUTH);
+                buffer.put(TypeBytes.AUTH_MESSAGE_TYPE_AUTHFAILURE);
             } break;
         }
     }
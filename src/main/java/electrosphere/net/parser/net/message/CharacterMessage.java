@@ -1,7 +1,5 @@
 package electrosphere.net.parser.net.message;
 
-import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import electrosphere.net.parser.util.ByteStreamUtils;
 import java.util.Map;
@@ -93,7 +91,7 @@ public class CharacterMessage extends NetworkMessage {
         int lenAccumulator = 0;
         int datalen = byteBuffer.getInt();
         lenAccumulator = lenAccumulator + datalen;
-        if(byteBuffer.remaining() < 4 + lenAccumulator){
+        if(byteBuffer.remaining() < lenAccumulator){
             return null;
         }
         CharacterMessage rVal = (CharacterMessage)pool.get(MessageType.CHARACTER_MESSAGE);
@@ -123,7 +121,7 @@ public class CharacterMessage extends NetworkMessage {
         int lenAccumulator = 0;
         int datalen = byteBuffer.getInt();
         lenAccumulator = lenAccumulator + datalen;
-        if(byteBuffer.remaining() < 4 + lenAccumulator){
+        if(byteBuffer.remaining() < lenAccumulator){
             return null;
         }
         CharacterMessage rVal = (CharacterMessage)pool.get(MessageType.CHARACTER_MESSAGE);
@@ -193,7 +191,7 @@ public class CharacterMessage extends NetworkMessage {
         int lenAccumulator = 0;
         int datalen = byteBuffer.getInt();
         lenAccumulator = lenAccumulator + datalen;
-        if(byteBuffer.remaining() < 4 + lenAccumulator){
+        if(byteBuffer.remaining() < lenAccumulator){
             return null;
         }
         CharacterMessage rVal = (CharacterMessage)pool.get(MessageType.CHARACTER_MESSAGE);
@@ -223,7 +221,7 @@ public class CharacterMessage extends NetworkMessage {
         int lenAccumulator = 0;
         int datalen = byteBuffer.getInt();
         lenAccumulator = lenAccumulator + datalen;
-        if(byteBuffer.remaining() < 4 + lenAccumulator){
+        if(byteBuffer.remaining() < lenAccumulator){
             return null;
         }
         CharacterMessage rVal = (CharacterMessage)pool.get(MessageType.CHARACTER_MESSAGE);
@@ -263,206 +261,127 @@ public class CharacterMessage extends NetworkMessage {
         return rVal;
     }
 
-    @Deprecated
     @Override
-    void serialize(){
-        byte[] intValues = new byte[8];
-        byte[] stringBytes;
+    public int getSerializedSize(){
         switch(this.messageType){
-            case REQUESTCHARACTERLIST:
-                rawBytes = new byte[2];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_CHARACTER;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.CHARACTER_MESSAGE_TYPE_REQUESTCHARACTERLIST;
-                break;
-            case RESPONSECHARACTERLIST:
-                rawBytes = new byte[2+4+data.length()];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_CHARACTER;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.CHARACTER_MESSAGE_TYPE_RESPONSECHARACTERLIST;
-                intValues = ByteStreamUtils.serializeIntToBytes(data.length());
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                stringBytes = data.getBytes();
-                for(int i = 0; i < data.length(); i++){
-                    rawBytes[6+i] = stringBytes[i];
-                }
-                break;
-            case REQUESTCREATECHARACTER:
-                rawBytes = new byte[2+4+data.length()];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_CHARACTER;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.CHARACTER_MESSAGE_TYPE_REQUESTCREATECHARACTER;
-                intValues = ByteStreamUtils.serializeIntToBytes(data.length());
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                stringBytes = data.getBytes();
-                for(int i = 0; i < data.length(); i++){
-                    rawBytes[6+i] = stringBytes[i];
-                }
-                break;
-            case RESPONSECREATECHARACTERSUCCESS:
-                rawBytes = new byte[2];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_CHARACTER;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.CHARACTER_MESSAGE_TYPE_RESPONSECREATECHARACTERSUCCESS;
-                break;
-            case RESPONSECREATECHARACTERFAILURE:
-                rawBytes = new byte[2];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_CHARACTER;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.CHARACTER_MESSAGE_TYPE_RESPONSECREATECHARACTERFAILURE;
-                break;
-            case REQUESTSPAWNCHARACTER:
-                rawBytes = new byte[2+4+data.length()];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_CHARACTER;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.CHARACTER_MESSAGE_TYPE_REQUESTSPAWNCHARACTER;
-                intValues = ByteStreamUtils.serializeIntToBytes(data.length());
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                stringBytes = data.getBytes();
-                for(int i = 0; i < data.length(); i++){
-                    rawBytes[6+i] = stringBytes[i];
-                }
-                break;
-            case RESPONSESPAWNCHARACTER:
-                rawBytes = new byte[2+4+data.length()];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_CHARACTER;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.CHARACTER_MESSAGE_TYPE_RESPONSESPAWNCHARACTER;
-                intValues = ByteStreamUtils.serializeIntToBytes(data.length());
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                stringBytes = data.getBytes();
-                for(int i = 0; i < data.length(); i++){
-                    rawBytes[6+i] = stringBytes[i];
-                }
-                break;
-            case EDITORSWAP:
-                rawBytes = new byte[2];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_CHARACTER;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.CHARACTER_MESSAGE_TYPE_EDITORSWAP;
-                break;
+            case REQUESTCHARACTERLIST: {
+                return TypeBytes.CHARACTER_MESSAGE_TYPE_REQUESTCHARACTERLIST_SIZE;
+            }
+            case RESPONSECHARACTERLIST: {
+                return 6 + ByteStreamUtils.getStringSize(data);
+            }
+            case REQUESTCREATECHARACTER: {
+                return 6 + ByteStreamUtils.getStringSize(data);
+            }
+            case RESPONSECREATECHARACTERSUCCESS: {
+                return TypeBytes.CHARACTER_MESSAGE_TYPE_RESPONSECREATECHARACTERSUCCESS_SIZE;
+            }
+            case RESPONSECREATECHARACTERFAILURE: {
+                return TypeBytes.CHARACTER_MESSAGE_TYPE_RESPONSECREATECHARACTERFAILURE_SIZE;
+            }
+            case REQUESTSPAWNCHARACTER: {
+                return 6 + ByteStreamUtils.getStringSize(data);
+            }
+            case RESPONSESPAWNCHARACTER: {
+                return 6 + ByteStreamUtils.getStringSize(data);
+            }
+            case EDITORSWAP: {
+                return TypeBytes.CHARACTER_MESSAGE_TYPE_EDITORSWAP_SIZE;
+            }
         }
-        serialized = true;
+        throw new Error("Unsupported message type! " + this.messageType);
     }
 
     @Override
-    public void write(OutputStream stream) throws IOException {
+    public void write(ByteBuffer buffer){
         switch(this.messageType){
             case REQUESTCHARACTERLIST: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_CHARACTER);
-                stream.write(TypeBytes.CHARACTER_MESSAGE_TYPE_REQUESTCHARACTERLIST);
-                
-                //
-                //Write body of packet
+                buffer.put(TypeBytes.MESSAGE_TYPE_CHARACTER);
+                buffer.put(TypeBytes.CHARACTER_MESSAGE_TYPE_REQUESTCHARACTERLIST);
             } break;
             case RESPONSECHARACTERLIST: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_CHARACTER);
-                stream.write(TypeBytes.CHARACTER_MESSAGE_TYPE_RESPONSECHARACTERLIST);
+                buffer.put(TypeBytes.MESSAGE_TYPE_CHARACTER);
+                buffer.put(TypeBytes.CHARACTER_MESSAGE_TYPE_RESPONSECHARACTERLIST);
                 
                 //
                 //Write variable length table in packet
-                ByteStreamUtils.writeInt(stream, data.getBytes().length);
+                buffer.putInt(ByteStreamUtils.getStringSize(data));
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeString(stream, data);
+                ByteStreamUtils.putString(buffer, data);
             } break;
             case REQUESTCREATECHARACTER: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_CHARACTER);
-                stream.write(TypeBytes.CHARACTER_MESSAGE_TYPE_REQUESTCREATECHARACTER);
+                buffer.put(TypeBytes.MESSAGE_TYPE_CHARACTER);
+                buffer.put(TypeBytes.CHARACTER_MESSAGE_TYPE_REQUESTCREATECHARACTER);
                 
                 //
                 //Write variable length table in packet
-                ByteStreamUtils.writeInt(stream, data.getBytes().length);
+                buffer.putInt(ByteStreamUtils.getStringSize(data));
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeString(stream, data);
+                ByteStreamUtils.putString(buffer, data);
             } break;
             case RESPONSECREATECHARACTERSUCCESS: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_CHARACTER);
-                stream.write(TypeBytes.CHARACTER_MESSAGE_TYPE_RESPONSECREATECHARACTERSUCCESS);
-                
-                //
-                //Write body of packet
+                buffer.put(TypeBytes.MESSAGE_TYPE_CHARACTER);
+                buffer.put(TypeBytes.CHARACTER_MESSAGE_TYPE_RESPONSECREATECHARACTERSUCCESS);
             } break;
             case RESPONSECREATECHARACTERFAILURE: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_CHARACTER);
-                stream.write(TypeBytes.CHARACTER_MESSAGE_TYPE_RESPONSECREATECHARACTERFAILURE);
-                
-                //
-                //Write body of packet
+                buffer.put(TypeBytes.MESSAGE_TYPE_CHARACTER);
+                buffer.put(TypeBytes.CHARACTER_MESSAGE_TYPE_RESPONSECREATECHARACTERFAILURE);
             } break;
             case REQUESTSPAWNCHARACTER: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_CHARACTER);
-                stream.write(TypeBytes.CHARACTER_MESSAGE_TYPE_REQUESTSPAWNCHARACTER);
+                buffer.put(TypeBytes.MESSAGE_TYPE_CHARACTER);
+                buffer.put(TypeBytes.CHARACTER_MESSAGE_TYPE_REQUESTSPAWNCHARACTER);
                 
                 //
                 //Write variable length table in packet
-                ByteStreamUtils.writeInt(stream, data.getBytes().length);
+                buffer.putInt(ByteStreamUtils.getStringSize(data));
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeString(stream, data);
+                ByteStreamUtils.putString(buffer, data);
             } break;
             case RESPONSESPAWNCHARACTER: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_CHARACTER);
-                stream.write(TypeBytes.CHARACTER_MESSAGE_TYPE_RESPONSESPAWNCHARACTER);
+                buffer.put(TypeBytes.MESSAGE_TYPE_CHARACTER);
+                buffer.put(TypeBytes.CHARACTER_MESSAGE_TYPE_RESPONSESPAWNCHARACTER);
                 
                 //
                 //Write variable length table in packet
-                ByteStreamUtils.writeInt(stream, data.getBytes().length);
+                buffer.putInt(ByteStreamUtils.getStringSize(data));
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeString(stream, data);
+                ByteStreamUtils.putString(buffer, data);
             } break;
             case EDITORSWAP: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_CHARACTER);
-                stream.write(TypeBytes.CHARACTER_MESSAGE_TYPE_EDITORSWAP);
-                
-                //
-                //Write body of packet
+                buffer.put(TypeBytes.MESSAGE_TYPE_CHARACTER);
+                buffer.put(TypeBytes.CHARACTER_MESSAGE_TYPE_EDITORSWAP);
             } break;
         }
     }
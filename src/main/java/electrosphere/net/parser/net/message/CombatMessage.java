@@ -1,7 +1,5 @@
 package electrosphere.net.parser.net.message;
 
-import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import electrosphere.net.parser.util.ByteStreamUtils;
 import java.util.Map;
@@ -233,7 +231,7 @@ public class CombatMessage extends NetworkMessage {
         lenAccumulator = lenAccumulator + hitboxTypelen;
         int hurtboxTypelen = byteBuffer.getInt();
         lenAccumulator = lenAccumulator + hurtboxTypelen;
-        if(byteBuffer.remaining() < 48 + lenAccumulator){
+        if(byteBuffer.remaining() < 40 + lenAccumulator){
             return null;
         }
         CombatMessage rVal = (CombatMessage)pool.get(MessageType.COMBAT_MESSAGE);
@@ -269,88 +267,41 @@ public class CombatMessage extends NetworkMessage {
         return rVal;
     }
 
-    @Deprecated
     @Override
-    void serialize(){
-        byte[] intValues = new byte[8];
-        byte[] stringBytes;
+    public int getSerializedSize(){
         switch(this.messageType){
-            case SERVERREPORTHITBOXCOLLISION:
-                rawBytes = new byte[2+4+4+8+4+hitboxType.length()+4+hurtboxType.length()+8+8+8];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_COMBAT;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.COMBAT_MESSAGE_TYPE_SERVERREPORTHITBOXCOLLISION;
-                intValues = ByteStreamUtils.serializeIntToBytes(entityID);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(receiverEntityID);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeLongToBytes(time);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(hitboxType.length());
-                for(int i = 0; i < 4; i++){
-                    rawBytes[18+i] = intValues[i];
-                }
-                stringBytes = hitboxType.getBytes();
-                for(int i = 0; i < hitboxType.length(); i++){
-                    rawBytes[22+i] = stringBytes[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(hurtboxType.length());
-                for(int i = 0; i < 4; i++){
-                    rawBytes[22+hitboxType.length()+i] = intValues[i];
-                }
-                stringBytes = hurtboxType.getBytes();
-                for(int i = 0; i < hurtboxType.length(); i++){
-                    rawBytes[26+hitboxType.length()+i] = stringBytes[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(positionX);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[26+hitboxType.length()+hurtboxType.length()+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(positionY);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[34+hitboxType.length()+hurtboxType.length()+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(positionZ);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[42+hitboxType.length()+hurtboxType.length()+i] = intValues[i];
-                }
-                break;
+            case SERVERREPORTHITBOXCOLLISION: {
+                return 50 + ByteStreamUtils.getStringSize(hitboxType) + ByteStreamUtils.getStringSize(hurtboxType);
+            }
         }
-        serialized = true;
+        throw new Error("Unsupported message type! " + this.messageType);
     }
 
     @Override
-    public void write(OutputStream stream) throws IOException {
+    public void write(ByteBuffer buffer){
         switch(this.messageType){
             case SERVERREPORTHITBOXCOLLISION: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_COMBAT);
-                stream.write(TypeBytes.COMBAT_MESSAGE_TYPE_SERVERREPORTHITBOXCOLLISION);
+                buffer.put(TypeBytes.MESSAGE_TYPE_COMBAT);
+                buffer.put(TypeBytes.COMBAT_MESSAGE_TYPE_SERVERREPORTHITBOXCOLLISION);
                 
                 //
                 //Write variable length table in packet
-                ByteStreamUtils.writeInt(stream, hitboxType.getBytes().length);
-                ByteStreamUtils.writeInt(stream, hurtboxType.getBytes().length);
+                buffer.putInt(ByteStreamUtils.getStringSize(hitboxType));
+                buffer.putInt(ByteStreamUtils.getStringSize(hurtboxType));
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, entityID);
-                ByteStreamUtils.writeInt(stream, receiverEntityID);
-                ByteStreamUtils.writeLong(stream, time);
-                ByteStreamUtils.writeString(stream, hitboxType);
-                ByteStreamUtils.writeString(stream, hurtboxType);
-                ByteStreamUtils.writeDouble(stream, positionX);
-                ByteStreamUtils.writeDouble(stream, positionY);
-                ByteStreamUtils.writeDouble(stream, positionZ);
+                buffer.putInt(entityID);
+                buffer.putInt(receiverEntityID);
+                buffer.putLong(time);
+                ByteStreamUtils.putString(buffer, hitboxType);
+                ByteStreamUtils.putString(buffer, hurtboxType);
+                buffer.putDouble(positionX);
+                buffer.putDouble(positionY);
+                buffer.putDouble(positionZ);
             } break;
         }
     }
@@ -1,7 +1,5 @@
 package electrosphere.net.parser.net.message;
 
-import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import electrosphere.net.parser.util.ByteStreamUtils;
 import java.util.Map;
@@ -24,6 +22,7 @@ public class EntityMessage extends NetworkMessage {
         UPDATEENTITYVIEWDIR,
         SYNCPHYSICS,
         INTERACT,
+        MOVEUPDATEBATCH,
     }
 
     /**
@@ -66,6 +65,7 @@ public class EntityMessage extends NetworkMessage {
     int propertyValueInt;
     boolean bodyEnabled;
     String interactionSignal;
+    byte[] movementData;
 
     /**
      * Constructor
@@ -591,6 +591,20 @@ public class EntityMessage extends NetworkMessage {
         this.interactionSignal = interactionSignal;
     }
 
+    /**
+     * Gets movementData
+     */
+    public byte[] getmovementData() {
+        return movementData;
+    }
+
+    /**
+     * Sets movementData
+     */
+    public void setmovementData(byte[] movementData) {
+        this.movementData = movementData;
+    }
+
     /**
      * Parses a message of type Create
      */
@@ -603,7 +617,7 @@ public class EntityMessage extends NetworkMessage {
         lenAccumulator = lenAccumulator + entitySubtypelen;
         int creatureTemplatelen = byteBuffer.getInt();
         lenAccumulator = lenAccumulator + creatureTemplatelen;
-        if(byteBuffer.remaining() < 72 + lenAccumulator){
+        if(byteBuffer.remaining() < 64 + lenAccumulator){
             return null;
         }
         EntityMessage rVal = (EntityMessage)pool.get(MessageType.ENTITY_MESSAGE);
@@ -833,7 +847,7 @@ public class EntityMessage extends NetworkMessage {
         int lenAccumulator = 0;
         int bonelen = byteBuffer.getInt();
         lenAccumulator = lenAccumulator + bonelen;
-        if(byteBuffer.remaining() < 12 + lenAccumulator){
+        if(byteBuffer.remaining() < 8 + lenAccumulator){
             return null;
         }
         EntityMessage rVal = (EntityMessage)pool.get(MessageType.ENTITY_MESSAGE);
@@ -961,7 +975,7 @@ public class EntityMessage extends NetworkMessage {
         int lenAccumulator = 0;
         int interactionSignallen = byteBuffer.getInt();
         lenAccumulator = lenAccumulator + interactionSignallen;
-        if(byteBuffer.remaining() < 8 + lenAccumulator){
+        if(byteBuffer.remaining() < 4 + lenAccumulator){
             return null;
         }
         EntityMessage rVal = (EntityMessage)pool.get(MessageType.ENTITY_MESSAGE);
@@ -983,591 +997,293 @@ public class EntityMessage extends NetworkMessage {
         return rVal;
     }
 
-    @Deprecated
+    /**
+     * Parses a message of type moveUpdateBatch
+     */
+    public static EntityMessage parsemoveUpdateBatchMessage(ByteBuffer byteBuffer, MessagePool pool, Map<Short,BiConsumer<NetworkMessage,ByteBuffer>> customParserMap){
+        if(byteBuffer.remaining() < 12){
+            return null;
+        }
+        int lenAccumulator = 0;
+        int movementDatalen = byteBuffer.getInt();
+        lenAccumulator = lenAccumulator + movementDatalen;
+        if(byteBuffer.remaining() < 8 + lenAccumulator){
+            return null;
+        }
+        EntityMessage rVal = (EntityMessage)pool.get(MessageType.ENTITY_MESSAGE);
+        rVal.messageType = EntityMessageType.MOVEUPDATEBATCH;
+        rVal.settime(byteBuffer.getLong());
+        if(movementDatalen > 0){
+            rVal.setmovementData(ByteStreamUtils.popByteArrayFromByteBuffer(byteBuffer, movementDatalen));
+        } else {
+            rVal.setmovementData(new byte[0]);
+        }
+        return rVal;
+    }
+
+    /**
+     * Constructs a message of type moveUpdateBatch
+     */
+    public static EntityMessage constructmoveUpdateBatchMessage(long time,byte[] movementData){
+        EntityMessage rVal = new EntityMessage(EntityMessageType.MOVEUPDATEBATCH);
+        rVal.settime(time);
+        rVal.setmovementData(movementData);
+        return rVal;
+    }
+
     @Override
-    void serialize(){
-        byte[] intValues = new byte[8];
-        byte[] stringBytes;
+    public int getSerializedSize(){
         switch(this.messageType){
-            case CREATE:
-                rawBytes = new byte[2+4+4+4+entitySubtype.length()+4+creatureTemplate.length()+8+8+8+8+8+8+8];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_ENTITY;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.ENTITY_MESSAGE_TYPE_CREATE;
-                intValues = ByteStreamUtils.serializeIntToBytes(entityID);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(entityCategory);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(entitySubtype.length());
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                stringBytes = entitySubtype.getBytes();
-                for(int i = 0; i < entitySubtype.length(); i++){
-                    rawBytes[14+i] = stringBytes[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(creatureTemplate.length());
-                for(int i = 0; i < 4; i++){
-                    rawBytes[14+entitySubtype.length()+i] = intValues[i];
-                }
-                stringBytes = creatureTemplate.getBytes();
-                for(int i = 0; i < creatureTemplate.length(); i++){
-                    rawBytes[18+entitySubtype.length()+i] = stringBytes[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(positionX);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[18+entitySubtype.length()+creatureTemplate.length()+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(positionY);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[26+entitySubtype.length()+creatureTemplate.length()+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(positionZ);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[34+entitySubtype.length()+creatureTemplate.length()+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(rotationX);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[42+entitySubtype.length()+creatureTemplate.length()+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(rotationY);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[50+entitySubtype.length()+creatureTemplate.length()+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(rotationZ);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[58+entitySubtype.length()+creatureTemplate.length()+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(rotationW);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[66+entitySubtype.length()+creatureTemplate.length()+i] = intValues[i];
-                }
-                break;
-            case MOVEUPDATE:
-                rawBytes = new byte[2+4+8+8+8+8+8+8+8+8+8+4+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_ENTITY;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.ENTITY_MESSAGE_TYPE_MOVEUPDATE;
-                intValues = ByteStreamUtils.serializeIntToBytes(entityID);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeLongToBytes(time);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(positionX);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[14+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(positionY);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[22+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(positionZ);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[30+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(rotationX);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[38+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(rotationY);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[46+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(rotationZ);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[54+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(rotationW);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[62+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(velocity);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[70+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(propertyValueInt);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[78+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(treeState);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[82+i] = intValues[i];
-                }
-                break;
-            case ATTACKUPDATE:
-                rawBytes = new byte[2+4+8+8+8+8+8+8+8+8+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_ENTITY;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.ENTITY_MESSAGE_TYPE_ATTACKUPDATE;
-                intValues = ByteStreamUtils.serializeIntToBytes(entityID);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeLongToBytes(time);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(positionX);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[14+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(positionY);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[22+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(positionZ);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[30+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(rotationX);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[38+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(rotationY);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[46+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(rotationZ);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[54+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(velocity);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[62+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(treeState);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[70+i] = intValues[i];
-                }
-                break;
-            case STARTATTACK:
-                rawBytes = new byte[2];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_ENTITY;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.ENTITY_MESSAGE_TYPE_STARTATTACK;
-                break;
-            case KILL:
-                rawBytes = new byte[2+8+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_ENTITY;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.ENTITY_MESSAGE_TYPE_KILL;
-                intValues = ByteStreamUtils.serializeLongToBytes(time);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(entityID);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                break;
-            case DESTROY:
-                rawBytes = new byte[2+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_ENTITY;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.ENTITY_MESSAGE_TYPE_DESTROY;
-                intValues = ByteStreamUtils.serializeIntToBytes(entityID);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                break;
-            case SETPROPERTY:
-                rawBytes = new byte[2+4+8+4+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_ENTITY;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.ENTITY_MESSAGE_TYPE_SETPROPERTY;
-                intValues = ByteStreamUtils.serializeIntToBytes(entityID);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeLongToBytes(time);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(propertyType);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[14+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(propertyValue);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[18+i] = intValues[i];
-                }
-                break;
-            case ATTACHENTITYTOENTITY:
-                rawBytes = new byte[2+4+4+bone.length()+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_ENTITY;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.ENTITY_MESSAGE_TYPE_ATTACHENTITYTOENTITY;
-                intValues = ByteStreamUtils.serializeIntToBytes(entityID);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(bone.length());
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                stringBytes = bone.getBytes();
-                for(int i = 0; i < bone.length(); i++){
-                    rawBytes[10+i] = stringBytes[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(targetID);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+bone.length()+i] = intValues[i];
-                }
-                break;
-            case UPDATEENTITYVIEWDIR:
-                rawBytes = new byte[2+4+8+4+8+8];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_ENTITY;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.ENTITY_MESSAGE_TYPE_UPDATEENTITYVIEWDIR;
-                intValues = ByteStreamUtils.serializeIntToBytes(entityID);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeLongToBytes(time);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(propertyType);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[14+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(yaw);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[18+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(pitch);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[26+i] = intValues[i];
-                }
-                break;
-            case SYNCPHYSICS:
-                rawBytes = new byte[2+4+8+8+8+8+8+8+8+8+8+8+8+8+8+8+8+8+8+8+8+8+1];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_ENTITY;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.ENTITY_MESSAGE_TYPE_SYNCPHYSICS;
-                intValues = ByteStreamUtils.serializeIntToBytes(entityID);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeLongToBytes(time);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(positionX);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[14+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(positionY);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[22+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(positionZ);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[30+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(rotationX);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[38+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(rotationY);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[46+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(rotationZ);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[54+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(rotationW);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[62+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(linVelX);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[70+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(linVelY);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[78+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(linVelZ);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[86+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(angVelX);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[94+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(angVelY);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[102+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(angVelZ);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[110+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(linForceX);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[118+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(linForceY);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[126+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(linForceZ);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[134+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(angForceX);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[142+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(angForceY);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[150+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(angForceZ);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[158+i] = intValues[i];
-                }
-                rawBytes[166] = bodyEnabled ? (byte)1 : (byte)0;
-                break;
-            case INTERACT:
-                rawBytes = new byte[2+4+4+interactionSignal.length()];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_ENTITY;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.ENTITY_MESSAGE_TYPE_INTERACT;
-                intValues = ByteStreamUtils.serializeIntToBytes(entityID);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(interactionSignal.length());
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                stringBytes = interactionSignal.getBytes();
-                for(int i = 0; i < interactionSignal.length(); i++){
-                    rawBytes[10+i] = stringBytes[i];
-                }
-                break;
+            case CREATE: {
+                return 74 + ByteStreamUtils.getStringSize(entitySubtype) + ByteStreamUtils.getStringSize(creatureTemplate);
+            }
+            case MOVEUPDATE: {
+                return TypeBytes.ENTITY_MESSAGE_TYPE_MOVEUPDATE_SIZE;
+            }
+            case ATTACKUPDATE: {
+                return TypeBytes.ENTITY_MESSAGE_TYPE_ATTACKUPDATE_SIZE;
+            }
+            case STARTATTACK: {
+                return TypeBytes.ENTITY_MESSAGE_TYPE_STARTATTACK_SIZE;
+            }
+            case KILL: {
+                return TypeBytes.ENTITY_MESSAGE_TYPE_KILL_SIZE;
+            }
+            case DESTROY: {
+                return TypeBytes.ENTITY_MESSAGE_TYPE_DESTROY_SIZE;
+            }
+            case SETPROPERTY: {
+                return TypeBytes.ENTITY_MESSAGE_TYPE_SETPROPERTY_SIZE;
+            }
+            case ATTACHENTITYTOENTITY: {
+                return 14 + ByteStreamUtils.getStringSize(bone);
+            }
+            case UPDATEENTITYVIEWDIR: {
+                return TypeBytes.ENTITY_MESSAGE_TYPE_UPDATEENTITYVIEWDIR_SIZE;
+            }
+            case SYNCPHYSICS: {
+                return TypeBytes.ENTITY_MESSAGE_TYPE_SYNCPHYSICS_SIZE;
+            }
+            case INTERACT: {
+                return 10 + ByteStreamUtils.getStringSize(interactionSignal);
+            }
+            case MOVEUPDATEBATCH: {
+                return 14 + movementData.length;
+            }
         }
-        serialized = true;
+        throw new Error("Unsupported message type! " + this.messageType);
     }
 
     @Override
-    public void write(OutputStream stream) throws IOException {
+    public void write(ByteBuffer buffer){
         switch(this.messageType){
             case CREATE: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_ENTITY);
-                stream.write(TypeBytes.ENTITY_MESSAGE_TYPE_CREATE);
+                buffer.put(TypeBytes.MESSAGE_TYPE_ENTITY);
+                buffer.put(TypeBytes.ENTITY_MESSAGE_TYPE_CREATE);
                 
                 //
                 //Write variable length table in packet
-                ByteStreamUtils.writeInt(stream, entitySubtype.getBytes().length);
-                ByteStreamUtils.writeInt(stream, creatureTemplate.getBytes().length);
+                buffer.putInt(ByteStreamUtils.getStringSize(entitySubtype));
+                buffer.putInt(ByteStreamUtils.getStringSize(creatureTemplate));
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, entityID);
-                ByteStreamUtils.writeInt(stream, entityCategory);
-                ByteStreamUtils.writeString(stream, entitySubtype);
-                ByteStreamUtils.writeString(stream, creatureTemplate);
-                ByteStreamUtils.writeDouble(stream, positionX);
-                ByteStreamUtils.writeDouble(stream, positionY);
-                ByteStreamUtils.writeDouble(stream, positionZ);
-                ByteStreamUtils.writeDouble(stream, rotationX);
-                ByteStreamUtils.writeDouble(stream, rotationY);
-                ByteStreamUtils.writeDouble(stream, rotationZ);
-                ByteStreamUtils.writeDouble(stream, rotationW);
+                buffer.putInt(entityID);
+                buffer.putInt(entityCategory);
+                ByteStreamUtils.putString(buffer, entitySubtype);
+                ByteStreamUtils.putString(buffer, creatureTemplate);
+                buffer.putDouble(positionX);
+                buffer.putDouble(positionY);
+                buffer.putDouble(positionZ);
+                buffer.putDouble(rotationX);
+                buffer.putDouble(rotationY);
+                buffer.putDouble(rotationZ);
+                buffer.putDouble(rotationW);
             } break;
             case MOVEUPDATE: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_ENTITY);
-                stream.write(TypeBytes.ENTITY_MESSAGE_TYPE_MOVEUPDATE);
+                buffer.put(TypeBytes.MESSAGE_TYPE_ENTITY);
+                buffer.put(TypeBytes.ENTITY_MESSAGE_TYPE_MOVEUPDATE);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, entityID);
-                ByteStreamUtils.writeLong(stream, time);
-                ByteStreamUtils.writeDouble(stream, positionX);
-                ByteStreamUtils.writeDouble(stream, positionY);
-                ByteStreamUtils.writeDouble(stream, positionZ);
-                ByteStreamUtils.writeDouble(stream, rotationX);
-                ByteStreamUtils.writeDouble(stream, rotationY);
-                ByteStreamUtils.writeDouble(stream, rotationZ);
-                ByteStreamUtils.writeDouble(stream, rotationW);
-                ByteStreamUtils.writeDouble(stream, velocity);
-                ByteStreamUtils.writeInt(stream, propertyValueInt);
-                ByteStreamUtils.writeInt(stream, treeState);
+                buffer.putInt(entityID);
+                buffer.putLong(time);
+                buffer.putDouble(positionX);
+                buffer.putDouble(positionY);
+                buffer.putDouble(positionZ);
+                buffer.putDouble(rotationX);
+                buffer.putDouble(rotationY);
+                buffer.putDouble(rotationZ);
+                buffer.putDouble(rotationW);
+                buffer.putDouble(velocity);
+                buffer.putInt(propertyValueInt);
+                buffer.putInt(treeState);
             } break;
             case ATTACKUPDATE: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_ENTITY);
-                stream.write(TypeBytes.ENTITY_MESSAGE_TYPE_ATTACKUPDATE);
+                buffer.put(TypeBytes.MESSAGE_TYPE_ENTITY);
+                buffer.put(TypeBytes.ENTITY_MESSAGE_TYPE_ATTACKUPDATE);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, entityID);
-                ByteStreamUtils.writeLong(stream, time);
-                ByteStreamUtils.writeDouble(stream, positionX);
-                ByteStreamUtils.writeDouble(stream, positionY);
-                ByteStreamUtils.writeDouble(stream, positionZ);
-                ByteStreamUtils.writeDouble(stream, rotationX);
-                ByteStreamUtils.writeDouble(stream, rotationY);
-                ByteStreamUtils.writeDouble(stream, rotationZ);
-                ByteStreamUtils.writeDouble(stream, velocity);
-                ByteStreamUtils.writeInt(stream, treeState);
+                buffer.putInt(entityID);
+                buffer.putLong(time);
+                buffer.putDouble(positionX);
+                buffer.putDouble(positionY);
+                buffer.putDouble(positionZ);
+                buffer.putDouble(rotationX);
+                buffer.putDouble(rotationY);
+                buffer.putDouble(rotationZ);
+                buffer.putDouble(velocity);
+                buffer.putInt(treeState);
             } break;
             case STARTATTACK: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_ENTITY);
-                stream.write(TypeBytes.ENTITY_MESSAGE_TYPE_STARTATTACK);
-                
-                //
-                //Write body of packet
+                buffer.put(TypeBytes.MESSAGE_TYPE_ENTITY);
+                buffer.put(TypeBytes.ENTITY_MESSAGE_TYPE_STARTATTACK);
             } break;
             case KILL: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_ENTITY);
-                stream.write(TypeBytes.ENTITY_MESSAGE_TYPE_KILL);
+                buffer.put(TypeBytes.MESSAGE_TYPE_ENTITY);
+                buffer.put(TypeBytes.ENTITY_MESSAGE_TYPE_KILL);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeLong(stream, time);
-                ByteStreamUtils.writeInt(stream, entityID);
+                buffer.putLong(time);
+                buffer.putInt(entityID);
             } break;
             case DESTROY: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_ENTITY);
-                stream.write(TypeBytes.ENTITY_MESSAGE_TYPE_DESTROY);
+                buffer.put(TypeBytes.MESSAGE_TYPE_ENTITY);
+                buffer.put(TypeBytes.ENTITY_MESSAGE_TYPE_DESTROY);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, entityID);
+                buffer.putInt(entityID);
             } break;
             case SETPROPERTY: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_ENTITY);
-                stream.write(TypeBytes.ENTITY_MESSAGE_TYPE_SETPROPERTY);
+                buffer.put(TypeBytes.MESSAGE_TYPE_ENTITY);
+                buffer.put(TypeBytes.ENTITY_MESSAGE_TYPE_SETPROPERTY);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, entityID);
-                ByteStreamUtils.writeLong(stream, time);
-                ByteStreamUtils.writeInt(stream, propertyType);
-                ByteStreamUtils.writeInt(stream, propertyValue);
+                buffer.putInt(entityID);
+                buffer.putLong(time);
+                buffer.putInt(propertyType);
+                buffer.putInt(propertyValue);
             } break;
             case ATTACHENTITYTOENTITY: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_ENTITY);
-                stream.write(TypeBytes.ENTITY_MESSAGE_TYPE_ATTACHENTITYTOENTITY);
+                buffer.put(TypeBytes.MESSAGE_TYPE_ENTITY);
+                buffer.put(TypeBytes.ENTITY_MESSAGE_TYPE_ATTACHENTITYTOENTITY);
                 
                 //
                 //Write variable length table in packet
-                ByteStreamUtils.writeInt(stream, bone.getBytes().length);
+                buffer.putInt(ByteStreamUtils.getStringSize(bone));
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, entityID);
-                ByteStreamUtils.writeString(stream, bone);
-                ByteStreamUtils.writeInt(stream, targetID);
+                buffer.putInt(entityID);
+                ByteStreamUtils.putString(buffer, bone);
+                buffer.putInt(targetID);
             } break;
             case UPDATEENTITYVIEWDIR: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_ENTITY);
-                stream.write(TypeBytes.ENTITY_MESSAGE_TYPE_UPDATEENTITYVIEWDIR);
+                buffer.put(TypeBytes.MESSAGE_TYPE_ENTITY);
+                buffer.put(TypeBytes.ENTITY_MESSAGE_TYPE_UPDATEENTITYVIEWDIR);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, entityID);
-                ByteStreamUtils.writeLong(stream, time);
-                ByteStreamUtils.writeInt(stream, propertyType);
-                ByteStreamUtils.writeDouble(stream, yaw);
-                ByteStreamUtils.writeDouble(stream, pitch);
+                buffer.putInt(entityID);
+                buffer.putLong(time);
+                buffer.putInt(propertyType);
+                buffer.putDouble(yaw);
+                buffer.putDouble(pitch);
             } break;
             case SYNCPHYSICS: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_ENTITY);
-                stream.write(TypeBytes.ENTITY_MESSAGE_TYPE_SYNCPHYSICS);
+                buffer.put(TypeBytes.MESSAGE_TYPE_ENTITY);
+                buffer.put(TypeBytes.ENTITY_MESSAGE_TYPE_SYNCPHYSICS);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, entityID);
-                ByteStreamUtils.writeLong(stream, time);
-                ByteStreamUtils.writeDouble(stream, positionX);
-                ByteStreamUtils.writeDouble(stream, positionY);
-                ByteStreamUtils.writeDouble(stream, positionZ);
-                ByteStreamUtils.writeDouble(stream, rotationX);
-                ByteStreamUtils.writeDouble(stream, rotationY);
-                ByteStreamUtils.writeDouble(stream, rotationZ);
-                ByteStreamUtils.writeDouble(stream, rotationW);
-                ByteStreamUtils.writeDouble(stream, linVelX);
-                ByteStreamUtils.writeDouble(stream, linVelY);
-                ByteStreamUtils.writeDouble(stream, linVelZ);
-                ByteStreamUtils.writeDouble(stream, angVelX);
-                ByteStreamUtils.writeDouble(stream, angVelY);
-                ByteStreamUtils.writeDouble(stream, angVelZ);
-                ByteStreamUtils.writeDouble(stream, linForceX);
-                ByteStreamUtils.writeDouble(stream, linForceY);
-                ByteStreamUtils.writeDouble(stream, linForceZ);
-                ByteStreamUtils.writeDouble(stream, angForceX);
-                ByteStreamUtils.writeDouble(stream, angForceY);
-                ByteStreamUtils.writeDouble(stream, angForceZ);
-                stream.write(bodyEnabled ? (byte)1 : (byte)0);
+                buffer.putInt(entityID);
+                buffer.putLong(time);
+                buffer.putDouble(positionX);
+                buffer.putDouble(positionY);
+                buffer.putDouble(positionZ);
+                buffer.putDouble(rotationX);
+                buffer.putDouble(rotationY);
+                buffer.putDouble(rotationZ);
+                buffer.putDouble(rotationW);
+                buffer.putDouble(linVelX);
+                buffer.putDouble(linVelY);
+                buffer.putDouble(linVelZ);
+                buffer.putDouble(angVelX);
+                buffer.putDouble(angVelY);
+                buffer.putDouble(angVelZ);
+                buffer.putDouble(linForceX);
+                buffer.putDouble(linForceY);
+                buffer.putDouble(linForceZ);
+                buffer.putDouble(angForceX);
+                buffer.putDouble(angForceY);
+                buffer.putDouble(angForceZ);
+                buffer.put(bodyEnabled ? (byte)1 : (byte)0);
             } break;
             case INTERACT: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_ENTITY);
-                stream.write(TypeBytes.ENTITY_MESSAGE_TYPE_INTERACT);
+                buffer.put(TypeBytes.MESSAGE_TYPE_ENTITY);
+                buffer.put(TypeBytes.ENTITY_MESSAGE_TYPE_INTERACT);
+                
+                //
+                //Write variable length table in packet
+                buffer.putInt(ByteStreamUtils.getStringSize(interactionSignal));
+                
+                //
+                //Write body of packet
+                buffer.putInt(entityID);
+                ByteStreamUtils.putString(buffer, interactionSignal);
+            } break;
+            case MOVEUPDATEBATCH: {
+                
+                //
+                //message header
+                buffer.put(TypeBytes.MESSAGE_TYPE_ENTITY);
+                buffer.put(TypeBytes.ENTITY_MESSAGE_TYPE_MOVEUPDATEBATCH);
                 
                 //
                 //Write variable length table in packet
-                ByteStreamUtils.writeInt(stream, interactionSignal.getBytes().length);
+                buffer.putInt(movementData.length);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, entityID);
-                ByteStreamUtils.writeString(stream, interactionSignal);
+                buffer.putLong(time);
+                buffer.put(movementData);
             } break;
         }
     }
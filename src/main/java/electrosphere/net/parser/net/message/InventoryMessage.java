@@ -1,7 +1,5 @@
 package electrosphere.net.parser.net.message;
 
-import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import electrosphere.net.parser.util.ByteStreamUtils;
 import java.util.Map;
@@ -307,7 +305,7 @@ public class InventoryMessage extends NetworkMessage {
         int lenAccumulator = 0;
         int itemTemplatelen = byteBuffer.getInt();
         lenAccumulator = lenAccumulator + itemTemplatelen;
-        if(byteBuffer.remaining() < 12 + lenAccumulator){
+        if(byteBuffer.remaining() < 8 + lenAccumulator){
             return null;
         }
         InventoryMessage rVal = (InventoryMessage)pool.get(MessageType.INVENTORY_MESSAGE);
@@ -363,7 +361,7 @@ public class InventoryMessage extends NetworkMessage {
         int lenAccumulator = 0;
         int equipPointIdlen = byteBuffer.getInt();
         lenAccumulator = lenAccumulator + equipPointIdlen;
-        if(byteBuffer.remaining() < 8 + lenAccumulator){
+        if(byteBuffer.remaining() < 4 + lenAccumulator){
             return null;
         }
         InventoryMessage rVal = (InventoryMessage)pool.get(MessageType.INVENTORY_MESSAGE);
@@ -395,7 +393,7 @@ public class InventoryMessage extends NetworkMessage {
         int lenAccumulator = 0;
         int equipPointIdlen = byteBuffer.getInt();
         lenAccumulator = lenAccumulator + equipPointIdlen;
-        if(byteBuffer.remaining() < 12 + lenAccumulator){
+        if(byteBuffer.remaining() < 8 + lenAccumulator){
             return null;
         }
         InventoryMessage rVal = (InventoryMessage)pool.get(MessageType.INVENTORY_MESSAGE);
@@ -431,7 +429,7 @@ public class InventoryMessage extends NetworkMessage {
         lenAccumulator = lenAccumulator + equipPointIdlen;
         int itemTemplatelen = byteBuffer.getInt();
         lenAccumulator = lenAccumulator + itemTemplatelen;
-        if(byteBuffer.remaining() < 20 + lenAccumulator){
+        if(byteBuffer.remaining() < 12 + lenAccumulator){
             return null;
         }
         InventoryMessage rVal = (InventoryMessage)pool.get(MessageType.INVENTORY_MESSAGE);
@@ -471,7 +469,7 @@ public class InventoryMessage extends NetworkMessage {
         int lenAccumulator = 0;
         int equipPointIdlen = byteBuffer.getInt();
         lenAccumulator = lenAccumulator + equipPointIdlen;
-        if(byteBuffer.remaining() < 12 + lenAccumulator){
+        if(byteBuffer.remaining() < 8 + lenAccumulator){
             return null;
         }
         InventoryMessage rVal = (InventoryMessage)pool.get(MessageType.INVENTORY_MESSAGE);
@@ -505,7 +503,7 @@ public class InventoryMessage extends NetworkMessage {
         int lenAccumulator = 0;
         int equipPointIdlen = byteBuffer.getInt();
         lenAccumulator = lenAccumulator + equipPointIdlen;
-        if(byteBuffer.remaining() < 4 + lenAccumulator){
+        if(byteBuffer.remaining() < lenAccumulator){
             return null;
         }
         InventoryMessage rVal = (InventoryMessage)pool.get(MessageType.INVENTORY_MESSAGE);
@@ -535,7 +533,7 @@ public class InventoryMessage extends NetworkMessage {
         int lenAccumulator = 0;
         int equipPointIdlen = byteBuffer.getInt();
         lenAccumulator = lenAccumulator + equipPointIdlen;
-        if(byteBuffer.remaining() < 16 + lenAccumulator){
+        if(byteBuffer.remaining() < 12 + lenAccumulator){
             return null;
         }
         InventoryMessage rVal = (InventoryMessage)pool.get(MessageType.INVENTORY_MESSAGE);
@@ -573,7 +571,7 @@ public class InventoryMessage extends NetworkMessage {
         lenAccumulator = lenAccumulator + itemTemplatelen;
         int equipPointIdlen = byteBuffer.getInt();
         lenAccumulator = lenAccumulator + equipPointIdlen;
-        if(byteBuffer.remaining() < 20 + lenAccumulator){
+        if(byteBuffer.remaining() < 12 + lenAccumulator){
             return null;
         }
         InventoryMessage rVal = (InventoryMessage)pool.get(MessageType.INVENTORY_MESSAGE);
@@ -725,7 +723,7 @@ public class InventoryMessage extends NetworkMessage {
         int lenAccumulator = 0;
         int equipPointIdlen = byteBuffer.getInt();
         lenAccumulator = lenAccumulator + equipPointIdlen;
-        if(byteBuffer.remaining() < 36 + lenAccumulator){
+        if(byteBuffer.remaining() < 32 + lenAccumulator){
             return null;
         }
         InventoryMessage rVal = (InventoryMessage)pool.get(MessageType.INVENTORY_MESSAGE);
@@ -805,609 +803,318 @@ public class InventoryMessage extends NetworkMessage {
         return rVal;
     }
 
-    @Deprecated
     @Override
-    void serialize(){
-        byte[] intValues = new byte[8];
-        byte[] stringBytes;
+    public int getSerializedSize(){
         switch(this.messageType){
-            case ADDITEMTOINVENTORY:
-                rawBytes = new byte[2+4+4+4+itemTemplate.length()];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_INVENTORY;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.INVENTORY_MESSAGE_TYPE_ADDITEMTOINVENTORY;
-                intValues = ByteStreamUtils.serializeIntToBytes(targetEntId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(itemEntId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(itemTemplate.length());
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                stringBytes = itemTemplate.getBytes();
-                for(int i = 0; i < itemTemplate.length(); i++){
-                    rawBytes[14+i] = stringBytes[i];
-                }
-                break;
-            case REMOVEITEMFROMINVENTORY:
-                rawBytes = new byte[2+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_INVENTORY;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.INVENTORY_MESSAGE_TYPE_REMOVEITEMFROMINVENTORY;
-                intValues = ByteStreamUtils.serializeIntToBytes(entityId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                break;
-            case CLIENTREQUESTEQUIPITEM:
-                rawBytes = new byte[2+4+equipPointId.length()+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_INVENTORY;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTEQUIPITEM;
-                intValues = ByteStreamUtils.serializeIntToBytes(equipPointId.length());
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                stringBytes = equipPointId.getBytes();
-                for(int i = 0; i < equipPointId.length(); i++){
-                    rawBytes[6+i] = stringBytes[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(entityId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+equipPointId.length()+i] = intValues[i];
-                }
-                break;
-            case SERVERCOMMANDMOVEITEMCONTAINER:
-                rawBytes = new byte[2+4+4+4+equipPointId.length()];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_INVENTORY;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.INVENTORY_MESSAGE_TYPE_SERVERCOMMANDMOVEITEMCONTAINER;
-                intValues = ByteStreamUtils.serializeIntToBytes(entityId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(containerType);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(equipPointId.length());
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                stringBytes = equipPointId.getBytes();
-                for(int i = 0; i < equipPointId.length(); i++){
-                    rawBytes[14+i] = stringBytes[i];
-                }
-                break;
-            case SERVERCOMMANDEQUIPITEM:
-                rawBytes = new byte[2+4+4+4+equipPointId.length()+4+4+itemTemplate.length()];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_INVENTORY;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.INVENTORY_MESSAGE_TYPE_SERVERCOMMANDEQUIPITEM;
-                intValues = ByteStreamUtils.serializeIntToBytes(equipperId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(containerType);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(equipPointId.length());
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                stringBytes = equipPointId.getBytes();
-                for(int i = 0; i < equipPointId.length(); i++){
-                    rawBytes[14+i] = stringBytes[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(entityId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[14+equipPointId.length()+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(itemTemplate.length());
-                for(int i = 0; i < 4; i++){
-                    rawBytes[18+equipPointId.length()+i] = intValues[i];
-                }
-                stringBytes = itemTemplate.getBytes();
-                for(int i = 0; i < itemTemplate.length(); i++){
-                    rawBytes[22+equipPointId.length()+i] = stringBytes[i];
-                }
-                break;
-            case SERVERCOMMANDUNEQUIPITEM:
-                rawBytes = new byte[2+4+4+4+equipPointId.length()];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_INVENTORY;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.INVENTORY_MESSAGE_TYPE_SERVERCOMMANDUNEQUIPITEM;
-                intValues = ByteStreamUtils.serializeIntToBytes(equipperId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(containerType);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(equipPointId.length());
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                stringBytes = equipPointId.getBytes();
-                for(int i = 0; i < equipPointId.length(); i++){
-                    rawBytes[14+i] = stringBytes[i];
-                }
-                break;
-            case CLIENTREQUESTUNEQUIPITEM:
-                rawBytes = new byte[2+4+equipPointId.length()];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_INVENTORY;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTUNEQUIPITEM;
-                intValues = ByteStreamUtils.serializeIntToBytes(equipPointId.length());
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                stringBytes = equipPointId.getBytes();
-                for(int i = 0; i < equipPointId.length(); i++){
-                    rawBytes[6+i] = stringBytes[i];
-                }
-                break;
-            case CLIENTREQUESTSTOREITEM:
-                rawBytes = new byte[2+4+4+4+equipPointId.length()+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_INVENTORY;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTSTOREITEM;
-                intValues = ByteStreamUtils.serializeIntToBytes(targetEntId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(containerType);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(equipPointId.length());
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                stringBytes = equipPointId.getBytes();
-                for(int i = 0; i < equipPointId.length(); i++){
-                    rawBytes[14+i] = stringBytes[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(itemEntId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[14+equipPointId.length()+i] = intValues[i];
-                }
-                break;
-            case SERVERCOMMANDSTOREITEM:
-                rawBytes = new byte[2+4+4+4+itemTemplate.length()+4+4+equipPointId.length()];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_INVENTORY;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.INVENTORY_MESSAGE_TYPE_SERVERCOMMANDSTOREITEM;
-                intValues = ByteStreamUtils.serializeIntToBytes(targetEntId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(itemEntId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(itemTemplate.length());
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                stringBytes = itemTemplate.getBytes();
-                for(int i = 0; i < itemTemplate.length(); i++){
-                    rawBytes[14+i] = stringBytes[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(containerType);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[14+itemTemplate.length()+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(equipPointId.length());
-                for(int i = 0; i < 4; i++){
-                    rawBytes[18+itemTemplate.length()+i] = intValues[i];
-                }
-                stringBytes = equipPointId.getBytes();
-                for(int i = 0; i < equipPointId.length(); i++){
-                    rawBytes[22+itemTemplate.length()+i] = stringBytes[i];
-                }
-                break;
-            case CLIENTREQUESTWATCHINVENTORY:
-                rawBytes = new byte[2+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_INVENTORY;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTWATCHINVENTORY;
-                intValues = ByteStreamUtils.serializeIntToBytes(targetEntId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                break;
-            case CLIENTREQUESTUNWATCHINVENTORY:
-                rawBytes = new byte[2+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_INVENTORY;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTUNWATCHINVENTORY;
-                intValues = ByteStreamUtils.serializeIntToBytes(targetEntId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                break;
-            case CLIENTREQUESTADDTOOLBAR:
-                rawBytes = new byte[2+4+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_INVENTORY;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTADDTOOLBAR;
-                intValues = ByteStreamUtils.serializeIntToBytes(entityId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(toolbarId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                break;
-            case CLIENTREQUESTADDNATURAL:
-                rawBytes = new byte[2+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_INVENTORY;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTADDNATURAL;
-                intValues = ByteStreamUtils.serializeIntToBytes(entityId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                break;
-            case CLIENTUPDATETOOLBAR:
-                rawBytes = new byte[2+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_INVENTORY;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTUPDATETOOLBAR;
-                intValues = ByteStreamUtils.serializeIntToBytes(toolbarId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                break;
-            case CLIENTREQUESTPERFORMITEMACTION:
-                rawBytes = new byte[2+4+equipPointId.length()+4+4+8+8+8];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_INVENTORY;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTPERFORMITEMACTION;
-                intValues = ByteStreamUtils.serializeIntToBytes(equipPointId.length());
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                stringBytes = equipPointId.getBytes();
-                for(int i = 0; i < equipPointId.length(); i++){
-                    rawBytes[6+i] = stringBytes[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(itemActionCode);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+equipPointId.length()+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(itemActionCodeState);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+equipPointId.length()+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(viewTargetX);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[14+equipPointId.length()+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(viewTargetY);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[22+equipPointId.length()+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(viewTargetZ);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[30+equipPointId.length()+i] = intValues[i];
-                }
-                break;
-            case CLIENTREQUESTCRAFT:
-                rawBytes = new byte[2+4+4+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_INVENTORY;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTCRAFT;
-                intValues = ByteStreamUtils.serializeIntToBytes(entityId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(stationId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(recipeId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                break;
-            case SERVERUPDATEITEMCHARGES:
-                rawBytes = new byte[2+4+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_INVENTORY;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.INVENTORY_MESSAGE_TYPE_SERVERUPDATEITEMCHARGES;
-                intValues = ByteStreamUtils.serializeIntToBytes(entityId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(charges);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                break;
+            case ADDITEMTOINVENTORY: {
+                return 14 + ByteStreamUtils.getStringSize(itemTemplate);
+            }
+            case REMOVEITEMFROMINVENTORY: {
+                return TypeBytes.INVENTORY_MESSAGE_TYPE_REMOVEITEMFROMINVENTORY_SIZE;
+            }
+            case CLIENTREQUESTEQUIPITEM: {
+                return 10 + ByteStreamUtils.getStringSize(equipPointId);
+            }
+            case SERVERCOMMANDMOVEITEMCONTAINER: {
+                return 14 + ByteStreamUtils.getStringSize(equipPointId);
+            }
+            case SERVERCOMMANDEQUIPITEM: {
+                return 22 + ByteStreamUtils.getStringSize(equipPointId) + ByteStreamUtils.getStringSize(itemTemplate);
+            }
+            case SERVERCOMMANDUNEQUIPITEM: {
+                return 14 + ByteStreamUtils.getStringSize(equipPointId);
+            }
+            case CLIENTREQUESTUNEQUIPITEM: {
+                return 6 + ByteStreamUtils.getStringSize(equipPointId);
+            }
+            case CLIENTREQUESTSTOREITEM: {
+                return 18 + ByteStreamUtils.getStringSize(equipPointId);
+            }
+            case SERVERCOMMANDSTOREITEM: {
+                return 22 + ByteStreamUtils.getStringSize(itemTemplate) + ByteStreamUtils.getStringSize(equipPointId);
+            }
+            case CLIENTREQUESTWATCHINVENTORY: {
+                return TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTWATCHINVENTORY_SIZE;
+            }
+            case CLIENTREQUESTUNWATCHINVENTORY: {
+                return TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTUNWATCHINVENTORY_SIZE;
+            }
+            case CLIENTREQUESTADDTOOLBAR: {
+                return TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTADDTOOLBAR_SIZE;
+            }
+            case CLIENTREQUESTADDNATURAL: {
+                return TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTADDNATURAL_SIZE;
+            }
+            case CLIENTUPDATETOOLBAR: {
+                return TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTUPDATETOOLBAR_SIZE;
+            }
+            case CLIENTREQUESTPERFORMITEMACTION: {
+                return 38 + ByteStreamUtils.getStringSize(equipPointId);
+            }
+            case CLIENTREQUESTCRAFT: {
+                return TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTCRAFT_SIZE;
+            }
+            case SERVERUPDATEITEMCHARGES: {
+                return TypeBytes.INVENTORY_MESSAGE_TYPE_SERVERUPDATEITEMCHARGES_SIZE;
+            }
         }
-        serialized = true;
+        throw new Error("Unsupported message type! " + this.messageType);
     }
 
     @Override
-    public void write(OutputStream stream) throws IOException {
+    public void write(ByteBuffer buffer){
         switch(this.messageType){
             case ADDITEMTOINVENTORY: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_INVENTORY);
-                stream.write(TypeBytes.INVENTORY_MESSAGE_TYPE_ADDITEMTOINVENTORY);
+                buffer.put(TypeBytes.MESSAGE_TYPE_INVENTORY);
+                buffer.put(TypeBytes.INVENTORY_MESSAGE_TYPE_ADDITEMTOINVENTORY);
                 
                 //
                 //Write variable length table in packet
-                ByteStreamUtils.writeInt(stream, itemTemplate.getBytes().length);
+                buffer.putInt(ByteStreamUtils.getStringSize(itemTemplate));
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, targetEntId);
-                ByteStreamUtils.writeInt(stream, itemEntId);
-                ByteStreamUtils.writeString(stream, itemTemplate);
+                buffer.putInt(targetEntId);
+                buffer.putInt(itemEntId);
+                ByteStreamUtils.putString(buffer, itemTemplate);
             } break;
             case REMOVEITEMFROMINVENTORY: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_INVENTORY);
-                stream.write(TypeBytes.INVENTORY_MESSAGE_TYPE_REMOVEITEMFROMINVENTORY);
+                buffer.put(TypeBytes.MESSAGE_TYPE_INVENTORY);
+                buffer.put(TypeBytes.INVENTORY_MESSAGE_TYPE_REMOVEITEMFROMINVENTORY);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, entityId);
+                buffer.putInt(entityId);
             } break;
             case CLIENTREQUESTEQUIPITEM: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_INVENTORY);
-                stream.write(TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTEQUIPITEM);
+                buffer.put(TypeBytes.MESSAGE_TYPE_INVENTORY);
+                buffer.put(TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTEQUIPITEM);
                 
                 //
                 //Write variable length table in packet
-                ByteStreamUtils.writeInt(stream, equipPointId.getBytes().length);
+                buffer.putInt(ByteStreamUtils.getStringSize(equipPointId));
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeString(stream, equipPointId);
-                ByteStreamUtils.writeInt(stream, entityId);
+                ByteStreamUtils.putString(buffer, equipPointId);
+                buffer.putInt(entityId);
             } break;
             case SERVERCOMMANDMOVEITEMCONTAINER: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_INVENTORY);
-                stream.write(TypeBytes.INVENTORY_MESSAGE_TYPE_SERVERCOMMANDMOVEITEMCONTAINER);
+                buffer.put(TypeBytes.MESSAGE_TYPE_INVENTORY);
+                buffer.put(TypeBytes.INVENTORY_MESSAGE_TYPE_SERVERCOMMANDMOVEITEMCONTAINER);
                 
                 //
                 //Write variable length table in packet
-                ByteStreamUtils.writeInt(stream, equipPointId.getBytes().length);
+                buffer.putInt(ByteStreamUtils.getStringSize(equipPointId));
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, entityId);
-                ByteStreamUtils.writeInt(stream, containerType);
-                ByteStreamUtils.writeString(stream, equipPointId);
+                buffer.putInt(entityId);
+                buffer.putInt(containerType);
+                ByteStreamUtils.putString(buffer, equipPointId);
             } break;
             case SERVERCOMMANDEQUIPITEM: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_INVENTORY);
-                stream.write(TypeBytes.INVENTORY_MESSAGE_TYPE_SERVERCOMMANDEQUIPITEM);
+                buffer.put(TypeBytes.MESSAGE_TYPE_INVENTORY);
+                buffer.put(TypeBytes.INVENTORY_MESSAGE_TYPE_SERVERCOMMANDEQUIPITEM);
                 
                 //
                 //Write variable length table in packet
-                ByteStreamUtils.writeInt(stream, equipPointId.getBytes().length);
-                ByteStreamUtils.writeInt(stream, itemTemplate.getBytes().length);
+                buffer.putInt(ByteStreamUtils.getStringSize(equipPointId));
+                buffer.putInt(ByteStreamUtils.getStringSize(itemTemplate));
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, equipperId);
-                ByteStreamUtils.writeInt(stream, containerType);
-                ByteStreamUtils.writeString(stream, equipPointId);
-                ByteStreamUtils.writeInt(stream, entityId);
-                ByteStreamUtils.writeString(stream, itemTemplate);
+                buffer.putInt(equipperId);
+                buffer.putInt(containerType);
+                ByteStreamUtils.putString(buffer, equipPointId);
+                buffer.putInt(entityId);
+                ByteStreamUtils.putString(buffer, itemTemplate);
             } break;
             case SERVERCOMMANDUNEQUIPITEM: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_INVENTORY);
-                stream.write(TypeBytes.INVENTORY_MESSAGE_TYPE_SERVERCOMMANDUNEQUIPITEM);
+                buffer.put(TypeBytes.MESSAGE_TYPE_INVENTORY);
+                buffer.put(TypeBytes.INVENTORY_MESSAGE_TYPE_SERVERCOMMANDUNEQUIPITEM);
                 
                 //
                 //Write variable length table in packet
-                ByteStreamUtils.writeInt(stream, equipPointId.getBytes().length);
+                buffer.putInt(ByteStreamUtils.getStringSize(equipPointId));
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, equipperId);
-                ByteStreamUtils.writeInt(stream, containerType);
-                ByteStreamUtils.writeString(stream, equipPointId);
+                buffer.putInt(equipperId);
+                buffer.putInt(containerType);
+                ByteStreamUtils.putString(buffer, equipPointId);
             } break;
             case CLIENTREQUESTUNEQUIPITEM: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_INVENTORY);
-                stream.write(TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTUNEQUIPITEM);
+                buffer.put(TypeBytes.MESSAGE_TYPE_INVENTORY);
+                buffer.put(TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTUNEQUIPITEM);
                 
                 //
                 //Write variable length table in packet
-                ByteStreamUtils.writeInt(stream, equipPointId.getBytes().length);
+                buffer.putInt(ByteStreamUtils.getStringSize(equipPointId));
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeString(stream, equipPointId);
+                ByteStreamUtils.putString(buffer, equipPointId);
             } break;
             case CLIENTREQUESTSTOREITEM: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_INVENTORY);
-                stream.write(TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTSTOREITEM);
+                buffer.put(TypeBytes.MESSAGE_TYPE_INVENTORY);
+                buffer.put(TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTSTOREITEM);
                 
                 //
                 //Write variable length table in packet
-                ByteStreamUtils.writeInt(stream, equipPointId.getBytes().length);
+                buffer.putInt(ByteStreamUtils.getStringSize(equipPointId));
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, targetEntId);
-                ByteStreamUtils.writeInt(stream, containerType);
-                ByteStreamUtils.writeString(stream, equipPointId);
-                ByteStreamUtils.writeInt(stream, itemEntId);
+                buffer.putInt(targetEntId);
+                buffer.putInt(containerType);
+                ByteStreamUtils.putString(buffer, equipPointId);
+                buffer.putInt(itemEntId);
             } break;
             case SERVERCOMMANDSTOREITEM: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_INVENTORY);
-                stream.write(TypeBytes.INVENTORY_MESSAGE_TYPE_SERVERCOMMANDSTOREITEM);
+                buffer.put(TypeBytes.MESSAGE_TYPE_INVENTORY);
+                buffer.put(TypeBytes.INVENTORY_MESSAGE_TYPE_SERVERCOMMANDSTOREITEM);
                 
                 //
                 //Write variable length table in packet
-                ByteStreamUtils.writeInt(stream, itemTemplate.getBytes().length);
-                ByteStreamUtils.writeInt(stream, equipPointId.getBytes().length);
+                buffer.putInt(ByteStreamUtils.getStringSize(itemTemplate));
+                buffer.putInt(ByteStreamUtils.getStringSize(equipPointId));
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, targetEntId);
-                ByteStreamUtils.writeInt(stream, itemEntId);
-                ByteStreamUtils.writeString(stream, itemTemplate);
-                ByteStreamUtils.writeInt(stream, containerType);
-                ByteStreamUtils.writeString(stream, equipPointId);
+                buffer.putInt(targetEntId);
+                buffer.putInt(itemEntId);
+                ByteStreamUtils.putString(buffer, itemTemplate);
+                buffer.putInt(containerType);
+                ByteStreamUtils.putString(buffer, equipPointId);
             } break;
             case CLIENTREQUESTWATCHINVENTORY: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_INVENTORY);
-                stream.write(TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTWATCHINVENTORY);
+                buffer.put(TypeBytes.MESSAGE_TYPE_INVENTORY);
+                buffer.put(TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTWATCHINVENTORY);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, targetEntId);
+                buffer.putInt(targetEntId);
             } break;
             case CLIENTREQUESTUNWATCHINVENTORY: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_INVENTORY);
-                stream.write(TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTUNWATCHINVENTORY);
+                buffer.put(TypeBytes.MESSAGE_TYPE_INVENTORY);
+                buffer.put(TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTUNWATCHINVENTORY);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, targetEntId);
+                buffer.putInt(targetEntId);
             } break;
             case CLIENTREQUESTADDTOOLBAR: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_INVENTORY);
-                stream.write(TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTADDTOOLBAR);
+                buffer.put(TypeBytes.MESSAGE_TYPE_INVENTORY);
+                buffer.put(TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTADDTOOLBAR);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, entityId);
-                ByteStreamUtils.writeInt(stream, toolbarId);
+                buffer.putInt(entityId);
+                buffer.putInt(toolbarId);
             } break;
             case CLIENTREQUESTADDNATURAL: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_INVENTORY);
-                stream.write(TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTADDNATURAL);
+                buffer.put(TypeBytes.MESSAGE_TYPE_INVENTORY);
+                buffer.put(TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTADDNATURAL);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, entityId);
+                buffer.putInt(entityId);
             } break;
             case CLIENTUPDATETOOLBAR: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_INVENTORY);
-                stream.write(TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTUPDATETOOLBAR);
+                buffer.put(TypeBytes.MESSAGE_TYPE_INVENTORY);
+                buffer.put(TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTUPDATETOOLBAR);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, toolbarId);
+                buffer.putInt(toolbarId);
             } break;
             case CLIENTREQUESTPERFORMITEMACTION: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_INVENTORY);
-                stream.write(TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTPERFORMITEMACTION);
+                buffer.put(TypeBytes.MESSAGE_TYPE_INVENTORY);
+                buffer.put(TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTPERFORMITEMACTION);
                 
                 //
                 //Write variable length table in packet
-                ByteStreamUtils.writeInt(stream, equipPointId.getBytes().length);
+                buffer.putInt(ByteStreamUtils.getStringSize(equipPointId));
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeString(stream, equipPointId);
-                ByteStreamUtils.writeInt(stream, itemActionCode);
-                ByteStreamUtils.writeInt(stream, itemActionCodeState);
-                ByteStreamUtils.writeDouble(stream, viewTargetX);
-                ByteStreamUtils.writeDouble(stream, viewTargetY);
-                ByteStreamUtils.writeDouble(stream, viewTargetZ);
+                ByteStreamUtils.putString(buffer, equipPointId);
+                buffer.putInt(itemActionCode);
+                buffer.putInt(itemActionCodeState);
+                buffer.putDouble(viewTargetX);
+                buffer.putDouble(viewTargetY);
+                buffer.putDouble(viewTargetZ);
             } break;
             case CLIENTREQUESTCRAFT: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_INVENTORY);
-                stream.write(TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTCRAFT);
+                buffer.put(TypeBytes.MESSAGE_TYPE_INVENTORY);
+                buffer.put(TypeBytes.INVENTORY_MESSAGE_TYPE_CLIENTREQUESTCRAFT);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, entityId);
-                ByteStreamUtils.writeInt(stream, stationId);
-                ByteStreamUtils.writeInt(stream, recipeId);
+                buffer.putInt(entityId);
+                buffer.putInt(stationId);
+                buffer.putInt(recipeId);
             } break;
             case SERVERUPDATEITEMCHARGES: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_INVENTORY);
-                stream.write(TypeBytes.INVENTORY_MESSAGE_TYPE_SERVERUPDATEITEMCHARGES);
+                buffer.put(TypeBytes.MESSAGE_TYPE_INVENTORY);
+                buffer.put(TypeBytes.INVENTORY_MESSAGE_TYPE_SERVERUPDATEITEMCHARGES);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, entityId);
-                ByteStreamUtils.writeInt(stream, charges);
+                buffer.putInt(entityId);
+                buffer.putInt(charges);
             } break;
         }
     }
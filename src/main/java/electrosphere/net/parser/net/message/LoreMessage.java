@@ -1,7 +1,5 @@
 package electrosphere.net.parser.net.message;
 
-import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import electrosphere.net.parser.util.ByteStreamUtils;
 import java.util.Map;
@@ -88,7 +86,7 @@ public class LoreMessage extends NetworkMessage {
         int lenAccumulator = 0;
         int datalen = byteBuffer.getInt();
         lenAccumulator = lenAccumulator + datalen;
-        if(byteBuffer.remaining() < 4 + lenAccumulator){
+        if(byteBuffer.remaining() < lenAccumulator){
             return null;
         }
         LoreMessage rVal = (LoreMessage)pool.get(MessageType.LORE_MESSAGE);
@@ -118,7 +116,7 @@ public class LoreMessage extends NetworkMessage {
         int lenAccumulator = 0;
         int datalen = byteBuffer.getInt();
         lenAccumulator = lenAccumulator + datalen;
-        if(byteBuffer.remaining() < 4 + lenAccumulator){
+        if(byteBuffer.remaining() < lenAccumulator){
             return null;
         }
         LoreMessage rVal = (LoreMessage)pool.get(MessageType.LORE_MESSAGE);
@@ -138,95 +136,61 @@ public class LoreMessage extends NetworkMessage {
         return rVal;
     }
 
-    @Deprecated
     @Override
-    void serialize(){
-        byte[] intValues = new byte[8];
-        byte[] stringBytes;
+    public int getSerializedSize(){
         switch(this.messageType){
-            case REQUESTRACES:
-                rawBytes = new byte[2];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_LORE;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.LORE_MESSAGE_TYPE_REQUESTRACES;
-                break;
-            case RESPONSERACES:
-                rawBytes = new byte[2+4+data.length()];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_LORE;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.LORE_MESSAGE_TYPE_RESPONSERACES;
-                intValues = ByteStreamUtils.serializeIntToBytes(data.length());
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                stringBytes = data.getBytes();
-                for(int i = 0; i < data.length(); i++){
-                    rawBytes[6+i] = stringBytes[i];
-                }
-                break;
-            case TEMPORALUPDATE:
-                rawBytes = new byte[2+4+data.length()];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_LORE;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.LORE_MESSAGE_TYPE_TEMPORALUPDATE;
-                intValues = ByteStreamUtils.serializeIntToBytes(data.length());
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                stringBytes = data.getBytes();
-                for(int i = 0; i < data.length(); i++){
-                    rawBytes[6+i] = stringBytes[i];
-                }
-                break;
+            case REQUESTRACES: {
+                return TypeBytes.LORE_MESSAGE_TYPE_REQUESTRACES_SIZE;
+            }
+            case RESPONSERACES: {
+                return 6 + ByteStreamUtils.getStringSize(data);
+            }
+            case TEMPORALUPDATE: {
+                return 6 + ByteStreamUtils.getStringSize(data);
+            }
         }
-        serialized = true;
+        throw new Error("Unsupported message type! " + this.messageType);
     }
 
     @Override
-    public void write(OutputStream stream) throws IOException {
+    public void write(ByteBuffer buffer){
         switch(this.messageType){
             case REQUESTRACES: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_LORE);
-                stream.write(TypeBytes.LORE_MESSAGE_TYPE_REQUESTRACES);
-                
-                //
-                //Write body of packet
+                buffer.put(TypeBytes.MESSAGE_TYPE_LORE);
+                buffer.put(TypeBytes.LORE_MESSAGE_TYPE_REQUESTRACES);
             } break;
             case RESPONSERACES: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_LORE);
-                stream.write(TypeBytes.LORE_MESSAGE_TYPE_RESPONSERACES);
+                buffer.put(TypeBytes.MESSAGE_TYPE_LORE);
+                buffer.put(TypeBytes.LORE_MESSAGE_TYPE_RESPONSERACES);
                 
                 //
                 //Write variable length table in packet
-                ByteStreamUtils.writeInt(stream, data.getBytes().length);
+                buffer.putInt(ByteStreamUtils.getStringSize(data));
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeString(stream, data);
+                ByteStreamUtils.putString(buffer, data);
             } break;
             case TEMPORALUPDATE: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_LORE);
-                stream.write(TypeBytes.LORE_MESSAGE_TYPE_TEMPORALUPDATE);
+                buffer.put(TypeBytes.MESSAGE_TYPE_LORE);
+                buffer.put(TypeBytes.LORE_MESSAGE_TYPE_TEMPORALUPDATE);
                 
                 //
                 //Write variable length table in packet
-                ByteStreamUtils.writeInt(stream, data.getBytes().length);
+                buffer.putInt(ByteStreamUtils.getStringSize(data));
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeString(stream, data);
+                ByteStreamUtils.putString(buffer, data);
             } break;
         }
     }
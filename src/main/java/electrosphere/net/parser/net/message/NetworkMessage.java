@@ -43,6 +43,11 @@ public abstract class NetworkMessage {
      */
     byte[] rawBytes;
 
+    /**
+     * Tracks whether the message is queued to several connections at once
+     */
+    private volatile boolean shared;
+
     /**
      * Extra data that can be attached to a message optionally (used for reading in messages, does not affect ougoing messages).
      */
@@ -115,6 +120,9 @@ public abstract class NetworkMessage {
                     case TypeBytes.ENTITY_MESSAGE_TYPE_INTERACT:
                         rVal = EntityMessage.parseinteractMessage(byteBuffer,pool,customParserMap);
                         break;
+                    case TypeBytes.ENTITY_MESSAGE_TYPE_MOVEUPDATEBATCH:
+                        rVal = EntityMessage.parsemoveUpdateBatchMessage(byteBuffer,pool,customParserMap);
+                        break;
                 }
                 break;
                 case TypeBytes.MESSAGE_TYPE_LORE:
@@ -202,6 +210,9 @@ public abstract class NetworkMessage {
                     case TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTPLACEFAB:
                         rVal = TerrainMessage.parseRequestPlaceFabMessage(byteBuffer,pool,customParserMap);
                         break;
+                    case TypeBytes.TERRAIN_MESSAGE_TYPE_CHUNKFORMAT:
+                        rVal = TerrainMessage.parseChunkFormatMessage(byteBuffer,pool,customParserMap);
+                        break;
                 }
                 break;
                 case TypeBytes.MESSAGE_TYPE_SERVER:
@@ -378,10 +389,27 @@ public abstract class NetworkMessage {
     }
 
     /**
-     * Writes this message to the output stream
+     * Gets the number of bytes this message occupies on the wire
+     * @return The number of bytes
+     */
+    public abstract int getSerializedSize();
+
+    /**
+     * Writes this message into a buffer
+     * @param buffer The buffer. Must be big endian and have at least getSerializedSize() bytes remaining
+     */
+    public abstract void write(ByteBuffer buffer);
+
+    /**
+     * Writes this message to the output stream.
+     * Allocates a buffer for the message, prefer write(ByteBuffer) on hot paths.
      * @param stream The stream
      */
-    public abstract void write(OutputStream stream) throws IOException;
+    public void write(OutputStream stream) throws IOException {
+        byte[] bytes = new byte[this.getSerializedSize()];
+        this.write(ByteBuffer.wrap(bytes));
+        stream.write(bytes);
+    }
     
     /**
      * Checks if this message is serialized or not
@@ -394,7 +422,42 @@ public abstract class NetworkMessage {
     /**
      * Serializes the message
      */
-    abstract void serialize();
+    @Deprecated
+    void serialize(){
+        rawBytes = new byte[this.getSerializedSize()];
+        this.write(ByteBuffer.wrap(rawBytes));
+        serialized = true;
+    }
+
+    /**
+     * Marks the message as queued to several connections at once.
+     * A shared message is serialized once and the bytes are copied to each connection.
+     * It is never released back into a pool and must not be modified afterwards.
+     */
+    public void markShared(){
+        this.shared = true;
+    }
+
+    /**
+     * Checks if the message is queued to several connections at once
+     * @return true if it is shared, false otherwise
+     */
+    public boolean isShared(){
+        return shared;
+    }
+
+    /**
+     * Gets the serialized bytes of a shared message, serializing it the first time this is called
+     * @return The bytes
+     */
+    public synchronized byte[] getSharedBytes(){
+        if(!this.serialized){
+            rawBytes = new byte[this.getSerializedSize()];
+            this.write(ByteBuffer.wrap(rawBytes));
+            serialized = true;
+        }
+        return rawBytes;
+    }
 
     /**
      * Gets the extra data attached to the message
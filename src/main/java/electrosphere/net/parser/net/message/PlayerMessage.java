@@ -1,9 +1,6 @@
 package electrosphere.net.parser.net.message;
 
-import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.ByteBuffer;
-import electrosphere.net.parser.util.ByteStreamUtils;
 import java.util.Map;
 import java.util.function.BiConsumer;
 
@@ -150,71 +147,45 @@ public class PlayerMessage extends NetworkMessage {
         return rVal;
     }
 
-    @Deprecated
     @Override
-    void serialize(){
-        byte[] intValues = new byte[8];
+    public int getSerializedSize(){
         switch(this.messageType){
-            case SET_ID:
-                rawBytes = new byte[2+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_PLAYER;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.PLAYER_MESSAGE_TYPE_SET_ID;
-                intValues = ByteStreamUtils.serializeIntToBytes(playerID);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                break;
-            case SETINITIALDISCRETEPOSITION:
-                rawBytes = new byte[2+4+4+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_PLAYER;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.PLAYER_MESSAGE_TYPE_SETINITIALDISCRETEPOSITION;
-                intValues = ByteStreamUtils.serializeIntToBytes(initialDiscretePositionX);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(initialDiscretePositionY);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(initialDiscretePositionZ);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                break;
+            case SET_ID: {
+                return TypeBytes.PLAYER_MESSAGE_TYPE_SET_ID_SIZE;
+            }
+            case SETINITIALDISCRETEPOSITION: {
+                return TypeBytes.PLAYER_MESSAGE_TYPE_SETINITIALDISCRETEPOSITION_SIZE;
+            }
         }
-        serialized = true;
+        throw new Error("Unsupported message type! " + this.messageType);
     }
 
     @Override
-    public void write(OutputStream stream) throws IOException {
+    public void write(ByteBuffer buffer){
         switch(this.messageType){
             case SET_ID: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_PLAYER);
-                stream.write(TypeBytes.PLAYER_MESSAGE_TYPE_SET_ID);
+                buffer.put(TypeBytes.MESSAGE_TYPE_PLAYER);
+                buffer.put(TypeBytes.PLAYER_MESSAGE_TYPE_SET_ID);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, playerID);
+                buffer.putInt(playerID);
             } break;
             case SETINITIALDISCRETEPOSITION: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_PLAYER);
-                stream.write(TypeBytes.PLAYER_MESSAGE_TYPE_SETINITIALDISCRETEPOSITION);
+                buffer.put(TypeBytes.MESSAGE_TYPE_PLAYER);
+                buffer.put(TypeBytes.PLAYER_MESSAGE_TYPE_SETINITIALDISCRETEPOSITION);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, initialDiscretePositionX);
-                ByteStreamUtils.writeInt(stream, initialDiscretePositionY);
-                ByteStreamUtils.writeInt(stream, initialDiscretePositionZ);
+                buffer.putInt(initialDiscretePositionX);
+                buffer.putInt(initialDiscretePositionY);
+                buffer.putInt(initialDiscretePositionZ);
             } break;
         }
     }
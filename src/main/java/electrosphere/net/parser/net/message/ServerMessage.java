@@ -1,7 +1,5 @@
 package electrosphere.net.parser.net.message;
 
-import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.function.BiConsumer;
@@ -102,67 +100,45 @@ public class ServerMessage extends NetworkMessage {
         return rVal;
     }
 
-    @Deprecated
     @Override
-    void serialize(){
+    public int getSerializedSize(){
         switch(this.messageType){
-            case PING:
-                rawBytes = new byte[2];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_SERVER;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.SERVER_MESSAGE_TYPE_PING;
-                break;
-            case PONG:
-                rawBytes = new byte[2];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_SERVER;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.SERVER_MESSAGE_TYPE_PONG;
-                break;
-            case DISCONNECT:
-                rawBytes = new byte[2];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_SERVER;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.SERVER_MESSAGE_TYPE_DISCONNECT;
-                break;
+            case PING: {
+                return TypeBytes.SERVER_MESSAGE_TYPE_PING_SIZE;
+            }
+            case PONG: {
+                return TypeBytes.SERVER_MESSAGE_TYPE_PONG_SIZE;
+            }
+            case DISCONNECT: {
+                return TypeBytes.SERVER_MESSAGE_TYPE_DISCONNECT_SIZE;
+            }
         }
-        serialized = true;
+        throw new Error("Unsupported message type! " + this.messageType);
     }
 
     @Override
-    public void write(OutputStream stream) throws IOException {
+    public void write(ByteBuffer buffer){
         switch(this.messageType){
             case PING: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_SERVER);
-                stream.write(TypeBytes.SERVER_MESSAGE_TYPE_PING);
-                
-                //
-                //Write body of packet
+                buffer.put(TypeBytes.MESSAGE_TYPE_SERVER);
+                buffer.put(TypeBytes.SERVER_MESSAGE_TYPE_PING);
             } break;
             case PONG: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_SERVER);
-                stream.write(TypeBytes.SERVER_MESSAGE_TYPE_PONG);
-                
-                //
-                //Write body of packet
+                buffer.put(TypeBytes.MESSAGE_TYPE_SERVER);
+                buffer.put(TypeBytes.SERVER_MESSAGE_TYPE_PONG);
             } break;
             case DISCONNECT: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_SERVER);
-                stream.write(TypeBytes.SERVER_MESSAGE_TYPE_DISCONNECT);
-                
-                //
-                //Write body of packet
+                buffer.put(TypeBytes.MESSAGE_TYPE_SERVER);
+                buffer.put(TypeBytes.SERVER_MESSAGE_TYPE_DISCONNECT);
             } break;
         }
     }
@@ -1,7 +1,5 @@
 package electrosphere.net.parser.net.message;
 
-import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import electrosphere.net.parser.util.ByteStreamUtils;
 import java.util.Map;
@@ -224,7 +222,7 @@ public class SynchronizationMessage extends NetworkMessage {
         int lenAccumulator = 0;
         int stringValuelen = byteBuffer.getInt();
         lenAccumulator = lenAccumulator + stringValuelen;
-        if(byteBuffer.remaining() < 16 + lenAccumulator){
+        if(byteBuffer.remaining() < 12 + lenAccumulator){
             return null;
         }
         SynchronizationMessage rVal = (SynchronizationMessage)pool.get(MessageType.SYNCHRONIZATION_MESSAGE);
@@ -474,7 +472,7 @@ public class SynchronizationMessage extends NetworkMessage {
         int lenAccumulator = 0;
         int stringValuelen = byteBuffer.getInt();
         lenAccumulator = lenAccumulator + stringValuelen;
-        if(byteBuffer.remaining() < 4 + lenAccumulator){
+        if(byteBuffer.remaining() < lenAccumulator){
             return null;
         }
         SynchronizationMessage rVal = (SynchronizationMessage)pool.get(MessageType.SYNCHRONIZATION_MESSAGE);
@@ -494,400 +492,202 @@ public class SynchronizationMessage extends NetworkMessage {
         return rVal;
     }
 
-    @Deprecated
     @Override
-    void serialize(){
-        byte[] intValues = new byte[8];
-        byte[] stringBytes;
+    public int getSerializedSize(){
         switch(this.messageType){
-            case UPDATECLIENTSTATE:
-                rawBytes = new byte[2+4+4+4+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_UPDATECLIENTSTATE;
-                intValues = ByteStreamUtils.serializeIntToBytes(entityId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(bTreeId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(fieldId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(bTreeValue);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[14+i] = intValues[i];
-                }
-                break;
-            case UPDATECLIENTSTRINGSTATE:
-                rawBytes = new byte[2+4+4+4+4+stringValue.length()];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_UPDATECLIENTSTRINGSTATE;
-                intValues = ByteStreamUtils.serializeIntToBytes(entityId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(bTreeId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(fieldId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(stringValue.length());
-                for(int i = 0; i < 4; i++){
-                    rawBytes[14+i] = intValues[i];
-                }
-                stringBytes = stringValue.getBytes();
-                for(int i = 0; i < stringValue.length(); i++){
-                    rawBytes[18+i] = stringBytes[i];
-                }
-                break;
-            case UPDATECLIENTINTSTATE:
-                rawBytes = new byte[2+4+4+4+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_UPDATECLIENTINTSTATE;
-                intValues = ByteStreamUtils.serializeIntToBytes(entityId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(bTreeId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(fieldId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(intValue);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[14+i] = intValues[i];
-                }
-                break;
-            case UPDATECLIENTLONGSTATE:
-                rawBytes = new byte[2+4+4+4+8];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_UPDATECLIENTLONGSTATE;
-                intValues = ByteStreamUtils.serializeIntToBytes(entityId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(bTreeId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(fieldId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeLongToBytes(longValue);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[14+i] = intValues[i];
-                }
-                break;
-            case UPDATECLIENTFLOATSTATE:
-                rawBytes = new byte[2+4+4+4+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_UPDATECLIENTFLOATSTATE;
-                intValues = ByteStreamUtils.serializeIntToBytes(entityId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(bTreeId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(fieldId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeFloatToBytes(floatValue);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[14+i] = intValues[i];
-                }                break;
-            case UPDATECLIENTDOUBLESTATE:
-                rawBytes = new byte[2+4+4+4+8];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_UPDATECLIENTDOUBLESTATE;
-                intValues = ByteStreamUtils.serializeIntToBytes(entityId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(bTreeId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(fieldId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(doubleValue);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[14+i] = intValues[i];
-                }
-                break;
-            case CLIENTREQUESTBTREEACTION:
-                rawBytes = new byte[2+4+4+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_CLIENTREQUESTBTREEACTION;
-                intValues = ByteStreamUtils.serializeIntToBytes(entityId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(bTreeId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(bTreeValue);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                break;
-            case SERVERNOTIFYBTREETRANSITION:
-                rawBytes = new byte[2+4+4+4+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_SERVERNOTIFYBTREETRANSITION;
-                intValues = ByteStreamUtils.serializeIntToBytes(entityId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(bTreeId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(fieldId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(bTreeValue);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[14+i] = intValues[i];
-                }
-                break;
-            case ATTACHTREE:
-                rawBytes = new byte[2+4+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_ATTACHTREE;
-                intValues = ByteStreamUtils.serializeIntToBytes(entityId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(bTreeId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                break;
-            case DETATCHTREE:
-                rawBytes = new byte[2+4+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_DETATCHTREE;
-                intValues = ByteStreamUtils.serializeIntToBytes(entityId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(bTreeId);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                break;
-            case LOADSCENE:
-                rawBytes = new byte[2+4+stringValue.length()];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_LOADSCENE;
-                intValues = ByteStreamUtils.serializeIntToBytes(stringValue.length());
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                stringBytes = stringValue.getBytes();
-                for(int i = 0; i < stringValue.length(); i++){
-                    rawBytes[6+i] = stringBytes[i];
-                }
-                break;
+            case UPDATECLIENTSTATE: {
+                return TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_UPDATECLIENTSTATE_SIZE;
+            }
+            case UPDATECLIENTSTRINGSTATE: {
+                return 18 + ByteStreamUtils.getStringSize(stringValue);
+            }
+            case UPDATECLIENTINTSTATE: {
+                return TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_UPDATECLIENTINTSTATE_SIZE;
+            }
+            case UPDATECLIENTLONGSTATE: {
+                return TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_UPDATECLIENTLONGSTATE_SIZE;
+            }
+            case UPDATECLIENTFLOATSTATE: {
+                return TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_UPDATECLIENTFLOATSTATE_SIZE;
+            }
+            case UPDATECLIENTDOUBLESTATE: {
+                return TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_UPDATECLIENTDOUBLESTATE_SIZE;
+            }
+            case CLIENTREQUESTBTREEACTION: {
+                return TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_CLIENTREQUESTBTREEACTION_SIZE;
+            }
+            case SERVERNOTIFYBTREETRANSITION: {
+                return TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_SERVERNOTIFYBTREETRANSITION_SIZE;
+            }
+            case ATTACHTREE: {
+                return TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_ATTACHTREE_SIZE;
+            }
+            case DETATCHTREE: {
+                return TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_DETATCHTREE_SIZE;
+            }
+            case LOADSCENE: {
+                return 6 + ByteStreamUtils.getStringSize(stringValue);
+            }
         }
-        serialized = true;
+        throw new Error("Unsupported message type! " + this.messageType);
     }
 
     @Override
-    public void write(OutputStream stream) throws IOException {
+    public void write(ByteBuffer buffer){
         switch(this.messageType){
             case UPDATECLIENTSTATE: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION);
-                stream.write(TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_UPDATECLIENTSTATE);
+                buffer.put(TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION);
+                buffer.put(TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_UPDATECLIENTSTATE);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, entityId);
-                ByteStreamUtils.writeInt(stream, bTreeId);
-                ByteStreamUtils.writeInt(stream, fieldId);
-                ByteStreamUtils.writeInt(stream, bTreeValue);
+                buffer.putInt(entityId);
+                buffer.putInt(bTreeId);
+                buffer.putInt(fieldId);
+                buffer.putInt(bTreeValue);
             } break;
             case UPDATECLIENTSTRINGSTATE: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION);
-                stream.write(TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_UPDATECLIENTSTRINGSTATE);
+                buffer.put(TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION);
+                buffer.put(TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_UPDATECLIENTSTRINGSTATE);
                 
                 //
                 //Write variable length table in packet
-                ByteStreamUtils.writeInt(stream, stringValue.getBytes().length);
+                buffer.putInt(ByteStreamUtils.getStringSize(stringValue));
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, entityId);
-                ByteStreamUtils.writeInt(stream, bTreeId);
-                ByteStreamUtils.writeInt(stream, fieldId);
-                ByteStreamUtils.writeString(stream, stringValue);
+                buffer.putInt(entityId);
+                buffer.putInt(bTreeId);
+                buffer.putInt(fieldId);
+                ByteStreamUtils.putString(buffer, stringValue);
             } break;
             case UPDATECLIENTINTSTATE: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION);
-                stream.write(TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_UPDATECLIENTINTSTATE);
+                buffer.put(TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION);
+                buffer.put(TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_UPDATECLIENTINTSTATE);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, entityId);
-                ByteStreamUtils.writeInt(stream, bTreeId);
-                ByteStreamUtils.writeInt(stream, fieldId);
-                ByteStreamUtils.writeInt(stream, intValue);
+                buffer.putInt(entityId);
+                buffer.putInt(bTreeId);
+                buffer.putInt(fieldId);
+                buffer.putInt(intValue);
             } break;
             case UPDATECLIENTLONGSTATE: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION);
-                stream.write(TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_UPDATECLIENTLONGSTATE);
+                buffer.put(TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION);
+                buffer.put(TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_UPDATECLIENTLONGSTATE);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, entityId);
-                ByteStreamUtils.writeInt(stream, bTreeId);
-                ByteStreamUtils.writeInt(stream, fieldId);
-                ByteStreamUtils.writeLong(stream, longValue);
+                buffer.putInt(entityId);
+                buffer.putInt(bTreeId);
+                buffer.putInt(fieldId);
+                buffer.putLong(longValue);
             } break;
             case UPDATECLIENTFLOATSTATE: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION);
-                stream.write(TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_UPDATECLIENTFLOATSTATE);
+                buffer.put(TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION);
+                buffer.put(TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_UPDATECLIENTFLOATSTATE);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, entityId);
-                ByteStreamUtils.writeInt(stream, bTreeId);
-                ByteStreamUtils.writeInt(stream, fieldId);
-                ByteStreamUtils.writeFloat(stream, floatValue);
+                buffer.putInt(entityId);
+                buffer.putInt(bTreeId);
+                buffer.putInt(fieldId);
+                buffer.putFloat(floatValue);
             } break;
             case UPDATECLIENTDOUBLESTATE: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION);
-                stream.write(TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_UPDATECLIENTDOUBLESTATE);
+                buffer.put(TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION);
+                buffer.put(TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_UPDATECLIENTDOUBLESTATE);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, entityId);
-                ByteStreamUtils.writeInt(stream, bTreeId);
-                ByteStreamUtils.writeInt(stream, fieldId);
-                ByteStreamUtils.writeDouble(stream, doubleValue);
+                buffer.putInt(entityId);
+                buffer.putInt(bTreeId);
+                buffer.putInt(fieldId);
+                buffer.putDouble(doubleValue);
             } break;
             case CLIENTREQUESTBTREEACTION: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION);
-                stream.write(TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_CLIENTREQUESTBTREEACTION);
+                buffer.put(TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION);
+                buffer.put(TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_CLIENTREQUESTBTREEACTION);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, entityId);
-                ByteStreamUtils.writeInt(stream, bTreeId);
-                ByteStreamUtils.writeInt(stream, bTreeValue);
+                buffer.putInt(entityId);
+                buffer.putInt(bTreeId);
+                buffer.putInt(bTreeValue);
             } break;
             case SERVERNOTIFYBTREETRANSITION: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION);
-                stream.write(TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_SERVERNOTIFYBTREETRANSITION);
+                buffer.put(TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION);
+                buffer.put(TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_SERVERNOTIFYBTREETRANSITION);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, entityId);
-                ByteStreamUtils.writeInt(stream, bTreeId);
-                ByteStreamUtils.writeInt(stream, fieldId);
-                ByteStreamUtils.writeInt(stream, bTreeValue);
+                buffer.putInt(entityId);
+                buffer.putInt(bTreeId);
+                buffer.putInt(fieldId);
+                buffer.putInt(bTreeValue);
             } break;
             case ATTACHTREE: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION);
-                stream.write(TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_ATTACHTREE);
+                buffer.put(TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION);
+                buffer.put(TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_ATTACHTREE);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, entityId);
-                ByteStreamUtils.writeInt(stream, bTreeId);
+                buffer.putInt(entityId);
+                buffer.putInt(bTreeId);
             } break;
             case DETATCHTREE: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION);
-                stream.write(TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_DETATCHTREE);
+                buffer.put(TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION);
+                buffer.put(TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_DETATCHTREE);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, entityId);
-                ByteStreamUtils.writeInt(stream, bTreeId);
+                buffer.putInt(entityId);
+                buffer.putInt(bTreeId);
             } break;
             case LOADSCENE: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION);
-                stream.write(TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_LOADSCENE);
+                buffer.put(TypeBytes.MESSAGE_TYPE_SYNCHRONIZATION);
+                buffer.put(TypeBytes.SYNCHRONIZATION_MESSAGE_TYPE_LOADSCENE);
                 
                 //
                 //Write variable length table in packet
-                ByteStreamUtils.writeInt(stream, stringValue.getBytes().length);
+                buffer.putInt(ByteStreamUtils.getStringSize(stringValue));
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeString(stream, stringValue);
+                ByteStreamUtils.putString(buffer, stringValue);
             } break;
         }
     }
@@ -1,7 +1,5 @@
 package electrosphere.net.parser.net.message;
 
-import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import electrosphere.net.parser.util.ByteStreamUtils;
 import java.util.Map;
@@ -32,6 +30,7 @@ public class TerrainMessage extends NetworkMessage {
         UPDATEFLUIDDATA,
         REQUESTEDITBLOCK,
         REQUESTPLACEFAB,
+        CHUNKFORMAT,
     }
 
     /**
@@ -67,6 +66,7 @@ public class TerrainMessage extends NetworkMessage {
     int blockEditSize;
     String fabPath;
     int blockRotation;
+    int chunkFormatVersion;
 
     /**
      * Constructor
@@ -494,6 +494,20 @@ public class TerrainMessage extends NetworkMessage {
         this.blockRotation = blockRotation;
     }
 
+    /**
+     * Gets chunkFormatVersion
+     */
+    public int getchunkFormatVersion() {
+        return chunkFormatVersion;
+    }
+
+    /**
+     * Sets chunkFormatVersion
+     */
+    public void setchunkFormatVersion(int chunkFormatVersion) {
+        this.chunkFormatVersion = chunkFormatVersion;
+    }
+
     /**
      * Parses a message of type RequestMetadata
      */
@@ -744,7 +758,7 @@ public class TerrainMessage extends NetworkMessage {
         int lenAccumulator = 0;
         int chunkDatalen = byteBuffer.getInt();
         lenAccumulator = lenAccumulator + chunkDatalen;
-        if(byteBuffer.remaining() < 16 + lenAccumulator){
+        if(byteBuffer.remaining() < 12 + lenAccumulator){
             return null;
         }
         TerrainMessage rVal = (TerrainMessage)pool.get(MessageType.TERRAIN_MESSAGE);
@@ -808,7 +822,7 @@ public class TerrainMessage extends NetworkMessage {
         int lenAccumulator = 0;
         int chunkDatalen = byteBuffer.getInt();
         lenAccumulator = lenAccumulator + chunkDatalen;
-        if(byteBuffer.remaining() < 24 + lenAccumulator){
+        if(byteBuffer.remaining() < 20 + lenAccumulator){
             return null;
         }
         TerrainMessage rVal = (TerrainMessage)pool.get(MessageType.TERRAIN_MESSAGE);
@@ -874,7 +888,7 @@ public class TerrainMessage extends NetworkMessage {
         int lenAccumulator = 0;
         int chunkDatalen = byteBuffer.getInt();
         lenAccumulator = lenAccumulator + chunkDatalen;
-        if(byteBuffer.remaining() < 24 + lenAccumulator){
+        if(byteBuffer.remaining() < 20 + lenAccumulator){
             return null;
         }
         TerrainMessage rVal = (TerrainMessage)pool.get(MessageType.TERRAIN_MESSAGE);
@@ -974,7 +988,7 @@ public class TerrainMessage extends NetworkMessage {
         int lenAccumulator = 0;
         int chunkDatalen = byteBuffer.getInt();
         lenAccumulator = lenAccumulator + chunkDatalen;
-        if(byteBuffer.remaining() < 16 + lenAccumulator){
+        if(byteBuffer.remaining() < 12 + lenAccumulator){
             return null;
         }
         TerrainMessage rVal = (TerrainMessage)pool.get(MessageType.TERRAIN_MESSAGE);
@@ -1010,7 +1024,7 @@ public class TerrainMessage extends NetworkMessage {
         int lenAccumulator = 0;
         int chunkDatalen = byteBuffer.getInt();
         lenAccumulator = lenAccumulator + chunkDatalen;
-        if(byteBuffer.remaining() < 16 + lenAccumulator){
+        if(byteBuffer.remaining() < 12 + lenAccumulator){
             return null;
         }
         TerrainMessage rVal = (TerrainMessage)pool.get(MessageType.TERRAIN_MESSAGE);
@@ -1084,7 +1098,7 @@ public class TerrainMessage extends NetworkMessage {
         int lenAccumulator = 0;
         int fabPathlen = byteBuffer.getInt();
         lenAccumulator = lenAccumulator + fabPathlen;
-        if(byteBuffer.remaining() < 32 + lenAccumulator){
+        if(byteBuffer.remaining() < 28 + lenAccumulator){
             return null;
         }
         TerrainMessage rVal = (TerrainMessage)pool.get(MessageType.TERRAIN_MESSAGE);
@@ -1118,878 +1132,419 @@ public class TerrainMessage extends NetworkMessage {
         return rVal;
     }
 
-    @Deprecated
+    /**
+     * Parses a message of type ChunkFormat
+     */
+    public static TerrainMessage parseChunkFormatMessage(ByteBuffer byteBuffer, MessagePool pool, Map<Short,BiConsumer<NetworkMessage,ByteBuffer>> customParserMap){
+        if(byteBuffer.remaining() < 4){
+            return null;
+        }
+        TerrainMessage rVal = (TerrainMessage)pool.get(MessageType.TERRAIN_MESSAGE);
+        rVal.messageType = TerrainMessageType.CHUNKFORMAT;
+        rVal.setchunkFormatVersion(byteBuffer.getInt());
+        return rVal;
+    }
+
+    /**
+     * Constructs a message of type ChunkFormat
+     */
+    public static TerrainMessage constructChunkFormatMessage(int chunkFormatVersion){
+        TerrainMessage rVal = new TerrainMessage(TerrainMessageType.CHUNKFORMAT);
+        rVal.setchunkFormatVersion(chunkFormatVersion);
+        return rVal;
+    }
+
     @Override
-    void serialize(){
-        byte[] intValues = new byte[8];
-        byte[] stringBytes;
+    public int getSerializedSize(){
         switch(this.messageType){
-            case REQUESTMETADATA:
-                rawBytes = new byte[2];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_TERRAIN;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTMETADATA;
-                break;
-            case RESPONSEMETADATA:
-                rawBytes = new byte[2+4+4+4+4+4+4+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_TERRAIN;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.TERRAIN_MESSAGE_TYPE_RESPONSEMETADATA;
-                intValues = ByteStreamUtils.serializeIntToBytes(worldSizeDiscrete);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldMinX);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldMinY);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldMinZ);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[14+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldMaxX);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[18+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldMaxY);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[22+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldMaxZ);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[26+i] = intValues[i];
-                }
-                break;
-            case REQUESTEDITVOXEL:
-                rawBytes = new byte[2+4+4+4+4+4+4+4+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_TERRAIN;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTEDITVOXEL;
-                intValues = ByteStreamUtils.serializeIntToBytes(worldX);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldY);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldZ);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(voxelX);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[14+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(voxelY);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[18+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(voxelZ);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[22+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeFloatToBytes(terrainWeight);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[26+i] = intValues[i];
-                }                intValues = ByteStreamUtils.serializeIntToBytes(terrainValue);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[30+i] = intValues[i];
-                }
-                break;
-            case UPDATEVOXEL:
-                rawBytes = new byte[2+4+4+4+4+4+4+4+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_TERRAIN;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.TERRAIN_MESSAGE_TYPE_UPDATEVOXEL;
-                intValues = ByteStreamUtils.serializeIntToBytes(worldX);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldY);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldZ);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(voxelX);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[14+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(voxelY);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[18+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(voxelZ);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[22+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeFloatToBytes(terrainWeight);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[26+i] = intValues[i];
-                }                intValues = ByteStreamUtils.serializeIntToBytes(terrainValue);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[30+i] = intValues[i];
-                }
-                break;
-            case REQUESTUSETERRAINPALETTE:
-                rawBytes = new byte[2+8+8+8+4+4+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_TERRAIN;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTUSETERRAINPALETTE;
-                intValues = ByteStreamUtils.serializeDoubleToBytes(realLocationX);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(realLocationY);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(realLocationZ);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[18+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeFloatToBytes(value);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[26+i] = intValues[i];
-                }                intValues = ByteStreamUtils.serializeFloatToBytes(terrainWeight);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[30+i] = intValues[i];
-                }                intValues = ByteStreamUtils.serializeIntToBytes(terrainValue);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[34+i] = intValues[i];
-                }
-                break;
-            case REQUESTDESTROYTERRAIN:
-                rawBytes = new byte[2+8+8+8+4+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_TERRAIN;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTDESTROYTERRAIN;
-                intValues = ByteStreamUtils.serializeDoubleToBytes(realLocationX);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(realLocationY);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(realLocationZ);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[18+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeFloatToBytes(value);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[26+i] = intValues[i];
-                }                intValues = ByteStreamUtils.serializeFloatToBytes(terrainWeight);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[30+i] = intValues[i];
-                }                break;
-            case SPAWNPOSITION:
-                rawBytes = new byte[2+8+8+8];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_TERRAIN;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.TERRAIN_MESSAGE_TYPE_SPAWNPOSITION;
-                intValues = ByteStreamUtils.serializeDoubleToBytes(realLocationX);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(realLocationY);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeDoubleToBytes(realLocationZ);
-                for(int i = 0; i < 8; i++){
-                    rawBytes[18+i] = intValues[i];
-                }
-                break;
-            case REQUESTCHUNKDATA:
-                rawBytes = new byte[2+4+4+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_TERRAIN;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTCHUNKDATA;
-                intValues = ByteStreamUtils.serializeIntToBytes(worldX);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldY);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldZ);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                break;
-            case SENDCHUNKDATA:
-                rawBytes = new byte[2+4+4+4+4+chunkData.length];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_TERRAIN;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.TERRAIN_MESSAGE_TYPE_SENDCHUNKDATA;
-                intValues = ByteStreamUtils.serializeIntToBytes(worldX);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldY);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldZ);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(chunkData.length);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[14+i] = intValues[i];
-                }
-                for(int i = 0; i < chunkData.length; i++){
-                    rawBytes[18+i] = chunkData[i];
-                }
-                break;
-            case REQUESTREDUCEDCHUNKDATA:
-                rawBytes = new byte[2+4+4+4+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_TERRAIN;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTREDUCEDCHUNKDATA;
-                intValues = ByteStreamUtils.serializeIntToBytes(worldX);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldY);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldZ);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(chunkResolution);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[14+i] = intValues[i];
-                }
-                break;
-            case SENDREDUCEDCHUNKDATA:
-                rawBytes = new byte[2+4+4+4+4+4+4+chunkData.length];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_TERRAIN;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.TERRAIN_MESSAGE_TYPE_SENDREDUCEDCHUNKDATA;
-                intValues = ByteStreamUtils.serializeIntToBytes(worldX);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldY);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldZ);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(chunkResolution);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[14+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(homogenousValue);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[18+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(chunkData.length);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[22+i] = intValues[i];
-                }
-                for(int i = 0; i < chunkData.length; i++){
-                    rawBytes[26+i] = chunkData[i];
-                }
-                break;
-            case REQUESTREDUCEDBLOCKDATA:
-                rawBytes = new byte[2+4+4+4+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_TERRAIN;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTREDUCEDBLOCKDATA;
-                intValues = ByteStreamUtils.serializeIntToBytes(worldX);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldY);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldZ);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(chunkResolution);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[14+i] = intValues[i];
-                }
-                break;
-            case SENDREDUCEDBLOCKDATA:
-                rawBytes = new byte[2+4+4+4+4+4+4+chunkData.length];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_TERRAIN;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.TERRAIN_MESSAGE_TYPE_SENDREDUCEDBLOCKDATA;
-                intValues = ByteStreamUtils.serializeIntToBytes(worldX);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldY);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldZ);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(chunkResolution);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[14+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(homogenousValue);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[18+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(chunkData.length);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[22+i] = intValues[i];
-                }
-                for(int i = 0; i < chunkData.length; i++){
-                    rawBytes[26+i] = chunkData[i];
-                }
-                break;
-            case UPDATEBLOCK:
-                rawBytes = new byte[2+4+4+4+4+4+4+4+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_TERRAIN;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.TERRAIN_MESSAGE_TYPE_UPDATEBLOCK;
-                intValues = ByteStreamUtils.serializeIntToBytes(worldX);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldY);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldZ);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(voxelX);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[14+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(voxelY);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[18+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(voxelZ);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[22+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(blockType);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[26+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(blockMetadata);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[30+i] = intValues[i];
-                }
-                break;
-            case REQUESTFLUIDDATA:
-                rawBytes = new byte[2+4+4+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_TERRAIN;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTFLUIDDATA;
-                intValues = ByteStreamUtils.serializeIntToBytes(worldX);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldY);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldZ);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                break;
-            case SENDFLUIDDATA:
-                rawBytes = new byte[2+4+4+4+4+chunkData.length];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_TERRAIN;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.TERRAIN_MESSAGE_TYPE_SENDFLUIDDATA;
-                intValues = ByteStreamUtils.serializeIntToBytes(worldX);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldY);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldZ);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(chunkData.length);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[14+i] = intValues[i];
-                }
-                for(int i = 0; i < chunkData.length; i++){
-                    rawBytes[18+i] = chunkData[i];
-                }
-                break;
-            case UPDATEFLUIDDATA:
-                rawBytes = new byte[2+4+4+4+4+chunkData.length];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_TERRAIN;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.TERRAIN_MESSAGE_TYPE_UPDATEFLUIDDATA;
-                intValues = ByteStreamUtils.serializeIntToBytes(worldX);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldY);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldZ);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(chunkData.length);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[14+i] = intValues[i];
-                }
-                for(int i = 0; i < chunkData.length; i++){
-                    rawBytes[18+i] = chunkData[i];
-                }
-                break;
-            case REQUESTEDITBLOCK:
-                rawBytes = new byte[2+4+4+4+4+4+4+4+4+4];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_TERRAIN;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTEDITBLOCK;
-                intValues = ByteStreamUtils.serializeIntToBytes(worldX);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldY);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldZ);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(voxelX);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[14+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(voxelY);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[18+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(voxelZ);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[22+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(blockType);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[26+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(blockMetadata);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[30+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(blockEditSize);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[34+i] = intValues[i];
-                }
-                break;
-            case REQUESTPLACEFAB:
-                rawBytes = new byte[2+4+4+4+4+4+4+4+4+fabPath.length()];
-                //message header
-                rawBytes[0] = TypeBytes.MESSAGE_TYPE_TERRAIN;
-                //entity messaage header
-                rawBytes[1] = TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTPLACEFAB;
-                intValues = ByteStreamUtils.serializeIntToBytes(worldX);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[2+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldY);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[6+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(worldZ);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[10+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(voxelX);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[14+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(voxelY);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[18+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(voxelZ);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[22+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(blockRotation);
-                for(int i = 0; i < 4; i++){
-                    rawBytes[26+i] = intValues[i];
-                }
-                intValues = ByteStreamUtils.serializeIntToBytes(fabPath.length());
-                for(int i = 0; i < 4; i++){
-                    rawBytes[30+i] = intValues[i];
-                }
-                stringBytes = fabPath.getBytes();
-                for(int i = 0; i < fabPath.length(); i++){
-                    rawBytes[34+i] = stringBytes[i];
-                }
-                break;
+            case REQUESTMETADATA: {
+                return TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTMETADATA_SIZE;
+            }
+            case RESPONSEMETADATA: {
+                return TypeBytes.TERRAIN_MESSAGE_TYPE_RESPONSEMETADATA_SIZE;
+            }
+            case REQUESTEDITVOXEL: {
+                return TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTEDITVOXEL_SIZE;
+            }
+            case UPDATEVOXEL: {
+                return TypeBytes.TERRAIN_MESSAGE_TYPE_UPDATEVOXEL_SIZE;
+            }
+            case REQUESTUSETERRAINPALETTE: {
+                return TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTUSETERRAINPALETTE_SIZE;
+            }
+            case REQUESTDESTROYTERRAIN: {
+                return TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTDESTROYTERRAIN_SIZE;
+            }
+            case SPAWNPOSITION: {
+                return TypeBytes.TERRAIN_MESSAGE_TYPE_SPAWNPOSITION_SIZE;
+            }
+            case REQUESTCHUNKDATA: {
+                return TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTCHUNKDATA_SIZE;
+            }
+            case SENDCHUNKDATA: {
+                return 18 + chunkData.length;
+            }
+            case REQUESTREDUCEDCHUNKDATA: {
+                return TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTREDUCEDCHUNKDATA_SIZE;
+            }
+            case SENDREDUCEDCHUNKDATA: {
+                return 26 + chunkData.length;
+            }
+            case REQUESTREDUCEDBLOCKDATA: {
+                return TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTREDUCEDBLOCKDATA_SIZE;
+            }
+            case SENDREDUCEDBLOCKDATA: {
+                return 26 + chunkData.length;
+            }
+            case UPDATEBLOCK: {
+                return TypeBytes.TERRAIN_MESSAGE_TYPE_UPDATEBLOCK_SIZE;
+            }
+            case REQUESTFLUIDDATA: {
+                return TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTFLUIDDATA_SIZE;
+            }
+            case SENDFLUIDDATA: {
+                return 18 + chunkData.length;
+            }
+            case UPDATEFLUIDDATA: {
+                return 18 + chunkData.length;
+            }
+            case REQUESTEDITBLOCK: {
+                return TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTEDITBLOCK_SIZE;
+            }
+            case REQUESTPLACEFAB: {
+                return 34 + ByteStreamUtils.getStringSize(fabPath);
+            }
+            case CHUNKFORMAT: {
+                return TypeBytes.TERRAIN_MESSAGE_TYPE_CHUNKFORMAT_SIZE;
+            }
         }
-        serialized = true;
+        throw new Error("Unsupported message type! " + this.messageType);
     }
 
     @Override
-    public void write(OutputStream stream) throws IOException {
+    public void write(ByteBuffer buffer){
         switch(this.messageType){
             case REQUESTMETADATA: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_TERRAIN);
-                stream.write(TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTMETADATA);
-                
-                //
-                //Write body of packet
+                buffer.put(TypeBytes.MESSAGE_TYPE_TERRAIN);
+                buffer.put(TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTMETADATA);
             } break;
             case RESPONSEMETADATA: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_TERRAIN);
-                stream.write(TypeBytes.TERRAIN_MESSAGE_TYPE_RESPONSEMETADATA);
+                buffer.put(TypeBytes.MESSAGE_TYPE_TERRAIN);
+                buffer.put(TypeBytes.TERRAIN_MESSAGE_TYPE_RESPONSEMETADATA);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, worldSizeDiscrete);
-                ByteStreamUtils.writeInt(stream, worldMinX);
-                ByteStreamUtils.writeInt(stream, worldMinY);
-                ByteStreamUtils.writeInt(stream, worldMinZ);
-                ByteStreamUtils.writeInt(stream, worldMaxX);
-                ByteStreamUtils.writeInt(stream, worldMaxY);
-                ByteStreamUtils.writeInt(stream, worldMaxZ);
+                buffer.putInt(worldSizeDiscrete);
+                buffer.putInt(worldMinX);
+                buffer.putInt(worldMinY);
+                buffer.putInt(worldMinZ);
+                buffer.putInt(worldMaxX);
+                buffer.putInt(worldMaxY);
+                buffer.putInt(worldMaxZ);
             } break;
             case REQUESTEDITVOXEL: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_TERRAIN);
-                stream.write(TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTEDITVOXEL);
+                buffer.put(TypeBytes.MESSAGE_TYPE_TERRAIN);
+                buffer.put(TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTEDITVOXEL);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, worldX);
-                ByteStreamUtils.writeInt(stream, worldY);
-                ByteStreamUtils.writeInt(stream, worldZ);
-                ByteStreamUtils.writeInt(stream, voxelX);
-                ByteStreamUtils.writeInt(stream, voxelY);
-                ByteStreamUtils.writeInt(stream, voxelZ);
-                ByteStreamUtils.writeFloat(stream, terrainWeight);
-                ByteStreamUtils.writeInt(stream, terrainValue);
+                buffer.putInt(worldX);
+                buffer.putInt(worldY);
+                buffer.putInt(worldZ);
+                buffer.putInt(voxelX);
+                buffer.putInt(voxelY);
+                buffer.putInt(voxelZ);
+                buffer.putFloat(terrainWeight);
+                buffer.putInt(terrainValue);
             } break;
             case UPDATEVOXEL: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_TERRAIN);
-                stream.write(TypeBytes.TERRAIN_MESSAGE_TYPE_UPDATEVOXEL);
+                buffer.put(TypeBytes.MESSAGE_TYPE_TERRAIN);
+                buffer.put(TypeBytes.TERRAIN_MESSAGE_TYPE_UPDATEVOXEL);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, worldX);
-                ByteStreamUtils.writeInt(stream, worldY);
-                ByteStreamUtils.writeInt(stream, worldZ);
-                ByteStreamUtils.writeInt(stream, voxelX);
-                ByteStreamUtils.writeInt(stream, voxelY);
-                ByteStreamUtils.writeInt(stream, voxelZ);
-                ByteStreamUtils.writeFloat(stream, terrainWeight);
-                ByteStreamUtils.writeInt(stream, terrainValue);
+                buffer.putInt(worldX);
+                buffer.putInt(worldY);
+                buffer.putInt(worldZ);
+                buffer.putInt(voxelX);
+                buffer.putInt(voxelY);
+                buffer.putInt(voxelZ);
+                buffer.putFloat(terrainWeight);
+                buffer.putInt(terrainValue);
             } break;
             case REQUESTUSETERRAINPALETTE: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_TERRAIN);
-                stream.write(TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTUSETERRAINPALETTE);
+                buffer.put(TypeBytes.MESSAGE_TYPE_TERRAIN);
+                buffer.put(TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTUSETERRAINPALETTE);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeDouble(stream, realLocationX);
-                ByteStreamUtils.writeDouble(stream, realLocationY);
-                ByteStreamUtils.writeDouble(stream, realLocationZ);
-                ByteStreamUtils.writeFloat(stream, value);
-                ByteStreamUtils.writeFloat(stream, terrainWeight);
-                ByteStreamUtils.writeInt(stream, terrainValue);
+                buffer.putDouble(realLocationX);
+                buffer.putDouble(realLocationY);
+                buffer.putDouble(realLocationZ);
+                buffer.putFloat(value);
+                buffer.putFloat(terrainWeight);
+                buffer.putInt(terrainValue);
             } break;
             case REQUESTDESTROYTERRAIN: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_TERRAIN);
-                stream.write(TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTDESTROYTERRAIN);
+                buffer.put(TypeBytes.MESSAGE_TYPE_TERRAIN);
+                buffer.put(TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTDESTROYTERRAIN);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeDouble(stream, realLocationX);
-                ByteStreamUtils.writeDouble(stream, realLocationY);
-                ByteStreamUtils.writeDouble(stream, realLocationZ);
-                ByteStreamUtils.writeFloat(stream, value);
-                ByteStreamUtils.writeFloat(stream, terrainWeight);
+                buffer.putDouble(realLocationX);
+                buffer.putDouble(realLocationY);
+                buffer.putDouble(realLocationZ);
+                buffer.putFloat(value);
+                buffer.putFloat(terrainWeight);
             } break;
             case SPAWNPOSITION: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_TERRAIN);
-                stream.write(TypeBytes.TERRAIN_MESSAGE_TYPE_SPAWNPOSITION);
+                buffer.put(TypeBytes.MESSAGE_TYPE_TERRAIN);
+                buffer.put(TypeBytes.TERRAIN_MESSAGE_TYPE_SPAWNPOSITION);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeDouble(stream, realLocationX);
-                ByteStreamUtils.writeDouble(stream, realLocationY);
-                ByteStreamUtils.writeDouble(stream, realLocationZ);
+                buffer.putDouble(realLocationX);
+                buffer.putDouble(realLocationY);
+                buffer.putDouble(realLocationZ);
             } break;
             case REQUESTCHUNKDATA: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_TERRAIN);
-                stream.write(TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTCHUNKDATA);
+                buffer.put(TypeBytes.MESSAGE_TYPE_TERRAIN);
+                buffer.put(TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTCHUNKDATA);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, worldX);
-                ByteStreamUtils.writeInt(stream, worldY);
-                ByteStreamUtils.writeInt(stream, worldZ);
+                buffer.putInt(worldX);
+                buffer.putInt(worldY);
+                buffer.putInt(worldZ);
             } break;
             case SENDCHUNKDATA: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_TERRAIN);
-                stream.write(TypeBytes.TERRAIN_MESSAGE_TYPE_SENDCHUNKDATA);
+                buffer.put(TypeBytes.MESSAGE_TYPE_TERRAIN);
+                buffer.put(TypeBytes.TERRAIN_MESSAGE_TYPE_SENDCHUNKDATA);
                 
                 //
                 //Write variable length table in packet
-                ByteStreamUtils.writeInt(stream, chunkData.length);
+                buffer.putInt(chunkData.length);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, worldX);
-                ByteStreamUtils.writeInt(stream, worldY);
-                ByteStreamUtils.writeInt(stream, worldZ);
-                stream.write(chunkData);
+                buffer.putInt(worldX);
+                buffer.putInt(worldY);
+                buffer.putInt(worldZ);
+                buffer.put(chunkData);
             } break;
             case REQUESTREDUCEDCHUNKDATA: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_TERRAIN);
-                stream.write(TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTREDUCEDCHUNKDATA);
+                buffer.put(TypeBytes.MESSAGE_TYPE_TERRAIN);
+                buffer.put(TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTREDUCEDCHUNKDATA);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, worldX);
-                ByteStreamUtils.writeInt(stream, worldY);
-                ByteStreamUtils.writeInt(stream, worldZ);
-                ByteStreamUtils.writeInt(stream, chunkResolution);
+                buffer.putInt(worldX);
+                buffer.putInt(worldY);
+                buffer.putInt(worldZ);
+                buffer.putInt(chunkResolution);
             } break;
             case SENDREDUCEDCHUNKDATA: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_TERRAIN);
-                stream.write(TypeBytes.TERRAIN_MESSAGE_TYPE_SENDREDUCEDCHUNKDATA);
+                buffer.put(TypeBytes.MESSAGE_TYPE_TERRAIN);
+                buffer.put(TypeBytes.TERRAIN_MESSAGE_TYPE_SENDREDUCEDCHUNKDATA);
                 
                 //
                 //Write variable length table in packet
-                ByteStreamUtils.writeInt(stream, chunkData.length);
+                buffer.putInt(chunkData.length);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, worldX);
-                ByteStreamUtils.writeInt(stream, worldY);
-                ByteStreamUtils.writeInt(stream, worldZ);
-                ByteStreamUtils.writeInt(stream, chunkResolution);
-                ByteStreamUtils.writeInt(stream, homogenousValue);
-                stream.write(chunkData);
+                buffer.putInt(worldX);
+                buffer.putInt(worldY);
+                buffer.putInt(worldZ);
+                buffer.putInt(chunkResolution);
+                buffer.putInt(homogenousValue);
+                buffer.put(chunkData);
             } break;
             case REQUESTREDUCEDBLOCKDATA: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_TERRAIN);
-                stream.write(TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTREDUCEDBLOCKDATA);
+                buffer.put(TypeBytes.MESSAGE_TYPE_TERRAIN);
+                buffer.put(TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTREDUCEDBLOCKDATA);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, worldX);
-                ByteStreamUtils.writeInt(stream, worldY);
-                ByteStreamUtils.writeInt(stream, worldZ);
-                ByteStreamUtils.writeInt(stream, chunkResolution);
+                buffer.putInt(worldX);
+                buffer.putInt(worldY);
+                buffer.putInt(worldZ);
+                buffer.putInt(chunkResolution);
             } break;
             case SENDREDUCEDBLOCKDATA: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_TERRAIN);
-                stream.write(TypeBytes.TERRAIN_MESSAGE_TYPE_SENDREDUCEDBLOCKDATA);
+                buffer.put(TypeBytes.MESSAGE_TYPE_TERRAIN);
+                buffer.put(TypeBytes.TERRAIN_MESSAGE_TYPE_SENDREDUCEDBLOCKDATA);
                 
                 //
                 //Write variable length table in packet
-                ByteStreamUtils.writeInt(stream, chunkData.length);
+                buffer.putInt(chunkData.length);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, worldX);
-                ByteStreamUtils.writeInt(stream, worldY);
-                ByteStreamUtils.writeInt(stream, worldZ);
-                ByteStreamUtils.writeInt(stream, chunkResolution);
-                ByteStreamUtils.writeInt(stream, homogenousValue);
-                stream.write(chunkData);
+                buffer.putInt(worldX);
+                buffer.putInt(worldY);
+                buffer.putInt(worldZ);
+                buffer.putInt(chunkResolution);
+                buffer.putInt(homogenousValue);
+                buffer.put(chunkData);
             } break;
             case UPDATEBLOCK: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_TERRAIN);
-                stream.write(TypeBytes.TERRAIN_MESSAGE_TYPE_UPDATEBLOCK);
+                buffer.put(TypeBytes.MESSAGE_TYPE_TERRAIN);
+                buffer.put(TypeBytes.TERRAIN_MESSAGE_TYPE_UPDATEBLOCK);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, worldX);
-                ByteStreamUtils.writeInt(stream, worldY);
-                ByteStreamUtils.writeInt(stream, worldZ);
-                ByteStreamUtils.writeInt(stream, voxelX);
-                ByteStreamUtils.writeInt(stream, voxelY);
-                ByteStreamUtils.writeInt(stream, voxelZ);
-                ByteStreamUtils.writeInt(stream, blockType);
-                ByteStreamUtils.writeInt(stream, blockMetadata);
+                buffer.putInt(worldX);
+                buffer.putInt(worldY);
+                buffer.putInt(worldZ);
+                buffer.putInt(voxelX);
+                buffer.putInt(voxelY);
+                buffer.putInt(voxelZ);
+                buffer.putInt(blockType);
+                buffer.putInt(blockMetadata);
             } break;
             case REQUESTFLUIDDATA: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_TERRAIN);
-                stream.write(TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTFLUIDDATA);
+                buffer.put(TypeBytes.MESSAGE_TYPE_TERRAIN);
+                buffer.put(TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTFLUIDDATA);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, worldX);
-                ByteStreamUtils.writeInt(stream, worldY);
-                ByteStreamUtils.writeInt(stream, worldZ);
+                buffer.putInt(worldX);
+                buffer.putInt(worldY);
+                buffer.putInt(worldZ);
             } break;
             case SENDFLUIDDATA: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_TERRAIN);
-                stream.write(TypeBytes.TERRAIN_MESSAGE_TYPE_SENDFLUIDDATA);
+                buffer.put(TypeBytes.MESSAGE_TYPE_TERRAIN);
+                buffer.put(TypeBytes.TERRAIN_MESSAGE_TYPE_SENDFLUIDDATA);
                 
                 //
                 //Write variable length table in packet
-                ByteStreamUtils.writeInt(stream, chunkData.length);
+                buffer.putInt(chunkData.length);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, worldX);
-                ByteStreamUtils.writeInt(stream, worldY);
-                ByteStreamUtils.writeInt(stream, worldZ);
-                stream.write(chunkData);
+                buffer.putInt(worldX);
+                buffer.putInt(worldY);
+                buffer.putInt(worldZ);
+                buffer.put(chunkData);
             } break;
             case UPDATEFLUIDDATA: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_TERRAIN);
-                stream.write(TypeBytes.TERRAIN_MESSAGE_TYPE_UPDATEFLUIDDATA);
+                buffer.put(TypeBytes.MESSAGE_TYPE_TERRAIN);
+                buffer.put(TypeBytes.TERRAIN_MESSAGE_TYPE_UPDATEFLUIDDATA);
                 
                 //
                 //Write variable length table in packet
-                ByteStreamUtils.writeInt(stream, chunkData.length);
+                buffer.putInt(chunkData.length);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, worldX);
-                ByteStreamUtils.writeInt(stream, worldY);
-                ByteStreamUtils.writeInt(stream, worldZ);
-                stream.write(chunkData);
+                buffer.putInt(worldX);
+                buffer.putInt(worldY);
+                buffer.putInt(worldZ);
+                buffer.put(chunkData);
             } break;
             case REQUESTEDITBLOCK: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_TERRAIN);
-                stream.write(TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTEDITBLOCK);
+                buffer.put(TypeBytes.MESSAGE_TYPE_TERRAIN);
+                buffer.put(TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTEDITBLOCK);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, worldX);
-                ByteStreamUtils.writeInt(stream, worldY);
-                ByteStreamUtils.writeInt(stream, worldZ);
-                ByteStreamUtils.writeInt(stream, voxelX);
-                ByteStreamUtils.writeInt(stream, voxelY);
-                ByteStreamUtils.writeInt(stream, voxelZ);
-                ByteStreamUtils.writeInt(stream, blockType);
-                ByteStreamUtils.writeInt(stream, blockMetadata);
-                ByteStreamUtils.writeInt(stream, blockEditSize);
+                buffer.putInt(worldX);
+                buffer.putInt(worldY);
+                buffer.putInt(worldZ);
+                buffer.putInt(voxelX);
+                buffer.putInt(voxelY);
+                buffer.putInt(voxelZ);
+                buffer.putInt(blockType);
+                buffer.putInt(blockMetadata);
+                buffer.putInt(blockEditSize);
             } break;
             case REQUESTPLACEFAB: {
                 
                 //
                 //message header
-                stream.write(TypeBytes.MESSAGE_TYPE_TERRAIN);
-                stream.write(TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTPLACEFAB);
+                buffer.put(TypeBytes.MESSAGE_TYPE_TERRAIN);
+                buffer.put(TypeBytes.TERRAIN_MESSAGE_TYPE_REQUESTPLACEFAB);
                 
                 //
                 //Write variable length table in packet
-                ByteStreamUtils.writeInt(stream, fabPath.getBytes().length);
+                buffer.putInt(ByteStreamUtils.getStringSize(fabPath));
+                
+                //
+                //Write body of packet
+                buffer.putInt(worldX);
+                buffer.putInt(worldY);
+                buffer.putInt(worldZ);
+                buffer.putInt(voxelX);
+                buffer.putInt(voxelY);
+                buffer.putInt(voxelZ);
+                buffer.putInt(blockRotation);
+                ByteStreamUtils.putString(buffer, fabPath);
+            } break;
+            case CHUNKFORMAT: {
+                
+                //
+                //message header
+                buffer.put(TypeBytes.MESSAGE_TYPE_TERRAIN);
+                buffer.put(TypeBytes.TERRAIN_MESSAGE_TYPE_CHUNKFORMAT);
                 
                 //
                 //Write body of packet
-                ByteStreamUtils.writeInt(stream, worldX);
-                ByteStreamUtils.writeInt(stream, worldY);
-                ByteStreamUtils.writeInt(stream, worldZ);
-                ByteStreamUtils.writeInt(stream, voxelX);
-                ByteStreamUtils.writeInt(stream, voxelY);
-                ByteStreamUtils.writeInt(stream, voxelZ);
-                ByteStreamUtils.writeInt(stream, blockRotation);
-                ByteStreamUtils.writeString(stream, fabPath);
+                buffer.putInt(chunkFormatVersion);
             } break;
         }
     }
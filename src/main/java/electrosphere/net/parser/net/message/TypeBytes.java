@@ -31,6 +31,7 @@ public class TypeBytes {
     public static final byte ENTITY_MESSAGE_TYPE_UPDATEENTITYVIEWDIR = 8;
     public static final byte ENTITY_MESSAGE_TYPE_SYNCPHYSICS = 9;
     public static final byte ENTITY_MESSAGE_TYPE_INTERACT = 10;
+    public static final byte ENTITY_MESSAGE_TYPE_MOVEUPDATEBATCH = 11;
     /*
      Entity packet sizes
     */
@@ -87,6 +88,7 @@ public class TypeBytes {
     public static final byte TERRAIN_MESSAGE_TYPE_UPDATEFLUIDDATA = 16;
     public static final byte TERRAIN_MESSAGE_TYPE_REQUESTEDITBLOCK = 17;
     public static final byte TERRAIN_MESSAGE_TYPE_REQUESTPLACEFAB = 18;
+    public static final byte TERRAIN_MESSAGE_TYPE_CHUNKFORMAT = 19;
     /*
      Terrain packet sizes
     */
@@ -103,6 +105,7 @@ public class TypeBytes {
     public static final byte TERRAIN_MESSAGE_TYPE_UPDATEBLOCK_SIZE = 34;
     public static final byte TERRAIN_MESSAGE_TYPE_REQUESTFLUIDDATA_SIZE = 14;
     public static final byte TERRAIN_MESSAGE_TYPE_REQUESTEDITBLOCK_SIZE = 38;
+    public static final byte TERRAIN_MESSAGE_TYPE_CHUNKFORMAT_SIZE = 6;
 
     /*
      Server subcategories
@@ -0,0 +1,152 @@
+package electrosphere.net.parser.net.raw;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of byte buffers shared between network parsers.
+ * <p>
+ * Buffers come in power-of-two size classes from MIN_CAPACITY to MAX_CAPACITY.
+ * Parsers start with the smallest class and only trade up while a large payload is in flight,
+ * so idle connections hold MIN_CAPACITY bytes rather than the largest message they have ever seen.
+ * </p>
+ */
+public class NetworkBufferPool {
+
+    /**
+     * The smallest buffer handed out
+     */
+    public static final int MIN_CAPACITY = 64 * 1024;
+
+    /**
+     * The largest buffer handed out
+     */
+    public static final int MAX_CAPACITY = 64 * 1024 * 1024;
+
+    /**
+     * The maximum number of bytes retained by the pool per size class (per heap/direct)
+     */
+    static final int MAX_RETAINED_BYTES_PER_CLASS = 16 * 1024 * 1024;
+
+    /**
+     * The number of size classes
+     */
+    static final int CLASS_COUNT = Integer.numberOfTrailingZeros(MAX_CAPACITY / MIN_CAPACITY) + 1;
+
+    /**
+     * The pool shared by all parsers
+     */
+    private static final NetworkBufferPool defaultPool = new NetworkBufferPool();
+
+    /**
+     * Free direct buffers, indexed by size class
+     */
+    private ConcurrentLinkedQueue<ByteBuffer>[] directBuffers;
+
+    /**
+     * Free heap buffers, indexed by size class
+     */
+    private ConcurrentLinkedQueue<ByteBuffer>[] heapBuffers;
+
+    /**
+     * The number of free direct buffers, indexed by size class
+     */
+    private AtomicInteger[] directCounts;
+
+    /**
+     * The number of free heap buffers, indexed by size class
+     */
+    private AtomicInteger[] heapCounts;
+
+    /**
+     * Constructor
+     */
+    @SuppressWarnings("unchecked")
+    public NetworkBufferPool(){
+        this.directBuffers = new ConcurrentLinkedQueue[CLASS_COUNT];
+        this.heapBuffers = new ConcurrentLinkedQueue[CLASS_COUNT];
+        this.directCounts = new AtomicInteger[CLASS_COUNT];
+        this.heapCounts = new AtomicInteger[CLASS_COUNT];
+        for(int i = 0; i < CLASS_COUNT; i++){
+            this.directBuffers[i] = new ConcurrentLinkedQueue<ByteBuffer>();
+            this.heapBuffers[i] = new ConcurrentLinkedQueue<ByteBuffer>();
+            this.directCounts[i] = new AtomicInteger(0);
+            this.heapCounts[i] = new AtomicInteger(0);
+        }
+    }
+
+    /**
+     * Gets the pool shared by all parsers
+     * @return The pool
+     */
+    public static NetworkBufferPool getDefault(){
+        return defaultPool;
+    }
+
+    /**
+     * Gets a cleared buffer with at least the requested capacity
+     * @param minCapacity The minimum capacity
+     * @param direct true to get a direct buffer, false to get a heap buffer
+     * @return The buffer
+     */
+    public ByteBuffer acquire(int minCapacity, boolean direct){
+        if(minCapacity > MAX_CAPACITY){
+            throw new Error("Requested buffer larger than max capacity! " + minCapacity);
+        }
+        int sizeClass = NetworkBufferPool.getSizeClass(minCapacity);
+        ByteBuffer rVal = (direct ? directBuffers : heapBuffers)[sizeClass].poll();
+        if(rVal != null){
+            (direct ? directCounts : heapCounts)[sizeClass].decrementAndGet();
+            rVal.clear();
+        } else {
+            int capacity = MIN_CAPACITY << sizeClass;
+            rVal = direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        }
+        return rVal;
+    }
+
+    /**
+     * Returns a buffer to the pool. Buffers not acquired from a pool are dropped.
+     * @param buffer The buffer
+     */
+    public void release(ByteBuffer buffer){
+        int capacity = buffer.capacity();
+        if(capacity < MIN_CAPACITY || capacity > MAX_CAPACITY || Integer.bitCount(capacity) != 1){
+            return;
+        }
+        int sizeClass = NetworkBufferPool.getSizeClass(capacity);
+        boolean direct = buffer.isDirect();
+        int maxRetained = Math.max(1, MAX_RETAINED_BYTES_PER_CLASS / capacity);
+        AtomicInteger count = (direct ? directCounts : heapCounts)[sizeClass];
+        if(count.incrementAndGet() > maxRetained){
+            count.decrementAndGet();
+            return;
+        }
+        (direct ? directBuffers : heapBuffers)[sizeClass].add(buffer);
+    }
+
+    /**
+     * Gets the number of free buffers held by the pool
+     * @param capacity The capacity of the size class
+     * @param direct true to count direct buffers, false to count heap buffers
+     * @return The number of free buffers in that class
+     */
+    public int getFreeCount(int capacity, boolean direct){
+        return (direct ? directCounts : heapCounts)[NetworkBufferPool.getSizeClass(capacity)].get();
+    }
+
+    /**
+     * Gets the size class that fits a capacity
+     * @param capacity The capacity
+     * @return The size class
+     */
+    static int getSizeClass(int capacity){
+        if(capacity <= MIN_CAPACITY){
+            return 0;
+        }
+        int rounded = Integer.highestOneBit(capacity - 1) << 1;
+        return Integer.numberOfTrailingZeros(rounded / MIN_CAPACITY);
+    }
+
+}
@@ -6,10 +6,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 
 /**
@@ -18,20 +21,30 @@ import java.util.function.BiConsumer;
 public class NetworkParser {
 
     /**
-     * The size of the read buffer
+     * The default maximum number of messages coalesced into a single write
      */
-    static final int READ_BLOCK_SIZE = 16 * 1024 * 1024;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 256;
 
     /**
-     * The size of the circular buffer
+     * If the staging buffer grows past this size to fit a large batch, it is replaced once the batch is written
      */
-    static final int CIRCULAR_BUFFER_SIZE = 64 * 1024 * 1024;
-    
+    static final int BATCH_STREAM_RETAIN_SIZE = 256 * 1024;
+
+    /**
+     * The initial size of the staging buffer
+     */
+    static final int BATCH_STREAM_INITIAL_SIZE = 4 * 1024;
+
     /**
      * The input stream for the parser
      */
     private InputStream incomingStream;
 
+    /**
+     * The channel for the parser. If set, bytes are read from this directly into the incoming byte buffer instead of from the input stream.
+     */
+    private ReadableByteChannel incomingChannel;
+
     /**
      * The output stream for the parser
      */
@@ -40,12 +53,47 @@ public class NetworkParser {
     /**
      * The queue of incoming messages that have been parsed
      */
-    private CopyOnWriteArrayList<NetworkMessage> incomingMessageQueue = new CopyOnWriteArrayList<NetworkMessage>();
+    private ConcurrentLinkedQueue<NetworkMessage> incomingMessageQueue = new ConcurrentLinkedQueue<NetworkMessage>();
 
     /**
      * The queue of outgoing messages that have yet to be sent
      */
-    private CopyOnWriteArrayList<NetworkMessage> outgoingMessageQueue = new CopyOnWriteArrayList<NetworkMessage>();
+    private ConcurrentLinkedQueue<NetworkMessage> outgoingMessageQueue = new ConcurrentLinkedQueue<NetworkMessage>();
+
+    /**
+     * The number of messages in the incoming queue (the queue's own size() is linear time)
+     */
+    private AtomicInteger incomingQueueDepth = new AtomicInteger(0);
+
+    /**
+     * The number of messages in the outgoing queue (the queue's own size() is linear time)
+     */
+    private AtomicInteger outgoingQueueDepth = new AtomicInteger(0);
+
+    /**
+     * The maximum number of messages coalesced into a single write to the output stream
+     */
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+    /**
+     * Staging buffer that a batch of outgoing messages is serialized into before being written to the output stream in one call
+     */
+    private ByteBuffer batchBuffer = ByteBuffer.allocate(BATCH_STREAM_INITIAL_SIZE);
+
+    /**
+     * The messages in the batch currently being written
+     */
+    private List<NetworkMessage> batch = new ArrayList<NetworkMessage>();
+
+    /**
+     * The number of bytes written by the most recent flush
+     */
+    private int lastFlushBytes = 0;
+
+    /**
+     * The number of messages written by the most recent flush
+     */
+    private int lastFlushMessages = 0;
 
     /**
      * Message object pool
@@ -53,14 +101,15 @@ public class NetworkParser {
     private MessagePool pool = new MessagePool();
     
     /**
-     * The byte buffer for storing incoming bytes
+     * The pool that incoming byte buffers are taken from
      */
-    private ByteBuffer incomingByteBuffer = ByteBuffer.allocate(CIRCULAR_BUFFER_SIZE);
+    private NetworkBufferPool bufferPool = NetworkBufferPool.getDefault();
 
     /**
-     * The block array used to read blocks of bytes in
+     * The byte buffer for storing incoming bytes.
+     * Starts at the pool's minimum capacity and only grows while a message larger than it is in flight.
      */
-    private byte[] readBuffer = new byte[READ_BLOCK_SIZE];
+    private ByteBuffer incomingByteBuffer;
 
     /**
      * The number of bytes read
@@ -97,15 +146,35 @@ public class NetworkParser {
     public NetworkParser(InputStream incomingStream, OutputStream outgoingStream){
         this.incomingStream = incomingStream;
         this.outgoingStream = outgoingStream;
+        //heap backed so that the stream can read straight into the array
+        this.incomingByteBuffer = this.bufferPool.acquire(NetworkBufferPool.MIN_CAPACITY, false);
+    }
+
+    /**
+     * Constructor
+     * @param incomingChannel The non-blocking channel of incoming bytes
+     * @param outgoingStream The in-memory stream of outgoing bytes. The caller is responsible for writing its contents to the channel.
+     */
+    public NetworkParser(ReadableByteChannel incomingChannel, OutputStream outgoingStream){
+        this.incomingChannel = incomingChannel;
+        this.outgoingStream = outgoingStream;
+        //direct so that the channel does not copy through a temporary direct buffer on every read
+        this.incomingByteBuffer = this.bufferPool.acquire(NetworkBufferPool.MIN_CAPACITY, true);
     }
 
     /**
-     * Reads messages from the input stream
+     * Reads messages from the input stream (or channel)
+     * @throws IOException Thrown if the stream fails to read or the channel has reached end-of-stream
      */
     public void readMessagesIn() throws IOException {
+        if(this.incomingChannel != null){
+            this.readChannelIn();
+            return;
+        }
         //read in bytes
         int bytesRead = 0;
-        if(incomingStream.available() > 0){
+        int available = incomingStream.available();
+        while(available > 0){
             //error check
             if(incomingByteBuffer.position() > 0){
                 String message = "Invalid position!\n" +
@@ -118,45 +187,91 @@ public class NetworkParser {
                 throw new Error(message);
             }
 
+            //read bytes straight into the buffer's backing array
+            int toRead = Math.min(available, incomingByteBuffer.capacity() - existingBytes);
+            int lastRead = incomingStream.read(incomingByteBuffer.array(), incomingByteBuffer.arrayOffset() + existingBytes, toRead);
+            if(lastRead < 0){
+                break;
+            }
+
+            //fake flip
+            existingBytes = existingBytes + lastRead;
+            incomingByteBuffer.position(0);
+            incomingByteBuffer.limit(existingBytes);
+
+            //tracking
+            bytesRead = bytesRead + lastRead;
+            totalBytesRead = totalBytesRead + lastRead;
+
+            //parse as we go so that the buffer only grows if a single message doesn't fit
+            this.parseBufferedBytes();
+            available = incomingStream.available();
+        }
+        if(bytesRead == 0 && existingBytes > 0){
+            this.parseBufferedBytes();
+        }
+    }
+
+    /**
+     * Reads whatever bytes are currently available on the channel straight into the incoming byte buffer, then parses them
+     * @throws IOException Thrown if the channel fails to read or has reached end-of-stream
+     */
+    private void readChannelIn() throws IOException {
+        //read until the channel has nothing left to give
+        int lastRead = 0;
+        do {
             //make sure we have room to write
-            incomingByteBuffer.limit(CIRCULAR_BUFFER_SIZE);
+            incomingByteBuffer.limit(incomingByteBuffer.capacity());
             incomingByteBuffer.position(existingBytes);
 
-            //read bytes into buffer
-            bytesRead = incomingStream.read(readBuffer, 0, READ_BLOCK_SIZE);
-            incomingByteBuffer.put(readBuffer, 0, bytesRead);
+            lastRead = incomingChannel.read(incomingByteBuffer);
 
-            //fake flip
-            existingBytes = existingBytes + bytesRead;
+            //flip
+            existingBytes = incomingByteBuffer.position();
             incomingByteBuffer.position(0);
             incomingByteBuffer.limit(existingBytes);
+            if(lastRead > 0){
+                totalBytesRead = totalBytesRead + lastRead;
+            }
 
-            //tracking
-            totalBytesRead = totalBytesRead + bytesRead;
+            //parse as we go so that the buffer only grows if a single message doesn't fit
+            if(existingBytes > 0){
+                this.parseBufferedBytes();
+            }
+        } while(lastRead > 0);
+        if(lastRead < 0){
+            throw new IOException("Channel reached end-of-stream");
         }
+    }
+
+    /**
+     * Parses all complete messages out of the incoming byte buffer and compacts the remaining partial message to the front of the buffer
+     */
+    private void parseBufferedBytes(){
         //parse byte queue for messages
         //for each message, append to clientIncomingMessageQueue
         NetworkMessage newMessage;
-        if(existingBytes > 0 || bytesRead > 0){
-            try {
+        try {
+            newMessage = NetworkMessage.parseBytestreamForMessage(incomingByteBuffer,this.pool,this.customParserMap);
+            while(newMessage != null){
+                mostRecentMessage = newMessage;
+                incomingMessageQueue.add(newMessage);
+                incomingQueueDepth.incrementAndGet();
                 newMessage = NetworkMessage.parseBytestreamForMessage(incomingByteBuffer,this.pool,this.customParserMap);
-                while(newMessage != null){
-                    mostRecentMessage = newMessage;
-                    incomingMessageQueue.add(newMessage);
-                    newMessage = NetworkMessage.parseBytestreamForMessage(incomingByteBuffer,this.pool,this.customParserMap);
-                }
-            } catch (Error e){
-                throw new Error(mostRecentMessage + " failed to parse!",e);
             }
+        } catch (Error e){
+            throw new Error(mostRecentMessage + " failed to parse!",e);
+        }
 
-            //compact the byte buffer
-            incomingByteBuffer.compact();
-            existingBytes = incomingByteBuffer.position();
-            incomingByteBuffer.position(0);
-            incomingByteBuffer.limit(existingBytes);
+        //compact the byte buffer
+        incomingByteBuffer.compact();
+        existingBytes = incomingByteBuffer.position();
+        incomingByteBuffer.position(0);
+        incomingByteBuffer.limit(existingBytes);
 
-            //error check
-            if(CIRCULAR_BUFFER_SIZE - existingBytes < READ_BLOCK_SIZE){
+        if(existingBytes == incomingByteBuffer.capacity()){
+            //a single message is larger than the buffer, trade up for a bigger one
+            if(incomingByteBuffer.capacity() >= NetworkBufferPool.MAX_CAPACITY){
                 String message = "Failed to parse messages!\n" +
                 "position: " + incomingByteBuffer.position() + "\n" +
                 "limit: " + incomingByteBuffer.limit() + "\n" +
@@ -166,29 +281,121 @@ public class NetworkParser {
                 "";
                 throw new Error(message);
             }
+            this.replaceIncomingBuffer(incomingByteBuffer.capacity() * 2);
+        } else if(existingBytes == 0 && incomingByteBuffer.capacity() > NetworkBufferPool.MIN_CAPACITY){
+            //idle again, give the large buffer back to the pool
+            this.replaceIncomingBuffer(NetworkBufferPool.MIN_CAPACITY);
         }
     }
+
+    /**
+     * Swaps the incoming buffer for one of a different size from the pool, carrying over any unparsed bytes
+     * @param capacity The capacity of the new buffer
+     */
+    private void replaceIncomingBuffer(int capacity){
+        ByteBuffer newBuffer = this.bufferPool.acquire(capacity, incomingByteBuffer.isDirect());
+        incomingByteBuffer.position(0);
+        incomingByteBuffer.limit(existingBytes);
+        newBuffer.put(incomingByteBuffer);
+        newBuffer.position(0);
+        newBuffer.limit(existingBytes);
+        this.bufferPool.release(incomingByteBuffer);
+        incomingByteBuffer = newBuffer;
+    }
+
+    /**
+     * Gets the capacity of the buffer currently holding incoming bytes
+     * @return The capacity
+     */
+    public int getIncomingBufferCapacity(){
+        return this.incomingByteBuffer.capacity();
+    }
     
     /**
-     * Pushes messages out across the output stream
+     * Pushes messages out across the output stream.
+     * Messages are serialized in batches of up to the max batch size, and each batch is handed to the output stream in a single write.
+     * Must only be called from one thread at a time.
      * @throws IOException Thrown if a message fails to serialize or the output stream fails to write
      */
     public void pushMessagesOut() throws IOException {
-        for(NetworkMessage message : outgoingMessageQueue){
-            outgoingMessageQueue.remove(message);
-            message.write(outgoingStream);
-            if(this.releaseOnSend){
-                this.pool.release(message);
+        int flushBytes = 0;
+        int flushMessages = 0;
+        NetworkMessage message = outgoingMessageQueue.poll();
+        while(message != null){
+            outgoingQueueDepth.decrementAndGet();
+            batch.add(message);
+            int size = message.getSerializedSize();
+            if(batchBuffer.remaining() < size){
+                this.growBatchBuffer(size);
+            }
+            if(message.isShared()){
+                batchBuffer.put(message.getSharedBytes());
+            } else {
+                message.write(batchBuffer);
+            }
+            if(batch.size() >= maxBatchSize){
+                flushBytes = flushBytes + this.writeBatch();
+                flushMessages = flushMessages + maxBatchSize;
+            }
+            message = outgoingMessageQueue.poll();
+        }
+        if(batch.size() > 0){
+            flushMessages = flushMessages + batch.size();
+            flushBytes = flushBytes + this.writeBatch();
+        }
+        if(flushMessages > 0){
+            this.lastFlushBytes = flushBytes;
+            this.lastFlushMessages = flushMessages;
+        }
+    }
+
+    /**
+     * Writes the current batch to the output stream and releases its messages
+     * @return The number of bytes in the batch
+     * @throws IOException Thrown if the output stream fails to write
+     */
+    private int writeBatch() throws IOException {
+        int rVal = batchBuffer.position();
+        outgoingStream.write(batchBuffer.array(), 0, rVal);
+        outgoingStream.flush();
+        if(batchBuffer.capacity() > BATCH_STREAM_RETAIN_SIZE){
+            batchBuffer = ByteBuffer.allocate(BATCH_STREAM_INITIAL_SIZE);
+        } else {
+            batchBuffer.clear();
+        }
+        if(this.releaseOnSend){
+            for(NetworkMessage message : batch){
+                //other connections may still be sending shared messages
+                if(!message.isShared()){
+                    this.pool.release(message);
+                }
             }
         }
+        batch.clear();
+        return rVal;
     }
     
+    /**
+     * Grows the staging buffer to fit another message
+     * @param size The size of the message
+     */
+    private void growBatchBuffer(int size){
+        int capacity = batchBuffer.capacity() * 2;
+        while(capacity - batchBuffer.position() < size){
+            capacity = capacity * 2;
+        }
+        ByteBuffer newBuffer = ByteBuffer.allocate(capacity);
+        batchBuffer.flip();
+        newBuffer.put(batchBuffer);
+        batchBuffer = newBuffer;
+    }
+
     /**
      * Checks if there is a fully parsed incoming message in the queue
      * @return true if there is message in the queue, false otherwise
      */
     public boolean hasIncomingMessaage(){
-        return incomingMessageQueue.size() > 0;
+        return !incomingMessageQueue.isEmpty();
     }
     
     /**
@@ -196,15 +403,20 @@ public class NetworkParser {
      * @return The message
      */
     public NetworkMessage popIncomingMessage(){
-        return incomingMessageQueue.remove(0);
+        NetworkMessage rVal = incomingMessageQueue.poll();
+        if(rVal != null){
+            incomingQueueDepth.decrementAndGet();
+        }
+        return rVal;
     }
     
     /**
-     * Adds a message to the outgoing queue
+     * Adds a message to the outgoing queue. Safe to call from any thread.
      * @param message The message
      */
     public void addOutgoingMessage(NetworkMessage message){
         outgoingMessageQueue.add(message);
+        outgoingQueueDepth.incrementAndGet();
     }
 
     /**
@@ -231,6 +443,49 @@ public class NetworkParser {
         return totalBytesRead;
     }
 
+    /**
+     * Gets the number of parsed messages waiting to be handled
+     * @return The number of messages
+     */
+    public int getIncomingQueueDepth(){
+        return incomingQueueDepth.get();
+    }
+
+    /**
+     * Gets the number of messages waiting to be sent
+     * @return The number of messages
+     */
+    public int getOutgoingQueueDepth(){
+        return outgoingQueueDepth.get();
+    }
+
+    /**
+     * Gets the number of bytes written by the most recent flush that sent at least one message
+     * @return The number of bytes
+     */
+    public int getLastFlushBytes(){
+        return lastFlushBytes;
+    }
+
+    /**
+     * Gets the number of messages written by the most recent flush that sent at least one message
+     * @return The number of messages
+     */
+    public int getLastFlushMessages(){
+        return lastFlushMessages;
+    }
+
+    /**
+     * Sets the maximum number of messages coalesced into a single write to the output stream
+     * @param maxBatchSize The maximum number of messages
+     */
+    public void setMaxBatchSize(int maxBatchSize){
+        if(maxBatchSize < 1){
+            throw new Error("Batch size must be at least 1! " + maxBatchSize);
+        }
+        this.maxBatchSize = maxBatchSize;
+    }
+
     /**
      * Releases a network message object back into the pool
      * @param message The message
@@ -5,6 +5,7 @@ import io.github.studiorailgun.CircularByteBuffer;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.concurrent.Semaphore;
 
@@ -12,6 +13,11 @@ public class ByteStreamUtils {
     
     static ByteBuffer integerCompactor;
     static Semaphore bufferLock = new Semaphore(1);
+
+    /**
+     * Scratch space for decoding strings out of direct buffers
+     */
+    static ThreadLocal<byte[]> stringScratch = ThreadLocal.withInitial(() -> new byte[256]);
     
     static {
         integerCompactor = ByteBuffer.allocate(8);
@@ -82,13 +88,88 @@ public class ByteStreamUtils {
         return rVal;
     }
 
+    /**
+     * Reads a UTF-8 string from a buffer
+     * @param buff The buffer
+     * @param len The number of bytes in the string
+     * @return The string
+     */
     public static String popStringFromByteBuffer(ByteBuffer buff, int len){
-        byte[] dest = new byte[len];
-        buff.get(dest, 0, len);
-        String rVal = new String(dest);
+        String rVal;
+        if(buff.hasArray()){
+            //decode straight out of the backing array
+            rVal = new String(buff.array(), buff.arrayOffset() + buff.position(), len, StandardCharsets.UTF_8);
+            buff.position(buff.position() + len);
+        } else {
+            byte[] dest = stringScratch.get();
+            if(dest.length < len){
+                dest = new byte[Math.max(len, dest.length * 2)];
+                stringScratch.set(dest);
+            }
+            buff.get(dest, 0, len);
+            rVal = new String(dest, 0, len, StandardCharsets.UTF_8);
+        }
         return rVal;
     }
 
+    /**
+     * Gets the number of bytes a string occupies when encoded as UTF-8
+     * @param s The string
+     * @return The number of bytes
+     */
+    public static int getStringSize(String s){
+        int length = s.length();
+        int rVal = length;
+        for(int i = 0; i < length; i++){
+            char c = s.charAt(i);
+            if(c >= 0x80){
+                if(c < 0x800){
+                    rVal = rVal + 1;
+                } else if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))){
+                    //4 bytes for the pair
+                    rVal = rVal + 2;
+                    i++;
+                } else if(Character.isSurrogate(c)){
+                    //unpaired surrogates are replaced with '?'
+                } else {
+                    rVal = rVal + 2;
+                }
+            }
+        }
+        return rVal;
+    }
+
+    /**
+     * Writes a string into a buffer as UTF-8, without the length prefix
+     * @param buff The buffer
+     * @param s The string
+     */
+    public static void putString(ByteBuffer buff, String s){
+        int length = s.length();
+        for(int i = 0; i < length; i++){
+            char c = s.charAt(i);
+            if(c < 0x80){
+                buff.put((byte)c);
+            } else if(c < 0x800){
+                buff.put((byte)(0xC0 | (c >> 6)));
+                buff.put((byte)(0x80 | (c & 0x3F)));
+            } else if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))){
+                int codePoint = Character.toCodePoint(c, s.charAt(i + 1));
+                buff.put((byte)(0xF0 | (codePoint >> 18)));
+                buff.put((byte)(0x80 | ((codePoint >> 12) & 0x3F)));
+                buff.put((byte)(0x80 | ((codePoint >> 6) & 0x3F)));
+                buff.put((byte)(0x80 | (codePoint & 0x3F)));
+                i++;
+            } else if(Character.isSurrogate(c)){
+                buff.put((byte)'?');
+            } else {
+                buff.put((byte)(0xE0 | (c >> 12)));
+                buff.put((byte)(0x80 | ((c >> 6) & 0x3F)));
+                buff.put((byte)(0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
     public static byte[] popByteArrayFromByteQueue(List<Byte> queue){
         int length = popIntFromByteQueue(queue);
         byte[] bytes = new byte[length];
@@ -1,6 +1,7 @@
 package electrosphere.net.server;
 
 import electrosphere.engine.Globals;
+import electrosphere.engine.threads.ThreadCounts;
 import electrosphere.engine.threads.LabeledThread.ThreadLabel;
 import electrosphere.entity.ServerEntityUtils;
 import electrosphere.logger.LoggerInterface;
@@ -12,16 +13,17 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.BindException;
-import java.net.ServerSocket;
+import java.net.InetSocketAddress;
 import java.net.Socket;
-import java.net.SocketException;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Semaphore;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Lowest level networking class for the server
@@ -39,9 +41,14 @@ public class Server implements Runnable {
     private int port;
     
     /**
-     * the socket for the server
+     * the socket channel for the server
      */
-    private ServerSocket serverSocket;
+    private ServerSocketChannel serverSocket;
+
+    /**
+     * The selector threads that service the socket connections
+     */
+    private ServerSelectorPool selectorPool;
     
     /**
      * Used to synchronize additions/subtractions to the connections stored by this server
@@ -83,39 +90,40 @@ public class Server implements Runnable {
     public void run() {
         this.initServer();
         try {
-            serverSocket = new ServerSocket(port);
+            serverSocket = ServerSocketChannel.open();
+            serverSocket.bind(new InetSocketAddress(port));
             //if we set port to 0, java searches for any available port to open
             //This then explicitly alerts NetUtils of the real port
             if(port == 0){
-                NetUtils.setPort(serverSocket.getLocalPort());
+                NetUtils.setPort(serverSocket.socket().getLocalPort());
             }
+            selectorPool = new ServerSelectorPool(ThreadCounts.SERVER_SELECTOR_THREADS);
             this.isOpen = true;
+            selectorPool.start();
         } catch(BindException ex){
             LoggerInterface.loggerNetworking.ERROR("Failed to bind server socket!",ex);
         } catch (IOException ex) {
             LoggerInterface.loggerNetworking.ERROR("Failed to start server socket!",ex);
         }
-        while(Globals.engineState.threadManager.shouldKeepRunning() && !serverSocket.isClosed()){
-            Socket newSocket;
+        //the accept itself blocks, every accepted connection is handed off to the selector threads
+        while(Globals.engineState.threadManager.shouldKeepRunning() && this.isOpen && serverSocket.isOpen()){
+            SocketChannel newChannel;
             try {
-                newSocket = serverSocket.accept();
+                newChannel = serverSocket.accept();
+                newChannel.configureBlocking(false);
+                newChannel.socket().setTcpNoDelay(true);
                 connectListLock.acquireUninterruptibly();
-                ServerConnectionHandler newClient = new ServerConnectionHandler(newSocket);
-                // clientMap.put(newSocket.getInetAddress().getHostAddress(), newClient);
-                socketConnectionMap.put(newSocket, newClient);
+                ServerConnectionHandler newClient = new ServerConnectionHandler(newChannel);
+                newClient.initialize();
+                socketConnectionMap.put(newClient.getSocket(), newClient);
                 activeConnections.add(newClient);
-                Globals.engineState.threadManager.start(ThreadLabel.NETWORKING_SERVER, new Thread(newClient));
                 connectListLock.release();
-            } catch (SocketException ex){
+                selectorPool.register(newClient);
+            } catch (AsynchronousCloseException ex){
                 LoggerInterface.loggerNetworking.DEBUG("Server Socket closed!",ex);
             } catch (IOException ex) {
                 LoggerInterface.loggerNetworking.ERROR("Socket error on client socket!",ex);
             }
-            try {
-                TimeUnit.MILLISECONDS.sleep(1);
-            } catch (InterruptedException e) {
-                LoggerInterface.loggerEngine.DEBUG("Failed to sleep", e);
-            }
         }
         this.close();
         //null out global state
@@ -134,6 +142,17 @@ public class Server implements Runnable {
         connectListLock.release();
     }
     
+    /**
+     * Sends the messages held for each client connection this frame
+     */
+    public void tickOutgoing(){
+        connectListLock.acquireUninterruptibly();
+        for(ServerConnectionHandler connectionHandler : activeConnections){
+            connectionHandler.tickOutgoing();
+        }
+        connectListLock.release();
+    }
+    
     /**
      * Closes the server socket
      */
@@ -142,6 +161,9 @@ public class Server implements Runnable {
             if(serverSocket != null){
                 serverSocket.close();
             }
+            if(selectorPool != null){
+                selectorPool.close();
+            }
             this.isOpen = false;
         } catch (IOException ex) {
             ex.printStackTrace();
@@ -233,6 +255,9 @@ public class Server implements Runnable {
         } catch (IOException e) {
             LoggerInterface.loggerNetworking.ERROR(e);
         }
+        if(this.selectorPool != null){
+            this.selectorPool.close();
+        }
         this.connectListLock.release();
     }
 
@@ -4,23 +4,41 @@ import electrosphere.entity.types.creature.ObjectTemplate;
 import electrosphere.engine.Globals;
 import electrosphere.logger.LoggerInterface;
 import electrosphere.net.parser.net.message.AuthMessage;
+import electrosphere.net.parser.net.message.EntityMessage;
 import electrosphere.net.parser.net.message.NetworkMessage;
+import electrosphere.net.parser.net.message.NetworkMessage.MessageType;
 import electrosphere.net.parser.net.message.ServerMessage;
 import electrosphere.net.parser.net.raw.NetworkParser;
+import electrosphere.net.server.player.OutgoingMessageScheduler;
+import electrosphere.net.server.player.OutgoingMessageScheduler.MessagePriority;
 import electrosphere.net.server.player.Player;
+import electrosphere.net.synchronization.transport.MovementDeltaEncoder;
+import electrosphere.server.physics.terrain.manager.TerrainChunkWireFormat;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * A connection to the server
+ * A connection to the server.
+ * <p>
+ * Local (stream based) connections run on their own thread via run().
+ * Socket connections are non-blocking channels that are serviced by a ServerSelectorPool thread, which calls into this object when the channel is readable/writable.
+ * </p>
  */
 public class ServerConnectionHandler implements Runnable {
 
@@ -28,6 +46,16 @@ public class ServerConnectionHandler implements Runnable {
     static final long SEND_PING_THRESHOLD = 3000;
     static final long PING_DISCONNECT_THRESHOLD = 60 * 1000;
 
+    /**
+     * Once at least this many bytes at the front of the outgoing buffer have been written, the unwritten tail is moved to the front
+     */
+    static final int COMPACT_THRESHOLD = 64 * 1024;
+
+    /**
+     * The maximum number of unwritten bytes a connection may hold before the client is considered too far behind and is disconnected
+     */
+    static final int MAX_PENDING_OUTGOING_BYTES = 16 * 1024 * 1024;
+
     /**
      * local carrier variables
      */
@@ -38,6 +66,46 @@ public class ServerConnectionHandler implements Runnable {
      */
     Socket socket;
 
+    /**
+     * The non-blocking channel for socket based connections
+     */
+    SocketChannel channel;
+
+    /**
+     * The selector thread servicing this connection's channel
+     */
+    ServerSelectorPool.SelectorLoop selectorLoop;
+
+    /**
+     * The key of the channel within the selector
+     */
+    SelectionKey selectionKey;
+
+    /**
+     * The buffer that the network parser serializes outgoing messages into for socket based connections
+     */
+    ExposedByteArrayOutputStream outgoingBytes;
+
+    /**
+     * Serialized bytes that have not been fully written to the channel yet
+     */
+    Deque<ByteBuffer> pendingWrites = new ArrayDeque<ByteBuffer>();
+
+    /**
+     * Reused array for gathered writes of the pending buffers
+     */
+    ByteBuffer[] gatherArray = new ByteBuffer[4];
+
+    /**
+     * Lock for serializing and writing outgoing bytes to the channel
+     */
+    ReentrantLock channelLock = new ReentrantLock();
+
+    /**
+     * Tracks whether this connection is already queued to be flushed by its selector thread
+     */
+    AtomicBoolean flushRequested = new AtomicBoolean(false);
+
     //the streams for the connection
 //    CryptoInputStream inputStream;
 //    CryptoOutputStream outputStream;
@@ -126,13 +194,42 @@ public class ServerConnectionHandler implements Runnable {
      * the lock used for synchronizing the synchronous message queue
      */
     Semaphore synchronousMessageLock = new Semaphore(1);
+
+    /**
+     * The wire format used for chunk data sent to this client. Raw until the client negotiates something newer.
+     */
+    volatile int chunkFormat = TerrainChunkWireFormat.FORMAT_RAW;
+
+    /**
+     * Controls whether move updates are batched and delta compressed, or sent as individual messages
+     */
+    volatile boolean batchMovement = true;
+
+    /**
+     * Packs the move updates queued during a frame into a single batch
+     */
+    MovementDeltaEncoder movementEncoder = new MovementDeltaEncoder();
+
+    /**
+     * Lock for the movement encoder. Also held while queueing messages that must stay ordered relative to the batch
+     */
+    ReentrantLock movementLock = new ReentrantLock();
+
+    /**
+     * Orders the messages sent to the client by priority and holds bulk data to the per-frame budget
+     */
+    OutgoingMessageScheduler outgoingScheduler = new OutgoingMessageScheduler(
+        (NetworkMessage message) -> this.networkParser.addOutgoingMessage(message),
+        ServerConnectionHandler.getConfiguredBytesPerTick()
+    );
     
     /**
-     * Constructs a connection from a socket
-     * @param socket the socket
+     * Constructs a connection from a non-blocking socket channel
+     * @param channel the channel
      */
-    public ServerConnectionHandler(Socket socket) {
-        this.socket = socket;
+    public ServerConnectionHandler(SocketChannel channel) {
+        this.channel = channel;
+        this.socket = channel.socket();
         this.playerID = Player.getNewId();
         LoggerInterface.loggerNetworking.INFO("[SERVER] Player ID: " + playerID);
         this.messageProtocol = new MessageProtocol(this);
@@ -155,6 +252,72 @@ public class ServerConnectionHandler implements Runnable {
     @Override
     public void run() {
         LoggerInterface.loggerNetworking.INFO("ServerConnectionHandler start");
+        this.initialize();
+
+        ///
+        ///
+        ///      MAIN    LOOP
+        ///
+        ///
+
+        while(Globals.engineState.threadManager.shouldKeepRunning() && this.isConnected == true && Globals.serverState.server != null && Globals.serverState.server.isOpen()){
+
+            boolean receivedMessageThisLoop = false;
+            //
+            // Main Loop
+            //
+            //parse messages both incoming and outgoing
+            try {
+                LoggerInterface.loggerNetworking.DEBUG_LOOP("[SERVER] Try to read messages in");
+                receivedMessageThisLoop = this.parseMessages();
+                this.pushMessagesOut();
+            } catch (SocketException e) {
+                //if we get a SocketException broken pipe (basically the client dc'd without telling us)
+                //set flag to disconnect client
+                //TODO: fix, this doesn't actually catch the socket exception which is exceedingly obnoxious
+                socketException = true;
+                LoggerInterface.loggerNetworking.ERROR("Client disconnected", e);
+                this.disconnect();
+                break;
+            } catch (IOException e){
+                //if we get a SocketException broken pipe (basically the client dc'd without telling us)
+                //set flag to disconnect client
+                //TODO: fix, this doesn't actually catch the socket exception which is exceedingly obnoxious
+                socketException = true;
+                LoggerInterface.loggerNetworking.ERROR("Client disconnected", e);
+                this.disconnect();
+                break;
+            }
+
+            if(!this.checkConnectionHealth(receivedMessageThisLoop)){
+                break;
+            }
+
+            try {
+                //sleep
+                TimeUnit.MILLISECONDS.sleep(1);
+            } catch (InterruptedException ex) {
+                //silently ignore
+                // CodeUtils.todo(ex, "Handle sleep interrupt on server connection");
+            }
+        }
+
+        if(this.socket != null){
+            try {
+                this.socket.close();
+            } catch (IOException e) {
+                LoggerInterface.loggerNetworking.ERROR(e);
+            }
+        }
+
+        LoggerInterface.loggerNetworking.INFO("Server connection thread ended");
+    }
+
+    /**
+     * Sets up the parser and queues the initial ping/auth request.
+     * Must be called before the connection starts servicing messages.
+     */
+    protected void initialize(){
         initialized = false;
 
 
@@ -170,14 +333,10 @@ public class ServerConnectionHandler implements Runnable {
             //run if serverconnectionHandler is created by passing in input/output streams
             networkParser = new NetworkParser(inputStream,outputStream);
             networkParser.setReleaseOnSend(false);
+            ServerConnectionHandler.applyConfiguredMaxBatchSize(networkParser);
             messageProtocol = new MessageProtocol(this);
         } else {
-            //run if ServerConnectionHandler is created by passing in a socket
-            try {
-                socket.setSoTimeout(100);
-            } catch (SocketException ex) {
-                ex.printStackTrace();
-            }
+            //run if ServerConnectionHandler is created by passing in a socket channel
 
             //TODO: use this commented block of code as a reference for implementing encryption on top of the game connection
             //        final SecretKeySpec key = new SecretKeySpec(("1234567890123456").getBytes(),"AES");
@@ -195,15 +354,11 @@ public class ServerConnectionHandler implements Runnable {
 //            ex.printStackTrace();
 //            System.exit(1);
 //        }
-            try {
-                inputStream = socket.getInputStream();
-                outputStream = socket.getOutputStream();
-                networkParser = new NetworkParser(inputStream,outputStream);
-                messageProtocol = new MessageProtocol(this);
-            } catch (IOException ex) {
-                ex.printStackTrace();
-                LoggerInterface.loggerNetworking.ERROR("", ex);
-            }
+            //the parser reads straight from the channel and serializes into a buffer that the selector thread writes out
+            outgoingBytes = new ExposedByteArrayOutputStream();
+            networkParser = new NetworkParser(channel,outgoingBytes);
+            ServerConnectionHandler.applyConfiguredMaxBatchSize(networkParser);
+            messageProtocol = new MessageProtocol(this);
         }
         
         NetworkMessage pingMessage = ServerMessage.constructPingMessage();
@@ -219,94 +374,54 @@ public class ServerConnectionHandler implements Runnable {
         networkParser.addOutgoingMessage(pingMessage);
         networkParser.addOutgoingMessage(authRequestMessage);
 
-
-
-
-        ///
-        ///
-        ///      MAIN    LOOP
-        ///
-        ///
-
-
         initialized = true;
-        while(Globals.engineState.threadManager.shouldKeepRunning() && this.isConnected == true && Globals.serverState.server != null && Globals.serverState.server.isOpen()){
-
-            boolean receivedMessageThisLoop = false;
-            //
-            // Main Loop
-            //
-            //parse messages both incoming and outgoing
-            try {
-                LoggerInterface.loggerNetworking.DEBUG_LOOP("[SERVER] Try to read messages in");
-                receivedMessageThisLoop = this.parseMessages();
-            } catch (SocketException e) {
-                //if we get a SocketException broken pipe (basically the client dc'd without telling us)
-                //set flag to disconnect client
-                //TODO: fix, this doesn't actually catch the socket exception which is exceedingly obnoxious
-                socketException = true;
-                LoggerInterface.loggerNetworking.ERROR("Client disconnected", e);
-                this.disconnect();
-                break;
-            } catch (IOException e){
-                //if we get a SocketException broken pipe (basically the client dc'd without telling us)
-                //set flag to disconnect client
-                //TODO: fix, this doesn't actually catch the socket exception which is exceedingly obnoxious
-                socketException = true;
-                LoggerInterface.loggerNetworking.ERROR("Client disconnected", e);
-                this.disconnect();
-                break;
-            }
-
-            //
-            // Timeout logic
-            //
-            //mark as alive if a message was received from client
-            if(receivedMessageThisLoop){
-                this.markReceivedPongMessage();
-            }
-            //ping logic
-            long currentTime = System.currentTimeMillis();
-            //basically if we haven't sent a ping in a while, send one
-            if(currentTime - lastPingTime > SEND_PING_THRESHOLD){
-                this.addMessagetoOutgoingQueue(ServerMessage.constructPingMessage());
-                lastPingTime = currentTime;
-                if(lastPongTime == 0){
-                    lastPongTime = lastPingTime;
-                }
-            }
+    }
 
-            //
-            // Disconnections
-            //
-            //check if we meet disconnection criteria
-            //has it been too long since the last ping?
-            //have we had a socket exception?
-            if(lastPingTime - lastPongTime > PING_DISCONNECT_THRESHOLD){
-                //disconnected from the server
-                LoggerInterface.loggerNetworking.WARNING("Client timeout");
-                //run disconnect routine
-                this.disconnect();
-                break;
-            }
-            if(this.socketException == true){
-                //disconnected from the server
-                LoggerInterface.loggerNetworking.WARNING("Client disconnected");
-                //run disconnect routine
-                this.disconnect();
-                break;
-            }
+    /**
+     * Sends pings and checks whether the client has timed out
+     * @param receivedMessage true if a message was received from the client since the last check
+     * @return true if the connection is still alive, false if it was disconnected
+     */
+    protected boolean checkConnectionHealth(boolean receivedMessage){
+        //
+        // Timeout logic
+        //
+        //mark as alive if a message was received from client
+        if(receivedMessage){
+            this.markReceivedPongMessage();
         }
-
-        if(this.socket != null){
-            try {
-                this.socket.close();
-            } catch (IOException e) {
-                LoggerInterface.loggerNetworking.ERROR(e);
+        //ping logic
+        long currentTime = System.currentTimeMillis();
+        //basically if we haven't sent a ping in a while, send one
+        if(currentTime - lastPingTime > SEND_PING_THRESHOLD){
+            this.addMessagetoOutgoingQueue(ServerMessage.constructPingMessage());
+            lastPingTime = currentTime;
+            if(lastPongTime == 0){
+                lastPongTime = lastPingTime;
             }
         }
 
-        LoggerInterface.loggerNetworking.INFO("Server connection thread ended");
+        //
+        // Disconnections
+        //
+        //check if we meet disconnection criteria
+        //has it been too long since the last ping?
+        //have we had a socket exception?
+        if(lastPingTime - lastPongTime > PING_DISCONNECT_THRESHOLD){
+            //disconnected from the server
+            LoggerInterface.loggerNetworking.WARNING("Client timeout");
+            //run disconnect routine
+            this.disconnect();
+            return false;
+        }
+        if(this.socketException == true){
+            //disconnected from the server
+            LoggerInterface.loggerNetworking.WARNING("Client disconnected");
+            //run disconnect routine
+            this.disconnect();
+            return false;
+        }
+        return true;
     }
 
     /**
@@ -348,8 +463,14 @@ public class ServerConnectionHandler implements Runnable {
             NetworkMessage message = networkParser.popIncomingMessage();
             this.messageProtocol.handleAsyncMessage(message);
         }
+        return rVal;
+    }
 
-
+    /**
+     * Serializes the outgoing message queue through the parser
+     * @throws IOException Thrown if the parser fails to write
+     */
+    private void pushMessagesOut() throws IOException {
         //
         //Net monitor (debug)
         //
@@ -367,15 +488,186 @@ public class ServerConnectionHandler implements Runnable {
         //
         //push outgoing message
         LoggerInterface.loggerNetworking.DEBUG_LOOP("[SERVER] Try to write messages out");
+        int queueDepth = networkParser.getOutgoingQueueDepth();
         networkParser.pushMessagesOut();
+        if(Globals.netMonitor != null && queueDepth > 0){
+            Globals.netMonitor.logFlush(netMonitorHandle, queueDepth, networkParser.getIncomingQueueDepth(), networkParser.getLastFlushBytes(), networkParser.getLastFlushMessages());
+        }
+    }
+
+    /**
+     * Attaches this connection to the selector thread that services its channel
+     * @param selectorLoop The selector thread
+     * @param selectionKey The key of the channel in the selector
+     */
+    void attachSelector(ServerSelectorPool.SelectorLoop selectorLoop, SelectionKey selectionKey){
+        this.selectorLoop = selectorLoop;
+        this.selectionKey = selectionKey;
+    }
+
+    /**
+     * Called by the selector thread when the channel has bytes to read
+     */
+    void handleReadable(){
+        try {
+            boolean receivedMessage = this.parseMessages();
+            if(receivedMessage){
+                this.markReceivedPongMessage();
+            }
+        } catch (IOException e){
+            socketException = true;
+            LoggerInterface.loggerNetworking.ERROR("Client disconnected", e);
+            this.disconnect();
+        }
+    }
+
+    /**
+     * Serializes any queued messages and writes as much of the pending bytes to the channel as it will take without blocking.
+     * Called by the selector thread when a flush was requested or the channel became writable again.
+     */
+    void flushOutgoing(){
+        boolean failed = false;
+        channelLock.lock();
         try {
-            //sleep
-            TimeUnit.MILLISECONDS.sleep(1);
-        } catch (InterruptedException ex) {
-            //silently ignore
-            // CodeUtils.todo(ex, "Handle sleep interrupt on server connection");
+            //clear before serializing so that messages queued mid-flush request another flush
+            flushRequested.set(false);
+            if(this.channel.isOpen()){
+                this.serializeOutgoing();
+                this.writePending();
+            }
+        } catch (IOException e){
+            socketException = true;
+            failed = true;
+            LoggerInterface.loggerNetworking.ERROR("Client disconnected", e);
+        } finally {
+            channelLock.unlock();
         }
-        return rVal;
+        if(failed){
+            //disconnecting flushes the disconnect message, which takes the channel lock again
+            this.disconnect();
+        }
+    }
+
+    /**
+     * Serializes the outgoing queue and appends the newly written bytes to the pending writes.
+     * Must hold the channel lock.
+     * @throws IOException Thrown if the parser fails to write
+     */
+    private void serializeOutgoing() throws IOException {
+        int start = outgoingBytes.size();
+        this.pushMessagesOut();
+        int end = outgoingBytes.size();
+        if(end > start){
+            //the buffer may be reallocated as it grows, but previously wrapped segments keep a reference to the array they were written to
+            pendingWrites.add(ByteBuffer.wrap(outgoingBytes.getBuffer(), start, end - start));
+        }
+    }
+
+    /**
+     * Writes the pending buffers to the channel with a single gathering write per pass.
+     * Registers interest in writability if the socket's send buffer fills up.
+     * Must hold the channel lock.
+     * @throws IOException Thrown if the channel fails to write
+     */
+    private void writePending() throws IOException {
+        while(!pendingWrites.isEmpty()){
+            if(gatherArray.length < pendingWrites.size()){
+                gatherArray = new ByteBuffer[pendingWrites.size() * 2];
+            }
+            int count = 0;
+            for(ByteBuffer buffer : pendingWrites){
+                gatherArray[count] = buffer;
+                count++;
+            }
+            long written = channel.write(gatherArray, 0, count);
+            while(!pendingWrites.isEmpty() && !pendingWrites.peekFirst().hasRemaining()){
+                pendingWrites.pollFirst();
+            }
+            if(written <= 0){
+                break;
+            }
+        }
+        for(int i = 0; i < gatherArray.length; i++){
+            gatherArray[i] = null;
+        }
+        if(pendingWrites.isEmpty()){
+            outgoingBytes.reset();
+            if(selectionKey != null && selectionKey.isValid()){
+                selectionKey.interestOps(SelectionKey.OP_READ);
+            }
+        } else {
+            int remaining = ServerConnectionHandler.compactPending(outgoingBytes, pendingWrites);
+            if(remaining > MAX_PENDING_OUTGOING_BYTES){
+                throw new IOException("Client is not reading fast enough, " + remaining + " bytes pending");
+            }
+            if(selectionKey != null && selectionKey.isValid()){
+                selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        }
+    }
+
+    /**
+     * Moves the unwritten bytes of the pending buffers to the front of the outgoing buffer once enough of its front has been written.
+     * Keeps a client that reads slowly but never fully catches up from growing the outgoing buffer forever.
+     * @param outgoingBytes The outgoing buffer
+     * @param pendingWrites The pending buffers, in write order
+     * @return The number of bytes that still need to be written
+     */
+    static int compactPending(ExposedByteArrayOutputStream outgoingBytes, Deque<ByteBuffer> pendingWrites){
+        int remaining = 0;
+        for(ByteBuffer buffer : pendingWrites){
+            remaining = remaining + buffer.remaining();
+        }
+        int written = outgoingBytes.size() - remaining;
+        if(written < COMPACT_THRESHOLD || written < remaining){
+            return remaining;
+        }
+        //segments are laid out in write order, so each one's destination never lies past its source and copying front to back is safe
+        byte[] dest = outgoingBytes.getBuffer();
+        int offset = 0;
+        for(ByteBuffer buffer : pendingWrites){
+            int length = buffer.remaining();
+            System.arraycopy(buffer.array(), buffer.arrayOffset() + buffer.position(), dest, offset, length);
+            offset = offset + length;
+        }
+        pendingWrites.clear();
+        pendingWrites.add(ByteBuffer.wrap(dest, 0, remaining));
+        outgoingBytes.setSize(remaining);
+        return remaining;
+    }
+
+    /**
+     * Asks the selector thread to flush this connection's outgoing queue.
+     * Only wakes the selector once per flush, no matter how many messages are queued in between.
+     */
+    private void requestFlush(){
+        if(this.selectorLoop != null && this.flushRequested.compareAndSet(false, true)){
+            this.selectorLoop.queueFlush(this);
+        }
+    }
+
+    /**
+     * Checks if this connection is still communicating with the client
+     * @return true if it is connected, false otherwise
+     */
+    public boolean isConnected(){
+        return this.isConnected;
+    }
+
+    /**
+     * Gets the wire format used for chunk data sent to this client
+     * @return The format
+     */
+    public int getChunkFormat(){
+        return this.chunkFormat;
+    }
+
+    /**
+     * Sets the wire format used for chunk data sent to this client
+     * @param chunkFormat The format
+     */
+    public void setChunkFormat(int chunkFormat){
+        this.chunkFormat = chunkFormat;
     }
 
     /**
@@ -443,7 +735,153 @@ public class ServerConnectionHandler implements Runnable {
      * @param message The message
      */
     public void addMessagetoOutgoingQueue(NetworkMessage message){
-        networkParser.addOutgoingMessage(message);
+        if(message.getType() == MessageType.ENTITY_MESSAGE){
+            EntityMessage entityMessage = (EntityMessage)message;
+            switch(entityMessage.getMessageSubtype()){
+                case MOVEUPDATE: {
+                    if(this.batchMovement){
+                        //held until the end of the frame
+                        movementLock.lock();
+                        try {
+                            movementEncoder.encode(entityMessage);
+                        } finally {
+                            movementLock.unlock();
+                        }
+                        return;
+                    }
+                } break;
+                case CREATE:
+                case DESTROY: {
+                    //a held update must not be sent after the entity is destroyed
+                    outgoingScheduler.forget(entityMessage.getentityID());
+                    if(this.batchMovement){
+                        //the client drops its baseline for the entity when it handles these,
+                        //so anything already encoded against the old baseline has to go out first
+                        movementLock.lock();
+                        try {
+                            this.queueMovementBatch();
+                            movementEncoder.forget(entityMessage.getentityID());
+                            outgoingScheduler.queue(message);
+                        } finally {
+                            movementLock.unlock();
+                        }
+                        if(this.channel != null){
+                            this.requestFlush();
+                        }
+                        return;
+                    }
+                } break;
+                default: {
+                } break;
+            }
+        }
+        if(outgoingScheduler.queue(message) && this.channel != null){
+            this.requestFlush();
+        }
+    }
+
+    /**
+     * Sends the move updates batched this frame
+     */
+    public void flushMovementUpdates(){
+        movementLock.lock();
+        try {
+            this.queueMovementBatch();
+        } finally {
+            movementLock.unlock();
+        }
+        if(this.channel != null){
+            this.requestFlush();
+        }
+    }
+
+    /**
+     * Queues the pending movement batch, if there is one. Caller must hold the movement lock
+     */
+    private void queueMovementBatch(){
+        if(movementEncoder.hasPending()){
+            long time = movementEncoder.getBatchTime();
+            outgoingScheduler.queue(EntityMessage.constructmoveUpdateBatchMessage(time, movementEncoder.finishBatch()));
+        }
+    }
+
+    /**
+     * Sends the move updates the player's relevance filter held back and that are now due
+     */
+    private void sendHeldRelevanceUpdates(){
+        if(
+            Globals.serverState == null || Globals.serverState.playerManager == null ||
+            Globals.engineState == null || Globals.engineState.timekeeper == null
+        ){
+            return;
+        }
+        Player player = this.getPlayer();
+        if(player == null){
+            return;
+        }
+        long frame = Globals.engineState.timekeeper.getNumberOfSimFramesElapsed();
+        player.getRelevanceFilter().flushDue(frame, this::addMessagetoOutgoingQueue);
+    }
+
+    /**
+     * Sends the messages held during this frame. Should be called once per server frame.
+     */
+    public void tickOutgoing(){
+        this.sendHeldRelevanceUpdates();
+        this.flushMovementUpdates();
+        if(outgoingScheduler.tick() > 0 && this.channel != null){
+            this.requestFlush();
+        }
+        if(Globals.netMonitor != null && this.netMonitorHandle != null){
+            for(MessagePriority priority : MessagePriority.values()){
+                Globals.netMonitor.logPriorityClass(
+                    netMonitorHandle,
+                    priority.name(),
+                    outgoingScheduler.getQueueDepth(priority),
+                    outgoingScheduler.getSentMessages(priority),
+                    outgoingScheduler.getSentBytes(priority),
+                    priority == MessagePriority.STATE ? outgoingScheduler.getSupersededCount() : 0
+                );
+            }
+        }
+    }
+
+    /**
+     * Gets the scheduler for messages sent to the client
+     * @return The scheduler
+     */
+    public OutgoingMessageScheduler getOutgoingScheduler(){
+        return this.outgoingScheduler;
+    }
+
+    /**
+     * Gets the per-frame byte budget for bulk messages from the settings
+     * @return The number of bytes, or 0 if there is no budget
+     */
+    private static int getConfiguredBytesPerTick(){
+        if(Globals.gameConfigCurrent != null && Globals.gameConfigCurrent.getSettings() != null){
+            return Globals.gameConfigCurrent.getSettings().getNetServerBytesPerTick();
+        }
+        return 0;
+    }
+
+    /**
+     * Applies the configured maximum batch size to a parser, if the settings specify one
+     * @param parser The parser
+     */
+    private static void applyConfiguredMaxBatchSize(NetworkParser parser){
+        if(Globals.gameConfigCurrent != null && Globals.gameConfigCurrent.getSettings() != null && Globals.gameConfigCurrent.getSettings().getNetMaxBatchSize() > 0){
+            parser.setMaxBatchSize(Globals.gameConfigCurrent.getSettings().getNetMaxBatchSize());
+        }
+    }
+
+    /**
+     * Sets whether move updates are batched and delta compressed
+     * @param batchMovement true to batch move updates, false to send them as individual messages
+     */
+    public void setBatchMovement(boolean batchMovement){
+        this.flushMovementUpdates();
+        this.batchMovement = batchMovement;
     }
 
     /**
@@ -475,19 +913,44 @@ public class ServerConnectionHandler implements Runnable {
     protected void disconnect(){
         //close socket
         this.synchronousMessageLock.acquireUninterruptibly();
+        if(!this.isConnected){
+            this.synchronousMessageLock.release();
+            return;
+        }
 
         //queue message to tell client it disconnected
         this.networkParser.addOutgoingMessage(ServerMessage.constructDisconnectMessage());
         
         //flush outgoing messages
-        try {
-            this.networkParser.pushMessagesOut();
-        } catch (IOException e) {
-            LoggerInterface.loggerNetworking.ERROR(e);
+        if(this.channel != null){
+            //best effort, the channel is non-blocking so anything that doesn't fit in the send buffer is dropped
+            channelLock.lock();
+            try {
+                if(this.channel.isOpen()){
+                    this.serializeOutgoing();
+                    this.writePending();
+                }
+            } catch (IOException e) {
+                LoggerInterface.loggerNetworking.ERROR(e);
+            } finally {
+                channelLock.unlock();
+            }
+        } else {
+            try {
+                this.networkParser.pushMessagesOut();
+            } catch (IOException e) {
+                LoggerInterface.loggerNetworking.ERROR(e);
+            }
         }
 
         //close the socket
-        if(socket != null && socket.isConnected()){
+        if(this.channel != null){
+            try {
+                this.channel.close();
+            } catch (IOException e) {
+                LoggerInterface.loggerNetworking.ERROR("Error closing socket", e);
+            }
+        } else if(socket != null && socket.isConnected()){
             try {
                 socket.close();
             } catch (IOException e) {
@@ -495,8 +958,8 @@ public class ServerConnectionHandler implements Runnable {
             }
         }
 
-        this.synchronousMessageLock.release();
         this.isConnected = false;
+        this.synchronousMessageLock.release();
         //add connection to server list of connections to cleanup
         if(Globals.serverState.server != null){
             Globals.serverState.server.addClientToCleanup(this);
@@ -538,6 +1001,30 @@ public class ServerConnectionHandler implements Runnable {
         return this.networkParser;
     }
 
-    
+    /**
+     * A byte array output stream that exposes its backing array so that written bytes can be wrapped without copying
+     */
+    static class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+
+        /**
+         * Gets the backing array. Only the first size() bytes are valid.
+         * @return The backing array
+         */
+        byte[] getBuffer(){
+            return this.buf;
+        }
+
+        /**
+         * Truncates the stream to the given number of bytes. New writes are appended after them.
+         * @param size The number of valid bytes at the front of the backing array
+         */
+        void setSize(int size){
+            if(size < 0 || size > this.count){
+                throw new Error("Invalid size " + size + " for stream of size " + this.count);
+            }
+            this.count = size;
+        }
+
+    }
 
 }
@@ -0,0 +1,253 @@
+package electrosphere.net.server;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import electrosphere.engine.Globals;
+import electrosphere.engine.threads.LabeledThread.ThreadLabel;
+import electrosphere.logger.LoggerInterface;
+
+/**
+ * A small pool of selector threads that service every socket connection to the server.
+ * <p>
+ * Each connection's channel is registered with exactly one selector thread.
+ * The thread reads straight into the connection's parser when the channel is readable, flushes the outgoing queue when a flush is requested,
+ * and periodically runs the ping/timeout logic for every connection it owns.
+ * </p>
+ */
+public class ServerSelectorPool {
+
+    /**
+     * How often the selector threads check their connections for timeouts (in milliseconds)
+     */
+    static final long HEALTH_CHECK_INTERVAL_MS = 100;
+
+    /**
+     * The selector threads
+     */
+    private SelectorLoop[] loops;
+
+    /**
+     * Tracks whether the pool is still running
+     */
+    private volatile boolean running = true;
+
+    /**
+     * Constructor
+     * @param threadCount The number of selector threads
+     * @throws IOException Thrown if a selector fails to open
+     */
+    public ServerSelectorPool(int threadCount) throws IOException {
+        this.loops = new SelectorLoop[threadCount];
+        for(int i = 0; i < threadCount; i++){
+            this.loops[i] = new SelectorLoop(this, Selector.open());
+        }
+    }
+
+    /**
+     * Starts the selector threads
+     */
+    public void start(){
+        for(SelectorLoop loop : this.loops){
+            Globals.engineState.threadManager.start(ThreadLabel.NETWORKING_SERVER, new Thread(loop));
+        }
+    }
+
+    /**
+     * Hands a connection off to the least loaded selector thread
+     * @param connection The connection. Its channel must be in non-blocking mode
+     */
+    public void register(ServerConnectionHandler connection){
+        SelectorLoop target = this.loops[0];
+        for(SelectorLoop loop : this.loops){
+            if(loop.getConnectionCount() < target.getConnectionCount()){
+                target = loop;
+            }
+        }
+        target.queueRegistration(connection);
+    }
+
+    /**
+     * Stops the selector threads. Each thread closes the channels it owns on the way out.
+     */
+    public void close(){
+        this.running = false;
+        for(SelectorLoop loop : this.loops){
+            loop.selector.wakeup();
+        }
+    }
+
+    /**
+     * Checks if the pool should keep running
+     * @return true if it should keep running, false otherwise
+     */
+    private boolean shouldKeepRunning(){
+        return this.running &&
+        Globals.engineState.threadManager.shouldKeepRunning() &&
+        Globals.serverState.server != null &&
+        Globals.serverState.server.isOpen();
+    }
+
+    /**
+     * A single selector thread
+     */
+    static class SelectorLoop implements Runnable {
+
+        /**
+         * The pool this thread belongs to
+         */
+        private ServerSelectorPool pool;
+
+        /**
+         * The selector
+         */
+        private Selector selector;
+
+        /**
+         * Connections waiting to be registered with the selector
+         */
+        private Queue<ServerConnectionHandler> registrationQueue = new ConcurrentLinkedQueue<ServerConnectionHandler>();
+
+        /**
+         * Connections that have requested a flush of their outgoing queue
+         */
+        private Queue<ServerConnectionHandler> flushQueue = new ConcurrentLinkedQueue<ServerConnectionHandler>();
+
+        /**
+         * The number of connections registered to (or waiting to register with) this thread
+         */
+        private volatile int connectionCount = 0;
+
+        /**
+         * The last time the connections were checked for timeouts
+         */
+        private long lastHealthCheck = 0;
+
+        /**
+         * Constructor
+         * @param pool The pool
+         * @param selector The selector
+         */
+        SelectorLoop(ServerSelectorPool pool, Selector selector){
+            this.pool = pool;
+            this.selector = selector;
+        }
+
+        @Override
+        public void run(){
+            LoggerInterface.loggerNetworking.INFO("Server selector thread start");
+            while(this.pool.shouldKeepRunning()){
+                try {
+                    selector.select(HEALTH_CHECK_INTERVAL_MS);
+                } catch (IOException e) {
+                    LoggerInterface.loggerNetworking.ERROR("Selector failed!", e);
+                    break;
+                }
+                this.registerPending();
+
+                //service ready channels
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while(iterator.hasNext()){
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    ServerConnectionHandler connection = (ServerConnectionHandler)key.attachment();
+                    if(key.isValid() && key.isReadable()){
+                        connection.handleReadable();
+                    }
+                    if(key.isValid() && key.isWritable()){
+                        connection.flushOutgoing();
+                    }
+                }
+
+                //flush everything queued since the last pass, including responses to what was just read
+                ServerConnectionHandler toFlush = flushQueue.poll();
+                while(toFlush != null){
+                    toFlush.flushOutgoing();
+                    toFlush = flushQueue.poll();
+                }
+
+                //pings and timeouts
+                long currentTime = System.currentTimeMillis();
+                if(currentTime - lastHealthCheck >= HEALTH_CHECK_INTERVAL_MS){
+                    lastHealthCheck = currentTime;
+                    for(SelectionKey key : selector.keys()){
+                        ServerConnectionHandler connection = (ServerConnectionHandler)key.attachment();
+                        if(key.isValid()){
+                            connection.checkConnectionHealth(false);
+                        }
+                    }
+                }
+                connectionCount = selector.keys().size() + registrationQueue.size();
+            }
+
+            //close every channel still owned by this thread
+            for(SelectionKey key : selector.keys()){
+                try {
+                    key.channel().close();
+                } catch (IOException e) {
+                    LoggerInterface.loggerNetworking.ERROR(e);
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                LoggerInterface.loggerNetworking.ERROR(e);
+            }
+            LoggerInterface.loggerNetworking.INFO("Server selector thread ended");
+        }
+
+        /**
+         * Registers all connections waiting in the registration queue. Must be called on the selector thread.
+         */
+        private void registerPending(){
+            ServerConnectionHandler connection = registrationQueue.poll();
+            while(connection != null){
+                SocketChannel channel = connection.channel;
+                try {
+                    SelectionKey key = channel.register(selector, SelectionKey.OP_READ, connection);
+                    connection.attachSelector(this, key);
+                    //send the initial ping/auth request
+                    connection.flushOutgoing();
+                } catch (ClosedChannelException e) {
+                    LoggerInterface.loggerNetworking.WARNING("Channel closed before registration");
+                }
+                connection = registrationQueue.poll();
+            }
+        }
+
+        /**
+         * Queues a connection to be registered with this thread's selector
+         * @param connection The connection
+         */
+        void queueRegistration(ServerConnectionHandler connection){
+            connectionCount++;
+            registrationQueue.add(connection);
+            selector.wakeup();
+        }
+
+        /**
+         * Queues a connection to have its outgoing messages flushed
+         * @param connection The connection
+         */
+        void queueFlush(ServerConnectionHandler connection){
+            flushQueue.add(connection);
+            selector.wakeup();
+        }
+
+        /**
+         * Gets the number of connections owned by this thread
+         * @return The number of connections
+         */
+        int getConnectionCount(){
+            return connectionCount;
+        }
+
+    }
+
+}
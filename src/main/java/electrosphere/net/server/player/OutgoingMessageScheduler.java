@@ -0,0 +1,357 @@
+package electrosphere.net.server.player;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import electrosphere.net.parser.net.message.EntityMessage;
+import electrosphere.net.parser.net.message.NetworkMessage;
+import electrosphere.net.parser.net.message.TerrainMessage;
+
+/**
+ * Schedules the messages sent to a single player.
+ * <p>
+ * Messages are sorted into priority classes. Critical messages are passed straight through in the order they were queued.
+ * State messages that are superseded by newer ones (ie move updates) are coalesced until the end of the frame, so only the newest one per entity is sent.
+ * Move update batches are state traffic too, but are already coalesced by the encoder, so they pass straight through in order.
+ * Bulk messages (terrain and fluid data) are held and released at the end of each frame within a bytes per frame budget, so that they can't delay critical traffic.
+ * </p>
+ */
+public class OutgoingMessageScheduler {
+
+    /**
+     * The priority class of an outgoing message
+     */
+    public static enum MessagePriority {
+        /**
+         * Sent immediately, in order. Never held back by the budget
+         */
+        CRITICAL,
+        /**
+         * Coalesced until the end of the frame, only the newest message per entity is sent
+         */
+        STATE,
+        /**
+         * Held and released within the per-frame byte budget
+         */
+        BULK,
+    }
+
+    /**
+     * The number of frames bulk messages can be starved by higher priority traffic before one is sent regardless of budget
+     */
+    public static final int MAX_BULK_WAIT_TICKS = 60;
+
+    /**
+     * Receives the messages released by the scheduler
+     */
+    private Consumer<NetworkMessage> sink;
+
+    /**
+     * The number of bytes that can be sent per frame. Values less than or equal to 0 disable the budget.
+     */
+    private volatile int bytesPerTick;
+
+    /**
+     * The bytes that can still be sent this frame. Negative if a bulk message overshot the budget
+     */
+    private long credit = 0;
+
+    /**
+     * Bytes of critical and state messages sent since the last frame
+     */
+    private long unbudgetedBytes = 0;
+
+    /**
+     * The number of frames that bulk messages have been waiting without any being sent
+     */
+    private int bulkWaitTicks = 0;
+
+    /**
+     * The newest state message for each entity, in the order the entities were first queued
+     */
+    private Map<Integer,NetworkMessage> stateQueue = new LinkedHashMap<Integer,NetworkMessage>();
+
+    /**
+     * Held bulk messages
+     */
+    private Deque<NetworkMessage> bulkQueue = new ArrayDeque<NetworkMessage>();
+
+    /**
+     * The number of messages sent per priority class
+     */
+    private long[] sentMessages = new long[MessagePriority.values().length];
+
+    /**
+     * The number of bytes sent per priority class
+     */
+    private long[] sentBytes = new long[MessagePriority.values().length];
+
+    /**
+     * The largest depth each priority class's queue has reached
+     */
+    private int[] maxQueueDepth = new int[MessagePriority.values().length];
+
+    /**
+     * The number of state messages that were dropped because a newer one replaced them
+     */
+    private long supersededCount = 0;
+
+    /**
+     * Lock for the queues and counters
+     */
+    private ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Constructor
+     * @param sink Receives the messages released by the scheduler
+     * @param bytesPerTick The number of bytes that can be sent per frame, or 0 for no budget
+     */
+    public OutgoingMessageScheduler(Consumer<NetworkMessage> sink, int bytesPerTick){
+        this.sink = sink;
+        this.bytesPerTick = bytesPerTick;
+        this.credit = bytesPerTick;
+    }
+
+    /**
+     * Gets the priority class of a message
+     * @param message The message
+     * @return The priority class
+     */
+    public static MessagePriority getPriority(NetworkMessage message){
+        switch(message.getType()){
+            case TERRAIN_MESSAGE: {
+                //the client can't decode chunk payloads until it knows the format, so the negotiation can't wait behind them
+                if(((TerrainMessage)message).getMessageSubtype() == TerrainMessage.TerrainMessageType.CHUNKFORMAT){
+                    return MessagePriority.CRITICAL;
+                }
+                return MessagePriority.BULK;
+            }
+            case ENTITY_MESSAGE: {
+                switch(((EntityMessage)message).getMessageSubtype()){
+                    case MOVEUPDATE:
+                    case MOVEUPDATEBATCH: {
+                        return MessagePriority.STATE;
+                    }
+                    default: {
+                        return MessagePriority.CRITICAL;
+                    }
+                }
+            }
+            default: {
+                return MessagePriority.CRITICAL;
+            }
+        }
+    }
+
+    /**
+     * Queues a message
+     * @param message The message
+     * @return true if the message was passed straight through to the sink, false if it is being held
+     */
+    public boolean queue(NetworkMessage message){
+        MessagePriority priority = OutgoingMessageScheduler.getPriority(message);
+        lock.lock();
+        try {
+            switch(priority){
+                case STATE: {
+                    if(((EntityMessage)message).getMessageSubtype() == EntityMessage.EntityMessageType.MOVEUPDATEBATCH){
+                        //batches are deltas against the previous batch and are already coalesced per frame, so they are never superseded or reordered
+                        unbudgetedBytes = unbudgetedBytes + this.send(priority, message);
+                        return true;
+                    }
+                    NetworkMessage previous = stateQueue.put(((EntityMessage)message).getentityID(), message);
+                    if(previous != null){
+                        supersededCount++;
+                    }
+                    maxQueueDepth[priority.ordinal()] = Math.max(maxQueueDepth[priority.ordinal()], stateQueue.size());
+                    return false;
+                }
+                case BULK: {
+                    if(this.bytesPerTick > 0){
+                        bulkQueue.add(message);
+                        maxQueueDepth[priority.ordinal()] = Math.max(maxQueueDepth[priority.ordinal()], bulkQueue.size());
+                        return false;
+                    }
+                    this.send(priority, message);
+                    return true;
+                }
+                default: {
+                    int size = this.send(priority, message);
+                    unbudgetedBytes = unbudgetedBytes + size;
+                    return true;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases the messages held during the frame. Should be called once per frame.
+     * @return The number of messages released
+     */
+    public int tick(){
+        int rVal = 0;
+        lock.lock();
+        try {
+            //state messages are always sent
+            for(NetworkMessage message : stateQueue.values()){
+                unbudgetedBytes = unbudgetedBytes + this.send(MessagePriority.STATE, message);
+                rVal++;
+            }
+            stateQueue.clear();
+
+            //bulk gets whatever budget is left
+            int budget = this.bytesPerTick;
+            if(budget <= 0){
+                credit = 0;
+                while(!bulkQueue.isEmpty()){
+                    this.send(MessagePriority.BULK, bulkQueue.poll());
+                    rVal++;
+                }
+            } else {
+                credit = Math.min(credit + budget, budget);
+                if(credit > 0){
+                    credit = Math.max(0, credit - unbudgetedBytes);
+                }
+                if(!bulkQueue.isEmpty() && credit <= 0){
+                    bulkWaitTicks++;
+                    if(bulkWaitTicks >= MAX_BULK_WAIT_TICKS){
+                        //don't let a saturated connection starve terrain forever
+                        credit = 1;
+                    }
+                }
+                while(!bulkQueue.isEmpty() && credit > 0){
+                    credit = credit - this.send(MessagePriority.BULK, bulkQueue.poll());
+                    bulkWaitTicks = 0;
+                    rVal++;
+                }
+            }
+            unbudgetedBytes = 0;
+        } finally {
+            lock.unlock();
+        }
+        return rVal;
+    }
+
+    /**
+     * Drops any held state for an entity. Must be called when the entity is created or destroyed for the player,
+     * so that a stale update isn't sent after the destroy message
+     * @param entityId The id of the entity
+     */
+    public void forget(int entityId){
+        lock.lock();
+        try {
+            stateQueue.remove(entityId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Passes a message to the sink and records it
+     * @param priority The priority class of the message
+     * @param message The message
+     * @return The size of the message in bytes
+     */
+    private int send(MessagePriority priority, NetworkMessage message){
+        int size = message.getSerializedSize();
+        sentMessages[priority.ordinal()]++;
+        sentBytes[priority.ordinal()] = sentBytes[priority.ordinal()] + size;
+        sink.accept(message);
+        return size;
+    }
+
+    /**
+     * Gets the number of bytes that can be sent per frame
+     * @return The number of bytes, or a value less than or equal to 0 if there is no budget
+     */
+    public int getBytesPerTick(){
+        return bytesPerTick;
+    }
+
+    /**
+     * Sets the number of bytes that can be sent per frame
+     * @param bytesPerTick The number of bytes, or 0 to disable the budget
+     */
+    public void setBytesPerTick(int bytesPerTick){
+        this.bytesPerTick = bytesPerTick;
+    }
+
+    /**
+     * Gets the number of messages currently held for a priority class
+     * @param priority The priority class
+     * @return The number of messages
+     */
+    public int getQueueDepth(MessagePriority priority){
+        lock.lock();
+        try {
+            switch(priority){
+                case STATE: {
+                    return stateQueue.size();
+                }
+                case BULK: {
+                    return bulkQueue.size();
+                }
+                default: {
+                    return 0;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the largest number of messages held at once for a priority class
+     * @param priority The priority class
+     * @return The number of messages
+     */
+    public int getMaxQueueDepth(MessagePriority priority){
+        return maxQueueDepth[priority.ordinal()];
+    }
+
+    /**
+     * Gets the total number of messages sent for a priority class
+     * @param priority The priority class
+     * @return The number of messages
+     */
+    public long getSentMessages(MessagePriority priority){
+        return sentMessages[priority.ordinal()];
+    }
+
+    /**
+     * Gets the total number of bytes sent for a priority class
+     * @param priority The priority class
+     * @return The number of bytes
+     */
+    public long getSentBytes(MessagePriority priority){
+        return sentBytes[priority.ordinal()];
+    }
+
+    /**
+     * Gets the number of state messages that were dropped because a newer one replaced them
+     * @return The number of messages
+     */
+    public long getSupersededCount(){
+        return supersededCount;
+    }
+
+    /**
+     * Drops every held message
+     */
+    public void clear(){
+        lock.lock();
+        try {
+            stateQueue.clear();
+            bulkQueue.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
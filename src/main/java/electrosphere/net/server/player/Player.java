@@ -3,7 +3,9 @@ package electrosphere.net.server.player;
 import electrosphere.engine.Globals;
 import electrosphere.entity.Entity;
 import electrosphere.net.NetUtils;
+import electrosphere.net.parser.net.message.EntityMessage;
 import electrosphere.net.parser.net.message.NetworkMessage;
+import electrosphere.net.parser.net.message.NetworkMessage.MessageType;
 import electrosphere.net.server.ServerConnectionHandler;
 
 import java.util.concurrent.Semaphore;
@@ -69,6 +71,11 @@ public class Player {
      * Tracks whether the player's entity has been sent or not
      */
     private boolean hasSentPlayerEntity = false;
+
+    /**
+     * Thins out move updates for entities far from this player
+     */
+    private RelevanceFilter relevanceFilter = new RelevanceFilter();
     
     /**
      * Constructor
@@ -107,9 +114,39 @@ public class Player {
      * @param message The message
      */
     public void addMessage(NetworkMessage message){
+        if(message.getType() == MessageType.ENTITY_MESSAGE){
+            EntityMessage entityMessage = (EntityMessage)message;
+            switch(entityMessage.getMessageSubtype()){
+                case CREATE:
+                case DESTROY: {
+                    relevanceFilter.forget(entityMessage.getentityID());
+                } break;
+                default: {
+                } break;
+            }
+        }
         connectionHandler.addMessagetoOutgoingQueue(message);
     }
 
+    /**
+     * Gets the filter that thins out move updates for entities far from this player
+     * @return The filter
+     */
+    public RelevanceFilter getRelevanceFilter(){
+        return relevanceFilter;
+    }
+
+    /**
+     * Gets the scheduler for messages sent to this player
+     * @return The scheduler, or null if this is not backed by a connection
+     */
+    public OutgoingMessageScheduler getOutgoingScheduler(){
+        if(connectionHandler == null){
+            return null;
+        }
+        return connectionHandler.getOutgoingScheduler();
+    }
+
     /**
      * Gets the world position of the player
      * @return The world position
@@ -0,0 +1,208 @@
+package electrosphere.net.server.player;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import electrosphere.entity.state.lod.ServerLODComponent;
+import electrosphere.net.parser.net.message.EntityMessage;
+
+/**
+ * Thins out the move updates a player receives for distant entities.
+ * <p>
+ * Updates that change the movement state of an entity are always sent, otherwise updates are sent at an interval that grows with the distance to the player.
+ * The latest skipped update of each entity is held and sent by flushDue once its interval has passed, so the last update of a burst
+ * (ie the one that leaves the entity at rest) always reaches the player.
+ * </p>
+ * <p>
+ * Entities that have not had an update for STALE_FRAMES are dropped from the filter, so entities that left the player's cells
+ * or were unloaded without a destroy message do not stay tracked forever.
+ * </p>
+ */
+public class RelevanceFilter {
+
+    /**
+     * The number of frames without an update after which an entity is dropped from the filter
+     */
+    static final int STALE_FRAMES = ServerLODComponent.MAX_NETWORK_UPDATE_INTERVAL * 32;
+
+    /**
+     * The last update sent to the player for each entity
+     */
+    private Map<Integer,SentUpdate> sentUpdates = new HashMap<Integer,SentUpdate>();
+
+    /**
+     * The entities that have a skipped update held for later
+     */
+    private Map<Integer,SentUpdate> heldUpdates = new HashMap<Integer,SentUpdate>();
+
+    /**
+     * The frame stale entities were last dropped on
+     */
+    private long lastSweepFrame = 0;
+
+    /**
+     * The number of updates that were skipped
+     */
+    private long skippedCount = 0;
+
+    /**
+     * Lock for the sent updates
+     */
+    private ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Checks whether a move update should be sent to the player this frame. Skipped updates are held until flushDue.
+     * @param moveUpdate The move update
+     * @param distance The distance between the entity and the player
+     * @param lodLevel The LOD level of the entity
+     * @param frame The current frame
+     * @return true if the update should be sent, false if it can be skipped
+     */
+    public boolean shouldSend(EntityMessage moveUpdate, double distance, int lodLevel, long frame){
+        int interval = ServerLODComponent.getNetworkUpdateInterval(distance, lodLevel);
+        lock.lock();
+        try {
+            SentUpdate sent = sentUpdates.get(moveUpdate.getentityID());
+            if(sent == null){
+                sent = new SentUpdate();
+                sentUpdates.put(moveUpdate.getentityID(), sent);
+            } else if(
+                frame - sent.frame < interval &&
+                sent.treeState == moveUpdate.gettreeState() &&
+                sent.propertyValueInt == moveUpdate.getpropertyValueInt()
+            ){
+                skippedCount++;
+                sent.held = moveUpdate;
+                sent.interval = interval;
+                sent.lastUpdateFrame = frame;
+                heldUpdates.put(moveUpdate.getentityID(), sent);
+                return false;
+            }
+            sent.frame = frame;
+            sent.lastUpdateFrame = frame;
+            sent.treeState = moveUpdate.gettreeState();
+            sent.propertyValueInt = moveUpdate.getpropertyValueInt();
+            if(sent.held != null){
+                sent.held = null;
+                heldUpdates.remove(moveUpdate.getentityID());
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sends the held updates whose interval has passed, and drops entities that have gone stale. Should be called once per frame.
+     * @param frame The current frame
+     * @param sender Sends an update to the player
+     */
+    public void flushDue(long frame, Consumer<EntityMessage> sender){
+        List<EntityMessage> due = null;
+        lock.lock();
+        try {
+            Iterator<SentUpdate> iterator = heldUpdates.values().iterator();
+            while(iterator.hasNext()){
+                SentUpdate sent = iterator.next();
+                if(frame - sent.frame >= sent.interval){
+                    if(due == null){
+                        due = new LinkedList<EntityMessage>();
+                    }
+                    due.add(sent.held);
+                    sent.frame = frame;
+                    sent.held = null;
+                    iterator.remove();
+                }
+            }
+            if(frame - lastSweepFrame >= STALE_FRAMES){
+                lastSweepFrame = frame;
+                sentUpdates.values().removeIf((SentUpdate sent) -> sent.held == null && frame - sent.lastUpdateFrame >= STALE_FRAMES);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if(due != null){
+            for(EntityMessage message : due){
+                sender.accept(message);
+            }
+        }
+    }
+
+    /**
+     * Drops the record of an entity, so its next update is always sent and any held update is discarded
+     * @param entityId The id of the entity
+     */
+    public void forget(int entityId){
+        lock.lock();
+        try {
+            sentUpdates.remove(entityId);
+            heldUpdates.remove(entityId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of updates that were skipped
+     * @return The number of updates
+     */
+    public long getSkippedCount(){
+        return skippedCount;
+    }
+
+    /**
+     * Gets the number of entities the filter is tracking
+     * @return The number of entities
+     */
+    public int getTrackedCount(){
+        lock.lock();
+        try {
+            return sentUpdates.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The last update sent for an entity
+     */
+    static class SentUpdate {
+
+        /**
+         * The frame the update was sent on
+         */
+        long frame;
+
+        /**
+         * The frame the latest update arrived on, sent or not
+         */
+        long lastUpdateFrame;
+
+        /**
+         * The movement tree state of the update
+         */
+        int treeState;
+
+        /**
+         * The property value of the update (ie facing)
+         */
+        int propertyValueInt;
+
+        /**
+         * The latest skipped update, or null if there is none
+         */
+        EntityMessage held;
+
+        /**
+         * The interval the held update was skipped under
+         */
+        int interval;
+
+    }
+
+}
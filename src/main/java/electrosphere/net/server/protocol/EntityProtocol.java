@@ -69,6 +69,7 @@ public class EntityProtocol implements ServerProtocolTemplate<EntityMessage> {
             case ATTACHENTITYTOENTITY:
             case SETPROPERTY:
             case SYNCPHYSICS:
+            case MOVEUPDATEBATCH:
                 //silently ignore
                 break;
         }
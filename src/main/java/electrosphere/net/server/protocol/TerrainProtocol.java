@@ -21,9 +21,12 @@ import electrosphere.net.template.ServerProtocolTemplate;
 import electrosphere.server.datacell.Realm;
 import electrosphere.server.datacell.ServerWorldData;
 import electrosphere.server.datacell.utils.EntityLookupUtils;
+import electrosphere.server.physics.fluid.manager.FluidChunkWireFormat;
 import electrosphere.server.physics.fluid.manager.ServerFluidChunk;
 import electrosphere.server.physics.terrain.editing.TerrainEditing;
 import electrosphere.server.physics.terrain.manager.ServerTerrainChunk;
+import electrosphere.server.physics.terrain.manager.TerrainChunkWireFormat;
+import electrosphere.server.physics.terrain.manager.VoxelStorage;
 import electrosphere.server.player.BlockActions;
 
 /**
@@ -49,6 +52,15 @@ public class TerrainProtocol implements ServerProtocolTemplate<TerrainMessage> {
                 );
                 return null;
             }
+            case CHUNKFORMAT: {
+                //chunk payloads are tagged with their format, so chunks already queued in the old format stay decodable
+                //and the reply does not need to be ordered behind them
+                int format = TerrainChunkWireFormat.negotiate(message.getchunkFormatVersion());
+                connectionHandler.setChunkFormat(format);
+                connectionHandler.addMessagetoOutgoingQueue(TerrainMessage.constructChunkFormatMessage(format));
+                LoggerInterface.loggerNetworking.DEBUG("(Server) Negotiated chunk format " + format);
+                return null;
+            }
             default: {
             } break;
         }
@@ -109,6 +121,7 @@ public class TerrainProtocol implements ServerProtocolTemplate<TerrainMessage> {
             case SENDREDUCEDCHUNKDATA:
             case REQUESTREDUCEDBLOCKDATA:
             case SENDREDUCEDBLOCKDATA:
+            case CHUNKFORMAT:
             //silently ignore
             break;
         }
@@ -136,9 +149,9 @@ public class TerrainProtocol implements ServerProtocolTemplate<TerrainMessage> {
         //The length along each access of the chunk data. Typically, should be at least 17.
         //Because CHUNK_SIZE is 16, 17 adds the necessary extra value. Each chunk needs the value of the immediately following position to generate
         //chunk data that connects seamlessly to the next chunk.
-        int xWidth = chunk.getWeights().length;
-        int yWidth = chunk.getWeights()[0].length;
-        int zWidth = chunk.getWeights()[0][0].length;
+        int xWidth = VoxelStorage.DIM;
+        int yWidth = VoxelStorage.DIM;
+        int zWidth = VoxelStorage.DIM;
 
         ByteBuffer buffer = ByteBuffer.allocate(xWidth*yWidth*zWidth*(4+4));
         FloatBuffer floatView = buffer.asFloatBuffer();
@@ -146,7 +159,7 @@ public class TerrainProtocol implements ServerProtocolTemplate<TerrainMessage> {
         for(int x = 0; x < xWidth; x++){
             for(int y = 0; y < yWidth; y++){
                 for(int z = 0; z < zWidth; z++){
-                    floatView.put(chunk.getWeights()[x][y][z]);
+                    floatView.put(chunk.getWeight(x, y, z));
                 }
             }
         }
@@ -157,7 +170,7 @@ public class TerrainProtocol implements ServerProtocolTemplate<TerrainMessage> {
         for(int x = 0; x < xWidth; x++){
             for(int y = 0; y < yWidth; y++){
                 for(int z = 0; z < zWidth; z++){
-                    intView.put(chunk.getValues()[x][y][z]);
+                    intView.put(chunk.getType(x, y, z));
                 }
             }
         }
@@ -211,41 +224,7 @@ public class TerrainProtocol implements ServerProtocolTemplate<TerrainMessage> {
         }
 
         Consumer<ServerTerrainChunk> onLoad = (ServerTerrainChunk chunk) -> {
-            //The length along each access of the chunk data. Typically, should be at least 17.
-            //Because CHUNK_SIZE is 16, 17 adds the necessary extra value. Each chunk needs the value of the immediately following position to generate
-            //chunk data that connects seamlessly to the next chunk.
-            int xWidth = chunk.getWeights().length;
-            int yWidth = chunk.getWeights()[0].length;
-            int zWidth = chunk.getWeights()[0][0].length;
-
-            byte[] toSend = null;
-
-            if(chunk.getHomogenousValue() == ChunkData.NOT_HOMOGENOUS){
-                ByteBuffer buffer = ByteBuffer.allocate(xWidth*yWidth*zWidth*(4+4));
-                FloatBuffer floatView = buffer.asFloatBuffer();
-
-                for(int x = 0; x < xWidth; x++){
-                    for(int z = 0; z < zWidth; z++){
-                        for(int y = 0; y < yWidth; y++){
-                            floatView.put(chunk.getWeights()[x][y][z]);
-                        }
-                    }
-                }
-
-                IntBuffer intView = buffer.asIntBuffer();
-                intView.position(floatView.position());
-
-                for(int x = 0; x < xWidth; x++){
-                    for(int z = 0; z < zWidth; z++){
-                        for(int y = 0; y < yWidth; y++){
-                            intView.put(chunk.getValues()[x][y][z]);
-                        }
-                    }
-                }
-                toSend = buffer.array();
-            } else {
-                toSend = new byte[]{ 0 };
-            }
+            byte[] toSend = TerrainChunkWireFormat.getPayload(chunk, connectionHandler.getChunkFormat());
 
 
             // System.out.println("(Server) Send terrain at " + worldX + " " + worldY + " " + worldZ);
@@ -278,41 +257,7 @@ public class TerrainProtocol implements ServerProtocolTemplate<TerrainMessage> {
         }
 
         Consumer<ServerTerrainChunk> onLoad = (ServerTerrainChunk chunk) -> {
-            //The length along each access of the chunk data. Typically, should be at least 17.
-            //Because CHUNK_SIZE is 16, 17 adds the necessary extra value. Each chunk needs the value of the immediately following position to generate
-            //chunk data that connects seamlessly to the next chunk.
-            int xWidth = chunk.getWeights().length;
-            int yWidth = chunk.getWeights()[0].length;
-            int zWidth = chunk.getWeights()[0][0].length;
-
-            byte[] toSend = null;
-
-            if(chunk.getHomogenousValue() == ChunkData.NOT_HOMOGENOUS){
-                ByteBuffer buffer = ByteBuffer.allocate(xWidth*yWidth*zWidth*(4+4));
-                FloatBuffer floatView = buffer.asFloatBuffer();
-
-                for(int x = 0; x < xWidth; x++){
-                    for(int z = 0; z < zWidth; z++){
-                        for(int y = 0; y < yWidth; y++){
-                            floatView.put(chunk.getWeights()[x][y][z]);
-                        }
-                    }
-                }
-
-                IntBuffer intView = buffer.asIntBuffer();
-                intView.position(floatView.position());
-
-                for(int x = 0; x < xWidth; x++){
-                    for(int z = 0; z < zWidth; z++){
-                        for(int y = 0; y < yWidth; y++){
-                            intView.put(chunk.getValues()[x][y][z]);
-                        }
-                    }
-                }
-                toSend = buffer.array();
-            } else {
-                toSend = new byte[]{ 0 };
-            }
+            byte[] toSend = TerrainChunkWireFormat.getPayload(chunk, connectionHandler.getChunkFormat());
 
 
             // System.out.println("(Server) Send terrain at " + worldX + " " + worldY + " " + worldZ);
@@ -398,9 +343,14 @@ public class TerrainProtocol implements ServerProtocolTemplate<TerrainMessage> {
         ServerFluidChunk chunk = realm.getServerWorldData().getServerFluidManager().getChunk(worldX, worldY, worldZ);
 
         
-        ByteBuffer buffer = constructFluidByteBuffer(chunk);
+        byte[] payload = null;
+        if(TerrainProtocol.useFullFluidReplication()){
+            payload = TerrainProtocol.constructFluidByteBuffer(chunk).array();
+        } else {
+            payload = FluidChunkWireFormat.encodeResync(chunk);
+        }
 
-        connectionHandler.addMessagetoOutgoingQueue(TerrainMessage.constructsendFluidDataMessage(worldX, worldY, worldZ, buffer.array()));
+        connectionHandler.addMessagetoOutgoingQueue(TerrainMessage.constructsendFluidDataMessage(worldX, worldY, worldZ, payload));
 
     }
 
@@ -457,6 +407,26 @@ public class TerrainProtocol implements ServerProtocolTemplate<TerrainMessage> {
         TerrainEditing.destroyTerrain(realm, player.getPlayerEntity(), location, message.getvalue(), message.getterrainWeight());
     }
 
+    /**
+     * Constructs the payload to broadcast when a fluid chunk has been updated by the simulation
+     * @param chunk The chunk
+     * @return The payload
+     */
+    public static byte[] constructFluidUpdatePayload(ServerFluidChunk chunk){
+        if(TerrainProtocol.useFullFluidReplication()){
+            return TerrainProtocol.constructFluidByteBuffer(chunk).array();
+        }
+        return FluidChunkWireFormat.encodeUpdate(chunk);
+    }
+
+    /**
+     * Checks whether fluid chunks should be sent as full buffers instead of versioned deltas
+     * @return true to send full buffers
+     */
+    static boolean useFullFluidReplication(){
+        return Globals.gameConfigCurrent != null && Globals.gameConfigCurrent.getSettings() != null && Globals.gameConfigCurrent.getSettings().getNetFluidFullReplication();
+    }
+
     /**
      * Constructs a buffer to send a fluid chunk to the client
      * @param chunk The chunk to send
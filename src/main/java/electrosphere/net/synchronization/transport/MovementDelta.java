@@ -0,0 +1,275 @@
+package electrosphere.net.synchronization.transport;
+
+import java.nio.ByteBuffer;
+
+import org.joml.Quaterniond;
+
+import electrosphere.server.physics.terrain.manager.ServerTerrainChunk;
+
+/**
+ * Wire format shared by the move update batch encoder and decoder.
+ * <p>
+ * Each entry in a batch is: entity id (varint), change mask (varint), then only the fields whose bit is set in the mask, in bit order.
+ * Positions are sent as the chunk the entity is in plus its offset in that chunk quantized to an unsigned short per axis.
+ * Rotations are sent smallest-three: the index of the largest component plus the other three quantized to 15 bits each, packed into 6 bytes.
+ * </p>
+ * <p>
+ * Both ends keep the last value sent for each entity (the baseline) and a field is only sent when its quantized value differs from the baseline.
+ * The connection is a reliable ordered stream, so every batch the server writes is implicitly acknowledged by the time the next one is decoded.
+ * Baselines are dropped on both ends when an entity is created or destroyed for the client.
+ * </p>
+ */
+public class MovementDelta {
+
+    /**
+     * The chunk the entity is in changed. Three zigzag varints, relative to the baseline chunk
+     */
+    public static final int CHANGED_CHUNK = 1 << 0;
+
+    /**
+     * The x offset in the chunk changed (unsigned short)
+     */
+    public static final int CHANGED_POSITION_X = 1 << 1;
+
+    /**
+     * The y offset in the chunk changed (unsigned short)
+     */
+    public static final int CHANGED_POSITION_Y = 1 << 2;
+
+    /**
+     * The z offset in the chunk changed (unsigned short)
+     */
+    public static final int CHANGED_POSITION_Z = 1 << 3;
+
+    /**
+     * The rotation changed (6 bytes)
+     */
+    public static final int CHANGED_ROTATION = 1 << 4;
+
+    /**
+     * The velocity changed (float)
+     */
+    public static final int CHANGED_VELOCITY = 1 << 5;
+
+    /**
+     * The tree state changed (zigzag varint)
+     */
+    public static final int CHANGED_TREE_STATE = 1 << 6;
+
+    /**
+     * The int property (facing) changed (zigzag varint)
+     */
+    public static final int CHANGED_PROPERTY_INT = 1 << 7;
+
+    /**
+     * The time of the update differs from the time of the batch (zigzag varint, relative to the batch time)
+     */
+    public static final int CHANGED_TIME = 1 << 8;
+
+    /**
+     * Every baselined field
+     */
+    public static final int CHANGED_ALL = CHANGED_CHUNK | CHANGED_POSITION_X | CHANGED_POSITION_Y | CHANGED_POSITION_Z | CHANGED_ROTATION | CHANGED_VELOCITY | CHANGED_TREE_STATE | CHANGED_PROPERTY_INT;
+
+    /**
+     * The number of quantization steps across a chunk
+     */
+    public static final int POSITION_STEPS = 0xFFFF;
+
+    /**
+     * The largest magnitude of any of the three smallest components of a unit quaternion
+     */
+    static final double ROTATION_COMPONENT_MAX = Math.sqrt(0.5);
+
+    /**
+     * The number of quantization steps on either side of zero for a quaternion component
+     */
+    static final int ROTATION_STEPS = (1 << 14) - 1;
+
+    /**
+     * Mask for a single quantized quaternion component
+     */
+    static final long ROTATION_COMPONENT_MASK = 0x7FFF;
+
+    /**
+     * The last state sent for an entity
+     */
+    static class Baseline {
+
+        /**
+         * The chunk x coordinate
+         */
+        int chunkX;
+
+        /**
+         * The chunk y coordinate
+         */
+        int chunkY;
+
+        /**
+         * The chunk z coordinate
+         */
+        int chunkZ;
+
+        /**
+         * The quantized x offset in the chunk
+         */
+        int positionX;
+
+        /**
+         * The quantized y offset in the chunk
+         */
+        int positionY;
+
+        /**
+         * The quantized z offset in the chunk
+         */
+        int positionZ;
+
+        /**
+         * The packed rotation
+         */
+        long rotation;
+
+        /**
+         * The velocity
+         */
+        float velocity;
+
+        /**
+         * The tree state
+         */
+        int treeState;
+
+        /**
+         * The int property
+         */
+        int propertyValueInt;
+
+    }
+
+    /**
+     * Gets the chunk coordinate of a position along one axis
+     * @param position The position
+     * @return The chunk coordinate
+     */
+    public static int getChunkCoordinate(double position){
+        return (int)Math.floor(position / ServerTerrainChunk.CHUNK_DIMENSION);
+    }
+
+    /**
+     * Quantizes a position to an offset in its chunk
+     * @param position The position
+     * @param chunk The chunk coordinate of the position
+     * @return The quantized offset
+     */
+    public static int quantizePosition(double position, int chunk){
+        double local = (position - (double)chunk * ServerTerrainChunk.CHUNK_DIMENSION) / ServerTerrainChunk.CHUNK_DIMENSION;
+        long rVal = Math.round(local * POSITION_STEPS);
+        return (int)Math.max(0, Math.min(POSITION_STEPS, rVal));
+    }
+
+    /**
+     * Reconstructs a position from its chunk and quantized offset
+     * @param chunk The chunk coordinate
+     * @param quantized The quantized offset
+     * @return The position
+     */
+    public static double dequantizePosition(int chunk, int quantized){
+        return (double)chunk * ServerTerrainChunk.CHUNK_DIMENSION + quantized * (double)ServerTerrainChunk.CHUNK_DIMENSION / POSITION_STEPS;
+    }
+
+    /**
+     * Quantizes a rotation with smallest-three compression
+     * @param x The x component
+     * @param y The y component
+     * @param z The z component
+     * @param w The w component
+     * @return The packed rotation (48 bits)
+     */
+    public static long quantizeRotation(double x, double y, double z, double w){
+        double length = Math.sqrt(x * x + y * y + z * z + w * w);
+        if(length == 0 || !Double.isFinite(length)){
+            x = 0;
+            y = 0;
+            z = 0;
+            w = 1;
+            length = 1;
+        }
+        double[] components = new double[]{ x / length, y / length, z / length, w / length };
+        int largest = 0;
+        for(int i = 1; i < 4; i++){
+            if(Math.abs(components[i]) > Math.abs(components[largest])){
+                largest = i;
+            }
+        }
+        //q and -q are the same rotation, so flip the sign to make the dropped component positive
+        double sign = components[largest] < 0 ? -1 : 1;
+        long rVal = largest;
+        for(int i = 0; i < 4; i++){
+            if(i == largest){
+                continue;
+            }
+            double scaled = components[i] * sign / ROTATION_COMPONENT_MAX;
+            long quantized = Math.round(Math.max(-1.0, Math.min(1.0, scaled)) * ROTATION_STEPS);
+            rVal = (rVal << 15) | (quantized & ROTATION_COMPONENT_MASK);
+        }
+        return rVal;
+    }
+
+    /**
+     * Reconstructs a rotation packed by quantizeRotation
+     * @param packed The packed rotation
+     * @param out The quaternion to store the rotation in
+     * @return The quaternion
+     */
+    public static Quaterniond dequantizeRotation(long packed, Quaterniond out){
+        int largest = (int)(packed >>> 45) & 0x3;
+        double[] components = new double[4];
+        double sumSquares = 0;
+        int shift = 30;
+        for(int i = 0; i < 4; i++){
+            if(i == largest){
+                continue;
+            }
+            //sign extend the 15 bit component
+            long quantized = ((packed >>> shift) & ROTATION_COMPONENT_MASK) << 49 >> 49;
+            components[i] = quantized / (double)ROTATION_STEPS * ROTATION_COMPONENT_MAX;
+            sumSquares = sumSquares + components[i] * components[i];
+            shift = shift - 15;
+        }
+        components[largest] = Math.sqrt(Math.max(0, 1.0 - sumSquares));
+        return out.set(components[0], components[1], components[2], components[3]);
+    }
+
+    /**
+     * Reads an unsigned varint
+     * @param buffer The buffer
+     * @return The value
+     */
+    static long getVarLong(ByteBuffer buffer){
+        long rVal = 0;
+        int shift = 0;
+        byte current;
+        do {
+            if(shift >= 64){
+                throw new Error("Malformed varint!");
+            }
+            current = buffer.get();
+            rVal = rVal | ((long)(current & 0x7F) << shift);
+            shift = shift + 7;
+        } while((current & 0x80) != 0);
+        return rVal;
+    }
+
+    /**
+     * Reads a zigzag encoded signed varint
+     * @param buffer The buffer
+     * @return The value
+     */
+    static long getSignedVarLong(ByteBuffer buffer){
+        long raw = MovementDelta.getVarLong(buffer);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+}
@@ -0,0 +1,119 @@
+package electrosphere.net.synchronization.transport;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.joml.Quaterniond;
+
+import electrosphere.logger.LoggerInterface;
+import electrosphere.net.parser.net.message.EntityMessage;
+import electrosphere.net.synchronization.transport.MovementDelta.Baseline;
+
+/**
+ * Expands move update batches back into individual move update messages.
+ * <p>
+ * Batches must be decoded in the order they were received. Not thread safe.
+ * </p>
+ */
+public class MovementDeltaDecoder {
+
+    /**
+     * The last state received for each entity
+     */
+    private Map<Integer,Baseline> baselines = new HashMap<Integer,Baseline>();
+
+    /**
+     * Scratch quaternion for decoding rotations
+     */
+    private Quaterniond rotation = new Quaterniond();
+
+    /**
+     * Decodes a batch
+     * @param batchTime The time of the batch
+     * @param data The bytes of the batch
+     * @param out The list to add the decoded move updates to
+     */
+    public void decode(long batchTime, byte[] data, List<EntityMessage> out){
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        while(buffer.hasRemaining()){
+            int entityId = (int)MovementDelta.getVarLong(buffer);
+            int mask = (int)MovementDelta.getVarLong(buffer);
+            Baseline baseline = baselines.get(entityId);
+            if(baseline == null){
+                if((mask & MovementDelta.CHANGED_ALL) != MovementDelta.CHANGED_ALL){
+                    LoggerInterface.loggerNetworking.WARNING("Received move delta for entity without a baseline! " + entityId);
+                }
+                baseline = new Baseline();
+                baselines.put(entityId, baseline);
+            }
+            if((mask & MovementDelta.CHANGED_CHUNK) != 0){
+                baseline.chunkX = baseline.chunkX + (int)MovementDelta.getSignedVarLong(buffer);
+                baseline.chunkY = baseline.chunkY + (int)MovementDelta.getSignedVarLong(buffer);
+                baseline.chunkZ = baseline.chunkZ + (int)MovementDelta.getSignedVarLong(buffer);
+            }
+            if((mask & MovementDelta.CHANGED_POSITION_X) != 0){
+                baseline.positionX = buffer.getShort() & 0xFFFF;
+            }
+            if((mask & MovementDelta.CHANGED_POSITION_Y) != 0){
+                baseline.positionY = buffer.getShort() & 0xFFFF;
+            }
+            if((mask & MovementDelta.CHANGED_POSITION_Z) != 0){
+                baseline.positionZ = buffer.getShort() & 0xFFFF;
+            }
+            if((mask & MovementDelta.CHANGED_ROTATION) != 0){
+                long packed = 0;
+                for(int i = 0; i < 6; i++){
+                    packed = (packed << 8) | (buffer.get() & 0xFF);
+                }
+                baseline.rotation = packed;
+            }
+            if((mask & MovementDelta.CHANGED_VELOCITY) != 0){
+                baseline.velocity = buffer.getFloat();
+            }
+            if((mask & MovementDelta.CHANGED_TREE_STATE) != 0){
+                baseline.treeState = (int)MovementDelta.getSignedVarLong(buffer);
+            }
+            if((mask & MovementDelta.CHANGED_PROPERTY_INT) != 0){
+                baseline.propertyValueInt = (int)MovementDelta.getSignedVarLong(buffer);
+            }
+            long time = batchTime;
+            if((mask & MovementDelta.CHANGED_TIME) != 0){
+                time = batchTime + MovementDelta.getSignedVarLong(buffer);
+            }
+
+            MovementDelta.dequantizeRotation(baseline.rotation, rotation);
+            out.add(EntityMessage.constructmoveUpdateMessage(
+                entityId,
+                time,
+                MovementDelta.dequantizePosition(baseline.chunkX, baseline.positionX),
+                MovementDelta.dequantizePosition(baseline.chunkY, baseline.positionY),
+                MovementDelta.dequantizePosition(baseline.chunkZ, baseline.positionZ),
+                rotation.x,
+                rotation.y,
+                rotation.z,
+                rotation.w,
+                baseline.velocity,
+                baseline.propertyValueInt,
+                baseline.treeState
+            ));
+        }
+    }
+
+    /**
+     * Drops the baseline of an entity. Must be called at the same point in the message stream the server dropped it.
+     * @param entityId The id of the entity
+     */
+    public void forget(int entityId){
+        baselines.remove(entityId);
+    }
+
+    /**
+     * Drops every baseline
+     */
+    public void clear(){
+        baselines.clear();
+    }
+
+}
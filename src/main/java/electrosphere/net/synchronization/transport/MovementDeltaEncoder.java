@@ -0,0 +1,251 @@
+package electrosphere.net.synchronization.transport;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import electrosphere.net.parser.net.message.EntityMessage;
+import electrosphere.net.synchronization.transport.MovementDelta.Baseline;
+
+/**
+ * Packs the move updates sent to one client during a server frame into a single delta compressed batch.
+ * <p>
+ * Not thread safe, the owning connection serializes access.
+ * </p>
+ */
+public class MovementDeltaEncoder {
+
+    /**
+     * The initial size of the batch buffer
+     */
+    static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * The last state sent to the client for each entity
+     */
+    private Map<Integer,Baseline> baselines = new HashMap<Integer,Baseline>();
+
+    /**
+     * The batch being built
+     */
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+
+    /**
+     * The number of bytes written to the batch
+     */
+    private int position = 0;
+
+    /**
+     * The number of entries in the batch
+     */
+    private int entryCount = 0;
+
+    /**
+     * The time of the batch (the time of its first entry)
+     */
+    private long batchTime = 0;
+
+    /**
+     * Encodes a move update into the current batch
+     * @param message The move update
+     */
+    public void encode(EntityMessage message){
+        if(message.getMessageSubtype() != EntityMessage.EntityMessageType.MOVEUPDATE){
+            throw new Error("Tried to delta encode a non-move message! " + message.getMessageSubtype());
+        }
+        if(entryCount == 0){
+            batchTime = message.gettime();
+        }
+
+        //quantize
+        int chunkX = MovementDelta.getChunkCoordinate(message.getpositionX());
+        int chunkY = MovementDelta.getChunkCoordinate(message.getpositionY());
+        int chunkZ = MovementDelta.getChunkCoordinate(message.getpositionZ());
+        int positionX = MovementDelta.quantizePosition(message.getpositionX(), chunkX);
+        int positionY = MovementDelta.quantizePosition(message.getpositionY(), chunkY);
+        int positionZ = MovementDelta.quantizePosition(message.getpositionZ(), chunkZ);
+        long rotation = MovementDelta.quantizeRotation(message.getrotationX(), message.getrotationY(), message.getrotationZ(), message.getrotationW());
+        float velocity = (float)message.getvelocity();
+
+        //diff against the baseline
+        Baseline baseline = baselines.get(message.getentityID());
+        int mask = 0;
+        if(baseline == null){
+            baseline = new Baseline();
+            baselines.put(message.getentityID(), baseline);
+            mask = MovementDelta.CHANGED_ALL;
+        } else {
+            if(chunkX != baseline.chunkX || chunkY != baseline.chunkY || chunkZ != baseline.chunkZ){
+                mask = mask | MovementDelta.CHANGED_CHUNK;
+            }
+            if(positionX != baseline.positionX){
+                mask = mask | MovementDelta.CHANGED_POSITION_X;
+            }
+            if(positionY != baseline.positionY){
+                mask = mask | MovementDelta.CHANGED_POSITION_Y;
+            }
+            if(positionZ != baseline.positionZ){
+                mask = mask | MovementDelta.CHANGED_POSITION_Z;
+            }
+            if(rotation != baseline.rotation){
+                mask = mask | MovementDelta.CHANGED_ROTATION;
+            }
+            if(Float.floatToIntBits(velocity) != Float.floatToIntBits(baseline.velocity)){
+                mask = mask | MovementDelta.CHANGED_VELOCITY;
+            }
+            if(message.gettreeState() != baseline.treeState){
+                mask = mask | MovementDelta.CHANGED_TREE_STATE;
+            }
+            if(message.getpropertyValueInt() != baseline.propertyValueInt){
+                mask = mask | MovementDelta.CHANGED_PROPERTY_INT;
+            }
+        }
+        if(message.gettime() != batchTime){
+            mask = mask | MovementDelta.CHANGED_TIME;
+        }
+
+        //write the entry
+        this.putVarLong(message.getentityID() & 0xFFFFFFFFL);
+        this.putVarLong(mask);
+        if((mask & MovementDelta.CHANGED_CHUNK) != 0){
+            this.putSignedVarLong(chunkX - baseline.chunkX);
+            this.putSignedVarLong(chunkY - baseline.chunkY);
+            this.putSignedVarLong(chunkZ - baseline.chunkZ);
+        }
+        if((mask & MovementDelta.CHANGED_POSITION_X) != 0){
+            this.putShort(positionX);
+        }
+        if((mask & MovementDelta.CHANGED_POSITION_Y) != 0){
+            this.putShort(positionY);
+        }
+        if((mask & MovementDelta.CHANGED_POSITION_Z) != 0){
+            this.putShort(positionZ);
+        }
+        if((mask & MovementDelta.CHANGED_ROTATION) != 0){
+            this.ensureCapacity(6);
+            for(int shift = 40; shift >= 0; shift = shift - 8){
+                buffer[position++] = (byte)(rotation >>> shift);
+            }
+        }
+        if((mask & MovementDelta.CHANGED_VELOCITY) != 0){
+            int bits = Float.floatToIntBits(velocity);
+            this.putShort(bits >>> 16);
+            this.putShort(bits);
+        }
+        if((mask & MovementDelta.CHANGED_TREE_STATE) != 0){
+            this.putSignedVarLong(message.gettreeState());
+        }
+        if((mask & MovementDelta.CHANGED_PROPERTY_INT) != 0){
+            this.putSignedVarLong(message.getpropertyValueInt());
+        }
+        if((mask & MovementDelta.CHANGED_TIME) != 0){
+            this.putSignedVarLong(message.gettime() - batchTime);
+        }
+        entryCount++;
+
+        //update the baseline
+        baseline.chunkX = chunkX;
+        baseline.chunkY = chunkY;
+        baseline.chunkZ = chunkZ;
+        baseline.positionX = positionX;
+        baseline.positionY = positionY;
+        baseline.positionZ = positionZ;
+        baseline.rotation = rotation;
+        baseline.velocity = velocity;
+        baseline.treeState = message.gettreeState();
+        baseline.propertyValueInt = message.getpropertyValueInt();
+    }
+
+    /**
+     * Checks if the current batch has any entries
+     * @return true if it has entries, false otherwise
+     */
+    public boolean hasPending(){
+        return entryCount > 0;
+    }
+
+    /**
+     * Gets the time of the current batch
+     * @return The time
+     */
+    public long getBatchTime(){
+        return batchTime;
+    }
+
+    /**
+     * Gets the number of entries in the current batch
+     * @return The number of entries
+     */
+    public int getEntryCount(){
+        return entryCount;
+    }
+
+    /**
+     * Takes the bytes of the current batch and starts a new one
+     * @return The bytes of the batch
+     */
+    public byte[] finishBatch(){
+        byte[] rVal = Arrays.copyOf(buffer, position);
+        position = 0;
+        entryCount = 0;
+        return rVal;
+    }
+
+    /**
+     * Drops the baseline of an entity, so its next update is sent in full
+     * @param entityId The id of the entity
+     */
+    public void forget(int entityId){
+        baselines.remove(entityId);
+    }
+
+    /**
+     * Gets the number of entities with a baseline
+     * @return The number of entities
+     */
+    public int getBaselineCount(){
+        return baselines.size();
+    }
+
+    /**
+     * Writes the low 16 bits of a value
+     * @param value The value
+     */
+    private void putShort(int value){
+        this.ensureCapacity(2);
+        buffer[position++] = (byte)(value >>> 8);
+        buffer[position++] = (byte)value;
+    }
+
+    /**
+     * Writes an unsigned varint
+     * @param value The value
+     */
+    private void putVarLong(long value){
+        this.ensureCapacity(10);
+        while((value & ~0x7FL) != 0){
+            buffer[position++] = (byte)((value & 0x7F) | 0x80);
+            value = value >>> 7;
+        }
+        buffer[position++] = (byte)value;
+    }
+
+    /**
+     * Writes a zigzag encoded signed varint
+     * @param value The value
+     */
+    private void putSignedVarLong(long value){
+        this.putVarLong((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Grows the buffer to fit more bytes
+     * @param bytes The number of bytes about to be written
+     */
+    private void ensureCapacity(int bytes){
+        if(position + bytes > buffer.length){
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+        }
+    }
+
+}
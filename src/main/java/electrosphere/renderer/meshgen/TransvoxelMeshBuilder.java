@@ -0,0 +1,284 @@
+package electrosphere.renderer.meshgen;
+
+import java.util.Arrays;
+
+import org.joml.Vector3f;
+
+/**
+ * Accumulates the output of the transvoxel mesher in primitive arrays.
+ * <p>
+ * Vertices are welded through an open-addressed hash table keyed on the exact bit pattern of each coordinate,
+ * which matches the old string key ("x_y_z") without building a string per lookup.
+ * One builder is kept per meshing thread and reset between chunks, so its arrays only grow until they fit the largest chunk seen.
+ * </p>
+ */
+class TransvoxelMeshBuilder {
+
+    /**
+     * The initial number of vertices the builder can hold before growing
+     */
+    static final int INITIAL_VERT_CAPACITY = 4096;
+
+    /**
+     * The initial number of triangles the builder can hold before growing
+     */
+    static final int INITIAL_TRIANGLE_CAPACITY = 4096;
+
+    /**
+     * Value in the weld table for an empty slot
+     */
+    static final int EMPTY_SLOT = -1;
+
+    /**
+     * The builder for each meshing thread
+     */
+    private static final ThreadLocal<TransvoxelMeshBuilder> threadBuilders = ThreadLocal.withInitial(TransvoxelMeshBuilder::new);
+
+    /**
+     * Vertex positions, three floats per vertex
+     */
+    float[] verts = new float[INITIAL_VERT_CAPACITY * 3];
+
+    /**
+     * Averaged vertex normals, three floats per vertex
+     */
+    float[] normals = new float[INITIAL_VERT_CAPACITY * 3];
+
+    /**
+     * The number of triangles sharing each vertex
+     */
+    int[] trianglesSharingVert = new int[INITIAL_VERT_CAPACITY];
+
+    /**
+     * The number of vertices
+     */
+    int vertCount = 0;
+
+    /**
+     * Triangle vertex indices, three per triangle
+     */
+    int[] triangles = new int[INITIAL_TRIANGLE_CAPACITY * 3];
+
+    /**
+     * The voxel types sampled by each triangle, three per triangle
+     */
+    int[] samplers = new int[INITIAL_TRIANGLE_CAPACITY * 3];
+
+    /**
+     * The number of triangles
+     */
+    int triangleCount = 0;
+
+    /**
+     * Weld table of vertex indices, EMPTY_SLOT for empty slots. Length is a power of two.
+     */
+    private int[] weldTable = new int[INITIAL_VERT_CAPACITY * 2];
+
+    /**
+     * Scratch vector for the first edge of a triangle
+     */
+    private Vector3f edge0 = new Vector3f();
+
+    /**
+     * Scratch vector for the second edge of a triangle
+     */
+    private Vector3f edge1 = new Vector3f();
+
+    /**
+     * Scratch vector for the normal of a triangle
+     */
+    private Vector3f normal = new Vector3f();
+
+    /**
+     * Constructor
+     */
+    TransvoxelMeshBuilder(){
+        Arrays.fill(weldTable, EMPTY_SLOT);
+    }
+
+    /**
+     * Gets the builder for the calling thread, reset and ready for a new chunk
+     * @return The builder
+     */
+    static TransvoxelMeshBuilder get(){
+        TransvoxelMeshBuilder rVal = threadBuilders.get();
+        rVal.reset();
+        return rVal;
+    }
+
+    /**
+     * Clears all accumulated data
+     */
+    void reset(){
+        if(vertCount > 0){
+            Arrays.fill(weldTable, EMPTY_SLOT);
+        }
+        vertCount = 0;
+        triangleCount = 0;
+    }
+
+    /**
+     * Gets the index of a vertex, adding it if no vertex at exactly this position exists yet
+     * @param vert The position
+     * @return The index of the vertex
+     */
+    int getVertIndex(Vector3f vert){
+        if(vert == null){
+            throw new Error("Provided null value! " + vert);
+        }
+        int xBits = Float.floatToIntBits(vert.x);
+        int yBits = Float.floatToIntBits(vert.y);
+        int zBits = Float.floatToIntBits(vert.z);
+        int mask = weldTable.length - 1;
+        int slot = TransvoxelMeshBuilder.hash(xBits, yBits, zBits) & mask;
+        int existing = weldTable[slot];
+        while(existing != EMPTY_SLOT){
+            if(
+                Float.floatToIntBits(verts[existing * 3 + 0]) == xBits &&
+                Float.floatToIntBits(verts[existing * 3 + 1]) == yBits &&
+                Float.floatToIntBits(verts[existing * 3 + 2]) == zBits
+            ){
+                return existing;
+            }
+            slot = (slot + 1) & mask;
+            existing = weldTable[slot];
+        }
+
+        //add the vertex
+        int rVal = vertCount;
+        if(rVal >= trianglesSharingVert.length){
+            this.growVerts();
+        }
+        verts[rVal * 3 + 0] = vert.x;
+        verts[rVal * 3 + 1] = vert.y;
+        verts[rVal * 3 + 2] = vert.z;
+        normals[rVal * 3 + 0] = 0;
+        normals[rVal * 3 + 1] = 0;
+        normals[rVal * 3 + 2] = 0;
+        trianglesSharingVert[rVal] = 0;
+        vertCount++;
+        weldTable[slot] = rVal;
+        //keep the load factor at or below one half
+        if(vertCount * 2 > weldTable.length){
+            this.rehash(weldTable.length * 2);
+        }
+        return rVal;
+    }
+
+    /**
+     * Adds a triangle
+     * @param index0 The index of the first vertex
+     * @param index1 The index of the second vertex
+     * @param index2 The index of the third vertex
+     * @param sampler0 The voxel type sampled at the first vertex
+     * @param sampler1 The voxel type sampled at the second vertex
+     * @param sampler2 The voxel type sampled at the third vertex
+     */
+    void addTriangle(int index0, int index1, int index2, int sampler0, int sampler1, int sampler2){
+        if(triangleCount * 3 >= triangles.length){
+            triangles = Arrays.copyOf(triangles, triangles.length * 2);
+            samplers = Arrays.copyOf(samplers, samplers.length * 2);
+        }
+        triangles[triangleCount * 3 + 0] = index0;
+        triangles[triangleCount * 3 + 1] = index1;
+        triangles[triangleCount * 3 + 2] = index2;
+        samplers[triangleCount * 3 + 0] = sampler0;
+        samplers[triangleCount * 3 + 1] = sampler1;
+        samplers[triangleCount * 3 + 2] = sampler2;
+        triangleCount++;
+    }
+
+    /**
+     * Calculates the face normal of a triangle
+     * @param index0 The index of the first vertex
+     * @param index1 The index of the second vertex
+     * @param index2 The index of the third vertex
+     * @param invertNormals true to flip the normal
+     * @return The normal. This is a scratch vector owned by the builder, valid until the next call.
+     */
+    Vector3f calculateNormal(int index0, int index1, int index2, boolean invertNormals){
+        edge0.set(verts[index1 * 3 + 0], verts[index1 * 3 + 1], verts[index1 * 3 + 2]).sub(verts[index0 * 3 + 0], verts[index0 * 3 + 1], verts[index0 * 3 + 2]);
+        edge1.set(verts[index2 * 3 + 0], verts[index2 * 3 + 1], verts[index2 * 3 + 2]).sub(verts[index1 * 3 + 0], verts[index1 * 3 + 1], verts[index1 * 3 + 2]);
+        normal.set(
+            edge0.y * edge1.z - edge0.z * edge1.y,
+            edge0.z * edge1.x - edge0.x * edge1.z,
+            edge0.x * edge1.y - edge0.y * edge1.x
+        ).normalize();
+        if(invertNormals){
+            normal.mul(-1);
+        }
+        return normal;
+    }
+
+    /**
+     * Averages a triangle's normal into the normal of one of its vertices
+     * @param index The index of the vertex
+     * @param triangleNormal The normal of the triangle
+     */
+    void accumulateNormal(int index, Vector3f triangleNormal){
+        int sharing = trianglesSharingVert[index];
+        //calculate proportion of each normal
+        float oldProportion = sharing / (float)(sharing + 1);
+        float newProportion = 1.0f / (float)(sharing + 1);
+        //increment number of triangles sharing vert
+        trianglesSharingVert[index] = sharing + 1;
+        normals[index * 3 + 0] = normals[index * 3 + 0] * oldProportion + triangleNormal.x * newProportion;
+        normals[index * 3 + 1] = normals[index * 3 + 1] * oldProportion + triangleNormal.y * newProportion;
+        normals[index * 3 + 2] = normals[index * 3 + 2] * oldProportion + triangleNormal.z * newProportion;
+    }
+
+    /**
+     * Gets a vertex as a new vector (for error messages)
+     * @param index The index of the vertex
+     * @return The vertex
+     */
+    Vector3f getVert(int index){
+        return new Vector3f(verts[index * 3 + 0], verts[index * 3 + 1], verts[index * 3 + 2]);
+    }
+
+    /**
+     * Grows the per-vertex arrays
+     */
+    private void growVerts(){
+        int capacity = trianglesSharingVert.length * 2;
+        verts = Arrays.copyOf(verts, capacity * 3);
+        normals = Arrays.copyOf(normals, capacity * 3);
+        trianglesSharingVert = Arrays.copyOf(trianglesSharingVert, capacity);
+    }
+
+    /**
+     * Rebuilds the weld table at a new size
+     * @param size The new size (must be a power of two)
+     */
+    private void rehash(int size){
+        weldTable = new int[size];
+        Arrays.fill(weldTable, EMPTY_SLOT);
+        int mask = size - 1;
+        for(int i = 0; i < vertCount; i++){
+            int slot = TransvoxelMeshBuilder.hash(
+                Float.floatToIntBits(verts[i * 3 + 0]),
+                Float.floatToIntBits(verts[i * 3 + 1]),
+                Float.floatToIntBits(verts[i * 3 + 2])
+            ) & mask;
+            while(weldTable[slot] != EMPTY_SLOT){
+                slot = (slot + 1) & mask;
+            }
+            weldTable[slot] = i;
+        }
+    }
+
+    /**
+     * Hashes the bits of a position
+     * @param xBits The bits of the x coordinate
+     * @param yBits The bits of the y coordinate
+     * @param zBits The bits of the z coordinate
+     * @return The hash
+     */
+    private static int hash(int xBits, int yBits, int zBits){
+        int rVal = xBits * 0x9E3779B1;
+        rVal = (rVal ^ yBits) * 0x85EBCA77;
+        rVal = (rVal ^ zBits) * 0xC2B2AE3D;
+        return rVal ^ (rVal >>> 16);
+    }
+
+}
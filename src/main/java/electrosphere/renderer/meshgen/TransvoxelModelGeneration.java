@@ -2,23 +2,20 @@ package electrosphere.renderer.meshgen;
 
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
 
 import org.joml.Vector3f;
+import org.lwjgl.BufferUtils;
 
 import electrosphere.client.terrain.cells.VoxelTextureAtlas;
 import electrosphere.client.terrain.data.TerrainChunkData;
 import electrosphere.engine.Globals;
 import electrosphere.logger.LoggerInterface;
-import electrosphere.mem.JomlPool;
 import electrosphere.renderer.OpenGLState;
 import electrosphere.renderer.model.Material;
 import electrosphere.renderer.model.Mesh;
 import electrosphere.renderer.model.Model;
 import electrosphere.server.physics.terrain.manager.ServerTerrainChunk;
+import electrosphere.server.physics.terrain.manager.VoxelStorage;
 
 /**
  * Utility functions for generating transvoxel based meshes
@@ -95,26 +92,6 @@ public class TransvoxelModelGeneration {
 
 
 
-    /**
-     * A single generated triangle
-     */
-    private static class Triangle {
-        //the indices
-        int[] indices = new int[3]; //array of size 3
-
-        /**
-         * Creates a triangle object
-         * @param index0
-         * @param index1
-         * @param index2
-         */
-        public Triangle(int index0, int index1, int index2){
-            indices[0] = index0;
-            indices[1] = index1;
-            indices[2] = index2;
-        }
-    }
-
     /**
      * The grid cell currently being looked at
      */
@@ -226,30 +203,21 @@ public class TransvoxelModelGeneration {
 
     /**
      * Creates polygons for a voxel that is in the interior of this mesh
-     * @param grid
-     * @param isolevel
-     * @param triangles
-     * @param samplerIndices
-     * @param vertMap
-     * @param verts
-     * @param normals
-     * @param trianglesSharingVert
+     * @param grid The grid cell
+     * @param meshBuilder The builder accumulating the mesh
      * @param invertNormals Flag to invert normals
+     * @param vertList Scratch array of 12 vectors
+     * @param samplerIndex Scratch array of 12 ints
+     * @param skip Scratch array of 12 booleans
      * @return
      */
     protected static int polygonize(
         GridCell grid,
-        List<Triangle> triangles,
-        List<Vector3f> samplerIndices,
-        Map<String,Integer> vertMap,
-        List<Vector3f> verts,
-        List<Vector3f> normals,
-        List<Integer> trianglesSharingVert,
+        TransvoxelMeshBuilder meshBuilder,
         boolean invertNormals,
         Vector3f[] vertList,
         int[] samplerIndex,
-        boolean[] skip,
-        StringBuilder builder
+        boolean[] skip
     ){
         int i;
         int ntriang;
@@ -365,9 +333,9 @@ public class TransvoxelModelGeneration {
             Vector3f vert0 = vertList[TerrainChunkModelGeneration.triTable[cubeIndex][i+0]];
             Vector3f vert1 = vertList[TerrainChunkModelGeneration.triTable[cubeIndex][i+1]];
             Vector3f vert2 = vertList[TerrainChunkModelGeneration.triTable[cubeIndex][i+2]];
-            int index0 = TransvoxelModelGeneration.getVertIndex(vert0,vertMap,verts,builder);
-            int index1 = TransvoxelModelGeneration.getVertIndex(vert1,vertMap,verts,builder);
-            int index2 = TransvoxelModelGeneration.getVertIndex(vert2,vertMap,verts,builder);
+            int index0 = meshBuilder.getVertIndex(vert0);
+            int index1 = meshBuilder.getVertIndex(vert1);
+            int index2 = meshBuilder.getVertIndex(vert2);
             if(index0 == index1 || index1 == index2 || index0 == index2){
                 TransvoxelModelGeneration.VertexInterp(isolevel,grid.points[6],grid.points[7],grid.val[6],grid.val[7],new Vector3f());
                 TransvoxelModelGeneration.VertexInterp(isolevel,grid.points[2],grid.points[6],grid.val[2],grid.val[6],new Vector3f());
@@ -397,116 +365,35 @@ public class TransvoxelModelGeneration {
                 );
             }
 
-            //add 0's to normals until it matches vert count
-            while(trianglesSharingVert.size() < verts.size()){
-                trianglesSharingVert.add(0);
-                normals.add(new Vector3f());
-            }
-
-
             //add new triangle
-            Triangle newTriangle = new Triangle(index0,index1,index2);
-            triangles.add(newTriangle);
+            //the sampler values are stored once per triangle and expanded to all three vertices when flattened
+            //that way they don't interpolate when you're in a middle point of the fragment
+            meshBuilder.addTriangle(
+                index0, index1, index2,
+                grid.atlasValues[samplerIndex[TerrainChunkModelGeneration.triTable[cubeIndex][i+0]]],
+                grid.atlasValues[samplerIndex[TerrainChunkModelGeneration.triTable[cubeIndex][i+1]]],
+                grid.atlasValues[samplerIndex[TerrainChunkModelGeneration.triTable[cubeIndex][i+2]]]
+            );
             ntriang++;
 
-
-
-
-            //
-            //Sampler triangles
-            //
-            for(int j = 0; j < 3; j++){
-                //we add the triangle three times so all three vertices have the same values
-                //that way they don't interpolate when you're in a middle point of the fragment
-                //this could eventually potentially be optimized to send 1/3rd the data, but
-                //the current approach is easier to reason about
-                Vector3f samplerTriangle = new Vector3f(
-                    grid.atlasValues[samplerIndex[TerrainChunkModelGeneration.triTable[cubeIndex][i+0]]],
-                    grid.atlasValues[samplerIndex[TerrainChunkModelGeneration.triTable[cubeIndex][i+1]]],
-                    grid.atlasValues[samplerIndex[TerrainChunkModelGeneration.triTable[cubeIndex][i+2]]]
-                );
-                samplerIndices.add(samplerTriangle);
-            }
-
-
-
-
             //
             // Normals calculation
             //
-
-
-            //calculate normal for new triangle
-            Vector3f u = JomlPool.getF().set(verts.get(index1)).sub(verts.get(index0));
-            Vector3f v = JomlPool.getF().set(verts.get(index2)).sub(verts.get(index1));
-            float dotVal = u.dot(v);
-            Vector3f n;
-            // if(dotVal > NORMAL_DOT_THRESHOLD || dotVal < -NORMAL_DOT_THRESHOLD){
-            //     n.set(u);
-            // } else {
-            n = new Vector3f(u.y * v.z - u.z * v.y, u.z * v.x - u.x * v.z, u.x * v.y - u.y * v.x).normalize();
-            // }
-            if(invertNormals){
-                n = n.mul(-1);
-            }
+            Vector3f n = meshBuilder.calculateNormal(index0, index1, index2, invertNormals);
             if(!Float.isFinite(n.length())){
                 throw new Error("Invalid normal!\n" +
-                    verts.get(index0) + "\n" +
-                    verts.get(index1) + "\n" +
-                    verts.get(index2) + "\n" +
-                    u + "\n" +
-                    v + "\n" +
+                    meshBuilder.getVert(index0) + "\n" +
+                    meshBuilder.getVert(index1) + "\n" +
+                    meshBuilder.getVert(index2) + "\n" +
                     n + "\n" +
-                    n.length() + "\n" +
-                    dotVal
+                    n.length()
                 );
             }
-            JomlPool.release(u);
-            JomlPool.release(v);
-
-
 
             //for each vertex, average the new normal with the normals that are already there
-            int trianglesSharingIndex0 = trianglesSharingVert.get(index0);
-            //calculate proportion of each normal
-            float oldProportion = trianglesSharingIndex0 / (float)(trianglesSharingIndex0 + 1);
-            float newProportion = 1.0f / (float)(trianglesSharingIndex0 + 1);
-            //increment number of triangles sharing vert
-            trianglesSharingVert.set(index0, trianglesSharingIndex0 + 1);
-
-            Vector3f currentNormal = normals.get(index0);
-            TransvoxelModelGeneration.averageNormals(currentNormal,oldProportion,n,newProportion);
-
-
-
-
-
-            int trianglesSharingIndex1 = trianglesSharingVert.get(index1);
-            //calculate proportion of each normal
-            oldProportion = trianglesSharingIndex1 / (float)(trianglesSharingIndex1 + 1);
-            newProportion = 1.0f / (float)(trianglesSharingIndex1 + 1);
-            //increment number of triangles sharing vert
-            trianglesSharingVert.set(index1, trianglesSharingIndex1 + 1);
-
-            currentNormal = normals.get(index1);
-            TransvoxelModelGeneration.averageNormals(currentNormal,oldProportion,n,newProportion);
-
-
-
-
-
-
-
-
-            int trianglesSharingIndex2 = trianglesSharingVert.get(index2);
-            //calculate proportion of each normal
-            oldProportion = trianglesSharingIndex2 / (float)(trianglesSharingIndex2 + 1);
-            newProportion = 1.0f / (float)(trianglesSharingIndex2 + 1);
-            //increment number of triangles sharing vert
-            trianglesSharingVert.set(index2, trianglesSharingIndex2 + 1);
-
-            currentNormal = normals.get(index2);
-            TransvoxelModelGeneration.averageNormals(currentNormal,oldProportion,n,newProportion);
+            meshBuilder.accumulateNormal(index0, n);
+            meshBuilder.accumulateNormal(index1, n);
+            meshBuilder.accumulateNormal(index2, n);
 
         }
 
@@ -516,30 +403,19 @@ public class TransvoxelModelGeneration {
 
     /**
      * Generates a transition cell
-     * @param grid The main grid cell
-     * @param highresFaceValues The values along the face that are double-resolution
-     * @param isolevel The iso level 
-     * @param triangles The triangles buffer
-     * @param samplerIndices The Sampler indices buffer
-     * @param vertMap The vert map
-     * @param verts The list of verts
-     * @param normals The normal map
-     * @param trianglesSharingVert The indices of triangles sharing verts -- Used for making sure normals are pointing correctly
+     * @param transitionCell The transition cell
+     * @param meshBuilder The builder accumulating the mesh
      * @param invertNormals Override to invert normals
+     * @param vertList1 Scratch array of 12 vectors
+     * @param samplerIndex Scratch array of 12 ints
      * @return The number of triangles created
      */
     protected static int polygonizeTransition(
             TransitionGridCell transitionCell,
-            List<Triangle> triangles,
-            List<Vector3f> samplerIndices,
-            Map<String,Integer> vertMap,
-            List<Vector3f> verts,
-            List<Vector3f> normals,
-            List<Integer> trianglesSharingVert,
+            TransvoxelMeshBuilder meshBuilder,
             boolean invertNormals,
             Vector3f[] vertList1,
-            int[] samplerIndex,
-            StringBuilder builder
+            int[] samplerIndex
         ){
 
         float isolevel = TerrainChunkModelGeneration.MIN_ISO_VALUE;
@@ -604,9 +480,9 @@ public class TransvoxelModelGeneration {
         int i;
         int ntriang;
         int caseIndex = 0;
-        Vector3f[] vertList = new Vector3f[12];
+        Vector3f[] vertList = vertList1;
         for(int j = 0; j < 12; j++){
-            vertList[j] = new Vector3f();
+            vertList[j].set(0,0,0);
             samplerIndex[j] = 0;
         }
 
@@ -651,7 +527,6 @@ public class TransvoxelModelGeneration {
         short cellClass = transitionCellClass[caseIndex];
         int windingOrder = (cellClass >>> 7) & 1;
 
-        LoggerInterface.loggerRenderer.DEBUG("Cell class: " + cellClass + " " + String.format("0x%02X", cellClass));
 
 
         /**
@@ -753,8 +628,6 @@ public class TransvoxelModelGeneration {
                 //contains the corner indexes of the edge's endpoints in one nibble each
                 short lowByte = (short)(vertexData[i] & 0xFF);
 
-                LoggerInterface.loggerRenderer.DEBUG("Low byte: ");
-                LoggerInterface.loggerRenderer.DEBUG(String.format("0x%02X", lowByte));
 
                 //contains the vertex reuse data
                 //the bit values 1 and 2 indicate we should subtract one from the x or y coordinate respectively
@@ -764,21 +637,15 @@ public class TransvoxelModelGeneration {
                 short highByte = (short)(vertexData[i] >> 8 & 0xFF);
                 // int subX = highByte & 0x01;
                 // int subY = highByte & 0x02;
-                int newInteriorVertex = highByte & 0x04;
+                // int newInteriorVertex = highByte & 0x04;
                 // int vertexCanBeReused = highByte & 0x08;
 
-                LoggerInterface.loggerRenderer.DEBUG("High byte: ");
-                LoggerInterface.loggerRenderer.DEBUG(String.format("0x%02X", highByte));
 
-                if(newInteriorVertex > 0){
-                    LoggerInterface.loggerRenderer.DEBUG("New interior Vertex");
-                }
 
                 //the corner indices to sample
                 int firstCornerSampleIndex = (int)(lowByte >> 4 & 0xF);
                 int secondCornerSampleIndex = (int)(lowByte & 0xF);
 
-                LoggerInterface.loggerRenderer.DEBUG("Corner indices: " + firstCornerSampleIndex + " " + secondCornerSampleIndex);
 
                 //get the iso sample values
                 float firstSample = TransvoxelModelGeneration.getTransvoxelSampleValue(transitionCell.simpleFaceValues,transitionCell.complexFaceValues,firstCornerSampleIndex);
@@ -833,12 +700,8 @@ public class TransvoxelModelGeneration {
         //basically, a list of indices into the vertex array where every three entries
         //in triangleData correspondes to three vertices which we want to turn into a triangle
         int lookupValue = cellClass & 0x7F; //per instruction, must be ANDed before lookup
-        LoggerInterface.loggerRenderer.DEBUG("Triangulation lookup value: " + lookupValue);
         TransitionCellData triangleData = transitionCellData[lookupValue];
 
-        short vertexCount = (short)(triangleData.geometryCounts >> 4 & 0xF);
-        short triangleCount = (short)(triangleData.geometryCounts & 0xF);
-        LoggerInterface.loggerRenderer.DEBUG("Vertex Count: " + vertexCount + " Triangle Count: " + triangleCount);
 
         //Create the triangle
         ntriang = 0;
@@ -847,11 +710,6 @@ public class TransvoxelModelGeneration {
             // Triangles calculation
             //
             //get indices -- these values are the same as the indices we sample from (refer to figure 4.19 for the listing)
-            char cornerReuseData0 = transitionCornerData[triangleData.vertexIndex[i+0]];
-            char cornerReuseData1 = transitionCornerData[triangleData.vertexIndex[i+1]];
-            char cornerReuseData2 = transitionCornerData[triangleData.vertexIndex[i+2]];
-            LoggerInterface.loggerRenderer.DEBUG((int)triangleData.vertexIndex[i+0] + " " + (int)triangleData.vertexIndex[i+1] + " " + (int)triangleData.vertexIndex[i+2]);
-            LoggerInterface.loggerRenderer.DEBUG((int)cornerReuseData0 + " " + (int)cornerReuseData1 + " " + (int)cornerReuseData2);
             Vector3f vert0 = vertList[triangleData.vertexIndex[i+0]];
             Vector3f vert1 = vertList[triangleData.vertexIndex[i+1]];
             Vector3f vert2 = vertList[triangleData.vertexIndex[i+2]];
@@ -862,110 +720,34 @@ public class TransvoxelModelGeneration {
                 continue;
             }
 
-            LoggerInterface.loggerRenderer.DEBUG(vert0 + "");
-            LoggerInterface.loggerRenderer.DEBUG(vert1 + "");
-            LoggerInterface.loggerRenderer.DEBUG(vert2 + "");
-            int index0 = TransvoxelModelGeneration.getVertIndex(vert0,vertMap,verts,builder);
-            int index1 = TransvoxelModelGeneration.getVertIndex(vert1,vertMap,verts,builder);
-            int index2 = TransvoxelModelGeneration.getVertIndex(vert2,vertMap,verts,builder);
+            int index0 = meshBuilder.getVertIndex(vert0);
+            int index1 = meshBuilder.getVertIndex(vert1);
+            int index2 = meshBuilder.getVertIndex(vert2);
 
             if(windingOrder == 1){
-                index0 = TransvoxelModelGeneration.getVertIndex(vert2,vertMap,verts,builder);
-                index2 = TransvoxelModelGeneration.getVertIndex(vert0,vertMap,verts,builder);
-            }
-
-            //add 0's to normals until it matches vert count
-            while(trianglesSharingVert.size() < verts.size()){
-                trianglesSharingVert.add(0);
-                normals.add(new Vector3f());
+                int swap = index0;
+                index0 = index2;
+                index2 = swap;
             }
 
-
             //add new triangle
-            Triangle newTriangle = new Triangle(index0,index1,index2);
-            triangles.add(newTriangle);
+            meshBuilder.addTriangle(
+                index0, index1, index2,
+                samplerIndex[triangleData.vertexIndex[i+0]],
+                samplerIndex[triangleData.vertexIndex[i+1]],
+                samplerIndex[triangleData.vertexIndex[i+2]]
+            );
             ntriang++;
 
-
-
-
-            //
-            //Sampler triangles
-            //
-            for(int j = 0; j < 3; j++){
-                //we add the triangle three times so all three vertices have the same values
-                //that way they don't interpolate when you're in a middle point of the fragment
-                //this could eventually potentially be optimized to send 1/3rd the data, but
-                //the current approach is easier to reason about
-                Vector3f samplerTriangle = new Vector3f(
-                    samplerIndex[triangleData.vertexIndex[i+0]],
-                    samplerIndex[triangleData.vertexIndex[i+1]],
-                    samplerIndex[triangleData.vertexIndex[i+2]]
-                );
-                samplerIndices.add(samplerTriangle);
-            }
-
-
-
-
             //
             // Normals calculation
             //
-
-
-            //calculate normal for new triangle
-            Vector3f u = JomlPool.getF().set(verts.get(index1)).sub(verts.get(index0));
-            Vector3f v = JomlPool.getF().set(verts.get(index2)).sub(verts.get(index1));
-            Vector3f n = new Vector3f(u.y * v.z - u.z * v.y, u.z * v.x - u.x * v.z, u.x * v.y - u.y * v.x).normalize();
-            if(invertNormals){
-                n = n.mul(-1);
-            }
-            JomlPool.release(u);
-            JomlPool.release(v);
-
-
+            Vector3f n = meshBuilder.calculateNormal(index0, index1, index2, invertNormals);
 
             //for each vertex, average the new normal with the normals that are already there
-            int trianglesSharingIndex0 = trianglesSharingVert.get(index0);
-            //calculate proportion of each normal
-            float oldProportion = trianglesSharingIndex0 / (float)(trianglesSharingIndex0 + 1);
-            float newProportion = 1.0f / (float)(trianglesSharingIndex0 + 1);
-            //increment number of triangles sharing vert
-            trianglesSharingVert.set(index0, trianglesSharingIndex0 + 1);
-
-            Vector3f currentNormal = normals.get(index0);
-            TransvoxelModelGeneration.averageNormals(currentNormal,oldProportion,n,newProportion);
-
-
-
-
-
-            int trianglesSharingIndex1 = trianglesSharingVert.get(index1);
-            //calculate proportion of each normal
-            oldProportion = trianglesSharingIndex1 / (float)(trianglesSharingIndex1 + 1);
-            newProportion = 1.0f / (float)(trianglesSharingIndex1 + 1);
-            //increment number of triangles sharing vert
-            trianglesSharingVert.set(index1, trianglesSharingIndex1 + 1);
-
-            currentNormal = normals.get(index1);
-            TransvoxelModelGeneration.averageNormals(currentNormal,oldProportion,n,newProportion);
-
-
-
-
-
-
-
-
-            int trianglesSharingIndex2 = trianglesSharingVert.get(index2);
-            //calculate proportion of each normal
-            oldProportion = trianglesSharingIndex2 / (float)(trianglesSharingIndex2 + 1);
-            newProportion = 1.0f / (float)(trianglesSharingIndex2 + 1);
-            //increment number of triangles sharing vert
-            trianglesSharingVert.set(index2, trianglesSharingIndex2 + 1);
-
-            currentNormal = normals.get(index2);
-            TransvoxelModelGeneration.averageNormals(currentNormal,oldProportion,n,newProportion);
+            meshBuilder.accumulateNormal(index0, n);
+            meshBuilder.accumulateNormal(index1, n);
+            meshBuilder.accumulateNormal(index2, n);
 
         }
 
@@ -1167,57 +949,72 @@ public class TransvoxelModelGeneration {
     }
 
     /**
-     * Gets the already existing index of this point
-     * @param vert the vertex's raw position
-     * @param vertMap the map of key ->Vert index
-     * @param verts 
-     * @return
+     * Generates mesh data given chunk data, as arrays (ie for physics on the server)
+     * @param chunkData The chunk data
+     * @return The mesh data
      */
-    private static int getVertIndex(Vector3f vert, Map<String,Integer> vertMap, List<Vector3f> verts, StringBuilder builder){
-        if(vert == null){
-            throw new Error("Provided null value! " + vert);
-        }
-        builder.delete(0,builder.length());
-        builder.append(vert.x);
-        builder.append("_");
-        builder.append(vert.y);
-        builder.append("_");
-        builder.append(vert.z);
-        int rVal = -1;
-        // String vertKey = TransvoxelModelGeneration.getVertKeyFromPoints(vert.x,vert.y,vert.z);
-        if(vertMap.containsKey(builder.toString())){
-            return vertMap.get(builder.toString());
-        } else {
-            rVal = verts.size();
-            verts.add(new Vector3f(vert));
-            vertMap.put(builder.toString(),rVal);
-            return rVal;
-        }
+    public static TerrainChunkData generateTerrainChunkData(TransvoxelChunkData chunkData){
+        TransvoxelMeshBuilder meshBuilder = TransvoxelModelGeneration.polygonizeChunk(chunkData);
+        int triangleCount = meshBuilder.triangleCount;
+
+        //all elements of faces in order
+        int[] elementsFlat = new int[triangleCount * ELEMENTS_PER_TRIANGLE * INTS_PER_ELEMENT];
+        //all verts in order, flattened as an array of floats instead of vecs
+        float[] vertsFlat = new float[triangleCount * VERTS_PER_TRIANGLE * FLOATS_PER_VERT];
+        //all normals in order, flattened as an array of floats instead of vecs
+        float[] normalsFlat = new float[triangleCount * VERTS_PER_TRIANGLE * FLOATS_PER_VERT];
+        //List of UVs
+        float[] UVs = new float[triangleCount * VERTS_PER_TRIANGLE * FLOATS_PER_UV];
+        //List of texture sampler values
+        float[] textureSamplers = new float[triangleCount * VERTS_PER_TRIANGLE * SAMPLER_INDICES_PER_TRIANGLE];
+        //List of texture ratio values
+        float[] textureRatioData = new float[triangleCount * SAMPLER_INDICES_PER_TRIANGLE * SAMPLER_VALUES_PER_VERT];
+
+        TransvoxelModelGeneration.emitMesh(
+            meshBuilder, chunkData.levelOfDetail, vertsFlat, elementsFlat,
+            null, FloatBuffer.wrap(normalsFlat), FloatBuffer.wrap(UVs), null, FloatBuffer.wrap(textureSamplers), FloatBuffer.wrap(textureRatioData)
+        );
+
+        TerrainChunkData rVal = new TerrainChunkData(vertsFlat, normalsFlat, elementsFlat, UVs, textureSamplers, textureRatioData, chunkData.levelOfDetail);
+        return rVal;
     }
 
     /**
-     * Mixes two normals given a proportion value for each
-     * @param normal0 The first vector
-     * @param proportion0 The proportion of the first vector
-     * @param normal1 The second vector
-     * @param proportion1 The proportion of the second vector
-     * @return The mixed vector
+     * Generates mesh data given chunk data, emitting every attribute straight into the native buffers sent to the gpu.
+     * Only the vertices and face elements are also kept as arrays, for collision.
+     * @param chunkData The chunk data
+     * @return The mesh data
      */
-    private static void averageNormals(Vector3f normal0, float proportion0, Vector3f normal1, float proportion1){
-        normal0.set(
-            normal0.x * proportion0 + normal1.x * proportion1,
-            normal0.y * proportion0 + normal1.y * proportion1,
-            normal0.z * proportion0 + normal1.z * proportion1
+    public static TerrainChunkData generateTerrainChunkBuffers(TransvoxelChunkData chunkData){
+        TransvoxelMeshBuilder meshBuilder = TransvoxelModelGeneration.polygonizeChunk(chunkData);
+        int triangleCount = meshBuilder.triangleCount;
+        int vertFloatCount = triangleCount * VERTS_PER_TRIANGLE * FLOATS_PER_VERT;
+        int elementCount = triangleCount * ELEMENTS_PER_TRIANGLE * INTS_PER_ELEMENT;
+
+        int[] elementsFlat = new int[elementCount];
+        float[] vertsFlat = new float[vertFloatCount];
+        FloatBuffer vertexBuffer = BufferUtils.createFloatBuffer(vertFloatCount);
+        FloatBuffer normalBuffer = BufferUtils.createFloatBuffer(vertFloatCount);
+        FloatBuffer uvBuffer = BufferUtils.createFloatBuffer(triangleCount * VERTS_PER_TRIANGLE * FLOATS_PER_UV);
+        IntBuffer elementBuffer = BufferUtils.createIntBuffer(elementCount);
+        FloatBuffer samplerBuffer = BufferUtils.createFloatBuffer(triangleCount * VERTS_PER_TRIANGLE * SAMPLER_INDICES_PER_TRIANGLE);
+        FloatBuffer ratioBuffer = BufferUtils.createFloatBuffer(triangleCount * SAMPLER_INDICES_PER_TRIANGLE * SAMPLER_VALUES_PER_VERT);
+
+        TransvoxelModelGeneration.emitMesh(
+            meshBuilder, chunkData.levelOfDetail, vertsFlat, elementsFlat,
+            vertexBuffer, normalBuffer, uvBuffer, elementBuffer, samplerBuffer, ratioBuffer
         );
-    }
 
+        TerrainChunkData rVal = new TerrainChunkData(vertsFlat, elementsFlat, vertexBuffer, normalBuffer, uvBuffer, elementBuffer, samplerBuffer, ratioBuffer, chunkData.levelOfDetail);
+        return rVal;
+    }
 
     /**
-     * Generates mesh data given chunk data
+     * Polygonizes chunk data into the calling thread's mesh builder
      * @param chunkData The chunk data
-     * @return The mesh data
+     * @return The mesh builder holding the welded vertices and triangles
      */
-    public static TerrainChunkData generateTerrainChunkData(TransvoxelChunkData chunkData){
+    static TransvoxelMeshBuilder polygonizeChunk(TransvoxelChunkData chunkData){
 
         //            5             6
         //            +-------------+               +-----5-------+     ^ Y                
@@ -1236,18 +1033,8 @@ public class TransvoxelModelGeneration {
         GridCell currentCell = new GridCell();
         //Transition grid cell
         TransitionGridCell currentTransitionCell = new TransitionGridCell();
-        //the list of all triangles
-        List<Triangle> triangles = new LinkedList<Triangle>();
-        //the map of vertex to index
-        Map<String,Integer> vertMap = new HashMap<String,Integer>();
-        //the list of all verts
-        List<Vector3f> verts = new LinkedList<Vector3f>();
-        //the list of all normals
-        List<Vector3f> normals = new LinkedList<Vector3f>();
-        //the list of number of triangles that share a vert
-        List<Integer> trianglesSharingVert = new LinkedList<Integer>();
-        //List of texture sampler values
-        List<Vector3f> samplerTriangles = new LinkedList<Vector3f>();
+        //the mesh being built
+        TransvoxelMeshBuilder meshBuilder = TransvoxelMeshBuilder.get();
 
         Vector3f[] vertList = new Vector3f[12];
         int[] samplerIndex = new int[12];
@@ -1255,7 +1042,6 @@ public class TransvoxelModelGeneration {
         for(int i = 0; i < 12; i++){
             vertList[i] = new Vector3f();
         }
-        StringBuilder builder = new StringBuilder();
 
         //the vector pool
         Vector3f[] vecPool = new Vector3f[VECTOR_POOL_SIZE];
@@ -1271,9 +1057,9 @@ public class TransvoxelModelGeneration {
 
         //
         //Generate the interior of the mesh
-        for(int x = 1; x < chunkData.terrainGrid.length - 2; x++){
-            for(int y = 1; y < chunkData.terrainGrid[0].length - 2; y++){
-                for(int z = 1; z < chunkData.terrainGrid[0][0].length - 2; z++){
+        for(int x = 1; x < chunkData.getSizeX() - 2; x++){
+            for(int y = 1; y < chunkData.getSizeY() - 2; y++){
+                for(int z = 1; z < chunkData.getSizeZ() - 2; z++){
                     vecPool[0].set(x+0,y+0,z+0);
                     vecPool[1].set(x+0,y+0,z+1);
                     vecPool[2].set(x+1,y+0,z+1);
@@ -1286,13 +1072,13 @@ public class TransvoxelModelGeneration {
                     currentCell.setValues(
                         // vecPool[0], vecPool[1], vecPool[2], vecPool[3],
                         // vecPool[4], vecPool[5], vecPool[6], vecPool[7],
-                        chunkData.terrainGrid[x+0][y+0][z+0], chunkData.terrainGrid[x+0][y+0][z+1], chunkData.terrainGrid[x+1][y+0][z+1], chunkData.terrainGrid[x+1][y+0][z+0],
-                        chunkData.terrainGrid[x+0][y+1][z+0], chunkData.terrainGrid[x+0][y+1][z+1], chunkData.terrainGrid[x+1][y+1][z+1], chunkData.terrainGrid[x+1][y+1][z+0],
-                        chunkData.textureGrid[x+0][y+0][z+0], chunkData.textureGrid[x+0][y+0][z+1], chunkData.textureGrid[x+1][y+0][z+1], chunkData.textureGrid[x+1][y+0][z+0],
-                        chunkData.textureGrid[x+0][y+1][z+0], chunkData.textureGrid[x+0][y+1][z+1], chunkData.textureGrid[x+1][y+1][z+1], chunkData.textureGrid[x+1][y+1][z+0]
+                        chunkData.getWeight(x+0,y+0,z+0), chunkData.getWeight(x+0,y+0,z+1), chunkData.getWeight(x+1,y+0,z+1), chunkData.getWeight(x+1,y+0,z+0),
+                        chunkData.getWeight(x+0,y+1,z+0), chunkData.getWeight(x+0,y+1,z+1), chunkData.getWeight(x+1,y+1,z+1), chunkData.getWeight(x+1,y+1,z+0),
+                        chunkData.getType(x+0,y+0,z+0), chunkData.getType(x+0,y+0,z+1), chunkData.getType(x+1,y+0,z+1), chunkData.getType(x+1,y+0,z+0),
+                        chunkData.getType(x+0,y+1,z+0), chunkData.getType(x+0,y+1,z+1), chunkData.getType(x+1,y+1,z+1), chunkData.getType(x+1,y+1,z+0)
                     );
                     //polygonize the current gridcell
-                    TransvoxelModelGeneration.polygonize(currentCell, triangles, samplerTriangles, vertMap, verts, normals, trianglesSharingVert, false, vertList, samplerIndex, skip, builder);
+                    TransvoxelModelGeneration.polygonize(currentCell, meshBuilder, false, vertList, samplerIndex, skip);
                 }
             }
         }
@@ -1300,7 +1086,7 @@ public class TransvoxelModelGeneration {
         int chunkWidth = ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE;
 
 
-        LoggerInterface.loggerRenderer.DEBUG("Triangles prior to transition cells: " + triangles.size());
+        LoggerInterface.loggerRenderer.DEBUG("Triangles prior to transition cells: " + meshBuilder.triangleCount);
 
 
         int xStartIndex = chunkData.xNegativeEdgeIso != null ? 1 : 0;
@@ -1364,7 +1150,7 @@ public class TransvoxelModelGeneration {
                         chunkData.xPositiveEdgeAtlas[(y+0)*2+0][(z+0)*2+0], chunkData.xPositiveEdgeAtlas[(y+1)*2+0][(z+0)*2+0],
                         chunkData.xPositiveEdgeAtlas[(y+0)*2+0][(z+1)*2+0], chunkData.xPositiveEdgeAtlas[(y+1)*2+0][(z+1)*2+0]
                     );
-                    TransvoxelModelGeneration.polygonizeTransition(currentTransitionCell, triangles, samplerTriangles, vertMap, verts, normals, trianglesSharingVert, true, vertList, samplerIndex, builder);
+                    TransvoxelModelGeneration.polygonizeTransition(currentTransitionCell, meshBuilder, true, vertList, samplerIndex);
 
                     //
                     //Generate the normal cell with half width
@@ -1380,13 +1166,13 @@ public class TransvoxelModelGeneration {
                     currentCell.setValues(
                         // new Vector3f(x+0,y+0,z+0), new Vector3f(x+0,y+0,z+1), new Vector3f(x+TRANSITION_CELL_WIDTH,y+0,z+1), new Vector3f(x+TRANSITION_CELL_WIDTH,y+0,z+0),
                         // new Vector3f(x+0,y+1,z+0), new Vector3f(x+0,y+1,z+1), new Vector3f(x+TRANSITION_CELL_WIDTH,y+1,z+1), new Vector3f(x+TRANSITION_CELL_WIDTH,y+1,z+0),
-                        chunkData.terrainGrid[x+0][y+0][z+0], chunkData.terrainGrid[x+0][y+0][z+1], chunkData.xPositiveEdgeIso[(y+0)*2+0][(z+1)*2+0], chunkData.xPositiveEdgeIso[(y+0)*2+0][(z+0)*2+0],
-                        chunkData.terrainGrid[x+0][y+1][z+0], chunkData.terrainGrid[x+0][y+1][z+1], chunkData.xPositiveEdgeIso[(y+1)*2+0][(z+1)*2+0], chunkData.xPositiveEdgeIso[(y+1)*2+0][(z+0)*2+0],
-                        chunkData.textureGrid[x+0][y+0][z+0], chunkData.textureGrid[x+0][y+0][z+1], chunkData.xPositiveEdgeAtlas[(y+0)*2+0][(z+1)*2+0], chunkData.xPositiveEdgeAtlas[(y+0)*2+0][(z+0)*2+0],
-                        chunkData.textureGrid[x+0][y+1][z+0], chunkData.textureGrid[x+0][y+1][z+1], chunkData.xPositiveEdgeAtlas[(y+1)*2+0][(z+1)*2+0], chunkData.xPositiveEdgeAtlas[(y+1)*2+0][(z+0)*2+0]
+                        chunkData.getWeight(x+0,y+0,z+0), chunkData.getWeight(x+0,y+0,z+1), chunkData.xPositiveEdgeIso[(y+0)*2+0][(z+1)*2+0], chunkData.xPositiveEdgeIso[(y+0)*2+0][(z+0)*2+0],
+                        chunkData.getWeight(x+0,y+1,z+0), chunkData.getWeight(x+0,y+1,z+1), chunkData.xPositiveEdgeIso[(y+1)*2+0][(z+1)*2+0], chunkData.xPositiveEdgeIso[(y+1)*2+0][(z+0)*2+0],
+                        chunkData.getType(x+0,y+0,z+0), chunkData.getType(x+0,y+0,z+1), chunkData.xPositiveEdgeAtlas[(y+0)*2+0][(z+1)*2+0], chunkData.xPositiveEdgeAtlas[(y+0)*2+0][(z+0)*2+0],
+                        chunkData.getType(x+0,y+1,z+0), chunkData.getType(x+0,y+1,z+1), chunkData.xPositiveEdgeAtlas[(y+1)*2+0][(z+1)*2+0], chunkData.xPositiveEdgeAtlas[(y+1)*2+0][(z+0)*2+0]
                     );
                     //polygonize the current gridcell
-                    TransvoxelModelGeneration.polygonize(currentCell, triangles, samplerTriangles, vertMap, verts, normals, trianglesSharingVert, false, vertList, samplerIndex, skip, builder);
+                    TransvoxelModelGeneration.polygonize(currentCell, meshBuilder, false, vertList, samplerIndex, skip);
                 }
             }
         } else {
@@ -1405,18 +1191,18 @@ public class TransvoxelModelGeneration {
                     currentCell.setValues(
                         // vecPool[0], vecPool[1], vecPool[2], vecPool[3],
                         // vecPool[4], vecPool[5], vecPool[6], vecPool[7],
-                        chunkData.terrainGrid[x+0][y+0][z+0], chunkData.terrainGrid[x+0][y+0][z+1], chunkData.terrainGrid[x+1][y+0][z+1], chunkData.terrainGrid[x+1][y+0][z+0],
-                        chunkData.terrainGrid[x+0][y+1][z+0], chunkData.terrainGrid[x+0][y+1][z+1], chunkData.terrainGrid[x+1][y+1][z+1], chunkData.terrainGrid[x+1][y+1][z+0],
-                        chunkData.textureGrid[x+0][y+0][z+0], chunkData.textureGrid[x+0][y+0][z+1], chunkData.textureGrid[x+1][y+0][z+1], chunkData.textureGrid[x+1][y+0][z+0],
-                        chunkData.textureGrid[x+0][y+1][z+0], chunkData.textureGrid[x+0][y+1][z+1], chunkData.textureGrid[x+1][y+1][z+1], chunkData.textureGrid[x+1][y+1][z+0]
+                        chunkData.getWeight(x+0,y+0,z+0), chunkData.getWeight(x+0,y+0,z+1), chunkData.getWeight(x+1,y+0,z+1), chunkData.getWeight(x+1,y+0,z+0),
+                        chunkData.getWeight(x+0,y+1,z+0), chunkData.getWeight(x+0,y+1,z+1), chunkData.getWeight(x+1,y+1,z+1), chunkData.getWeight(x+1,y+1,z+0),
+                        chunkData.getType(x+0,y+0,z+0), chunkData.getType(x+0,y+0,z+1), chunkData.getType(x+1,y+0,z+1), chunkData.getType(x+1,y+0,z+0),
+                        chunkData.getType(x+0,y+1,z+0), chunkData.getType(x+0,y+1,z+1), chunkData.getType(x+1,y+1,z+1), chunkData.getType(x+1,y+1,z+0)
                     );
                     //polygonize the current gridcell
-                    TransvoxelModelGeneration.polygonize(currentCell, triangles, samplerTriangles, vertMap, verts, normals, trianglesSharingVert, false, vertList, samplerIndex, skip, builder);
+                    TransvoxelModelGeneration.polygonize(currentCell, meshBuilder, false, vertList, samplerIndex, skip);
                 }
             }
         }
 
-        LoggerInterface.loggerRenderer.DEBUG("Triangles after transition cells: " + triangles.size());
+        LoggerInterface.loggerRenderer.DEBUG("Triangles after transition cells: " + meshBuilder.triangleCount);
 
 
 
@@ -1476,7 +1262,7 @@ public class TransvoxelModelGeneration {
                         chunkData.xNegativeEdgeAtlas[(y+0)*2+0][(z+0)*2+0], chunkData.xNegativeEdgeAtlas[(y+1)*2+0][(z+0)*2+0],
                         chunkData.xNegativeEdgeAtlas[(y+0)*2+0][(z+1)*2+0], chunkData.xNegativeEdgeAtlas[(y+1)*2+0][(z+1)*2+0]
                     );
-                    TransvoxelModelGeneration.polygonizeTransition(currentTransitionCell, triangles, samplerTriangles, vertMap, verts, normals, trianglesSharingVert, false, vertList, samplerIndex, builder);
+                    TransvoxelModelGeneration.polygonizeTransition(currentTransitionCell, meshBuilder, false, vertList, samplerIndex);
 
                     //
                     //Generate the normal cell with half width
@@ -1492,13 +1278,13 @@ public class TransvoxelModelGeneration {
                     currentCell.setValues(
                         // new Vector3f(x+TRANSITION_CELL_WIDTH,y+0,z+0), new Vector3f(x+TRANSITION_CELL_WIDTH,y+0,z+1), new Vector3f(x+1,y+0,z+1), new Vector3f(x+1,y+0,z+0),
                         // new Vector3f(x+TRANSITION_CELL_WIDTH,y+1,z+0), new Vector3f(x+TRANSITION_CELL_WIDTH,y+1,z+1), new Vector3f(x+1,y+1,z+1), new Vector3f(x+1,y+1,z+0),
-                        chunkData.xNegativeEdgeIso[(y+0)*2+0][(z+0)*2+0], chunkData.xNegativeEdgeIso[(y+0)*2+0][(z+1)*2+0], chunkData.terrainGrid[x+1][y+0][z+1], chunkData.terrainGrid[x+1][y+0][z+0],
-                        chunkData.xNegativeEdgeIso[(y+1)*2+0][(z+0)*2+0], chunkData.xNegativeEdgeIso[(y+1)*2+0][(z+1)*2+0], chunkData.terrainGrid[x+1][y+1][z+1], chunkData.terrainGrid[x+1][y+1][z+0],
-                        chunkData.xNegativeEdgeAtlas[(y+0)*2+0][(z+0)*2+0], chunkData.xNegativeEdgeAtlas[(y+0)*2+0][(z+1)*2+0], chunkData.textureGrid[x+1][y+0][z+1], chunkData.textureGrid[x+1][y+0][z+0],
-                        chunkData.xNegativeEdgeAtlas[(y+1)*2+0][(z+0)*2+0], chunkData.xNegativeEdgeAtlas[(y+1)*2+0][(z+1)*2+0], chunkData.textureGrid[x+1][y+1][z+1], chunkData.textureGrid[x+1][y+1][z+0]
+                        chunkData.xNegativeEdgeIso[(y+0)*2+0][(z+0)*2+0], chunkData.xNegativeEdgeIso[(y+0)*2+0][(z+1)*2+0], chunkData.getWeight(x+1,y+0,z+1), chunkData.getWeight(x+1,y+0,z+0),
+                        chunkData.xNegativeEdgeIso[(y+1)*2+0][(z+0)*2+0], chunkData.xNegativeEdgeIso[(y+1)*2+0][(z+1)*2+0], chunkData.getWeight(x+1,y+1,z+1), chunkData.getWeight(x+1,y+1,z+0),
+                        chunkData.xNegativeEdgeAtlas[(y+0)*2+0][(z+0)*2+0], chunkData.xNegativeEdgeAtlas[(y+0)*2+0][(z+1)*2+0], chunkData.getType(x+1,y+0,z+1), chunkData.getType(x+1,y+0,z+0),
+                        chunkData.xNegativeEdgeAtlas[(y+1)*2+0][(z+0)*2+0], chunkData.xNegativeEdgeAtlas[(y+1)*2+0][(z+1)*2+0], chunkData.getType(x+1,y+1,z+1), chunkData.getType(x+1,y+1,z+0)
                     );
                     //polygonize the current gridcell
-                    TransvoxelModelGeneration.polygonize(currentCell, triangles, samplerTriangles, vertMap, verts, normals, trianglesSharingVert, false, vertList, samplerIndex, skip, builder);
+                    TransvoxelModelGeneration.polygonize(currentCell, meshBuilder, false, vertList, samplerIndex, skip);
                 }
             }
         } else {
@@ -1517,13 +1303,13 @@ public class TransvoxelModelGeneration {
                     currentCell.setValues(
                         // vecPool[0], vecPool[1], vecPool[2], vecPool[3],
                         // vecPool[4], vecPool[5], vecPool[6], vecPool[7],
-                        chunkData.terrainGrid[x+0][y+0][z+0], chunkData.terrainGrid[x+0][y+0][z+1], chunkData.terrainGrid[x+1][y+0][z+1], chunkData.terrainGrid[x+1][y+0][z+0],
-                        chunkData.terrainGrid[x+0][y+1][z+0], chunkData.terrainGrid[x+0][y+1][z+1], chunkData.terrainGrid[x+1][y+1][z+1], chunkData.terrainGrid[x+1][y+1][z+0],
-                        chunkData.textureGrid[x+0][y+0][z+0], chunkData.textureGrid[x+0][y+0][z+1], chunkData.textureGrid[x+1][y+0][z+1], chunkData.textureGrid[x+1][y+0][z+0],
-                        chunkData.textureGrid[x+0][y+1][z+0], chunkData.textureGrid[x+0][y+1][z+1], chunkData.textureGrid[x+1][y+1][z+1], chunkData.textureGrid[x+1][y+1][z+0]
+                        chunkData.getWeight(x+0,y+0,z+0), chunkData.getWeight(x+0,y+0,z+1), chunkData.getWeight(x+1,y+0,z+1), chunkData.getWeight(x+1,y+0,z+0),
+                        chunkData.getWeight(x+0,y+1,z+0), chunkData.getWeight(x+0,y+1,z+1), chunkData.getWeight(x+1,y+1,z+1), chunkData.getWeight(x+1,y+1,z+0),
+                        chunkData.getType(x+0,y+0,z+0), chunkData.getType(x+0,y+0,z+1), chunkData.getType(x+1,y+0,z+1), chunkData.getType(x+1,y+0,z+0),
+                        chunkData.getType(x+0,y+1,z+0), chunkData.getType(x+0,y+1,z+1), chunkData.getType(x+1,y+1,z+1), chunkData.getType(x+1,y+1,z+0)
                     );
                     //polygonize the current gridcell
-                    TransvoxelModelGeneration.polygonize(currentCell, triangles, samplerTriangles, vertMap, verts, normals, trianglesSharingVert, false, vertList, samplerIndex, skip, builder);
+                    TransvoxelModelGeneration.polygonize(currentCell, meshBuilder, false, vertList, samplerIndex, skip);
                 }
             }
         }
@@ -1587,7 +1373,7 @@ public class TransvoxelModelGeneration {
                         chunkData.yPositiveEdgeAtlas[(x+0)*2+0][(z+0)*2+0], chunkData.yPositiveEdgeAtlas[(x+1)*2+0][(z+0)*2+0],
                         chunkData.yPositiveEdgeAtlas[(x+0)*2+0][(z+1)*2+0], chunkData.yPositiveEdgeAtlas[(x+1)*2+0][(z+1)*2+0]
                     );
-                    TransvoxelModelGeneration.polygonizeTransition(currentTransitionCell, triangles, samplerTriangles, vertMap, verts, normals, trianglesSharingVert, false, vertList, samplerIndex, builder);
+                    TransvoxelModelGeneration.polygonizeTransition(currentTransitionCell, meshBuilder, false, vertList, samplerIndex);
 
                     //
                     //Generate the normal cell with half width
@@ -1603,13 +1389,13 @@ public class TransvoxelModelGeneration {
                     currentCell.setValues(
                         // new Vector3f(x+0,y+0,z+0),                      new Vector3f(x+0,y+0,z+1),                      new Vector3f(x+1,y,z+1),                        new Vector3f(x+1,y,z+0),
                         // new Vector3f(x+0,y+TRANSITION_CELL_WIDTH,z+0),  new Vector3f(x+0,y+TRANSITION_CELL_WIDTH,z+1),  new Vector3f(x+1,y+TRANSITION_CELL_WIDTH,z+1),  new Vector3f(x+1,y+TRANSITION_CELL_WIDTH,z+0),
-                        chunkData.terrainGrid[x+0][y+0][z+0],               chunkData.terrainGrid[x+0][y+0][z+1],               chunkData.terrainGrid[x+1][y+0][z+1],               chunkData.terrainGrid[x+1][y+0][z+0],
+                        chunkData.getWeight(x+0,y+0,z+0),               chunkData.getWeight(x+0,y+0,z+1),               chunkData.getWeight(x+1,y+0,z+1),               chunkData.getWeight(x+1,y+0,z+0),
                         chunkData.yPositiveEdgeIso[(x+0)*2+0][(z+0)*2+0],   chunkData.yPositiveEdgeIso[(x+0)*2+0][(z+1)*2+0],   chunkData.yPositiveEdgeIso[(x+1)*2+0][(z+1)*2+0],   chunkData.yPositiveEdgeIso[(x+1)*2+0][(z+0)*2+0],
-                        chunkData.textureGrid[x+0][y+0][z+0],                   chunkData.textureGrid[x+0][y+0][z+1],                   chunkData.textureGrid[x+1][y+0][z+1],                   chunkData.textureGrid[x+1][y+0][z+0],
+                        chunkData.getType(x+0,y+0,z+0),                   chunkData.getType(x+0,y+0,z+1),                   chunkData.getType(x+1,y+0,z+1),                   chunkData.getType(x+1,y+0,z+0),
                         chunkData.yPositiveEdgeAtlas[(x+0)*2+0][(z+0)*2+0],     chunkData.yPositiveEdgeAtlas[(x+0)*2+0][(z+1)*2+0],     chunkData.yPositiveEdgeAtlas[(x+1)*2+0][(z+1)*2+0],     chunkData.yPositiveEdgeAtlas[(x+1)*2+0][(z+0)*2+0]
                     );
                     //polygonize the current gridcell
-                    TransvoxelModelGeneration.polygonize(currentCell, triangles, samplerTriangles, vertMap, verts, normals, trianglesSharingVert, false, vertList, samplerIndex, skip, builder);
+                    TransvoxelModelGeneration.polygonize(currentCell, meshBuilder, false, vertList, samplerIndex, skip);
                 }
             }
         } else {
@@ -1628,13 +1414,13 @@ public class TransvoxelModelGeneration {
                     currentCell.setValues(
                         // vecPool[0], vecPool[1], vecPool[2], vecPool[3],
                         // vecPool[4], vecPool[5], vecPool[6], vecPool[7],
-                        chunkData.terrainGrid[x+0][y+0][z+0], chunkData.terrainGrid[x+0][y+0][z+1], chunkData.terrainGrid[x+1][y+0][z+1], chunkData.terrainGrid[x+1][y+0][z+0],
-                        chunkData.terrainGrid[x+0][y+1][z+0], chunkData.terrainGrid[x+0][y+1][z+1], chunkData.terrainGrid[x+1][y+1][z+1], chunkData.terrainGrid[x+1][y+1][z+0],
-                        chunkData.textureGrid[x+0][y+0][z+0], chunkData.textureGrid[x+0][y+0][z+1], chunkData.textureGrid[x+1][y+0][z+1], chunkData.textureGrid[x+1][y+0][z+0],
-                        chunkData.textureGrid[x+0][y+1][z+0], chunkData.textureGrid[x+0][y+1][z+1], chunkData.textureGrid[x+1][y+1][z+1], chunkData.textureGrid[x+1][y+1][z+0]
+                        chunkData.getWeight(x+0,y+0,z+0), chunkData.getWeight(x+0,y+0,z+1), chunkData.getWeight(x+1,y+0,z+1), chunkData.getWeight(x+1,y+0,z+0),
+                        chunkData.getWeight(x+0,y+1,z+0), chunkData.getWeight(x+0,y+1,z+1), chunkData.getWeight(x+1,y+1,z+1), chunkData.getWeight(x+1,y+1,z+0),
+                        chunkData.getType(x+0,y+0,z+0), chunkData.getType(x+0,y+0,z+1), chunkData.getType(x+1,y+0,z+1), chunkData.getType(x+1,y+0,z+0),
+                        chunkData.getType(x+0,y+1,z+0), chunkData.getType(x+0,y+1,z+1), chunkData.getType(x+1,y+1,z+1), chunkData.getType(x+1,y+1,z+0)
                     );
                     //polygonize the current gridcell
-                    TransvoxelModelGeneration.polygonize(currentCell, triangles, samplerTriangles, vertMap, verts, normals, trianglesSharingVert, false, vertList, samplerIndex, skip, builder);
+                    TransvoxelModelGeneration.polygonize(currentCell, meshBuilder, false, vertList, samplerIndex, skip);
                 }
             }
         }
@@ -1698,7 +1484,7 @@ public class TransvoxelModelGeneration {
                         chunkData.yNegativeEdgeAtlas[(x+0)*2+0][(z+0)*2+0], chunkData.yNegativeEdgeAtlas[(x+1)*2+0][(z+0)*2+0],
                         chunkData.yNegativeEdgeAtlas[(x+0)*2+0][(z+1)*2+0], chunkData.yNegativeEdgeAtlas[(x+1)*2+0][(z+1)*2+0]
                     );
-                    TransvoxelModelGeneration.polygonizeTransition(currentTransitionCell, triangles, samplerTriangles, vertMap, verts, normals, trianglesSharingVert, true, vertList, samplerIndex, builder);
+                    TransvoxelModelGeneration.polygonizeTransition(currentTransitionCell, meshBuilder, true, vertList, samplerIndex);
 
                     //
                     //Generate the normal cell with half width
@@ -1714,13 +1500,13 @@ public class TransvoxelModelGeneration {
                     currentCell.setValues(
                         // new Vector3f(x+0,y+1,z+0),                      new Vector3f(x+0,y+1,z+1),                      new Vector3f(x+1,y+1,z+1),                      new Vector3f(x+1,y+1,z+0),
                         // new Vector3f(x+0,y+TRANSITION_CELL_WIDTH,z+0),  new Vector3f(x+0,y+TRANSITION_CELL_WIDTH,z+1),  new Vector3f(x+1,y+TRANSITION_CELL_WIDTH,z+1),  new Vector3f(x+1,y+TRANSITION_CELL_WIDTH,z+0),
-                        chunkData.terrainGrid[x+0][y+1][z+0],               chunkData.terrainGrid[x+0][y+1][z+1],               chunkData.terrainGrid[x+1][y+1][z+1],               chunkData.terrainGrid[x+1][y+1][z+0],
+                        chunkData.getWeight(x+0,y+1,z+0),               chunkData.getWeight(x+0,y+1,z+1),               chunkData.getWeight(x+1,y+1,z+1),               chunkData.getWeight(x+1,y+1,z+0),
                         chunkData.yNegativeEdgeIso[(x+0)*2+0][(z+0)*2+0],   chunkData.yNegativeEdgeIso[(x+0)*2+0][(z+1)*2+0],   chunkData.yNegativeEdgeIso[(x+1)*2+0][(z+1)*2+0],   chunkData.yNegativeEdgeIso[(x+1)*2+0][(z+0)*2+0],
-                        chunkData.textureGrid[x+0][y+1][z+0],                   chunkData.textureGrid[x+0][y+1][z+1],                   chunkData.textureGrid[x+1][y+1][z+1],                   chunkData.textureGrid[x+1][y+1][z+0],
+                        chunkData.getType(x+0,y+1,z+0),                   chunkData.getType(x+0,y+1,z+1),                   chunkData.getType(x+1,y+1,z+1),                   chunkData.getType(x+1,y+1,z+0),
                         chunkData.yNegativeEdgeAtlas[(x+0)*2+0][(z+0)*2+0],     chunkData.yNegativeEdgeAtlas[(x+0)*2+0][(z+1)*2+0],     chunkData.yNegativeEdgeAtlas[(x+1)*2+0][(z+1)*2+0],     chunkData.yNegativeEdgeAtlas[(x+1)*2+0][(z+0)*2+0]
                     );
                     //polygonize the current gridcell
-                    TransvoxelModelGeneration.polygonize(currentCell, triangles, samplerTriangles, vertMap, verts, normals, trianglesSharingVert, true, vertList, samplerIndex, skip, builder);
+                    TransvoxelModelGeneration.polygonize(currentCell, meshBuilder, true, vertList, samplerIndex, skip);
                 }
             }
         } else {
@@ -1739,13 +1525,13 @@ public class TransvoxelModelGeneration {
                     currentCell.setValues(
                         // vecPool[0], vecPool[1], vecPool[2], vecPool[3],
                         // vecPool[4], vecPool[5], vecPool[6], vecPool[7],
-                        chunkData.terrainGrid[x+0][y+0][z+0], chunkData.terrainGrid[x+0][y+0][z+1], chunkData.terrainGrid[x+1][y+0][z+1], chunkData.terrainGrid[x+1][y+0][z+0],
-                        chunkData.terrainGrid[x+0][y+1][z+0], chunkData.terrainGrid[x+0][y+1][z+1], chunkData.terrainGrid[x+1][y+1][z+1], chunkData.terrainGrid[x+1][y+1][z+0],
-                        chunkData.textureGrid[x+0][y+0][z+0], chunkData.textureGrid[x+0][y+0][z+1], chunkData.textureGrid[x+1][y+0][z+1], chunkData.textureGrid[x+1][y+0][z+0],
-                        chunkData.textureGrid[x+0][y+1][z+0], chunkData.textureGrid[x+0][y+1][z+1], chunkData.textureGrid[x+1][y+1][z+1], chunkData.textureGrid[x+1][y+1][z+0]
+                        chunkData.getWeight(x+0,y+0,z+0), chunkData.getWeight(x+0,y+0,z+1), chunkData.getWeight(x+1,y+0,z+1), chunkData.getWeight(x+1,y+0,z+0),
+                        chunkData.getWeight(x+0,y+1,z+0), chunkData.getWeight(x+0,y+1,z+1), chunkData.getWeight(x+1,y+1,z+1), chunkData.getWeight(x+1,y+1,z+0),
+                        chunkData.getType(x+0,y+0,z+0), chunkData.getType(x+0,y+0,z+1), chunkData.getType(x+1,y+0,z+1), chunkData.getType(x+1,y+0,z+0),
+                        chunkData.getType(x+0,y+1,z+0), chunkData.getType(x+0,y+1,z+1), chunkData.getType(x+1,y+1,z+1), chunkData.getType(x+1,y+1,z+0)
                     );
                     //polygonize the current gridcell
-                    TransvoxelModelGeneration.polygonize(currentCell, triangles, samplerTriangles, vertMap, verts, normals, trianglesSharingVert, false, vertList, samplerIndex, skip, builder);
+                    TransvoxelModelGeneration.polygonize(currentCell, meshBuilder, false, vertList, samplerIndex, skip);
                 }
             }
         }
@@ -1810,7 +1596,7 @@ public class TransvoxelModelGeneration {
                         chunkData.zPositiveEdgeAtlas[(x+0)*2+0][(y+0)*2+0], chunkData.zPositiveEdgeAtlas[(x+0)*2+0][(y+1)*2+0],
                         chunkData.zPositiveEdgeAtlas[(x+1)*2+0][(y+0)*2+0], chunkData.zPositiveEdgeAtlas[(x+1)*2+0][(y+1)*2+0]
                     );
-                    TransvoxelModelGeneration.polygonizeTransition(currentTransitionCell, triangles, samplerTriangles, vertMap, verts, normals, trianglesSharingVert, false, vertList, samplerIndex, builder);
+                    TransvoxelModelGeneration.polygonizeTransition(currentTransitionCell, meshBuilder, false, vertList, samplerIndex);
 
                     //
                     //Generate the normal cell with half width
@@ -1826,13 +1612,13 @@ public class TransvoxelModelGeneration {
                     currentCell.setValues(
                         // new Vector3f(x+0,y+0,z+0), new Vector3f(x+0,y+0,z+TRANSITION_CELL_WIDTH), new Vector3f(x+1,y+0,z+TRANSITION_CELL_WIDTH), new Vector3f(x+1,y+0,z+0),
                         // new Vector3f(x+0,y+1,z+0), new Vector3f(x+0,y+1,z+TRANSITION_CELL_WIDTH), new Vector3f(x+1,y+1,z+TRANSITION_CELL_WIDTH), new Vector3f(x+1,y+1,z+0),
-                        chunkData.terrainGrid[x+0][y+0][z+0], chunkData.zPositiveEdgeIso[(x+0)*2+0][(y+0)*2+0], chunkData.zPositiveEdgeIso[(x+1)*2+0][(y+0)*2+0], chunkData.terrainGrid[x+1][y+0][z+0],
-                        chunkData.terrainGrid[x+0][y+1][z+0], chunkData.zPositiveEdgeIso[(x+0)*2+0][(y+1)*2+0], chunkData.zPositiveEdgeIso[(x+1)*2+0][(y+1)*2+0], chunkData.terrainGrid[x+1][y+1][z+0],
-                        chunkData.textureGrid[x+0][y+0][z+0], chunkData.zPositiveEdgeAtlas[(x+0)*2+0][(y+0)*2+0], chunkData.zPositiveEdgeAtlas[(x+1)*2+0][(y+0)*2+0], chunkData.textureGrid[x+1][y+0][z+0],
-                        chunkData.textureGrid[x+0][y+1][z+0], chunkData.zPositiveEdgeAtlas[(x+0)*2+0][(y+1)*2+0], chunkData.zPositiveEdgeAtlas[(x+1)*2+0][(y+1)*2+0], chunkData.textureGrid[x+1][y+1][z+0]
+                        chunkData.getWeight(x+0,y+0,z+0), chunkData.zPositiveEdgeIso[(x+0)*2+0][(y+0)*2+0], chunkData.zPositiveEdgeIso[(x+1)*2+0][(y+0)*2+0], chunkData.getWeight(x+1,y+0,z+0),
+                        chunkData.getWeight(x+0,y+1,z+0), chunkData.zPositiveEdgeIso[(x+0)*2+0][(y+1)*2+0], chunkData.zPositiveEdgeIso[(x+1)*2+0][(y+1)*2+0], chunkData.getWeight(x+1,y+1,z+0),
+                        chunkData.getType(x+0,y+0,z+0), chunkData.zPositiveEdgeAtlas[(x+0)*2+0][(y+0)*2+0], chunkData.zPositiveEdgeAtlas[(x+1)*2+0][(y+0)*2+0], chunkData.getType(x+1,y+0,z+0),
+                        chunkData.getType(x+0,y+1,z+0), chunkData.zPositiveEdgeAtlas[(x+0)*2+0][(y+1)*2+0], chunkData.zPositiveEdgeAtlas[(x+1)*2+0][(y+1)*2+0], chunkData.getType(x+1,y+1,z+0)
                     );
                     //polygonize the current gridcell
-                    TransvoxelModelGeneration.polygonize(currentCell, triangles, samplerTriangles, vertMap, verts, normals, trianglesSharingVert, false, vertList, samplerIndex, skip, builder);
+                    TransvoxelModelGeneration.polygonize(currentCell, meshBuilder, false, vertList, samplerIndex, skip);
                 }
             }
         } else {
@@ -1851,13 +1637,13 @@ public class TransvoxelModelGeneration {
                     currentCell.setValues(
                         // vecPool[0], vecPool[1], vecPool[2], vecPool[3],
                         // vecPool[4], vecPool[5], vecPool[6], vecPool[7],
-                        chunkData.terrainGrid[x+0][y+0][z+0], chunkData.terrainGrid[x+0][y+0][z+1], chunkData.terrainGrid[x+1][y+0][z+1], chunkData.terrainGrid[x+1][y+0][z+0],
-                        chunkData.terrainGrid[x+0][y+1][z+0], chunkData.terrainGrid[x+0][y+1][z+1], chunkData.terrainGrid[x+1][y+1][z+1], chunkData.terrainGrid[x+1][y+1][z+0],
-                        chunkData.textureGrid[x+0][y+0][z+0], chunkData.textureGrid[x+0][y+0][z+1], chunkData.textureGrid[x+1][y+0][z+1], chunkData.textureGrid[x+1][y+0][z+0],
-                        chunkData.textureGrid[x+0][y+1][z+0], chunkData.textureGrid[x+0][y+1][z+1], chunkData.textureGrid[x+1][y+1][z+1], chunkData.textureGrid[x+1][y+1][z+0]
+                        chunkData.getWeight(x+0,y+0,z+0), chunkData.getWeight(x+0,y+0,z+1), chunkData.getWeight(x+1,y+0,z+1), chunkData.getWeight(x+1,y+0,z+0),
+                        chunkData.getWeight(x+0,y+1,z+0), chunkData.getWeight(x+0,y+1,z+1), chunkData.getWeight(x+1,y+1,z+1), chunkData.getWeight(x+1,y+1,z+0),
+                        chunkData.getType(x+0,y+0,z+0), chunkData.getType(x+0,y+0,z+1), chunkData.getType(x+1,y+0,z+1), chunkData.getType(x+1,y+0,z+0),
+                        chunkData.getType(x+0,y+1,z+0), chunkData.getType(x+0,y+1,z+1), chunkData.getType(x+1,y+1,z+1), chunkData.getType(x+1,y+1,z+0)
                     );
                     //polygonize the current gridcell
-                    TransvoxelModelGeneration.polygonize(currentCell, triangles, samplerTriangles, vertMap, verts, normals, trianglesSharingVert, false, vertList, samplerIndex, skip, builder);
+                    TransvoxelModelGeneration.polygonize(currentCell, meshBuilder, false, vertList, samplerIndex, skip);
                 }
             }
         }
@@ -1922,7 +1708,7 @@ public class TransvoxelModelGeneration {
                         chunkData.zNegativeEdgeAtlas[(x+0)*2+0][(y+0)*2+0], chunkData.zNegativeEdgeAtlas[(x+0)*2+0][(y+1)*2+0],
                         chunkData.zNegativeEdgeAtlas[(x+1)*2+0][(y+0)*2+0], chunkData.zNegativeEdgeAtlas[(x+1)*2+0][(y+1)*2+0]
                     );
-                    TransvoxelModelGeneration.polygonizeTransition(currentTransitionCell, triangles, samplerTriangles, vertMap, verts, normals, trianglesSharingVert, true, vertList, samplerIndex, builder);
+                    TransvoxelModelGeneration.polygonizeTransition(currentTransitionCell, meshBuilder, true, vertList, samplerIndex);
 
                     //
                     //Generate the normal cell with half width
@@ -1938,13 +1724,13 @@ public class TransvoxelModelGeneration {
                     currentCell.setValues(
                         // new Vector3f(x+0,y+0,z+1), new Vector3f(x+0,y+0,z+TRANSITION_CELL_WIDTH), new Vector3f(x+1,y+0,z+TRANSITION_CELL_WIDTH), new Vector3f(x+1,y+0,z+1),
                         // new Vector3f(x+0,y+1,z+1), new Vector3f(x+0,y+1,z+TRANSITION_CELL_WIDTH), new Vector3f(x+1,y+1,z+TRANSITION_CELL_WIDTH), new Vector3f(x+1,y+1,z+1),
-                        chunkData.terrainGrid[x+0][y+0][z+1], chunkData.zNegativeEdgeIso[(x+0)*2+0][(y+0)*2+0], chunkData.zNegativeEdgeIso[(x+1)*2+0][(y+0)*2+0], chunkData.terrainGrid[x+1][y+0][z+1],
-                        chunkData.terrainGrid[x+0][y+1][z+1], chunkData.zNegativeEdgeIso[(x+0)*2+0][(y+1)*2+0], chunkData.zNegativeEdgeIso[(x+1)*2+0][(y+1)*2+0], chunkData.terrainGrid[x+1][y+1][z+1],
-                        chunkData.textureGrid[x+0][y+0][z+1], chunkData.zNegativeEdgeAtlas[(x+0)*2+0][(y+0)*2+0], chunkData.zNegativeEdgeAtlas[(x+1)*2+0][(y+0)*2+0], chunkData.textureGrid[x+1][y+0][z+1],
-                        chunkData.textureGrid[x+0][y+1][z+1], chunkData.zNegativeEdgeAtlas[(x+0)*2+0][(y+1)*2+0], chunkData.zNegativeEdgeAtlas[(x+1)*2+0][(y+1)*2+0], chunkData.textureGrid[x+1][y+1][z+1]
+                        chunkData.getWeight(x+0,y+0,z+1), chunkData.zNegativeEdgeIso[(x+0)*2+0][(y+0)*2+0], chunkData.zNegativeEdgeIso[(x+1)*2+0][(y+0)*2+0], chunkData.getWeight(x+1,y+0,z+1),
+                        chunkData.getWeight(x+0,y+1,z+1), chunkData.zNegativeEdgeIso[(x+0)*2+0][(y+1)*2+0], chunkData.zNegativeEdgeIso[(x+1)*2+0][(y+1)*2+0], chunkData.getWeight(x+1,y+1,z+1),
+                        chunkData.getType(x+0,y+0,z+1), chunkData.zNegativeEdgeAtlas[(x+0)*2+0][(y+0)*2+0], chunkData.zNegativeEdgeAtlas[(x+1)*2+0][(y+0)*2+0], chunkData.getType(x+1,y+0,z+1),
+                        chunkData.getType(x+0,y+1,z+1), chunkData.zNegativeEdgeAtlas[(x+0)*2+0][(y+1)*2+0], chunkData.zNegativeEdgeAtlas[(x+1)*2+0][(y+1)*2+0], chunkData.getType(x+1,y+1,z+1)
                     );
                     //polygonize the current gridcell
-                    TransvoxelModelGeneration.polygonize(currentCell, triangles, samplerTriangles, vertMap, verts, normals, trianglesSharingVert, true, vertList, samplerIndex, skip, builder);
+                    TransvoxelModelGeneration.polygonize(currentCell, meshBuilder, true, vertList, samplerIndex, skip);
                 }
             }
         } else {
@@ -1963,13 +1749,13 @@ public class TransvoxelModelGeneration {
                     currentCell.setValues(
                         // vecPool[0], vecPool[1], vecPool[2], vecPool[3],
                         // vecPool[4], vecPool[5], vecPool[6], vecPool[7],
-                        chunkData.terrainGrid[x+0][y+0][z+0], chunkData.terrainGrid[x+0][y+0][z+1], chunkData.terrainGrid[x+1][y+0][z+1], chunkData.terrainGrid[x+1][y+0][z+0],
-                        chunkData.terrainGrid[x+0][y+1][z+0], chunkData.terrainGrid[x+0][y+1][z+1], chunkData.terrainGrid[x+1][y+1][z+1], chunkData.terrainGrid[x+1][y+1][z+0],
-                        chunkData.textureGrid[x+0][y+0][z+0], chunkData.textureGrid[x+0][y+0][z+1], chunkData.textureGrid[x+1][y+0][z+1], chunkData.textureGrid[x+1][y+0][z+0],
-                        chunkData.textureGrid[x+0][y+1][z+0], chunkData.textureGrid[x+0][y+1][z+1], chunkData.textureGrid[x+1][y+1][z+1], chunkData.textureGrid[x+1][y+1][z+0]
+                        chunkData.getWeight(x+0,y+0,z+0), chunkData.getWeight(x+0,y+0,z+1), chunkData.getWeight(x+1,y+0,z+1), chunkData.getWeight(x+1,y+0,z+0),
+                        chunkData.getWeight(x+0,y+1,z+0), chunkData.getWeight(x+0,y+1,z+1), chunkData.getWeight(x+1,y+1,z+1), chunkData.getWeight(x+1,y+1,z+0),
+                        chunkData.getType(x+0,y+0,z+0), chunkData.getType(x+0,y+0,z+1), chunkData.getType(x+1,y+0,z+1), chunkData.getType(x+1,y+0,z+0),
+                        chunkData.getType(x+0,y+1,z+0), chunkData.getType(x+0,y+1,z+1), chunkData.getType(x+1,y+1,z+1), chunkData.getType(x+1,y+1,z+0)
                     );
                     //polygonize the current gridcell
-                    TransvoxelModelGeneration.polygonize(currentCell, triangles, samplerTriangles, vertMap, verts, normals, trianglesSharingVert, false, vertList, samplerIndex, skip, builder);
+                    TransvoxelModelGeneration.polygonize(currentCell, meshBuilder, false, vertList, samplerIndex, skip);
                 }
             }
         }
@@ -2053,10 +1839,10 @@ public class TransvoxelModelGeneration {
         //         currentCell.setValues(
         //             // new Vector3f(x+TRANSITION_CELL_WIDTH,y+0,z+TRANSITION_CELL_WIDTH), new Vector3f(x+TRANSITION_CELL_WIDTH,y+0,z+1), new Vector3f(x+1,y+0,z+1), new Vector3f(x+1,y+0,z+TRANSITION_CELL_WIDTH),
         //             // new Vector3f(x+TRANSITION_CELL_WIDTH,y+1,z+TRANSITION_CELL_WIDTH), new Vector3f(x+TRANSITION_CELL_WIDTH,y+1,z+1), new Vector3f(x+1,y+1,z+1), new Vector3f(x+1,y+1,z+TRANSITION_CELL_WIDTH),
-        //             chunkData.xNegativeEdgeIso[(y+0)*2+0][(z+0)*2+0], chunkData.xNegativeEdgeIso[(y+0)*2+0][(z+1)*2+0], chunkData.terrainGrid[x+1][y+0][z+1], chunkData.terrainGrid[x+1][y+0][z+0],
-        //             chunkData.xNegativeEdgeIso[(y+1)*2+0][(z+0)*2+0], chunkData.xNegativeEdgeIso[(y+1)*2+0][(z+1)*2+0], chunkData.terrainGrid[x+1][y+1][z+1], chunkData.terrainGrid[x+1][y+1][z+0],
-        //             chunkData.xNegativeEdgeAtlas[(y+0)*2+0][(z+0)*2+0], chunkData.xNegativeEdgeAtlas[(y+0)*2+0][(z+1)*2+0], chunkData.textureGrid[x+1][y+0][z+1], chunkData.textureGrid[x+1][y+0][z+0],
-        //             chunkData.xNegativeEdgeAtlas[(y+1)*2+0][(z+0)*2+0], chunkData.xNegativeEdgeAtlas[(y+1)*2+0][(z+1)*2+0], chunkData.textureGrid[x+1][y+1][z+1], chunkData.textureGrid[x+1][y+1][z+0]
+        //             chunkData.xNegativeEdgeIso[(y+0)*2+0][(z+0)*2+0], chunkData.xNegativeEdgeIso[(y+0)*2+0][(z+1)*2+0], chunkData.getWeight(x+1,y+0,z+1), chunkData.getWeight(x+1,y+0,z+0),
+        //             chunkData.xNegativeEdgeIso[(y+1)*2+0][(z+0)*2+0], chunkData.xNegativeEdgeIso[(y+1)*2+0][(z+1)*2+0], chunkData.getWeight(x+1,y+1,z+1), chunkData.getWeight(x+1,y+1,z+0),
+        //             chunkData.xNegativeEdgeAtlas[(y+0)*2+0][(z+0)*2+0], chunkData.xNegativeEdgeAtlas[(y+0)*2+0][(z+1)*2+0], chunkData.getType(x+1,y+0,z+1), chunkData.getType(x+1,y+0,z+0),
+        //             chunkData.xNegativeEdgeAtlas[(y+1)*2+0][(z+0)*2+0], chunkData.xNegativeEdgeAtlas[(y+1)*2+0][(z+1)*2+0], chunkData.getType(x+1,y+1,z+1), chunkData.getType(x+1,y+1,z+0)
         //         );
         //         //polygonize the current gridcell
         //         TransvoxelModelGeneration.polygonize(currentCell, TerrainChunkModelGeneration.MIN_ISO_VALUE, triangles, samplerTriangles, vertMap, verts, normals, trianglesSharingVert, true);
@@ -2064,30 +1850,34 @@ public class TransvoxelModelGeneration {
         // }
 
 
-        if (verts.size() != normals.size()){
-            throw new Error("Generated invalid number of elements in lists! " + verts.size() + " " + normals.size());
-        }
-
-
-        //incrementer
-        int i = 0;
-
-
-        //all elements of faces in order
-        int[] elementsFlat = new int[triangles.size() * ELEMENTS_PER_TRIANGLE * INTS_PER_ELEMENT];
-        //all verts in order, flattened as an array of floats instead of vecs
-        float[] vertsFlat = new float[triangles.size() * VERTS_PER_TRIANGLE * FLOATS_PER_VERT];
-        //all normals in order, flattened as an array of floats instead of vecs
-        float[] normalsFlat = new float[triangles.size() * VERTS_PER_TRIANGLE * FLOATS_PER_VERT];
-        //List of UVs
-        float[] UVs = new float[triangles.size() * VERTS_PER_TRIANGLE * FLOATS_PER_UV];
-        //List of texture sampler values
-        float[] textureSamplers = new float[samplerTriangles.size() * SAMPLER_INDICES_PER_TRIANGLE];
-        //List of texture ratio values
-        float[] textureRatioData = new float[triangles.size() * SAMPLER_INDICES_PER_TRIANGLE * SAMPLER_VALUES_PER_VERT];
+        return meshBuilder;
+    }
 
-        float scalingFactor = (float)Math.pow(2,chunkData.levelOfDetail);
+    /**
+     * Flattens the contents of a mesh builder into per-triangle vertex data.
+     * Every triangle gets its own three vertices so that UVs and samplers are not shared between faces.
+     * @param meshBuilder The mesh builder
+     * @param levelOfDetail The level of detail of the chunk
+     * @param vertsFlat Receives the vertex positions
+     * @param elementsFlat Receives the face elements
+     * @param vertexBuffer Also receives the vertex positions, or null
+     * @param normalBuffer Receives the normals
+     * @param uvBuffer Receives the UVs
+     * @param elementBuffer Also receives the face elements, or null
+     * @param samplerBuffer Receives the texture sampler indices
+     * @param ratioBuffer Receives the texture sampler ratios
+     */
+    static void emitMesh(
+        TransvoxelMeshBuilder meshBuilder, int levelOfDetail, float[] vertsFlat, int[] elementsFlat,
+        FloatBuffer vertexBuffer, FloatBuffer normalBuffer, FloatBuffer uvBuffer, IntBuffer elementBuffer, FloatBuffer samplerBuffer, FloatBuffer ratioBuffer
+    ){
+        int triangleCount = meshBuilder.triangleCount;
+        float[] verts = meshBuilder.verts;
+        float[] normals = meshBuilder.normals;
+        int[] triangles = meshBuilder.triangles;
+        int[] samplers = meshBuilder.samplers;
 
+        float scalingFactor = (float)Math.pow(2,levelOfDetail);
 
         //store indices
         for(int j = 0; j < elementsFlat.length; j++){
@@ -2095,97 +1885,59 @@ public class TransvoxelModelGeneration {
             //we don't want vertex sharing because then the UVs are shared
             elementsFlat[j] = j;
         }
+        if(elementBuffer != null){
+            elementBuffer.put(elementsFlat);
+        }
 
         //flatten verts + normals + uvs
-        i = 0;
-        Vector3f vert = null;
-        Vector3f normal = null;
-        for(Triangle triangle : triangles){
-
-            //
-            //point 1 of the triangle
-            vert = verts.get(triangle.indices[0]);
-            normal = normals.get(triangle.indices[0]);
-            vertsFlat[i*9+0] = vert.x * scalingFactor;
-            vertsFlat[i*9+1] = vert.y * scalingFactor;
-            vertsFlat[i*9+2] = vert.z * scalingFactor;
-
-            normalsFlat[i*9+0] = normal.x;
-            normalsFlat[i*9+1] = normal.y;
-            normalsFlat[i*9+2] = normal.z;
-
-            UVs[i*6+0] = vert.z * Math.abs(normal.x) + vert.x * Math.abs(normal.y) + vert.x * Math.abs(normal.z);
-            UVs[i*6+1] = vert.y * Math.abs(normal.x) + vert.z * Math.abs(normal.y) + vert.y * Math.abs(normal.z);
-
-
-            //
-            //point 2 of the triangle
-            vert = verts.get(triangle.indices[1]);
-            normal = normals.get(triangle.indices[1]);
-            vertsFlat[i*9+3] = vert.x * scalingFactor;
-            vertsFlat[i*9+4] = vert.y * scalingFactor;
-            vertsFlat[i*9+5] = vert.z * scalingFactor;
-
-            normalsFlat[i*9+3] = normal.x;
-            normalsFlat[i*9+4] = normal.y;
-            normalsFlat[i*9+5] = normal.z;
-
-            UVs[i*6+2] = vert.z * Math.abs(normal.x) + vert.x * Math.abs(normal.y) + vert.x * Math.abs(normal.z);
-            UVs[i*6+3] = vert.y * Math.abs(normal.x) + vert.z * Math.abs(normal.y) + vert.y * Math.abs(normal.z);
-
-
-            //
-            //point 3 of the triangle
-            vert = verts.get(triangle.indices[2]);
-            normal = normals.get(triangle.indices[2]);
-            vertsFlat[i*9+6] = vert.x * scalingFactor;
-            vertsFlat[i*9+7] = vert.y * scalingFactor;
-            vertsFlat[i*9+8] = vert.z * scalingFactor;
-            
-            normalsFlat[i*9+6] = normal.x;
-            normalsFlat[i*9+7] = normal.y;
-            normalsFlat[i*9+8] = normal.z;
+        for(int i = 0; i < triangleCount * 3; i++){
+            int vertIndex = triangles[i] * 3;
+            float vertX = verts[vertIndex + 0];
+            float vertY = verts[vertIndex + 1];
+            float vertZ = verts[vertIndex + 2];
+            float normalX = normals[vertIndex + 0];
+            float normalY = normals[vertIndex + 1];
+            float normalZ = normals[vertIndex + 2];
+
+            vertsFlat[i*3+0] = vertX * scalingFactor;
+            vertsFlat[i*3+1] = vertY * scalingFactor;
+            vertsFlat[i*3+2] = vertZ * scalingFactor;
+            if(vertexBuffer != null){
+                vertexBuffer.put(vertsFlat[i*3+0]);
+                vertexBuffer.put(vertsFlat[i*3+1]);
+                vertexBuffer.put(vertsFlat[i*3+2]);
+            }
 
-            UVs[i*6+4] = vert.z * Math.abs(normal.x) + vert.x * Math.abs(normal.y) + vert.x * Math.abs(normal.z);
-            UVs[i*6+5] = vert.y * Math.abs(normal.x) + vert.z * Math.abs(normal.y) + vert.y * Math.abs(normal.z);
+            normalBuffer.put(normalX);
+            normalBuffer.put(normalY);
+            normalBuffer.put(normalZ);
 
-            
-            i++;
+            uvBuffer.put(vertZ * Math.abs(normalX) + vertX * Math.abs(normalY) + vertX * Math.abs(normalZ));
+            uvBuffer.put(vertY * Math.abs(normalX) + vertZ * Math.abs(normalY) + vertY * Math.abs(normalZ));
         }
 
         //flatten sampler indices
-        i = 0;
-        for(Vector3f samplerVec : samplerTriangles){
-            textureSamplers[i*3+0] = (float)Globals.voxelTextureAtlas.getVoxelTypeOffset((int)samplerVec.x);
-            textureSamplers[i*3+1] = (float)Globals.voxelTextureAtlas.getVoxelTypeOffset((int)samplerVec.y);
-            textureSamplers[i*3+2] = (float)Globals.voxelTextureAtlas.getVoxelTypeOffset((int)samplerVec.z);
-            i++;
-        }
-        if(i * 3 < textureSamplers.length){
-            throw new Error("Did not add all elements! " + samplerTriangles.size() + " " + textureSamplers.length);
+        //every vertex of a triangle gets the same three samplers so they don't interpolate across the face
+        for(int i = 0; i < triangleCount; i++){
+            float sampler0 = (float)Globals.voxelTextureAtlas.getVoxelTypeOffset(samplers[i*3+0]);
+            float sampler1 = (float)Globals.voxelTextureAtlas.getVoxelTypeOffset(samplers[i*3+1]);
+            float sampler2 = (float)Globals.voxelTextureAtlas.getVoxelTypeOffset(samplers[i*3+2]);
+            for(int j = 0; j < VERTS_PER_TRIANGLE; j++){
+                samplerBuffer.put(sampler0);
+                samplerBuffer.put(sampler1);
+                samplerBuffer.put(sampler2);
+            }
         }
-        
-        //set ratio dat
-        for(int j = 0; j < textureRatioData.length / 9; j++){
-            //first vertex
-            textureRatioData[j*9+0] = 1.0f;
-            textureRatioData[j*9+1] = 0.0f;
-            textureRatioData[j*9+2] = 0.0f;
 
+        //set ratio data, each vertex fully samples its own texture
+        for(int j = 0; j < triangleCount; j++){
+            //first vertex
+            ratioBuffer.put(1.0f).put(0.0f).put(0.0f);
             //second vertex
-            textureRatioData[j*9+3] = 0.0f;
-            textureRatioData[j*9+4] = 1.0f;
-            textureRatioData[j*9+5] = 0.0f;
-
+            ratioBuffer.put(0.0f).put(1.0f).put(0.0f);
             //third vertex
-            textureRatioData[j*9+6] = 0.0f;
-            textureRatioData[j*9+7] = 0.0f;
-            textureRatioData[j*9+8] = 1.0f;
+            ratioBuffer.put(0.0f).put(0.0f).put(1.0f);
         }
-
-        //List<Float> vertices, List<Float> normals, List<Integer> faceElements, List<Float> uvs
-        TerrainChunkData rVal = new TerrainChunkData(vertsFlat, normalsFlat, elementsFlat, UVs, textureSamplers, textureRatioData, chunkData.levelOfDetail);
-        return rVal;
     }
 
 
@@ -2396,6 +2148,11 @@ public class TransvoxelModelGeneration {
         //the core texture data for the main part of the mesh
         public int[][][] textureGrid;
 
+        /**
+         * The flat voxel storage to read the main part of the mesh from, or null if it is read from terrainGrid and textureGrid
+         */
+        VoxelStorage voxels;
+
         int levelOfDetail;
 
         /**
@@ -2412,6 +2169,80 @@ public class TransvoxelModelGeneration {
             this.levelOfDetail = levelOfDetail;
         }
 
+        /**
+         * Constructor that meshes straight from a chunk's voxel storage, without copying it into nested arrays
+         * @param voxels The voxel storage
+         * @param levelOfDetail The level of detail
+         */
+        public TransvoxelChunkData(
+            VoxelStorage voxels,
+            int levelOfDetail
+        ){
+            this.voxels = voxels;
+            this.levelOfDetail = levelOfDetail;
+        }
+
+        /**
+         * Gets the weight of a voxel in the main part of the mesh
+         * @param x The x coordinate
+         * @param y The y coordinate
+         * @param z The z coordinate
+         * @return The weight
+         */
+        public float getWeight(int x, int y, int z){
+            if(this.voxels != null){
+                return this.voxels.getWeight(x, y, z);
+            }
+            return this.terrainGrid[x][y][z];
+        }
+
+        /**
+         * Gets the type of a voxel in the main part of the mesh
+         * @param x The x coordinate
+         * @param y The y coordinate
+         * @param z The z coordinate
+         * @return The type
+         */
+        public int getType(int x, int y, int z){
+            if(this.voxels != null){
+                return this.voxels.getType(x, y, z);
+            }
+            return this.textureGrid[x][y][z];
+        }
+
+        /**
+         * Gets the number of voxels along the x axis of the main part of the mesh
+         * @return The number of voxels
+         */
+        public int getSizeX(){
+            if(this.voxels != null){
+                return VoxelStorage.DIM;
+            }
+            return this.terrainGrid.length;
+        }
+
+        /**
+         * Gets the number of voxels along the y axis of the main part of the mesh
+         * @return The number of voxels
+         */
+        public int getSizeY(){
+            if(this.voxels != null){
+                return VoxelStorage.DIM;
+            }
+            return this.terrainGrid[0].length;
+        }
+
+        /**
+         * Gets the number of voxels along the z axis of the main part of the mesh
+         * @return The number of voxels
+         */
+        public int getSizeZ(){
+            if(this.voxels != null){
+                return VoxelStorage.DIM;
+            }
+            return this.terrainGrid[0][0].length;
+        }
+
 
         /**
          * Adds values for the face along positive x
@@ -55,6 +55,14 @@ public class MainServerFunctions {
         Globals.serverState.realmManager.simulate();
         Globals.profiler.endCpuSample();
 
+        //
+        //Send the move updates and held messages produced by the simulation
+        Globals.profiler.beginCpuSample("MainServerFunctions.simulate - Tick outgoing messages");
+        if(Globals.serverState.server != null){
+            Globals.serverState.server.tickOutgoing();
+        }
+        Globals.profiler.endCpuSample();
+
         Globals.profiler.endCpuSample();
     }
 
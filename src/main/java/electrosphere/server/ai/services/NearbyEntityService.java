@@ -1,6 +1,8 @@
 package electrosphere.server.ai.services;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import org.joml.Vector3d;
 
@@ -32,7 +34,15 @@ public class NearbyEntityService implements AIService {
             Realm realm = Globals.serverState.realmManager.getEntityRealm(entity);
             if(realm != null){
                 Vector3d position = EntityUtils.getPosition(entity);
-                Collection<Entity> nearbyEntities = realm.getDataCellManager().entityLookup(position, NearbyEntityService.SEARCH_DIST);
+                //reuse the list from the previous pass so steady state lookups don't allocate
+                List<Entity> nearbyEntities = null;
+                if(NearbyEntityService.hasNearbyEntities(ai.getBlackboard()) && NearbyEntityService.getNearbyEntities(ai.getBlackboard()) instanceof ArrayList){
+                    nearbyEntities = (ArrayList<Entity>)NearbyEntityService.getNearbyEntities(ai.getBlackboard());
+                    nearbyEntities.clear();
+                } else {
+                    nearbyEntities = new ArrayList<Entity>();
+                }
+                realm.getEntityIndex().queryRadius(position, NearbyEntityService.SEARCH_DIST, nearbyEntities);
                 NearbyEntityService.setNearbyEntities(ai.getBlackboard(), nearbyEntities);
             }
         }
@@ -6,11 +6,13 @@ import electrosphere.collision.hitbox.HitboxManager;
 import electrosphere.engine.EngineState;
 import electrosphere.engine.Globals;
 import electrosphere.entity.Entity;
+import electrosphere.entity.EntityUtils;
 import electrosphere.entity.scene.Scene;
 import electrosphere.net.parser.net.message.NetworkMessage;
 import electrosphere.script.ScriptEngine;
 import electrosphere.server.datacell.interfaces.DataCellManager;
 import electrosphere.server.datacell.interfaces.PathfindingManager;
+import electrosphere.server.datacell.utils.EntitySpatialIndex;
 import electrosphere.server.entity.ServerContentManager;
 import electrosphere.server.macro.MacroData;
 import electrosphere.server.macro.MacroDataUpdater;
@@ -98,6 +100,11 @@ public class Realm {
      * The list of available spawnpoints
      */
     private List<Vector3d> spawnPoints = new LinkedList<Vector3d>();
+
+    /**
+     * Spatial index over the entities in this realm
+     */
+    private EntitySpatialIndex entityIndex = new EntitySpatialIndex();
     
     /**
      * Realm constructor
@@ -178,6 +185,10 @@ public class Realm {
         cell.initializeEntityForNewPlayers(entity, null);
         //register to entity data cell mapper
         Globals.serverState.entityDataCellMapper.registerEntity(entity, cell);
+        //track spatially
+        if(cell != this.inventoryCell){
+            this.entityIndex.update(entity, EntityUtils.getPosition(entity));
+        }
     }
 
 
@@ -221,6 +232,14 @@ public class Realm {
         return this.collisionEngine;
     }
 
+    /**
+     * Gets the spatial index over the entities in this realm
+     * @return The spatial index
+     */
+    public EntitySpatialIndex getEntityIndex(){
+        return this.entityIndex;
+    }
+
     /**
      * Gets the hitbox manager backing this realm
      * @return The hitbox manager
@@ -230,16 +249,26 @@ public class Realm {
     }
 
     /**
-     * Tells the data cell manager to simulate all loaded cells
+     * Steps the physics engine of this realm.
+     * Only touches this realm's collision engine and the entities within it, so the physics of different realms can be stepped concurrently.
+     */
+    protected void simulatePhysics(){
+        Globals.profiler.beginCpuSample("Realm.simulatePhysics");
+        collisionEngine.simulatePhysics();
+        collisionEngine.updateDynamicObjectTransforms();
+        Globals.profiler.endCpuSample();
+    }
+
+    /**
+     * Tells the data cell manager to simulate all loaded cells.
+     * The physics step (simulatePhysics) must have already been run for this frame.
      */
     protected void simulate(){
         Globals.profiler.beginCpuSample("Realm.simulate");
 
         //
-        //simulate bullet physics engine step
+        //resolve the physics engine step
         if(EngineState.EngineFlags.RUN_PHYSICS){
-            collisionEngine.simulatePhysics();
-            collisionEngine.updateDynamicObjectTransforms();
             PhysicsEntityUtils.serverRepositionEntities(this,collisionEngine);
             chemistryEngine.collide();
         }
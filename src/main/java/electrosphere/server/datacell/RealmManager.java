@@ -12,6 +12,7 @@ import electrosphere.collision.CollisionEngine;
 import electrosphere.collision.CollisionWorldData;
 import electrosphere.collision.PhysicsCallback;
 import electrosphere.collision.hitbox.HitboxManager;
+import electrosphere.engine.EngineState;
 import electrosphere.engine.Globals;
 import electrosphere.entity.Entity;
 import electrosphere.net.server.player.Player;
@@ -46,6 +47,11 @@ public class RealmManager {
      */
     ReentrantLock lock = new ReentrantLock();
 
+    /**
+     * Steps the physics of the realms concurrently
+     */
+    RealmPhysicsScheduler physicsScheduler = new RealmPhysicsScheduler();
+
     /**
      * Constructor
      */
@@ -191,6 +197,9 @@ public class RealmManager {
     public void simulate(){
         Globals.profiler.beginCpuSample("RealmManager.simulate");
         Set<Realm> realms = this.getRealms();
+        if(EngineState.EngineFlags.RUN_PHYSICS){
+            physicsScheduler.simulate(realms);
+        }
         for(Realm realm : realms){
             realm.simulate();
         }
@@ -0,0 +1,114 @@
+package electrosphere.server.datacell;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import electrosphere.engine.Globals;
+import electrosphere.engine.threads.ThreadCounts;
+import electrosphere.logger.LoggerInterface;
+
+/**
+ * Steps the physics of independent realms concurrently.
+ * <p>
+ * Every realm owns its own collision engine (ode world, space and lock), so the physics steps of two realms never touch the same data.
+ * The caller's thread steps one realm itself while the worker pool steps the rest, and the scheduler blocks until every realm has finished.
+ * </p>
+ */
+public class RealmPhysicsScheduler {
+
+    /**
+     * The executor that steps realms. Null until the first frame with more than one realm
+     */
+    private ExecutorService executorService;
+
+    /**
+     * Futures for the realms stepped on the worker pool this frame
+     */
+    private List<Future<?>> pending = new ArrayList<Future<?>>();
+
+    /**
+     * Constructor. Lazily requests a pool from the thread manager.
+     */
+    public RealmPhysicsScheduler(){
+    }
+
+    /**
+     * Constructor
+     * @param executorService The executor to step realms on
+     */
+    public RealmPhysicsScheduler(ExecutorService executorService){
+        this.executorService = executorService;
+    }
+
+    /**
+     * Steps the physics of a set of realms, returning once all of them have been stepped
+     * @param realms The realms
+     */
+    public void simulate(Collection<Realm> realms){
+        List<Runnable> steps = new ArrayList<Runnable>(realms.size());
+        for(Realm realm : realms){
+            steps.add(realm::simulatePhysics);
+        }
+        this.runAll(steps);
+    }
+
+    /**
+     * Runs a set of independent physics steps, returning once all of them have completed.
+     * If the calling thread is interrupted, no further steps are handed to the pool and the interrupt is left set for the caller.
+     * @param steps The steps
+     */
+    void runAll(List<Runnable> steps){
+        if(steps.size() < 1){
+            return;
+        }
+        if(steps.size() == 1 || this.getExecutor() == null){
+            for(Runnable step : steps){
+                step.run();
+            }
+            return;
+        }
+        if(Thread.currentThread().isInterrupted()){
+            //shutting down, don't hand any more work to the pool
+            return;
+        }
+        Globals.profiler.beginCpuSample("RealmPhysicsScheduler.runAll");
+        pending.clear();
+        for(int i = 1; i < steps.size(); i++){
+            pending.add(executorService.submit(steps.get(i)));
+        }
+        //step the first realm on this thread rather than idling
+        steps.get(0).run();
+        for(Future<?> future : pending){
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                LoggerInterface.loggerEngine.WARNING("Interrupted while waiting for realm physics, cancelling remaining steps");
+                for(Future<?> toCancel : pending){
+                    toCancel.cancel(false);
+                }
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                LoggerInterface.loggerEngine.ERROR("Realm physics step threw an error!", e);
+            }
+        }
+        pending.clear();
+        Globals.profiler.endCpuSample();
+    }
+
+    /**
+     * Gets the executor, requesting it from the thread manager if it has not been created yet
+     * @return The executor, or null if there is no thread manager to request it from
+     */
+    private ExecutorService getExecutor(){
+        if(executorService == null && Globals.engineState != null && Globals.engineState.threadManager != null){
+            executorService = Globals.engineState.threadManager.requestFixedThreadPool(ThreadCounts.REALM_PHYSICS_THREADS);
+        }
+        return executorService;
+    }
+
+}
@@ -2,7 +2,9 @@ package electrosphere.server.datacell;
 
 import electrosphere.engine.Globals;
 import electrosphere.entity.Entity;
+import electrosphere.entity.EntityUtils;
 import electrosphere.entity.scene.Scene;
+import electrosphere.entity.state.lod.ServerLODComponent;
 import electrosphere.entity.types.EntityTypes.EntityType;
 import electrosphere.entity.types.common.CommonEntityUtils;
 import electrosphere.entity.types.creature.CreatureUtils;
@@ -11,12 +13,15 @@ import electrosphere.entity.types.item.ItemUtils;
 import electrosphere.net.parser.net.message.EntityMessage;
 import electrosphere.net.parser.net.message.NetworkMessage;
 import electrosphere.net.server.player.Player;
+import electrosphere.server.datacell.utils.EntityLookupUtils;
 import electrosphere.server.macro.character.Character;
 
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.joml.Vector3d;
+
 /**
  * Container for entities loaded into memory. This isn't intended to be in charge
  * of simulation. It just acts as an object to relate players and entities by location.
@@ -108,9 +113,18 @@ public class ServerDataCell {
     
     /**
      * Broadcast a message to all players within range of this cell.
+     * Move updates are thinned out for players that are far from the entity.
      * @param message 
      */
     public void broadcastNetworkMessage(NetworkMessage message){
+        if(activePlayers.size() > 1){
+            //serialized once for every player instead of once per player
+            message.markShared();
+        }
+        if(message.getType() == NetworkMessage.MessageType.ENTITY_MESSAGE && ((EntityMessage)message).getMessageSubtype() == EntityMessage.EntityMessageType.MOVEUPDATE){
+            this.broadcastMoveUpdate((EntityMessage)message);
+            return;
+        }
         for(Player player : activePlayers){
             if(player != Globals.clientState.clientPlayer){
                 player.addMessage(message);
@@ -118,6 +132,32 @@ public class ServerDataCell {
         }
     }
 
+    /**
+     * Broadcasts a move update, skipping players that are far enough away to not need it this frame
+     * @param message The move update
+     */
+    private void broadcastMoveUpdate(EntityMessage message){
+        int lodLevel = ServerLODComponent.FULL_RES;
+        Entity entity = EntityLookupUtils.getEntityById(message.getentityID());
+        if(entity != null && ServerLODComponent.hasServerLODComponent(entity)){
+            lodLevel = ServerLODComponent.getServerLODComponent(entity).getLodLevel();
+        }
+        long frame = Globals.engineState.timekeeper.getNumberOfSimFramesElapsed();
+        for(Player player : activePlayers){
+            if(player != Globals.clientState.clientPlayer){
+                Entity playerEntity = player.getPlayerEntity();
+                if(playerEntity != null && playerEntity != entity){
+                    Vector3d playerPos = EntityUtils.getPosition(playerEntity);
+                    double distance = playerPos.distance(message.getpositionX(), message.getpositionY(), message.getpositionZ());
+                    if(!player.getRelevanceFilter().shouldSend(message, distance, lodLevel, frame)){
+                        continue;
+                    }
+                }
+                player.addMessage(message);
+            }
+        }
+    }
+
     /**
      * Serializes the given creature to all players in this cell that aren't in the provided list of players
      * whom have already received spawn messages for the entity
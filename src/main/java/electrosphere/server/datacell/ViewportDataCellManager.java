@@ -1,5 +1,6 @@
 package electrosphere.server.datacell;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
@@ -9,7 +10,6 @@ import org.joml.Vector3i;
 
 import electrosphere.engine.Globals;
 import electrosphere.entity.Entity;
-import electrosphere.entity.EntityUtils;
 import electrosphere.entity.scene.Scene;
 import electrosphere.net.server.player.Player;
 import electrosphere.server.datacell.interfaces.DataCellManager;
@@ -135,15 +135,8 @@ public class ViewportDataCellManager implements DataCellManager {
 
     @Override
     public Collection<Entity> entityLookup(Vector3d pos, double radius) {
-        List<Entity> rVal = new LinkedList<Entity>();
-        for(Entity entity : this.serverDataCell.getScene().getEntityList()){
-            // boundingSphere
-            Vector3d entPos = EntityUtils.getPosition(entity);
-            if(pos.distance(entPos) > radius){
-                continue;
-            }
-            rVal.add(entity);
-        }
+        List<Entity> rVal = new ArrayList<Entity>();
+        this.parent.getEntityIndex().queryRadius(pos, radius, rVal);
         return rVal;
     }
 
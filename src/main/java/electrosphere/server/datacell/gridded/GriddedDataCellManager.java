@@ -1,9 +1,11 @@
 package electrosphere.server.datacell.gridded;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -180,9 +182,15 @@ public class GriddedDataCellManager implements DataCellManager, VoxelCellManager
     VoxelPathfinder pathfinder;
 
     /**
-     * Caches lookups for nearby entities between simulate() calls
+     * The chunk that each player's view volume was last computed around (used by incremental interest management)
      */
-    private Map<Long,List<Entity>> nearbyLookupCache = new HashMap<Long,List<Entity>>();
+    Map<Player,Vector3i> playerViewCenters = new HashMap<Player,Vector3i>();
+
+    /**
+     * Cells outside of a player's view volume that still hold the player because the player's entity was in the cell's scene when the view moved away.
+     * Checked every update so the player is dropped once the entity leaves (used by incremental interest management)
+     */
+    Map<Player,Set<ServerDataCell>> playerLingeringCells = new HashMap<Player,Set<ServerDataCell>>();
     
     /**
      * Constructor
@@ -226,6 +234,9 @@ public class GriddedDataCellManager implements DataCellManager, VoxelCellManager
         Globals.serverState.realmManager.setPlayerRealm(player, parent);
         int playerSimulationRadius = player.getSimulationRadius();
         Vector3i worldPos = player.getWorldPos();
+        loadedCellsLock.lock();
+        playerViewCenters.put(player, new Vector3i(worldPos));
+        loadedCellsLock.unlock();
         Vector3i tempVec = new Vector3i();
         for(int x = worldPos.x - playerSimulationRadius; x < worldPos.x + playerSimulationRadius + 1; x++){
             for(int y = worldPos.y - playerSimulationRadius; y < worldPos.y + playerSimulationRadius + 1; y++){
@@ -259,6 +270,9 @@ public class GriddedDataCellManager implements DataCellManager, VoxelCellManager
     public void movePlayer(Player player, Vector3i newPosition){
         int playerSimulationRadius = player.getSimulationRadius();
         player.setWorldPos(newPosition);
+        loadedCellsLock.lock();
+        playerViewCenters.put(player, new Vector3i(newPosition));
+        loadedCellsLock.unlock();
         for(ServerDataCell cell : this.groundDataCells.values()){
             Vector3i worldPos = this.getCellWorldPosition(cell);
             if(cell.containsPlayer(player) && !this.shouldContainPlayer(this.calcDistance(worldPos, newPosition), playerSimulationRadius)){
@@ -399,6 +413,196 @@ public class GriddedDataCellManager implements DataCellManager, VoxelCellManager
      * @return True if the player changed cell, false otherwise
      */
     public boolean updatePlayerPositions(){
+        if(EngineState.EngineFlags.INCREMENTAL_INTEREST_MANAGEMENT){
+            return this.updatePlayerPositionsIncremental();
+        }
+        return this.updatePlayerPositionsFull();
+    }
+
+    /**
+     * Updates the cells each player is interested in, only doing work for players that changed chunk since the last call.
+     * <p>
+     * For a player that moved, the old and new view volumes are walked once: cells only in the old volume drop the player,
+     * cells only in the new volume gain the player (creating the cell if necessary).
+     * The closest player distance is recomputed only for cells in either volume, since those are the only cells whose distance to that player changed.
+     * </p>
+     * <p>
+     * A cell in the old volume whose scene still holds the player's entity keeps the player, same as the full update.
+     * The full update drops it on a later frame once the entity has left, so those cells are tracked and checked every update here.
+     * </p>
+     * @return True if a player changed chunk, false otherwise
+     */
+    private boolean updatePlayerPositionsIncremental(){
+        Globals.profiler.beginCpuSample("GriddedDataCellManager.updatePlayerPositionsIncremental");
+        boolean playerChangedChunk = false;
+        List<Player> players = Globals.serverState.playerManager.getPlayers();
+        for(Player player : players){
+            Entity playerEntity = player.getPlayerEntity();
+            if(playerEntity == null || parent.getLoadingDataCell().containsPlayer(player)){
+                continue;
+            }
+            Vector3d position = EntityUtils.getPosition(playerEntity);
+            int currentWorldX = ServerWorldData.convertRealToChunkSpace(position.x);
+            int currentWorldY = ServerWorldData.convertRealToChunkSpace(position.y);
+            int currentWorldZ = ServerWorldData.convertRealToChunkSpace(position.z);
+            loadedCellsLock.lock();
+            Vector3i oldCenter = playerViewCenters.get(player);
+            Vector3i currentCenter = oldCenter;
+            if(oldCenter == null || oldCenter.x != currentWorldX || oldCenter.y != currentWorldY || oldCenter.z != currentWorldZ){
+                currentCenter = new Vector3i(currentWorldX,currentWorldY,currentWorldZ);
+                player.setWorldPos(currentCenter);
+                this.updatePlayerView(player, oldCenter, currentCenter);
+                playerViewCenters.put(player, currentCenter);
+                playerChangedChunk = true;
+            }
+            this.releaseLingeringCells(player, currentCenter);
+            loadedCellsLock.unlock();
+        }
+        //forget players that are no longer connected
+        if(playerViewCenters.size() > players.size()){
+            loadedCellsLock.lock();
+            playerViewCenters.keySet().retainAll(players);
+            playerLingeringCells.keySet().retainAll(players);
+            loadedCellsLock.unlock();
+        }
+        Globals.profiler.endCpuSample();
+        return playerChangedChunk;
+    }
+
+    /**
+     * Moves a player's view volume from one chunk to another. Must be called while holding loadedCellsLock.
+     * @param player The player
+     * @param oldCenter The chunk the previous view volume was centered on, or null if the player did not have one
+     * @param newCenter The chunk the new view volume is centered on
+     */
+    private void updatePlayerView(Player player, Vector3i oldCenter, Vector3i newCenter){
+        int playerSimulationRadius = player.getSimulationRadius();
+        Vector3i tempVec = new Vector3i();
+
+        //remove from cells that are only in the old volume
+        if(oldCenter != null){
+            Globals.profiler.beginCpuSample("GriddedDataCellManager.updatePlayerView - Remove from old cells");
+            for(int x = oldCenter.x - playerSimulationRadius + 1; x < oldCenter.x + playerSimulationRadius; x++){
+                for(int y = oldCenter.y - playerSimulationRadius + 1; y < oldCenter.y + playerSimulationRadius; y++){
+                    for(int z = oldCenter.z - playerSimulationRadius + 1; z < oldCenter.z + playerSimulationRadius; z++){
+                        tempVec.set(x,y,z);
+                        if(!this.canCreateCell(x,y,z) || !this.shouldContainPlayer(this.calcDistance(tempVec, oldCenter), playerSimulationRadius)){
+                            continue;
+                        }
+                        if(this.shouldContainPlayer(this.calcDistance(tempVec, newCenter), playerSimulationRadius)){
+                            //in both volumes, handled by the add pass
+                            continue;
+                        }
+                        ServerDataCell cell = groundDataCells.get(this.getServerDataCellKey(tempVec));
+                        if(cell == null){
+                            continue;
+                        }
+                        if(cell.containsPlayer(player)){
+                            if(cell.getScene().containsEntity(player.getPlayerEntity())){
+                                //can't drop the cell holding the player's entity, revisit it until the entity leaves
+                                if(!playerLingeringCells.containsKey(player)){
+                                    playerLingeringCells.put(player, new HashSet<ServerDataCell>());
+                                }
+                                playerLingeringCells.get(player).add(cell);
+                            } else {
+                                cell.removePlayer(player);
+                                this.broadcastDestructionToPlayer(player, cell);
+                            }
+                        }
+                        this.updateClosestPlayer(cell, tempVec);
+                    }
+                }
+            }
+            Globals.profiler.endCpuSample();
+        }
+
+        //add to cells in the new volume
+        Globals.profiler.beginCpuSample("GriddedDataCellManager.updatePlayerView - Add to new cells");
+        for(int x = newCenter.x - playerSimulationRadius + 1; x < newCenter.x + playerSimulationRadius; x++){
+            for(int y = newCenter.y - playerSimulationRadius + 1; y < newCenter.y + playerSimulationRadius; y++){
+                for(int z = newCenter.z - playerSimulationRadius + 1; z < newCenter.z + playerSimulationRadius; z++){
+                    tempVec.set(x,y,z);
+                    if(!this.canCreateCell(x,y,z) || !this.shouldContainPlayer(this.calcDistance(tempVec, newCenter), playerSimulationRadius)){
+                        continue;
+                    }
+                    ServerDataCell cell = groundDataCells.get(this.getServerDataCellKey(tempVec));
+                    if(cell == null){
+                        cell = this.createServerDataCell(tempVec);
+                    }
+                    if(!cell.containsPlayer(player)){
+                        cell.addPlayer(player);
+                    }
+                    this.updateClosestPlayer(cell, tempVec);
+                }
+            }
+        }
+        Globals.profiler.endCpuSample();
+    }
+
+    /**
+     * Drops a player from the cells it was only kept in because its entity was in them, once the entity has left.
+     * Must be called while holding loadedCellsLock.
+     * @param player The player
+     * @param center The chunk the player's current view volume is centered on
+     */
+    private void releaseLingeringCells(Player player, Vector3i center){
+        Set<ServerDataCell> lingeringCells = playerLingeringCells.get(player);
+        if(lingeringCells == null){
+            return;
+        }
+        int playerSimulationRadius = player.getSimulationRadius();
+        Iterator<ServerDataCell> iterator = lingeringCells.iterator();
+        while(iterator.hasNext()){
+            ServerDataCell cell = iterator.next();
+            Vector3i cellWorldPos = this.getCellWorldPosition(cell);
+            if(cellWorldPos == null || !cell.containsPlayer(player)){
+                //unloaded or already dropped
+                iterator.remove();
+                continue;
+            }
+            if(this.shouldContainPlayer(this.calcDistance(cellWorldPos, center), playerSimulationRadius)){
+                //back inside the view volume, an ordinary member again
+                iterator.remove();
+                continue;
+            }
+            if(!cell.getScene().containsEntity(player.getPlayerEntity())){
+                cell.removePlayer(player);
+                this.broadcastDestructionToPlayer(player, cell);
+                this.updateClosestPlayer(cell, cellWorldPos);
+                iterator.remove();
+            }
+        }
+        if(lingeringCells.isEmpty()){
+            playerLingeringCells.remove(player);
+        }
+    }
+
+    /**
+     * Recomputes the distance from a cell to the closest player interested in it
+     * @param cell The cell
+     * @param cellWorldPos The world position of the cell
+     */
+    private void updateClosestPlayer(ServerDataCell cell, Vector3i cellWorldPos){
+        GriddedDataCellTrackingData trackingData = this.cellTrackingMap.get(cell);
+        if(trackingData == null){
+            return;
+        }
+        double closest = GriddedDataCellTrackingData.REALLY_LARGE_DISTANCE;
+        for(Player player : cell.getPlayers()){
+            double distance = this.calcDistance(cellWorldPos, player.getWorldPos());
+            if(distance < closest){
+                closest = distance;
+            }
+        }
+        trackingData.setClosestPlayer(closest);
+    }
+
+    /**
+     * For every player, looks at their entity and determines what data cell they should be considered inside of.
+     * Recomputes every player against every loaded cell each call.
+     * @return True if the player changed cell, false otherwise
+     */
+    private boolean updatePlayerPositionsFull(){
         Globals.profiler.beginCpuSample("GriddedDataCellManager.updatePlayerPositions - Reset chunk distances");
         loadedCellsLock.lock();
         for(ServerDataCell cell : this.groundDataCells.values()){
@@ -713,11 +917,6 @@ public class GriddedDataCellManager implements DataCellManager, VoxelCellManager
         loadedCellsLock.lock();
 
 
-        //
-        //clear nearby entity lookup cache
-        this.nearbyLookupCache.clear();
-
-
         //regenerate physics where relevant
         terrainEditLock.acquireUninterruptibly();
         if(physicsQueue.size() > 0){
@@ -752,7 +951,7 @@ public class GriddedDataCellManager implements DataCellManager, VoxelCellManager
                 ServerDataCell cell = getCellAtWorldPosition(fluidChunk.getWorldPosition());
                 ServerFluidChunk chunk = getFluidChunkAtPosition(fluidChunk.getWorldPosition());
                 cell.broadcastNetworkMessage(
-                    TerrainMessage.constructupdateFluidDataMessage(fluidChunk.getWorldX(), fluidChunk.getWorldY(), fluidChunk.getWorldZ(), TerrainProtocol.constructFluidByteBuffer(chunk).array())
+                    TerrainMessage.constructupdateFluidDataMessage(fluidChunk.getWorldX(), fluidChunk.getWorldY(), fluidChunk.getWorldZ(), TerrainProtocol.constructFluidUpdatePayload(chunk))
                 );
             });
         }
@@ -899,6 +1098,15 @@ public class GriddedDataCellManager implements DataCellManager, VoxelCellManager
         cellPositionMap.put(rVal,localWorldPos);
         GriddedDataCellTrackingData trackingData = new GriddedDataCellTrackingData();
         this.cellTrackingMap.put(rVal,trackingData);
+        if(EngineState.EngineFlags.INCREMENTAL_INTEREST_MANAGEMENT){
+            //views are only recomputed when players move, so cells created for any other reason need to pick up the players already viewing them
+            for(Map.Entry<Player,Vector3i> viewCenter : playerViewCenters.entrySet()){
+                if(this.shouldContainPlayer(this.calcDistance(localWorldPos, viewCenter.getValue()), viewCenter.getKey().getSimulationRadius())){
+                    rVal.addPlayer(viewCenter.getKey());
+                }
+            }
+            this.updateClosestPlayer(rVal, localWorldPos);
+        }
         loadedCellsLock.unlock();
 
         Long key = this.getServerDataCellKey(localWorldPos);
@@ -929,7 +1137,7 @@ public class GriddedDataCellManager implements DataCellManager, VoxelCellManager
      * @return The weight of the described voxel
      */
     public float getVoxelWeightAtLocalPosition(Vector3i worldPosition, Vector3i voxelPosition) {
-        return serverTerrainManager.getChunk(worldPosition.x, worldPosition.y, worldPosition.z, ServerChunkCache.STRIDE_FULL_RES).getWeights()[voxelPosition.x][voxelPosition.y][voxelPosition.z];
+        return serverTerrainManager.getChunk(worldPosition.x, worldPosition.y, worldPosition.z, ServerChunkCache.STRIDE_FULL_RES).getWeight(voxelPosition.x, voxelPosition.y, voxelPosition.z);
     }
 
     @Override
@@ -940,7 +1148,7 @@ public class GriddedDataCellManager implements DataCellManager, VoxelCellManager
      * @return The type of the described voxel
      */
     public int getVoxelTypeAtLocalPosition(Vector3i worldPosition, Vector3i voxelPosition) {
-        return serverTerrainManager.getChunk(worldPosition.x, worldPosition.y, worldPosition.z, ServerChunkCache.STRIDE_FULL_RES).getValues()[voxelPosition.x][voxelPosition.y][voxelPosition.z];
+        return serverTerrainManager.getChunk(worldPosition.x, worldPosition.y, worldPosition.z, ServerChunkCache.STRIDE_FULL_RES).getType(voxelPosition.x, voxelPosition.y, voxelPosition.z);
     }
 
     @Override
@@ -998,6 +1206,7 @@ public class GriddedDataCellManager implements DataCellManager, VoxelCellManager
                 int localVoxelY = voxelPosition.y + (ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE - 1) * (worldPosition.y - toUpdate.y);
                 int localVoxelZ = voxelPosition.z + (ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE - 1) * (worldPosition.z - toUpdate.z);
                 serverTerrainManager.deformTerrainAtLocationToValue(toUpdate, new Vector3i(localVoxelX, localVoxelY, localVoxelZ), weight, type);
+                serverFluidManager.onTerrainEdit(toUpdate, new Vector3i(localVoxelX, localVoxelY, localVoxelZ), weight);
 
                 //update anything loaded
                 this.loadedCellsLock.lock();
@@ -1015,6 +1224,7 @@ public class GriddedDataCellManager implements DataCellManager, VoxelCellManager
                 this.loadedCellsLock.unlock();
             }
         }
+        this.pathfinder.invalidateWalkability(worldPosition);
         terrainEditLock.release();
     }
 
@@ -1116,6 +1326,8 @@ public class GriddedDataCellManager implements DataCellManager, VoxelCellManager
             int localVoxelY = voxelPosition.y;
             int localVoxelZ = voxelPosition.z;
             serverBlockManager.editBlockAtLocationToValue(worldPosition, voxelPosition, type, metadata);
+            serverFluidManager.wake(worldPosition);
+            this.pathfinder.invalidateWalkability(worldPosition);
 
             //update anything loaded
             this.loadedCellsLock.lock();
@@ -1198,22 +1410,9 @@ public class GriddedDataCellManager implements DataCellManager, VoxelCellManager
 
     @Override
     public Collection<Entity> entityLookup(Vector3d pos, double radius) {
-        Vector3i chunkPos = ServerWorldData.convertRealToChunkSpace(pos);
-        long key = this.getServerDataCellKey(chunkPos);
-        if(this.nearbyLookupCache.containsKey(key)){
-            return Collections.unmodifiableCollection(this.nearbyLookupCache.get(key));
-        }
-        List<Entity> rVal = new LinkedList<Entity>();
-        this.loadedCellsLock.lock();
-        for(ServerDataCell cell : this.groundDataCells.values()){
-            if(ServerWorldData.convertChunkToRealSpace(this.getCellWorldPosition(cell)).distance(pos) > radius){
-                continue;
-            }
-            rVal.addAll(cell.getScene().getEntityList());
-        }
-        this.nearbyLookupCache.put(key,rVal);
-        this.loadedCellsLock.unlock();
-        return Collections.unmodifiableCollection(rVal);
+        List<Entity> rVal = new ArrayList<Entity>();
+        this.parent.getEntityIndex().queryRadius(pos, radius, rVal);
+        return rVal;
     }
 
     @Override
@@ -1233,13 +1432,52 @@ public class GriddedDataCellManager implements DataCellManager, VoxelCellManager
         //find the closest data cell
         ServerDataCell closestCell = null;
         double closestDist = MACRO_SCANNING_BIG_NUMBER;
-        for(ServerDataCell cell : this.groundDataCells.values()){
-            Vector3i cellChunkPos = this.cellPositionMap.get(cell);
-            Vector3d cellRealPos = ServerWorldData.convertChunkToRealSpace(cellChunkPos);
-            double dist = cellRealPos.distance(point);
-            if(dist < closestDist){
-                closestCell = cell;
-                closestDist = dist;
+
+        //search shells of cells outwards from the point while that is cheaper than scanning every loaded cell
+        boolean resolved = false;
+        Vector3i center = ServerWorldData.convertRealToChunkSpace(point);
+        Vector3i searchPos = new Vector3i();
+        int loadedCount = this.groundDataCells.size();
+        for(int radius = 0; (2 * radius + 1) * (2 * radius + 1) * (2 * radius + 1) <= loadedCount; radius++){
+            for(int x = center.x - radius; x <= center.x + radius; x++){
+                for(int y = center.y - radius; y <= center.y + radius; y++){
+                    for(int z = center.z - radius; z <= center.z + radius; z++){
+                        boolean onShell = Math.abs(x - center.x) == radius || Math.abs(y - center.y) == radius || Math.abs(z - center.z) == radius;
+                        if(!onShell || !this.canCreateCell(x, y, z)){
+                            continue;
+                        }
+                        searchPos.set(x, y, z);
+                        ServerDataCell cell = this.groundDataCells.get(this.getServerDataCellKey(searchPos));
+                        if(cell == null){
+                            continue;
+                        }
+                        double dist = ServerWorldData.convertChunkToRealSpace(searchPos).distance(point);
+                        if(dist < closestDist){
+                            closestCell = cell;
+                            closestDist = dist;
+                        }
+                    }
+                }
+            }
+            //every cell further out is at least this far from the point
+            if(closestCell != null && closestDist <= radius * ServerTerrainChunk.CHUNK_DIMENSION){
+                resolved = true;
+                break;
+            }
+        }
+
+        //fall back to scanning every loaded cell
+        if(!resolved){
+            closestCell = null;
+            closestDist = MACRO_SCANNING_BIG_NUMBER;
+            for(ServerDataCell cell : this.groundDataCells.values()){
+                Vector3i cellChunkPos = this.cellPositionMap.get(cell);
+                Vector3d cellRealPos = ServerWorldData.convertChunkToRealSpace(cellChunkPos);
+                double dist = cellRealPos.distance(point);
+                if(dist < closestDist){
+                    closestCell = cell;
+                    closestDist = dist;
+                }
             }
         }
         if(closestDist == MACRO_SCANNING_BIG_NUMBER || closestCell == null){
@@ -1265,14 +1503,7 @@ public class GriddedDataCellManager implements DataCellManager, VoxelCellManager
     public void evaluateMacroObject(MacroObject object){
         //figure out if a cell should contain this object
         Vector3i macroObjectChunkPos = ServerWorldData.convertRealToChunkSpace(object.getPos());
-        ServerDataCell container = null;
-        for(ServerDataCell serverDataCell : this.groundDataCells.values()){
-            Vector3i pos = this.getCellWorldPosition(serverDataCell);
-            if(pos.equals(macroObjectChunkPos)){
-                container = serverDataCell;
-                break;
-            }
-        }
+        ServerDataCell container = this.getCellAtWorldPosition(macroObjectChunkPos);
 
         //if it is in real space, spawn the object
         if(container != null){
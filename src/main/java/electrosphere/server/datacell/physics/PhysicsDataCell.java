@@ -1,7 +1,6 @@
 package electrosphere.server.datacell.physics;
 
 import electrosphere.client.block.BlockChunkData;
-import electrosphere.client.terrain.cache.ChunkData;
 import electrosphere.client.terrain.data.TerrainChunkData;
 import electrosphere.engine.Globals;
 import electrosphere.entity.Entity;
@@ -24,9 +23,6 @@ public class PhysicsDataCell {
 
     ServerTerrainChunk terrainChunk;
     BlockChunkData blockChunk;
-    
-    float[][][] weights;
-    int[][][] types;
 
     /**
      * The terrain vertex data
@@ -70,11 +66,6 @@ public class PhysicsDataCell {
      */
     public void generatePhysics(){
         //if the entity hasn't already been created for some reason, need to create it
-            
-        //
-        //fill in weights and types maps
-        //
-        this.fillInData();
 
         //grab local reference to this cell's entities
         Entity localPhysicsEnt = this.physicsEntity;
@@ -86,7 +77,7 @@ public class PhysicsDataCell {
         }
 
         //generate terrain
-        this.terrainChunkData = TerrainChunk.serverGenerateTerrainChunkData(weights, types);
+        this.terrainChunkData = TerrainChunk.serverGenerateTerrainChunkData(this.terrainChunk.getVoxels());
         TerrainChunk.serverCreateTerrainChunkEntity(localPhysicsEnt, this.terrainChunkData);
         localPhysicsEnt.putData(EntityDataStrings.TERRAIN_IS_TERRAIN, true);
 
@@ -108,137 +99,6 @@ public class PhysicsDataCell {
         }
     }
 
-    /**
-     * Fills in the internal arrays of data for generate terrain models
-     */
-    private void fillInData(){
-        //
-        //fill in data
-        //
-        //main chunk
-        this.weights = new float[ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE][ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE][ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE];
-        this.types = new int[ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE][ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE][ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE];
-        for(int x = 0; x < ChunkData.CHUNK_DATA_SIZE; x++){
-            for(int y = 0; y < ChunkData.CHUNK_DATA_SIZE; y++){
-                for(int z = 0; z < ChunkData.CHUNK_DATA_SIZE; z++){
-                    weights[x][y][z] = terrainChunk.getWeight(x,y,z);
-                    types[x][y][z] = terrainChunk.getType(x,y,z);
-                }
-            }
-        }
-        // //face X
-        // if(worldPos.x + 1 < realm.getServerWorldData().getWorldSizeDiscrete()){
-        //     currentChunk = serverTerrainManager.getChunk(worldPos.x + 1, worldPos.y, worldPos.z);
-        //     for(int i = 0; i < ChunkData.CHUNK_SIZE; i++){
-        //         for(int j = 0; j < ChunkData.CHUNK_SIZE; j++){
-        //             weights[ChunkData.CHUNK_SIZE][i][j] = currentChunk.getWeight(0, i, j);
-        //             types[ChunkData.CHUNK_SIZE][i][j] = currentChunk.getType(0, i, j);
-        //         }
-        //     }
-        // } else {
-        //     for(int i = 0; i < ChunkData.CHUNK_SIZE; i++){
-        //         for(int j = 0; j < ChunkData.CHUNK_SIZE; j++){
-        //             weights[ChunkData.CHUNK_SIZE][i][j] = 0;
-        //             types[ChunkData.CHUNK_SIZE][i][j] = 0;
-        //         }
-        //     }
-        // }
-        // //face Y
-        // if(worldPos.y + 1 < realm.getServerWorldData().getWorldSizeDiscrete()){
-        //     currentChunk = serverTerrainManager.getChunk(worldPos.x, worldPos.y + 1, worldPos.z);
-        //     for(int i = 0; i < ChunkData.CHUNK_SIZE; i++){
-        //         for(int j = 0; j < ChunkData.CHUNK_SIZE; j++){
-        //             weights[i][ChunkData.CHUNK_SIZE][j] = currentChunk.getWeight(i, 0, j);
-        //             types[i][ChunkData.CHUNK_SIZE][j] = currentChunk.getType(i, 0, j);
-        //         }
-        //     }
-        // } else {
-        //     for(int i = 0; i < ChunkData.CHUNK_SIZE; i++){
-        //         for(int j = 0; j < ChunkData.CHUNK_SIZE; j++){
-        //             weights[i][ChunkData.CHUNK_SIZE][j] = 0;
-        //             types[i][ChunkData.CHUNK_SIZE][j] = 0;
-        //         }
-        //     }
-        // }
-        // //face Z
-        // if(worldPos.z + 1 < realm.getServerWorldData().getWorldSizeDiscrete()){
-        //     currentChunk = serverTerrainManager.getChunk(worldPos.x, worldPos.y, worldPos.z + 1);
-        //     for(int i = 0; i < ChunkData.CHUNK_SIZE; i++){
-        //         for(int j = 0; j < ChunkData.CHUNK_SIZE; j++){
-        //             weights[i][j][ChunkData.CHUNK_SIZE] = currentChunk.getWeight(i, j, 0);
-        //             types[i][j][ChunkData.CHUNK_SIZE] = currentChunk.getType(i, j, 0);
-        //         }
-        //     }
-        // } else {
-        //     for(int i = 0; i < ChunkData.CHUNK_SIZE; i++){
-        //         for(int j = 0; j < ChunkData.CHUNK_SIZE; j++){
-        //             weights[i][j][ChunkData.CHUNK_SIZE] = 0;
-        //             types[i][j][ChunkData.CHUNK_SIZE] = 0;
-        //         }
-        //     }
-        // }
-        //edge X-Y
-        // if(
-        //     worldPos.x + 1 < realm.getServerWorldData().getWorldSizeDiscrete() &&
-        //     worldPos.y + 1 < realm.getServerWorldData().getWorldSizeDiscrete()
-        // ){
-        //     currentChunk = serverTerrainManager.getChunk(worldPos.x + 1, worldPos.y + 1, worldPos.z);
-        //     for(int i = 0; i < ChunkData.CHUNK_SIZE; i++){
-        //         weights[ChunkData.CHUNK_SIZE][ChunkData.CHUNK_SIZE][i] = currentChunk.getWeight(0, 0, i);
-        //         types  [ChunkData.CHUNK_SIZE][ChunkData.CHUNK_SIZE][i] = currentChunk.getType(0, 0, i);
-        //     }
-        // } else {
-        //     for(int i = 0; i < ChunkData.CHUNK_SIZE; i++){
-        //         weights[ChunkData.CHUNK_SIZE][ChunkData.CHUNK_SIZE][i] = 0;
-        //         types  [ChunkData.CHUNK_SIZE][ChunkData.CHUNK_SIZE][i] = 0;
-        //     }
-        // }
-        // //edge X-Z
-        // if(
-        //     worldPos.x + 1 < realm.getServerWorldData().getWorldSizeDiscrete() &&
-        //     worldPos.z + 1 < realm.getServerWorldData().getWorldSizeDiscrete()
-        // ){
-        //     currentChunk = serverTerrainManager.getChunk(worldPos.x + 1, worldPos.y, worldPos.z + 1);
-        //     for(int i = 0; i < ChunkData.CHUNK_SIZE; i++){
-        //         weights[ChunkData.CHUNK_SIZE][i][ChunkData.CHUNK_SIZE] = currentChunk.getWeight(0, i, 0);
-        //         types  [ChunkData.CHUNK_SIZE][i][ChunkData.CHUNK_SIZE] = currentChunk.getType(0, i, 0);
-        //     }
-        // } else {
-        //     for(int i = 0; i < ChunkData.CHUNK_SIZE; i++){
-        //         weights[ChunkData.CHUNK_SIZE][i][ChunkData.CHUNK_SIZE] = 0;
-        //         types  [ChunkData.CHUNK_SIZE][i][ChunkData.CHUNK_SIZE] = 0;
-        //     }
-        // }
-        // //edge Y-Z
-        // if(
-        //     worldPos.y + 1 < realm.getServerWorldData().getWorldSizeDiscrete() &&
-        //     worldPos.z + 1 < realm.getServerWorldData().getWorldSizeDiscrete()
-        // ){
-        //     currentChunk = serverTerrainManager.getChunk(worldPos.x, worldPos.y + 1, worldPos.z + 1);
-        //     for(int i = 0; i < ChunkData.CHUNK_SIZE; i++){
-        //         weights[i][ChunkData.CHUNK_SIZE][ChunkData.CHUNK_SIZE] = currentChunk.getWeight(i, 0, 0);
-        //         types  [i][ChunkData.CHUNK_SIZE][ChunkData.CHUNK_SIZE] = currentChunk.getType(i, 0, 0);
-        //     }
-        // } else {
-        //     for(int i = 0; i < ChunkData.CHUNK_SIZE; i++){
-        //         weights[i][ChunkData.CHUNK_SIZE][ChunkData.CHUNK_SIZE] = 0;
-        //         types  [i][ChunkData.CHUNK_SIZE][ChunkData.CHUNK_SIZE] = 0;
-        //     }
-        // }
-        // if(
-        //     worldPos.z + 1 < realm.getServerWorldData().getWorldSizeDiscrete() &&
-        //     worldPos.y + 1 < realm.getServerWorldData().getWorldSizeDiscrete() &&
-        //     worldPos.z + 1 < realm.getServerWorldData().getWorldSizeDiscrete()
-        // ){
-        //     currentChunk = serverTerrainManager.getChunk(worldPos.x + 1, worldPos.y + 1, worldPos.z + 1);
-        //     weights[ChunkData.CHUNK_SIZE][ChunkData.CHUNK_SIZE][ChunkData.CHUNK_SIZE] = currentChunk.getWeight(0, 0, 0);
-        //     types[ChunkData.CHUNK_SIZE][ChunkData.CHUNK_SIZE][ChunkData.CHUNK_SIZE] = currentChunk.getType(0, 0, 0);
-        // } else {
-        //     weights[ChunkData.CHUNK_SIZE][ChunkData.CHUNK_SIZE][ChunkData.CHUNK_SIZE] = 0;
-        //     types[ChunkData.CHUNK_SIZE][ChunkData.CHUNK_SIZE][ChunkData.CHUNK_SIZE] = 0;
-        // }
-    }
-
     /**
      * Sets the terrain chunk data for the physics cell
      * @param terrainChunk The terrain chunk data
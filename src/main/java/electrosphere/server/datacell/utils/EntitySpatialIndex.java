@@ -0,0 +1,509 @@
+package electrosphere.server.datacell.utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.joml.Vector3d;
+
+import electrosphere.entity.Entity;
+import electrosphere.entity.EntityUtils;
+import electrosphere.server.physics.terrain.manager.ServerTerrainChunk;
+
+/**
+ * Uniform grid spatial index over the server entities of a realm.
+ * <p>
+ * Entities are bucketed by the grid cell their position falls in. The index is updated incrementally:
+ * every server path that moves an entity (ServerEntityUtils.repositionEntity, which physics goes through,
+ * attachment updates, projectiles) calls update(), and the entity is moved between buckets only if it crossed a cell boundary.
+ * Code that moves a server entity in place must call ServerEntityUtils.reindexEntity afterwards.
+ * </p>
+ * <p>
+ * Queries are exact: every candidate in the overlapping buckets is tested against its current position.
+ * The visitor variants do not allocate, which matters for AI and hitbox code that queries every frame.
+ * </p>
+ */
+public class EntitySpatialIndex {
+
+    /**
+     * Visits entities that match a query
+     */
+    public static interface EntityVisitor {
+
+        /**
+         * Visits an entity. Must not modify the index.
+         * @param entity The entity
+         */
+        public void visit(Entity entity);
+
+    }
+
+    /**
+     * Default size of a grid cell in world units
+     */
+    public static final double DEFAULT_CELL_SIZE = ServerTerrainChunk.CHUNK_DIMENSION;
+
+    /**
+     * Largest grid coordinate along each axis (coordinates are packed into 21 bits each)
+     */
+    static final int MAX_GRID_COORD = (1 << 21) - 1;
+
+    /**
+     * Key value marking an empty slot in the bucket table
+     */
+    static final long EMPTY_KEY = -1;
+
+    /**
+     * Initial capacity of the bucket table
+     */
+    static final int INITIAL_TABLE_CAPACITY = 64;
+
+    /**
+     * Initial capacity of each bucket
+     */
+    static final int INITIAL_BUCKET_CAPACITY = 4;
+
+    /**
+     * Size of a grid cell in world units
+     */
+    private final double cellSize;
+
+    /**
+     * Keys of the bucket table (open addressing, linear probing)
+     */
+    private long[] tableKeys;
+
+    /**
+     * Buckets of the bucket table
+     */
+    private Bucket[] tableBuckets;
+
+    /**
+     * Number of occupied slots in the bucket table (empty buckets keep their slot until the next rehash)
+     */
+    private int tableUsed = 0;
+
+    /**
+     * The tracking entry for each indexed entity
+     */
+    private Map<Entity,Entry> entries = new HashMap<Entity,Entry>();
+
+    /**
+     * Lock for thread safety
+     */
+    private ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Constructor
+     */
+    public EntitySpatialIndex(){
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Constructor
+     * @param cellSize The size of a grid cell in world units
+     */
+    public EntitySpatialIndex(double cellSize){
+        if(cellSize <= 0){
+            throw new Error("Invalid cell size! " + cellSize);
+        }
+        this.cellSize = cellSize;
+        this.tableKeys = new long[INITIAL_TABLE_CAPACITY];
+        this.tableBuckets = new Bucket[INITIAL_TABLE_CAPACITY];
+        Arrays.fill(this.tableKeys, EMPTY_KEY);
+    }
+
+    /**
+     * Adds an entity to the index, or moves it if it is already indexed
+     * @param entity The entity
+     * @param position The position of the entity
+     */
+    public void update(Entity entity, Vector3d position){
+        if(entity == null || position == null){
+            return;
+        }
+        long key = this.getKey(position.x, position.y, position.z);
+        lock.lock();
+        Entry entry = entries.get(entity);
+        if(entry == null){
+            entry = new Entry(entity);
+            entries.put(entity, entry);
+            this.getOrCreateBucket(key).add(entry);
+        } else if(entry.bucket.key != key){
+            entry.bucket.remove(entry);
+            this.getOrCreateBucket(key).add(entry);
+        }
+        lock.unlock();
+    }
+
+    /**
+     * Removes an entity from the index
+     * @param entity The entity
+     */
+    public void remove(Entity entity){
+        lock.lock();
+        Entry entry = entries.remove(entity);
+        if(entry != null){
+            entry.bucket.remove(entry);
+        }
+        lock.unlock();
+    }
+
+    /**
+     * Visits every entity within a radius of a point
+     * @param center The center of the sphere
+     * @param radius The radius of the sphere
+     * @param visitor The visitor
+     */
+    public void queryRadius(Vector3d center, double radius, EntityVisitor visitor){
+        double radiusSquared = radius * radius;
+        int minX = this.toGrid(center.x - radius);
+        int minY = this.toGrid(center.y - radius);
+        int minZ = this.toGrid(center.z - radius);
+        int maxX = this.toGrid(center.x + radius);
+        int maxY = this.toGrid(center.y + radius);
+        int maxZ = this.toGrid(center.z + radius);
+        lock.lock();
+        try {
+            for(int x = minX; x <= maxX; x++){
+                for(int y = minY; y <= maxY; y++){
+                    for(int z = minZ; z <= maxZ; z++){
+                        Bucket bucket = this.getBucket(EntitySpatialIndex.packKey(x, y, z));
+                        if(bucket == null){
+                            continue;
+                        }
+                        for(int i = 0; i < bucket.count; i++){
+                            Entity entity = bucket.items[i].entity;
+                            Vector3d position = EntityUtils.getPosition(entity);
+                            if(position != null && position.distanceSquared(center) <= radiusSquared){
+                                visitor.visit(entity);
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Collects every entity within a radius of a point
+     * @param center The center of the sphere
+     * @param radius The radius of the sphere
+     * @param out The collection to add the entities to
+     */
+    public void queryRadius(Vector3d center, double radius, Collection<Entity> out){
+        this.queryRadius(center, radius, out::add);
+    }
+
+    /**
+     * Visits every entity inside an axis-aligned box
+     * @param min The minimum corner of the box
+     * @param max The maximum corner of the box
+     * @param visitor The visitor
+     */
+    public void queryAABB(Vector3d min, Vector3d max, EntityVisitor visitor){
+        int minX = this.toGrid(min.x);
+        int minY = this.toGrid(min.y);
+        int minZ = this.toGrid(min.z);
+        int maxX = this.toGrid(max.x);
+        int maxY = this.toGrid(max.y);
+        int maxZ = this.toGrid(max.z);
+        lock.lock();
+        try {
+            for(int x = minX; x <= maxX; x++){
+                for(int y = minY; y <= maxY; y++){
+                    for(int z = minZ; z <= maxZ; z++){
+                        Bucket bucket = this.getBucket(EntitySpatialIndex.packKey(x, y, z));
+                        if(bucket == null){
+                            continue;
+                        }
+                        for(int i = 0; i < bucket.count; i++){
+                            Entity entity = bucket.items[i].entity;
+                            Vector3d position = EntityUtils.getPosition(entity);
+                            if(
+                                position != null &&
+                                position.x >= min.x && position.y >= min.y && position.z >= min.z &&
+                                position.x <= max.x && position.y <= max.y && position.z <= max.z
+                            ){
+                                visitor.visit(entity);
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Collects every entity inside an axis-aligned box
+     * @param min The minimum corner of the box
+     * @param max The maximum corner of the box
+     * @param out The collection to add the entities to
+     */
+    public void queryAABB(Vector3d min, Vector3d max, Collection<Entity> out){
+        this.queryAABB(min, max, out::add);
+    }
+
+    /**
+     * Checks if an entity is indexed
+     * @param entity The entity
+     * @return true if it is indexed, false otherwise
+     */
+    public boolean contains(Entity entity){
+        lock.lock();
+        boolean rVal = entries.containsKey(entity);
+        lock.unlock();
+        return rVal;
+    }
+
+    /**
+     * Gets the number of indexed entities
+     * @return The number of entities
+     */
+    public int size(){
+        lock.lock();
+        int rVal = entries.size();
+        lock.unlock();
+        return rVal;
+    }
+
+    /**
+     * Removes every entity from the index
+     */
+    public void clear(){
+        lock.lock();
+        entries.clear();
+        this.tableKeys = new long[INITIAL_TABLE_CAPACITY];
+        this.tableBuckets = new Bucket[INITIAL_TABLE_CAPACITY];
+        Arrays.fill(this.tableKeys, EMPTY_KEY);
+        this.tableUsed = 0;
+        lock.unlock();
+    }
+
+    /**
+     * Converts a world coordinate to a grid coordinate
+     * @param world The world coordinate
+     * @return The grid coordinate, clamped to the range the keys can represent
+     */
+    private int toGrid(double world){
+        int rVal = (int)Math.floor(world / cellSize);
+        if(rVal < 0){
+            return 0;
+        }
+        if(rVal > MAX_GRID_COORD){
+            return MAX_GRID_COORD;
+        }
+        return rVal;
+    }
+
+    /**
+     * Gets the bucket key for a world position
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @return The key
+     */
+    private long getKey(double x, double y, double z){
+        return EntitySpatialIndex.packKey(this.toGrid(x), this.toGrid(y), this.toGrid(z));
+    }
+
+    /**
+     * Packs grid coordinates into a bucket key
+     * @param x The x grid coordinate
+     * @param y The y grid coordinate
+     * @param z The z grid coordinate
+     * @return The key
+     */
+    static long packKey(int x, int y, int z){
+        return ((long)x << 42) | ((long)y << 21) | (long)z;
+    }
+
+    /**
+     * Gets the first probe slot for a key
+     * @param key The key
+     * @param capacity The capacity of the table (a power of two)
+     * @return The slot
+     */
+    private static int getSlot(long key, int capacity){
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int)(hash ^ (hash >>> 32)) & (capacity - 1);
+    }
+
+    /**
+     * Gets the bucket for a key
+     * @param key The key
+     * @return The bucket, or null if there is none
+     */
+    private Bucket getBucket(long key){
+        int mask = tableKeys.length - 1;
+        int slot = EntitySpatialIndex.getSlot(key, tableKeys.length);
+        while(tableKeys[slot] != EMPTY_KEY){
+            if(tableKeys[slot] == key){
+                return tableBuckets[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Gets the bucket for a key, creating it if it does not exist
+     * @param key The key
+     * @return The bucket
+     */
+    private Bucket getOrCreateBucket(long key){
+        Bucket rVal = this.getBucket(key);
+        if(rVal != null){
+            return rVal;
+        }
+        if((tableUsed + 1) * 2 > tableKeys.length){
+            //drop empty buckets while rehashing, only grow if the live buckets actually need the room
+            int liveBuckets = 0;
+            for(int i = 0; i < tableBuckets.length; i++){
+                if(tableBuckets[i] != null && tableBuckets[i].count > 0){
+                    liveBuckets++;
+                }
+            }
+            int newCapacity = tableKeys.length;
+            if((liveBuckets + 1) * 4 > tableKeys.length){
+                newCapacity = tableKeys.length * 2;
+            }
+            this.rehash(newCapacity);
+        }
+        rVal = new Bucket(key);
+        int mask = tableKeys.length - 1;
+        int slot = EntitySpatialIndex.getSlot(key, tableKeys.length);
+        while(tableKeys[slot] != EMPTY_KEY){
+            slot = (slot + 1) & mask;
+        }
+        tableKeys[slot] = key;
+        tableBuckets[slot] = rVal;
+        tableUsed++;
+        return rVal;
+    }
+
+    /**
+     * Rebuilds the bucket table at a given capacity, discarding empty buckets
+     * @param capacity The new capacity (a power of two)
+     */
+    private void rehash(int capacity){
+        Bucket[] oldBuckets = tableBuckets;
+        this.tableKeys = new long[capacity];
+        this.tableBuckets = new Bucket[capacity];
+        Arrays.fill(this.tableKeys, EMPTY_KEY);
+        this.tableUsed = 0;
+        int mask = capacity - 1;
+        for(Bucket bucket : oldBuckets){
+            if(bucket == null || bucket.count == 0){
+                continue;
+            }
+            int slot = EntitySpatialIndex.getSlot(bucket.key, capacity);
+            while(tableKeys[slot] != EMPTY_KEY){
+                slot = (slot + 1) & mask;
+            }
+            tableKeys[slot] = bucket.key;
+            tableBuckets[slot] = bucket;
+            tableUsed++;
+        }
+    }
+
+    /**
+     * A grid cell's worth of entities
+     */
+    private static class Bucket {
+
+        /**
+         * The key of the bucket
+         */
+        final long key;
+
+        /**
+         * The entries in the bucket
+         */
+        Entry[] items = new Entry[INITIAL_BUCKET_CAPACITY];
+
+        /**
+         * The number of entries in the bucket
+         */
+        int count = 0;
+
+        /**
+         * Constructor
+         * @param key The key of the bucket
+         */
+        Bucket(long key){
+            this.key = key;
+        }
+
+        /**
+         * Adds an entry to the bucket
+         * @param entry The entry
+         */
+        void add(Entry entry){
+            if(count == items.length){
+                Entry[] newItems = new Entry[items.length * 2];
+                System.arraycopy(items, 0, newItems, 0, count);
+                items = newItems;
+            }
+            entry.bucket = this;
+            entry.index = count;
+            items[count] = entry;
+            count++;
+        }
+
+        /**
+         * Removes an entry from the bucket by swapping the last entry into its place
+         * @param entry The entry
+         */
+        void remove(Entry entry){
+            int last = count - 1;
+            if(entry.index != last){
+                items[entry.index] = items[last];
+                items[entry.index].index = entry.index;
+            }
+            items[last] = null;
+            count--;
+            entry.bucket = null;
+            entry.index = -1;
+        }
+
+    }
+
+    /**
+     * Tracks where an entity is stored in the index
+     */
+    private static class Entry {
+
+        /**
+         * The entity
+         */
+        final Entity entity;
+
+        /**
+         * The bucket containing the entity
+         */
+        Bucket bucket;
+
+        /**
+         * The index of the entity within the bucket
+         */
+        int index = -1;
+
+        /**
+         * Constructor
+         * @param entity The entity
+         */
+        Entry(Entity entity){
+            this.entity = entity;
+        }
+
+    }
+
+}
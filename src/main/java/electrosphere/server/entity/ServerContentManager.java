@@ -14,7 +14,6 @@ import electrosphere.entity.types.creature.CreatureUtils;
 import electrosphere.logger.LoggerInterface;
 import electrosphere.server.datacell.Realm;
 import electrosphere.server.datacell.ServerDataCell;
-import electrosphere.server.datacell.ServerWorldData;
 import electrosphere.server.entity.serialization.ContentSerialization;
 import electrosphere.server.macro.MacroData;
 import electrosphere.server.saves.SaveUtils;
@@ -81,7 +80,7 @@ public class ServerContentManager {
         if(macroData == null){
             objects = new LinkedList<MacroObject>();
         } else {
-            objects = macroData.getNearbyObjects(ServerWorldData.convertChunkToRealSpace(worldPos.x, worldPos.y, worldPos.z));
+            objects = macroData.getChunkObjects(worldPos.x, worldPos.y, worldPos.z);
             //if any of this macro data isn't ready, return a null chunk
             long notFullResCount = objects.stream().filter((MacroObject macroObj) -> macroObj instanceof MacroLODObject).map((MacroObject oldView) -> (MacroLODObject)oldView).filter((MacroLODObject lodObj) -> !lodObj.isFullRes()).count();
             int waitCount = 0;
@@ -1,6 +1,8 @@
 package electrosphere.server.macro;
 
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -20,6 +22,7 @@ import electrosphere.server.macro.civilization.town.Town;
 import electrosphere.server.macro.region.MacroRegion;
 import electrosphere.server.macro.spatial.MacroAreaObject;
 import electrosphere.server.macro.spatial.MacroObject;
+import electrosphere.server.macro.spatial.MacroSpatialIndex;
 import electrosphere.server.macro.spatial.path.MacroPathCache;
 import electrosphere.server.macro.structure.VirtualStructure;
 import electrosphere.util.FileUtils;
@@ -29,7 +32,7 @@ import electrosphere.util.math.GeomUtils;
 import java.util.Random;
 
 import org.joml.AABBd;
-import org.joml.Vector3d;
+import org.joml.Vector3i;
 
 /**
  * Server macro level data
@@ -73,6 +76,28 @@ public class MacroData {
     @Exclude
     private Map<Long,MacroRegion> idRegionMap = new HashMap<Long,MacroRegion>();
 
+    /**
+     * Kind of a town child that is a structure
+     */
+    private static final int TOWN_CHILD_STRUCTURE = 0;
+
+    /**
+     * Kind of a town child that is a farm plot
+     */
+    private static final int TOWN_CHILD_FARM_PLOT = 1;
+
+    /**
+     * Maps each structure and farm plot that belongs to a town to the key that orders it among the town children
+     */
+    @Exclude
+    private Map<MacroObject,Long> townChildKeys = new IdentityHashMap<MacroObject,Long>();
+
+    /**
+     * Indexes the towns, structures, regions and roads by their bounds
+     */
+    @Exclude
+    private MacroSpatialIndex spatialIndex = new MacroSpatialIndex();
+
     /**
      * List of roads
      */
@@ -167,11 +192,37 @@ public class MacroData {
      * Rebuilds datastructures for the macro data
      */
     public void rebuildDatastructures(){
+        this.spatialIndex.clear();
         for(VirtualStructure struct : this.structures){
             this.idStructMap.put(struct.getId(),struct);
+            this.spatialIndex.add(struct);
         }
         for(MacroRegion region : this.regions){
             this.idRegionMap.put(region.getId(),region);
+            this.spatialIndex.add(region);
+        }
+        this.townChildKeys.clear();
+        for(Town town : this.towns){
+            this.spatialIndex.add(town);
+            int order = 0;
+            for(Integer structId : town.getStructureIds()){
+                VirtualStructure struct = this.idStructMap.get(structId);
+                if(struct != null){
+                    this.townChildKeys.put(struct, MacroData.getTownChildKey(town.getId(), TOWN_CHILD_STRUCTURE, order));
+                }
+                order++;
+            }
+            order = 0;
+            for(Long regionId : town.getFarmPlotIds()){
+                MacroRegion region = this.idRegionMap.get(regionId);
+                if(region != null){
+                    this.townChildKeys.put(region, MacroData.getTownChildKey(town.getId(), TOWN_CHILD_FARM_PLOT, order));
+                }
+                order++;
+            }
+        }
+        for(Road road : this.roads){
+            this.spatialIndex.add(road);
         }
         if(this.pathingCache != null){
             this.pathingCache.reconstruct();
@@ -234,6 +285,7 @@ public class MacroData {
     public void addTown(Town town){
         town.setId(towns.size());
         towns.add(town);
+        this.spatialIndex.add(town);
     }
 
     /**
@@ -257,6 +309,7 @@ public class MacroData {
     public void addRoad(Road road){
         road.setId(this.roads.size());
         this.roads.add(road);
+        this.spatialIndex.add(road);
     }
 
     /**
@@ -275,6 +328,7 @@ public class MacroData {
         region.setId(regions.size());
         regions.add(region);
         idRegionMap.put(region.getId(),region);
+        this.spatialIndex.add(region);
     }
 
     /**
@@ -311,34 +365,99 @@ public class MacroData {
         structure.setId(structures.size());
         structures.add(structure);
         this.idStructMap.put(structure.getId(),structure);
+        this.spatialIndex.add(structure);
     }
 
     /**
-     * Gets the nearby objects
-     * @param position The position to search near
+     * Gets the objects that intersect a chunk.
+     * <p>
+     * Only roads, towns, and the structures and farm plots that belong to a town are returned; standalone structures and regions
+     * (ie placed by a character) are not part of terrain generation. The result is ordered roads (by id), then towns (by id),
+     * then each town's structures followed by its farm plots (in town order). Generators stamp in list order, so this order
+     * must not depend on the order objects were inserted into the spatial index.
+     * Only the objects the spatial index returns are looked at.
+     * </p>
+     * @param worldX The world x coordinate of the chunk
+     * @param worldY The world y coordinate of the chunk
+     * @param worldZ The world z coordinate of the chunk
      * @return The list of objects
      */
-    public List<MacroObject> getNearbyObjects(Vector3d position){
+    public List<MacroObject> getChunkObjects(int worldX, int worldY, int worldZ){
+        AABBd chunkAABB = new AABBd(
+            ServerWorldData.convertChunkToRealSpace(new Vector3i(worldX,worldY,worldZ)),
+            ServerWorldData.convertChunkToRealSpace(new Vector3i(worldX+1,worldY+1,worldZ+1))
+        );
+        List<Road> hitRoads = new LinkedList<Road>();
+        List<Town> hitTowns = new LinkedList<Town>();
+        List<MacroObject> hitChildren = new LinkedList<MacroObject>();
+        for(MacroObject object : this.spatialIndex.getIntersecting(chunkAABB)){
+            if(object instanceof Road road){
+                hitRoads.add(road);
+            } else if(object instanceof Town town){
+                hitTowns.add(town);
+            } else if(this.townChildKeys.containsKey(object)){
+                hitChildren.add(object);
+            }
+        }
+        hitRoads.sort(Comparator.comparingInt(Road::getId));
+        hitTowns.sort(Comparator.comparingInt(Town::getId));
+        hitChildren.sort(Comparator.comparingLong((MacroObject child) -> this.townChildKeys.get(child)));
         List<MacroObject> rVal = new LinkedList<MacroObject>();
-        rVal.addAll(this.roads);
-        rVal.addAll(this.towns);
+        rVal.addAll(hitRoads);
+        rVal.addAll(hitTowns);
+        rVal.addAll(hitChildren);
         return rVal;
     }
 
+    /**
+     * Adds a structure to a town
+     * @param town The town
+     * @param structure The structure, already added to the macro data
+     */
+    public void addTownStructure(Town town, VirtualStructure structure){
+        town.addStructure(structure);
+        this.townChildKeys.put(structure, MacroData.getTownChildKey(town.getId(), TOWN_CHILD_STRUCTURE, town.getStructureIds().size() - 1));
+    }
+
+    /**
+     * Adds a farm plot to a town
+     * @param town The town
+     * @param region The farm plot's region, already registered with the macro data
+     */
+    public void addTownFarmPlot(Town town, MacroRegion region){
+        town.addFarmPlot(region);
+        this.townChildKeys.put(region, MacroData.getTownChildKey(town.getId(), TOWN_CHILD_FARM_PLOT, town.getFarmPlotIds().size() - 1));
+    }
+
+    /**
+     * Gets the key that orders a town's child objects: by town, then structures before farm plots, then the order they were added to the town
+     * @param townId The id of the town
+     * @param kind The kind of child
+     * @param order The position of the child in the town's list
+     * @return The key
+     */
+    private static long getTownChildKey(int townId, int kind, int order){
+        return ((long)townId << 32) | ((long)kind << 31) | order;
+    }
+
+    /**
+     * Gets the spatial index of the macro objects
+     * @return The spatial index
+     */
+    public MacroSpatialIndex getSpatialIndex(){
+        return this.spatialIndex;
+    }
+
     /**
      * Checks if the aabb intersects any existing structs
      * @param aabb The aabb
      * @return true if it intersects any existing structs, false otheriwse
      */
     public boolean intersectsStruct(AABBd aabb){
-        for(VirtualStructure struct : this.structures){
-            if(struct.getAABB().testAABB(aabb)){
+        for(MacroObject object : this.spatialIndex.getIntersecting(aabb)){
+            if(object instanceof VirtualStructure){
                 return true;
-            }
-        }
-        for(Road road : this.roads){
-            //broad phase
-            if(road.getAABB().testAABB(aabb)){
+            } else if(object instanceof Road road){
                 //near phase
                 if(GeomUtils.intersectAABBTube(aabb, road.getPoint1(), road.getPoint2(), road.getRadius())){
                     return true;
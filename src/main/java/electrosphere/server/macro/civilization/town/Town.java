@@ -107,12 +107,20 @@ public class Town implements MacroAreaObject, MacroLODObject {
     }
     
     /**
-     * Adds a structure to the town
+     * Adds a structure to the town. Use MacroData.addTownStructure so that terrain generation picks the structure up.
      * @param structure The structure
      */
     public void addStructure(VirtualStructure structure){
         structures.add(structure.getId());
     }
+
+    /**
+     * Gets the ids of the structures in the town, in the order they were added
+     * @return The ids
+     */
+    public List<Integer> getStructureIds(){
+        return structures;
+    }
     
     /**
      * Gets the structures that are a part of the town
@@ -150,13 +158,21 @@ public class Town implements MacroAreaObject, MacroLODObject {
     }
 
     /**
-     * Adds a farm plot region
+     * Adds a farm plot region. Use MacroData.addTownFarmPlot so that terrain generation picks the farm plot up.
      * @param farmPlotRegion The region for the farm plot
      */
     public void addFarmPlot(MacroRegion farmPlotRegion){
         this.farmPlotRegions.add(farmPlotRegion.getId());
     }
 
+    /**
+     * Gets the ids of the farm plot regions in the town, in the order they were added
+     * @return The ids
+     */
+    public List<Long> getFarmPlotIds(){
+        return this.farmPlotRegions;
+    }
+
     /**
      * Adds a job to the town
      * @param job The job
@@ -476,7 +476,7 @@ public class TownLayout {
 
             if(!macroData.intersectsStruct(aabb)){
                 VirtualStructure struct = VirtualStructure.createStructure(macroData, structureData, currPos, rotation1);
-                town.addStructure(struct);
+                macroData.addTownStructure(town, struct);
                 //create pathing node for structure and link it to nearest town centers
                 MacroPathNode structNode = MacroPathNode.create(pathCache, struct, new Vector3d(currPos));
                 structNode.addNeighbor(roadPoint1);
@@ -508,7 +508,7 @@ public class TownLayout {
 
             if(!macroData.intersectsStruct(aabb)){
                 VirtualStructure struct = VirtualStructure.createStructure(macroData, structureData, currPos, rotation2);
-                town.addStructure(struct);
+                macroData.addTownStructure(town, struct);
                 //create pathing node for structure and link it to nearest town centers
                 MacroPathNode structNode = MacroPathNode.create(pathCache, struct, new Vector3d(currPos));
                 structNode.addNeighbor(roadPoint1);
@@ -540,7 +540,7 @@ public class TownLayout {
             new Vector3d(point4).sub(0,FARM_PLOT_DEFAULT_HEIGHT/2.0f,0),
         }, FARM_PLOT_DEFAULT_HEIGHT);
         MacroRegion macroRegion = MacroRegion.create(macroData, region);
-        town.addFarmPlot(macroRegion);
+        macroData.addTownFarmPlot(town, macroRegion);
         //find center point of region
         Vector3d centerPoint = new Vector3d();
         centerPoint.add(point1);
@@ -0,0 +1,203 @@
+package electrosphere.server.macro.spatial;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.joml.AABBd;
+import org.joml.Vector3d;
+
+/**
+ * Indexes macro objects by their bounds so that the objects touching an area can be found without scanning every object
+ * <p>
+ * Objects are bucketed into a uniform grid of columns on the x-z plane. An area object is put in every column its AABB overlaps,
+ * a point object in the column containing its position. Objects are indexed by the bounds they had when they were added,
+ * so an object that moves must be removed and added again.
+ * </p>
+ */
+public class MacroSpatialIndex {
+
+    /**
+     * The width of a grid column in real space
+     */
+    public static final double CELL_SIZE = 128;
+
+    /**
+     * The objects in each grid column
+     */
+    Map<Long,List<MacroObject>> cells = new HashMap<Long,List<MacroObject>>();
+
+    /**
+     * The number of objects in the index
+     */
+    int size = 0;
+
+    /**
+     * Lock for thread-safeing the index
+     */
+    ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Adds an object to the index
+     * @param object The object
+     */
+    public void add(MacroObject object){
+        AABBd bounds = MacroSpatialIndex.getBounds(object);
+        int minX = MacroSpatialIndex.getCell(bounds.minX);
+        int maxX = MacroSpatialIndex.getCell(bounds.maxX);
+        int minZ = MacroSpatialIndex.getCell(bounds.minZ);
+        int maxZ = MacroSpatialIndex.getCell(bounds.maxZ);
+        lock.lock();
+        for(int x = minX; x <= maxX; x++){
+            for(int z = minZ; z <= maxZ; z++){
+                long key = MacroSpatialIndex.getKey(x, z);
+                List<MacroObject> cell = cells.get(key);
+                if(cell == null){
+                    cell = new LinkedList<MacroObject>();
+                    cells.put(key, cell);
+                }
+                cell.add(object);
+            }
+        }
+        size++;
+        lock.unlock();
+    }
+
+    /**
+     * Removes an object from the index
+     * @param object The object
+     */
+    public void remove(MacroObject object){
+        AABBd bounds = MacroSpatialIndex.getBounds(object);
+        int minX = MacroSpatialIndex.getCell(bounds.minX);
+        int maxX = MacroSpatialIndex.getCell(bounds.maxX);
+        int minZ = MacroSpatialIndex.getCell(bounds.minZ);
+        int maxZ = MacroSpatialIndex.getCell(bounds.maxZ);
+        boolean removed = false;
+        lock.lock();
+        for(int x = minX; x <= maxX; x++){
+            for(int z = minZ; z <= maxZ; z++){
+                long key = MacroSpatialIndex.getKey(x, z);
+                List<MacroObject> cell = cells.get(key);
+                if(cell != null && cell.remove(object)){
+                    removed = true;
+                    if(cell.isEmpty()){
+                        cells.remove(key);
+                    }
+                }
+            }
+        }
+        if(removed){
+            size--;
+        }
+        lock.unlock();
+    }
+
+    /**
+     * Removes every object from the index
+     */
+    public void clear(){
+        lock.lock();
+        cells.clear();
+        size = 0;
+        lock.unlock();
+    }
+
+    /**
+     * Gets every object whose bounds intersect an AABB
+     * @param aabb The AABB
+     * @return The objects, each listed once
+     */
+    public List<MacroObject> getIntersecting(AABBd aabb){
+        List<MacroObject> rVal = new LinkedList<MacroObject>();
+        int minX = MacroSpatialIndex.getCell(aabb.minX);
+        int maxX = MacroSpatialIndex.getCell(aabb.maxX);
+        int minZ = MacroSpatialIndex.getCell(aabb.minZ);
+        int maxZ = MacroSpatialIndex.getCell(aabb.maxZ);
+        //an object spanning several columns should only be reported once
+        Set<MacroObject> seen = null;
+        if(minX != maxX || minZ != maxZ){
+            seen = Collections.newSetFromMap(new IdentityHashMap<MacroObject,Boolean>());
+        }
+        lock.lock();
+        for(int x = minX; x <= maxX; x++){
+            for(int z = minZ; z <= maxZ; z++){
+                List<MacroObject> cell = cells.get(MacroSpatialIndex.getKey(x, z));
+                if(cell == null){
+                    continue;
+                }
+                for(MacroObject object : cell){
+                    if(seen != null && !seen.add(object)){
+                        continue;
+                    }
+                    if(MacroSpatialIndex.intersects(object, aabb)){
+                        rVal.add(object);
+                    }
+                }
+            }
+        }
+        lock.unlock();
+        return rVal;
+    }
+
+    /**
+     * Gets the number of objects in the index
+     * @return The number of objects
+     */
+    public int getSize(){
+        return size;
+    }
+
+    /**
+     * Checks if an object intersects an AABB
+     * @param object The object
+     * @param aabb The AABB
+     * @return true if it intersects, false otherwise
+     */
+    public static boolean intersects(MacroObject object, AABBd aabb){
+        if(object instanceof MacroAreaObject areaObj){
+            return aabb.testAABB(areaObj.getAABB());
+        } else {
+            return aabb.testPoint(object.getPos());
+        }
+    }
+
+    /**
+     * Gets the bounds of an object
+     * @param object The object
+     * @return The bounds
+     */
+    private static AABBd getBounds(MacroObject object){
+        if(object instanceof MacroAreaObject areaObj){
+            return areaObj.getAABB();
+        } else {
+            Vector3d pos = object.getPos();
+            return new AABBd(pos, pos);
+        }
+    }
+
+    /**
+     * Gets the grid column containing a real coordinate
+     * @param real The real coordinate
+     * @return The grid column
+     */
+    private static int getCell(double real){
+        return (int)Math.floor(real / CELL_SIZE);
+    }
+
+    /**
+     * Gets the key of a grid column
+     * @param x The x coordinate of the column
+     * @param z The z coordinate of the column
+     * @return The key
+     */
+    private static long getKey(int x, int z){
+        return ((long)x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+}
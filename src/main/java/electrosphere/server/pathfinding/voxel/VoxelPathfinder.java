@@ -11,7 +11,6 @@ import java.util.stream.Collectors;
 import org.joml.Vector3d;
 import org.joml.Vector3i;
 
-import electrosphere.client.block.BlockChunkData;
 import electrosphere.server.datacell.ServerWorldData;
 import electrosphere.server.datacell.interfaces.VoxelCellManager;
 import electrosphere.server.physics.terrain.manager.ServerTerrainChunk;
@@ -32,11 +31,6 @@ public class VoxelPathfinder {
      */
     public static final int DEFAULT_MAX_COST = 12000;
 
-    /**
-     * Maximum number of blocks for a walkable position
-     */
-    static final int MAX_BLOCKS_FOR_WALKABLE = 0;
-
     /**
      * Maximum distance to scan for a walkable position
      */
@@ -46,6 +40,11 @@ public class VoxelPathfinder {
      * The heuristic lookup table
      */
     private int[][][] heuristic = new int[3][3][3];
+
+    /**
+     * The walkability of the chunks this pathfinder has searched through
+     */
+    private WalkabilityCache walkabilityCache = new WalkabilityCache(WalkabilityCache.DEFAULT_CAPACITY);
     
     /**
      * Finds a path between two points given a voxel cell manager
@@ -889,52 +888,28 @@ public class VoxelPathfinder {
      * @return true if it is passable, false otherwise
      */
     private boolean isWalkable(VoxelCellManager voxelCellManager, Vector3i chunkPos, Vector3i voxelPos){
-        int voxelType = voxelCellManager.getVoxelTypeAtLocalPosition(chunkPos, voxelPos);
-        float voxelWeight = voxelCellManager.getVoxelWeightAtLocalPosition(chunkPos, voxelPos);
-
-        //get the type of voxel above the current voxel
-        int aboveChunk = chunkPos.y + ((voxelPos.y + 1) / ServerTerrainChunk.CHUNK_PLACEMENT_OFFSET);
-        int aboveVoxel = ((voxelPos.y + 1) % ServerTerrainChunk.CHUNK_PLACEMENT_OFFSET);
-        ServerTerrainChunk chunk = voxelCellManager.getChunkAtPosition(chunkPos.x, aboveChunk, chunkPos.z);
-        int aboveType = chunk.getType(voxelPos.x, aboveVoxel, voxelPos.z);
-        float aboveWeight = chunk.getWeight(voxelPos.x, aboveVoxel, voxelPos.z);
-
-        //checks
-        boolean standingOnGround = voxelType != ServerTerrainChunk.VOXEL_TYPE_AIR && voxelWeight > 0;
-        boolean aboveIsAir = (aboveType == ServerTerrainChunk.VOXEL_TYPE_AIR || aboveWeight <= 0);
-
-        //check blocks as well
-        BlockChunkData blockChunkData = null;
-
-        Vector3i blockPos = new Vector3i();
-        Vector3i currChunk = new Vector3i(chunkPos);
-        Vector3i offsets = new Vector3i();
-        int numBlocks = 0;
-        for(int x = -1; x < 4; x++){
-            for(int y = -2; y < 4; y++){
-                for(int z = -1; z < 3; z++){
-                    blockPos.set(voxelPos).mul(BlockChunkData.BLOCKS_PER_UNIT_DISTANCE);
-                    currChunk.set(chunkPos);
-                    offsets.set(
-                        x,
-                        y + BlockChunkData.BLOCKS_PER_UNIT_DISTANCE,
-                        z
-                    );
-                    VoxelPathfinder.clampBlockOffsets(blockPos, currChunk, offsets);
-                    blockChunkData = voxelCellManager.getBlocksAtPosition(currChunk);
-                    if(blockChunkData.getType(
-                        blockPos.x,
-                        blockPos.y,
-                        blockPos.z
-                    ) != BlockChunkData.BLOCK_TYPE_EMPTY){
-                        numBlocks++;
-                    }
-                }
-            }
+        if(chunkPos.x < 0 || chunkPos.y < 0 || chunkPos.z < 0){
+            return false;
         }
-        boolean blocksChestHeight = numBlocks > MAX_BLOCKS_FOR_WALKABLE;
+        WalkabilityGrid grid = this.walkabilityCache.getGrid(voxelCellManager, chunkPos.x, chunkPos.y, chunkPos.z);
+        return grid.isWalkable(voxelPos.x, voxelPos.y, voxelPos.z);
+    }
 
-        return standingOnGround && aboveIsAir && !blocksChestHeight;
+    /**
+     * Invalidates the cached walkability around an edited chunk.
+     * Must be called once the edit has been applied.
+     * @param worldPosition The world position of the edited chunk
+     */
+    public void invalidateWalkability(Vector3i worldPosition){
+        this.walkabilityCache.invalidate(worldPosition);
+    }
+
+    /**
+     * Gets the cache of walkability grids
+     * @return The cache
+     */
+    public WalkabilityCache getWalkabilityCache(){
+        return walkabilityCache;
     }
 
 
@@ -1098,41 +1073,6 @@ public class VoxelPathfinder {
     }
 
 
-    /**
-     * Clamps offsets to valid block positions
-     * @param blockPos The existing block position
-     * @param chunkPos The existing chunk position
-     * @param offsets The offsets to apply
-     */
-    private static void clampBlockOffsets(Vector3i blockPos, Vector3i chunkPos, Vector3i offsets){
-        //calculate chunk offsets
-        int storageX = (blockPos.x + offsets.x);
-        int storageY = (blockPos.y + offsets.y);
-        int storageZ = (blockPos.z + offsets.z);
-        if(storageX < 0){
-            storageX = -1;
-        } else {
-            storageX = storageX / BlockChunkData.CHUNK_DATA_WIDTH;
-        }
-        if(storageY < 0){
-            storageY = -1;
-        } else {
-            storageY = storageY / BlockChunkData.CHUNK_DATA_WIDTH;
-        }
-        if(storageZ < 0){
-            storageZ = -1;
-        } else {
-            storageZ = storageZ / BlockChunkData.CHUNK_DATA_WIDTH;
-        }
-        //update world position
-        chunkPos.x = chunkPos.x + storageX;
-        chunkPos.y = chunkPos.y + storageY;
-        chunkPos.z = chunkPos.z + storageZ;
-        blockPos.x = (blockPos.x + offsets.x + BlockChunkData.CHUNK_DATA_WIDTH) % BlockChunkData.CHUNK_DATA_WIDTH;
-        blockPos.y = (blockPos.y + offsets.y + BlockChunkData.CHUNK_DATA_WIDTH) % BlockChunkData.CHUNK_DATA_WIDTH;
-        blockPos.z = (blockPos.z + offsets.z + BlockChunkData.CHUNK_DATA_WIDTH) % BlockChunkData.CHUNK_DATA_WIDTH;
-    }
-
     /**
      * A node to use during searching
      */
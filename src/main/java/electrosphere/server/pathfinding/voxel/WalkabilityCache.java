@@ -0,0 +1,148 @@
+package electrosphere.server.pathfinding.voxel;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.joml.Vector3i;
+
+import electrosphere.server.datacell.interfaces.VoxelCellManager;
+import electrosphere.util.math.HashUtils;
+
+/**
+ * Caches the walkability grids of chunks so that pathfinding doesn't go back to the terrain and block managers for every voxel it considers
+ * <p>
+ * Reads don't take a lock. Grids are immutable and are swapped in and out of a concurrent map.
+ * Two threads that miss on the same chunk both build it and the last one in wins, which is harmless because the grids are identical.
+ * </p>
+ * <p>
+ * A grid that was being built while its chunk was edited could hold stale data. Every invalidation bumps a generation counter,
+ * and a builder that sees the counter move while it was building removes the grid it just added.
+ * </p>
+ */
+public class WalkabilityCache {
+
+    /**
+     * The default number of grids to cache
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /**
+     * The cached grids
+     */
+    Map<Long,WalkabilityGrid> grids = new ConcurrentHashMap<Long,WalkabilityGrid>();
+
+    /**
+     * The number of grids to hold before the cache is emptied
+     */
+    int capacity;
+
+    /**
+     * Incremented every time a grid is invalidated
+     */
+    AtomicLong generation = new AtomicLong(0);
+
+    /**
+     * Number of cache hits
+     */
+    LongAdder hits = new LongAdder();
+
+    /**
+     * Number of cache misses
+     */
+    LongAdder misses = new LongAdder();
+
+    /**
+     * Constructor
+     * @param capacity The number of grids to cache
+     */
+    public WalkabilityCache(int capacity){
+        if(capacity < 1){
+            throw new Error("Invalid walkability cache capacity! " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Gets the walkability grid of a chunk, building it if it isn't cached
+     * @param voxelCellManager The voxel cell manager to build the grid from
+     * @param worldX The world x coordinate of the chunk
+     * @param worldY The world y coordinate of the chunk
+     * @param worldZ The world z coordinate of the chunk
+     * @return The grid
+     */
+    public WalkabilityGrid getGrid(VoxelCellManager voxelCellManager, int worldX, int worldY, int worldZ){
+        long key = HashUtils.hashIVec(worldX, worldY, worldZ);
+        WalkabilityGrid rVal = grids.get(key);
+        if(rVal != null){
+            hits.increment();
+            return rVal;
+        }
+        misses.increment();
+        long startGeneration = generation.get();
+        rVal = WalkabilityGrid.build(voxelCellManager, worldX, worldY, worldZ);
+        if(grids.size() >= capacity){
+            grids.clear();
+        }
+        grids.put(key, rVal);
+        if(generation.get() != startGeneration){
+            //an edit landed while this was being built
+            grids.remove(key, rVal);
+        }
+        return rVal;
+    }
+
+    /**
+     * Invalidates every grid that reads data from an edit.
+     * Terrain edits also touch the chunks one below along each axis, and a grid reads the terrain chunk above it and the block chunks one below along x, z and one above along y,
+     * so grids up to two below and one to either side along x and z are dropped.
+     * @param worldPosition The world position of the edited chunk
+     */
+    public void invalidate(Vector3i worldPosition){
+        generation.incrementAndGet();
+        for(int x = worldPosition.x - 1; x <= worldPosition.x + 1; x++){
+            for(int y = worldPosition.y - 2; y <= worldPosition.y; y++){
+                for(int z = worldPosition.z - 1; z <= worldPosition.z + 1; z++){
+                    if(x < 0 || y < 0 || z < 0){
+                        continue;
+                    }
+                    grids.remove(HashUtils.hashIVec(x, y, z));
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops every cached grid
+     */
+    public void clear(){
+        generation.incrementAndGet();
+        grids.clear();
+    }
+
+    /**
+     * Gets the number of cached grids
+     * @return The number of grids
+     */
+    public int getSize(){
+        return grids.size();
+    }
+
+    /**
+     * Gets the number of hits
+     * @return The number of hits
+     */
+    public long getHits(){
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of misses
+     * @return The number of misses
+     */
+    public long getMisses(){
+        return misses.sum();
+    }
+
+}
@@ -0,0 +1,272 @@
+package electrosphere.server.pathfinding.voxel;
+
+import org.joml.Vector3i;
+
+import electrosphere.client.block.BlockChunkData;
+import electrosphere.server.datacell.interfaces.VoxelCellManager;
+import electrosphere.server.physics.terrain.manager.ServerTerrainChunk;
+
+/**
+ * The walkability of every voxel in a chunk, packed into bitsets
+ * <p>
+ * A voxel is walkable if it is solid ground, the voxel above it is open, and there are no blocks around where an entity standing on it would be.
+ * The grid is read from the terrain chunk, the chunk above it (for the headroom of the top layer) and the block chunks the block window can reach into.
+ * Not modified after it is built, so it can be read by several pathfinding threads at once.
+ * </p>
+ */
+public class WalkabilityGrid {
+
+    /**
+     * The number of voxels along each axis of the grid
+     */
+    public static final int WIDTH = ServerTerrainChunk.CHUNK_PLACEMENT_OFFSET;
+
+    /**
+     * The number of longs in each bitset
+     */
+    static final int BITSET_LENGTH = (WIDTH * WIDTH * WIDTH + Long.SIZE - 1) / Long.SIZE;
+
+    /**
+     * The minimum block offset along x checked around a voxel
+     */
+    static final int BLOCK_WINDOW_MIN_X = -1;
+
+    /**
+     * The maximum block offset along x checked around a voxel (exclusive)
+     */
+    static final int BLOCK_WINDOW_MAX_X = 4;
+
+    /**
+     * The minimum block offset along y checked around a voxel. Starts one voxel up, at the feet of an entity standing on the voxel.
+     */
+    static final int BLOCK_WINDOW_MIN_Y = -2 + BlockChunkData.BLOCKS_PER_UNIT_DISTANCE;
+
+    /**
+     * The maximum block offset along y checked around a voxel (exclusive)
+     */
+    static final int BLOCK_WINDOW_MAX_Y = 4 + BlockChunkData.BLOCKS_PER_UNIT_DISTANCE;
+
+    /**
+     * The minimum block offset along z checked around a voxel
+     */
+    static final int BLOCK_WINDOW_MIN_Z = -1;
+
+    /**
+     * The maximum block offset along z checked around a voxel (exclusive)
+     */
+    static final int BLOCK_WINDOW_MAX_Z = 3;
+
+    /**
+     * Voxels that are solid ground that can be stood on
+     */
+    final long[] standable = new long[BITSET_LENGTH];
+
+    /**
+     * Voxels where the voxel above is open
+     */
+    final long[] headroom = new long[BITSET_LENGTH];
+
+    /**
+     * Voxels where a block occupies the space an entity standing on the voxel would take up
+     */
+    final long[] blocked = new long[BITSET_LENGTH];
+
+    /**
+     * Voxels that are standable, have headroom and aren't blocked
+     */
+    final long[] walkable = new long[BITSET_LENGTH];
+
+    /**
+     * Builds the grid for a chunk
+     * @param voxelCellManager The voxel cell manager to read terrain and blocks from
+     * @param worldX The world x coordinate of the chunk
+     * @param worldY The world y coordinate of the chunk
+     * @param worldZ The world z coordinate of the chunk
+     * @return The grid
+     */
+    public static WalkabilityGrid build(VoxelCellManager voxelCellManager, int worldX, int worldY, int worldZ){
+        WalkabilityGrid rVal = new WalkabilityGrid();
+        ServerTerrainChunk chunk = voxelCellManager.getChunkAtPosition(worldX, worldY, worldZ);
+        ServerTerrainChunk aboveChunk = voxelCellManager.getChunkAtPosition(worldX, worldY + 1, worldZ);
+
+        //terrain
+        for(int x = 0; x < WIDTH; x++){
+            for(int y = 0; y < WIDTH; y++){
+                for(int z = 0; z < WIDTH; z++){
+                    int index = WalkabilityGrid.getIndex(x, y, z);
+                    if(chunk.getType(x, y, z) != ServerTerrainChunk.VOXEL_TYPE_AIR && chunk.getWeight(x, y, z) > 0){
+                        rVal.standable[index >>> 6] |= 1L << index;
+                    }
+                    boolean aboveIsAir = false;
+                    if(y + 1 < WIDTH){
+                        aboveIsAir = chunk.getType(x, y + 1, z) == ServerTerrainChunk.VOXEL_TYPE_AIR || chunk.getWeight(x, y + 1, z) <= 0;
+                    } else if(aboveChunk == null){
+                        aboveIsAir = true;
+                    } else {
+                        aboveIsAir = aboveChunk.getType(x, 0, z) == ServerTerrainChunk.VOXEL_TYPE_AIR || aboveChunk.getWeight(x, 0, z) <= 0;
+                    }
+                    if(aboveIsAir){
+                        rVal.headroom[index >>> 6] |= 1L << index;
+                    }
+                }
+            }
+        }
+
+        //blocks
+        BlockChunkData[][][] blockChunks = WalkabilityGrid.getBlockChunks(voxelCellManager, worldX, worldY, worldZ);
+        if(blockChunks != null){
+            for(int x = 0; x < WIDTH; x++){
+                for(int y = 0; y < WIDTH; y++){
+                    for(int z = 0; z < WIDTH; z++){
+                        if(WalkabilityGrid.isBlocked(blockChunks, x, y, z)){
+                            int index = WalkabilityGrid.getIndex(x, y, z);
+                            rVal.blocked[index >>> 6] |= 1L << index;
+                        }
+                    }
+                }
+            }
+        }
+
+        for(int i = 0; i < BITSET_LENGTH; i++){
+            rVal.walkable[i] = rVal.standable[i] & rVal.headroom[i] & ~rVal.blocked[i];
+        }
+        return rVal;
+    }
+
+    /**
+     * Gets the block chunks that the block windows of a chunk's voxels can reach into.
+     * The windows reach one chunk down along x and z and one chunk up along y.
+     * @param voxelCellManager The voxel cell manager
+     * @param worldX The world x coordinate of the chunk
+     * @param worldY The world y coordinate of the chunk
+     * @param worldZ The world z coordinate of the chunk
+     * @return The block chunks indexed by offset+1 along x and z and offset along y, or null if they are all empty
+     */
+    private static BlockChunkData[][][] getBlockChunks(VoxelCellManager voxelCellManager, int worldX, int worldY, int worldZ){
+        BlockChunkData[][][] rVal = new BlockChunkData[2][2][2];
+        boolean allEmpty = true;
+        Vector3i position = new Vector3i();
+        for(int x = 0; x < 2; x++){
+            for(int y = 0; y < 2; y++){
+                for(int z = 0; z < 2; z++){
+                    position.set(worldX + x - 1, worldY + y, worldZ + z - 1);
+                    if(position.x < 0 || position.z < 0){
+                        continue;
+                    }
+                    BlockChunkData blockChunk = voxelCellManager.getBlocksAtPosition(position);
+                    if(blockChunk != null && blockChunk.getHomogenousValue() != BlockChunkData.BLOCK_TYPE_EMPTY){
+                        rVal[x][y][z] = blockChunk;
+                        allEmpty = false;
+                    }
+                }
+            }
+        }
+        if(allEmpty){
+            return null;
+        }
+        return rVal;
+    }
+
+    /**
+     * Checks if any block occupies the space an entity standing on a voxel would take up
+     * @param blockChunks The block chunks the window can reach into
+     * @param voxelX The x coordinate of the voxel
+     * @param voxelY The y coordinate of the voxel
+     * @param voxelZ The z coordinate of the voxel
+     * @return true if a block is in the way, false otherwise
+     */
+    private static boolean isBlocked(BlockChunkData[][][] blockChunks, int voxelX, int voxelY, int voxelZ){
+        int baseX = voxelX * BlockChunkData.BLOCKS_PER_UNIT_DISTANCE + BlockChunkData.CHUNK_DATA_WIDTH;
+        int baseY = voxelY * BlockChunkData.BLOCKS_PER_UNIT_DISTANCE;
+        int baseZ = voxelZ * BlockChunkData.BLOCKS_PER_UNIT_DISTANCE + BlockChunkData.CHUNK_DATA_WIDTH;
+        for(int x = baseX + BLOCK_WINDOW_MIN_X; x < baseX + BLOCK_WINDOW_MAX_X; x++){
+            int chunkX = x / BlockChunkData.CHUNK_DATA_WIDTH - 1;
+            int blockX = x % BlockChunkData.CHUNK_DATA_WIDTH;
+            for(int y = baseY + BLOCK_WINDOW_MIN_Y; y < baseY + BLOCK_WINDOW_MAX_Y; y++){
+                int chunkY = y / BlockChunkData.CHUNK_DATA_WIDTH;
+                int blockY = y % BlockChunkData.CHUNK_DATA_WIDTH;
+                for(int z = baseZ + BLOCK_WINDOW_MIN_Z; z < baseZ + BLOCK_WINDOW_MAX_Z; z++){
+                    int chunkZ = z / BlockChunkData.CHUNK_DATA_WIDTH - 1;
+                    int blockZ = z % BlockChunkData.CHUNK_DATA_WIDTH;
+                    BlockChunkData blockChunk = blockChunks[chunkX + 1][chunkY][chunkZ + 1];
+                    if(blockChunk != null && blockChunk.getType(blockX, blockY, blockZ) != BlockChunkData.BLOCK_TYPE_EMPTY){
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if a voxel is walkable
+     * @param voxelX The x coordinate of the voxel
+     * @param voxelY The y coordinate of the voxel
+     * @param voxelZ The z coordinate of the voxel
+     * @return true if it is walkable, false otherwise
+     */
+    public boolean isWalkable(int voxelX, int voxelY, int voxelZ){
+        return WalkabilityGrid.test(walkable, voxelX, voxelY, voxelZ);
+    }
+
+    /**
+     * Checks if a voxel is solid ground that can be stood on
+     * @param voxelX The x coordinate of the voxel
+     * @param voxelY The y coordinate of the voxel
+     * @param voxelZ The z coordinate of the voxel
+     * @return true if it is standable, false otherwise
+     */
+    public boolean isStandable(int voxelX, int voxelY, int voxelZ){
+        return WalkabilityGrid.test(standable, voxelX, voxelY, voxelZ);
+    }
+
+    /**
+     * Checks if the voxel above a voxel is open
+     * @param voxelX The x coordinate of the voxel
+     * @param voxelY The y coordinate of the voxel
+     * @param voxelZ The z coordinate of the voxel
+     * @return true if it has headroom, false otherwise
+     */
+    public boolean hasHeadroom(int voxelX, int voxelY, int voxelZ){
+        return WalkabilityGrid.test(headroom, voxelX, voxelY, voxelZ);
+    }
+
+    /**
+     * Checks if blocks occupy the space an entity standing on a voxel would take up
+     * @param voxelX The x coordinate of the voxel
+     * @param voxelY The y coordinate of the voxel
+     * @param voxelZ The z coordinate of the voxel
+     * @return true if it is blocked, false otherwise
+     */
+    public boolean isBlocked(int voxelX, int voxelY, int voxelZ){
+        return WalkabilityGrid.test(blocked, voxelX, voxelY, voxelZ);
+    }
+
+    /**
+     * Tests a bit in a bitset
+     * @param bitset The bitset
+     * @param voxelX The x coordinate of the voxel
+     * @param voxelY The y coordinate of the voxel
+     * @param voxelZ The z coordinate of the voxel
+     * @return true if the bit is set, false otherwise
+     */
+    private static boolean test(long[] bitset, int voxelX, int voxelY, int voxelZ){
+        if(voxelX < 0 || voxelY < 0 || voxelZ < 0 || voxelX >= WIDTH || voxelY >= WIDTH || voxelZ >= WIDTH){
+            throw new Error("Voxel position outside of grid! " + voxelX + " " + voxelY + " " + voxelZ);
+        }
+        int index = WalkabilityGrid.getIndex(voxelX, voxelY, voxelZ);
+        return (bitset[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Gets the bit index of a voxel
+     * @param voxelX The x coordinate of the voxel
+     * @param voxelY The y coordinate of the voxel
+     * @param voxelZ The z coordinate of the voxel
+     * @return The bit index
+     */
+    private static int getIndex(int voxelX, int voxelY, int voxelZ){
+        return (voxelX * WIDTH + voxelY) * WIDTH + voxelZ;
+    }
+
+}
@@ -152,7 +152,9 @@ public class ServerBlockChunkDiskMap {
      * Saves the disk map to disk
      */
     public void save(){
+        lock.lock();
         FileUtils.serializeObjectToSavePath(Globals.serverState.currentSave.getName(), MAP_FILE_NAME, this);
+        lock.unlock();
     }
 
     /**
@@ -1,5 +1,6 @@
 package electrosphere.server.physics.block.manager;
 
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -16,7 +17,6 @@ import electrosphere.engine.Globals;
 import electrosphere.logger.LoggerInterface;
 import electrosphere.server.datacell.ServerWorldData;
 import electrosphere.server.macro.MacroData;
-import electrosphere.server.macro.spatial.MacroAreaObject;
 import electrosphere.server.macro.spatial.MacroLODObject;
 import electrosphere.server.macro.spatial.MacroObject;
 import electrosphere.server.macro.structure.VirtualStructure;
@@ -156,21 +156,12 @@ public class ServerBlockChunkGenerationThread implements Runnable {
         if(macroData == null){
             objects = new LinkedList<MacroObject>();
         } else {
-            objects = macroData.getNearbyObjects(ServerWorldData.convertChunkToRealSpace(worldX, worldY, worldZ));
+            objects = macroData.getChunkObjects(worldX, worldY, worldZ);
             //if any of this macro data isn't ready, return a null chunk
             long notFullResCount = objects.stream().filter((MacroObject macroObj) -> macroObj instanceof MacroLODObject).map((MacroObject oldView) -> (MacroLODObject)oldView).filter((MacroLODObject lodObj) -> !lodObj.isFullRes()).count();
             if(notFullResCount > 0){
                 return null;
             }
-            //filter to just objects that are within bounds of the chunk
-            AABBd chunkAABB = new AABBd(ServerWorldData.convertChunkToRealSpace(new Vector3i(worldX,worldY,worldZ)), ServerWorldData.convertChunkToRealSpace(new Vector3i(worldX+1,worldY+1,worldZ+1)));
-            objects = objects.stream().filter((MacroObject obj) -> {
-                if(obj instanceof MacroAreaObject areaObj){
-                    return chunkAABB.testAABB(areaObj.getAABB());
-                } else {
-                    return chunkAABB.testPoint(obj.getPos());
-                }
-            }).collect(Collectors.toList());
         }
 
         BlockChunkData chunk = null;
@@ -218,7 +209,13 @@ public class ServerBlockChunkGenerationThread implements Runnable {
             throw new Error("Invalid stride size!");
         }
         AABBd localAABB = new AABBd(ServerWorldData.convertChunkToRealSpace(worldX,worldY,worldZ),ServerWorldData.convertChunkToRealSpace(worldX+strideMultiplier,worldY+strideMultiplier,worldZ+strideMultiplier));
-        List<VirtualStructure> filtered = macroData.getStructures().stream().filter((VirtualStructure struct) -> {return !struct.isRepairable() && struct.getAABB().testAABB(localAABB);}).collect(Collectors.toList());
+        List<VirtualStructure> filtered = macroData.getSpatialIndex().getIntersecting(localAABB).stream()
+            .filter((MacroObject obj) -> obj instanceof VirtualStructure)
+            .map((MacroObject obj) -> (VirtualStructure)obj)
+            .filter((VirtualStructure struct) -> !struct.isRepairable())
+            //keep the order of the structure list
+            .sorted(Comparator.comparingInt(VirtualStructure::getId))
+            .collect(Collectors.toList());
         if(filtered.size() > 0){
             Vector3i chunkPos = new Vector3i(worldX, worldY, worldZ);
             Vector3d chunkRealPos = ServerWorldData.convertChunkToRealSpace(chunkPos);
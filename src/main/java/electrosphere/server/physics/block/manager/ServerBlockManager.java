@@ -5,10 +5,14 @@ import electrosphere.client.block.BlockChunkData;
 import electrosphere.engine.Globals;
 import electrosphere.engine.threads.ThreadCounts;
 import electrosphere.server.datacell.ServerWorldData;
+import electrosphere.mem.BlockChunkPool;
 import electrosphere.server.macro.MacroData;
+import electrosphere.server.macro.spatial.MacroLODObject;
+import electrosphere.server.macro.spatial.MacroObject;
 import electrosphere.server.physics.block.diskmap.ServerBlockChunkDiskMap;
 import electrosphere.util.annotation.Exclude;
 
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
 
@@ -127,6 +131,53 @@ public class ServerBlockManager {
         Globals.profiler.endCpuSample();
     }
 
+    /**
+     * Generates a full res chunk and writes it straight to disk, skipping the cache.
+     * Used by world pre-generation so that the chunks don't pile up in memory.
+     * Chunks that come out empty are not written, they are cheaper to regenerate than to read back.
+     * @param worldX The world x position
+     * @param worldY The world y position
+     * @param worldZ The world z position
+     * @return true if the chunk is available, false if the macro data that affects it isn't at full res yet
+     */
+    public boolean pregenerate(int worldX, int worldY, int worldZ){
+        if(chunkDiskMap == null){
+            throw new Error("Trying to pregenerate blocks without a disk map!");
+        }
+        if(this.hasChunk(worldX, worldY, worldZ)){
+            return true;
+        }
+        if(macroData != null){
+            List<MacroObject> objects = macroData.getChunkObjects(worldX, worldY, worldZ);
+            long notFullResCount = objects.stream().filter((MacroObject macroObj) -> macroObj instanceof MacroLODObject).map((MacroObject oldView) -> (MacroLODObject)oldView).filter((MacroLODObject lodObj) -> !lodObj.isFullRes()).count();
+            if(notFullResCount > 0){
+                return false;
+            }
+        }
+        BlockChunkData chunk = new BlockChunkData();
+        chunk.setWorldX(worldX);
+        chunk.setWorldY(worldY);
+        chunk.setWorldZ(worldZ);
+        ServerBlockChunkGenerationThread.generate(chunk, macroData, worldX, worldY, worldZ, BlockChunkData.LOD_FULL_RES);
+        if(chunk.getHomogenousValue() != BlockChunkData.BLOCK_TYPE_EMPTY){
+            chunkDiskMap.saveToDisk(chunk);
+        }
+        if(chunk.getType() != null){
+            BlockChunkPool.release(chunk.getType());
+            BlockChunkPool.release(chunk.getMetadata());
+        }
+        return true;
+    }
+
+    /**
+     * Flushes the disk map so that chunks written straight to it survive a crash
+     */
+    public void saveDiskMap(){
+        if(chunkDiskMap != null){
+            chunkDiskMap.save();
+        }
+    }
+
     /**
      * Checks if there is an already-generated chunk at the position
      * @param worldX The world x coordinate
@@ -1,6 +1,7 @@
 package electrosphere.server.physics.fluid.diskmap;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
@@ -12,17 +13,47 @@ import java.util.zip.InflaterOutputStream;
 import electrosphere.engine.Globals;
 import electrosphere.logger.LoggerInterface;
 import electrosphere.server.physics.fluid.manager.ServerFluidChunk;
-import electrosphere.server.physics.terrain.manager.ServerTerrainChunk;
+import electrosphere.server.physics.terrain.diskmap.ChunkDiskMap;
+import electrosphere.server.saves.SaveUtils;
+import electrosphere.server.saves.region.RegionFileStore;
+import electrosphere.server.saves.region.StorageFormat;
 import electrosphere.util.FileUtils;
+import electrosphere.util.annotation.Exclude;
 
 /**
  * An interface for accessing the disk map of chunk information
  */
 public class FluidDiskMap {
 
+    /**
+     * Name of the map file
+     */
+    static final String MAP_FILE_NAME = "fluid.map";
+
+    /**
+     * The directory under the save that stores region files for fluids
+     */
+    static final String REGION_DIR = "/fluid/region";
+
+    /**
+     * The extension for fluid region files
+     */
+    static final String REGION_EXTENSION = ".fr";
+
     //The map of world position+chunk type to the file that actually houses that information
     Map<String,String> worldPosFileMap = new HashMap<String,String>();
 
+    /**
+     * The storage format of this disk map. Null for saves that predate region files, which are always file-per-chunk.
+     */
+    StorageFormat storageFormat;
+
+    /**
+     * The region files backing this map, if it is using the region format
+     */
+    @Exclude
+    RegionFileStore regionStore;
+
     /**
      * Constructor
      */
@@ -47,11 +78,14 @@ public class FluidDiskMap {
      */
     public void init(String saveName){
         LoggerInterface.loggerEngine.DEBUG("INIT CHUNK MAP " + saveName);
-        if(FileUtils.getSaveFile(saveName, "chunk.map").exists()){
-            worldPosFileMap = FileUtils.loadObjectFromSavePath(saveName, "fluid.map", FluidDiskMap.class).worldPosFileMap;
+        if(FileUtils.getSaveFile(saveName, MAP_FILE_NAME).exists()){
+            FluidDiskMap loaded = FileUtils.loadObjectFromSavePath(saveName, MAP_FILE_NAME, FluidDiskMap.class);
+            worldPosFileMap = loaded.worldPosFileMap;
+            storageFormat = loaded.storageFormat;
             LoggerInterface.loggerEngine.DEBUG("POS FILE MAP: " + worldPosFileMap.keySet());
         } else {
             worldPosFileMap = new HashMap<String,String>();
+            storageFormat = ChunkDiskMap.DEFAULT_STORAGE_FORMAT;
         }
     }
 
@@ -59,7 +93,72 @@ public class FluidDiskMap {
      * Saves the disk map to disk
      */
     public void save(){
-        FileUtils.serializeObjectToSavePath(Globals.serverState.currentSave.getName(), "fluid.map", this);
+        if(regionStore != null){
+            regionStore.flush();
+        }
+        FileUtils.serializeObjectToSavePath(Globals.serverState.currentSave.getName(), MAP_FILE_NAME, this);
+    }
+
+    /**
+     * Closes any open files backing the disk map
+     */
+    public void close(){
+        if(regionStore != null){
+            regionStore.close();
+            regionStore = null;
+        }
+    }
+
+    /**
+     * Gets the storage format of this disk map
+     * @return The storage format
+     */
+    public StorageFormat getStorageFormat(){
+        if(storageFormat == null){
+            return StorageFormat.FILE_PER_CHUNK;
+        }
+        return storageFormat;
+    }
+
+    /**
+     * Migrates a save that uses one file per chunk to region files. The legacy chunk files are left in place.
+     * @param saveName The name of the save
+     * @return The number of chunks migrated
+     */
+    public int migrateToRegionFormat(String saveName){
+        int rVal = 0;
+        if(this.getStorageFormat() == StorageFormat.FILE_PER_CHUNK){
+            RegionFileStore store = new RegionFileStore(new File(SaveUtils.deriveSaveDirectoryPath(saveName) + REGION_DIR), REGION_EXTENSION);
+            for(Map.Entry<String,String> entry : worldPosFileMap.entrySet()){
+                String key = entry.getKey();
+                String[] components = key.substring(0, key.length() - 1).split("_");
+                int worldX = Integer.parseInt(components[0]);
+                int worldY = Integer.parseInt(components[1]);
+                int worldZ = Integer.parseInt(components[2]);
+                byte[] rawDataCompressed = FileUtils.loadBinaryFromSavePath(saveName, entry.getValue());
+                if(rawDataCompressed != null){
+                    store.write(worldX, worldY, worldZ, rawDataCompressed);
+                    rVal++;
+                }
+            }
+            store.flush();
+            this.regionStore = store;
+            this.storageFormat = StorageFormat.REGION;
+            this.worldPosFileMap.clear();
+            FileUtils.serializeObjectToSavePath(saveName, MAP_FILE_NAME, this);
+        }
+        return rVal;
+    }
+
+    /**
+     * Gets the region store, opening it if necessary
+     * @return The region store
+     */
+    private RegionFileStore getRegionStore(){
+        if(regionStore == null){
+            regionStore = new RegionFileStore(new File(SaveUtils.deriveSaveDirectoryPath(Globals.serverState.currentSave.getName()) + REGION_DIR), REGION_EXTENSION);
+        }
+        return regionStore;
     }
 
     /**
@@ -70,6 +169,9 @@ public class FluidDiskMap {
      * @return True if the map contains the chunk, false otherwise
      */
     public boolean containsFluidAtPosition(int worldX, int worldY, int worldZ){
+        if(this.getStorageFormat() == StorageFormat.REGION){
+            return this.getRegionStore().contains(worldX, worldY, worldZ);
+        }
         return worldPosFileMap.containsKey(getFluidChunkKey(worldX, worldY, worldZ));
     }
 
@@ -83,10 +185,15 @@ public class FluidDiskMap {
     public ServerFluidChunk getFluidChunk(int worldX, int worldY, int worldZ){
         LoggerInterface.loggerEngine.INFO("Load chunk " + worldX + " " + worldY + " " + worldZ);
         ServerFluidChunk rVal = null;
-        if(containsFluidAtPosition(worldX, worldY, worldZ)){
+        byte[] rawDataCompressed = null;
+        if(this.getStorageFormat() == StorageFormat.REGION){
+            rawDataCompressed = this.getRegionStore().read(worldX, worldY, worldZ);
+        } else if(containsFluidAtPosition(worldX, worldY, worldZ)){
             //read file
             String fileName = worldPosFileMap.get(getFluidChunkKey(worldX, worldY, worldZ));
-            byte[] rawDataCompressed = FileUtils.loadBinaryFromSavePath(Globals.serverState.currentSave.getName(), fileName);
+            rawDataCompressed = FileUtils.loadBinaryFromSavePath(Globals.serverState.currentSave.getName(), fileName);
+        }
+        if(rawDataCompressed != null){
             //decompress
             byte[] rawData = null;
             ByteArrayOutputStream out = new ByteArrayOutputStream();
@@ -144,16 +251,8 @@ public class FluidDiskMap {
      */
     public void saveToDisk(ServerFluidChunk fluidChunk){
         LoggerInterface.loggerEngine.DEBUG("Save to disk: " + fluidChunk.getWorldX() + " " + fluidChunk.getWorldY() + " " + fluidChunk.getWorldZ());
-        //get the file name for this chunk
-        String fileName = null;
-        String chunkKey = getFluidChunkKey(fluidChunk.getWorldX(),fluidChunk.getWorldY(),fluidChunk.getWorldZ());
-        if(worldPosFileMap.containsKey(chunkKey)){
-            fileName = worldPosFileMap.get(chunkKey);
-        } else {
-            fileName = chunkKey + ".dat";
-        }
         //generate binary for the file
-        int DIM = ServerTerrainChunk.CHUNK_DIMENSION;
+        int DIM = ServerFluidChunk.BUFFER_DIM;
         ByteBuffer buffer = ByteBuffer.allocate(DIM * DIM * DIM * 4 + DIM * DIM * DIM * 4 + DIM * DIM * DIM * 4 + DIM * DIM * DIM * 4);
         FloatBuffer floatView = buffer.asFloatBuffer();
         for(int x = 0; x < DIM; x++){
@@ -191,10 +290,22 @@ public class FluidDiskMap {
             deflaterInputStream.write(buffer.array());
             deflaterInputStream.flush();
             deflaterInputStream.close();
-            //write to disk
-            FileUtils.saveBinaryToSavePath(Globals.serverState.currentSave.getName(), fileName, out.toByteArray());
-            //save to the map of filenames
-            worldPosFileMap.put(chunkKey,fileName);
+            if(this.getStorageFormat() == StorageFormat.REGION){
+                this.getRegionStore().write(fluidChunk.getWorldX(), fluidChunk.getWorldY(), fluidChunk.getWorldZ(), out.toByteArray());
+            } else {
+                //get the file name for this chunk
+                String fileName = null;
+                String chunkKey = getFluidChunkKey(fluidChunk.getWorldX(),fluidChunk.getWorldY(),fluidChunk.getWorldZ());
+                if(worldPosFileMap.containsKey(chunkKey)){
+                    fileName = worldPosFileMap.get(chunkKey);
+                } else {
+                    fileName = chunkKey + ".dat";
+                }
+                //write to disk
+                FileUtils.saveBinaryToSavePath(Globals.serverState.currentSave.getName(), fileName, out.toByteArray());
+                //save to the map of filenames
+                worldPosFileMap.put(chunkKey,fileName);
+            }
         } catch (IOException e) {
             LoggerInterface.loggerFileIO.ERROR(e);
         }
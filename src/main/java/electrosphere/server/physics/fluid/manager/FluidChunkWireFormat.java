@@ -0,0 +1,424 @@
+package electrosphere.server.physics.fluid.manager;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import electrosphere.client.fluid.cache.FluidChunkData;
+import electrosphere.client.fluid.cells.FluidCell;
+
+/**
+ * Encodes fluid chunks as versioned, quantized payloads so that updates can be sent as deltas.
+ * <p>
+ * Every payload starts with a magic byte (which can't be the first byte of the legacy float layout), a kind byte and the version it brings the client to.
+ * </p>
+ * <ul>
+ * <li>KIND_HOMOGENOUS: nothing else</li>
+ * <li>KIND_FULL: every cell of the buffer</li>
+ * <li>KIND_DELTA: the version it applies on top of, the number of runs (unsigned short), then for each run the number of unchanged cells
+ * to skip and the number of changed cells (unsigned shorts), followed by the changed cells</li>
+ * </ul>
+ * <p>
+ * A cell is its weight quantized to an unsigned short and its x, y and z velocity quantized to signed bytes. Cells are in buffer index order.
+ * </p>
+ * <p>
+ * The server keeps the last state it sent on the chunk. Updates are broadcast as a delta against it, or as a full payload if that is smaller.
+ * The connection is a reliable ordered stream, so a client that has the base version is in step. A client without it (ie it never loaded the chunk)
+ * drops the delta and requests the chunk, and the reply is built from the same last-sent state so it lands on the current version.
+ * </p>
+ */
+public class FluidChunkWireFormat {
+
+    /**
+     * Marks a versioned payload. The legacy layout starts with a big endian float of 0 or 1, so its first byte is 0x00 or 0x3F
+     */
+    public static final byte MAGIC = (byte)0xF1;
+
+    /**
+     * The chunk is homogenous
+     */
+    public static final byte KIND_HOMOGENOUS = 0;
+
+    /**
+     * Every cell is sent
+     */
+    public static final byte KIND_FULL = 1;
+
+    /**
+     * Only changed cells are sent
+     */
+    public static final byte KIND_DELTA = 2;
+
+    /**
+     * The largest weight that can be represented. Weights can go above 1 while fluid is under pressure
+     */
+    public static final float WEIGHT_RANGE = 2.0f;
+
+    /**
+     * The largest velocity magnitude that can be represented on each axis
+     */
+    public static final float VELOCITY_RANGE = 1.0f;
+
+    /**
+     * Size of the header shared by all kinds
+     */
+    static final int HEADER_SIZE = 1 + 1 + 4;
+
+    /**
+     * Size of the extra header of a delta
+     */
+    static final int DELTA_HEADER_SIZE = 4 + 2;
+
+    /**
+     * Size of the header of a single run
+     */
+    static final int RUN_HEADER_SIZE = 2 + 2;
+
+    /**
+     * Size of a single cell
+     */
+    static final int CELL_SIZE = 2 + 3;
+
+    /**
+     * Size of a full payload
+     */
+    public static final int FULL_SIZE = HEADER_SIZE + ServerFluidChunk.BUFFER_SIZE * CELL_SIZE;
+
+    /**
+     * Source of versions. Global so a chunk that is unloaded and reloaded never reuses a version a client has
+     */
+    static final AtomicInteger versionCounter = new AtomicInteger(0);
+
+    /**
+     * Encodes the changes to a chunk since it was last sent and records the current state as sent
+     * @param chunk The chunk
+     * @return The payload
+     */
+    public static byte[] encodeUpdate(ServerFluidChunk chunk){
+        FluidReplicationState state = chunk.getReplicationState();
+        byte[] rVal = null;
+        state.lock.lock();
+        try {
+            int baseVersion = state.version;
+            boolean baseHomogenous = state.homogenous;
+            state.version = versionCounter.incrementAndGet();
+            state.fullPayload = null;
+            if(chunk.isHomogenous()){
+                state.homogenous = true;
+                if(state.weights != null){
+                    Arrays.fill(state.weights, (short)0);
+                    Arrays.fill(state.velocities, (byte)0);
+                }
+                return FluidChunkWireFormat.encodeHomogenous(state.version);
+            }
+            state.allocate();
+            FluidChunkWireFormat.quantize(chunk, state.nextWeights, state.nextVelocities);
+            if(baseVersion == 0){
+                //never sent, there is nothing to delta against
+                rVal = null;
+            } else {
+                rVal = FluidChunkWireFormat.encodeDelta(
+                    baseVersion, state.version, baseHomogenous,
+                    state.weights, state.velocities, state.nextWeights, state.nextVelocities
+                );
+            }
+            //swap so the state sent is the one kept
+            short[] sentWeights = state.nextWeights;
+            byte[] sentVelocities = state.nextVelocities;
+            state.nextWeights = state.weights;
+            state.nextVelocities = state.velocities;
+            state.weights = sentWeights;
+            state.velocities = sentVelocities;
+            state.homogenous = false;
+            if(rVal == null){
+                rVal = FluidChunkWireFormat.encodeFull(state.version, state.weights, state.velocities);
+                state.fullPayload = rVal;
+            }
+        } finally {
+            state.lock.unlock();
+        }
+        return rVal;
+    }
+
+    /**
+     * Encodes the full state of a chunk, at the version clients were last sent
+     * @param chunk The chunk
+     * @return The payload
+     */
+    public static byte[] encodeResync(ServerFluidChunk chunk){
+        FluidReplicationState state = chunk.getReplicationState();
+        state.lock.lock();
+        try {
+            if(state.version == 0){
+                //never sent, establish the first version from the current state
+                state.version = versionCounter.incrementAndGet();
+                state.homogenous = chunk.isHomogenous();
+                if(!state.homogenous){
+                    state.allocate();
+                    FluidChunkWireFormat.quantize(chunk, state.weights, state.velocities);
+                }
+            }
+            if(state.homogenous){
+                return FluidChunkWireFormat.encodeHomogenous(state.version);
+            }
+            if(state.fullPayload == null){
+                state.fullPayload = FluidChunkWireFormat.encodeFull(state.version, state.weights, state.velocities);
+            }
+            return state.fullPayload;
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    /**
+     * Quantizes the current state of a chunk
+     * @param chunk The chunk
+     * @param weights The array to store the weights in
+     * @param velocities The array to store the velocities in
+     */
+    static void quantize(ServerFluidChunk chunk, short[] weights, byte[] velocities){
+        FloatBuffer weightBuffer = chunk.getWeights();
+        FloatBuffer velocityX = chunk.getVelocityX();
+        FloatBuffer velocityY = chunk.getVelocityY();
+        FloatBuffer velocityZ = chunk.getVelocityZ();
+        for(int i = 0; i < ServerFluidChunk.BUFFER_SIZE; i++){
+            weights[i] = FluidChunkWireFormat.quantizeWeight(weightBuffer.get(i));
+            velocities[i * 3 + 0] = FluidChunkWireFormat.quantizeVelocity(velocityX.get(i));
+            velocities[i * 3 + 1] = FluidChunkWireFormat.quantizeVelocity(velocityY.get(i));
+            velocities[i * 3 + 2] = FluidChunkWireFormat.quantizeVelocity(velocityZ.get(i));
+        }
+    }
+
+    /**
+     * Encodes a homogenous payload
+     * @param version The version
+     * @return The payload
+     */
+    static byte[] encodeHomogenous(int version){
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        buffer.put(MAGIC);
+        buffer.put(KIND_HOMOGENOUS);
+        buffer.putInt(version);
+        return buffer.array();
+    }
+
+    /**
+     * Encodes a full payload
+     * @param version The version
+     * @param weights The quantized weights
+     * @param velocities The quantized velocities
+     * @return The payload
+     */
+    static byte[] encodeFull(int version, short[] weights, byte[] velocities){
+        ByteBuffer buffer = ByteBuffer.allocate(FULL_SIZE);
+        buffer.put(MAGIC);
+        buffer.put(KIND_FULL);
+        buffer.putInt(version);
+        for(int i = 0; i < ServerFluidChunk.BUFFER_SIZE; i++){
+            FluidChunkWireFormat.putCell(buffer, i, weights, velocities);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Encodes a delta payload
+     * @param baseVersion The version the delta applies on top of
+     * @param version The version the delta brings the client to
+     * @param baseHomogenous true if the base state is homogenous
+     * @param baseWeights The quantized weights of the base state
+     * @param baseVelocities The quantized velocities of the base state
+     * @param weights The quantized weights of the new state
+     * @param velocities The quantized velocities of the new state
+     * @return The payload, or null if a full payload would be at least as small
+     */
+    static byte[] encodeDelta(int baseVersion, int version, boolean baseHomogenous, short[] baseWeights, byte[] baseVelocities, short[] weights, byte[] velocities){
+        //size the payload
+        int runCount = 0;
+        int changedCount = 0;
+        int i = 0;
+        while(i < ServerFluidChunk.BUFFER_SIZE){
+            if(FluidChunkWireFormat.sameCell(i, baseHomogenous, baseWeights, baseVelocities, weights, velocities)){
+                i++;
+                continue;
+            }
+            runCount++;
+            while(i < ServerFluidChunk.BUFFER_SIZE && !FluidChunkWireFormat.sameCell(i, baseHomogenous, baseWeights, baseVelocities, weights, velocities)){
+                changedCount++;
+                i++;
+            }
+        }
+        int size = HEADER_SIZE + DELTA_HEADER_SIZE + runCount * RUN_HEADER_SIZE + changedCount * CELL_SIZE;
+        if(size >= FULL_SIZE){
+            return null;
+        }
+
+        //write it
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(MAGIC);
+        buffer.put(KIND_DELTA);
+        buffer.putInt(version);
+        buffer.putInt(baseVersion);
+        buffer.putShort((short)runCount);
+        int runEnd = 0;
+        i = 0;
+        while(i < ServerFluidChunk.BUFFER_SIZE){
+            if(FluidChunkWireFormat.sameCell(i, baseHomogenous, baseWeights, baseVelocities, weights, velocities)){
+                i++;
+                continue;
+            }
+            int runStart = i;
+            while(i < ServerFluidChunk.BUFFER_SIZE && !FluidChunkWireFormat.sameCell(i, baseHomogenous, baseWeights, baseVelocities, weights, velocities)){
+                i++;
+            }
+            buffer.putShort((short)(runStart - runEnd));
+            buffer.putShort((short)(i - runStart));
+            for(int j = runStart; j < i; j++){
+                FluidChunkWireFormat.putCell(buffer, j, weights, velocities);
+            }
+            runEnd = i;
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Checks if a cell is the same in two states
+     * @param i The index of the cell
+     * @param baseHomogenous true if the base state is homogenous (all zero)
+     * @param baseWeights The weights of the base state
+     * @param baseVelocities The velocities of the base state
+     * @param weights The weights of the new state
+     * @param velocities The velocities of the new state
+     * @return true if the cell is unchanged
+     */
+    static boolean sameCell(int i, boolean baseHomogenous, short[] baseWeights, byte[] baseVelocities, short[] weights, byte[] velocities){
+        if(baseHomogenous){
+            return weights[i] == 0 && velocities[i * 3] == 0 && velocities[i * 3 + 1] == 0 && velocities[i * 3 + 2] == 0;
+        }
+        return
+            baseWeights[i] == weights[i] &&
+            baseVelocities[i * 3] == velocities[i * 3] &&
+            baseVelocities[i * 3 + 1] == velocities[i * 3 + 1] &&
+            baseVelocities[i * 3 + 2] == velocities[i * 3 + 2]
+        ;
+    }
+
+    /**
+     * Writes a single cell
+     * @param buffer The buffer
+     * @param i The index of the cell
+     * @param weights The quantized weights
+     * @param velocities The quantized velocities
+     */
+    static void putCell(ByteBuffer buffer, int i, short[] weights, byte[] velocities){
+        buffer.putShort(weights[i]);
+        buffer.put(velocities[i * 3]);
+        buffer.put(velocities[i * 3 + 1]);
+        buffer.put(velocities[i * 3 + 2]);
+    }
+
+    /**
+     * Quantizes a weight to an unsigned short
+     * @param weight The weight
+     * @return The quantized weight
+     */
+    static short quantizeWeight(float weight){
+        float clamped = Math.max(0f, Math.min(WEIGHT_RANGE, weight));
+        return (short)Math.round(clamped / WEIGHT_RANGE * 0xFFFF);
+    }
+
+    /**
+     * Quantizes a velocity to a signed byte
+     * @param velocity The velocity
+     * @return The quantized velocity
+     */
+    static byte quantizeVelocity(float velocity){
+        float clamped = Math.max(-VELOCITY_RANGE, Math.min(VELOCITY_RANGE, velocity));
+        return (byte)Math.round(clamped / VELOCITY_RANGE * Byte.MAX_VALUE);
+    }
+
+    /**
+     * Checks if a payload is in the versioned format
+     * @param payload The payload
+     * @return true if it is versioned, false if it is the legacy float layout
+     */
+    public static boolean isVersioned(byte[] payload){
+        return payload.length >= HEADER_SIZE && payload[0] == MAGIC;
+    }
+
+    /**
+     * Decodes a versioned payload
+     * @param payload The payload
+     * @param previous The data the client currently has for the chunk, or null if it has none
+     * @return The new data for the chunk, or null if the payload is a delta that doesn't apply on top of the previous data
+     */
+    public static FluidChunkData decode(byte[] payload, FluidChunkData previous){
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        if(buffer.get() != MAGIC){
+            throw new Error("Fluid payload is not versioned!");
+        }
+        byte kind = buffer.get();
+        int version = buffer.getInt();
+        FluidChunkData rVal = new FluidChunkData();
+        rVal.setVersion(version);
+        switch(kind){
+            case KIND_HOMOGENOUS: {
+                rVal.setHomogenous(true);
+            } break;
+            case KIND_FULL: {
+                rVal.setHomogenous(false);
+                rVal.allocateBuffs();
+                for(int i = 0; i < ServerFluidChunk.BUFFER_SIZE; i++){
+                    FluidChunkWireFormat.readCell(buffer, rVal, i);
+                }
+            } break;
+            case KIND_DELTA: {
+                int baseVersion = buffer.getInt();
+                if(previous == null || previous.getVersion() != baseVersion){
+                    return null;
+                }
+                rVal.setHomogenous(false);
+                rVal.allocateBuffs();
+                if(previous.isHomogenous()){
+                    for(int i = 0; i < ServerFluidChunk.BUFFER_SIZE; i++){
+                        rVal.bWeights.putFloat(i * 4, FluidCell.ISO_SURFACE_EMPTY);
+                    }
+                } else {
+                    rVal.copyFrom(previous);
+                }
+                int runCount = Short.toUnsignedInt(buffer.getShort());
+                int i = 0;
+                for(int run = 0; run < runCount; run++){
+                    i = i + Short.toUnsignedInt(buffer.getShort());
+                    int length = Short.toUnsignedInt(buffer.getShort());
+                    for(int j = 0; j < length; j++){
+                        FluidChunkWireFormat.readCell(buffer, rVal, i);
+                        i++;
+                    }
+                }
+            } break;
+            default: {
+                throw new Error("Unsupported fluid payload kind " + kind);
+            }
+        }
+        return rVal;
+    }
+
+    /**
+     * Reads a single cell into fluid data
+     * @param buffer The buffer
+     * @param data The data
+     * @param i The index of the cell
+     */
+    static void readCell(ByteBuffer buffer, FluidChunkData data, int i){
+        float weight = Short.toUnsignedInt(buffer.getShort()) * WEIGHT_RANGE / 0xFFFF;
+        if(weight <= 0){
+            weight = FluidCell.ISO_SURFACE_EMPTY;
+        }
+        data.bWeights.putFloat(i * 4, weight);
+        data.bVelocityX.putFloat(i * 4, buffer.get() * VELOCITY_RANGE / Byte.MAX_VALUE);
+        data.bVelocityY.putFloat(i * 4, buffer.get() * VELOCITY_RANGE / Byte.MAX_VALUE);
+        data.bVelocityZ.putFloat(i * 4, buffer.get() * VELOCITY_RANGE / Byte.MAX_VALUE);
+    }
+
+}
@@ -0,0 +1,211 @@
+package electrosphere.server.physics.fluid.manager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Puts settled bodies of fluid to sleep.
+ * <p>
+ * The chunks simulated each step are grouped into islands of connected chunks. An island is put to sleep once every chunk in it has
+ * been quiet (little change in density and little movement) for a number of steps, so that a lake costs nothing until something disturbs it.
+ * Islands are woken as a whole by fluid edits, terrain edits, block edits and by flowing fluid next to them.
+ * </p>
+ * <p>
+ * Not thread safe, must be called under the lock of the owning fluid manager.
+ * </p>
+ */
+public class FluidIslandScheduler {
+
+    /**
+     * The activity (change in density plus velocity magnitude) below which a chunk is considered quiet for a step
+     */
+    public static final float ACTIVITY_THRESHOLD = 0.01f;
+
+    /**
+     * The number of consecutive quiet steps before a chunk can sleep
+     */
+    public static final int QUIET_FRAMES = 10;
+
+    /**
+     * The chunks simulated this step
+     */
+    private Set<ServerFluidChunk> simulated = Collections.newSetFromMap(new IdentityHashMap<ServerFluidChunk,Boolean>());
+
+    /**
+     * Chunks already assigned to an island this step
+     */
+    private Set<ServerFluidChunk> visited = Collections.newSetFromMap(new IdentityHashMap<ServerFluidChunk,Boolean>());
+
+    /**
+     * The flood fill frontier
+     */
+    private Deque<ServerFluidChunk> frontier = new ArrayDeque<ServerFluidChunk>();
+
+    /**
+     * The island currently being built
+     */
+    private List<ServerFluidChunk> island = new ArrayList<ServerFluidChunk>();
+
+    /**
+     * The number of islands that are awake
+     */
+    private int activeIslandCount = 0;
+
+    /**
+     * The number of islands that were put to sleep in the latest step
+     */
+    private int sleptIslandCount = 0;
+
+    /**
+     * The chunks with fluid in them that this scheduler put to sleep and that have not woken since
+     */
+    private Set<ServerFluidChunk> sleeping = Collections.newSetFromMap(new IdentityHashMap<ServerFluidChunk,Boolean>());
+
+    /**
+     * Updates activity tracking after a simulation step and puts quiet islands to sleep
+     * @param simulatedChunks The chunks that were simulated this step
+     */
+    public void update(List<ServerFluidChunk> simulatedChunks){
+        this.simulated.clear();
+        this.simulated.addAll(simulatedChunks);
+
+        //the simulator wakes the neighbors of chunks with fluid in them by clearing their flag directly
+        for(ServerFluidChunk chunk : simulatedChunks){
+            this.sleeping.remove(chunk);
+            for(ServerFluidChunk neighbor : chunk.neighbors){
+                if(neighbor != null && !neighbor.asleep){
+                    this.sleeping.remove(neighbor);
+                }
+            }
+        }
+
+        //track activity
+        for(ServerFluidChunk chunk : simulatedChunks){
+            float activity = Math.abs(chunk.totalDensity - chunk.lastTotalDensity) + chunk.totalVelocityMag;
+            chunk.lastTotalDensity = chunk.totalDensity;
+            if(activity < ACTIVITY_THRESHOLD){
+                chunk.quietFrames++;
+            } else {
+                chunk.quietFrames = 0;
+            }
+        }
+
+        //flowing fluid wakes any island it borders
+        for(ServerFluidChunk chunk : simulatedChunks){
+            if(chunk.quietFrames == 0 && !chunk.isHomogenous){
+                for(ServerFluidChunk neighbor : chunk.neighbors){
+                    if(neighbor != null && !this.simulated.contains(neighbor)){
+                        this.wake(neighbor);
+                    }
+                }
+            }
+        }
+
+        //group into islands
+        this.visited.clear();
+        this.activeIslandCount = 0;
+        this.sleptIslandCount = 0;
+        for(ServerFluidChunk chunk : simulatedChunks){
+            if(this.visited.contains(chunk)){
+                continue;
+            }
+            this.island.clear();
+            boolean quiet = true;
+            this.frontier.add(chunk);
+            this.visited.add(chunk);
+            while(!this.frontier.isEmpty()){
+                ServerFluidChunk current = this.frontier.poll();
+                this.island.add(current);
+                quiet = quiet && current.quietFrames >= QUIET_FRAMES;
+                for(ServerFluidChunk neighbor : current.neighbors){
+                    if(neighbor != null && this.simulated.contains(neighbor) && !this.visited.contains(neighbor)){
+                        this.visited.add(neighbor);
+                        this.frontier.add(neighbor);
+                    }
+                }
+            }
+            if(quiet){
+                for(ServerFluidChunk member : this.island){
+                    member.asleep = true;
+                    if(!member.isHomogenous){
+                        this.sleeping.add(member);
+                    }
+                }
+                this.sleptIslandCount++;
+            } else {
+                this.activeIslandCount++;
+            }
+        }
+        this.island.clear();
+    }
+
+    /**
+     * Wakes a chunk and the sleeping island it belongs to
+     * @param chunk The chunk
+     */
+    public void wake(ServerFluidChunk chunk){
+        if(!chunk.isAllocated()){
+            return;
+        }
+        Set<ServerFluidChunk> woken = Collections.newSetFromMap(new IdentityHashMap<ServerFluidChunk,Boolean>());
+        Deque<ServerFluidChunk> toWake = new ArrayDeque<ServerFluidChunk>();
+        toWake.add(chunk);
+        woken.add(chunk);
+        while(!toWake.isEmpty()){
+            ServerFluidChunk current = toWake.poll();
+            current.asleep = false;
+            current.quietFrames = 0;
+            this.sleeping.remove(current);
+            for(ServerFluidChunk neighbor : current.neighbors){
+                if(
+                    neighbor != null &&
+                    neighbor.isAllocated() &&
+                    neighbor.asleep &&
+                    !neighbor.isHomogenous &&
+                    !woken.contains(neighbor)
+                ){
+                    woken.add(neighbor);
+                    toWake.add(neighbor);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops tracking a chunk that is being unloaded
+     * @param chunk The chunk
+     */
+    public void forget(ServerFluidChunk chunk){
+        this.sleeping.remove(chunk);
+    }
+
+    /**
+     * Gets the number of islands that are awake
+     * @return The number of islands
+     */
+    public int getActiveIslandCount(){
+        return activeIslandCount;
+    }
+
+    /**
+     * Gets the number of islands that were put to sleep in the latest step
+     * @return The number of islands
+     */
+    public int getSleptIslandCount(){
+        return sleptIslandCount;
+    }
+
+    /**
+     * Gets the number of chunks with fluid in them that are asleep
+     * @return The number of chunks
+     */
+    public int getSleepingChunkCount(){
+        return this.sleeping.size();
+    }
+
+}
@@ -0,0 +1,97 @@
+package electrosphere.server.physics.fluid.manager;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import electrosphere.mem.FluidChunkPool;
+
+/**
+ * The last state of a fluid chunk that was sent to clients, quantized the same way it was sent.
+ * Deltas are computed against this, and full resyncs are built from it so a resync always matches the version clients are on.
+ */
+public class FluidReplicationState {
+
+    /**
+     * The version clients were last sent. 0 if the chunk has never been sent in the versioned format
+     */
+    int version = 0;
+
+    /**
+     * true if the last state sent was homogenous
+     */
+    boolean homogenous = true;
+
+    /**
+     * The quantized weights that were last sent
+     */
+    short[] weights;
+
+    /**
+     * The quantized velocities that were last sent, interleaved x, y, z per cell
+     */
+    byte[] velocities;
+
+    /**
+     * Scratch space the current state is quantized into before it is compared against the last state sent
+     */
+    short[] nextWeights;
+
+    /**
+     * Scratch space the current velocities are quantized into
+     */
+    byte[] nextVelocities;
+
+    /**
+     * The full payload for the current version, built on the first resync request
+     */
+    byte[] fullPayload;
+
+    /**
+     * Lock for the state
+     */
+    ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Allocates the arrays if they haven't been already. Every array is fully overwritten before it is read
+     */
+    void allocate(){
+        if(this.weights == null){
+            this.weights = FluidChunkPool.getWeights();
+            this.velocities = FluidChunkPool.getVelocities();
+            this.nextWeights = FluidChunkPool.getWeights();
+            this.nextVelocities = FluidChunkPool.getVelocities();
+        }
+    }
+
+    /**
+     * Returns the arrays to the pool and forgets what was sent, so the next payload is a full one
+     */
+    void free(){
+        this.lock.lock();
+        try {
+            if(this.weights != null){
+                FluidChunkPool.release(this.weights);
+                FluidChunkPool.release(this.velocities);
+                FluidChunkPool.release(this.nextWeights);
+                FluidChunkPool.release(this.nextVelocities);
+                this.weights = null;
+                this.velocities = null;
+                this.nextWeights = null;
+                this.nextVelocities = null;
+            }
+            this.version = 0;
+            this.homogenous = true;
+            this.fullPayload = null;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the version clients were last sent
+     * @return The version, or 0 if the chunk has never been sent
+     */
+    public int getVersion(){
+        return version;
+    }
+
+}
@@ -216,6 +216,16 @@ public class ServerFluidChunk {
      */
     public float totalVelocityMag = 0;
 
+    /**
+     * The total density of the chunk at the end of the previous step it was simulated
+     */
+    public float lastTotalDensity = 0;
+
+    /**
+     * The number of consecutive steps this chunk has been quiet for
+     */
+    public int quietFrames = 0;
+
     /**
      * The normalization ratio used to smooth fluid simulation steps
      */
@@ -246,6 +256,21 @@ public class ServerFluidChunk {
      */
     public float[] densityIncoming = new float[ARRAY_CT];
 
+    /**
+     * The state of this chunk last sent to clients
+     */
+    FluidReplicationState replicationState = new FluidReplicationState();
+
+    /**
+     * Set once the native library is found to be unavailable. All chunks allocated afterwards use jvm-managed direct buffers
+     */
+    static volatile boolean nativeUnavailable = false;
+
+    /**
+     * true if the buffers of this chunk were allocated by the native library
+     */
+    boolean nativeAllocated = false;
+
     /**
      * Allocates the central arrays for this chunk
      */
@@ -268,7 +293,17 @@ public class ServerFluidChunk {
         this.worldZ = worldZ;
 
         //allocate
-        this.allocate();
+        if(!ServerFluidChunk.nativeUnavailable){
+            try {
+                this.allocate();
+                this.nativeAllocated = true;
+            } catch(UnsatisfiedLinkError e){
+                ServerFluidChunk.nativeUnavailable = true;
+            }
+        }
+        if(!this.nativeAllocated){
+            this.allocateDirect();
+        }
 
         //order
         this.bWeights[CENTER_BUFF].order(ByteOrder.LITTLE_ENDIAN);
@@ -294,6 +329,30 @@ public class ServerFluidChunk {
         this.pressureCache = this.bPressureCache[CENTER_BUFF].asFloatBuffer();
     }
 
+    /**
+     * Allocates the central arrays for this chunk without the native library
+     */
+    private void allocateDirect(){
+        this.bWeights[CENTER_BUFF] = ByteBuffer.allocateDirect(BUFFER_SIZE * 4);
+        this.bVelocityX[CENTER_BUFF] = ByteBuffer.allocateDirect(BUFFER_SIZE * 4);
+        this.bVelocityY[CENTER_BUFF] = ByteBuffer.allocateDirect(BUFFER_SIZE * 4);
+        this.bVelocityZ[CENTER_BUFF] = ByteBuffer.allocateDirect(BUFFER_SIZE * 4);
+        this.b0Weights[CENTER_BUFF] = ByteBuffer.allocateDirect(BUFFER_SIZE * 4);
+        this.b0VelocityX[CENTER_BUFF] = ByteBuffer.allocateDirect(BUFFER_SIZE * 4);
+        this.b0VelocityY[CENTER_BUFF] = ByteBuffer.allocateDirect(BUFFER_SIZE * 4);
+        this.b0VelocityZ[CENTER_BUFF] = ByteBuffer.allocateDirect(BUFFER_SIZE * 4);
+        this.bBounds[CENTER_BUFF] = ByteBuffer.allocateDirect(BUFFER_SIZE * 4);
+        this.bDivergenceCache[CENTER_BUFF] = ByteBuffer.allocateDirect(BUFFER_SIZE * 4);
+        this.bPressureCache[CENTER_BUFF] = ByteBuffer.allocateDirect(BUFFER_SIZE * 4);
+    }
+
+    /**
+     * Makes all chunks allocated from now on use jvm-managed direct buffers instead of the native library
+     */
+    public static void disableNativeAllocation(){
+        ServerFluidChunk.nativeUnavailable = true;
+    }
+
     /**
      * Gets the world x coordinate
      * @return The world x coordinate
@@ -365,6 +424,14 @@ public class ServerFluidChunk {
         weights.put(this.IX(x,y,z),weight);
     }
 
+    /**
+     * Gets the weight delta buffer
+     * @return The weight delta buffer
+     */
+    public FloatBuffer getWeightsAdd(){
+        return weightsAdd;
+    }
+
     /**
      * Gets the weight delta of a voxel at a poisiton
      * @param x The x coordinate
@@ -536,6 +603,14 @@ public class ServerFluidChunk {
         velocityZ.put(index, velZ);
     }
 
+    /**
+     * Gets the bounds buffer
+     * @return The bounds buffer
+     */
+    public FloatBuffer getBounds(){
+        return bounds;
+    }
+
     /**
      * Gets the bounds value at a given position
      * @param x The x coordinate
@@ -696,7 +771,10 @@ public class ServerFluidChunk {
      * Frees the buffers contained within this chunk
      */
     public void freeBuffers(){
-        this.free();
+        if(this.nativeAllocated){
+            this.free();
+            this.nativeAllocated = false;
+        }
         for(int i = 0; i < 27; i++){
             bWeights[i] = null;
             b0Weights[i] = null;
@@ -710,6 +788,15 @@ public class ServerFluidChunk {
             bDivergenceCache[i] = null;
             bPressureCache[i] = null;
         }
+        this.replicationState.free();
+    }
+
+    /**
+     * Gets the state of this chunk last sent to clients
+     * @return The replication state
+     */
+    public FluidReplicationState getReplicationState(){
+        return replicationState;
     }
 
     /**
@@ -3,15 +3,18 @@ package electrosphere.server.physics.fluid.manager;
 
 import electrosphere.engine.EngineState;
 import electrosphere.engine.Globals;
+import electrosphere.logger.LoggerInterface;
 import electrosphere.server.datacell.ServerWorldData;
 import electrosphere.server.physics.fluid.diskmap.FluidDiskMap;
 import electrosphere.server.physics.fluid.generation.FluidGenerator;
 import electrosphere.server.physics.fluid.models.FluidModel;
 import electrosphere.server.physics.fluid.simulator.FluidAcceleratedSimulator;
+import electrosphere.server.physics.fluid.simulator.FluidJavaSimulator;
 import electrosphere.server.physics.fluid.simulator.ServerFluidSimulator;
 import electrosphere.server.physics.terrain.manager.ServerChunkCache;
 import electrosphere.server.physics.terrain.manager.ServerTerrainChunk;
 import electrosphere.server.physics.terrain.manager.ServerTerrainManager;
+import electrosphere.server.saves.region.StorageFormat;
 import electrosphere.util.FileUtils;
 import electrosphere.util.annotation.Exclude;
 
@@ -101,6 +104,12 @@ public class ServerFluidManager {
      */
     List<ServerFluidChunk> broadcastQueue = new ArrayList<ServerFluidChunk>();
 
+    @Exclude
+    /**
+     * Puts settled bodies of fluid to sleep
+     */
+    FluidIslandScheduler islandScheduler = new FluidIslandScheduler();
+
     @Exclude
     /**
      * The update frame-skipping tracking variable
@@ -133,7 +142,23 @@ public class ServerFluidManager {
         this.serverTerrainManager = serverTerrainManager;
         this.seed = seed;
         this.chunkGenerator = chunkGenerator;
-        this.serverFluidSimulator = new FluidAcceleratedSimulator();
+        this.serverFluidSimulator = ServerFluidManager.createSimulator();
+    }
+
+    /**
+     * Creates the fluid simulator. Falls back to the java simulator if the native library can't be loaded
+     * @return The simulator
+     */
+    static ServerFluidSimulator createSimulator(){
+        ServerFluidSimulator rVal = null;
+        try {
+            rVal = new FluidAcceleratedSimulator();
+        } catch(LinkageError e){
+            LoggerInterface.loggerEngine.WARNING("Failed to load the native fluid library, falling back to the java fluid simulator");
+            ServerFluidChunk.disableNativeAllocation();
+            rVal = new FluidJavaSimulator();
+        }
+        return rVal;
     }
     
     ServerFluidManager(){
@@ -191,6 +216,10 @@ public class ServerFluidManager {
         //load chunk disk map
         chunkDiskMap = new FluidDiskMap();
         chunkDiskMap.init(saveName);
+        if(EngineState.EngineFlags.MIGRATE_SAVES_TO_REGION && chunkDiskMap.getStorageFormat() == StorageFormat.FILE_PER_CHUNK){
+            int migrated = chunkDiskMap.migrateToRegionFormat(saveName);
+            LoggerInterface.loggerFileIO.INFO("Migrated " + migrated + " fluid chunks to region files");
+        }
     }
     
     /**
@@ -224,6 +253,7 @@ public class ServerFluidManager {
             if(chunkCacheContents.size() > cacheSize){
                 String oldChunkKey = chunkCacheContents.remove(chunkCacheContents.size() - 1);
                 ServerFluidChunk oldChunk = chunkCache.remove(oldChunkKey);
+                this.islandScheduler.forget(oldChunk);
                 oldChunk.freeBuffers();
                 this.linkNeighbors(null, oldChunk.getWorldX(), oldChunk.getWorldY(), oldChunk.getWorldZ());
             }
@@ -281,12 +311,47 @@ public class ServerFluidManager {
         // }
         lock.lock();
         ServerFluidChunk fluidChunk = this.getChunk(worldPos.x, worldPos.y, worldPos.z);
-        fluidChunk.setAsleep(false);
+        this.islandScheduler.wake(fluidChunk);
         fluidChunk.setWeightDelta(voxelPos.x, voxelPos.y, voxelPos.z, weight);
         fluidChunk.setPressure(voxelPos.x, voxelPos.y, voxelPos.z, weight);
         lock.unlock();
     }
 
+    /**
+     * Wakes the fluid at a given chunk, along with the sleeping island it belongs to
+     * @param worldPos The world coordinates of the chunk
+     */
+    public void wake(Vector3i worldPos){
+        lock.lock();
+        ServerFluidChunk fluidChunk = this.chunkCache.get(this.getKey(worldPos.x, worldPos.y, worldPos.z));
+        if(fluidChunk != null){
+            this.islandScheduler.wake(fluidChunk);
+        }
+        lock.unlock();
+    }
+
+    /**
+     * Updates the fluid bounds after the terrain has been edited and wakes the affected fluid
+     * @param worldPos The world coordinates of the terrain chunk that was edited
+     * @param voxelPos The voxel coordinates of the voxel that was edited
+     * @param weight The new weight of the terrain voxel
+     */
+    public void onTerrainEdit(Vector3i worldPos, Vector3i voxelPos, float weight){
+        lock.lock();
+        ServerFluidChunk fluidChunk = this.chunkCache.get(this.getKey(worldPos.x, worldPos.y, worldPos.z));
+        if(fluidChunk != null && fluidChunk.isAllocated()){
+            if(
+                voxelPos.x >= ServerFluidChunk.TRUE_DATA_OFFSET && voxelPos.x < ServerFluidChunk.TRUE_DATA_DIM + ServerFluidChunk.TRUE_DATA_OFFSET &&
+                voxelPos.y >= ServerFluidChunk.TRUE_DATA_OFFSET && voxelPos.y < ServerFluidChunk.TRUE_DATA_DIM + ServerFluidChunk.TRUE_DATA_OFFSET &&
+                voxelPos.z >= ServerFluidChunk.TRUE_DATA_OFFSET && voxelPos.z < ServerFluidChunk.TRUE_DATA_DIM + ServerFluidChunk.TRUE_DATA_OFFSET
+            ){
+                fluidChunk.setBound(voxelPos.x, voxelPos.y, voxelPos.z, weight);
+            }
+            this.islandScheduler.wake(fluidChunk);
+        }
+        lock.unlock();
+    }
+
     /**
      * Adds a chunk to the queue to be simulated
      * @param worldX The world x coordinate of the chunk
@@ -326,6 +391,7 @@ public class ServerFluidManager {
                 if(this.serverFluidSimulator != null){
                     this.serverFluidSimulator.simulate(this.simulationQueue,this.broadcastQueue);
                 }
+                this.islandScheduler.update(this.simulationQueue);
             }
 
             //set active chunk size
@@ -362,17 +428,60 @@ public class ServerFluidManager {
         ServerFluidChunk rVal = chunkGenerator.generateChunk(worldX, worldY, worldZ);
         ServerWorldData serverWorldData = this.parent;
         ServerTerrainChunk terrainChunk = serverWorldData.getServerTerrainManager().getChunk(worldX, worldY, worldZ, ServerChunkCache.STRIDE_FULL_RES);
+        ServerFluidManager.fillBounds(rVal, terrainChunk);
+        this.linkNeighbors(rVal, worldX, worldY, worldZ);
+        lock.unlock();
+        return rVal;
+    }
+
+    /**
+     * Fills the bounds of a freshly generated fluid chunk from the terrain it sits in
+     * @param fluidChunk The fluid chunk
+     * @param terrainChunk The terrain chunk at the same position
+     */
+    private static void fillBounds(ServerFluidChunk fluidChunk, ServerTerrainChunk terrainChunk){
         for(int x = ServerFluidChunk.TRUE_DATA_OFFSET; x < ServerFluidChunk.TRUE_DATA_DIM + ServerFluidChunk.TRUE_DATA_OFFSET; x++){
             for(int y = ServerFluidChunk.TRUE_DATA_OFFSET; y < ServerFluidChunk.TRUE_DATA_DIM + ServerFluidChunk.TRUE_DATA_OFFSET; y++){
                 for(int z = ServerFluidChunk.TRUE_DATA_OFFSET; z < ServerFluidChunk.TRUE_DATA_DIM + ServerFluidChunk.TRUE_DATA_OFFSET; z++){
-                    rVal.setBound(x, y, z, terrainChunk.getWeight(x, y, z));
-                    rVal.setWeight(x, y, z, 0);
+                    fluidChunk.setBound(x, y, z, terrainChunk.getWeight(x, y, z));
+                    fluidChunk.setWeight(x, y, z, 0);
                 }
             }
         }
-        this.linkNeighbors(rVal, worldX, worldY, worldZ);
+    }
+
+    /**
+     * Generates the fluid chunk at a terrain chunk's position and writes it straight to disk, skipping the cache.
+     * Used by world pre-generation so that the chunks don't pile up in memory.
+     * @param terrainChunk The full res terrain chunk at the position
+     */
+    public void pregenerate(ServerTerrainChunk terrainChunk){
+        int worldX = terrainChunk.getWorldX();
+        int worldY = terrainChunk.getWorldY();
+        int worldZ = terrainChunk.getWorldZ();
+        lock.lock();
+        if(chunkDiskMap == null){
+            lock.unlock();
+            throw new Error("Trying to pregenerate fluid without a disk map!");
+        }
+        if(!chunkCache.containsKey(this.getKey(worldX, worldY, worldZ)) && !chunkDiskMap.containsFluidAtPosition(worldX, worldY, worldZ)){
+            ServerFluidChunk chunk = chunkGenerator.generateChunk(worldX, worldY, worldZ);
+            ServerFluidManager.fillBounds(chunk, terrainChunk);
+            chunkDiskMap.saveToDisk(chunk);
+            chunk.freeBuffers();
+        }
+        lock.unlock();
+    }
+
+    /**
+     * Flushes the disk map so that chunks written straight to it survive a crash
+     */
+    public void saveDiskMap(){
+        lock.lock();
+        if(chunkDiskMap != null){
+            chunkDiskMap.save();
+        }
         lock.unlock();
-        return rVal;
     }
 
     /**
@@ -459,5 +568,21 @@ public class ServerFluidManager {
         return this.activeChunkCount;
     }
 
+    /**
+     * Gets the number of islands of fluid that are awake
+     * @return The number of islands
+     */
+    public int getActiveIslandCount(){
+        return this.islandScheduler.getActiveIslandCount();
+    }
+
+    /**
+     * Gets the number of chunks with fluid in them that are asleep
+     * @return The number of chunks
+     */
+    public int getSleepingChunkCount(){
+        return this.islandScheduler.getSleepingChunkCount();
+    }
+
     
 }
@@ -0,0 +1,447 @@
+package electrosphere.server.physics.fluid.simulator;
+
+import java.nio.FloatBuffer;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import electrosphere.engine.threads.ThreadCounts;
+import electrosphere.server.physics.fluid.manager.ServerFluidChunk;
+
+/**
+ * A pure-java fluid simulator. Works directly on the buffers of the fluid chunks, so it can run on hosts without the native library.
+ * <p>
+ * Each step runs in phases on a fork-join pool:
+ * </p>
+ * <ol>
+ * <li>Queued weight deltas are added to the weights</li>
+ * <li>Each chunk copies the faces of its neighbors into its ghost cells</li>
+ * <li>Each chunk moves fluid between its cells. Flux across a face is a function of only the two cells on either side of it,
+ * so two neighboring chunks compute the same flux for their shared face and no mass is created or lost at chunk borders</li>
+ * <li>The ghost cells are refreshed with the new values</li>
+ * </ol>
+ * <p>
+ * The inner loops are written without branches (min/max and the sign bit of the bounds) so the JIT can keep them tight.
+ * </p>
+ */
+public class FluidJavaSimulator implements ServerFluidSimulator {
+
+    /**
+     * The maximum weight of a cell before it starts pushing fluid upwards
+     */
+    public static final float MAX_WEIGHT = 1.0f;
+
+    /**
+     * The fraction of a cell that can fall into the cell below it per step
+     */
+    public static final float GRAVITY_RATE = 0.5f;
+
+    /**
+     * The fraction of the weight above MAX_WEIGHT that is pushed up into the cell above per step
+     */
+    public static final float PRESSURE_RATE = 0.1f;
+
+    /**
+     * The fraction of the weight difference between two horizontally adjacent cells that is equalized per step
+     */
+    public static final float LATERAL_RATE = 0.1f;
+
+    /**
+     * Cells with less than this weight fall in a single step instead of halving forever
+     */
+    public static final float MIN_FLOW = 0.001f;
+
+    /**
+     * Cells with less than this weight don't spread sideways. Must be at least MIN_FLOW / GRAVITY_RATE so a cell can't lose more than it holds
+     */
+    public static final float MIN_SPREAD = 0.01f;
+
+    /**
+     * The bound value used for ghost cells that don't have a simulated neighbor
+     */
+    static final float CLOSED_BOUND = 1.0f;
+
+    /**
+     * Stride between rows of a buffer
+     */
+    static final int ROW = ServerFluidChunk.BUFFER_DIM;
+
+    /**
+     * Stride between slices of a buffer
+     */
+    static final int SLICE = ServerFluidChunk.BUFFER_DIM * ServerFluidChunk.BUFFER_DIM;
+
+    /**
+     * The first index of the true data along an axis
+     */
+    static final int FIRST = ServerFluidChunk.TRUE_DATA_OFFSET;
+
+    /**
+     * The last index of the true data along an axis
+     */
+    static final int LAST = ServerFluidChunk.TRUE_DATA_DIM + ServerFluidChunk.TRUE_DATA_OFFSET - 1;
+
+    /**
+     * Phase that adds the queued weight deltas
+     */
+    static final int PHASE_SOURCES = 0;
+
+    /**
+     * Phase that copies neighbor data into the ghost cells
+     */
+    static final int PHASE_EXCHANGE = 1;
+
+    /**
+     * Phase that moves fluid between cells
+     */
+    static final int PHASE_SOLVE = 2;
+
+    /**
+     * The pool the chunks are simulated on
+     */
+    static final ForkJoinPool pool = new ForkJoinPool(ThreadCounts.SERVER_FLUID_SIMULATION_THREADS);
+
+    /**
+     * Per-thread scratch arrays
+     */
+    static final ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(Workspace::new);
+
+    /**
+     * The chunks being simulated this step
+     */
+    private Set<ServerFluidChunk> simulated = Collections.newSetFromMap(new IdentityHashMap<ServerFluidChunk,Boolean>());
+
+    @Override
+    public void simulate(List<ServerFluidChunk> fluidChunks, List<ServerFluidChunk> broadcastQueue){
+        if(fluidChunks.isEmpty()){
+            return;
+        }
+        this.simulated.clear();
+        this.simulated.addAll(fluidChunks);
+
+        pool.invoke(new ChunkTask(this, fluidChunks, 0, fluidChunks.size(), PHASE_SOURCES));
+        pool.invoke(new ChunkTask(this, fluidChunks, 0, fluidChunks.size(), PHASE_EXCHANGE));
+        pool.invoke(new ChunkTask(this, fluidChunks, 0, fluidChunks.size(), PHASE_SOLVE));
+        pool.invoke(new ChunkTask(this, fluidChunks, 0, fluidChunks.size(), PHASE_EXCHANGE));
+
+        //metadata
+        float massCount = 0;
+        for(ServerFluidChunk fluidChunk : fluidChunks){
+            boolean wasHomogenous = fluidChunk.isHomogenous;
+            fluidChunk.isHomogenous = fluidChunk.totalDensity <= 0;
+            fluidChunk.updated = !fluidChunk.isHomogenous || !wasHomogenous;
+            massCount = massCount + fluidChunk.totalDensity;
+        }
+        for(ServerFluidChunk fluidChunk : fluidChunks){
+            boolean neighborsHomogenous = true;
+            for(ServerFluidChunk neighbor : fluidChunk.neighbors){
+                if(neighbor != null && !neighbor.isHomogenous){
+                    neighborsHomogenous = false;
+                }
+            }
+            fluidChunk.asleep = fluidChunk.isHomogenous && neighborsHomogenous;
+            if(!fluidChunk.isHomogenous){
+                for(ServerFluidChunk neighbor : fluidChunk.neighbors){
+                    if(neighbor != null){
+                        neighbor.asleep = false;
+                    }
+                }
+            }
+            if(fluidChunk.updated){
+                broadcastQueue.add(fluidChunk);
+            }
+        }
+        ServerFluidChunk.massCount = massCount;
+    }
+
+    /**
+     * Runs a phase of the step on a single chunk
+     * @param fluidChunk The chunk
+     * @param phase The phase
+     */
+    void runPhase(ServerFluidChunk fluidChunk, int phase){
+        switch(phase){
+            case PHASE_SOURCES: {
+                FluidJavaSimulator.addSources(fluidChunk, workspaces.get());
+            } break;
+            case PHASE_EXCHANGE: {
+                FluidJavaSimulator.exchangeGhostCells(fluidChunk, this.simulated);
+            } break;
+            case PHASE_SOLVE: {
+                FluidJavaSimulator.solve(fluidChunk, workspaces.get());
+            } break;
+            default: {
+                throw new Error("Unsupported phase " + phase);
+            }
+        }
+    }
+
+    /**
+     * Adds the queued weight deltas of a chunk to its weights and clears them
+     * @param fluidChunk The chunk
+     * @param workspace The scratch arrays
+     */
+    static void addSources(ServerFluidChunk fluidChunk, Workspace workspace){
+        float[] d = workspace.d;
+        float[] s = workspace.n;
+        FloatBuffer weights = fluidChunk.getWeights();
+        FloatBuffer weightsAdd = fluidChunk.getWeightsAdd();
+        weights.get(0, d);
+        weightsAdd.get(0, s);
+        for(int i = 0; i < ServerFluidChunk.BUFFER_SIZE; i++){
+            d[i] = d[i] + s[i];
+            s[i] = 0;
+        }
+        weights.put(0, d);
+        weightsAdd.put(0, s);
+    }
+
+    /**
+     * Copies the faces of the neighbors of a chunk into its ghost cells.
+     * Faces without a neighbor that is being simulated this step are closed.
+     * @param fluidChunk The chunk
+     * @param simulated The chunks being simulated this step
+     */
+    static void exchangeGhostCells(ServerFluidChunk fluidChunk, Set<ServerFluidChunk> simulated){
+        FloatBuffer weights = fluidChunk.getWeights();
+        FloatBuffer bounds = fluidChunk.getBounds();
+        for(int axis = 0; axis < 3; axis++){
+            for(int side = 0; side < 2; side++){
+                //the ghost layer on this side, and the layer of the neighbor that borders it
+                int ghostLayer = side == 0 ? 0 : ServerFluidChunk.BUFFER_DIM - 1;
+                int sourceLayer = side == 0 ? LAST : FIRST;
+                int neighborIndex = ServerFluidChunk.getNeighborIndex(
+                    axis == 0 ? side * 2 : 1,
+                    axis == 1 ? side * 2 : 1,
+                    axis == 2 ? side * 2 : 1
+                );
+                ServerFluidChunk neighbor = fluidChunk.neighbors[neighborIndex];
+                if(neighbor != null && simulated.contains(neighbor)){
+                    FloatBuffer neighborWeights = neighbor.getWeights();
+                    FloatBuffer neighborBounds = neighbor.getBounds();
+                    for(int i = FIRST; i <= LAST; i++){
+                        for(int j = FIRST; j <= LAST; j++){
+                            int ghost = FluidJavaSimulator.faceIndex(axis, ghostLayer, i, j);
+                            int source = FluidJavaSimulator.faceIndex(axis, sourceLayer, i, j);
+                            weights.put(ghost, neighborWeights.get(source));
+                            bounds.put(ghost, neighborBounds.get(source));
+                        }
+                    }
+                } else {
+                    for(int i = FIRST; i <= LAST; i++){
+                        for(int j = FIRST; j <= LAST; j++){
+                            int ghost = FluidJavaSimulator.faceIndex(axis, ghostLayer, i, j);
+                            weights.put(ghost, 0);
+                            bounds.put(ghost, CLOSED_BOUND);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves fluid between the cells of a chunk for a single step
+     * @param fluidChunk The chunk
+     * @param workspace The scratch arrays
+     */
+    static void solve(ServerFluidChunk fluidChunk, Workspace workspace){
+        float[] d = workspace.d;
+        float[] o = workspace.o;
+        float[] n = workspace.n;
+        float[] u = workspace.u;
+        float[] v = workspace.v;
+        float[] w = workspace.w;
+        fluidChunk.getWeights().get(0, d);
+        fluidChunk.getBounds().get(0, o);
+
+        //a cell is open if its bound is negative
+        for(int i = 0; i < ServerFluidChunk.BUFFER_SIZE; i++){
+            o[i] = Float.floatToRawIntBits(o[i]) >>> 31;
+        }
+        System.arraycopy(d, 0, n, 0, ServerFluidChunk.BUFFER_SIZE);
+
+        float totalDensity = 0;
+        float totalVelocityMag = 0;
+        for(int z = FIRST; z <= LAST; z++){
+            for(int y = FIRST; y <= LAST; y++){
+                int row = y * ROW + z * SLICE;
+                for(int i = row + FIRST; i <= row + LAST; i++){
+                    float down = FluidJavaSimulator.verticalFlux(d[i], d[i - ROW], o[i], o[i - ROW]);
+                    float up = FluidJavaSimulator.verticalFlux(d[i + ROW], d[i], o[i + ROW], o[i]);
+                    float west = FluidJavaSimulator.lateralFlux(d[i - 1], d[i], o[i - 1], o[i]);
+                    float east = FluidJavaSimulator.lateralFlux(d[i], d[i + 1], o[i], o[i + 1]);
+                    float south = FluidJavaSimulator.lateralFlux(d[i - SLICE], d[i], o[i - SLICE], o[i]);
+                    float north = FluidJavaSimulator.lateralFlux(d[i], d[i + SLICE], o[i], o[i + SLICE]);
+                    float weight = d[i] - down + up + west - east + south - north;
+                    n[i] = weight;
+                    u[i] = (west + east) * 0.5f;
+                    v[i] = (down + up) * -0.5f;
+                    w[i] = (south + north) * 0.5f;
+                    totalDensity = totalDensity + weight;
+                    totalVelocityMag = totalVelocityMag + Math.abs(u[i]) + Math.abs(v[i]) + Math.abs(w[i]);
+                }
+            }
+        }
+
+        fluidChunk.getWeights().put(0, n);
+        fluidChunk.getVelocityX().put(0, u);
+        fluidChunk.getVelocityY().put(0, v);
+        fluidChunk.getVelocityZ().put(0, w);
+        fluidChunk.totalDensity = totalDensity;
+        fluidChunk.totalVelocityMag = totalVelocityMag;
+    }
+
+    /**
+     * Computes the flux from a cell into the cell below it. Negative values flow upwards.
+     * @param upper The weight of the upper cell
+     * @param lower The weight of the lower cell
+     * @param upperOpen 1 if the upper cell is open, 0 otherwise
+     * @param lowerOpen 1 if the lower cell is open, 0 otherwise
+     * @return The flux
+     */
+    static float verticalFlux(float upper, float lower, float upperOpen, float lowerOpen){
+        float room = Math.max(0f, MAX_WEIGHT - lower);
+        float fall = Math.min(Math.min(upper, room), Math.max(GRAVITY_RATE * upper, MIN_FLOW));
+        float rise = PRESSURE_RATE * Math.max(0f, lower - MAX_WEIGHT);
+        return (fall - rise) * upperOpen * lowerOpen;
+    }
+
+    /**
+     * Computes the flux from a cell into the horizontally adjacent cell with the larger coordinate. Negative values flow the other way.
+     * @param a The weight of the cell with the smaller coordinate
+     * @param b The weight of the cell with the larger coordinate
+     * @param aOpen 1 if the first cell is open, 0 otherwise
+     * @param bOpen 1 if the second cell is open, 0 otherwise
+     * @return The flux
+     */
+    static float lateralFlux(float a, float b, float aOpen, float bOpen){
+        return LATERAL_RATE * (Math.max(0f, a - MIN_SPREAD) - Math.max(0f, b - MIN_SPREAD)) * aOpen * bOpen;
+    }
+
+    /**
+     * Gets the index of a cell on a face of the buffer
+     * @param axis The axis the face is perpendicular to
+     * @param layer The coordinate along that axis
+     * @param i The first coordinate on the face
+     * @param j The second coordinate on the face
+     * @return The index into the buffer
+     */
+    static int faceIndex(int axis, int layer, int i, int j){
+        switch(axis){
+            case 0: {
+                return layer + i * ROW + j * SLICE;
+            }
+            case 1: {
+                return i + layer * ROW + j * SLICE;
+            }
+            default: {
+                return i + j * ROW + layer * SLICE;
+            }
+        }
+    }
+
+    /**
+     * Runs a phase over a range of chunks, splitting the range across the pool
+     */
+    static class ChunkTask extends RecursiveAction {
+
+        /**
+         * The simulator
+         */
+        FluidJavaSimulator simulator;
+
+        /**
+         * The chunks
+         */
+        List<ServerFluidChunk> chunks;
+
+        /**
+         * The first chunk of the range
+         */
+        int start;
+
+        /**
+         * The end of the range (exclusive)
+         */
+        int end;
+
+        /**
+         * The phase to run
+         */
+        int phase;
+
+        /**
+         * Constructor
+         * @param simulator The simulator
+         * @param chunks The chunks
+         * @param start The first chunk of the range
+         * @param end The end of the range (exclusive)
+         * @param phase The phase to run
+         */
+        ChunkTask(FluidJavaSimulator simulator, List<ServerFluidChunk> chunks, int start, int end, int phase){
+            this.simulator = simulator;
+            this.chunks = chunks;
+            this.start = start;
+            this.end = end;
+            this.phase = phase;
+        }
+
+        @Override
+        protected void compute(){
+            if(end - start <= 1){
+                for(int i = start; i < end; i++){
+                    simulator.runPhase(chunks.get(i), phase);
+                }
+            } else {
+                int mid = (start + end) / 2;
+                ChunkTask.invokeAll(
+                    new ChunkTask(simulator, chunks, start, mid, phase),
+                    new ChunkTask(simulator, chunks, mid, end, phase)
+                );
+            }
+        }
+
+    }
+
+    /**
+     * Scratch arrays for a single thread
+     */
+    static class Workspace {
+
+        /**
+         * The weights at the start of the step
+         */
+        float[] d = new float[ServerFluidChunk.BUFFER_SIZE];
+
+        /**
+         * Whether each cell is open
+         */
+        float[] o = new float[ServerFluidChunk.BUFFER_SIZE];
+
+        /**
+         * The weights at the end of the step
+         */
+        float[] n = new float[ServerFluidChunk.BUFFER_SIZE];
+
+        /**
+         * The x velocity
+         */
+        float[] u = new float[ServerFluidChunk.BUFFER_SIZE];
+
+        /**
+         * The y velocity
+         */
+        float[] v = new float[ServerFluidChunk.BUFFER_SIZE];
+
+        /**
+         * The z velocity
+         */
+        float[] w = new float[ServerFluidChunk.BUFFER_SIZE];
+
+    }
+
+}
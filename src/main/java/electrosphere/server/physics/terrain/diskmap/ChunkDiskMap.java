@@ -10,7 +10,7 @@ import java.nio.file.Files;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Deflater;
 import java.util.zip.InflaterOutputStream;
 
 import electrosphere.client.terrain.cache.ChunkData;
@@ -18,7 +18,11 @@ import electrosphere.engine.Globals;
 import electrosphere.logger.LoggerInterface;
 import electrosphere.server.physics.terrain.manager.ServerChunkCache;
 import electrosphere.server.physics.terrain.manager.ServerTerrainChunk;
+import electrosphere.server.physics.terrain.manager.TerrainMipLevels;
+import electrosphere.server.physics.terrain.manager.VoxelStorage;
 import electrosphere.server.saves.SaveUtils;
+import electrosphere.server.saves.region.RegionFileStore;
+import electrosphere.server.saves.region.StorageFormat;
 import electrosphere.util.FileUtils;
 import electrosphere.util.annotation.Exclude;
 
@@ -37,17 +41,65 @@ public class ChunkDiskMap {
      */
     static final String VOXEL_DATA_DIR = "/terrain";
 
+    /**
+     * The directory under the save that stores region files for terrain
+     */
+    static final String REGION_DIR = VOXEL_DATA_DIR + "/region";
+
+    /**
+     * The directory under the save that stores region files for reduced-resolution terrain. The stride is appended
+     */
+    static final String MIP_REGION_DIR = REGION_DIR + "/mip";
+
+    /**
+     * The extension for terrain region files
+     */
+    static final String REGION_EXTENSION = ".tr";
+
+    /**
+     * Size of a decompressed chunk payload written before voxel palettes were introduced
+     */
+    static final int LEGACY_PAYLOAD_SIZE = VoxelStorage.VOXEL_COUNT * (4 + 4);
+
+    /**
+     * Size of the blocks used when compressing chunks
+     */
+    static final int DEFLATE_BLOCK_SIZE = 8192;
+
+    /**
+     * The storage format used for new saves
+     */
+    public static final StorageFormat DEFAULT_STORAGE_FORMAT = StorageFormat.REGION;
+
     /**
      * The map of world position+chunk type to the file that actually houses that information
      */
     Map<String,String> worldPosFileMap;
 
+    /**
+     * The storage format of this disk map. Null for saves that predate region files, which are always file-per-chunk.
+     */
+    StorageFormat storageFormat;
+
+    /**
+     * The region files backing this map, indexed by stride, if it is using the region format
+     */
+    @Exclude
+    RegionFileStore[] regionStores = new RegionFileStore[TerrainMipLevels.LEVEL_COUNT];
+
     /**
      * Locks the chunk disk map for thread safety
      */
     @Exclude
     ReentrantLock lock = new ReentrantLock();
 
+    /**
+     * Edit counters for reduced-resolution chunks, keyed by chunk key. Bumped every time a chunk under the reduced-resolution chunk is edited.
+     * Lets a mip level built from chunks read outside the lock detect that it went stale before it is saved.
+     */
+    @Exclude
+    Map<String,Long> mipVersions = new HashMap<String,Long>();
+
     /**
      * Constructor
      */
@@ -66,6 +118,21 @@ public class ChunkDiskMap {
         return worldX + "_" + worldY + "_" + worldZ + "t";
     }
 
+    /**
+     * Gets a key for a given chunk file based on a world coordinate and stride
+     * @param worldX The x component
+     * @param worldY The y component
+     * @param worldZ The z component
+     * @param stride The stride of the chunk
+     * @return The key
+     */
+    private static String getTerrainChunkKey(int worldX, int worldY, int worldZ, int stride){
+        if(stride == ServerChunkCache.STRIDE_FULL_RES){
+            return ChunkDiskMap.getTerrainChunkKey(worldX, worldY, worldZ);
+        }
+        return worldX + "_" + worldY + "_" + worldZ + "t" + stride;
+    }
+
     /**
      * Gets a key for a given chunk file based on a world coordinate
      * @param worldX The x component
@@ -98,7 +165,7 @@ public class ChunkDiskMap {
                 }
             }
         } else {
-            rVal = new ChunkDiskMap();
+            rVal = ChunkDiskMap.init(DEFAULT_STORAGE_FORMAT);
         }
         return rVal;
     }
@@ -108,14 +175,59 @@ public class ChunkDiskMap {
      * @param saveName The save name
      */
     public static ChunkDiskMap init(){
-        return new ChunkDiskMap();
+        return ChunkDiskMap.init(DEFAULT_STORAGE_FORMAT);
+    }
+
+    /**
+     * Initializes a diskmap for a new save
+     * @param storageFormat The storage format to use
+     */
+    public static ChunkDiskMap init(StorageFormat storageFormat){
+        ChunkDiskMap rVal = new ChunkDiskMap();
+        rVal.storageFormat = storageFormat;
+        return rVal;
     }
 
     /**
      * Saves the disk map to disk
      */
     public void save(){
+        lock.lock();
+        if(this.getStorageFormat() == StorageFormat.REGION){
+            //region headers are flushed incrementally, so only need to force the writes out
+            for(RegionFileStore regionStore : regionStores){
+                if(regionStore != null){
+                    regionStore.flush();
+                }
+            }
+        }
         FileUtils.serializeObjectToSavePath(Globals.serverState.currentSave.getName(), MAP_FILE_NAME, this);
+        lock.unlock();
+    }
+
+    /**
+     * Closes any open files backing the disk map
+     */
+    public void close(){
+        lock.lock();
+        for(int i = 0; i < regionStores.length; i++){
+            if(regionStores[i] != null){
+                regionStores[i].close();
+                regionStores[i] = null;
+            }
+        }
+        lock.unlock();
+    }
+
+    /**
+     * Gets the storage format of this disk map
+     * @return The storage format
+     */
+    public StorageFormat getStorageFormat(){
+        if(storageFormat == null){
+            return StorageFormat.FILE_PER_CHUNK;
+        }
+        return storageFormat;
     }
 
     /**
@@ -127,11 +239,20 @@ public class ChunkDiskMap {
      * @return True if the map contains the chunk, false otherwise
      */
     public boolean containsTerrainAtPosition(int worldX, int worldY, int worldZ, int stride){
-        if(stride != ServerChunkCache.STRIDE_FULL_RES){
-            throw new Error("Server chunk diskmap does not currently support non-full-res chunks! " + stride);
+        if(!TerrainMipLevels.isValidStride(stride)){
+            throw new Error("Server chunk diskmap does not support stride! " + stride);
+        }
+        if(!TerrainMipLevels.isAligned(worldX, worldY, worldZ, stride)){
+            //only aligned reduced-res chunks are persisted
+            return false;
         }
         lock.lock();
-        boolean rVal = worldPosFileMap.containsKey(getTerrainChunkKey(worldX, worldY, worldZ));
+        boolean rVal = false;
+        if(this.getStorageFormat() == StorageFormat.REGION){
+            rVal = this.getRegionStore(stride).contains(worldX, worldY, worldZ);
+        } else {
+            rVal = worldPosFileMap.containsKey(ChunkDiskMap.getTerrainChunkKey(worldX, worldY, worldZ, stride));
+        }
         lock.unlock();
         return rVal;
     }
@@ -155,120 +276,329 @@ public class ChunkDiskMap {
      * @param worldX The x coordinate
      * @param worldY The y coordinate
      * @param worldZ The z coordinate
+     * @param stride The stride of the chunk
      * @return The server terrain chunk if it exists, null otherwise
      */
     public ServerTerrainChunk getTerrainChunk(int worldX, int worldY, int worldZ, int stride){
-        if(stride != ServerChunkCache.STRIDE_FULL_RES){
-            throw new Error("Server chunk diskmap does not currently support non-full-res chunks! " + stride);
+        if(!TerrainMipLevels.isValidStride(stride)){
+            throw new Error("Server chunk diskmap does not support stride! " + stride);
+        }
+        if(!TerrainMipLevels.isAligned(worldX, worldY, worldZ, stride)){
+            return null;
         }
         lock.lock();
-        LoggerInterface.loggerEngine.INFO("Load chunk " + worldX + " " + worldY + " " + worldZ);
+        LoggerInterface.loggerEngine.INFO("Load chunk " + worldX + " " + worldY + " " + worldZ + " " + stride);
         ServerTerrainChunk rVal = null;
-        if(this.containsTerrainAtPosition(worldX, worldY, worldZ, stride)){
+        byte[] rawDataCompressed = null;
+        if(this.getStorageFormat() == StorageFormat.REGION){
+            rawDataCompressed = this.getRegionStore(stride).read(worldX, worldY, worldZ);
+        } else if(this.containsTerrainAtPosition(worldX, worldY, worldZ, stride)){
             //read file
-            String fileName = worldPosFileMap.get(ChunkDiskMap.getTerrainChunkKey(worldX, worldY, worldZ));
-            byte[] rawDataCompressed = FileUtils.loadBinaryFromSavePath(Globals.serverState.currentSave.getName(), fileName);
-            //decompress
-            byte[] rawData = null;
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            InflaterOutputStream inflaterInputStream = new InflaterOutputStream(out);
-            try {
-                inflaterInputStream.write(rawDataCompressed);
-                inflaterInputStream.flush();
-                inflaterInputStream.close();
-                rawData = out.toByteArray();
-            } catch (IOException e) {
-                LoggerInterface.loggerFileIO.ERROR(e);
+            String fileName = worldPosFileMap.get(ChunkDiskMap.getTerrainChunkKey(worldX, worldY, worldZ, stride));
+            rawDataCompressed = FileUtils.loadBinaryFromSavePath(Globals.serverState.currentSave.getName(), fileName);
+        }
+        if(rawDataCompressed != null){
+            rVal = ChunkDiskMap.deserializeChunk(worldX, worldY, worldZ, rawDataCompressed);
+        }
+        lock.unlock();
+        return rVal;
+    }
+
+    /**
+     * Saves a full res terrain chunk to disk
+     * @param terrainChunk The terrain chunk
+     */
+    public void saveToDisk(ServerTerrainChunk terrainChunk){
+        this.saveToDisk(terrainChunk, ServerChunkCache.STRIDE_FULL_RES);
+    }
+
+    /**
+     * Saves a terrain chunk to disk
+     * @param terrainChunk The terrain chunk
+     * @param stride The stride of the chunk
+     */
+    public void saveToDisk(ServerTerrainChunk terrainChunk, int stride){
+        if(!TerrainMipLevels.isValidStride(stride)){
+            throw new Error("Server chunk diskmap does not support stride! " + stride);
+        }
+        if(!TerrainMipLevels.isAligned(terrainChunk.getWorldX(), terrainChunk.getWorldY(), terrainChunk.getWorldZ(), stride)){
+            return;
+        }
+        //compress before taking the lock so other threads are not blocked on deflate
+        byte[] compressed = ChunkDiskMap.serializeChunk(terrainChunk);
+        lock.lock();
+        this.writeCompressed(terrainChunk, stride, compressed);
+        lock.unlock();
+    }
+
+    /**
+     * Saves a reduced-resolution terrain chunk to disk, unless a chunk under it was edited since the given version was read
+     * @param terrainChunk The reduced-resolution terrain chunk
+     * @param stride The stride of the chunk
+     * @param version The version returned by getMipVersion before the chunks it was built from were read
+     * @return true if the chunk was saved, false if it is stale
+     */
+    public boolean saveMipLevel(ServerTerrainChunk terrainChunk, int stride, long version){
+        if(stride == ServerChunkCache.STRIDE_FULL_RES || !TerrainMipLevels.isValidStride(stride)){
+            throw new Error("Not a reduced-resolution stride! " + stride);
+        }
+        if(!TerrainMipLevels.isAligned(terrainChunk.getWorldX(), terrainChunk.getWorldY(), terrainChunk.getWorldZ(), stride)){
+            return false;
+        }
+        byte[] compressed = ChunkDiskMap.serializeChunk(terrainChunk);
+        lock.lock();
+        boolean rVal = this.getMipVersionLocked(terrainChunk.getWorldX(), terrainChunk.getWorldY(), terrainChunk.getWorldZ(), stride) == version;
+        if(rVal){
+            this.writeCompressed(terrainChunk, stride, compressed);
+        }
+        lock.unlock();
+        return rVal;
+    }
+
+    /**
+     * Gets the edit counter of a reduced-resolution chunk
+     * @param worldX The world x coordinate of the reduced-resolution chunk
+     * @param worldY The world y coordinate of the reduced-resolution chunk
+     * @param worldZ The world z coordinate of the reduced-resolution chunk
+     * @param stride The stride of the chunk
+     * @return The edit counter
+     */
+    public long getMipVersion(int worldX, int worldY, int worldZ, int stride){
+        lock.lock();
+        long rVal = this.getMipVersionLocked(worldX, worldY, worldZ, stride);
+        lock.unlock();
+        return rVal;
+    }
+
+    /**
+     * Gets the edit counter of a reduced-resolution chunk. Must hold the lock.
+     * @param worldX The world x coordinate of the reduced-resolution chunk
+     * @param worldY The world y coordinate of the reduced-resolution chunk
+     * @param worldZ The world z coordinate of the reduced-resolution chunk
+     * @param stride The stride of the chunk
+     * @return The edit counter
+     */
+    private long getMipVersionLocked(int worldX, int worldY, int worldZ, int stride){
+        Long rVal = mipVersions.get(ChunkDiskMap.getTerrainChunkKey(worldX, worldY, worldZ, stride));
+        if(rVal == null){
+            return 0;
+        }
+        return rVal;
+    }
+
+    /**
+     * Writes a compressed terrain chunk to its storage. Must hold the lock.
+     * @param terrainChunk The terrain chunk
+     * @param stride The stride of the chunk
+     * @param compressed The compressed chunk
+     */
+    private void writeCompressed(ServerTerrainChunk terrainChunk, int stride, byte[] compressed){
+        LoggerInterface.loggerEngine.DEBUG("Save to disk: " + terrainChunk.getWorldX() + " " + terrainChunk.getWorldY() + " " + terrainChunk.getWorldZ() + " " + stride);
+        if(compressed == null){
+            return;
+        }
+        if(this.getStorageFormat() == StorageFormat.REGION){
+            this.getRegionStore(stride).write(terrainChunk.getWorldX(), terrainChunk.getWorldY(), terrainChunk.getWorldZ(), compressed);
+        } else {
+            //get the file name for this chunk
+            String fileName = null;
+            String chunkKey = ChunkDiskMap.getTerrainChunkKey(terrainChunk.getWorldX(),terrainChunk.getWorldY(),terrainChunk.getWorldZ(), stride);
+            if(worldPosFileMap.containsKey(chunkKey)){
+                fileName = worldPosFileMap.get(chunkKey);
+            } else {
+                fileName = VOXEL_DATA_DIR + "/" + chunkKey + ".dat";
             }
-            //parse
-            if(rawData != null){
-                ByteBuffer buffer = ByteBuffer.wrap(rawData);
-                FloatBuffer floatView = buffer.asFloatBuffer();
-                int DIM = ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE;
-                float[][][] weights = new float[DIM][DIM][DIM];
-                int[][][] values = new int[DIM][DIM][DIM];
-                for(int x = 0; x < DIM; x++){
-                    for(int y = 0; y < DIM; y++){
-                        for(int z = 0; z < DIM; z++){
-                            weights[x][y][z] = floatView.get();
-                        }
-                    }
+            //write to disk
+            FileUtils.saveBinaryToSavePath(Globals.serverState.currentSave.getName(), fileName, compressed);
+            //save to the map of filenames
+            worldPosFileMap.put(chunkKey,fileName);
+        }
+    }
+
+    /**
+     * Deletes every persisted reduced-resolution chunk that covers a full res chunk and bumps their edit counters.
+     * Should be called whenever the full res chunk is edited so the mip levels get rebuilt.
+     * @param worldX The world x coordinate of the full res chunk
+     * @param worldY The world y coordinate of the full res chunk
+     * @param worldZ The world z coordinate of the full res chunk
+     */
+    public void invalidateMipLevels(int worldX, int worldY, int worldZ){
+        lock.lock();
+        for(int stride = ServerChunkCache.STRIDE_FULL_RES + 1; stride < TerrainMipLevels.LEVEL_COUNT; stride++){
+            int mipX = TerrainMipLevels.getOrigin(worldX, stride);
+            int mipY = TerrainMipLevels.getOrigin(worldY, stride);
+            int mipZ = TerrainMipLevels.getOrigin(worldZ, stride);
+            mipVersions.merge(ChunkDiskMap.getTerrainChunkKey(mipX, mipY, mipZ, stride), 1L, Long::sum);
+            if(this.getStorageFormat() == StorageFormat.REGION){
+                this.getRegionStore(stride).remove(mipX, mipY, mipZ);
+            } else {
+                String fileName = worldPosFileMap.remove(ChunkDiskMap.getTerrainChunkKey(mipX, mipY, mipZ, stride));
+                if(fileName != null){
+                    FileUtils.getSaveFile(Globals.serverState.currentSave.getName(), fileName).delete();
                 }
-                IntBuffer intView = buffer.asIntBuffer();
-                intView.position(DIM * DIM * DIM);
-                int firstType = -1;
-                boolean homogenous = true;
-                for(int x = 0; x < DIM; x++){
-                    for(int y = 0; y < DIM; y++){
-                        for(int z = 0; z < DIM; z++){
-                            values[x][y][z] = intView.get();
-                            if(firstType == -1){
-                                firstType = values[x][y][z];
-                            } else if(homogenous && firstType == values[x][y][z]){
-                                homogenous = false;
-                            }
-                        }
-                    }
+            }
+        }
+        lock.unlock();
+    }
+
+    /**
+     * Migrates a save that uses one file per chunk to region files. The legacy chunk files are left in place.
+     * Only full res chunks are migrated, reduced-resolution chunks are rebuilt on demand.
+     * @param saveName The name of the save
+     * @return The number of chunks migrated
+     */
+    public int migrateToRegionFormat(String saveName){
+        lock.lock();
+        int rVal = 0;
+        if(this.getStorageFormat() == StorageFormat.FILE_PER_CHUNK){
+            RegionFileStore store = new RegionFileStore(new File(SaveUtils.deriveSaveDirectoryPath(saveName) + REGION_DIR), REGION_EXTENSION);
+            for(Map.Entry<String,String> entry : worldPosFileMap.entrySet()){
+                String key = entry.getKey();
+                if(!key.endsWith("t")){
+                    continue;
+                }
+                String[] components = key.substring(0, key.length() - 1).split("_");
+                int worldX = Integer.parseInt(components[0]);
+                int worldY = Integer.parseInt(components[1]);
+                int worldZ = Integer.parseInt(components[2]);
+                byte[] rawDataCompressed = FileUtils.loadBinaryFromSavePath(saveName, entry.getValue());
+                if(rawDataCompressed != null){
+                    //payload format is identical, so copy the compressed bytes straight across
+                    store.write(worldX, worldY, worldZ, rawDataCompressed);
+                    rVal++;
                 }
-                rVal = new ServerTerrainChunk(worldX, worldY, worldZ, homogenous ? firstType : ChunkData.NOT_HOMOGENOUS, weights, values);
             }
+            store.flush();
+            this.regionStores[ServerChunkCache.STRIDE_FULL_RES] = store;
+            this.storageFormat = StorageFormat.REGION;
+            this.worldPosFileMap.clear();
+            FileUtils.serializeObjectToSavePath(saveName, MAP_FILE_NAME, this);
         }
         lock.unlock();
         return rVal;
     }
 
     /**
-     * Saves a terrain chunk to disk
+     * Gets the region store for a stride, opening it if necessary
+     * @param stride The stride
+     * @return The region store
+     */
+    private RegionFileStore getRegionStore(int stride){
+        if(regionStores[stride] == null){
+            String dir = REGION_DIR;
+            if(stride != ServerChunkCache.STRIDE_FULL_RES){
+                dir = MIP_REGION_DIR + stride;
+            }
+            regionStores[stride] = new RegionFileStore(new File(SaveUtils.deriveSaveDirectoryPath(Globals.serverState.currentSave.getName()) + dir), REGION_EXTENSION);
+        }
+        return regionStores[stride];
+    }
+
+    /**
+     * Serializes and compresses a terrain chunk
+     * <p>
+     * Payload layout (before compression):
+     * [weights, storage order] [int homogenous value] [voxel palette section]
+     * </p>
      * @param terrainChunk The terrain chunk
+     * @return The compressed bytes
      */
-    public void saveToDisk(ServerTerrainChunk terrainChunk){
-        lock.lock();
-        LoggerInterface.loggerEngine.DEBUG("Save to disk: " + terrainChunk.getWorldX() + " " + terrainChunk.getWorldY() + " " + terrainChunk.getWorldZ());
-        //get the file name for this chunk
-        String fileName = null;
-        String chunkKey = ChunkDiskMap.getTerrainChunkKey(terrainChunk.getWorldX(),terrainChunk.getWorldY(),terrainChunk.getWorldZ());
-        if(worldPosFileMap.containsKey(chunkKey)){
-            fileName = worldPosFileMap.get(chunkKey);
-        } else {
-            fileName = VOXEL_DATA_DIR + "/" + chunkKey + ".dat";
+    private static byte[] serializeChunk(ServerTerrainChunk terrainChunk){
+        VoxelStorage voxels = terrainChunk.getVoxels();
+        ByteBuffer paletteSection = ByteBuffer.allocate(4 + voxels.getPaletteSerializedSize());
+        paletteSection.putInt(terrainChunk.getHomogenousValue());
+        voxels.writePalette(paletteSection);
+        paletteSection.flip();
+        //compress straight out of the voxel storage so the weights are never copied
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] block = new byte[DEFLATE_BLOCK_SIZE];
+        Deflater deflater = new Deflater();
+        deflater.setInput(voxels.getWeightBytes());
+        while(!deflater.needsInput()){
+            out.write(block, 0, deflater.deflate(block));
         }
-        //generate binary for the file
-        float[][][] weights = terrainChunk.getWeights();
-        int[][][] values = terrainChunk.getValues();
-        int DIM = ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE;
-        ByteBuffer buffer = ByteBuffer.allocate(DIM * DIM * DIM * 4 + DIM * DIM * DIM * 4);
+        deflater.setInput(paletteSection);
+        deflater.finish();
+        while(!deflater.finished()){
+            out.write(block, 0, deflater.deflate(block));
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    /**
+     * Decompresses and parses a terrain chunk
+     * @param worldX The x coordinate
+     * @param worldY The y coordinate
+     * @param worldZ The z coordinate
+     * @param rawDataCompressed The compressed bytes
+     * @return The chunk, or null if it could not be parsed
+     */
+    private static ServerTerrainChunk deserializeChunk(int worldX, int worldY, int worldZ, byte[] rawDataCompressed){
+        ServerTerrainChunk rVal = null;
+        //decompress
+        byte[] rawData = null;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InflaterOutputStream inflaterInputStream = new InflaterOutputStream(out);
+        try {
+            inflaterInputStream.write(rawDataCompressed);
+            inflaterInputStream.flush();
+            inflaterInputStream.close();
+            rawData = out.toByteArray();
+        } catch (IOException e) {
+            LoggerInterface.loggerFileIO.ERROR(e);
+        }
+        //parse
+        if(rawData != null){
+            ByteBuffer buffer = ByteBuffer.wrap(rawData);
+            if(rawData.length == LEGACY_PAYLOAD_SIZE){
+                rVal = ChunkDiskMap.deserializeLegacyChunk(worldX, worldY, worldZ, buffer);
+            } else {
+                VoxelStorage voxels = new VoxelStorage();
+                voxels.readWeights(buffer);
+                int homogenousValue = buffer.getInt();
+                voxels.readPalette(buffer);
+                rVal = new ServerTerrainChunk(worldX, worldY, worldZ, homogenousValue, voxels);
+            }
+        }
+        return rVal;
+    }
+
+    /**
+     * Parses a decompressed terrain chunk that was written before voxel palettes (all weights then all types, both in x,y,z order)
+     * @param worldX The x coordinate
+     * @param worldY The y coordinate
+     * @param worldZ The z coordinate
+     * @param buffer The decompressed bytes
+     * @return The chunk
+     */
+    private static ServerTerrainChunk deserializeLegacyChunk(int worldX, int worldY, int worldZ, ByteBuffer buffer){
         FloatBuffer floatView = buffer.asFloatBuffer();
+        int DIM = ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE;
+        VoxelStorage voxels = new VoxelStorage();
+        boolean homogenous = true;
         for(int x = 0; x < DIM; x++){
             for(int y = 0; y < DIM; y++){
                 for(int z = 0; z < DIM; z++){
-                    floatView.put(weights[x][y][z]);
+                    float weight = floatView.get();
+                    voxels.setWeight(x, y, z, weight);
+                    if(weight > -1.0f && weight < 1.0f){
+                        homogenous = false;
+                    }
                 }
             }
         }
-        buffer.position(DIM * DIM * DIM * 4);
         IntBuffer intView = buffer.asIntBuffer();
+        intView.position(DIM * DIM * DIM);
         for(int x = 0; x < DIM; x++){
             for(int y = 0; y < DIM; y++){
                 for(int z = 0; z < DIM; z++){
-                    intView.put(values[x][y][z]);
+                    voxels.setType(x, y, z, intView.get());
                 }
             }
         }
-        //compress
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        DeflaterOutputStream deflaterInputStream = new DeflaterOutputStream(out);
-        try {
-            deflaterInputStream.write(buffer.array());
-            deflaterInputStream.flush();
-            deflaterInputStream.close();
-            //write to disk
-            FileUtils.saveBinaryToSavePath(Globals.serverState.currentSave.getName(), fileName, out.toByteArray());
-            //save to the map of filenames
-            worldPosFileMap.put(chunkKey,fileName);
-        } catch (IOException e) {
-            LoggerInterface.loggerFileIO.ERROR(e);
-        }
-        lock.unlock();
+        homogenous = homogenous && voxels.getPaletteSize() == 1;
+        return new ServerTerrainChunk(worldX, worldY, worldZ, homogenous ? voxels.getType(0) : ChunkData.NOT_HOMOGENOUS, voxels);
     }
 
 }
@@ -87,7 +87,7 @@ public class TerrainEditing {
                     currentPositionMagnitude > 0 &&
                     (data = voxelCellManager.getChunkAtPosition(chunkPos)) != null
                 ){
-                    float current = data.getWeights()[voxelPos.x][voxelPos.y][voxelPos.z];
+                    float current = data.getWeight(voxelPos.x, voxelPos.y, voxelPos.z);
                     //hard clamp so it doesn't go over 1
                     float finalValue = Math.max(Math.min(current + weight / distance,1),-1);
                     if(finalValue < MINIMUM_FULL_VALUE && current > MINIMUM_FULL_VALUE){
@@ -152,7 +152,7 @@ public class TerrainEditing {
                     (data = voxelCellManager.getChunkAtPosition(chunkPos)) != null
                 ){
                     int originalTypeAtPos = voxelCellManager.getVoxelTypeAtLocalPosition(chunkPos, voxelPos);
-                    float current = data.getWeights()[voxelPos.x][voxelPos.y][voxelPos.z];
+                    float current = data.getWeight(voxelPos.x, voxelPos.y, voxelPos.z);
                     //hard clamp so it doesn't go over 1
                     float finalValue = Math.max(Math.min(current + weight / distance,1),-1);
                     int finalType = originalTypeAtPos;
@@ -7,6 +7,7 @@ import electrosphere.entity.scene.RealmDescriptor;
 import electrosphere.server.macro.spatial.MacroObject;
 import electrosphere.server.physics.terrain.generation.interfaces.ChunkGenerator;
 import electrosphere.server.physics.terrain.manager.ServerTerrainChunk;
+import electrosphere.server.physics.terrain.manager.VoxelStorage;
 import electrosphere.server.physics.terrain.models.TerrainModel;
 
 /**
@@ -29,25 +30,16 @@ public class DefaultChunkGenerator implements ChunkGenerator {
     public ServerTerrainChunk generateChunk(List<MacroObject> macroData, int worldX, int worldY, int worldZ, int stride) {
         //Each chunk also needs custody of the next chunk's first values so that they can perfectly overlap.
         //Hence, width should actually be chunk dimension + 1
-        float[][][] weights = new float[ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE][ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE][ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE];
-        int[][][] values = new int[ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE][ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE][ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE];
-        for(int inc = 0; inc < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; inc++){
-            for(int weightX = 0; weightX < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; weightX++){
-                for(int weightZ = 0; weightZ < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; weightZ++){
-                    weights[weightX][inc][weightZ] = -1;
-                    values[weightX][inc][weightZ] = 0;
-                }
-            }
-        }
+        VoxelStorage voxels = new VoxelStorage();
+        voxels.fill(-1, 0);
         if(worldY < 1){
             for(int weightX = 0; weightX < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; weightX++){
                 for(int weightZ = 0; weightZ < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; weightZ++){
-                    weights[weightX][0][weightZ] = 0.1f;
-                    values[weightX][0][weightZ] = baseVoxelId;
+                    voxels.set(weightX, 0, weightZ, 0.1f, baseVoxelId);
                 }
             }
         }
-        ServerTerrainChunk rVal = new ServerTerrainChunk(worldX, worldY, worldZ, ChunkData.NOT_HOMOGENOUS, weights, values);
+        ServerTerrainChunk rVal = new ServerTerrainChunk(worldX, worldY, worldZ, ChunkData.NOT_HOMOGENOUS, voxels);
         return rVal;
     }
 
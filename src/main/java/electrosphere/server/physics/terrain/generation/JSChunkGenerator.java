@@ -11,6 +11,7 @@ import electrosphere.data.biome.BiomeSurfaceGenerationParams;
 import org.graalvm.polyglot.Value;
 
 import electrosphere.engine.Globals;
+import electrosphere.mem.TerrainChunkPool;
 import electrosphere.server.datacell.ServerWorldData;
 import electrosphere.server.macro.spatial.MacroObject;
 import electrosphere.server.physics.terrain.generation.heightmap.EmptySkyGen;
@@ -25,6 +26,7 @@ import electrosphere.server.physics.terrain.generation.voxelphase.HillsVoxelGen;
 import electrosphere.server.physics.terrain.generation.voxelphase.MountainVoxelGen;
 import electrosphere.server.physics.terrain.generation.voxelphase.VoxelGenerator;
 import electrosphere.server.physics.terrain.manager.ServerTerrainChunk;
+import electrosphere.server.physics.terrain.manager.VoxelStorage;
 import electrosphere.server.physics.terrain.models.TerrainModel;
 
 /**
@@ -117,8 +119,7 @@ public class JSChunkGenerator implements ChunkGenerator {
     public ServerTerrainChunk generateChunk(List<MacroObject> macroData, int worldX, int worldY, int worldZ, int stride) {
         Globals.profiler.beginAggregateCpuSample("TestGenerationChunkGenerator.generateChunk");
         ServerTerrainChunk rVal = new ServerTerrainChunk(worldX, worldY, worldZ);
-        float[][][] weights = new float[ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE][ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE][ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE];;
-        int[][][] values = new int[ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE][ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE][ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE];
+        VoxelStorage voxels = rVal.getVoxels();
 
         try {
             //biome of the current chunk
@@ -135,7 +136,7 @@ public class JSChunkGenerator implements ChunkGenerator {
             int strideValue = (int)Math.pow(2,stride);
 
             //presolve heightfield
-            float[][] heightfield = new float[ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE][ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE];
+            float[][] heightfield = TerrainChunkPool.getFloatColumnField();
             for(int x = 0; x < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; x++){
                 for(int z = 0; z < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; z++){
                     int finalWorldX = worldX + ((x * strideValue) / ServerTerrainChunk.CHUNK_DIMENSION);
@@ -150,7 +151,7 @@ public class JSChunkGenerator implements ChunkGenerator {
                 }
             }
 
-            float[][] gradientField = new float[ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE][ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE];
+            float[][] gradientField = TerrainChunkPool.getFloatColumnField();
             for(int x = 0; x < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; x++){
                 for(int z = 0; z < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; z++){
                     float deltaX = 0;
@@ -192,11 +193,10 @@ public class JSChunkGenerator implements ChunkGenerator {
                                 heightfield[x][z],
                                 surfaceBiome
                             );
-                            weights[x][y][z] = voxel.weight;
-                            values[x][y][z] = voxel.type;
+                            voxels.set(x, y, z, voxel.weight, voxel.type);
                             if(firstType == -2){
-                                firstType = values[x][y][z];
-                            } else if(homogenous && firstType != values[x][y][z]){
+                                firstType = voxel.type;
+                            } else if(homogenous && firstType != voxel.type){
                                 homogenous = false;
                             }
                         }
@@ -208,9 +208,9 @@ public class JSChunkGenerator implements ChunkGenerator {
                 } else {
                     rVal.setHomogenousValue(ChunkData.NOT_HOMOGENOUS);
                 }
-                rVal.setWeights(weights);
-                rVal.setValues(values);
             });
+            TerrainChunkPool.release(heightfield);
+            TerrainChunkPool.release(gradientField);
         } catch(Exception ex){
             ex.printStackTrace();
         }
@@ -6,6 +6,7 @@ import electrosphere.client.terrain.cache.ChunkData;
 import electrosphere.server.macro.spatial.MacroObject;
 import electrosphere.server.physics.terrain.generation.interfaces.ChunkGenerator;
 import electrosphere.server.physics.terrain.manager.ServerTerrainChunk;
+import electrosphere.server.physics.terrain.manager.VoxelStorage;
 import electrosphere.server.physics.terrain.models.TerrainModel;
 
 /**
@@ -33,26 +34,22 @@ public class OverworldChunkGenerator implements ChunkGenerator {
         //Each chunk also needs custody of the next chunk's first values so that they can perfectly overlap.
         //Hence, width should actually be chunk dimension + 1
         float[][] heightmap = getHeightmap(worldX, worldZ);
-        float[][][] weights = new float[ServerTerrainChunk.CHUNK_DIMENSION][ServerTerrainChunk.CHUNK_DIMENSION][ServerTerrainChunk.CHUNK_DIMENSION];
-        int[][][] values = new int[ServerTerrainChunk.CHUNK_DIMENSION][ServerTerrainChunk.CHUNK_DIMENSION][ServerTerrainChunk.CHUNK_DIMENSION];
+        VoxelStorage voxels = new VoxelStorage();
         for(int weightX = 0; weightX < ServerTerrainChunk.CHUNK_DIMENSION; weightX++){
             for(int weightY = 0; weightY < ServerTerrainChunk.CHUNK_DIMENSION; weightY++){
                 for(int weightZ = 0; weightZ < ServerTerrainChunk.CHUNK_DIMENSION; weightZ++){
                     float height = heightmap[ServerTerrainChunk.CHUNK_DIMENSION * worldX + weightX][ServerTerrainChunk.CHUNK_DIMENSION * worldZ + weightZ];
                     if(weightY < height){
-                        weights[weightX][weightY][weightZ] = 1;
-                        values[weightX][weightY][weightZ] = 1;
+                        voxels.set(weightX, weightY, weightZ, 1, 1);
                     } else if(height == 0 && weightY == 0 && worldY == 0) {
-                        weights[weightX][weightY][weightZ] = 0.1f;
-                        values[weightX][weightY][weightZ] = 1;
+                        voxels.set(weightX, weightY, weightZ, 0.1f, 1);
                     } else {
-                        weights[weightX][weightY][weightZ] = -1;
-                        values[weightX][weightY][weightZ] = 0;
+                        voxels.set(weightX, weightY, weightZ, -1, 0);
                     }
                 }
             }
         }
-        returnedChunk = new ServerTerrainChunk(worldX, worldY, worldZ, ChunkData.NOT_HOMOGENOUS, weights, values);
+        returnedChunk = new ServerTerrainChunk(worldX, worldY, worldZ, ChunkData.NOT_HOMOGENOUS, voxels);
         return returnedChunk;
     }
 
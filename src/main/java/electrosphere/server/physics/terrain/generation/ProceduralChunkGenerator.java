@@ -19,6 +19,7 @@ import electrosphere.server.macro.region.MacroRegion;
 import electrosphere.server.macro.spatial.MacroObject;
 import electrosphere.server.macro.structure.VirtualStructure;
 import electrosphere.server.physics.terrain.generation.heightmap.EmptySkyGen;
+import electrosphere.server.physics.terrain.generation.heightmap.HeightmapBatch;
 import electrosphere.server.physics.terrain.generation.heightmap.HeightmapGenerator;
 import electrosphere.server.physics.terrain.generation.heightmap.HeightmapNoiseGen;
 import electrosphere.server.physics.terrain.generation.heightmap.HillsGen;
@@ -33,6 +34,7 @@ import electrosphere.server.physics.terrain.generation.voxelphase.MountainVoxelG
 import electrosphere.server.physics.terrain.generation.voxelphase.NoiseVoxelGen;
 import electrosphere.server.physics.terrain.generation.voxelphase.VoxelGenerator;
 import electrosphere.server.physics.terrain.manager.ServerTerrainChunk;
+import electrosphere.server.physics.terrain.manager.VoxelStorage;
 import electrosphere.server.physics.terrain.models.TerrainModel;
 import electrosphere.util.math.GeomUtils;
 import electrosphere.util.noise.OpenSimplex2S;
@@ -72,6 +74,16 @@ public class ProceduralChunkGenerator implements ChunkGenerator {
      * Controls the default setting for whether to use javascript or not
      */
     public static final boolean DEFAULT_USE_JAVASCRIPT = false;
+
+    /**
+     * The number of biome heightmaps blended into the elevation of each column
+     */
+    static final int ELEVATION_SAMPLES_PER_COLUMN = 4;
+
+    /**
+     * The vertical distance from the surface within which roads and regions paint voxels
+     */
+    static final double MACRO_SURFACE_RANGE = 3;
     
     /**
      * The terreain model for the generator
@@ -98,6 +110,18 @@ public class ProceduralChunkGenerator implements ChunkGenerator {
      */
     boolean useJavascript = false;
 
+    /**
+     * The heightmap batch of each generation thread
+     */
+    ThreadLocal<HeightmapBatch> heightmapBatches = ThreadLocal.withInitial(() -> new HeightmapBatch(
+        ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE * ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE * ELEVATION_SAMPLES_PER_COLUMN
+    ));
+
+    /**
+     * Caches the surface data of chunk columns. Null to solve every column from scratch
+     */
+    TerrainColumnCache columnCache = new TerrainColumnCache(TerrainColumnCache.DEFAULT_CAPACITY);
+
     /**
      * Constructor
      */
@@ -111,6 +135,9 @@ public class ProceduralChunkGenerator implements ChunkGenerator {
      * Registers all generators
      */
     public void registerAllGenerators(){
+        if(this.columnCache != null){
+            this.columnCache.clear();
+        }
         tagHeightmapMap.clear();
         tagVoxelMap.clear();
         this.registerHeightmapGenerator(new EmptySkyGen());
@@ -146,158 +173,350 @@ public class ProceduralChunkGenerator implements ChunkGenerator {
     public ServerTerrainChunk generateChunk(List<MacroObject> macroData, int worldX, int worldY, int worldZ, int stride) {
         Globals.profiler.beginAggregateCpuSample("TestGenerationChunkGenerator.generateChunk");
         ServerTerrainChunk rVal = new ServerTerrainChunk(worldX, worldY, worldZ);
-        float[][][] weights = new float[ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE][ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE][ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE];;
-        int[][][] values = new int[ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE][ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE][ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE];
+        VoxelStorage voxels = rVal.getVoxels();
 
         try {
 
             //stride value
             int strideValue = (int)Math.pow(2,stride);
 
-            //presolve heightfield
-            double[][] heightfield = new double[ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE][ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE];
-            BiomeData[][] surfaceBiomeMap = new BiomeData[ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE][ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE];
-            this.populateElevation(heightfield,surfaceBiomeMap,worldX,worldZ,strideValue);
+            //the surface is shared by every chunk in the column
+            TerrainColumn column = this.getColumn(worldX, worldZ, stride, strideValue);
 
-            double[][] gradientField = new double[ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE][ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE];
-            for(int x = 0; x < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; x++){
-                for(int z = 0; z < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; z++){
-                    double deltaX = 0;
-                    double deltaZ = 0;
-                    if(x < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE - 1){
-                        deltaX = Math.abs(heightfield[x][z] - heightfield[x+1][z]);
-                    } else {
-                        deltaX = Math.abs(heightfield[x][z] - heightfield[x-1][z]);
+            VoxelGenerator voxelGenerator = this.tagVoxelMap.get("test1");
+            GeneratedVoxel voxel = new GeneratedVoxel();
+
+            //
+            //Chunks entirely above or below the surface don't need to sample each voxel
+            //
+            double minRealY = ProceduralChunkGenerator.getRealCoordinate(worldY, 0, strideValue);
+            double maxRealY = ProceduralChunkGenerator.getRealCoordinate(worldY, ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE - 1, strideValue);
+            if(
+                voxelGenerator.getUniformVoxel(voxel, minRealY, maxRealY, column.minHeight, column.maxHeight, stride) &&
+                this.macroDataPreservesUniform(macroData, voxel, worldX, worldZ, strideValue, maxRealY, column.minHeight)
+            ){
+                voxels.fill(voxel.weight, voxel.type);
+                rVal.setHomogenousValue(voxel.type);
+            } else {
+                this.populateVoxels(rVal, macroData, column, voxelGenerator, voxel, worldX, worldY, worldZ, stride, strideValue);
+            }
+        } catch(Exception ex){
+            ex.printStackTrace();
+        }
+        Globals.profiler.endCpuSample();
+        return rVal;
+    }
+
+    /**
+     * Samples every voxel of a chunk
+     * @param chunk The chunk to populate
+     * @param macroData The macro data
+     * @param column The column the chunk is in
+     * @param voxelGenerator The voxel generator
+     * @param voxel Scratch voxel to generate into
+     * @param worldX The world x coordinate
+     * @param worldY The world y coordinate
+     * @param worldZ The world z coordinate
+     * @param stride The stride of the data
+     * @param strideValue The stride value
+     */
+    private void populateVoxels(
+        ServerTerrainChunk chunk,
+        List<MacroObject> macroData,
+        TerrainColumn column,
+        VoxelGenerator voxelGenerator,
+        GeneratedVoxel voxel,
+        int worldX, int worldY, int worldZ,
+        int stride, int strideValue
+    ){
+        VoxelStorage voxels = chunk.getVoxels();
+        int firstType = -2;
+        boolean homogenous = true;
+        GenerationContext generationContext = new GenerationContext();
+        generationContext.setServerWorldData(serverWorldData);
+
+        //work out which macro objects can touch each column once, rather than per voxel
+        MacroStamps stamps = null;
+        if(macroData != null && macroData.size() > 0){
+            stamps = this.prepareMacroStamps(macroData, worldX, worldZ, strideValue);
+        }
+
+        //
+        // Generate the voxels directly
+        //
+        for(int x = 0; x < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; x++){
+            int finalWorldX = worldX + ((x * strideValue) / ServerTerrainChunk.CHUNK_DIMENSION);
+            int finalChunkX = (x * strideValue) % ServerTerrainChunk.CHUNK_DIMENSION;
+            double realX = ServerWorldData.convertVoxelToRealSpace(finalChunkX,finalWorldX);
+
+            for(int z = 0; z < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; z++){
+                BiomeData surfaceBiome = column.surfaceBiomeMap[x][z];
+                BiomeSurfaceGenerationParams surfaceParams = surfaceBiome.getSurfaceGenerationParams();
+
+
+                int finalWorldZ = worldZ + ((z * strideValue) / ServerTerrainChunk.CHUNK_DIMENSION);
+                int finalChunkZ = (z * strideValue) % ServerTerrainChunk.CHUNK_DIMENSION;
+                double realZ = ServerWorldData.convertVoxelToRealSpace(finalChunkZ,finalWorldZ);
+                double surfaceHeight = column.heightfield[x][z];
+                double gradient = column.gradientField[x][z];
+                double surfaceSelection = column.surfaceSelection[x][z];
+                int columnMaskOffset = stamps == null ? 0 : stamps.getColumnOffset(x, z);
+                boolean columnStamped = stamps != null && stamps.isColumnStamped(columnMaskOffset);
+
+                for(int y = 0; y < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; y++){
+                    int finalWorldY = worldY + ((y * strideValue) / ServerTerrainChunk.CHUNK_DIMENSION);
+                    int finalChunkY = (y * strideValue) % ServerTerrainChunk.CHUNK_DIMENSION;
+                    double realY = ServerWorldData.convertVoxelToRealSpace(finalChunkY,finalWorldY);
+                    
+                    voxelGenerator.getVoxel(
+                        voxel,
+                        finalWorldX, finalWorldY, finalWorldZ,
+                        finalChunkX, finalChunkY, finalChunkZ,
+                        realX, realY, realZ,
+                        stride,
+                        surfaceHeight, gradient, surfaceSelection,
+                        surfaceBiome, surfaceParams,
+                        generationContext
+                    );
+                    //apply macro data
+                    if(columnStamped){
+                        this.applyMacroData(stamps, columnMaskOffset, realX, realY, realZ, surfaceHeight, voxel);
                     }
-                    if(z < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE - 1){
-                        deltaX = Math.abs(heightfield[x][z] - heightfield[x][z+1]);
-                    } else {
-                        deltaX = Math.abs(heightfield[x][z] - heightfield[x][z-1]);
+                    voxels.set(x, y, z, voxel.weight, voxel.type);
+                    if(firstType == -2){
+                        firstType = voxel.type;
+                    } else if(
+                        homogenous &&
+                        (
+                            firstType != voxel.type ||
+                            (voxel.weight > -1.0f && voxel.weight < 1.0f)
+                        )
+                    ){
+                        homogenous = false;
                     }
-                    gradientField[x][z] = deltaX * deltaX + deltaZ * deltaZ;
                 }
             }
+        }
 
-            VoxelGenerator voxelGenerator = this.tagVoxelMap.get("test1");
 
-            int firstType = -2;
-            boolean homogenous = true;
-            GeneratedVoxel voxel = new GeneratedVoxel();
-            GenerationContext generationContext = new GenerationContext();
-            generationContext.setServerWorldData(serverWorldData);
+        //
+        //Homogenous logic
+        //
+        if(homogenous){
+            chunk.setHomogenousValue(firstType);
+        } else {
+            chunk.setHomogenousValue(ChunkData.NOT_HOMOGENOUS);
+        }
+    }
 
-            //
-            // Generate the voxels directly
-            //
-            for(int x = 0; x < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; x++){
-                int finalWorldX = worldX + ((x * strideValue) / ServerTerrainChunk.CHUNK_DIMENSION);
-                int finalChunkX = (x * strideValue) % ServerTerrainChunk.CHUNK_DIMENSION;
-                double realX = ServerWorldData.convertVoxelToRealSpace(finalChunkX,finalWorldX);
+    /**
+     * Gets the surface data of a column of chunks, solving it if it isn't cached
+     * @param worldX The world x coordinate
+     * @param worldZ The world z coordinate
+     * @param stride The stride of the data
+     * @param strideValue The stride value
+     * @return The column
+     */
+    private TerrainColumn getColumn(int worldX, int worldZ, int stride, int strideValue){
+        TerrainColumnCache cache = this.columnCache;
+        TerrainColumn rVal = null;
+        if(cache != null){
+            rVal = cache.get(worldX, worldZ, stride);
+        }
+        if(rVal == null){
+            rVal = this.solveColumn(worldX, worldZ, strideValue);
+            if(cache != null){
+                cache.add(worldX, worldZ, stride, rVal);
+            }
+        }
+        return rVal;
+    }
 
-                for(int z = 0; z < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; z++){
-                    BiomeData surfaceBiome = surfaceBiomeMap[x][z];
-                    BiomeSurfaceGenerationParams surfaceParams = surfaceBiome.getSurfaceGenerationParams();
-
-
-                    int finalWorldZ = worldZ + ((z * strideValue) / ServerTerrainChunk.CHUNK_DIMENSION);
-                    int finalChunkZ = (z * strideValue) % ServerTerrainChunk.CHUNK_DIMENSION;
-                    double realZ = ServerWorldData.convertVoxelToRealSpace(finalChunkZ,finalWorldZ);
-                    double surfaceHeight = heightfield[x][z];
-                    double gradient = gradientField[x][z];
-                    double surfaceSelection = this.calculateSurfaceNoise(surfaceParams, finalWorldX, finalWorldZ, finalChunkX, finalChunkZ, strideValue, this.terrainModel.getSeed());
-
-                    for(int y = 0; y < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; y++){
-                        int finalWorldY = worldY + ((y * strideValue) / ServerTerrainChunk.CHUNK_DIMENSION);
-                        int finalChunkY = (y * strideValue) % ServerTerrainChunk.CHUNK_DIMENSION;
-                        double realY = ServerWorldData.convertVoxelToRealSpace(finalChunkY,finalWorldY);
-                        
-                        voxelGenerator.getVoxel(
-                            voxel,
-                            finalWorldX, finalWorldY, finalWorldZ,
-                            finalChunkX, finalChunkY, finalChunkZ,
-                            realX, realY, realZ,
-                            stride,
-                            surfaceHeight, gradient, surfaceSelection,
-                            surfaceBiome, surfaceParams,
-                            generationContext
-                        );
-                        if(voxel != null){
-                            weights[x][y][z] = voxel.weight;
-                            values[x][y][z] = voxel.type;
-                        }
-                        //apply macro data
-                        if(macroData != null && this.applyMacroData(macroData, realX, realY, realZ, surfaceHeight, voxel)){
-                            weights[x][y][z] = voxel.weight;
-                            values[x][y][z] = voxel.type;
-                        }
-                        if(firstType == -2){
-                            firstType = values[x][y][z];
-                        } else if(
-                            homogenous &&
-                            (
-                                firstType != values[x][y][z] ||
-                                (weights[x][y][z] > -1.0f && weights[x][y][z] < 1.0f)
-                            )
-                        ){
-                            homogenous = false;
-                        }
-                    }
+    /**
+     * Solves the surface data of a column of chunks
+     * @param worldX The world x coordinate
+     * @param worldZ The world z coordinate
+     * @param strideValue The stride value
+     * @return The column
+     */
+    private TerrainColumn solveColumn(int worldX, int worldZ, int strideValue){
+        Globals.profiler.beginAggregateCpuSample("TestGenerationChunkGenerator.solveColumn");
+        TerrainColumn rVal = new TerrainColumn();
+        double[][] heightfield = rVal.heightfield;
+        double[][] gradientField = rVal.gradientField;
+
+        //presolve heightfield
+        this.populateElevation(heightfield,rVal.surfaceBiomeMap,worldX,worldZ,strideValue);
+        rVal.solveBounds();
+
+        for(int x = 0; x < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; x++){
+            for(int z = 0; z < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; z++){
+                double deltaX = 0;
+                double deltaZ = 0;
+                if(x < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE - 1){
+                    deltaX = Math.abs(heightfield[x][z] - heightfield[x+1][z]);
+                } else {
+                    deltaX = Math.abs(heightfield[x][z] - heightfield[x-1][z]);
                 }
+                if(z < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE - 1){
+                    deltaX = Math.abs(heightfield[x][z] - heightfield[x][z+1]);
+                } else {
+                    deltaX = Math.abs(heightfield[x][z] - heightfield[x][z-1]);
+                }
+                gradientField[x][z] = deltaX * deltaX + deltaZ * deltaZ;
             }
+        }
 
+        //surface variant selection
+        for(int x = 0; x < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; x++){
+            int finalWorldX = worldX + ((x * strideValue) / ServerTerrainChunk.CHUNK_DIMENSION);
+            int finalChunkX = (x * strideValue) % ServerTerrainChunk.CHUNK_DIMENSION;
+            for(int z = 0; z < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; z++){
+                int finalWorldZ = worldZ + ((z * strideValue) / ServerTerrainChunk.CHUNK_DIMENSION);
+                int finalChunkZ = (z * strideValue) % ServerTerrainChunk.CHUNK_DIMENSION;
+                BiomeSurfaceGenerationParams surfaceParams = rVal.surfaceBiomeMap[x][z].getSurfaceGenerationParams();
+                rVal.surfaceSelection[x][z] = this.calculateSurfaceNoise(surfaceParams, finalWorldX, finalWorldZ, finalChunkX, finalChunkZ, strideValue, this.terrainModel.getSeed());
+            }
+        }
+        Globals.profiler.endCpuSample();
+        return rVal;
+    }
 
-            //
-            //Homogenous logic
-            //
-            if(homogenous){
-                rVal.setHomogenousValue(firstType);
+    /**
+     * Checks that no macro object would change a chunk that is otherwise filled with a single voxel
+     * @param macroData The macro data
+     * @param voxel The voxel the chunk would be filled with
+     * @param worldX The world x coordinate
+     * @param worldZ The world z coordinate
+     * @param strideValue The stride value
+     * @param maxRealY The highest real y position in the chunk
+     * @param minSurfaceHeight The lowest surface height in the column
+     * @return true if the macro data leaves the chunk untouched, false otherwise
+     */
+    private boolean macroDataPreservesUniform(List<MacroObject> macroData, GeneratedVoxel voxel, int worldX, int worldZ, int strideValue, double maxRealY, double minSurfaceHeight){
+        if(macroData == null){
+            return true;
+        }
+        double minRealX = ProceduralChunkGenerator.getRealCoordinate(worldX, 0, strideValue);
+        double maxRealX = ProceduralChunkGenerator.getRealCoordinate(worldX, ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE - 1, strideValue);
+        double minRealZ = ProceduralChunkGenerator.getRealCoordinate(worldZ, 0, strideValue);
+        double maxRealZ = ProceduralChunkGenerator.getRealCoordinate(worldZ, ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE - 1, strideValue);
+        for(MacroObject object : macroData){
+            if(object instanceof Road || object instanceof MacroRegion){
+                //only paint solid voxels near the surface
+                if(voxel.type != ServerTerrainChunk.VOXEL_TYPE_AIR && maxRealY > minSurfaceHeight - MACRO_SURFACE_RANGE){
+                    return false;
+                }
+            } else if(object instanceof VirtualStructure){
+                //carve out and lay foundations for anything in their footprint
+                AABBd aabb = ((VirtualStructure)object).getAABB();
+                if(aabb.maxX >= minRealX && aabb.minX <= maxRealX && aabb.maxZ >= minRealZ && aabb.minZ <= maxRealZ){
+                    return false;
+                }
+            } else if(object instanceof Town){
             } else {
-                rVal.setHomogenousValue(ChunkData.NOT_HOMOGENOUS);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the real coordinate of a voxel along one axis of a chunk
+     * @param world The world coordinate of the chunk
+     * @param index The index of the voxel in the generated data
+     * @param strideValue The stride value
+     * @return The real coordinate
+     */
+    private static double getRealCoordinate(int world, int index, int strideValue){
+        int finalWorld = world + ((index * strideValue) / ServerTerrainChunk.CHUNK_DIMENSION);
+        int finalChunk = (index * strideValue) % ServerTerrainChunk.CHUNK_DIMENSION;
+        return ServerWorldData.convertVoxelToRealSpace(finalChunk, finalWorld);
+    }
+
+    /**
+     * Works out which macro objects can stamp each column of a chunk
+     * @param objects The macro objects intersecting the chunk
+     * @param worldX The world x coordinate
+     * @param worldZ The world z coordinate
+     * @param strideValue The stride value
+     * @return The stamps
+     */
+    private MacroStamps prepareMacroStamps(List<MacroObject> objects, int worldX, int worldZ, int strideValue){
+        MacroStamps rVal = new MacroStamps(objects);
+        for(int i = 0; i < rVal.objects.length; i++){
+            MacroObject object = rVal.objects[i];
+            AABBd aabb = null;
+            if(object instanceof Road road){
+                aabb = road.getAABB();
+            } else if(object instanceof VirtualStructure struct){
+                aabb = struct.getAABB();
+            } else if(object instanceof MacroRegion region){
+                aabb = region.getRegion().getAABB();
+            } else if(object instanceof Town){
+                continue;
+            } else {
+                throw new Error("Unsupported object type " + object);
+            }
+            for(int x = 0; x < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; x++){
+                double realX = ProceduralChunkGenerator.getRealCoordinate(worldX, x, strideValue);
+                if(realX < aabb.minX || realX > aabb.maxX){
+                    continue;
+                }
+                for(int z = 0; z < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; z++){
+                    double realZ = ProceduralChunkGenerator.getRealCoordinate(worldZ, z, strideValue);
+                    if(realZ >= aabb.minZ && realZ <= aabb.maxZ){
+                        rVal.mark(rVal.getColumnOffset(x, z), i);
+                    }
+                }
             }
-            rVal.setWeights(weights);
-            rVal.setValues(values);
-        } catch(Exception ex){
-            ex.printStackTrace();
         }
-        Globals.profiler.endCpuSample();
         return rVal;
     }
 
     /**
      * Applies macro data to the voxel
-     * @param objects The object
+     * @param stamps The macro objects that can stamp the chunk
+     * @param columnMaskOffset The offset of the column's mask
      * @param realX The real x position
      * @param realY The real y position
      * @param realZ The real z position
+     * @param surfaceHeight The height of the surface
      * @param voxel The voxel
      */
     private boolean applyMacroData(
-        List<MacroObject> objects,
+        MacroStamps stamps,
+        int columnMaskOffset,
         double realX, double realY, double realZ,
         double surfaceHeight,
         GeneratedVoxel voxel
     ){
         boolean rVal = false;
-        Vector3d realPt = new Vector3d(realX, realY, realZ);
-        for(MacroObject object : objects){
-            if(object instanceof Road){
-                Road road = (Road)object;
-                //broad phase intersection
-                if(Math.abs(realY - surfaceHeight) < 3){
-                    if(road.getAABB().testPoint(realX, realY, realZ)){
-                        if(GeomUtils.pointIntersectsLineSegment(realPt, road.getPoint1(), road.getPoint2(), road.getRadius())){
-                            if(voxel.type != ServerTerrainChunk.VOXEL_TYPE_AIR){
-                                voxel.type = 1;
-                                rVal = true;
+        Vector3d realPt = stamps.realPt.set(realX, realY, realZ);
+        //objects are visited in list order, so later objects still take precedence
+        for(int word = 0; word < stamps.words; word++){
+            long mask = stamps.masks[columnMaskOffset + word];
+            while(mask != 0){
+                int bit = Long.numberOfTrailingZeros(mask);
+                mask = mask & (mask - 1);
+                MacroObject object = stamps.objects[word * Long.SIZE + bit];
+                if(object instanceof Road){
+                    Road road = (Road)object;
+                    //broad phase intersection
+                    if(Math.abs(realY - surfaceHeight) < MACRO_SURFACE_RANGE){
+                        if(road.getAABB().testPoint(realX, realY, realZ)){
+                            if(GeomUtils.pointIntersectsLineSegment(realPt, road.getPoint1(), road.getPoint2(), road.getRadius())){
+                                if(voxel.type != ServerTerrainChunk.VOXEL_TYPE_AIR){
+                                    voxel.type = 1;
+                                    rVal = true;
+                                }
                             }
                         }
                     }
-                }
-            } else if(object instanceof VirtualStructure){
-                VirtualStructure struct = (VirtualStructure)object;
-                AABBd aabb = struct.getAABB();
-                //create a foundation underneath the structure
-                if(realX >= aabb.minX && realX <= aabb.maxX && realZ >= aabb.minZ && realZ <= aabb.maxZ){
+                } else if(object instanceof VirtualStructure){
+                    VirtualStructure struct = (VirtualStructure)object;
+                    AABBd aabb = struct.getAABB();
+                    //create a foundation underneath the structure
                     //check if within foundation range
                     double vertDist = aabb.minY - realY;
                     if(vertDist > 0 && vertDist < VIRTUAL_STRUCTURE_FOUNDATION_WIDTH){
@@ -309,26 +528,93 @@ public class ProceduralChunkGenerator implements ChunkGenerator {
                         voxel.weight = -1;
                         rVal = true;
                     }
-                }
-            } else if(object instanceof Town){
-            } else if(object instanceof MacroRegion region){
-                if(Math.abs(realY - surfaceHeight) < 3){
-                    if(region.getRegion().getAABB().testPoint(realPt)){
-                        if(region.getRegion().intersects(realPt)){
-                            if(voxel.type != ServerTerrainChunk.VOXEL_TYPE_AIR){
-                                voxel.type = 9;
-                                rVal = true;
+                } else if(object instanceof MacroRegion region){
+                    if(Math.abs(realY - surfaceHeight) < MACRO_SURFACE_RANGE){
+                        if(region.getRegion().getAABB().testPoint(realPt)){
+                            if(region.getRegion().intersects(realPt)){
+                                if(voxel.type != ServerTerrainChunk.VOXEL_TYPE_AIR){
+                                    voxel.type = 9;
+                                    rVal = true;
+                                }
                             }
                         }
                     }
                 }
-            } else {
-                throw new Error("Unsupported object type " + object);
             }
         }
         return rVal;
     }
 
+    /**
+     * The macro objects that can stamp each column of a chunk
+     */
+    static class MacroStamps {
+
+        /**
+         * The objects, in the order they are applied
+         */
+        MacroObject[] objects;
+
+        /**
+         * The number of mask words per column
+         */
+        int words;
+
+        /**
+         * The bitmask of objects that overlap each column, words per column laid out by x then z
+         */
+        long[] masks;
+
+        /**
+         * Scratch position passed to the intersection tests
+         */
+        Vector3d realPt = new Vector3d();
+
+        /**
+         * Constructor
+         * @param objects The objects
+         */
+        MacroStamps(List<MacroObject> objects){
+            this.objects = objects.toArray(new MacroObject[objects.size()]);
+            this.words = (this.objects.length + Long.SIZE - 1) / Long.SIZE;
+            this.masks = new long[ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE * ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE * this.words];
+        }
+
+        /**
+         * Gets the offset of a column's mask
+         * @param x The x index of the column
+         * @param z The z index of the column
+         * @return The offset
+         */
+        int getColumnOffset(int x, int z){
+            return (x * ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE + z) * this.words;
+        }
+
+        /**
+         * Marks an object as overlapping a column
+         * @param columnMaskOffset The offset of the column's mask
+         * @param objectIndex The index of the object
+         */
+        void mark(int columnMaskOffset, int objectIndex){
+            this.masks[columnMaskOffset + objectIndex / Long.SIZE] |= 1L << (objectIndex % Long.SIZE);
+        }
+
+        /**
+         * Checks if any object overlaps a column
+         * @param columnMaskOffset The offset of the column's mask
+         * @return true if an object overlaps the column, false otherwise
+         */
+        boolean isColumnStamped(int columnMaskOffset){
+            for(int word = 0; word < this.words; word++){
+                if(this.masks[columnMaskOffset + word] != 0){
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    }
+
     /**
      * Populates the heightfield
      * @param heightfield The heightfield to populate
@@ -338,6 +624,8 @@ public class ProceduralChunkGenerator implements ChunkGenerator {
      * @param strideValue The stride value
      */
     private void populateElevation(double[][] heightfield, BiomeData[][] surfaceBiomeMap, int worldX, int worldZ, int strideValue){
+        HeightmapBatch heightmapBatch = this.heightmapBatches.get();
+        heightmapBatch.reset();
         for(int x = 0; x < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; x++){
             for(int z = 0; z < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; z++){
                 int finalWorldX = worldX + ((x * strideValue) / ServerTerrainChunk.CHUNK_DIMENSION);
@@ -349,7 +637,7 @@ public class ProceduralChunkGenerator implements ChunkGenerator {
                     throw new Error("Invalid world dim! " + finalWorldX + " " + finalWorldZ);
                 }
 
-                heightfield[x][z] = this.getMultisampleElevation(finalWorldX, finalWorldZ, finalChunkX, finalChunkZ);
+                this.queueMultisampleElevation(heightmapBatch, finalWorldX, finalWorldZ, finalChunkX, finalChunkZ);
 
                 //calculate real pos
                 double realX = ServerWorldData.convertVoxelToRealSpace(finalChunkX, finalWorldX);
@@ -379,6 +667,64 @@ public class ProceduralChunkGenerator implements ChunkGenerator {
                 }
             }
         }
+
+        //evaluate each heightmap generator once for every column that needs it
+        heightmapBatch.solve(this.terrainModel.getSeed());
+        for(int x = 0; x < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; x++){
+            for(int z = 0; z < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; z++){
+                int column = x * ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE + z;
+                double elevation = heightmapBatch.getWeightedSum(column * ELEVATION_SAMPLES_PER_COLUMN, ELEVATION_SAMPLES_PER_COLUMN);
+                if(elevation < 0){
+                    elevation = 0;
+                }
+                heightfield[x][z] = elevation;
+            }
+        }
+    }
+
+    /**
+     * Queues the four biome samples that make up the elevation of a position, in the same order as {@link #getMultisampleElevation(int, int, int, int)}
+     * @param heightmapBatch The batch to queue the samples in
+     * @param finalWorldX The world x coordinate
+     * @param finalWorldZ The world z coordinate
+     * @param finalChunkX The chunk x coordinate
+     * @param finalChunkZ The chunk z coordinate
+     */
+    private void queueMultisampleElevation(HeightmapBatch heightmapBatch, int finalWorldX, int finalWorldZ, int finalChunkX, int finalChunkZ){
+        //calculate real pos
+        double realX = ServerWorldData.convertVoxelToRealSpace(finalChunkX, finalWorldX);
+        double realZ = ServerWorldData.convertVoxelToRealSpace(finalChunkZ, finalWorldZ);
+
+        //clamped macro pos
+        int macroDataScale = terrainModel.getMacroDataScale();
+        double macroWorldPosX = ServerWorldData.convertWorldToReal(serverWorldData.clampWorldToMacro(finalWorldX));
+        double macroWorldPosZ = ServerWorldData.convertWorldToReal(serverWorldData.clampWorldToMacro(finalWorldZ));
+        double macroWidth = this.terrainModel.getMacroWidthInRealTerms();
+        double percent1 = (realX - macroWorldPosX) / macroWidth;
+        double percent2 = (realZ - macroWorldPosZ) / macroWidth;
+
+        int macroX = finalWorldX / macroDataScale;
+        int macroZ = finalWorldZ / macroDataScale;
+        heightmapBatch.add(this.getSurfaceHeightmapGenerator(macroX, macroZ), realX, realZ, (1.0 - percent1) * (1.0 - percent2));
+        heightmapBatch.add(this.getSurfaceHeightmapGenerator(macroX + 1, macroZ), realX, realZ, percent1 * (1.0 - percent2));
+        heightmapBatch.add(this.getSurfaceHeightmapGenerator(macroX, macroZ + 1), realX, realZ, (1.0 - percent1) * percent2);
+        heightmapBatch.add(this.getSurfaceHeightmapGenerator(macroX + 1, macroZ + 1), realX, realZ, percent1 * percent2);
+    }
+
+    /**
+     * Gets the heightmap generator of the surface biome at a macro data position
+     * @param macroX The macro x coordinate
+     * @param macroZ The macro z coordinate
+     * @return The heightmap generator
+     */
+    private HeightmapGenerator getSurfaceHeightmapGenerator(int macroX, int macroZ){
+        BiomeData surfaceBiome = this.terrainModel.getMacroData(macroX, macroZ);
+        BiomeSurfaceGenerationParams surfaceParams = surfaceBiome.getSurfaceGenerationParams();
+        HeightmapGenerator heightmapGen = this.tagHeightmapMap.get(surfaceParams.getSurfaceGenTag());
+        if(heightmapGen == null){
+            throw new Error("Undefined heightmap generator in biome! " + surfaceBiome.getId() + " " + surfaceBiome.getDisplayName() + " " + surfaceParams.getSurfaceGenTag());
+        }
+        return heightmapGen;
     }
 
     /**
@@ -516,9 +862,28 @@ public class ProceduralChunkGenerator implements ChunkGenerator {
         return this.getMultisampleElevation(worldX,worldZ,chunkX,chunkZ);
     }
 
+    /**
+     * Sets the cache of column surface data
+     * @param columnCache The cache, or null to solve every column from scratch
+     */
+    public void setColumnCache(TerrainColumnCache columnCache){
+        this.columnCache = columnCache;
+    }
+
+    /**
+     * Gets the cache of column surface data
+     * @return The cache, or null if columns aren't cached
+     */
+    public TerrainColumnCache getColumnCache(){
+        return columnCache;
+    }
+
     @Override
     public void setModel(TerrainModel model) {
         this.terrainModel = model;
+        if(this.columnCache != null){
+            this.columnCache.clear();
+        }
         for(HeightmapGenerator generator : this.tagHeightmapMap.values()){
             generator.setSeed(model.getSeed());
         }
@@ -0,0 +1,74 @@
+package electrosphere.server.physics.terrain.generation;
+
+import electrosphere.data.biome.BiomeData;
+import electrosphere.server.physics.terrain.manager.ServerTerrainChunk;
+
+/**
+ * The surface data of a column of chunks, shared by every chunk stacked at the same x,z and stride.
+ * <p>
+ * Not modified after it is solved, so it can be read by several generation threads at once.
+ * </p>
+ */
+public class TerrainColumn {
+
+    /**
+     * The elevation of the surface at each x,z
+     */
+    double[][] heightfield = new double[ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE][ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE];
+
+    /**
+     * The rate of change of the surface at each x,z
+     */
+    double[][] gradientField = new double[ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE][ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE];
+
+    /**
+     * The noise used to select surface variants at each x,z
+     */
+    double[][] surfaceSelection = new double[ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE][ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE];
+
+    /**
+     * The dominant surface biome at each x,z
+     */
+    BiomeData[][] surfaceBiomeMap = new BiomeData[ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE][ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE];
+
+    /**
+     * The lowest elevation in the heightfield
+     */
+    double minHeight;
+
+    /**
+     * The highest elevation in the heightfield
+     */
+    double maxHeight;
+
+    /**
+     * Calculates the min and max elevation of the heightfield
+     */
+    void solveBounds(){
+        this.minHeight = Double.MAX_VALUE;
+        this.maxHeight = -Double.MAX_VALUE;
+        for(int x = 0; x < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; x++){
+            for(int z = 0; z < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; z++){
+                this.minHeight = Math.min(this.minHeight, this.heightfield[x][z]);
+                this.maxHeight = Math.max(this.maxHeight, this.heightfield[x][z]);
+            }
+        }
+    }
+
+    /**
+     * Gets the lowest elevation in the column
+     * @return The lowest elevation
+     */
+    public double getMinHeight(){
+        return minHeight;
+    }
+
+    /**
+     * Gets the highest elevation in the column
+     * @return The highest elevation
+     */
+    public double getMaxHeight(){
+        return maxHeight;
+    }
+
+}
@@ -0,0 +1,176 @@
+package electrosphere.server.physics.terrain.generation;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import electrosphere.util.ds.LongLRUMap;
+import electrosphere.util.math.HashUtils;
+
+/**
+ * Caches the solved surface data of chunk columns so that vertically stacked chunks don't each re-solve it
+ * <p>
+ * Split into lock stripes keyed off of the column position, each holding a fixed-size LRU.
+ * Two threads that miss on the same column both solve it and the last one in wins, which is harmless because the columns are identical.
+ * </p>
+ */
+public class TerrainColumnCache {
+
+    /**
+     * The default number of columns to cache
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * Number of lock stripes. Must be a power of two.
+     */
+    static final int STRIPE_COUNT = 16;
+
+    /**
+     * The lock stripes
+     */
+    Stripe[] stripes;
+
+    /**
+     * Number of cache hits
+     */
+    LongAdder hits = new LongAdder();
+
+    /**
+     * Number of cache misses
+     */
+    LongAdder misses = new LongAdder();
+
+    /**
+     * A single lock stripe
+     */
+    static class Stripe {
+
+        /**
+         * The lock for this stripe
+         */
+        ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * The columns in this stripe
+         */
+        LongLRUMap<TerrainColumn> columns;
+
+        /**
+         * Constructor
+         * @param capacity The number of columns held by the stripe
+         */
+        Stripe(int capacity){
+            this.columns = new LongLRUMap<TerrainColumn>(capacity, null);
+        }
+
+    }
+
+    /**
+     * Constructor
+     * @param capacity The number of columns to cache
+     */
+    public TerrainColumnCache(int capacity){
+        this.stripes = new Stripe[STRIPE_COUNT];
+        for(int i = 0; i < STRIPE_COUNT; i++){
+            this.stripes[i] = new Stripe(Math.max(1, capacity / STRIPE_COUNT));
+        }
+    }
+
+    /**
+     * Gets a column
+     * @param worldX The world x coordinate of the column
+     * @param worldZ The world z coordinate of the column
+     * @param stride The stride of the column
+     * @return The column if it is cached, null otherwise
+     */
+    public TerrainColumn get(int worldX, int worldZ, int stride){
+        long key = TerrainColumnCache.getKey(worldX, worldZ, stride);
+        Stripe stripe = this.getStripe(key);
+        stripe.lock.lock();
+        TerrainColumn rVal = stripe.columns.get(key);
+        stripe.lock.unlock();
+        if(rVal != null){
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return rVal;
+    }
+
+    /**
+     * Adds a column
+     * @param worldX The world x coordinate of the column
+     * @param worldZ The world z coordinate of the column
+     * @param stride The stride of the column
+     * @param column The column
+     */
+    public void add(int worldX, int worldZ, int stride, TerrainColumn column){
+        long key = TerrainColumnCache.getKey(worldX, worldZ, stride);
+        Stripe stripe = this.getStripe(key);
+        stripe.lock.lock();
+        stripe.columns.put(key, column);
+        stripe.lock.unlock();
+    }
+
+    /**
+     * Evicts every column
+     */
+    public void clear(){
+        for(Stripe stripe : stripes){
+            stripe.lock.lock();
+            stripe.columns.clear();
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of cached columns
+     * @return The number of columns
+     */
+    public int getSize(){
+        int rVal = 0;
+        for(Stripe stripe : stripes){
+            stripe.lock.lock();
+            rVal = rVal + stripe.columns.size();
+            stripe.lock.unlock();
+        }
+        return rVal;
+    }
+
+    /**
+     * Gets the number of hits
+     * @return The number of hits
+     */
+    public long getHits(){
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of misses
+     * @return The number of misses
+     */
+    public long getMisses(){
+        return misses.sum();
+    }
+
+    /**
+     * Gets the key for a column
+     * @param worldX The world x coordinate of the column
+     * @param worldZ The world z coordinate of the column
+     * @param stride The stride of the column
+     * @return The key
+     */
+    static long getKey(int worldX, int worldZ, int stride){
+        return HashUtils.hashIVec(worldX, stride, worldZ);
+    }
+
+    /**
+     * Gets the stripe for a key
+     * @param key The key
+     * @return The stripe
+     */
+    private Stripe getStripe(long key){
+        return stripes[(LongLRUMap.mix(key) >>> 24) & (STRIPE_COUNT - 1)];
+    }
+
+}
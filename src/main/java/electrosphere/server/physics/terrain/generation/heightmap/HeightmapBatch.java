@@ -0,0 +1,201 @@
+package electrosphere.server.physics.terrain.generation.heightmap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the heightmap samples of a column so that a generator shared by several neighboring biomes
+ * is only evaluated once per position, instead of once per sample.
+ * <p>
+ * Not thread safe, each generation thread should use its own batch.
+ * </p>
+ */
+public class HeightmapBatch {
+
+    /**
+     * The maximum number of samples
+     */
+    int capacity;
+
+    /**
+     * The number of samples added
+     */
+    int count = 0;
+
+    /**
+     * The distinct generators sampled
+     */
+    List<HeightmapGenerator> generators = new ArrayList<HeightmapGenerator>();
+
+    /**
+     * The index into generators of each sample
+     */
+    int[] generatorIndices;
+
+    /**
+     * The x position of each sample
+     */
+    double[] xs;
+
+    /**
+     * The y position of each sample
+     */
+    double[] ys;
+
+    /**
+     * The weight of each sample
+     */
+    double[] weights;
+
+    /**
+     * The height of each sample, once solved
+     */
+    float[] heights;
+
+    /**
+     * The index of each sample's position within the positions evaluated for its generator
+     */
+    int[] sampleSlots;
+
+    /**
+     * Scratch x positions of the samples of a single generator
+     */
+    double[] groupXs;
+
+    /**
+     * Scratch y positions of the samples of a single generator
+     */
+    double[] groupYs;
+
+    /**
+     * Scratch heights of the samples of a single generator
+     */
+    float[] groupHeights;
+
+    /**
+     * The number of positions evaluated by the last solve
+     */
+    int evaluatedCount = 0;
+
+    /**
+     * Constructor
+     * @param capacity The maximum number of samples
+     */
+    public HeightmapBatch(int capacity){
+        this.capacity = capacity;
+        this.generatorIndices = new int[capacity];
+        this.xs = new double[capacity];
+        this.ys = new double[capacity];
+        this.weights = new double[capacity];
+        this.heights = new float[capacity];
+        this.sampleSlots = new int[capacity];
+        this.groupXs = new double[capacity];
+        this.groupYs = new double[capacity];
+        this.groupHeights = new float[capacity];
+    }
+
+    /**
+     * Clears all samples
+     */
+    public void reset(){
+        this.count = 0;
+        this.generators.clear();
+    }
+
+    /**
+     * Adds a sample
+     * @param generator The generator to sample
+     * @param x The x position
+     * @param y The y position
+     * @param weight The weight of the sample
+     * @return The index of the sample
+     */
+    public int add(HeightmapGenerator generator, double x, double y, double weight){
+        if(this.count >= this.capacity){
+            throw new Error("Heightmap batch is full! " + this.capacity);
+        }
+        int generatorIndex = -1;
+        for(int i = 0; i < this.generators.size(); i++){
+            if(this.generators.get(i) == generator){
+                generatorIndex = i;
+                break;
+            }
+        }
+        if(generatorIndex < 0){
+            generatorIndex = this.generators.size();
+            this.generators.add(generator);
+        }
+        int rVal = this.count;
+        this.generatorIndices[rVal] = generatorIndex;
+        this.xs[rVal] = x;
+        this.ys[rVal] = y;
+        this.weights[rVal] = weight;
+        this.count++;
+        return rVal;
+    }
+
+    /**
+     * Evaluates every sample, grouped by generator.
+     * Consecutive samples of a generator at the same position (ie neighboring biomes that share a heightmap) are only evaluated once.
+     * @param SEED The seed for the terrain
+     */
+    public void solve(long SEED){
+        this.evaluatedCount = 0;
+        for(int generatorIndex = 0; generatorIndex < this.generators.size(); generatorIndex++){
+            int groupCount = 0;
+            for(int i = 0; i < this.count; i++){
+                if(this.generatorIndices[i] == generatorIndex){
+                    if(groupCount > 0 && this.groupXs[groupCount - 1] == this.xs[i] && this.groupYs[groupCount - 1] == this.ys[i]){
+                        this.sampleSlots[i] = groupCount - 1;
+                    } else {
+                        this.groupXs[groupCount] = this.xs[i];
+                        this.groupYs[groupCount] = this.ys[i];
+                        this.sampleSlots[i] = groupCount;
+                        groupCount++;
+                    }
+                }
+            }
+            HeightmapGenerator generator = this.generators.get(generatorIndex);
+            for(int i = 0; i < groupCount; i++){
+                this.groupHeights[i] = generator.getHeight(SEED, this.groupXs[i], this.groupYs[i]);
+            }
+            for(int i = 0; i < this.count; i++){
+                if(this.generatorIndices[i] == generatorIndex){
+                    this.heights[i] = this.groupHeights[this.sampleSlots[i]];
+                }
+            }
+            this.evaluatedCount = this.evaluatedCount + groupCount;
+        }
+    }
+
+    /**
+     * Gets the weighted sum of a run of solved samples, added in order
+     * @param first The index of the first sample
+     * @param sampleCount The number of samples
+     * @return The sum of each height multiplied by its weight
+     */
+    public double getWeightedSum(int first, int sampleCount){
+        double rVal = 0;
+        for(int i = first; i < first + sampleCount; i++){
+            rVal = rVal + this.heights[i] * this.weights[i];
+        }
+        return rVal;
+    }
+
+    /**
+     * Gets the number of distinct generators sampled
+     * @return The number of generators
+     */
+    public int getGeneratorCount(){
+        return this.generators.size();
+    }
+
+    /**
+     * Gets the number of positions evaluated by the last solve
+     * @return The number of positions
+     */
+    public int getEvaluatedCount(){
+        return this.evaluatedCount;
+    }
+
+}
@@ -112,6 +112,30 @@ public class NoiseVoxelGen implements VoxelGenerator {
         }
     }
 
+    @Override
+    public boolean getUniformVoxel(
+        GeneratedVoxel voxel,
+        double minRealY, double maxRealY,
+        double minSurfaceHeight, double maxSurfaceHeight,
+        int stride
+    ){
+        //relies on the density sample in getVoxel being a constant 1
+        double strideMultiplier = Math.pow(2,stride);
+        if(maxRealY < 1 || maxRealY < minSurfaceHeight - strideMultiplier * SURFACE_VOXEL_WIDTH){
+            //entirely floor or below the surface, ie stone
+            voxel.weight = 1.0f;
+            voxel.type = FLOOR_VOXEL_TYPE;
+            return true;
+        }
+        if(minRealY >= 1 && minRealY > maxSurfaceHeight){
+            //entirely above the surface, ie air
+            voxel.weight = -1.0f;
+            voxel.type = 0;
+            return true;
+        }
+        return false;
+    }
+
     /**
      * Calculates the weight of a voxel on the surface based on the surface height, the position of the voxel, and the stride multiplier
      * @param surfaceHeight The surface height
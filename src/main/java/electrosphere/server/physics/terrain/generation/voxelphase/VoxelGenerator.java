@@ -52,5 +52,25 @@ public interface VoxelGenerator {
         BiomeData surfaceBiome, BiomeSurfaceGenerationParams surfaceGenParams,
         GenerationContext generationContext
     );
+
+    /**
+     * Checks whether every voxel in a vertical range of a column would be the same fully solid or fully empty voxel,
+     * so that a chunk can be filled without sampling each voxel
+     * @param voxel The voxel to fill with the uniform value
+     * @param minRealY The lowest real y position in the range
+     * @param maxRealY The highest real y position in the range
+     * @param minSurfaceHeight The lowest surface height in the column
+     * @param maxSurfaceHeight The highest surface height in the column
+     * @param stride The stride of the data
+     * @return true if every voxel in the range is the voxel that was filled, false if they must be sampled individually
+     */
+    public default boolean getUniformVoxel(
+        GeneratedVoxel voxel,
+        double minRealY, double maxRealY,
+        double minSurfaceHeight, double maxSurfaceHeight,
+        int stride
+    ){
+        return false;
+    }
     
 }
@@ -4,20 +4,12 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
-
-import org.joml.AABBd;
-import org.joml.Vector3i;
 
 import electrosphere.engine.Globals;
 import electrosphere.logger.LoggerInterface;
-import electrosphere.server.datacell.ServerWorldData;
 import electrosphere.server.macro.MacroData;
-import electrosphere.server.macro.civilization.town.Town;
-import electrosphere.server.macro.spatial.MacroAreaObject;
 import electrosphere.server.macro.spatial.MacroLODObject;
 import electrosphere.server.macro.spatial.MacroObject;
-import electrosphere.server.macro.structure.VirtualStructure;
 import electrosphere.server.physics.terrain.diskmap.ChunkDiskMap;
 import electrosphere.server.physics.terrain.generation.interfaces.ChunkGenerator;
 
@@ -166,44 +158,49 @@ public class ChunkGenerationThread implements Runnable {
         if(macroData == null){
             objects = new LinkedList<MacroObject>();
         } else {
-            if(macroData != null){
-                objects = macroData.getNearbyObjects(ServerWorldData.convertChunkToRealSpace(worldX, worldY, worldZ));
-            }
+            //only the objects that intersect this chunk
+            objects = macroData.getChunkObjects(worldX, worldY, worldZ);
             //if any of this macro data isn't ready, return a null chunk
             long notFullResCount = objects.stream().filter((MacroObject macroObj) -> macroObj instanceof MacroLODObject).map((MacroObject oldView) -> (MacroLODObject)oldView).filter((MacroLODObject lodObj) -> !lodObj.isFullRes()).count();
             if(notFullResCount > 0){
                 return null;
             }
-            List<MacroObject> towns = objects.stream().filter((MacroObject obj) -> obj instanceof Town).collect(Collectors.toList());
-            for(MacroObject currObj : towns){
-                Town town = (Town)currObj;
-                List<VirtualStructure> structs = town.getStructures(macroData);
-                objects.addAll(structs);
-                objects.addAll(town.getFarmPlots(macroData));
-            }
-            //filter to just objects that are within bounds of the chunk
-            AABBd chunkAABB = new AABBd(ServerWorldData.convertChunkToRealSpace(new Vector3i(worldX,worldY,worldZ)), ServerWorldData.convertChunkToRealSpace(new Vector3i(worldX+1,worldY+1,worldZ+1)));
-            objects = objects.stream().filter((MacroObject obj) -> {
-                if(obj instanceof MacroAreaObject areaObj){
-                    return chunkAABB.testAABB(areaObj.getAABB());
-                } else {
-                    return chunkAABB.testPoint(obj.getPos());
-                }
-            }).collect(Collectors.toList());
         }
 
-        if(chunkCache.containsChunk(worldX, worldY, worldZ, stride)){
-            rVal = chunkCache.get(worldX, worldY, worldZ, stride);
-        } else {
+        rVal = chunkCache.get(worldX, worldY, worldZ, stride);
+        if(rVal == null){
             //pull from disk if it exists
-            if(chunkDiskMap != null && stride == ServerChunkCache.STRIDE_FULL_RES){
+            if(chunkDiskMap != null){
                 if(chunkDiskMap.containsTerrainAtPosition(worldX, worldY, worldZ, stride)){
                     rVal = chunkDiskMap.getTerrainChunk(worldX, worldY, worldZ, stride);
                 }
+                //reduced-res chunks can be built from the level below if it is already available
+                if(rVal == null && stride != ServerChunkCache.STRIDE_FULL_RES && TerrainMipLevels.isAligned(worldX, worldY, worldZ, stride)){
+                    //read the version before the children so an edit made while building is caught
+                    long version = chunkDiskMap.getMipVersion(worldX, worldY, worldZ, stride);
+                    ServerTerrainChunk built = ChunkGenerationThread.buildMipLevel(worldX, worldY, worldZ, stride, chunkDiskMap, chunkCache);
+                    if(built != null){
+                        if(!chunkDiskMap.saveMipLevel(built, stride, version)){
+                            //a child was edited mid-build, try again on the next pass
+                            return null;
+                        }
+                        chunkCache.add(worldX, worldY, worldZ, stride, built);
+                        //the edit may have dropped the cached mip levels before this one was added
+                        if(chunkDiskMap.getMipVersion(worldX, worldY, worldZ, stride) != version){
+                            chunkCache.removeIfPresent(worldX, worldY, worldZ, stride, built);
+                            return null;
+                        }
+                        return built;
+                    }
+                }
             }
             //generate if it does not exist
             if(rVal == null){
                 rVal = chunkGenerator.generateChunk(objects, worldX, worldY, worldZ, stride);
+                if(rVal != null && chunkDiskMap != null && stride != ServerChunkCache.STRIDE_FULL_RES){
+                    //full res chunks are written back on eviction, reduced-res chunks are never edited so persist them immediately
+                    chunkDiskMap.saveToDisk(rVal, stride);
+                }
             }
             if(rVal != null){
                 chunkCache.add(worldX, worldY, worldZ, stride, rVal);
@@ -211,5 +208,43 @@ public class ChunkGenerationThread implements Runnable {
         }
         return rVal;
     }
+
+    /**
+     * Builds a reduced-res chunk from the eight chunks at the stride below it. Only uses chunks that are already cached or on disk.
+     * @param worldX The world x coordinate
+     * @param worldY The world y coordinate
+     * @param worldZ The world z coordinate
+     * @param stride The stride of the chunk to build
+     * @param chunkDiskMap The chunk disk map
+     * @param chunkCache The chunk cache
+     * @return The chunk if every child was available, null otherwise
+     */
+    private static ServerTerrainChunk buildMipLevel(
+        int worldX, int worldY, int worldZ, int stride,
+        ChunkDiskMap chunkDiskMap,
+        ServerChunkCache chunkCache
+    ){
+        int childStride = stride - 1;
+        int childSpacing = 1 << childStride;
+        ServerTerrainChunk[] children = new ServerTerrainChunk[TerrainMipLevels.CHILD_COUNT];
+        for(int x = 0; x < 2; x++){
+            for(int y = 0; y < 2; y++){
+                for(int z = 0; z < 2; z++){
+                    int childX = worldX + x * childSpacing;
+                    int childY = worldY + y * childSpacing;
+                    int childZ = worldZ + z * childSpacing;
+                    ServerTerrainChunk child = chunkCache.get(childX, childY, childZ, childStride);
+                    if(child == null && chunkDiskMap.containsTerrainAtPosition(childX, childY, childZ, childStride)){
+                        child = chunkDiskMap.getTerrainChunk(childX, childY, childZ, childStride);
+                    }
+                    if(child == null || child.getVoxels() == null){
+                        return null;
+                    }
+                    children[TerrainMipLevels.getChildIndex(x, y, z)] = child;
+                }
+            }
+        }
+        return TerrainMipLevels.downsample(worldX, worldY, worldZ, children);
+    }
     
 }
@@ -2,25 +2,69 @@ package electrosphere.server.physics.terrain.manager;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Semaphore;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 import electrosphere.client.terrain.cells.ClientDrawCellManager;
+import electrosphere.engine.Globals;
+import electrosphere.logger.LoggerInterface;
 import electrosphere.server.physics.terrain.diskmap.ChunkDiskMap;
+import electrosphere.util.ds.LongLRUMap;
 import electrosphere.util.math.HashUtils;
 
 /**
  * Caches chunk data on the server
+ * <p>
+ * The cache is split into lock stripes keyed off of the chunk position. Each stripe holds one fixed-size LRU per stride,
+ * so lookups only contend with other lookups that land on the same stripe and recency updates are O(1).
+ * </p>
+ * <p>
+ * Full res chunks that are evicted are handed to a background flusher that writes them to disk. Until the flusher
+ * has written them, they are still served from the pending write-back map so that no edits are lost.
+ * </p>
  */
 public class ServerChunkCache {
 
     /**
-     * Number of chunks to cache
+     * Number of full res chunks to cache
      */
-    static final int CACHE_SIZE = 1500;
+    static final int CACHE_SIZE_FULL_RES = 1500;
+
+    /**
+     * Number of half res chunks to cache
+     */
+    static final int CACHE_SIZE_HALF_RES = 1000;
+
+    /**
+     * Number of quarter res chunks to cache
+     */
+    static final int CACHE_SIZE_QUARTER_RES = 750;
+
+    /**
+     * Number of eighth res chunks to cache
+     */
+    static final int CACHE_SIZE_EIGHTH_RES = 500;
+
+    /**
+     * Number of sixteenth res chunks to cache
+     */
+    static final int CACHE_SIZE_SIXTEENTH_RES = 500;
+
+    /**
+     * Number of lock stripes. Must be a power of two.
+     */
+    static final int STRIPE_COUNT = 16;
+
+    /**
+     * Approximate number of bytes a single cached chunk occupies (weights + byte palette indices)
+     */
+    public static final int BYTES_PER_CHUNK = VoxelStorage.WEIGHT_BYTES + VoxelStorage.VOXEL_COUNT;
 
     /**
      * Stride for a full res chunk
@@ -48,61 +92,126 @@ public class ServerChunkCache {
     public static final int STRIDE_SIXTEENTH_RES = ClientDrawCellManager.SIXTEENTH_RES_LOD;
 
     /**
-     * The size of the cache
+     * The number of strides the cache tracks
      */
-    int cacheSize = CACHE_SIZE;
+    static final int STRIDE_COUNT = STRIDE_SIXTEENTH_RES + 1;
 
     /**
-     * The map of full res chunk key -> chunk data
+     * The lock stripes
      */
-    Map<Long,ServerTerrainChunk> cacheMapFullRes = new HashMap<Long,ServerTerrainChunk>();
+    Stripe[] stripes;
 
     /**
-     * The map of half res chunk key -> chunk data
+     * The budget (in chunks) for each stride
      */
-    Map<Long,ServerTerrainChunk> cacheMapHalfRes = new HashMap<Long,ServerTerrainChunk>();
+    int[] strideBudgets;
 
     /**
-     * The map of quarter res chunk key -> chunk data
+     * Full res chunks that have been evicted but not yet written to disk
      */
-    Map<Long,ServerTerrainChunk> cacheMapQuarterRes = new HashMap<Long,ServerTerrainChunk>();
+    Map<Long,ServerTerrainChunk> pendingWriteBack = new ConcurrentHashMap<Long,ServerTerrainChunk>();
 
     /**
-     * The map of eighth res chunk key -> chunk data
+     * Tracks whether a flush job is currently scheduled
      */
-    Map<Long,ServerTerrainChunk> cacheMapEighthRes = new HashMap<Long,ServerTerrainChunk>();
+    AtomicBoolean flushScheduled = new AtomicBoolean(false);
 
     /**
-     * The map of sixteenth res chunk key -> chunk data
+     * Tracks what chunks are already queued to be asynchronously loaded. Used so we don't have two threads generating/fetching the same chunk
      */
-    Map<Long,ServerTerrainChunk> cacheMapSixteenthRes = new HashMap<Long,ServerTerrainChunk>();
+    Set<Long> queuedChunks = ConcurrentHashMap.newKeySet();
 
     /**
-     * Tracks how recently a chunk has been queries for (used for evicting old chunks from cache)
+     * The disk map to use for file io
      */
-    List<Long> queryRecencyQueue = new LinkedList<Long>();
+    ChunkDiskMap chunkDiskMap;
 
     /**
-     * Tracks what chunks are already queued to be asynchronously loaded. Used so we don't have two threads generating/fetching the same chunk
+     * Number of cache hits per stride
      */
-    Map<Long, Boolean> queuedChunkMap = new HashMap<Long,Boolean>();
+    LongAdder[] hits = new LongAdder[STRIDE_COUNT];
 
     /**
-     * The lock for thread safety
+     * Number of cache misses per stride
      */
-    Semaphore lock = new Semaphore(1);
+    LongAdder[] misses = new LongAdder[STRIDE_COUNT];
 
     /**
-     * The disk map to use for file io
+     * Number of evictions per stride
      */
-    ChunkDiskMap chunkDiskMap;
+    LongAdder[] evictions = new LongAdder[STRIDE_COUNT];
+
+    /**
+     * Number of chunks written to disk by the flusher
+     */
+    LongAdder writeBacks = new LongAdder();
+
+    /**
+     * A single lock stripe
+     */
+    class Stripe {
+
+        /**
+         * The lock for this stripe
+         */
+        ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * The per-stride LRUs for this stripe, indexed by stride
+         */
+        LongLRUMap<ServerTerrainChunk>[] strideCaches;
+
+        /**
+         * Constructor
+         */
+        @SuppressWarnings("unchecked")
+        Stripe(){
+            strideCaches = new LongLRUMap[STRIDE_COUNT];
+            for(int stride = 0; stride < STRIDE_COUNT; stride++){
+                final int evictedStride = stride;
+                int capacity = Math.max(1, strideBudgets[stride] / STRIPE_COUNT);
+                strideCaches[stride] = new LongLRUMap<ServerTerrainChunk>(capacity, (long key, ServerTerrainChunk chunk) -> {
+                    ServerChunkCache.this.onEvict(evictedStride, key, chunk);
+                });
+            }
+        }
+
+    }
 
     /**
      * Constructor
      * @param diskMap The disk map to use for file io
      */
     public ServerChunkCache(ChunkDiskMap chunkDiskMap){
+        this(chunkDiskMap, new int[]{
+            CACHE_SIZE_FULL_RES,
+            CACHE_SIZE_HALF_RES,
+            CACHE_SIZE_QUARTER_RES,
+            CACHE_SIZE_EIGHTH_RES,
+            CACHE_SIZE_SIXTEENTH_RES,
+        });
+    }
+
+    /**
+     * Constructor
+     * @param diskMap The disk map to use for file io
+     * @param strideBudgets The number of chunks to cache for each stride, indexed by stride
+     */
+    public ServerChunkCache(ChunkDiskMap chunkDiskMap, int[] strideBudgets){
+        if(strideBudgets.length != STRIDE_COUNT){
+            throw new Error("Must provide a budget for every stride! " + strideBudgets.length);
+        }
         this.chunkDiskMap = chunkDiskMap;
+        this.strideBudgets = strideBudgets;
+        for(int i = 0; i < STRIDE_COUNT; i++){
+            hits[i] = new LongAdder();
+            misses[i] = new LongAdder();
+            evictions[i] = new LongAdder();
+        }
+        this.stripes = new Stripe[STRIPE_COUNT];
+        for(int i = 0; i < STRIPE_COUNT; i++){
+            this.stripes[i] = new Stripe();
+        }
     }
 
     /**
@@ -110,23 +219,28 @@ public class ServerChunkCache {
      * @return The collection of chunks
      */
     public Collection<ServerTerrainChunk> getFullRes(){
-        lock.acquireUninterruptibly();
-        Collection<ServerTerrainChunk> rVal = Collections.unmodifiableCollection(cacheMapFullRes.values());
-        lock.release();
-        return rVal;
+        List<ServerTerrainChunk> rVal = new LinkedList<ServerTerrainChunk>();
+        for(Stripe stripe : stripes){
+            stripe.lock.lock();
+            stripe.strideCaches[STRIDE_FULL_RES].forEachValue(rVal::add);
+            stripe.lock.unlock();
+        }
+        rVal.addAll(pendingWriteBack.values());
+        return Collections.unmodifiableCollection(rVal);
     }
 
     /**
      * Evicts all chunks in the cache
      */
     public void clear(){
-        lock.acquireUninterruptibly();
-        cacheMapFullRes.clear();
-        cacheMapHalfRes.clear();
-        cacheMapQuarterRes.clear();
-        cacheMapEighthRes.clear();
-        cacheMapSixteenthRes.clear();
-        lock.release();
+        for(Stripe stripe : stripes){
+            stripe.lock.lock();
+            for(LongLRUMap<ServerTerrainChunk> cache : stripe.strideCaches){
+                cache.clear();
+            }
+            stripe.lock.unlock();
+        }
+        pendingWriteBack.clear();
     }
 
     /**
@@ -138,15 +252,25 @@ public class ServerChunkCache {
      * @return The chunk
      */
     public ServerTerrainChunk get(int worldX, int worldY, int worldZ, int stride){
-        ServerTerrainChunk rVal = null;
-        Long key = this.getKey(worldX, worldY, worldZ);
-        lock.acquireUninterruptibly();
-        if(queryRecencyQueue.remove(key)){
-            queryRecencyQueue.add(0, key);
-            Map<Long,ServerTerrainChunk> cache = this.getCache(stride);
-            rVal = cache.get(key);
+        ServerChunkCache.validateStride(stride);
+        long key = this.getKey(worldX, worldY, worldZ);
+        Stripe stripe = this.getStripe(key);
+        stripe.lock.lock();
+        LongLRUMap<ServerTerrainChunk> cache = stripe.strideCaches[stride];
+        ServerTerrainChunk rVal = cache.get(key);
+        if(rVal == null && stride == STRIDE_FULL_RES){
+            //the chunk may have been evicted but not flushed yet -- pull it back in rather than losing edits
+            rVal = pendingWriteBack.remove(key);
+            if(rVal != null){
+                cache.put(key, rVal);
+            }
+        }
+        stripe.lock.unlock();
+        if(rVal != null){
+            hits[stride].increment();
+        } else {
+            misses[stride].increment();
         }
-        lock.release();
         return rVal;
     }
 
@@ -159,23 +283,55 @@ public class ServerChunkCache {
      * @param chunk The chunk itself
      */
     public void add(int worldX, int worldY, int worldZ, int stride, ServerTerrainChunk chunk){
-        Long key = this.getKey(worldX, worldY, worldZ);
-        lock.acquireUninterruptibly();
-        queryRecencyQueue.add(0, key);
-        Map<Long,ServerTerrainChunk> cache = this.getCache(stride);
-        cache.put(key, chunk);
-        while(queryRecencyQueue.size() > cacheSize){
-            Long oldKey = queryRecencyQueue.remove(queryRecencyQueue.size() - 1);
-            ServerTerrainChunk fullRes = cacheMapFullRes.remove(oldKey);
-            if(fullRes != null){
-                this.chunkDiskMap.saveToDisk(fullRes);
-            }
-            cacheMapHalfRes.remove(oldKey);
-            cacheMapQuarterRes.remove(oldKey);
-            cacheMapEighthRes.remove(oldKey);
-            cacheMapSixteenthRes.remove(oldKey);
+        ServerChunkCache.validateStride(stride);
+        long key = this.getKey(worldX, worldY, worldZ);
+        Stripe stripe = this.getStripe(key);
+        stripe.lock.lock();
+        stripe.strideCaches[stride].put(key, chunk);
+        if(stride == STRIDE_FULL_RES){
+            pendingWriteBack.remove(key);
+        }
+        stripe.lock.unlock();
+        this.scheduleFlush();
+    }
+
+    /**
+     * Removes a chunk from the cache if it is still the chunk cached at its position
+     * @param worldX The world x coordinate of the chunk
+     * @param worldY The world y coordinate of the chunk
+     * @param worldZ The world z coordinate of the chunk
+     * @param stride The stride of the data
+     * @param chunk The chunk to remove
+     */
+    public void removeIfPresent(int worldX, int worldY, int worldZ, int stride, ServerTerrainChunk chunk){
+        ServerChunkCache.validateStride(stride);
+        long key = this.getKey(worldX, worldY, worldZ);
+        Stripe stripe = this.getStripe(key);
+        stripe.lock.lock();
+        if(stripe.strideCaches[stride].peek(key) == chunk){
+            stripe.strideCaches[stride].remove(key);
+        }
+        stripe.lock.unlock();
+    }
+
+    /**
+     * Drops every cached reduced-resolution chunk that covers a full res chunk
+     * @param worldX The world x coordinate of the full res chunk
+     * @param worldY The world y coordinate of the full res chunk
+     * @param worldZ The world z coordinate of the full res chunk
+     */
+    public void invalidateMipLevels(int worldX, int worldY, int worldZ){
+        for(int stride = STRIDE_FULL_RES + 1; stride < STRIDE_COUNT; stride++){
+            long key = this.getKey(
+                TerrainMipLevels.getOrigin(worldX, stride),
+                TerrainMipLevels.getOrigin(worldY, stride),
+                TerrainMipLevels.getOrigin(worldZ, stride)
+            );
+            Stripe stripe = this.getStripe(key);
+            stripe.lock.lock();
+            stripe.strideCaches[stride].remove(key);
+            stripe.lock.unlock();
         }
-        lock.release();
     }
 
     /**
@@ -187,11 +343,15 @@ public class ServerChunkCache {
      * @return true if the cache contains this chunk, false otherwise
      */
     public boolean containsChunk(int worldX, int worldY, int worldZ, int stride){
-        Long key = this.getKey(worldX,worldY,worldZ);
-        lock.acquireUninterruptibly();
-        Map<Long,ServerTerrainChunk> cache = this.getCache(stride);
-        boolean rVal = cache.containsKey(key);
-        lock.release();
+        ServerChunkCache.validateStride(stride);
+        long key = this.getKey(worldX,worldY,worldZ);
+        Stripe stripe = this.getStripe(key);
+        stripe.lock.lock();
+        boolean rVal = stripe.strideCaches[stride].containsKey(key);
+        stripe.lock.unlock();
+        if(!rVal && stride == STRIDE_FULL_RES){
+            rVal = pendingWriteBack.containsKey(key);
+        }
         return rVal;
     }
 
@@ -207,18 +367,14 @@ public class ServerChunkCache {
     }
 
     /**
-     * Checks if the chunk is already queued or not 
+     * Checks if the chunk is already queued or not
      * @param worldX The world x position of the chunk
      * @param worldY The world y position of the chunk
      * @param worldZ The world z position of the chunk
      * @return true if the chunk is already queued, false otherwise
      */
     public boolean chunkIsQueued(int worldX, int worldY, int worldZ){
-        Long key = this.getKey(worldX,worldY,worldZ);
-        lock.acquireUninterruptibly();
-        boolean rVal = this.queuedChunkMap.containsKey(key);
-        lock.release();
-        return rVal;
+        return this.queuedChunks.contains(this.getKey(worldX,worldY,worldZ));
     }
 
     /**
@@ -228,10 +384,7 @@ public class ServerChunkCache {
      * @param worldZ The world z position of the chunk
      */
     public void queueChunk(int worldX, int worldY, int worldZ){
-        Long key = this.getKey(worldX,worldY,worldZ);
-        lock.acquireUninterruptibly();
-        this.queuedChunkMap.put(key,true);
-        lock.release();
+        this.queuedChunks.add(this.getKey(worldX,worldY,worldZ));
     }
 
     /**
@@ -242,38 +395,147 @@ public class ServerChunkCache {
      * @param stride The stride of the chunk
      */
     public void unqueueChunk(int worldX, int worldY, int worldZ, int stride){
-        Long key = this.getKey(worldX,worldY,worldZ);
-        lock.acquireUninterruptibly();
-        this.queuedChunkMap.remove(key);
-        lock.release();
+        this.queuedChunks.remove(this.getKey(worldX,worldY,worldZ));
     }
 
     /**
-     * Gets the cache
-     * @param stride The stride of the data
-     * @return The cache to use
+     * Synchronously writes every evicted-but-unflushed chunk to disk
      */
-    public Map<Long,ServerTerrainChunk> getCache(int stride){
-        switch(stride){
-            case 0: {
-                return cacheMapFullRes;
-            }
-            case 1: {
-                return cacheMapHalfRes;
+    public void flush(){
+        for(Map.Entry<Long,ServerTerrainChunk> entry : pendingWriteBack.entrySet()){
+            //write before removing so a concurrent miss never sees the chunk in neither the cache nor on disk
+            if(chunkDiskMap != null){
+                chunkDiskMap.saveToDisk(entry.getValue());
+                writeBacks.increment();
             }
-            case 2: {
-                return cacheMapQuarterRes;
-            }
-            case 3: {
-                return cacheMapEighthRes;
-            }
-            case 4: {
-                return cacheMapSixteenthRes;
-            }
-            default: {
-                throw new Error("Invalid stride probided! " + stride);
+            pendingWriteBack.remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Gets the number of hits for a given stride
+     * @param stride The stride
+     * @return The number of hits
+     */
+    public long getHits(int stride){
+        return hits[stride].sum();
+    }
+
+    /**
+     * Gets the number of misses for a given stride
+     * @param stride The stride
+     * @return The number of misses
+     */
+    public long getMisses(int stride){
+        return misses[stride].sum();
+    }
+
+    /**
+     * Gets the number of evictions for a given stride
+     * @param stride The stride
+     * @return The number of evictions
+     */
+    public long getEvictions(int stride){
+        return evictions[stride].sum();
+    }
+
+    /**
+     * Gets the number of chunks the flusher has written to disk
+     * @return The number of chunks written
+     */
+    public long getWriteBacks(){
+        return writeBacks.sum();
+    }
+
+    /**
+     * Gets the number of evicted chunks still waiting to be written to disk
+     * @return The number of chunks
+     */
+    public int getPendingWriteBackCount(){
+        return pendingWriteBack.size();
+    }
+
+    /**
+     * Gets the number of chunks currently cached for a given stride
+     * @param stride The stride
+     * @return The number of chunks
+     */
+    public int getSize(int stride){
+        ServerChunkCache.validateStride(stride);
+        int rVal = 0;
+        for(Stripe stripe : stripes){
+            stripe.lock.lock();
+            rVal = rVal + stripe.strideCaches[stride].size();
+            stripe.lock.unlock();
+        }
+        return rVal;
+    }
+
+    /**
+     * Gets the budget (in chunks) for a given stride
+     * @param stride The stride
+     * @return The budget
+     */
+    public int getBudget(int stride){
+        ServerChunkCache.validateStride(stride);
+        return strideBudgets[stride];
+    }
+
+    /**
+     * Called by a stripe's LRU when an entry is evicted. Always called with the stripe lock held.
+     * @param stride The stride of the evicted chunk
+     * @param key The key of the evicted chunk
+     * @param chunk The evicted chunk
+     */
+    private void onEvict(int stride, long key, ServerTerrainChunk chunk){
+        evictions[stride].increment();
+        if(stride == STRIDE_FULL_RES && chunkDiskMap != null){
+            pendingWriteBack.put(key, chunk);
+        }
+    }
+
+    /**
+     * Schedules the background flusher if there are chunks waiting to be written
+     */
+    private void scheduleFlush(){
+        if(pendingWriteBack.isEmpty() || !flushScheduled.compareAndSet(false, true)){
+            return;
+        }
+        if(Globals.engineState == null || Globals.engineState.threadManager == null){
+            flushScheduled.set(false);
+            this.flush();
+            return;
+        }
+        Globals.engineState.threadManager.dispatch(() -> {
+            try {
+                this.flush();
+            } catch (Error e){
+                LoggerInterface.loggerFileIO.ERROR(e);
+            } catch (Exception e){
+                LoggerInterface.loggerFileIO.ERROR(e);
+            } finally {
+                flushScheduled.set(false);
             }
+        });
+    }
+
+    /**
+     * Gets the stripe for a key
+     * @param key The key
+     * @return The stripe
+     */
+    private Stripe getStripe(long key){
+        return stripes[(LongLRUMap.mix(key) >>> 24) & (STRIPE_COUNT - 1)];
+    }
+
+    /**
+     * Validates a stride
+     * @param stride The stride
+     */
+    private static void validateStride(int stride){
+        if(stride < 0 || stride >= STRIDE_COUNT){
+            throw new Error("Invalid stride probided! " + stride);
         }
     }
-    
+
 }
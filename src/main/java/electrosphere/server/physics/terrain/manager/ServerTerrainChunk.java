@@ -58,19 +58,24 @@ public class ServerTerrainChunk {
     List<TerrainModification> modifications = new LinkedList<TerrainModification>();
 
     /**
-     * The weights of the chunk
+     * The voxels of the chunk
      */
-    float[][][] weights;
+    VoxelStorage voxels;
 
     /**
-     * The values of the chunk
+     * The homogenous value of this data, or ChunkData.NOT_HOMOGENOUS if it is not homogenous
      */
-    int[][][] values;
+    int homogenousValue;
 
     /**
-     * The homogenous value of this data, or ChunkData.NOT_HOMOGENOUS if it is not homogenous
+     * Incremented every time the contents of the chunk change
      */
-    int homogenousValue;
+    volatile int version = 0;
+
+    /**
+     * The last network payload encoded from this chunk
+     */
+    volatile TerrainChunkWireFormat.EncodedPayload encodedPayload;
 
     /**
      * Constructor
@@ -78,16 +83,14 @@ public class ServerTerrainChunk {
      * @param worldY The world position y coordinate
      * @param worldZ The world position z coordinate
      * @param homogenousValue The homogenous value of the terrain chunk
-     * @param weights The weights of the chunk
-     * @param values The values of the chunk
+     * @param voxels The voxels of the chunk
      */
-    public ServerTerrainChunk(int worldX, int worldY, int worldZ, int homogenousValue, float[][][] weights, int[][][] values) {
+    public ServerTerrainChunk(int worldX, int worldY, int worldZ, int homogenousValue, VoxelStorage voxels) {
         this.worldX = worldX;
         this.worldY = worldY;
         this.worldZ = worldZ;
         this.homogenousValue = homogenousValue;
-        this.weights = weights;
-        this.values = values;
+        this.voxels = voxels;
     }
 
     /**
@@ -100,6 +103,7 @@ public class ServerTerrainChunk {
         this.worldX = worldX;
         this.worldY = worldY;
         this.worldZ = worldZ;
+        this.voxels = new VoxelStorage();
     }
 
     /**
@@ -151,19 +155,11 @@ public class ServerTerrainChunk {
     }
 
     /**
-     * Gets the weights of the chunk
-     * @return The weights of the chunk
+     * Gets the voxels of the chunk
+     * @return The voxels of the chunk
      */
-    public float[][][] getWeights() {
-        return weights;
-    }
-
-    /**
-     * Gets the values of the chunk
-     * @return The values of the chunk
-     */
-    public int[][][] getValues() {
-        return values;
+    public VoxelStorage getVoxels() {
+        return voxels;
     }
 
     /**
@@ -172,8 +168,9 @@ public class ServerTerrainChunk {
      */
     public void addModification(TerrainModification modification){
         modifications.add(modification);
-        values[modification.getVoxelPos().x][modification.getVoxelPos().y][modification.getVoxelPos().z] = modification.getValue();
-        weights[modification.getVoxelPos().x][modification.getVoxelPos().y][modification.getVoxelPos().z] = modification.getWeight();
+        Vector3i voxelPos = modification.getVoxelPos();
+        voxels.set(voxelPos.x, voxelPos.y, voxelPos.z, modification.getWeight(), modification.getValue());
+        this.version++;
     }
 
     /**
@@ -193,7 +190,7 @@ public class ServerTerrainChunk {
      * @return The weight of the specified voxel
      */
     public float getWeight(int x, int y, int z){
-        return weights[x][y][z];
+        return voxels.getWeight(x, y, z);
     }
 
     /**
@@ -213,7 +210,7 @@ public class ServerTerrainChunk {
      * @return The type of the specified voxel
      */
     public int getType(int x, int y, int z){
-        return values[x][y][z];
+        return voxels.getType(x, y, z);
     }
     
     /**
@@ -225,19 +222,12 @@ public class ServerTerrainChunk {
     }
 
     /**
-     * Sets the weights of the chunk
-     * @param weights The weights
-     */
-    public void setWeights(float[][][] weights) {
-        this.weights = weights;
-    }
-
-    /**
-     * Sets the values of the chunk
-     * @param values The values
+     * Sets the voxels of the chunk
+     * @param voxels The voxels
      */
-    public void setValues(int[][][] values) {
-        this.values = values;
+    public void setVoxels(VoxelStorage voxels) {
+        this.voxels = voxels;
+        this.version++;
     }
 
     /**
@@ -246,6 +236,15 @@ public class ServerTerrainChunk {
      */
     public void setHomogenousValue(int homogenousValue) {
         this.homogenousValue = homogenousValue;
+        this.version++;
+    }
+
+    /**
+     * Gets the version of the chunk. The version changes every time the contents of the chunk change.
+     * @return The version
+     */
+    public int getVersion(){
+        return version;
     }
 
     
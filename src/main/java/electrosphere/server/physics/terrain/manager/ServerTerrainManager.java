@@ -1,12 +1,15 @@
 package electrosphere.server.physics.terrain.manager;
 
 import electrosphere.client.terrain.cache.ChunkData;
+import electrosphere.engine.EngineState;
 import electrosphere.engine.Globals;
 import electrosphere.engine.threads.ThreadCounts;
 import electrosphere.entity.scene.RealmDescriptor;
 import electrosphere.logger.LoggerInterface;
 import electrosphere.server.datacell.ServerWorldData;
 import electrosphere.server.macro.MacroData;
+import electrosphere.server.macro.spatial.MacroLODObject;
+import electrosphere.server.macro.spatial.MacroObject;
 import electrosphere.server.physics.terrain.diskmap.ChunkDiskMap;
 import electrosphere.server.physics.terrain.generation.ProceduralChunkGenerator;
 import electrosphere.server.physics.terrain.generation.interfaces.ChunkGenerator;
@@ -15,12 +18,15 @@ import electrosphere.server.physics.terrain.generation.macro.HomogenousMacroGene
 import electrosphere.server.physics.terrain.generation.macro.MacroGenerator;
 import electrosphere.server.physics.terrain.models.TerrainModel;
 import electrosphere.server.physics.terrain.models.TerrainModification;
+import electrosphere.server.saves.region.StorageFormat;
 import electrosphere.util.FileUtils;
 import electrosphere.util.annotation.Exclude;
 
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.ShortBuffer;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
 
@@ -178,6 +184,7 @@ public class ServerTerrainManager {
         }
         //for each chunk, save via disk map
         if(this.chunkCache != null){
+            this.chunkCache.flush();
             for(ServerTerrainChunk chunk : this.chunkCache.getFullRes()){
                 chunkDiskMap.saveToDisk(chunk);
             }
@@ -233,6 +240,10 @@ public class ServerTerrainManager {
         }
         //load chunk disk map
         chunkDiskMap = ChunkDiskMap.init(saveName);
+        if(EngineState.EngineFlags.MIGRATE_SAVES_TO_REGION && chunkDiskMap.getStorageFormat() == StorageFormat.FILE_PER_CHUNK){
+            int migrated = chunkDiskMap.migrateToRegionFormat(saveName);
+            LoggerInterface.loggerFileIO.INFO("Migrated " + migrated + " terrain chunks to region files");
+        }
 
         //init cache
         this.chunkCache = new ServerChunkCache(this.chunkDiskMap);
@@ -297,6 +308,66 @@ public class ServerTerrainManager {
         return returnedChunk;
     }
 
+    /**
+     * Checks if there is an already-generated full res chunk at the position
+     * @param worldX The world x position
+     * @param worldY The world y position
+     * @param worldZ The world z position
+     * @return true if the chunk is cached or on disk, false otherwise
+     */
+    public boolean hasChunk(int worldX, int worldY, int worldZ){
+        if(chunkCache.containsChunk(worldX, worldY, worldZ, ServerChunkCache.STRIDE_FULL_RES)){
+            return true;
+        }
+        return chunkDiskMap != null && chunkDiskMap.containsTerrainAtPosition(worldX, worldY, worldZ, ServerChunkCache.STRIDE_FULL_RES);
+    }
+
+    /**
+     * Generates a full res chunk and writes it straight to disk, skipping the cache.
+     * Used by world pre-generation so that the chunks don't pile up in memory.
+     * @param worldX The world x position
+     * @param worldY The world y position
+     * @param worldZ The world z position
+     * @return The chunk, or null if the macro data that affects it isn't at full res yet
+     */
+    public ServerTerrainChunk pregenerate(int worldX, int worldY, int worldZ){
+        if(chunkDiskMap == null){
+            throw new Error("Trying to pregenerate terrain without a disk map!");
+        }
+        //the cached copy may have edits that aren't on disk yet
+        ServerTerrainChunk rVal = chunkCache.get(worldX, worldY, worldZ, ServerChunkCache.STRIDE_FULL_RES);
+        if(rVal != null){
+            return rVal;
+        }
+        if(chunkDiskMap.containsTerrainAtPosition(worldX, worldY, worldZ, ServerChunkCache.STRIDE_FULL_RES)){
+            return chunkDiskMap.getTerrainChunk(worldX, worldY, worldZ, ServerChunkCache.STRIDE_FULL_RES);
+        }
+        List<MacroObject> objects = null;
+        if(macroData == null){
+            objects = new LinkedList<MacroObject>();
+        } else {
+            objects = macroData.getChunkObjects(worldX, worldY, worldZ);
+            long notFullResCount = objects.stream().filter((MacroObject macroObj) -> macroObj instanceof MacroLODObject).map((MacroObject oldView) -> (MacroLODObject)oldView).filter((MacroLODObject lodObj) -> !lodObj.isFullRes()).count();
+            if(notFullResCount > 0){
+                return null;
+            }
+        }
+        rVal = chunkGenerator.generateChunk(objects, worldX, worldY, worldZ, ServerChunkCache.STRIDE_FULL_RES);
+        if(rVal != null){
+            chunkDiskMap.saveToDisk(rVal);
+        }
+        return rVal;
+    }
+
+    /**
+     * Flushes the disk map so that chunks written straight to it survive a crash
+     */
+    public void saveDiskMap(){
+        if(chunkDiskMap != null){
+            chunkDiskMap.save();
+        }
+    }
+
     /**
      * Performs logic once a server chunk is available
      * @param worldX The world x position
@@ -360,10 +431,16 @@ public class ServerTerrainManager {
      */
     public void deformTerrainAtLocationToValue(Vector3i worldPos, Vector3i voxelPos, float weight, int value){
         TerrainModification modification = new TerrainModification(worldPos,voxelPos,weight,value);
-        if(chunkCache.containsChunk(worldPos.x,worldPos.y,worldPos.z,ChunkData.NO_STRIDE)){
-            ServerTerrainChunk chunk = chunkCache.get(worldPos.x,worldPos.y,worldPos.z, ChunkData.NO_STRIDE);
+        ServerTerrainChunk chunk = chunkCache.get(worldPos.x,worldPos.y,worldPos.z, ChunkData.NO_STRIDE);
+        if(chunk != null){
             chunk.addModification(modification);
         }
+        //the reduced-res versions of this chunk are now stale
+        //bump the disk map's versions before dropping the cached levels so a mip level built concurrently is never left cached
+        if(chunkDiskMap != null){
+            chunkDiskMap.invalidateMipLevels(worldPos.x, worldPos.y, worldPos.z);
+        }
+        chunkCache.invalidateMipLevels(worldPos.x, worldPos.y, worldPos.z);
     }
 
     /**
@@ -387,6 +464,17 @@ public class ServerTerrainManager {
      */
     public void closeThreads(){
         chunkExecutorService.shutdownNow();
+        if(chunkDiskMap != null){
+            chunkDiskMap.close();
+        }
+    }
+
+    /**
+     * Gets the chunk cache of the terrain manager
+     * @return The chunk cache
+     */
+    public ServerChunkCache getChunkCache(){
+        return chunkCache;
     }
 
     /**
@@ -0,0 +1,244 @@
+package electrosphere.server.physics.terrain.manager;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.zip.Deflater;
+
+import electrosphere.client.terrain.cache.ChunkData;
+
+/**
+ * Encodes terrain chunks for the reduced chunk data message.
+ * <p>
+ * Two formats exist, negotiated per connection with the ChunkFormat message:
+ * </p>
+ * <ul>
+ * <li>FORMAT_RAW: every weight as a float, then every type as an int (~39KB per chunk)</li>
+ * <li>FORMAT_COMPACT: a small header followed by a body of weights quantized to shorts and the chunk's type palette + indices.
+ * The body is deflated when that makes it smaller.</li>
+ * </ul>
+ * <p>
+ * Every non-homogenous payload starts with its format (byte), so a payload can be decoded regardless of when
+ * the connection's format was negotiated relative to when the payload was queued or parsed.
+ * Compact layout after the format: flags (byte), body length (int), payload length (int), payload.
+ * Weights are only quantized if every weight of the chunk is within [-1,1], otherwise the body carries the raw floats.
+ * Voxels are in storage order (x, then z, then y) in both formats. Homogenous chunks are a single 0 byte in both formats.
+ * </p>
+ * <p>
+ * Encoded payloads are cached on the chunk alongside the chunk version they were built from,
+ * so every player that requests the same (chunk, stride) before it is edited gets the same byte array.
+ * </p>
+ */
+public class TerrainChunkWireFormat {
+
+    /**
+     * Weights as floats followed by types as ints
+     */
+    public static final int FORMAT_RAW = 0;
+
+    /**
+     * Quantized weights and palette compressed types, optionally deflated
+     */
+    public static final int FORMAT_COMPACT = 1;
+
+    /**
+     * The latest format this build can encode and decode
+     */
+    public static final int LATEST_FORMAT = FORMAT_COMPACT;
+
+    /**
+     * Flag set if the payload is deflated
+     */
+    public static final int FLAG_DEFLATED = 1;
+
+    /**
+     * Flag set if the weights are quantized to shorts
+     */
+    public static final int FLAG_QUANTIZED = 2;
+
+    /**
+     * Scale applied to weights when quantizing them to shorts
+     */
+    public static final float QUANTIZE_SCALE = Short.MAX_VALUE;
+
+    /**
+     * The largest palette whose indices are sent as bytes. Larger palettes send unsigned shorts
+     */
+    public static final int MAX_BYTE_PALETTE_SIZE = VoxelStorage.MAX_BYTE_PALETTE_SIZE;
+
+    /**
+     * The size of the format tag at the head of every non-homogenous payload
+     */
+    public static final int FORMAT_TAG_SIZE = 1;
+
+    /**
+     * The size of the compact format header
+     */
+    static final int COMPACT_HEADER_SIZE = 1 + 4 + 4;
+
+    /**
+     * Payload sent for homogenous chunks
+     */
+    static final byte[] HOMOGENOUS_PAYLOAD = new byte[]{ 0 };
+
+    /**
+     * Deflater for each encoding thread
+     */
+    private static final ThreadLocal<Deflater> deflaters = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION));
+
+    /**
+     * An encoded payload cached on a chunk
+     */
+    static class EncodedPayload {
+
+        /**
+         * The format of the payload
+         */
+        final int format;
+
+        /**
+         * The version of the chunk the payload was encoded from
+         */
+        final int version;
+
+        /**
+         * The payload
+         */
+        final byte[] bytes;
+
+        /**
+         * Constructor
+         * @param format The format of the payload
+         * @param version The version of the chunk the payload was encoded from
+         * @param bytes The payload
+         */
+        EncodedPayload(int format, int version, byte[] bytes){
+            this.format = format;
+            this.version = version;
+            this.bytes = bytes;
+        }
+
+    }
+
+    /**
+     * Picks the format to use for a connection
+     * @param requested The latest format the client supports
+     * @return The format to use
+     */
+    public static int negotiate(int requested){
+        return Math.max(FORMAT_RAW, Math.min(requested, LATEST_FORMAT));
+    }
+
+    /**
+     * Gets the payload for a chunk, encoding it only if the chunk has changed since it was last encoded in this format.
+     * The returned array is shared and must not be modified.
+     * @param chunk The chunk
+     * @param format The format
+     * @return The payload
+     */
+    public static byte[] getPayload(ServerTerrainChunk chunk, int format){
+        //read the version before encoding so an edit made mid-encode is not hidden behind the cached payload
+        int version = chunk.getVersion();
+        EncodedPayload cached = chunk.encodedPayload;
+        if(cached != null && cached.format == format && cached.version == version){
+            return cached.bytes;
+        }
+        byte[] rVal = TerrainChunkWireFormat.encode(chunk, format);
+        chunk.encodedPayload = new EncodedPayload(format, version, rVal);
+        return rVal;
+    }
+
+    /**
+     * Encodes a chunk
+     * @param chunk The chunk
+     * @param format The format
+     * @return The payload
+     */
+    public static byte[] encode(ServerTerrainChunk chunk, int format){
+        if(chunk.getHomogenousValue() != ChunkData.NOT_HOMOGENOUS){
+            return HOMOGENOUS_PAYLOAD;
+        }
+        switch(format){
+            case FORMAT_RAW: {
+                return TerrainChunkWireFormat.encodeRaw(chunk.getVoxels());
+            }
+            case FORMAT_COMPACT: {
+                return TerrainChunkWireFormat.encodeCompact(chunk.getVoxels());
+            }
+            default: {
+                throw new Error("Unsupported chunk format! " + format);
+            }
+        }
+    }
+
+    /**
+     * Encodes voxels in the raw format
+     * @param voxels The voxels
+     * @return The payload
+     */
+    static byte[] encodeRaw(VoxelStorage voxels){
+        //The wire order (x, then z, then y) matches the voxel storage order, so the weights are a single bulk copy
+        ByteBuffer buffer = ByteBuffer.allocate(FORMAT_TAG_SIZE + VoxelStorage.VOXEL_COUNT * (4 + 4));
+        buffer.put((byte)FORMAT_RAW);
+        voxels.writeWeights(buffer);
+        IntBuffer intView = buffer.asIntBuffer();
+        voxels.writeTypes(intView);
+        return buffer.array();
+    }
+
+    /**
+     * Encodes voxels in the compact format
+     * @param voxels The voxels
+     * @return The payload
+     */
+    static byte[] encodeCompact(VoxelStorage voxels){
+        FloatBuffer weights = voxels.getWeightBytes().asFloatBuffer();
+        boolean quantize = true;
+        for(int i = 0; i < VoxelStorage.VOXEL_COUNT; i++){
+            float weight = weights.get(i);
+            if(!(weight >= -1.0f && weight <= 1.0f)){
+                quantize = false;
+                break;
+            }
+        }
+
+        //build the body
+        int weightBytes = VoxelStorage.VOXEL_COUNT * (quantize ? 2 : 4);
+        int bodyLength = weightBytes + voxels.getPaletteSerializedSize();
+        ByteBuffer body = ByteBuffer.allocate(bodyLength);
+        if(quantize){
+            for(int i = 0; i < VoxelStorage.VOXEL_COUNT; i++){
+                body.putShort((short)Math.round(weights.get(i) * QUANTIZE_SCALE));
+            }
+        } else {
+            voxels.writeWeights(body);
+        }
+        voxels.writePalette(body);
+        if(body.position() != bodyLength){
+            throw new Error("Encoded unexpected number of bytes! " + body.position() + " " + bodyLength);
+        }
+
+        //deflate if that actually shrinks the body
+        int flags = quantize ? FLAG_QUANTIZED : 0;
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        deflater.setInput(body.array(), 0, bodyLength);
+        deflater.finish();
+        byte[] deflated = new byte[bodyLength];
+        int deflatedLength = deflater.deflate(deflated);
+        boolean useDeflated = deflater.finished() && deflatedLength < bodyLength;
+        int payloadLength = useDeflated ? deflatedLength : bodyLength;
+        if(useDeflated){
+            flags = flags | FLAG_DEFLATED;
+        }
+
+        ByteBuffer rVal = ByteBuffer.allocate(FORMAT_TAG_SIZE + COMPACT_HEADER_SIZE + payloadLength);
+        rVal.put((byte)FORMAT_COMPACT);
+        rVal.put((byte)flags);
+        rVal.putInt(bodyLength);
+        rVal.putInt(payloadLength);
+        rVal.put(useDeflated ? deflated : body.array(), 0, payloadLength);
+        return rVal.array();
+    }
+
+}
@@ -0,0 +1,109 @@
+package electrosphere.server.physics.terrain.manager;
+
+import electrosphere.client.terrain.cache.ChunkData;
+
+/**
+ * Utilities for the reduced-resolution (mip) levels of terrain chunks.
+ * <p>
+ * A chunk at stride s has the same number of samples as a full res chunk, but samples every 2^s voxels, so it covers 2^s full res chunks per axis.
+ * Mip levels are only persisted for chunks whose origin is aligned to 2^s (which is how the client's draw cell octree requests them).
+ * An aligned chunk at stride s can be built from the eight aligned chunks at stride s-1 that it covers.
+ * </p>
+ */
+public class TerrainMipLevels {
+
+    /**
+     * The number of stride levels, including full res
+     */
+    public static final int LEVEL_COUNT = ServerChunkCache.STRIDE_SIXTEENTH_RES + 1;
+
+    /**
+     * The number of children a mip chunk is built from
+     */
+    public static final int CHILD_COUNT = 8;
+
+    /**
+     * Checks if a stride is one of the supported mip levels
+     * @param stride The stride
+     * @return true if it is supported, false otherwise
+     */
+    public static boolean isValidStride(int stride){
+        return stride >= ServerChunkCache.STRIDE_FULL_RES && stride < LEVEL_COUNT;
+    }
+
+    /**
+     * Checks if a chunk position is aligned to a given stride
+     * @param worldX The world x coordinate
+     * @param worldY The world y coordinate
+     * @param worldZ The world z coordinate
+     * @param stride The stride
+     * @return true if the position is the origin of a chunk at that stride, false otherwise
+     */
+    public static boolean isAligned(int worldX, int worldY, int worldZ, int stride){
+        int mask = (1 << stride) - 1;
+        return (worldX & mask) == 0 && (worldY & mask) == 0 && (worldZ & mask) == 0;
+    }
+
+    /**
+     * Gets the origin of the aligned chunk at a given stride that contains a world coordinate
+     * @param world The world coordinate (along a single axis)
+     * @param stride The stride
+     * @return The origin of the containing chunk along that axis
+     */
+    public static int getOrigin(int world, int stride){
+        return world & ~((1 << stride) - 1);
+    }
+
+    /**
+     * Gets the index of a child within the children array
+     * @param childX 0 or 1 along the x axis
+     * @param childY 0 or 1 along the y axis
+     * @param childZ 0 or 1 along the z axis
+     * @return The index
+     */
+    public static int getChildIndex(int childX, int childY, int childZ){
+        return childX * 4 + childY * 2 + childZ;
+    }
+
+    /**
+     * Builds a chunk at a given stride from the eight chunks at the stride below it
+     * @param worldX The world x coordinate of the chunk to build
+     * @param worldY The world y coordinate of the chunk to build
+     * @param worldZ The world z coordinate of the chunk to build
+     * @param children The children, indexed by getChildIndex. The child at (1,1,1) is at (worldX,worldY,worldZ) + 2^(stride-1)
+     * @return The chunk
+     */
+    public static ServerTerrainChunk downsample(int worldX, int worldY, int worldZ, ServerTerrainChunk[] children){
+        if(children.length != CHILD_COUNT){
+            throw new Error("Must provide exactly " + CHILD_COUNT + " children! " + children.length);
+        }
+        int DIM = ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE;
+        int HALF = ServerTerrainChunk.CHUNK_DIMENSION / 2;
+        VoxelStorage voxels = new VoxelStorage();
+        int firstType = ChunkData.NOT_HOMOGENOUS;
+        boolean homogenous = true;
+        for(int x = 0; x < DIM; x++){
+            //the final sample lands on the far edge of the second child
+            int childX = Math.min(x / HALF, 1);
+            int sourceX = x * 2 - childX * ServerTerrainChunk.CHUNK_DIMENSION;
+            for(int z = 0; z < DIM; z++){
+                int childZ = Math.min(z / HALF, 1);
+                int sourceZ = z * 2 - childZ * ServerTerrainChunk.CHUNK_DIMENSION;
+                for(int y = 0; y < DIM; y++){
+                    int childY = Math.min(y / HALF, 1);
+                    int sourceY = y * 2 - childY * ServerTerrainChunk.CHUNK_DIMENSION;
+                    ServerTerrainChunk child = children[TerrainMipLevels.getChildIndex(childX, childY, childZ)];
+                    int type = child.getType(sourceX, sourceY, sourceZ);
+                    voxels.set(x, y, z, child.getWeight(sourceX, sourceY, sourceZ), type);
+                    if(x == 0 && y == 0 && z == 0){
+                        firstType = type;
+                    } else if(homogenous && firstType != type){
+                        homogenous = false;
+                    }
+                }
+            }
+        }
+        return new ServerTerrainChunk(worldX, worldY, worldZ, homogenous ? firstType : ChunkData.NOT_HOMOGENOUS, voxels);
+    }
+
+}
@@ -0,0 +1,413 @@
+package electrosphere.server.physics.terrain.manager;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import electrosphere.engine.EngineState;
+
+/**
+ * Flat storage for the voxels of a terrain chunk.
+ * <p>
+ * Weights are kept in a single big-endian float buffer (optionally off-heap) so they can be handed to disk and network code in bulk.
+ * Types are palette compressed: each voxel stores an index into a small per-chunk palette of type ids.
+ * A chunk with a single type stores no indices at all, up to 256 types are stored as bytes, anything more as shorts.
+ * </p>
+ * <p>
+ * Voxels are laid out x-major, then z, then y (y is the fastest changing index). This matches the order reduced chunks are sent to the client in.
+ * </p>
+ * <p>
+ * Memory per chunk (17^3 voxels):
+ * the previous float[17][17][17] + int[17][17][17] layout used ~51KB (307 array objects per chunk each with a 16 byte header, plus 4 bytes per voxel per array).
+ * This layout uses ~19.7KB for weights plus 0 (homogenous), ~4.9KB (byte indices) or ~9.8KB (short indices) for types.
+ * </p>
+ */
+public class VoxelStorage {
+
+    /**
+     * The number of voxels along each axis
+     */
+    public static final int DIM = ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE;
+
+    /**
+     * The number of voxels in the storage
+     */
+    public static final int VOXEL_COUNT = DIM * DIM * DIM;
+
+    /**
+     * The number of bytes used by the weights
+     */
+    public static final int WEIGHT_BYTES = VOXEL_COUNT * 4;
+
+    /**
+     * The largest palette that can be indexed with bytes
+     */
+    static final int MAX_BYTE_PALETTE_SIZE = 256;
+
+    /**
+     * The largest palette that can be indexed with shorts
+     */
+    static final int MAX_SHORT_PALETTE_SIZE = 65536;
+
+    /**
+     * Width of the indices when the palette only has a single entry
+     */
+    static final int INDEX_WIDTH_NONE = 0;
+
+    /**
+     * Width of the indices when they are stored as bytes
+     */
+    static final int INDEX_WIDTH_BYTE = 1;
+
+    /**
+     * Width of the indices when they are stored as shorts
+     */
+    static final int INDEX_WIDTH_SHORT = 2;
+
+    /**
+     * The backing bytes for the weights
+     */
+    ByteBuffer weightBytes;
+
+    /**
+     * Float view of the weights
+     */
+    FloatBuffer weights;
+
+    /**
+     * The palette of types
+     */
+    int[] palette = new int[]{ ServerTerrainChunk.VOXEL_TYPE_AIR };
+
+    /**
+     * The number of entries in the palette that are in use
+     */
+    int paletteSize = 1;
+
+    /**
+     * The palette indices if the palette fits in a byte
+     */
+    byte[] byteIndices;
+
+    /**
+     * The palette indices if the palette does not fit in a byte
+     */
+    short[] shortIndices;
+
+    /**
+     * Constructor
+     */
+    public VoxelStorage(){
+        this(EngineState.EngineFlags.OFF_HEAP_VOXELS);
+    }
+
+    /**
+     * Constructor
+     * @param offHeap true to store the weights off-heap, false to store them on the java heap
+     */
+    public VoxelStorage(boolean offHeap){
+        if(offHeap){
+            this.weightBytes = ByteBuffer.allocateDirect(WEIGHT_BYTES).order(ByteOrder.BIG_ENDIAN);
+        } else {
+            this.weightBytes = ByteBuffer.allocate(WEIGHT_BYTES);
+        }
+        this.weights = this.weightBytes.asFloatBuffer();
+    }
+
+    /**
+     * Gets the flat index of a voxel
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @return The index
+     */
+    public static int getIndex(int x, int y, int z){
+        return (x * DIM + z) * DIM + y;
+    }
+
+    /**
+     * Gets the weight of a voxel
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @return The weight
+     */
+    public float getWeight(int x, int y, int z){
+        return weights.get(VoxelStorage.getIndex(x, y, z));
+    }
+
+    /**
+     * Gets the type of a voxel
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @return The type
+     */
+    public int getType(int x, int y, int z){
+        return this.getType(VoxelStorage.getIndex(x, y, z));
+    }
+
+    /**
+     * Gets the type of a voxel
+     * @param index The flat index of the voxel
+     * @return The type
+     */
+    public int getType(int index){
+        if(byteIndices != null){
+            return palette[byteIndices[index] & 0xFF];
+        }
+        if(shortIndices != null){
+            return palette[shortIndices[index] & 0xFFFF];
+        }
+        return palette[0];
+    }
+
+    /**
+     * Sets the weight of a voxel
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @param weight The weight
+     */
+    public void setWeight(int x, int y, int z, float weight){
+        weights.put(VoxelStorage.getIndex(x, y, z), weight);
+    }
+
+    /**
+     * Sets the type of a voxel
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @param type The type
+     */
+    public void setType(int x, int y, int z, int type){
+        this.setType(VoxelStorage.getIndex(x, y, z), type);
+    }
+
+    /**
+     * Sets the type of a voxel
+     * @param index The flat index of the voxel
+     * @param type The type
+     */
+    public void setType(int index, int type){
+        int paletteIndex = this.getOrAddPaletteIndex(type);
+        if(byteIndices != null){
+            byteIndices[index] = (byte)paletteIndex;
+        } else if(shortIndices != null){
+            shortIndices[index] = (short)paletteIndex;
+        }
+    }
+
+    /**
+     * Sets the weight and type of a voxel
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @param weight The weight
+     * @param type The type
+     */
+    public void set(int x, int y, int z, float weight, int type){
+        int index = VoxelStorage.getIndex(x, y, z);
+        weights.put(index, weight);
+        this.setType(index, type);
+    }
+
+    /**
+     * Sets every voxel to the same weight and type
+     * @param weight The weight
+     * @param type The type
+     */
+    public void fill(float weight, int type){
+        for(int i = 0; i < VOXEL_COUNT; i++){
+            weights.put(i, weight);
+        }
+        this.palette = new int[]{ type };
+        this.paletteSize = 1;
+        this.byteIndices = null;
+        this.shortIndices = null;
+    }
+
+    /**
+     * Gets the number of types in the palette. Types that were overwritten are not removed from the palette.
+     * @return The number of types
+     */
+    public int getPaletteSize(){
+        return paletteSize;
+    }
+
+    /**
+     * Gets a big-endian view of the weights positioned at the start. The view shares the storage's memory and must not be written to.
+     * @return The view
+     */
+    public ByteBuffer getWeightBytes(){
+        return weightBytes.duplicate().order(ByteOrder.BIG_ENDIAN).clear();
+    }
+
+    /**
+     * Writes the weights into a buffer in storage order
+     * @param buffer The buffer
+     */
+    public void writeWeights(ByteBuffer buffer){
+        buffer.put(this.getWeightBytes());
+    }
+
+    /**
+     * Writes the types into a buffer in storage order
+     * @param buffer The buffer
+     */
+    public void writeTypes(IntBuffer buffer){
+        if(byteIndices != null){
+            for(int i = 0; i < VOXEL_COUNT; i++){
+                buffer.put(palette[byteIndices[i] & 0xFF]);
+            }
+        } else if(shortIndices != null){
+            for(int i = 0; i < VOXEL_COUNT; i++){
+                buffer.put(palette[shortIndices[i] & 0xFFFF]);
+            }
+        } else {
+            for(int i = 0; i < VOXEL_COUNT; i++){
+                buffer.put(palette[0]);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of bytes the palette section takes up when serialized
+     * @return The number of bytes
+     */
+    public int getPaletteSerializedSize(){
+        return VoxelStorage.getPaletteSerializedSize(paletteSize);
+    }
+
+    /**
+     * Writes the palette section (palette size, palette, indices) into a buffer
+     * @param buffer The buffer
+     */
+    public void writePalette(ByteBuffer buffer){
+        buffer.putInt(paletteSize);
+        for(int i = 0; i < paletteSize; i++){
+            buffer.putInt(palette[i]);
+        }
+        if(byteIndices != null){
+            buffer.put(byteIndices);
+        } else if(shortIndices != null){
+            buffer.asShortBuffer().put(shortIndices);
+            buffer.position(buffer.position() + VOXEL_COUNT * 2);
+        }
+    }
+
+    /**
+     * Reads the weights from a buffer in storage order
+     * @param buffer The buffer
+     */
+    public void readWeights(ByteBuffer buffer){
+        ByteBuffer source = buffer.slice();
+        source.limit(WEIGHT_BYTES);
+        weightBytes.clear();
+        weightBytes.put(source);
+        weightBytes.clear();
+        buffer.position(buffer.position() + WEIGHT_BYTES);
+    }
+
+    /**
+     * Reads a palette section written by writePalette
+     * @param buffer The buffer
+     */
+    public void readPalette(ByteBuffer buffer){
+        int size = buffer.getInt();
+        if(size < 1 || size > MAX_SHORT_PALETTE_SIZE){
+            throw new Error("Invalid voxel palette size! " + size);
+        }
+        this.palette = new int[size];
+        for(int i = 0; i < size; i++){
+            this.palette[i] = buffer.getInt();
+        }
+        this.paletteSize = size;
+        this.byteIndices = null;
+        this.shortIndices = null;
+        if(size > MAX_BYTE_PALETTE_SIZE){
+            this.shortIndices = new short[VOXEL_COUNT];
+            buffer.asShortBuffer().get(this.shortIndices);
+            buffer.position(buffer.position() + VOXEL_COUNT * 2);
+        } else if(size > 1){
+            this.byteIndices = new byte[VOXEL_COUNT];
+            buffer.get(this.byteIndices);
+        }
+    }
+
+    /**
+     * Gets the approximate number of bytes this storage occupies
+     * @return The number of bytes
+     */
+    public int getSizeInBytes(){
+        return WEIGHT_BYTES + palette.length * 4 + VOXEL_COUNT * this.getIndexWidth();
+    }
+
+    /**
+     * Gets the serialized size of a palette section from its palette size
+     * @param paletteSize The palette size
+     * @return The number of bytes
+     */
+    public static int getPaletteSerializedSize(int paletteSize){
+        int indexWidth = INDEX_WIDTH_NONE;
+        if(paletteSize > MAX_BYTE_PALETTE_SIZE){
+            indexWidth = INDEX_WIDTH_SHORT;
+        } else if(paletteSize > 1){
+            indexWidth = INDEX_WIDTH_BYTE;
+        }
+        return 4 + paletteSize * 4 + VOXEL_COUNT * indexWidth;
+    }
+
+    /**
+     * Gets the width in bytes of each palette index
+     * @return The width
+     */
+    private int getIndexWidth(){
+        if(byteIndices != null){
+            return INDEX_WIDTH_BYTE;
+        }
+        if(shortIndices != null){
+            return INDEX_WIDTH_SHORT;
+        }
+        return INDEX_WIDTH_NONE;
+    }
+
+    /**
+     * Gets the palette index of a type, adding it to the palette (and widening the indices) if necessary
+     * @param type The type
+     * @return The palette index
+     */
+    private int getOrAddPaletteIndex(int type){
+        //palettes are tiny (usually a handful of materials), so a linear scan beats hashing
+        for(int i = 0; i < paletteSize; i++){
+            if(palette[i] == type){
+                return i;
+            }
+        }
+        if(paletteSize >= MAX_SHORT_PALETTE_SIZE){
+            throw new Error("Voxel palette overflow! " + paletteSize);
+        }
+        if(paletteSize == palette.length){
+            int[] newPalette = new int[palette.length * 2];
+            System.arraycopy(palette, 0, newPalette, 0, paletteSize);
+            palette = newPalette;
+        }
+        int rVal = paletteSize;
+        palette[rVal] = type;
+        paletteSize++;
+        //widen the indices
+        if(paletteSize == 2){
+            //every existing voxel references entry 0, which zeroed arrays already do
+            byteIndices = new byte[VOXEL_COUNT];
+        } else if(paletteSize == MAX_BYTE_PALETTE_SIZE + 1){
+            shortIndices = new short[VOXEL_COUNT];
+            for(int i = 0; i < VOXEL_COUNT; i++){
+                shortIndices[i] = (short)(byteIndices[i] & 0xFF);
+            }
+            byteIndices = null;
+        }
+        return rVal;
+    }
+
+}
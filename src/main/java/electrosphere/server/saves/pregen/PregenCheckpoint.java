@@ -0,0 +1,115 @@
+package electrosphere.server.saves.pregen;
+
+/**
+ * The region being pre-generated and how far along the pre-generation is.
+ * Stored in the save so that an interrupted pre-generation can resume.
+ */
+public class PregenCheckpoint {
+
+    /**
+     * The minimum x coordinate of the region (inclusive)
+     */
+    int minX;
+
+    /**
+     * The minimum z coordinate of the region (inclusive)
+     */
+    int minZ;
+
+    /**
+     * The maximum x coordinate of the region (inclusive)
+     */
+    int maxX;
+
+    /**
+     * The maximum z coordinate of the region (inclusive)
+     */
+    int maxZ;
+
+    /**
+     * The minimum y coordinate of the region (inclusive)
+     */
+    int minY;
+
+    /**
+     * The maximum y coordinate of the region (exclusive)
+     */
+    int maxY;
+
+    /**
+     * Every column with a curve index below this one has been written to disk
+     */
+    long nextIndex;
+
+    /**
+     * true if every column in the region has been written to disk
+     */
+    boolean complete;
+
+    /**
+     * Constructor
+     * @param minX The minimum x coordinate of the region (inclusive)
+     * @param minZ The minimum z coordinate of the region (inclusive)
+     * @param maxX The maximum x coordinate of the region (inclusive)
+     * @param maxZ The maximum z coordinate of the region (inclusive)
+     * @param minY The minimum y coordinate of the region (inclusive)
+     * @param maxY The maximum y coordinate of the region (exclusive)
+     */
+    public PregenCheckpoint(int minX, int minZ, int maxX, int maxZ, int minY, int maxY){
+        if(minX > maxX || minZ > maxZ || minY >= maxY){
+            throw new Error("Invalid pregen region! " + minX + " " + minZ + " " + maxX + " " + maxZ + " " + minY + " " + maxY);
+        }
+        this.minX = minX;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxZ = maxZ;
+        this.minY = minY;
+        this.maxY = maxY;
+    }
+
+    /**
+     * Checks if this checkpoint covers the same region as another
+     * @param other The other checkpoint
+     * @return true if they cover the same region, false otherwise
+     */
+    public boolean sameRegion(PregenCheckpoint other){
+        return
+            this.minX == other.minX && this.minZ == other.minZ &&
+            this.maxX == other.maxX && this.maxZ == other.maxZ &&
+            this.minY == other.minY && this.maxY == other.maxY
+        ;
+    }
+
+    /**
+     * Gets the width of the region along the x axis
+     * @return The width in chunks
+     */
+    public int getWidth(){
+        return maxX - minX + 1;
+    }
+
+    /**
+     * Gets the depth of the region along the z axis
+     * @return The depth in chunks
+     */
+    public int getDepth(){
+        return maxZ - minZ + 1;
+    }
+
+    /**
+     * Gets the index of the first column that may not be on disk yet
+     * @return The curve index
+     */
+    public long getNextIndex(){
+        return nextIndex;
+    }
+
+    /**
+     * Checks if the whole region has been written to disk
+     * @return true if it has, false otherwise
+     */
+    public boolean isComplete(){
+        return complete;
+    }
+
+}
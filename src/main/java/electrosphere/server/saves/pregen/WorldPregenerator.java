@@ -0,0 +1,472 @@
+package electrosphere.server.saves.pregen;
+
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.joml.AABBd;
+
+import electrosphere.engine.Globals;
+import electrosphere.logger.LoggerInterface;
+import electrosphere.server.datacell.ServerWorldData;
+import electrosphere.server.macro.MacroData;
+import electrosphere.server.macro.spatial.MacroAreaObject;
+import electrosphere.server.macro.spatial.MacroObject;
+import electrosphere.server.physics.terrain.manager.ServerTerrainChunk;
+import electrosphere.util.FileUtils;
+
+/**
+ * Pre-generates a region of the world straight to disk
+ * <p>
+ * Columns of chunks are visited in Morton (z-order) so that neighboring columns, which share region files and macro grid cells,
+ * are generated close together in time. Each column is generated bottom to top on a worker and every chunk is written to the
+ * disk maps and dropped as soon as it is made. Only a fixed number of columns are in flight at once, so memory use does not grow with the region.
+ * </p>
+ * <p>
+ * A column stops once it reaches open sky with no macro objects left above it. The sky chunks above are uniform air and are
+ * cheaper to regenerate on demand than to read back from disk.
+ * </p>
+ * <p>
+ * Progress is checkpointed to the save as the lowest curve index that is not on disk yet, so a crashed run resumes from there.
+ * Chunks that were already written past the checkpoint are found in the disk maps and skipped.
+ * </p>
+ */
+public class WorldPregenerator {
+
+    /**
+     * The file in the save that stores the checkpoint
+     */
+    public static final String CHECKPOINT_FILE_NAME = "./pregen.json";
+
+    /**
+     * The number of columns to finish between checkpoints
+     */
+    static final int CHECKPOINT_INTERVAL = 256;
+
+    /**
+     * The number of columns each thread can have in flight
+     */
+    static final int COLUMNS_PER_THREAD = 2;
+
+    /**
+     * The name of the save
+     */
+    String saveName;
+
+    /**
+     * The world data to generate
+     */
+    ServerWorldData worldData;
+
+    /**
+     * The macro data of the world
+     */
+    MacroData macroData;
+
+    /**
+     * The region and progress
+     */
+    PregenCheckpoint checkpoint;
+
+    /**
+     * Controls whether fluid chunks are generated too
+     */
+    boolean pregenFluids;
+
+    /**
+     * The number of worker threads
+     */
+    int threadCount;
+
+    /**
+     * The width of the square that the curve covers. A power of two.
+     */
+    int curveWidth;
+
+    /**
+     * The curve indices of the columns currently being generated
+     */
+    TreeSet<Long> inFlight = new TreeSet<Long>();
+
+    /**
+     * The lowest curve index of a column that failed to generate
+     */
+    long firstFailedIndex = Long.MAX_VALUE;
+
+    /**
+     * The next curve index to submit
+     */
+    long submittedIndex;
+
+    /**
+     * The number of columns finished since the last checkpoint
+     */
+    int columnsSinceCheckpoint = 0;
+
+    /**
+     * The number of terrain chunks generated by this run. Chunks that were deferred or already on disk are not counted.
+     */
+    LongAdder chunkCount = new LongAdder();
+
+    /**
+     * The number of chunks that were left for on-demand generation because their macro data isn't at full res yet
+     */
+    LongAdder deferredCount = new LongAdder();
+
+    /**
+     * The time the run started
+     */
+    long startTime;
+
+    /**
+     * The time the run took
+     */
+    long runTime;
+
+    /**
+     * Lock for thread-safeing the progress
+     */
+    ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Constructor
+     * @param saveName The name of the save
+     * @param worldData The world data to generate
+     * @param macroData The macro data of the world
+     * @param checkpoint The region to generate, and where to resume from
+     * @param pregenFluids true to generate fluid chunks too
+     * @param threadCount The number of worker threads
+     */
+    public WorldPregenerator(String saveName, ServerWorldData worldData, MacroData macroData, PregenCheckpoint checkpoint, boolean pregenFluids, int threadCount){
+        if(threadCount < 1){
+            throw new Error("Invalid number of pregen threads! " + threadCount);
+        }
+        this.saveName = saveName;
+        this.worldData = worldData;
+        this.macroData = macroData;
+        this.checkpoint = checkpoint;
+        this.pregenFluids = pregenFluids;
+        this.threadCount = threadCount;
+        this.curveWidth = WorldPregenerator.getCurveWidth(checkpoint.getWidth(), checkpoint.getDepth());
+    }
+
+    /**
+     * Pre-generates a square of columns around the center of the world, resuming a previous run of the same region if there is one
+     * @param saveName The name of the save
+     * @param worldData The world data to generate
+     * @param macroData The macro data of the world
+     * @param radius The radius of the square in chunks
+     * @param pregenFluids true to generate fluid chunks too
+     * @return The pregenerator after it has run
+     */
+    public static WorldPregenerator pregenerateAroundCenter(String saveName, ServerWorldData worldData, MacroData macroData, int radius, boolean pregenFluids){
+        int worldSize = worldData.getWorldSizeDiscrete();
+        int center = worldSize / 2;
+        PregenCheckpoint region = new PregenCheckpoint(
+            Math.max(0, center - radius),
+            Math.max(0, center - radius),
+            Math.min(worldSize - 1, center + radius),
+            Math.min(worldSize - 1, center + radius),
+            0,
+            worldSize
+        );
+        WorldPregenerator rVal = new WorldPregenerator(
+            saveName,
+            worldData,
+            macroData,
+            WorldPregenerator.loadCheckpoint(saveName, region),
+            pregenFluids,
+            Runtime.getRuntime().availableProcessors()
+        );
+        rVal.run();
+        return rVal;
+    }
+
+    /**
+     * Loads the checkpoint of a previous run of a region
+     * @param saveName The name of the save
+     * @param region The region
+     * @return The checkpoint of the previous run if it covered the same region, otherwise the region itself
+     */
+    public static PregenCheckpoint loadCheckpoint(String saveName, PregenCheckpoint region){
+        if(!FileUtils.checkSavePathExists(saveName, CHECKPOINT_FILE_NAME)){
+            return region;
+        }
+        PregenCheckpoint previous = FileUtils.loadObjectFromSavePath(saveName, CHECKPOINT_FILE_NAME, PregenCheckpoint.class);
+        if(previous == null || !previous.sameRegion(region)){
+            LoggerInterface.loggerEngine.WARNING("Pregen checkpoint is for a different region, starting over");
+            return region;
+        }
+        LoggerInterface.loggerEngine.INFO("Resuming pregen from curve index " + previous.nextIndex);
+        return previous;
+    }
+
+    /**
+     * Runs the pre-generation. Blocks until every column in the region is on disk.
+     */
+    public void run(){
+        if(checkpoint.complete){
+            LoggerInterface.loggerEngine.INFO("Pregen region is already complete");
+            return;
+        }
+        this.startTime = System.nanoTime();
+        long curveLength = (long)curveWidth * curveWidth;
+        int maxInFlight = threadCount * COLUMNS_PER_THREAD;
+        Semaphore permits = new Semaphore(maxInFlight);
+        ExecutorService executorService = Globals.engineState.threadManager.requestFixedThreadPool(threadCount);
+        for(long index = checkpoint.nextIndex; index < curveLength; index++){
+            int worldX = checkpoint.minX + WorldPregenerator.decodeX(index);
+            int worldZ = checkpoint.minZ + WorldPregenerator.decodeZ(index);
+            if(worldX > checkpoint.maxX || worldZ > checkpoint.maxZ){
+                continue;
+            }
+            //bounds the number of chunks held in memory
+            permits.acquireUninterruptibly();
+            long columnIndex = index;
+            lock.lock();
+            inFlight.add(columnIndex);
+            submittedIndex = columnIndex + 1;
+            lock.unlock();
+            executorService.submit(() -> {
+                boolean succeeded = false;
+                try {
+                    this.generateColumn(worldX, worldZ);
+                    succeeded = true;
+                } catch(Throwable e){
+                    LoggerInterface.loggerEngine.ERROR("Failed to pregen column " + worldX + " " + worldZ, e);
+                } finally {
+                    this.finishColumn(columnIndex, succeeded);
+                    permits.release();
+                }
+            });
+        }
+        //wait for the last columns to finish
+        permits.acquireUninterruptibly(maxInFlight);
+        executorService.shutdown();
+        this.runTime = System.nanoTime() - this.startTime;
+        lock.lock();
+        submittedIndex = curveLength;
+        checkpoint.complete = firstFailedIndex == Long.MAX_VALUE;
+        this.writeCheckpoint();
+        lock.unlock();
+        LoggerInterface.loggerEngine.INFO(
+            "Finished pregen of " + chunkCount.sum() + " chunks in " + (runTime / 1000000) + "ms " +
+            "(" + (int)this.getChunksPerSecond() + " chunks/sec, " + deferredCount.sum() + " deferred to on-demand generation)"
+        );
+        if(!checkpoint.complete){
+            LoggerInterface.loggerEngine.WARNING("Pregen had failures, run it again to retry from curve index " + checkpoint.nextIndex);
+        }
+    }
+
+    /**
+     * Generates a column of chunks
+     * @param worldX The world x coordinate of the column
+     * @param worldZ The world z coordinate of the column
+     */
+    void generateColumn(int worldX, int worldZ){
+        int topObjectY = this.getTopObjectY(worldX, worldZ);
+        for(int worldY = checkpoint.minY; worldY < checkpoint.maxY; worldY++){
+            //chunks that a previous run already wrote are loaded, not counted
+            boolean hadTerrain = worldData.getServerTerrainManager().hasChunk(worldX, worldY, worldZ);
+            ServerTerrainChunk terrainChunk = worldData.getServerTerrainManager().pregenerate(worldX, worldY, worldZ);
+            if(terrainChunk == null){
+                deferredCount.increment();
+            } else if(pregenFluids){
+                worldData.getServerFluidManager().pregenerate(terrainChunk);
+            }
+            if(!worldData.getServerBlockManager().pregenerate(worldX, worldY, worldZ)){
+                deferredCount.increment();
+            }
+            if(terrainChunk != null && !hadTerrain){
+                chunkCount.increment();
+            }
+            if(worldY > topObjectY && terrainChunk != null && terrainChunk.getHomogenousValue() == ServerTerrainChunk.VOXEL_TYPE_AIR){
+                //open sky from here up
+                break;
+            }
+        }
+    }
+
+    /**
+     * Gets the highest chunk in a column that a macro object reaches into
+     * @param worldX The world x coordinate of the column
+     * @param worldZ The world z coordinate of the column
+     * @return The y coordinate of the chunk, or one below the region if no object is in the column
+     */
+    int getTopObjectY(int worldX, int worldZ){
+        int rVal = checkpoint.minY - 1;
+        if(macroData == null){
+            return rVal;
+        }
+        AABBd columnAABB = new AABBd(
+            ServerWorldData.convertChunkToRealSpace(worldX, checkpoint.minY, worldZ),
+            ServerWorldData.convertChunkToRealSpace(worldX + 1, checkpoint.maxY, worldZ + 1)
+        );
+        for(MacroObject object : macroData.getSpatialIndex().getIntersecting(columnAABB)){
+            double top = 0;
+            if(object instanceof MacroAreaObject areaObj){
+                top = areaObj.getAABB().maxY;
+            } else {
+                top = object.getPos().y;
+            }
+            rVal = Math.max(rVal, ServerWorldData.convertRealToChunkSpace(top));
+        }
+        return rVal;
+    }
+
+    /**
+     * Records that a column has finished and checkpoints if enough columns have finished since the last checkpoint
+     * @param index The curve index of the column
+     * @param succeeded true if the column was written to disk, false if it failed
+     */
+    void finishColumn(long index, boolean succeeded){
+        lock.lock();
+        inFlight.remove(index);
+        if(!succeeded){
+            firstFailedIndex = Math.min(firstFailedIndex, index);
+        }
+        columnsSinceCheckpoint++;
+        if(columnsSinceCheckpoint >= CHECKPOINT_INTERVAL){
+            this.writeCheckpoint();
+            LoggerInterface.loggerEngine.INFO(
+                "Pregen at curve index " + checkpoint.nextIndex + "/" + ((long)curveWidth * curveWidth) + ", " +
+                chunkCount.sum() + " chunks, " + (int)this.getChunksPerSecond() + " chunks/sec"
+            );
+        }
+        lock.unlock();
+    }
+
+    /**
+     * Flushes the disk maps and then saves the checkpoint, so that the checkpoint never gets ahead of the data on disk.
+     * Must be called while holding the lock.
+     */
+    void writeCheckpoint(){
+        columnsSinceCheckpoint = 0;
+        long nextIndex = submittedIndex;
+        if(!inFlight.isEmpty()){
+            nextIndex = inFlight.first();
+        }
+        nextIndex = Math.min(nextIndex, firstFailedIndex);
+        checkpoint.nextIndex = Math.max(checkpoint.nextIndex, nextIndex);
+        worldData.getServerTerrainManager().saveDiskMap();
+        worldData.getServerBlockManager().saveDiskMap();
+        if(pregenFluids){
+            worldData.getServerFluidManager().saveDiskMap();
+        }
+        FileUtils.serializeObjectToSavePath(saveName, CHECKPOINT_FILE_NAME, checkpoint);
+    }
+
+    /**
+     * Gets the number of chunks generated by this run
+     * @return The number of chunks
+     */
+    public long getChunkCount(){
+        return chunkCount.sum();
+    }
+
+    /**
+     * Gets the number of chunks left for on-demand generation
+     * @return The number of chunks
+     */
+    public long getDeferredCount(){
+        return deferredCount.sum();
+    }
+
+    /**
+     * Gets the generation rate
+     * @return The rate in chunks per second
+     */
+    public double getChunksPerSecond(){
+        long elapsed = runTime;
+        if(elapsed == 0){
+            elapsed = System.nanoTime() - startTime;
+        }
+        if(elapsed <= 0){
+            return 0;
+        }
+        return chunkCount.sum() / (elapsed / 1000000000.0);
+    }
+
+    /**
+     * Gets the checkpoint
+     * @return The checkpoint
+     */
+    public PregenCheckpoint getCheckpoint(){
+        return checkpoint;
+    }
+
+    /**
+     * Gets the width of the square a curve must cover to contain a region
+     * @param width The width of the region
+     * @param depth The depth of the region
+     * @return The width of the square, a power of two
+     */
+    static int getCurveWidth(int width, int depth){
+        int rVal = 1;
+        while(rVal < width || rVal < depth){
+            rVal = rVal * 2;
+        }
+        return rVal;
+    }
+
+    /**
+     * Gets the curve index of an offset into the region
+     * @param x The x offset
+     * @param z The z offset
+     * @return The curve index
+     */
+    static long encode(int x, int z){
+        return WorldPregenerator.spreadBits(x) | (WorldPregenerator.spreadBits(z) << 1);
+    }
+
+    /**
+     * Gets the x offset into the region of a curve index
+     * @param index The curve index
+     * @return The x offset
+     */
+    static int decodeX(long index){
+        return WorldPregenerator.compactBits(index);
+    }
+
+    /**
+     * Gets the z offset into the region of a curve index
+     * @param index The curve index
+     * @return The z offset
+     */
+    static int decodeZ(long index){
+        return WorldPregenerator.compactBits(index >>> 1);
+    }
+
+    /**
+     * Spreads the bits of a value out so that there is an empty bit between each one
+     * @param value The value
+     * @return The spread value
+     */
+    private static long spreadBits(int value){
+        long rVal = value & 0xFFFFFFFFL;
+        rVal = (rVal | (rVal << 16)) & 0x0000FFFF0000FFFFL;
+        rVal = (rVal | (rVal << 8)) & 0x00FF00FF00FF00FFL;
+        rVal = (rVal | (rVal << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        rVal = (rVal | (rVal << 2)) & 0x3333333333333333L;
+        rVal = (rVal | (rVal << 1)) & 0x5555555555555555L;
+        return rVal;
+    }
+
+    /**
+     * Gathers every other bit of a value back together, undoing spreadBits
+     * @param value The value
+     * @return The compacted value
+     */
+    private static int compactBits(long value){
+        long rVal = value & 0x5555555555555555L;
+        rVal = (rVal | (rVal >>> 1)) & 0x3333333333333333L;
+        rVal = (rVal | (rVal >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+        rVal = (rVal | (rVal >>> 4)) & 0x00FF00FF00FF00FFL;
+        rVal = (rVal | (rVal >>> 8)) & 0x0000FFFF0000FFFFL;
+        rVal = (rVal | (rVal >>> 16)) & 0x00000000FFFFFFFFL;
+        return (int)rVal;
+    }
+
+}
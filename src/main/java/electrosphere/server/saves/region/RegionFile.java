@@ -0,0 +1,409 @@
+package electrosphere.server.saves.region;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A single region file that packs REGION_DIM^3 chunks into one file on disk.
+ * <p>
+ * Layout:
+ * <pre>
+ * [header: REGION_CHUNK_COUNT x int] [sector] [sector] ...
+ * </pre>
+ * Each header entry stores (sector offset &lt;&lt; 8 | sector count), or 0 if the chunk is not present.
+ * Each chunk payload starts with an int byte length followed by the payload bytes, padded out to whole sectors.
+ * </p>
+ * <p>
+ * Payloads are never overwritten in place. A rewrite goes to the first free run of sectors that fits and only the in-memory header entry is switched over.
+ * flush() then makes the changes durable in order: it forces the payloads, writes the changed header entries, forces them, and only then releases the old sectors
+ * for reuse. A crash at any point leaves the on-disk header pointing at payloads that were fully written and have not been reused, so each chunk
+ * comes back as it was at either the last or the current flush. Changes made since the last flush are lost on a crash.
+ * Only the changed header entries are written back, so the index never needs to be rewritten whole.
+ * Reads are positional reads on the channel, so files of any size can be read and nothing keeps the file mapped after it is closed.
+ * </p>
+ */
+public class RegionFile {
+
+    /**
+     * Number of chunks along each axis of a region
+     */
+    public static final int REGION_DIM = 32;
+
+    /**
+     * Number of chunks in a region
+     */
+    public static final int REGION_CHUNK_COUNT = REGION_DIM * REGION_DIM * REGION_DIM;
+
+    /**
+     * Size of a sector in bytes
+     */
+    public static final int SECTOR_SIZE = 4096;
+
+    /**
+     * Size of the header in bytes
+     */
+    static final int HEADER_SIZE = REGION_CHUNK_COUNT * 4;
+
+    /**
+     * Number of sectors the header occupies
+     */
+    static final int HEADER_SECTORS = HEADER_SIZE / SECTOR_SIZE;
+
+    /**
+     * Max number of sectors a single chunk can occupy (limited by the header encoding)
+     */
+    public static final int MAX_CHUNK_SECTORS = 255;
+
+    /**
+     * Size of the length prefix on each chunk payload
+     */
+    static final int LENGTH_PREFIX_SIZE = 4;
+
+    /**
+     * The channel for the file
+     */
+    FileChannel channel;
+
+    /**
+     * In-memory copy of the header
+     */
+    int[] offsets = new int[REGION_CHUNK_COUNT];
+
+    /**
+     * Tracks which sectors are in use
+     */
+    BitSet usedSectors = new BitSet();
+
+    /**
+     * The total number of sectors in the file
+     */
+    int sectorCount;
+
+    /**
+     * The header entries that changed since the last flush
+     */
+    BitSet dirtyEntries = new BitSet();
+
+    /**
+     * The old header entries whose sectors are released once the header no longer pointing at them is durable
+     */
+    List<Integer> pendingFree = new LinkedList<Integer>();
+
+    /**
+     * Buffer for reading a single length prefix
+     */
+    ByteBuffer lengthPrefixBuffer = ByteBuffer.allocate(LENGTH_PREFIX_SIZE);
+
+    /**
+     * Buffer for writing a single header entry
+     */
+    ByteBuffer headerEntryBuffer = ByteBuffer.allocate(4);
+
+    /**
+     * Lock for thread safety
+     */
+    ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Opens (or creates) a region file
+     * @param file The file
+     * @throws IOException Thrown if the file cannot be opened
+     */
+    public RegionFile(File file) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if(channel.size() < HEADER_SIZE){
+            //new file, write an empty header
+            ByteBuffer emptyHeader = ByteBuffer.allocate(HEADER_SIZE);
+            channel.write(emptyHeader, 0);
+        }
+        //read the header
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        int read = 0;
+        while(read < HEADER_SIZE){
+            int bytes = channel.read(header, read);
+            if(bytes < 0){
+                throw new IOException("Truncated region file header! " + file);
+            }
+            read = read + bytes;
+        }
+        header.flip();
+        header.asIntBuffer().get(offsets);
+        //rebuild the free sector map
+        this.sectorCount = (int)((channel.size() + SECTOR_SIZE - 1) / SECTOR_SIZE);
+        usedSectors.set(0, HEADER_SECTORS);
+        for(int i = 0; i < REGION_CHUNK_COUNT; i++){
+            if(offsets[i] != 0){
+                int sectorOffset = RegionFile.getSectorOffset(offsets[i]);
+                int sectorLength = RegionFile.getSectorLength(offsets[i]);
+                if(sectorOffset + sectorLength > sectorCount){
+                    //entry points past the end of the file (ie a crash mid-write), drop it
+                    offsets[i] = 0;
+                } else {
+                    usedSectors.set(sectorOffset, sectorOffset + sectorLength);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks if the region contains a chunk
+     * @param localX The x coordinate of the chunk within the region
+     * @param localY The y coordinate of the chunk within the region
+     * @param localZ The z coordinate of the chunk within the region
+     * @return true if the chunk is present, false otherwise
+     */
+    public boolean contains(int localX, int localY, int localZ){
+        lock.lock();
+        boolean rVal = offsets[RegionFile.getIndex(localX, localY, localZ)] != 0;
+        lock.unlock();
+        return rVal;
+    }
+
+    /**
+     * Reads a chunk from the region
+     * @param localX The x coordinate of the chunk within the region
+     * @param localY The y coordinate of the chunk within the region
+     * @param localZ The z coordinate of the chunk within the region
+     * @return The chunk's payload, or null if it is not present
+     * @throws IOException Thrown if the file cannot be read
+     */
+    public byte[] read(int localX, int localY, int localZ) throws IOException {
+        lock.lock();
+        try {
+            int entry = offsets[RegionFile.getIndex(localX, localY, localZ)];
+            if(entry == 0){
+                return null;
+            }
+            long start = (long)RegionFile.getSectorOffset(entry) * SECTOR_SIZE;
+            lengthPrefixBuffer.clear();
+            this.readFully(lengthPrefixBuffer, start);
+            int length = lengthPrefixBuffer.getInt(0);
+            if(length < 0 || length > RegionFile.getSectorLength(entry) * SECTOR_SIZE - LENGTH_PREFIX_SIZE){
+                throw new IOException("Corrupt region file entry! " + localX + " " + localY + " " + localZ);
+            }
+            byte[] rVal = new byte[length];
+            this.readFully(ByteBuffer.wrap(rVal), start + LENGTH_PREFIX_SIZE);
+            return rVal;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes a chunk to the region
+     * @param localX The x coordinate of the chunk within the region
+     * @param localY The y coordinate of the chunk within the region
+     * @param localZ The z coordinate of the chunk within the region
+     * @param data The chunk's payload
+     * @throws IOException Thrown if the file cannot be written
+     */
+    public void write(int localX, int localY, int localZ, byte[] data) throws IOException {
+        int sectorsNeeded = (data.length + LENGTH_PREFIX_SIZE + SECTOR_SIZE - 1) / SECTOR_SIZE;
+        if(sectorsNeeded > MAX_CHUNK_SECTORS){
+            throw new IOException("Chunk payload too large for region file! " + data.length);
+        }
+        lock.lock();
+        try {
+            int index = RegionFile.getIndex(localX, localY, localZ);
+            int oldEntry = offsets[index];
+
+            //the old sectors stay reserved until the header that no longer points at them is on disk
+            int sectorOffset = this.findFreeRun(sectorsNeeded);
+            usedSectors.set(sectorOffset, sectorOffset + sectorsNeeded);
+
+            //write payload
+            ByteBuffer payload = ByteBuffer.allocate(sectorsNeeded * SECTOR_SIZE);
+            payload.putInt(data.length);
+            payload.put(data);
+            payload.position(0);
+            long writePos = (long)sectorOffset * SECTOR_SIZE;
+            while(payload.hasRemaining()){
+                writePos = writePos + channel.write(payload, writePos);
+            }
+            if(sectorOffset + sectorsNeeded > sectorCount){
+                sectorCount = sectorOffset + sectorsNeeded;
+            }
+
+            //switch the header entry over to the new payload, the on-disk entry is written on flush
+            offsets[index] = RegionFile.packEntry(sectorOffset, sectorsNeeded);
+            dirtyEntries.set(index);
+            if(oldEntry != 0){
+                pendingFree.add(oldEntry);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a chunk from the region. Its sectors are released on the next flush.
+     * @param localX The x coordinate of the chunk within the region
+     * @param localY The y coordinate of the chunk within the region
+     * @param localZ The z coordinate of the chunk within the region
+     * @return true if the chunk was present, false otherwise
+     */
+    public boolean remove(int localX, int localY, int localZ){
+        lock.lock();
+        try {
+            int index = RegionFile.getIndex(localX, localY, localZ);
+            int entry = offsets[index];
+            if(entry == 0){
+                return false;
+            }
+            offsets[index] = 0;
+            dirtyEntries.set(index);
+            pendingFree.add(entry);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of chunks stored in the region
+     * @return The number of chunks
+     */
+    public int getChunkCount(){
+        lock.lock();
+        int rVal = 0;
+        for(int entry : offsets){
+            if(entry != 0){
+                rVal++;
+            }
+        }
+        lock.unlock();
+        return rVal;
+    }
+
+    /**
+     * Makes every change since the last flush durable, then releases the sectors of payloads that were replaced or removed
+     * @throws IOException Thrown if the channel cannot be written or forced
+     */
+    public void flush() throws IOException {
+        lock.lock();
+        try {
+            //the payloads must be on disk before any header entry points at them
+            channel.force(false);
+            if(dirtyEntries.isEmpty()){
+                return;
+            }
+            for(int index = dirtyEntries.nextSetBit(0); index >= 0; index = dirtyEntries.nextSetBit(index + 1)){
+                headerEntryBuffer.clear();
+                headerEntryBuffer.putInt(offsets[index]);
+                headerEntryBuffer.flip();
+                channel.write(headerEntryBuffer, (long)index * 4);
+            }
+            //the header must be on disk before the sectors it stopped pointing at can be reused
+            channel.force(false);
+            dirtyEntries.clear();
+            for(int oldEntry : pendingFree){
+                int oldOffset = RegionFile.getSectorOffset(oldEntry);
+                usedSectors.clear(oldOffset, oldOffset + RegionFile.getSectorLength(oldEntry));
+            }
+            pendingFree.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Flushes and closes the region file
+     * @throws IOException Thrown if the channel cannot be flushed or closed
+     */
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            this.flush();
+        } finally {
+            channel.close();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads from the channel until the buffer is full
+     * @param buffer The buffer to fill
+     * @param position The position in the file to start reading from
+     * @throws IOException Thrown if the file ends before the buffer is full
+     */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()){
+            int bytes = channel.read(buffer, position);
+            if(bytes < 0){
+                throw new IOException("Region file entry runs past the end of the file!");
+            }
+            position = position + bytes;
+        }
+    }
+
+    /**
+     * Finds the first run of free sectors that is large enough. Appends to the end of the file if none is found.
+     * @param length The number of sectors required
+     * @return The offset of the first sector in the run
+     */
+    private int findFreeRun(int length){
+        int candidate = usedSectors.nextClearBit(HEADER_SECTORS);
+        while(candidate < sectorCount){
+            int nextUsed = usedSectors.nextSetBit(candidate);
+            if(nextUsed < 0 || nextUsed >= sectorCount){
+                //the run extends to the end of the file
+                return candidate;
+            }
+            if(nextUsed - candidate >= length){
+                return candidate;
+            }
+            candidate = usedSectors.nextClearBit(nextUsed);
+        }
+        return sectorCount;
+    }
+
+    /**
+     * Gets the header index for a chunk
+     * @param localX The x coordinate of the chunk within the region
+     * @param localY The y coordinate of the chunk within the region
+     * @param localZ The z coordinate of the chunk within the region
+     * @return The index
+     */
+    static int getIndex(int localX, int localY, int localZ){
+        if(localX < 0 || localX >= REGION_DIM || localY < 0 || localY >= REGION_DIM || localZ < 0 || localZ >= REGION_DIM){
+            throw new Error("Local position outside of region! " + localX + " " + localY + " " + localZ);
+        }
+        return localX * REGION_DIM * REGION_DIM + localY * REGION_DIM + localZ;
+    }
+
+    /**
+     * Packs a header entry
+     * @param sectorOffset The sector offset
+     * @param sectorLength The sector count
+     * @return The entry
+     */
+    static int packEntry(int sectorOffset, int sectorLength){
+        return (sectorOffset << 8) | (sectorLength & 0xFF);
+    }
+
+    /**
+     * Gets the sector offset from a header entry
+     * @param entry The entry
+     * @return The sector offset
+     */
+    static int getSectorOffset(int entry){
+        return entry >>> 8;
+    }
+
+    /**
+     * Gets the sector count from a header entry
+     * @param entry The entry
+     * @return The sector count
+     */
+    static int getSectorLength(int entry){
+        return entry & 0xFF;
+    }
+
+}
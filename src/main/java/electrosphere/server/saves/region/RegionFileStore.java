@@ -0,0 +1,213 @@
+package electrosphere.server.saves.region;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import electrosphere.logger.LoggerInterface;
+
+/**
+ * A directory of region files. Maps world chunk positions to the region file + local slot that stores them.
+ */
+public class RegionFileStore {
+
+    /**
+     * Number of bits each region coordinate takes up in a region key
+     */
+    static final int REGION_KEY_BITS = 21;
+
+    /**
+     * Mask for a single region coordinate in a region key
+     */
+    static final long REGION_KEY_MASK = (1L << REGION_KEY_BITS) - 1;
+
+    /**
+     * The directory containing the region files
+     */
+    File directory;
+
+    /**
+     * The extension of files in this store
+     */
+    String extension;
+
+    /**
+     * The open region files, keyed by region position
+     */
+    Map<Long,RegionFile> openRegions = new HashMap<Long,RegionFile>();
+
+    /**
+     * Lock for thread safety
+     */
+    ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Constructor
+     * @param directory The directory containing the region files
+     * @param extension The extension of files in this store (ie ".tr")
+     */
+    public RegionFileStore(File directory, String extension){
+        this.directory = directory;
+        this.extension = extension;
+        if(!directory.exists()){
+            directory.mkdirs();
+        }
+    }
+
+    /**
+     * Checks if the store contains a chunk
+     * @param worldX The world x coordinate of the chunk
+     * @param worldY The world y coordinate of the chunk
+     * @param worldZ The world z coordinate of the chunk
+     * @return true if the chunk is stored, false otherwise
+     */
+    public boolean contains(int worldX, int worldY, int worldZ){
+        RegionFile region = this.getRegion(worldX, worldY, worldZ, false);
+        if(region == null){
+            return false;
+        }
+        return region.contains(RegionFileStore.toLocal(worldX), RegionFileStore.toLocal(worldY), RegionFileStore.toLocal(worldZ));
+    }
+
+    /**
+     * Reads a chunk's payload
+     * @param worldX The world x coordinate of the chunk
+     * @param worldY The world y coordinate of the chunk
+     * @param worldZ The world z coordinate of the chunk
+     * @return The payload, or null if the chunk is not stored
+     */
+    public byte[] read(int worldX, int worldY, int worldZ){
+        RegionFile region = this.getRegion(worldX, worldY, worldZ, false);
+        if(region == null){
+            return null;
+        }
+        try {
+            return region.read(RegionFileStore.toLocal(worldX), RegionFileStore.toLocal(worldY), RegionFileStore.toLocal(worldZ));
+        } catch (IOException e){
+            LoggerInterface.loggerFileIO.ERROR(e);
+        }
+        return null;
+    }
+
+    /**
+     * Writes a chunk's payload
+     * @param worldX The world x coordinate of the chunk
+     * @param worldY The world y coordinate of the chunk
+     * @param worldZ The world z coordinate of the chunk
+     * @param data The payload
+     */
+    public void write(int worldX, int worldY, int worldZ, byte[] data){
+        RegionFile region = this.getRegion(worldX, worldY, worldZ, true);
+        if(region == null){
+            return;
+        }
+        try {
+            region.write(RegionFileStore.toLocal(worldX), RegionFileStore.toLocal(worldY), RegionFileStore.toLocal(worldZ), data);
+        } catch (IOException e){
+            LoggerInterface.loggerFileIO.ERROR(e);
+        }
+    }
+
+    /**
+     * Removes a chunk's payload
+     * @param worldX The world x coordinate of the chunk
+     * @param worldY The world y coordinate of the chunk
+     * @param worldZ The world z coordinate of the chunk
+     * @return true if the chunk was stored, false otherwise
+     */
+    public boolean remove(int worldX, int worldY, int worldZ){
+        RegionFile region = this.getRegion(worldX, worldY, worldZ, false);
+        if(region == null){
+            return false;
+        }
+        return region.remove(RegionFileStore.toLocal(worldX), RegionFileStore.toLocal(worldY), RegionFileStore.toLocal(worldZ));
+    }
+
+    /**
+     * Flushes all open region files to the storage device
+     */
+    public void flush(){
+        lock.lock();
+        for(RegionFile region : openRegions.values()){
+            try {
+                region.flush();
+            } catch (IOException e){
+                LoggerInterface.loggerFileIO.ERROR(e);
+            }
+        }
+        lock.unlock();
+    }
+
+    /**
+     * Closes all open region files
+     */
+    public void close(){
+        lock.lock();
+        for(RegionFile region : openRegions.values()){
+            try {
+                region.close();
+            } catch (IOException e){
+                LoggerInterface.loggerFileIO.ERROR(e);
+            }
+        }
+        openRegions.clear();
+        lock.unlock();
+    }
+
+    /**
+     * Gets the region file that holds a chunk
+     * @param worldX The world x coordinate of the chunk
+     * @param worldY The world y coordinate of the chunk
+     * @param worldZ The world z coordinate of the chunk
+     * @param create true to create the region file if it does not exist
+     * @return The region file, or null if it does not exist and create is false
+     */
+    private RegionFile getRegion(int worldX, int worldY, int worldZ, boolean create){
+        int regionX = Math.floorDiv(worldX, RegionFile.REGION_DIM);
+        int regionY = Math.floorDiv(worldY, RegionFile.REGION_DIM);
+        int regionZ = Math.floorDiv(worldZ, RegionFile.REGION_DIM);
+        long key = RegionFileStore.getRegionKey(regionX, regionY, regionZ);
+        lock.lock();
+        RegionFile rVal = openRegions.get(key);
+        if(rVal == null){
+            File file = new File(directory, "r." + regionX + "." + regionY + "." + regionZ + extension);
+            if(create || file.exists()){
+                try {
+                    rVal = new RegionFile(file);
+                    openRegions.put(key, rVal);
+                } catch (IOException e){
+                    LoggerInterface.loggerFileIO.ERROR(e);
+                }
+            }
+        }
+        lock.unlock();
+        return rVal;
+    }
+
+    /**
+     * Converts a world coordinate to a coordinate local to its region
+     * @param world The world coordinate
+     * @return The local coordinate
+     */
+    private static int toLocal(int world){
+        return Math.floorMod(world, RegionFile.REGION_DIM);
+    }
+
+    /**
+     * Gets the key of a region in the open region map. Unlike HashUtils.hashIVec, this accepts negative coordinates.
+     * @param regionX The x coordinate of the region
+     * @param regionY The y coordinate of the region
+     * @param regionZ The z coordinate of the region
+     * @return The key
+     */
+    private static long getRegionKey(int regionX, int regionY, int regionZ){
+        return
+            ((long)regionX & REGION_KEY_MASK) |
+            (((long)regionY & REGION_KEY_MASK) << REGION_KEY_BITS) |
+            (((long)regionZ & REGION_KEY_MASK) << (REGION_KEY_BITS * 2))
+        ;
+    }
+
+}
@@ -0,0 +1,18 @@
+package electrosphere.server.saves.region;
+
+/**
+ * The on-disk layout used by a save's chunk disk maps
+ */
+public enum StorageFormat {
+
+    /**
+     * One deflated file per chunk, with a json map from chunk key to file name
+     */
+    FILE_PER_CHUNK,
+
+    /**
+     * Chunks packed into region files with an offset table
+     */
+    REGION,
+
+}
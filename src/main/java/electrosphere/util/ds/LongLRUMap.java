@@ -0,0 +1,378 @@
+package electrosphere.util.ds;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * A fixed-capacity least-recently-used map keyed by primitive longs.
+ * <p>
+ * Lookups go through an open-addressing index table and recency is tracked with an intrusive doubly-linked list over slot indices,
+ * so get/put/remove/evict are all O(1) and no boxing happens on the hot path.
+ * </p>
+ * <p>
+ * NOT thread safe. Callers are expected to guard access (ie via lock striping).
+ * </p>
+ */
+public class LongLRUMap<T> {
+
+    /**
+     * Callback fired when an entry is evicted to make room for a new one
+     */
+    public static interface EvictionCallback<T> {
+        /**
+         * Called when an entry is evicted
+         * @param key The key of the evicted entry
+         * @param value The value of the evicted entry
+         */
+        public void onEvict(long key, T value);
+    }
+
+    /**
+     * Sentinel for "no slot"
+     */
+    static final int NIL = -1;
+
+    /**
+     * The maximum number of entries
+     */
+    final int capacity;
+
+    /**
+     * The index table. Stores slot index + 1, 0 means empty
+     */
+    final int[] table;
+
+    /**
+     * Mask for wrapping indices into the table
+     */
+    final int tableMask;
+
+    /**
+     * The key stored in each slot
+     */
+    final long[] keys;
+
+    /**
+     * The value stored in each slot
+     */
+    final Object[] values;
+
+    /**
+     * The previous (more recent) slot in the recency list
+     */
+    final int[] prev;
+
+    /**
+     * The next (less recent) slot in the recency list. Doubles as the free list link for unused slots
+     */
+    final int[] next;
+
+    /**
+     * The most recently used slot
+     */
+    int head = NIL;
+
+    /**
+     * The least recently used slot
+     */
+    int tail = NIL;
+
+    /**
+     * The head of the free slot list
+     */
+    int freeHead;
+
+    /**
+     * The number of entries in the map
+     */
+    int size = 0;
+
+    /**
+     * The callback fired on eviction
+     */
+    EvictionCallback<T> evictionCallback;
+
+    /**
+     * Constructor
+     * @param capacity The maximum number of entries held by the map
+     * @param evictionCallback The callback fired when an entry is evicted (may be null)
+     */
+    public LongLRUMap(int capacity, EvictionCallback<T> evictionCallback){
+        if(capacity < 1){
+            throw new IllegalArgumentException("Capacity must be positive! " + capacity);
+        }
+        this.capacity = capacity;
+        this.evictionCallback = evictionCallback;
+        //keep the load factor at or below 0.5 so probe chains stay short
+        int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        this.table = new int[tableSize];
+        this.tableMask = tableSize - 1;
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.prev = new int[capacity];
+        this.next = new int[capacity];
+        this.resetFreeList();
+    }
+
+    /**
+     * Gets the value for a key, marking it as most recently used
+     * @param key The key
+     * @return The value if it is present, null otherwise
+     */
+    @SuppressWarnings("unchecked")
+    public T get(long key){
+        int slot = this.findSlot(key);
+        if(slot == NIL){
+            return null;
+        }
+        this.moveToFront(slot);
+        return (T)values[slot];
+    }
+
+    /**
+     * Gets the value for a key without affecting recency
+     * @param key The key
+     * @return The value if it is present, null otherwise
+     */
+    @SuppressWarnings("unchecked")
+    public T peek(long key){
+        int slot = this.findSlot(key);
+        if(slot == NIL){
+            return null;
+        }
+        return (T)values[slot];
+    }
+
+    /**
+     * Checks if the map contains a key. Does not affect recency
+     * @param key The key
+     * @return true if the key is present, false otherwise
+     */
+    public boolean containsKey(long key){
+        return this.findSlot(key) != NIL;
+    }
+
+    /**
+     * Puts a value in the map, marking it as most recently used. Evicts the least recently used entry if the map is full.
+     * @param key The key
+     * @param value The value
+     */
+    public void put(long key, T value){
+        int slot = this.findSlot(key);
+        if(slot != NIL){
+            values[slot] = value;
+            this.moveToFront(slot);
+            return;
+        }
+        if(size >= capacity){
+            this.evictTail();
+        }
+        //pop a free slot
+        slot = freeHead;
+        freeHead = next[slot];
+        keys[slot] = key;
+        values[slot] = value;
+        //link into recency list
+        prev[slot] = NIL;
+        next[slot] = head;
+        if(head != NIL){
+            prev[head] = slot;
+        }
+        head = slot;
+        if(tail == NIL){
+            tail = slot;
+        }
+        //insert into index
+        int index = LongLRUMap.mix(key) & tableMask;
+        while(table[index] != 0){
+            index = (index + 1) & tableMask;
+        }
+        table[index] = slot + 1;
+        size++;
+    }
+
+    /**
+     * Removes a key from the map. Does not fire the eviction callback.
+     * @param key The key
+     * @return The value that was removed, or null if the key was not present
+     */
+    @SuppressWarnings("unchecked")
+    public T remove(long key){
+        int slot = this.findSlot(key);
+        if(slot == NIL){
+            return null;
+        }
+        T rVal = (T)values[slot];
+        this.removeSlot(slot);
+        return rVal;
+    }
+
+    /**
+     * Clears the map. Does not fire the eviction callback.
+     */
+    public void clear(){
+        Arrays.fill(table, 0);
+        Arrays.fill(values, null);
+        head = NIL;
+        tail = NIL;
+        size = 0;
+        this.resetFreeList();
+    }
+
+    /**
+     * Visits every value in the map, from most to least recently used
+     * @param consumer The consumer
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<T> consumer){
+        int slot = head;
+        while(slot != NIL){
+            consumer.accept((T)values[slot]);
+            slot = next[slot];
+        }
+    }
+
+    /**
+     * Gets the number of entries in the map
+     * @return The number of entries
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Gets the capacity of the map
+     * @return The capacity
+     */
+    public int getCapacity(){
+        return capacity;
+    }
+
+    /**
+     * Finds the slot holding a key
+     * @param key The key
+     * @return The slot, or NIL if the key is not present
+     */
+    private int findSlot(long key){
+        int index = LongLRUMap.mix(key) & tableMask;
+        int entry;
+        while((entry = table[index]) != 0){
+            if(keys[entry - 1] == key){
+                return entry - 1;
+            }
+            index = (index + 1) & tableMask;
+        }
+        return NIL;
+    }
+
+    /**
+     * Moves a slot to the front of the recency list
+     * @param slot The slot
+     */
+    private void moveToFront(int slot){
+        if(slot == head){
+            return;
+        }
+        //unlink
+        int p = prev[slot];
+        int n = next[slot];
+        next[p] = n;
+        if(n != NIL){
+            prev[n] = p;
+        } else {
+            tail = p;
+        }
+        //relink at head
+        prev[slot] = NIL;
+        next[slot] = head;
+        prev[head] = slot;
+        head = slot;
+    }
+
+    /**
+     * Evicts the least recently used entry
+     */
+    @SuppressWarnings("unchecked")
+    private void evictTail(){
+        int slot = tail;
+        long key = keys[slot];
+        T value = (T)values[slot];
+        this.removeSlot(slot);
+        if(evictionCallback != null){
+            evictionCallback.onEvict(key, value);
+        }
+    }
+
+    /**
+     * Removes a slot from the index and recency list and returns it to the free list
+     * @param slot The slot
+     */
+    private void removeSlot(int slot){
+        //unlink from recency list
+        int p = prev[slot];
+        int n = next[slot];
+        if(p != NIL){
+            next[p] = n;
+        } else {
+            head = n;
+        }
+        if(n != NIL){
+            prev[n] = p;
+        } else {
+            tail = p;
+        }
+
+        //remove from index with backward-shift deletion so probe chains stay intact
+        int index = LongLRUMap.mix(keys[slot]) & tableMask;
+        while(table[index] != slot + 1){
+            index = (index + 1) & tableMask;
+        }
+        int hole = index;
+        int scan = index;
+        while(true){
+            scan = (scan + 1) & tableMask;
+            int entry = table[scan];
+            if(entry == 0){
+                break;
+            }
+            int home = LongLRUMap.mix(keys[entry - 1]) & tableMask;
+            //only shift the entry back if its home position is not cyclically within (hole, scan]
+            boolean shouldShift = hole <= scan ? (home <= hole || home > scan) : (home <= hole && home > scan);
+            if(shouldShift){
+                table[hole] = entry;
+                hole = scan;
+            }
+        }
+        table[hole] = 0;
+
+        //return to free list
+        values[slot] = null;
+        next[slot] = freeHead;
+        freeHead = slot;
+        size--;
+    }
+
+    /**
+     * Puts every slot back on the free list
+     */
+    private void resetFreeList(){
+        for(int i = 0; i < capacity - 1; i++){
+            next[i] = i + 1;
+        }
+        next[capacity - 1] = NIL;
+        freeHead = 0;
+    }
+
+    /**
+     * Mixes the bits of a key so spatially adjacent keys spread across the table
+     * @param key The key
+     * @return The mixed hash
+     */
+    public static int mix(long key){
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= (h >>> 32);
+        h ^= (h >>> 16);
+        return (int)h;
+    }
+
+}
@@ -0,0 +1,188 @@
+package electrosphere.mem;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.joml.Vector3d;
+
+import electrosphere.test.annotations.BenchmarkTest;
+import electrosphere.test.annotations.UnitTest;
+
+/**
+ * Tests for the object pool
+ */
+public class ObjectPoolTests {
+
+    @UnitTest
+    public void testReleasedObjectIsReused(){
+        ObjectPool<Vector3d> pool = new ObjectPool<Vector3d>("test", Vector3d::new, (Vector3d data) -> data.zero(), 4, 4);
+        Vector3d vec = pool.get();
+        vec.set(1, 2, 3);
+        pool.release(vec);
+        Vector3d again = pool.get();
+        assertSame(vec, again);
+        assertEquals(0, again.x);
+        assertEquals(1, pool.getHitCount());
+        assertEquals(1, pool.getMissCount());
+    }
+
+    @UnitTest
+    public void testMagazinesMoveBetweenThreads() throws InterruptedException {
+        ObjectPool<int[]> pool = new ObjectPool<int[]>("test", () -> new int[1], null, 4, 8);
+        List<int[]> released = new ArrayList<int[]>();
+        Thread releaser = new Thread(() -> {
+            for(int i = 0; i < 16; i++){
+                int[] data = pool.get();
+                released.add(data);
+            }
+            for(int[] data : released){
+                pool.release(data);
+            }
+        });
+        releaser.start();
+        releaser.join();
+        //the releasing thread keeps two magazines, the rest went to the depot
+        assertEquals(8, pool.getDepotSize());
+        for(int i = 0; i < 8; i++){
+            assertTrue(released.contains(pool.get()));
+        }
+        assertEquals(0, pool.getDepotSize());
+        assertEquals(16, pool.getMissCount());
+        assertEquals(16, pool.getHighWaterMark());
+    }
+
+    @UnitTest
+    public void testFullPoolDrops(){
+        ObjectPool<int[]> pool = new ObjectPool<int[]>("test", () -> new int[1], null, 2, 1);
+        List<int[]> objects = new ArrayList<int[]>();
+        for(int i = 0; i < 10; i++){
+            objects.add(pool.get());
+        }
+        for(int[] data : objects){
+            pool.release(data);
+        }
+        //two magazines held by the thread, one in the depot
+        assertEquals(2, pool.getDepotSize());
+        assertEquals(4, pool.getDropCount());
+    }
+
+    @UnitTest
+    public void testLeakDetection(){
+        ObjectPool<int[]> pool = new ObjectPool<int[]>("test", () -> new int[1], null, 4, 4);
+        MemoryPools.setLeakDetection(true);
+        try {
+            int[] kept = pool.get();
+            int[] returned = pool.get();
+            pool.release(returned);
+            assertEquals(1, pool.getOutstandingCount());
+            pool.release(kept);
+            assertEquals(0, pool.getOutstandingCount());
+        } finally {
+            MemoryPools.setLeakDetection(false);
+        }
+        pool.get();
+        assertEquals(0, pool.getOutstandingCount());
+    }
+
+    @UnitTest
+    public void testConcurrentGetReleaseReusesObjects() throws InterruptedException {
+        int operations = 100_000;
+        for(int threadCount : new int[]{1, 4, 16}){
+            ObjectPool<Vector3d> pool = new ObjectPool<Vector3d>("concurrent", Vector3d::new, (Vector3d data) -> data.zero(), ObjectPool.DEFAULT_MAGAZINE_SIZE, 32);
+            ObjectPoolTests.run(threadCount, operations / threadCount, () -> pool.release(pool.get()));
+            assertEquals(operations / threadCount * threadCount, pool.getHitCount() + pool.getMissCount());
+            //each thread only misses on its very first get
+            assertTrue(pool.getMissCount() <= threadCount);
+        }
+    }
+
+    @BenchmarkTest
+    public void benchmarkContention() throws InterruptedException {
+        int operations = 1_000_000;
+        for(int threadCount : new int[]{1, 4, 16}){
+            ObjectPool<Vector3d> pool = new ObjectPool<Vector3d>("benchmark", Vector3d::new, (Vector3d data) -> data.zero(), ObjectPool.DEFAULT_MAGAZINE_SIZE, 32);
+            LockedPool locked = new LockedPool();
+            long lockedNanos = ObjectPoolTests.run(threadCount, operations / threadCount, () -> locked.release(locked.get()));
+            long pooledNanos = ObjectPoolTests.run(threadCount, operations / threadCount, () -> pool.release(pool.get()));
+            System.out.println(
+                "Object pool, " + threadCount + " threads on " + Runtime.getRuntime().availableProcessors() + " cores: locked list " + (lockedNanos / operations) + "ns/op, " +
+                "magazines " + (pooledNanos / operations) + "ns/op"
+            );
+        }
+    }
+
+    /**
+     * Runs an operation on a number of threads at once
+     * @param threadCount The number of threads
+     * @param iterations The number of times each thread runs the operation
+     * @param operation The operation
+     * @return The nanoseconds taken
+     */
+    static long run(int threadCount, int iterations, Runnable operation) throws InterruptedException {
+        List<Thread> threads = new ArrayList<Thread>();
+        for(int i = 0; i < threadCount; i++){
+            threads.add(new Thread(() -> {
+                for(int j = 0; j < iterations; j++){
+                    operation.run();
+                }
+            }));
+        }
+        long start = System.nanoTime();
+        for(Thread thread : threads){
+            thread.start();
+        }
+        for(Thread thread : threads){
+            thread.join();
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * The pool the mem package used before, a list behind a single lock
+     */
+    static class LockedPool {
+
+        /**
+         * The free objects
+         */
+        List<Vector3d> pool = new LinkedList<Vector3d>();
+
+        /**
+         * The lock
+         */
+        ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * Gets an object
+         * @return The object
+         */
+        Vector3d get(){
+            Vector3d rVal = null;
+            lock.lock();
+            if(pool.size() > 0){
+                rVal = pool.remove(0);
+            } else {
+                rVal = new Vector3d();
+            }
+            lock.unlock();
+            return rVal;
+        }
+
+        /**
+         * Releases an object
+         * @param data The object
+         */
+        void release(Vector3d data){
+            data.zero();
+            lock.lock();
+            pool.add(data);
+            lock.unlock();
+        }
+
+    }
+
+}
@@ -0,0 +1,157 @@
+package electrosphere.net.parser.net.message;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import electrosphere.test.annotations.BenchmarkTest;
+import electrosphere.test.annotations.FastTest;
+import electrosphere.test.annotations.UnitTest;
+
+/**
+ * Tests for serializing and parsing network messages
+ */
+public class NetworkMessageSerializationTests {
+
+    /**
+     * The number of iterations run per benchmark
+     */
+    static final int BENCHMARK_ITERATIONS = 200000;
+
+    @UnitTest
+    @FastTest
+    public void testFixedSizeRoundTrip(){
+        EntityMessage sent = EntityMessage.constructmoveUpdateMessage(5, 10, 1, 2, 3, 0.1, 0.2, 0.3, 0.4, 0.5, 6, 7);
+        EntityMessage parsed = (EntityMessage)NetworkMessageSerializationTests.roundTrip(sent);
+        assertEquals(EntityMessage.EntityMessageType.MOVEUPDATE, parsed.getMessageSubtype());
+        assertEquals(5, parsed.getentityID());
+        assertEquals(10, parsed.gettime());
+        assertEquals(3, parsed.getpositionZ());
+        assertEquals(0.4, parsed.getrotationW());
+        assertEquals(6, parsed.getpropertyValueInt());
+        assertEquals(7, parsed.gettreeState());
+    }
+
+    @UnitTest
+    public void testVariableSizeRoundTrip(){
+        //multi-byte characters must be measured in bytes, not chars
+        String subtype = "creature_é中😀";
+        EntityMessage sent = EntityMessage.constructCreateMessage(1, 2, subtype, "", 1, 2, 3, 0, 0, 0, 1);
+        assertEquals(74 + subtype.getBytes(StandardCharsets.UTF_8).length, sent.getSerializedSize());
+        EntityMessage parsed = (EntityMessage)NetworkMessageSerializationTests.roundTrip(sent);
+        assertEquals(subtype, parsed.getentitySubtype());
+        assertEquals(2, parsed.getentityCategory());
+        assertEquals(3, parsed.getpositionZ());
+
+        byte[] data = new byte[]{ 9, 8, 7 };
+        TerrainMessage fluid = (TerrainMessage)NetworkMessageSerializationTests.roundTrip(TerrainMessage.constructsendFluidDataMessage(4, 5, 6, data));
+        assertArrayEquals(data, fluid.getchunkData());
+        assertEquals(6, fluid.getworldZ());
+    }
+
+    @UnitTest
+    public void testSerializeMatchesWrite(){
+        EntityMessage message = EntityMessage.constructinteractMessage(3, "open");
+        message.serialize();
+        ByteBuffer buffer = ByteBuffer.allocate(message.getSerializedSize());
+        message.write(buffer);
+        assertArrayEquals(buffer.array(), message.getRawBytes());
+    }
+
+    @UnitTest
+    public void testDirectBufferStrings(){
+        EntityMessage sent = EntityMessage.constructinteractMessage(3, "signal_ü");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(sent.getSerializedSize());
+        sent.write(buffer);
+        buffer.flip();
+        EntityMessage parsed = (EntityMessage)NetworkMessage.parseBytestreamForMessage(buffer, new MessagePool(), new HashMap<Short,BiConsumer<NetworkMessage,ByteBuffer>>());
+        assertEquals("signal_ü", parsed.getinteractionSignal());
+    }
+
+    @BenchmarkTest
+    public void benchmarkSerializeAndParse(){
+        NetworkMessageSerializationTests.benchmark("moveUpdate", EntityMessage.constructmoveUpdateMessage(5, 10, 1, 2, 3, 0.1, 0.2, 0.3, 0.4, 0.5, 6, 7));
+        NetworkMessageSerializationTests.benchmark("Create", EntityMessage.constructCreateMessage(1, 2, "human", "{}", 1, 2, 3, 0, 0, 0, 1));
+        NetworkMessageSerializationTests.benchmark("UpdateClientDoubleState", SynchronizationMessage.constructUpdateClientDoubleStateMessage(1, 2, 3, 4.0));
+        NetworkMessageSerializationTests.benchmark("sendFluidData", TerrainMessage.constructsendFluidDataMessage(1, 2, 3, new byte[1024]));
+    }
+
+    /**
+     * Writes a message and parses it back
+     * @param message The message
+     * @return The parsed message
+     */
+    static NetworkMessage roundTrip(NetworkMessage message){
+        ByteBuffer buffer = ByteBuffer.allocate(message.getSerializedSize());
+        message.write(buffer);
+        assertEquals(0, buffer.remaining());
+        buffer.flip();
+        NetworkMessage rVal = NetworkMessage.parseBytestreamForMessage(buffer, new MessagePool(), new HashMap<Short,BiConsumer<NetworkMessage,ByteBuffer>>());
+        assertNotNull(rVal);
+        assertEquals(0, buffer.remaining());
+        return rVal;
+    }
+
+    /**
+     * Measures serialize and parse throughput and allocation for a message
+     * @param name The name of the message type
+     * @param message The message
+     */
+    static void benchmark(String name, NetworkMessage message){
+        MessagePool pool = new MessagePool();
+        Map<Short,BiConsumer<NetworkMessage,ByteBuffer>> customParserMap = new HashMap<Short,BiConsumer<NetworkMessage,ByteBuffer>>();
+        ByteBuffer buffer = ByteBuffer.allocate(message.getSerializedSize() * 64);
+
+        //warm up
+        for(int i = 0; i < BENCHMARK_ITERATIONS / 10; i++){
+            buffer.clear();
+            message.write(buffer);
+            buffer.flip();
+            pool.release(NetworkMessage.parseBytestreamForMessage(buffer, pool, customParserMap));
+        }
+
+        long allocStart = NetworkMessageSerializationTests.getAllocatedBytes();
+        long start = System.nanoTime();
+        for(int i = 0; i < BENCHMARK_ITERATIONS; i++){
+            buffer.clear();
+            message.write(buffer);
+        }
+        long serializeTime = System.nanoTime() - start;
+        long serializeAlloc = NetworkMessageSerializationTests.getAllocatedBytes() - allocStart;
+
+        buffer.clear();
+        message.write(buffer);
+        buffer.flip();
+        allocStart = NetworkMessageSerializationTests.getAllocatedBytes();
+        start = System.nanoTime();
+        for(int i = 0; i < BENCHMARK_ITERATIONS; i++){
+            buffer.position(0);
+            pool.release(NetworkMessage.parseBytestreamForMessage(buffer, pool, customParserMap));
+        }
+        long parseTime = System.nanoTime() - start;
+        long parseAlloc = NetworkMessageSerializationTests.getAllocatedBytes() - allocStart;
+
+        System.out.println(
+            "Message benchmark - " + name + " (" + message.getSerializedSize() + " bytes)" +
+            " serialize: " + (long)(BENCHMARK_ITERATIONS / (serializeTime / 1000000000.0)) + " ops/sec " + (serializeAlloc / BENCHMARK_ITERATIONS) + " bytes/op" +
+            " parse: " + (long)(BENCHMARK_ITERATIONS / (parseTime / 1000000000.0)) + " ops/sec " + (parseAlloc / BENCHMARK_ITERATIONS) + " bytes/op"
+        );
+    }
+
+    /**
+     * Gets the number of bytes allocated by the current thread, or 0 if the JVM does not track it
+     * @return The number of bytes
+     */
+    static long getAllocatedBytes(){
+        if(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean){
+            return ((com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+}
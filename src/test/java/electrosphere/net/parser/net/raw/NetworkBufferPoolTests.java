@@ -0,0 +1,62 @@
+package electrosphere.net.parser.net.raw;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+
+import electrosphere.test.annotations.FastTest;
+import electrosphere.test.annotations.UnitTest;
+
+/**
+ * Tests for the network buffer pool
+ */
+public class NetworkBufferPoolTests {
+
+    @UnitTest
+    @FastTest
+    public void testSizeClasses(){
+        assertEquals(0, NetworkBufferPool.getSizeClass(1));
+        assertEquals(0, NetworkBufferPool.getSizeClass(NetworkBufferPool.MIN_CAPACITY));
+        assertEquals(1, NetworkBufferPool.getSizeClass(NetworkBufferPool.MIN_CAPACITY + 1));
+        assertEquals(1, NetworkBufferPool.getSizeClass(NetworkBufferPool.MIN_CAPACITY * 2));
+        assertEquals(NetworkBufferPool.CLASS_COUNT - 1, NetworkBufferPool.getSizeClass(NetworkBufferPool.MAX_CAPACITY));
+    }
+
+    @UnitTest
+    public void testReleasedBuffersAreReused(){
+        NetworkBufferPool pool = new NetworkBufferPool();
+        ByteBuffer first = pool.acquire(100, true);
+        assertTrue(first.isDirect());
+        assertEquals(NetworkBufferPool.MIN_CAPACITY, first.capacity());
+        first.putInt(5);
+        pool.release(first);
+        assertEquals(1, pool.getFreeCount(NetworkBufferPool.MIN_CAPACITY, true));
+        assertEquals(0, pool.getFreeCount(NetworkBufferPool.MIN_CAPACITY, false));
+
+        //heap requests don't get direct buffers
+        ByteBuffer heap = pool.acquire(100, false);
+        assertNotSame(first, heap);
+        assertFalse(heap.isDirect());
+
+        ByteBuffer second = pool.acquire(NetworkBufferPool.MIN_CAPACITY, true);
+        assertSame(first, second);
+        assertEquals(0, second.position());
+        assertEquals(second.capacity(), second.limit());
+    }
+
+    @UnitTest
+    public void testRetentionIsCapped(){
+        NetworkBufferPool pool = new NetworkBufferPool();
+        int capacity = NetworkBufferPool.MAX_CAPACITY;
+        int maxRetained = Math.max(1, NetworkBufferPool.MAX_RETAINED_BYTES_PER_CLASS / capacity);
+        for(int i = 0; i < maxRetained + 2; i++){
+            pool.release(ByteBuffer.allocate(capacity));
+        }
+        assertEquals(maxRetained, pool.getFreeCount(capacity, false));
+
+        //buffers that aren't a pooled size are dropped
+        pool.release(ByteBuffer.allocate(1000));
+        assertEquals(0, pool.getFreeCount(1000, false));
+    }
+
+}
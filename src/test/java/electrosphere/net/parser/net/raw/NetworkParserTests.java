@@ -0,0 +1,245 @@
+package electrosphere.net.parser.net.raw;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.util.ArrayList;
+import java.util.List;
+
+import electrosphere.net.parser.net.message.EntityMessage;
+import electrosphere.net.parser.net.message.NetworkMessage;
+import electrosphere.net.parser.net.message.ServerMessage;
+import electrosphere.net.parser.net.message.TerrainMessage;
+import electrosphere.test.annotations.UnitTest;
+
+/**
+ * Tests for the network parser
+ */
+public class NetworkParserTests {
+
+    @UnitTest
+    public void testChannelReadHandlesSplitMessages() throws IOException {
+        Pipe pipe = Pipe.open();
+        pipe.source().configureBlocking(false);
+        NetworkParser parser = new NetworkParser(pipe.source(), new ByteArrayOutputStream());
+
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        ServerMessage.constructPingMessage().write(serialized);
+        EntityMessage.constructmoveUpdateMessage(5, 10, 1, 2, 3, 0, 0, 0, 1, 0.5, 0, 0).write(serialized);
+        byte[] bytes = serialized.toByteArray();
+
+        //nothing available yet
+        parser.readMessagesIn();
+        assertFalse(parser.hasIncomingMessaage());
+
+        //first message and part of the second
+        int split = bytes.length - 7;
+        pipe.sink().write(ByteBuffer.wrap(bytes, 0, split));
+        parser.readMessagesIn();
+        assertTrue(parser.hasIncomingMessaage());
+        assertTrue(parser.popIncomingMessage() instanceof ServerMessage);
+        assertFalse(parser.hasIncomingMessaage());
+
+        //rest of the second message
+        pipe.sink().write(ByteBuffer.wrap(bytes, split, bytes.length - split));
+        parser.readMessagesIn();
+        NetworkMessage message = parser.popIncomingMessage();
+        assertTrue(message instanceof EntityMessage);
+        assertEquals(5, ((EntityMessage)message).getentityID());
+        assertEquals(bytes.length, parser.getNumberOfBytesRead());
+    }
+
+    @UnitTest
+    public void testChannelEndOfStreamThrows() throws IOException {
+        Pipe pipe = Pipe.open();
+        pipe.source().configureBlocking(false);
+        NetworkParser parser = new NetworkParser(pipe.source(), new ByteArrayOutputStream());
+        pipe.sink().close();
+        assertThrows(IOException.class, () -> {
+            parser.readMessagesIn();
+        });
+    }
+
+    @UnitTest
+    public void testBufferGrowsForLargeMessageAndShrinksWhenIdle() throws IOException {
+        Pipe pipe = Pipe.open();
+        pipe.source().configureBlocking(false);
+        pipe.sink().configureBlocking(false);
+        NetworkParser parser = new NetworkParser(pipe.source(), new ByteArrayOutputStream());
+        assertEquals(NetworkBufferPool.MIN_CAPACITY, parser.getIncomingBufferCapacity());
+
+        //a payload several times larger than the starting buffer
+        byte[] payload = new byte[NetworkBufferPool.MIN_CAPACITY * 5];
+        for(int i = 0; i < payload.length; i++){
+            payload[i] = (byte)i;
+        }
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        TerrainMessage.constructsendChunkDataMessage(1, 2, 3, payload).write(serialized);
+        //the chunk data parser wants a few bytes past the end of the message before it will complete
+        ServerMessage.constructPingMessage().write(serialized);
+        ServerMessage.constructPingMessage().write(serialized);
+        ByteBuffer bytes = ByteBuffer.wrap(serialized.toByteArray());
+
+        //feed the pipe in whatever sized pieces it will take, reading as we go
+        NetworkMessage message = null;
+        int largestCapacity = parser.getIncomingBufferCapacity();
+        while(message == null){
+            assertTrue(bytes.hasRemaining());
+            pipe.sink().write(bytes);
+            parser.readMessagesIn();
+            largestCapacity = Math.max(largestCapacity, parser.getIncomingBufferCapacity());
+            if(parser.hasIncomingMessaage()){
+                message = parser.popIncomingMessage();
+            }
+        }
+        assertTrue(largestCapacity > payload.length);
+        assertArrayEquals(payload, ((TerrainMessage)message).getchunkData());
+        assertEquals(NetworkBufferPool.MIN_CAPACITY, parser.getIncomingBufferCapacity());
+    }
+
+    @UnitTest
+    public void testStreamReadGrowsForLargeMessage() throws IOException {
+        byte[] payload = new byte[NetworkBufferPool.MIN_CAPACITY * 3];
+        payload[payload.length - 1] = 7;
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        TerrainMessage.constructsendChunkDataMessage(1, 2, 3, payload).write(serialized);
+        ServerMessage.constructPingMessage().write(serialized);
+        ServerMessage.constructPingMessage().write(serialized);
+        NetworkParser parser = new NetworkParser(new ByteArrayInputStream(serialized.toByteArray()), new ByteArrayOutputStream());
+        parser.readMessagesIn();
+        assertArrayEquals(payload, ((TerrainMessage)parser.popIncomingMessage()).getchunkData());
+        assertTrue(parser.popIncomingMessage() instanceof ServerMessage);
+        assertTrue(parser.popIncomingMessage() instanceof ServerMessage);
+        assertEquals(NetworkBufferPool.MIN_CAPACITY, parser.getIncomingBufferCapacity());
+    }
+
+    @UnitTest
+    public void testMoveUpdateBatchAtEndOfStream() throws IOException {
+        byte[] movementData = new byte[]{ 1, 2, 3, 4, 5 };
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        EntityMessage.constructmoveUpdateBatchMessage(99, movementData).write(serialized);
+        NetworkParser parser = new NetworkParser(new ByteArrayInputStream(serialized.toByteArray()), new ByteArrayOutputStream());
+        parser.readMessagesIn();
+        EntityMessage message = (EntityMessage)parser.popIncomingMessage();
+        assertEquals(EntityMessage.EntityMessageType.MOVEUPDATEBATCH, message.getMessageSubtype());
+        assertEquals(99, message.gettime());
+        assertArrayEquals(movementData, message.getmovementData());
+    }
+
+    @UnitTest
+    public void testOutgoingMessagesAreBatched() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        NetworkParser parser = new NetworkParser(new ByteArrayInputStream(new byte[0]), out);
+        parser.setMaxBatchSize(4);
+        for(int i = 0; i < 10; i++){
+            parser.addOutgoingMessage(ServerMessage.constructPingMessage());
+        }
+        assertEquals(10, parser.getOutgoingQueueDepth());
+        parser.pushMessagesOut();
+        assertEquals(0, parser.getOutgoingQueueDepth());
+        //10 messages in batches of 4
+        assertEquals(3, out.writeCalls);
+        assertEquals(20, out.bytes.size());
+        assertEquals(20, parser.getLastFlushBytes());
+        assertEquals(10, parser.getLastFlushMessages());
+
+        //round trips
+        NetworkParser reader = new NetworkParser(new ByteArrayInputStream(out.bytes.toByteArray()), new ByteArrayOutputStream());
+        reader.readMessagesIn();
+        assertEquals(10, reader.getIncomingQueueDepth());
+        for(int i = 0; i < 10; i++){
+            assertTrue(reader.popIncomingMessage() instanceof ServerMessage);
+        }
+        assertEquals(0, reader.getIncomingQueueDepth());
+        assertNull(reader.popIncomingMessage());
+    }
+
+    @UnitTest
+    public void testSharedMessageIsSerializedOnce() throws IOException {
+        EntityMessage message = EntityMessage.constructinteractMessage(4, "open");
+        message.markShared();
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        message.write(expected);
+
+        CountingOutputStream first = new CountingOutputStream();
+        CountingOutputStream second = new CountingOutputStream();
+        NetworkParser firstParser = new NetworkParser(new ByteArrayInputStream(new byte[0]), first);
+        NetworkParser secondParser = new NetworkParser(new ByteArrayInputStream(new byte[0]), second);
+        firstParser.addOutgoingMessage(message);
+        secondParser.addOutgoingMessage(message);
+        firstParser.pushMessagesOut();
+        byte[] sharedBytes = message.getSharedBytes();
+        secondParser.pushMessagesOut();
+
+        //the same bytes are reused and the message is not recycled by the first connection
+        assertSame(sharedBytes, message.getSharedBytes());
+        assertArrayEquals(expected.toByteArray(), first.bytes.toByteArray());
+        assertArrayEquals(expected.toByteArray(), second.bytes.toByteArray());
+        assertEquals("open", message.getinteractionSignal());
+    }
+
+    @UnitTest
+    public void testConcurrentProducers() throws Exception {
+        CountingOutputStream out = new CountingOutputStream();
+        NetworkParser parser = new NetworkParser(new ByteArrayInputStream(new byte[0]), out);
+        int producerCount = 4;
+        int perProducer = 1000;
+        List<Thread> producers = new ArrayList<Thread>();
+        for(int i = 0; i < producerCount; i++){
+            Thread producer = new Thread(() -> {
+                for(int j = 0; j < perProducer; j++){
+                    parser.addOutgoingMessage(ServerMessage.constructPingMessage());
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        //drain while the producers are still running
+        boolean running = true;
+        while(running){
+            parser.pushMessagesOut();
+            running = false;
+            for(Thread producer : producers){
+                running = running || producer.isAlive();
+            }
+        }
+        parser.pushMessagesOut();
+        assertEquals(0, parser.getOutgoingQueueDepth());
+        assertEquals(producerCount * perProducer * 2, out.bytes.size());
+    }
+
+    /**
+     * An output stream that counts the number of write calls it receives
+     */
+    static class CountingOutputStream extends OutputStream {
+
+        /**
+         * The bytes written
+         */
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        /**
+         * The number of write calls
+         */
+        int writeCalls = 0;
+
+        @Override
+        public void write(int b) throws IOException {
+            writeCalls++;
+            bytes.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            writeCalls++;
+            bytes.write(b, off, len);
+        }
+
+    }
+
+}
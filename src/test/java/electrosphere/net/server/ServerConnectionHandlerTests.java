@@ -0,0 +1,104 @@
+package electrosphere.net.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import electrosphere.net.server.ServerConnectionHandler.ExposedByteArrayOutputStream;
+import electrosphere.test.annotations.FastTest;
+import electrosphere.test.annotations.UnitTest;
+
+/**
+ * Tests for the outgoing buffer management of the server connection handler
+ */
+public class ServerConnectionHandlerTests {
+
+    /**
+     * Writes a segment of sequential bytes to the stream and queues it as a pending write
+     * @param stream The stream
+     * @param pending The pending writes
+     * @param length The length of the segment
+     * @param first The value of the first byte
+     */
+    private static void appendSegment(ExposedByteArrayOutputStream stream, Deque<ByteBuffer> pending, int length, int first){
+        int start = stream.size();
+        byte[] segment = new byte[length];
+        for(int i = 0; i < length; i++){
+            segment[i] = (byte)(first + i);
+        }
+        stream.write(segment, 0, length);
+        pending.add(ByteBuffer.wrap(stream.getBuffer(), start, length));
+    }
+
+    @UnitTest
+    @FastTest
+    public void testSmallPrefixIsNotCompacted(){
+        ExposedByteArrayOutputStream stream = new ExposedByteArrayOutputStream();
+        Deque<ByteBuffer> pending = new ArrayDeque<ByteBuffer>();
+        appendSegment(stream, pending, 1000, 0);
+        pending.peekFirst().position(pending.peekFirst().position() + 500);
+        assertEquals(500, ServerConnectionHandler.compactPending(stream, pending));
+        assertEquals(1000, stream.size());
+    }
+
+    @UnitTest
+    @FastTest
+    public void testPartialDrainCompactsUnwrittenBytes(){
+        ExposedByteArrayOutputStream stream = new ExposedByteArrayOutputStream();
+        Deque<ByteBuffer> pending = new ArrayDeque<ByteBuffer>();
+        int segmentSize = ServerConnectionHandler.COMPACT_THRESHOLD;
+        appendSegment(stream, pending, segmentSize, 0);
+        appendSegment(stream, pending, segmentSize, 7);
+        appendSegment(stream, pending, 100, 3);
+
+        //first segment fully written, second half written
+        pending.pollFirst();
+        ByteBuffer partial = pending.peekFirst();
+        partial.position(partial.position() + segmentSize / 2);
+        int expected = segmentSize / 2 + 100;
+        byte[] unwritten = new byte[expected];
+        int offset = 0;
+        for(ByteBuffer buffer : pending){
+            buffer.duplicate().get(unwritten, offset, buffer.remaining());
+            offset = offset + buffer.remaining();
+        }
+
+        assertEquals(expected, ServerConnectionHandler.compactPending(stream, pending));
+        assertEquals(expected, stream.size());
+        assertEquals(1, pending.size());
+        byte[] compacted = new byte[expected];
+        pending.peekFirst().duplicate().get(compacted);
+        assertArrayEquals(unwritten, compacted);
+
+        //new messages are appended after the compacted tail
+        stream.write(42);
+        assertEquals(expected + 1, stream.size());
+        assertEquals(42, stream.getBuffer()[expected]);
+    }
+
+    @UnitTest
+    public void testRepeatedPartialDrainsStayBounded(){
+        ExposedByteArrayOutputStream stream = new ExposedByteArrayOutputStream();
+        Deque<ByteBuffer> pending = new ArrayDeque<ByteBuffer>();
+        int segmentSize = 16 * 1024;
+        for(int i = 0; i < 100; i++){
+            appendSegment(stream, pending, segmentSize, i);
+            //the reader keeps up with all but a small tail of every flush
+            int toWrite = segmentSize - 10;
+            while(toWrite > 0){
+                ByteBuffer first = pending.peekFirst();
+                int amount = Math.min(toWrite, first.remaining());
+                first.position(first.position() + amount);
+                toWrite = toWrite - amount;
+                if(!first.hasRemaining()){
+                    pending.pollFirst();
+                }
+            }
+            ServerConnectionHandler.compactPending(stream, pending);
+        }
+        assertTrue(stream.size() < ServerConnectionHandler.COMPACT_THRESHOLD * 2 + segmentSize);
+    }
+
+}
@@ -0,0 +1,155 @@
+package electrosphere.net.server.player;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import electrosphere.net.parser.net.message.EntityMessage;
+import electrosphere.net.parser.net.message.NetworkMessage;
+import electrosphere.net.parser.net.message.ServerMessage;
+import electrosphere.net.parser.net.message.TerrainMessage;
+import electrosphere.net.server.player.OutgoingMessageScheduler.MessagePriority;
+import electrosphere.test.annotations.FastTest;
+import electrosphere.test.annotations.UnitTest;
+
+/**
+ * Tests for the outgoing message scheduler
+ */
+public class OutgoingMessageSchedulerTests {
+
+    /**
+     * The budget used by the tests
+     */
+    static final int BYTES_PER_TICK = 32 * 1024;
+
+    /**
+     * The size of the chunk payloads used by the tests
+     */
+    static final int CHUNK_SIZE = 40 * 1024;
+
+    @UnitTest
+    @FastTest
+    public void testCriticalPassesThrough(){
+        List<NetworkMessage> sent = new LinkedList<NetworkMessage>();
+        OutgoingMessageScheduler scheduler = new OutgoingMessageScheduler(sent::add, BYTES_PER_TICK);
+        assertTrue(scheduler.queue(ServerMessage.constructPingMessage()));
+        assertTrue(scheduler.queue(EntityMessage.constructDestroyMessage(3)));
+        assertEquals(2, sent.size());
+        assertEquals(2, scheduler.getSentMessages(MessagePriority.CRITICAL));
+    }
+
+    @UnitTest
+    public void testMoveUpdatesAreSuperseded(){
+        List<NetworkMessage> sent = new LinkedList<NetworkMessage>();
+        OutgoingMessageScheduler scheduler = new OutgoingMessageScheduler(sent::add, BYTES_PER_TICK);
+        for(int i = 0; i < 3; i++){
+            assertFalse(scheduler.queue(OutgoingMessageSchedulerTests.moveUpdate(1, i)));
+        }
+        scheduler.queue(OutgoingMessageSchedulerTests.moveUpdate(2, 5));
+        assertEquals(0, sent.size());
+        assertEquals(2, scheduler.getQueueDepth(MessagePriority.STATE));
+
+        assertEquals(2, scheduler.tick());
+        assertEquals(2, sent.size());
+        assertEquals(1, ((EntityMessage)sent.get(0)).getentityID());
+        assertEquals(2, ((EntityMessage)sent.get(0)).gettime());
+        assertEquals(2, ((EntityMessage)sent.get(1)).getentityID());
+        assertEquals(2, scheduler.getSupersededCount());
+    }
+
+    @UnitTest
+    @FastTest
+    public void testMoveUpdateBatchesAreStateAndNeverSuperseded(){
+        List<NetworkMessage> sent = new LinkedList<NetworkMessage>();
+        OutgoingMessageScheduler scheduler = new OutgoingMessageScheduler(sent::add, BYTES_PER_TICK);
+        assertTrue(scheduler.queue(EntityMessage.constructmoveUpdateBatchMessage(1, new byte[16])));
+        assertTrue(scheduler.queue(EntityMessage.constructDestroyMessage(3)));
+        assertTrue(scheduler.queue(EntityMessage.constructmoveUpdateBatchMessage(2, new byte[16])));
+        assertEquals(3, sent.size());
+        assertEquals(1, ((EntityMessage)sent.get(0)).gettime());
+        assertEquals(2, ((EntityMessage)sent.get(2)).gettime());
+        assertEquals(2, scheduler.getSentMessages(MessagePriority.STATE));
+        assertEquals(0, scheduler.getSupersededCount());
+    }
+
+    @UnitTest
+    @FastTest
+    public void testChunkFormatIsCritical(){
+        List<NetworkMessage> sent = new LinkedList<NetworkMessage>();
+        OutgoingMessageScheduler scheduler = new OutgoingMessageScheduler(sent::add, BYTES_PER_TICK);
+        assertFalse(scheduler.queue(TerrainMessage.constructsendChunkDataMessage(0, 0, 0, new byte[CHUNK_SIZE])));
+        assertTrue(scheduler.queue(TerrainMessage.constructChunkFormatMessage(1)));
+        assertEquals(1, sent.size());
+        assertEquals(MessagePriority.CRITICAL, OutgoingMessageScheduler.getPriority(sent.get(0)));
+    }
+
+    @UnitTest
+    public void testForgetDropsHeldState(){
+        List<NetworkMessage> sent = new LinkedList<NetworkMessage>();
+        OutgoingMessageScheduler scheduler = new OutgoingMessageScheduler(sent::add, BYTES_PER_TICK);
+        scheduler.queue(OutgoingMessageSchedulerTests.moveUpdate(1, 0));
+        scheduler.forget(1);
+        scheduler.tick();
+        assertEquals(0, sent.size());
+    }
+
+    @UnitTest
+    public void testMoveUpdateNotDelayedByChunkBurst(){
+        List<NetworkMessage> sent = new LinkedList<NetworkMessage>();
+        OutgoingMessageScheduler scheduler = new OutgoingMessageScheduler(sent::add, BYTES_PER_TICK);
+        for(int i = 0; i < 10; i++){
+            assertFalse(scheduler.queue(TerrainMessage.constructsendChunkDataMessage(i, 0, 0, new byte[CHUNK_SIZE])));
+        }
+        scheduler.queue(OutgoingMessageSchedulerTests.moveUpdate(1, 0));
+        scheduler.tick();
+        //the move update goes first, then only as much terrain as the budget allows
+        assertTrue(sent.get(0) instanceof EntityMessage);
+        assertEquals(2, sent.size());
+        assertEquals(9, scheduler.getQueueDepth(MessagePriority.BULK));
+
+        //the rest drains over later frames without exceeding the budget by more than one message
+        int ticks = 1;
+        while(scheduler.getQueueDepth(MessagePriority.BULK) > 0){
+            scheduler.tick();
+            ticks++;
+        }
+        long bytes = scheduler.getSentBytes(MessagePriority.BULK);
+        assertEquals(10, scheduler.getSentMessages(MessagePriority.BULK));
+        assertTrue(bytes <= (long)BYTES_PER_TICK * ticks + CHUNK_SIZE);
+    }
+
+    @UnitTest
+    public void testBulkIsNotStarved(){
+        List<NetworkMessage> sent = new LinkedList<NetworkMessage>();
+        OutgoingMessageScheduler scheduler = new OutgoingMessageScheduler(sent::add, 16);
+        scheduler.queue(TerrainMessage.constructsendChunkDataMessage(0, 0, 0, new byte[64]));
+        for(int i = 0; i < OutgoingMessageScheduler.MAX_BULK_WAIT_TICKS; i++){
+            //more critical traffic than the budget every frame
+            for(int j = 0; j < 10; j++){
+                scheduler.queue(ServerMessage.constructPingMessage());
+            }
+            scheduler.tick();
+        }
+        assertEquals(1, scheduler.getSentMessages(MessagePriority.BULK));
+    }
+
+    @UnitTest
+    public void testNoBudgetSendsImmediately(){
+        List<NetworkMessage> sent = new LinkedList<NetworkMessage>();
+        OutgoingMessageScheduler scheduler = new OutgoingMessageScheduler(sent::add, 0);
+        assertTrue(scheduler.queue(TerrainMessage.constructsendChunkDataMessage(0, 0, 0, new byte[CHUNK_SIZE])));
+        assertEquals(1, sent.size());
+    }
+
+    /**
+     * Creates a move update
+     * @param entityId The id of the entity
+     * @param time The time of the update
+     * @return The move update
+     */
+    static EntityMessage moveUpdate(int entityId, long time){
+        return EntityMessage.constructmoveUpdateMessage(entityId, time, 0, 0, 0, 0, 0, 0, 1, 0, 0, 0);
+    }
+
+}
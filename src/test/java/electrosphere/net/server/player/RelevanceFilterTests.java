@@ -0,0 +1,123 @@
+package electrosphere.net.server.player;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import electrosphere.entity.state.lod.ServerLODComponent;
+import electrosphere.net.parser.net.message.EntityMessage;
+import electrosphere.test.annotations.FastTest;
+import electrosphere.test.annotations.UnitTest;
+
+/**
+ * Tests for the move update relevance filter
+ */
+public class RelevanceFilterTests {
+
+    @UnitTest
+    @FastTest
+    public void testUpdateInterval(){
+        assertEquals(1, ServerLODComponent.getNetworkUpdateInterval(0, ServerLODComponent.FULL_RES));
+        assertEquals(1, ServerLODComponent.getNetworkUpdateInterval(ServerLODComponent.LOD_RADIUS - 1, ServerLODComponent.FULL_RES));
+        assertEquals(2, ServerLODComponent.getNetworkUpdateInterval(ServerLODComponent.LOD_RADIUS, ServerLODComponent.FULL_RES));
+        assertEquals(4, ServerLODComponent.getNetworkUpdateInterval(ServerLODComponent.LOD_RADIUS * 3, ServerLODComponent.FULL_RES));
+        assertEquals(ServerLODComponent.MAX_NETWORK_UPDATE_INTERVAL, ServerLODComponent.getNetworkUpdateInterval(100000, ServerLODComponent.FULL_RES));
+        assertEquals(ServerLODComponent.LOW_RES_NETWORK_UPDATE_INTERVAL, ServerLODComponent.getNetworkUpdateInterval(0, ServerLODComponent.LOW_RES));
+    }
+
+    @UnitTest
+    public void testDistantUpdatesAreThinned(){
+        RelevanceFilter near = new RelevanceFilter();
+        RelevanceFilter far = new RelevanceFilter();
+        int nearSent = 0;
+        int farSent = 0;
+        for(int frame = 0; frame < 64; frame++){
+            EntityMessage update = RelevanceFilterTests.moveUpdate(1, frame, 1);
+            if(near.shouldSend(update, 5, ServerLODComponent.FULL_RES, frame)){
+                nearSent++;
+            }
+            if(far.shouldSend(update, 1000, ServerLODComponent.FULL_RES, frame)){
+                farSent++;
+            }
+        }
+        assertEquals(64, nearSent);
+        assertEquals(64 / ServerLODComponent.MAX_NETWORK_UPDATE_INTERVAL, farSent);
+        assertEquals(64 - farSent, far.getSkippedCount());
+    }
+
+    @UnitTest
+    public void testStateChangesAreAlwaysSent(){
+        RelevanceFilter filter = new RelevanceFilter();
+        assertTrue(filter.shouldSend(RelevanceFilterTests.moveUpdate(1, 0, 1), 1000, ServerLODComponent.FULL_RES, 0));
+        assertFalse(filter.shouldSend(RelevanceFilterTests.moveUpdate(1, 1, 1), 1000, ServerLODComponent.FULL_RES, 1));
+        //entity stopped
+        assertTrue(filter.shouldSend(RelevanceFilterTests.moveUpdate(1, 2, 2), 1000, ServerLODComponent.FULL_RES, 2));
+        //other entities are tracked separately
+        assertTrue(filter.shouldSend(RelevanceFilterTests.moveUpdate(2, 2, 1), 1000, ServerLODComponent.FULL_RES, 2));
+        //recreated for the player
+        filter.forget(1);
+        assertTrue(filter.shouldSend(RelevanceFilterTests.moveUpdate(1, 3, 2), 1000, ServerLODComponent.FULL_RES, 3));
+    }
+
+    @UnitTest
+    public void testLastUpdateOfBurstIsDelivered(){
+        RelevanceFilter filter = new RelevanceFilter();
+        List<EntityMessage> flushed = new LinkedList<EntityMessage>();
+        EntityMessage last = null;
+        //a short burst of movement far away, ending with a resting update in the same tree state
+        for(int frame = 0; frame < 3; frame++){
+            last = RelevanceFilterTests.moveUpdate(1, frame, 2);
+            filter.shouldSend(last, 1000, ServerLODComponent.FULL_RES, frame);
+            filter.flushDue(frame, flushed::add);
+        }
+        assertTrue(flushed.isEmpty());
+        //nothing else arrives for the entity, the held update goes out once its interval has passed
+        for(int frame = 3; frame < ServerLODComponent.MAX_NETWORK_UPDATE_INTERVAL; frame++){
+            filter.flushDue(frame, flushed::add);
+        }
+        assertTrue(flushed.isEmpty());
+        filter.flushDue(ServerLODComponent.MAX_NETWORK_UPDATE_INTERVAL, flushed::add);
+        assertEquals(List.of(last), flushed);
+        //and only once
+        filter.flushDue(ServerLODComponent.MAX_NETWORK_UPDATE_INTERVAL * 4, flushed::add);
+        assertEquals(1, flushed.size());
+    }
+
+    @UnitTest
+    public void testHeldUpdateIsDroppedOnForget(){
+        RelevanceFilter filter = new RelevanceFilter();
+        List<EntityMessage> flushed = new LinkedList<EntityMessage>();
+        filter.shouldSend(RelevanceFilterTests.moveUpdate(1, 0, 1), 1000, ServerLODComponent.FULL_RES, 0);
+        filter.shouldSend(RelevanceFilterTests.moveUpdate(1, 1, 1), 1000, ServerLODComponent.FULL_RES, 1);
+        filter.forget(1);
+        filter.flushDue(ServerLODComponent.MAX_NETWORK_UPDATE_INTERVAL * 4, flushed::add);
+        assertTrue(flushed.isEmpty());
+    }
+
+    @UnitTest
+    public void testStaleEntitiesAreDropped(){
+        RelevanceFilter filter = new RelevanceFilter();
+        filter.shouldSend(RelevanceFilterTests.moveUpdate(1, 0, 1), 1000, ServerLODComponent.FULL_RES, 0);
+        filter.shouldSend(RelevanceFilterTests.moveUpdate(2, 0, 1), 1000, ServerLODComponent.FULL_RES, 0);
+        assertEquals(2, filter.getTrackedCount());
+        //entity 2 keeps moving, entity 1 left the player's cells without a destroy
+        for(long frame = 1; frame <= RelevanceFilter.STALE_FRAMES; frame++){
+            filter.shouldSend(RelevanceFilterTests.moveUpdate(2, frame, 1), 5, ServerLODComponent.FULL_RES, frame);
+            filter.flushDue(frame, (EntityMessage message) -> {});
+        }
+        assertEquals(1, filter.getTrackedCount());
+    }
+
+    /**
+     * Creates a move update
+     * @param entityId The id of the entity
+     * @param time The time of the update
+     * @param treeState The movement tree state
+     * @return The move update
+     */
+    static EntityMessage moveUpdate(int entityId, long time, int treeState){
+        return EntityMessage.constructmoveUpdateMessage(entityId, time, 0, 0, 0, 0, 0, 0, 1, 0, 0, treeState);
+    }
+
+}
@@ -0,0 +1,194 @@
+package electrosphere.net.synchronization.transport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.joml.Quaterniond;
+import org.joml.Vector3d;
+
+import electrosphere.net.parser.net.message.EntityMessage;
+import electrosphere.server.physics.terrain.manager.ServerTerrainChunk;
+import electrosphere.test.annotations.FastTest;
+import electrosphere.test.annotations.UnitTest;
+
+/**
+ * Tests for delta compressed move updates
+ */
+public class MovementDeltaTests {
+
+    /**
+     * Largest position error allowed after quantization
+     */
+    static final double POSITION_EPSILON = (double)ServerTerrainChunk.CHUNK_DIMENSION / MovementDelta.POSITION_STEPS;
+
+    /**
+     * Largest per-component rotation error allowed after quantization
+     */
+    static final double ROTATION_EPSILON = 0.0001;
+
+    @UnitTest
+    @FastTest
+    public void testPositionQuantization(){
+        double[] positions = new double[]{ 0, 15.99999, 16, -0.0001, -17.3, 1234.5678 };
+        for(double position : positions){
+            int chunk = MovementDelta.getChunkCoordinate(position);
+            double decoded = MovementDelta.dequantizePosition(chunk, MovementDelta.quantizePosition(position, chunk));
+            assertEquals(position, decoded, POSITION_EPSILON);
+        }
+    }
+
+    @UnitTest
+    public void testRotationQuantization(){
+        Random random = new Random(3);
+        Quaterniond decoded = new Quaterniond();
+        for(int i = 0; i < 1000; i++){
+            Quaterniond rotation = new Quaterniond().rotateXYZ(random.nextDouble() * 7, random.nextDouble() * 7, random.nextDouble() * 7);
+            MovementDelta.dequantizeRotation(MovementDelta.quantizeRotation(rotation.x, rotation.y, rotation.z, rotation.w), decoded);
+            //q and -q are the same rotation
+            double sign = Math.signum(rotation.dot(decoded));
+            assertEquals(rotation.x, decoded.x * sign, ROTATION_EPSILON);
+            assertEquals(rotation.y, decoded.y * sign, ROTATION_EPSILON);
+            assertEquals(rotation.z, decoded.z * sign, ROTATION_EPSILON);
+            assertEquals(rotation.w, decoded.w * sign, ROTATION_EPSILON);
+        }
+        //uninitialized rotations decode as identity
+        MovementDelta.dequantizeRotation(MovementDelta.quantizeRotation(0, 0, 0, 0), decoded);
+        assertEquals(1, decoded.w, ROTATION_EPSILON);
+    }
+
+    @UnitTest
+    public void testRoundTripAcrossBatches(){
+        MovementDeltaEncoder encoder = new MovementDeltaEncoder();
+        MovementDeltaDecoder decoder = new MovementDeltaDecoder();
+        List<EntityMessage> decoded = new LinkedList<EntityMessage>();
+        Random random = new Random(5);
+        Vector3d position = new Vector3d(14, -3, 200);
+        Quaterniond rotation = new Quaterniond();
+        for(int frame = 0; frame < 50; frame++){
+            //walk across a few chunk borders
+            position.add(0.3, 0, -0.2);
+            rotation.rotateY(random.nextDouble() * 0.1);
+            EntityMessage sent = EntityMessage.constructmoveUpdateMessage(7, frame, position.x, position.y, position.z, rotation.x, rotation.y, rotation.z, rotation.w, 1.5, frame % 3, frame < 25 ? 1 : 2);
+            encoder.encode(sent);
+            byte[] batch = encoder.finishBatch();
+            decoded.clear();
+            decoder.decode(frame, batch, decoded);
+            assertEquals(1, decoded.size());
+            MovementDeltaTests.assertMatches(sent, decoded.get(0));
+        }
+    }
+
+    @UnitTest
+    public void testUnchangedFieldsAreSkipped(){
+        MovementDeltaEncoder encoder = new MovementDeltaEncoder();
+        encoder.encode(EntityMessage.constructmoveUpdateMessage(300, 10, 1, 2, 3, 0, 0, 0, 1, 2.0, 0, 1));
+        int fullSize = encoder.finishBatch().length;
+
+        //only x moved
+        encoder.encode(EntityMessage.constructmoveUpdateMessage(300, 11, 1.5, 2, 3, 0, 0, 0, 1, 2.0, 0, 1));
+        byte[] delta = encoder.finishBatch();
+        //id (2 bytes) + mask + x
+        assertEquals(2 + 1 + 2, delta.length);
+        assertTrue(delta.length < fullSize);
+
+        //nothing moved
+        encoder.encode(EntityMessage.constructmoveUpdateMessage(300, 12, 1.5, 2, 3, 0, 0, 0, 1, 2.0, 0, 1));
+        assertEquals(2 + 1, encoder.finishBatch().length);
+    }
+
+    @UnitTest
+    public void testForgetSendsFullUpdate(){
+        MovementDeltaEncoder encoder = new MovementDeltaEncoder();
+        MovementDeltaDecoder decoder = new MovementDeltaDecoder();
+        List<EntityMessage> decoded = new LinkedList<EntityMessage>();
+        EntityMessage first = EntityMessage.constructmoveUpdateMessage(1, 0, 5, 5, 5, 0, 0, 0, 1, 1, 0, 1);
+        encoder.encode(first);
+        decoder.decode(0, encoder.finishBatch(), decoded);
+
+        //entity destroyed and recreated for the client
+        encoder.forget(1);
+        decoder.forget(1);
+        assertEquals(0, encoder.getBaselineCount());
+        EntityMessage second = EntityMessage.constructmoveUpdateMessage(1, 1, 5, 5, 5, 0, 0, 0, 1, 1, 0, 1);
+        encoder.encode(second);
+        decoded.clear();
+        decoder.decode(1, encoder.finishBatch(), decoded);
+        MovementDeltaTests.assertMatches(second, decoded.get(0));
+    }
+
+    @UnitTest
+    public void testBatchMessageRoundTrip() throws IOException {
+        MovementDeltaEncoder encoder = new MovementDeltaEncoder();
+        encoder.encode(EntityMessage.constructmoveUpdateMessage(1, 40, 5, 5, 5, 0, 0, 0, 1, 1, 0, 1));
+        encoder.encode(EntityMessage.constructmoveUpdateMessage(2, 41, 6, 6, 6, 0, 0, 0, 1, 1, 0, 1));
+        long time = encoder.getBatchTime();
+        EntityMessage batch = EntityMessage.constructmoveUpdateBatchMessage(time, encoder.finishBatch());
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        batch.write(stream);
+        assertEquals(2 + 4 + 8 + batch.getmovementData().length, stream.size());
+
+        List<EntityMessage> decoded = new LinkedList<EntityMessage>();
+        new MovementDeltaDecoder().decode(time, batch.getmovementData(), decoded);
+        assertEquals(2, decoded.size());
+        assertEquals(40, decoded.get(0).gettime());
+        assertEquals(41, decoded.get(1).gettime());
+    }
+
+    @UnitTest
+    public void testBatchingReducesBandwidth(){
+        int creatureCount = 200;
+        int frames = 60;
+        Random random = new Random(1);
+        Vector3d[] positions = new Vector3d[creatureCount];
+        Vector3d[] headings = new Vector3d[creatureCount];
+        for(int i = 0; i < creatureCount; i++){
+            positions[i] = new Vector3d(random.nextDouble() * 256, 40 + random.nextDouble() * 4, random.nextDouble() * 256);
+            headings[i] = new Vector3d(random.nextDouble() - 0.5, 0, random.nextDouble() - 0.5).normalize();
+        }
+        MovementDeltaEncoder encoder = new MovementDeltaEncoder();
+        long individualBytes = 0;
+        long batchedBytes = 0;
+        for(int frame = 0; frame < frames; frame++){
+            for(int i = 0; i < creatureCount; i++){
+                //a third of the creatures are idle at any given time
+                boolean moving = (i + frame / 20) % 3 != 0;
+                if(moving){
+                    positions[i].add(headings[i].x * 0.1, 0, headings[i].z * 0.1);
+                }
+                Quaterniond rotation = new Quaterniond().rotationY(Math.atan2(headings[i].x, headings[i].z));
+                encoder.encode(EntityMessage.constructmoveUpdateMessage(
+                    1000 + i, frame, positions[i].x, positions[i].y, positions[i].z, rotation.x, rotation.y, rotation.z, rotation.w, moving ? 1.0 : 0.0, 0, moving ? 1 : 0
+                ));
+                individualBytes = individualBytes + 2 + 84;
+            }
+            //batch message header + length table + time
+            batchedBytes = batchedBytes + 2 + 4 + 8 + encoder.finishBatch().length;
+        }
+        assertTrue(batchedBytes * 4 < individualBytes);
+    }
+
+    /**
+     * Asserts that a decoded move update matches the one that was sent, within quantization error
+     * @param sent The update that was sent
+     * @param decoded The decoded update
+     */
+    static void assertMatches(EntityMessage sent, EntityMessage decoded){
+        assertEquals(sent.getentityID(), decoded.getentityID());
+        assertEquals(sent.gettime(), decoded.gettime());
+        assertEquals(sent.getpositionX(), decoded.getpositionX(), POSITION_EPSILON);
+        assertEquals(sent.getpositionY(), decoded.getpositionY(), POSITION_EPSILON);
+        assertEquals(sent.getpositionZ(), decoded.getpositionZ(), POSITION_EPSILON);
+        Quaterniond sentRotation = new Quaterniond(sent.getrotationX(), sent.getrotationY(), sent.getrotationZ(), sent.getrotationW());
+        Quaterniond decodedRotation = new Quaterniond(decoded.getrotationX(), decoded.getrotationY(), decoded.getrotationZ(), decoded.getrotationW());
+        assertEquals(1.0, Math.abs(sentRotation.dot(decodedRotation)), ROTATION_EPSILON);
+        assertEquals(sent.getvelocity(), decoded.getvelocity());
+        assertEquals(sent.getpropertyValueInt(), decoded.getpropertyValueInt());
+        assertEquals(sent.gettreeState(), decoded.gettreeState());
+    }
+
+}
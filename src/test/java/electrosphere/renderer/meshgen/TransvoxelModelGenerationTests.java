@@ -2,14 +2,32 @@ package electrosphere.renderer.meshgen;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
 import org.joml.Vector3f;
 
+import electrosphere.client.terrain.data.TerrainChunkData;
+import electrosphere.engine.Globals;
+import electrosphere.logger.LoggerInterface;
+import electrosphere.renderer.meshgen.TransvoxelModelGeneration.TransvoxelChunkData;
+import electrosphere.server.physics.terrain.manager.ServerTerrainChunk;
+import electrosphere.server.physics.terrain.manager.VoxelStorage;
+import electrosphere.test.annotations.BenchmarkTest;
 import electrosphere.test.annotations.UnitTest;
 
 /**
  * Tests for the transvoxel model generation functions
  */
 public class TransvoxelModelGenerationTests {
+
+    /**
+     * Number of chunks meshed by the throughput benchmark
+     */
+    static final int BENCHMARK_CHUNK_COUNT = 200;
     
 
     @UnitTest
@@ -114,4 +132,167 @@ public class TransvoxelModelGenerationTests {
         assertNotEquals(0.2, vec1.y);
     }
 
+    @UnitTest
+    public void testBufferEmissionMatchesArrays(){
+        TransvoxelChunkData[] chunks = new TransvoxelChunkData[]{
+            TransvoxelModelGenerationTests.createChunk(1, 0, false),
+            TransvoxelModelGenerationTests.createChunk(2, 1, true),
+            TransvoxelModelGenerationTests.createChunk(3, 2, true),
+        };
+        for(TransvoxelChunkData chunk : chunks){
+            TerrainChunkData arrays = TransvoxelModelGeneration.generateTerrainChunkData(chunk);
+            TerrainChunkData buffers = TransvoxelModelGeneration.generateTerrainChunkBuffers(chunk);
+            assertTrue(arrays.getVertices().length > 0);
+            assertArrayEquals(arrays.getVertices(), buffers.getVertices());
+            assertArrayEquals(arrays.getFaceElements(), buffers.getFaceElements());
+            assertTrue(buffers.getVertexArrayBufferData().isDirect());
+            TransvoxelModelGenerationTests.assertBufferEquals(arrays.getVertices(), buffers.getVertexArrayBufferData());
+            TransvoxelModelGenerationTests.assertBufferEquals(arrays.getNormals(), buffers.getNormalArrayBufferData());
+            TransvoxelModelGenerationTests.assertBufferEquals(arrays.getUVs(), buffers.getTextureArrayBufferData());
+            TransvoxelModelGenerationTests.assertBufferEquals(arrays.getTextureSamplers(), buffers.getSamplerBuffer());
+            TransvoxelModelGenerationTests.assertBufferEquals(arrays.getTextureRatioVectors(), buffers.getRatioBuffer());
+            IntBuffer elements = buffers.getElementArrayBufferData();
+            assertEquals(arrays.getFaceElements().length, elements.position());
+            for(int i = 0; i < arrays.getFaceElements().length; i++){
+                assertEquals(arrays.getFaceElements()[i], elements.get(i));
+            }
+        }
+    }
+
+    @UnitTest
+    public void testWeldingMatchesStringKeys(){
+        //the welding the mesher used before the primitive table: a map keyed on the "x_y_z" string of each position
+        Map<String,Integer> stringKeys = new HashMap<String,Integer>();
+        TransvoxelMeshBuilder builder = TransvoxelMeshBuilder.get();
+        Random random = new Random(5);
+        Vector3f vert = new Vector3f();
+        //enough distinct positions to force the builder to grow and rehash
+        for(int i = 0; i < TransvoxelMeshBuilder.INITIAL_VERT_CAPACITY * 6; i++){
+            vert.set(random.nextInt(64) * 0.5f, random.nextInt(64) * 0.25f, random.nextInt(8) - 4 + random.nextFloat() * (i % 2));
+            if(i % 17 == 0){
+                //signed zeroes are distinct keys in both schemes
+                vert.x = (i % 34 == 0) ? 0.0f : -0.0f;
+            }
+            String key = vert.x + "_" + vert.y + "_" + vert.z;
+            Integer expected = stringKeys.get(key);
+            if(expected == null){
+                expected = stringKeys.size();
+                stringKeys.put(key, expected);
+            }
+            assertEquals(expected.intValue(), builder.getVertIndex(vert));
+        }
+        assertEquals(stringKeys.size(), builder.vertCount);
+        builder.reset();
+    }
+
+    @UnitTest
+    public void testVoxelStorageMatchesNestedArrays(){
+        TransvoxelChunkData nested = TransvoxelModelGenerationTests.createChunk(1, 0, false);
+        VoxelStorage voxels = new VoxelStorage(false);
+        for(int x = 0; x < VoxelStorage.DIM; x++){
+            for(int y = 0; y < VoxelStorage.DIM; y++){
+                for(int z = 0; z < VoxelStorage.DIM; z++){
+                    voxels.set(x, y, z, nested.terrainGrid[x][y][z], nested.textureGrid[x][y][z]);
+                }
+            }
+        }
+        TerrainChunkData expected = TransvoxelModelGeneration.generateTerrainChunkData(nested);
+        TerrainChunkData actual = TransvoxelModelGeneration.generateTerrainChunkData(new TransvoxelChunkData(voxels, 0));
+        assertTrue(expected.getVertices().length > 0);
+        assertArrayEquals(expected.getVertices(), actual.getVertices());
+        assertArrayEquals(expected.getNormals(), actual.getNormals());
+        assertArrayEquals(expected.getFaceElements(), actual.getFaceElements());
+        assertArrayEquals(expected.getUVs(), actual.getUVs());
+        assertArrayEquals(expected.getTextureSamplers(), actual.getTextureSamplers());
+        assertArrayEquals(expected.getTextureRatioVectors(), actual.getTextureRatioVectors());
+    }
+
+    /**
+     * Measures meshing throughput in chunks per second
+     */
+    @BenchmarkTest
+    public void benchmarkThroughput(){
+        TransvoxelChunkData[] chunks = new TransvoxelChunkData[]{
+            TransvoxelModelGenerationTests.createChunk(1, 0, false),
+            TransvoxelModelGenerationTests.createChunk(2, 1, true),
+        };
+        //warm up
+        for(int i = 0; i < 20; i++){
+            TransvoxelModelGeneration.generateTerrainChunkData(chunks[i % chunks.length]);
+        }
+        long start = System.nanoTime();
+        for(int i = 0; i < BENCHMARK_CHUNK_COUNT; i++){
+            TransvoxelModelGeneration.generateTerrainChunkData(chunks[i % chunks.length]);
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.println(
+            "Transvoxel meshing benchmark - chunks: " + BENCHMARK_CHUNK_COUNT +
+            " throughput: " + String.format("%.1f", BENCHMARK_CHUNK_COUNT / (elapsed / 1000000000.0)) + " chunks/sec"
+        );
+    }
+
+    /**
+     * Checks that a buffer filled by the mesher holds exactly the values of an array
+     * @param expected The array
+     * @param actual The buffer, positioned after its last value
+     */
+    static void assertBufferEquals(float[] expected, FloatBuffer actual){
+        assertEquals(expected.length, actual.position());
+        for(int i = 0; i < expected.length; i++){
+            assertEquals(Float.floatToIntBits(expected[i]), Float.floatToIntBits(actual.get(i)));
+        }
+    }
+
+    /**
+     * Creates chunk data for a rolling heightfield with some noise in the weights
+     * @param seed The seed
+     * @param lod The level of detail
+     * @param transitions true to add higher resolution edges on every face
+     * @return The chunk data
+     */
+    static TransvoxelChunkData createChunk(long seed, int lod, boolean transitions){
+        if(LoggerInterface.loggerRenderer == null){
+            LoggerInterface.initLoggers();
+        }
+        for(int i = 1; i < 4; i++){
+            Globals.voxelTextureAtlas.putTypeCoord(i, i * 10);
+        }
+        Random random = new Random(seed);
+        int dim = ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE;
+        float[][][] weights = new float[dim][dim][dim];
+        int[][][] types = new int[dim][dim][dim];
+        for(int x = 0; x < dim; x++){
+            for(int z = 0; z < dim; z++){
+                float height = 8 + 3 * (float)Math.sin(x * 0.4 + seed) + 2 * (float)Math.cos(z * 0.3);
+                for(int y = 0; y < dim; y++){
+                    weights[x][y][z] = Math.max(-1, Math.min(1, height - y + (random.nextFloat() - 0.5f) * 0.2f));
+                    types[x][y][z] = 1 + random.nextInt(3);
+                }
+            }
+        }
+        TransvoxelChunkData rVal = new TransvoxelChunkData(weights, types, lod);
+        if(transitions){
+            int faceDim = TransvoxelModelGeneration.FACE_DATA_DIMENSIONS;
+            float[][][] faceWeights = new float[6][faceDim][faceDim];
+            int[][][] faceTypes = new int[6][faceDim][faceDim];
+            for(int face = 0; face < 6; face++){
+                for(int u = 0; u < faceDim; u++){
+                    for(int v = 0; v < faceDim; v++){
+                        //y is the first face axis for x faces, and the second for z faces
+                        float y = face < 2 ? u / 2.0f : (face < 4 ? 8 : v / 2.0f);
+                        faceWeights[face][u][v] = Math.max(-1, Math.min(1, 8 - y + (random.nextFloat() - 0.5f) * 0.2f));
+                        faceTypes[face][u][v] = 1 + random.nextInt(3);
+                    }
+                }
+            }
+            rVal.addXPositiveEdge(faceWeights[0], faceTypes[0]);
+            rVal.addXNegativeEdge(faceWeights[1], faceTypes[1]);
+            rVal.addYPositiveEdge(faceWeights[2], faceTypes[2]);
+            rVal.addYNegativeEdge(faceWeights[3], faceTypes[3]);
+            rVal.addZPositiveEdge(faceWeights[4], faceTypes[4]);
+            rVal.addZNegativeEdge(faceWeights[5], faceTypes[5]);
+        }
+        return rVal;
+    }
+
 }
@@ -0,0 +1,177 @@
+package electrosphere.server.datacell;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.joml.Quaterniond;
+import org.joml.Vector3d;
+import org.ode4j.ode.DBody;
+
+import electrosphere.collision.CollisionBodyCreation;
+import electrosphere.collision.CollisionEngine;
+import electrosphere.collision.PhysicsUtils;
+import electrosphere.collision.collidable.Collidable;
+import electrosphere.logger.LoggerInterface;
+import electrosphere.test.annotations.BenchmarkTest;
+import electrosphere.test.annotations.UnitTest;
+
+/**
+ * Tests for stepping realm physics concurrently
+ */
+public class RealmPhysicsSchedulerTests {
+
+    /**
+     * Number of free falling bodies in each benchmark engine
+     */
+    static final int BENCHMARK_BODY_COUNT = 400;
+
+    /**
+     * Number of frames simulated for each benchmark run
+     */
+    static final int BENCHMARK_FRAME_COUNT = 10;
+
+    @UnitTest
+    public void testRunsEveryStep(){
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        RealmPhysicsScheduler scheduler = new RealmPhysicsScheduler(executor);
+        AtomicInteger count = new AtomicInteger(0);
+        List<Runnable> steps = new ArrayList<Runnable>();
+        for(int i = 0; i < 5; i++){
+            steps.add(() -> {
+                count.incrementAndGet();
+            });
+        }
+        scheduler.runAll(steps);
+        assertEquals(5, count.get());
+        scheduler.runAll(new ArrayList<Runnable>());
+        assertEquals(5, count.get());
+        executor.shutdown();
+    }
+
+    @UnitTest
+    public void testEnginesStepIndependently(){
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        RealmPhysicsScheduler scheduler = new RealmPhysicsScheduler(executor);
+        List<CollisionEngine> engines = new ArrayList<CollisionEngine>();
+        List<DBody> bodies = new ArrayList<DBody>();
+        List<Runnable> steps = new ArrayList<Runnable>();
+        for(int i = 0; i < 4; i++){
+            CollisionEngine engine = new CollisionEngine("schedulerTest" + i);
+            DBody body = CollisionBodyCreation.createSphereBody(engine, 0.5, Collidable.TYPE_CREATURE_BIT);
+            PhysicsUtils.setRigidBodyTransform(engine, new Vector3d(0,100,0), new Quaterniond(), body);
+            engines.add(engine);
+            bodies.add(body);
+            steps.add(engine::simulatePhysics);
+        }
+        scheduler.runAll(steps);
+        //every engine stepped exactly once, so every body fell the same distance
+        double expected = bodies.get(0).getPosition().get1();
+        assertTrue(expected < 100);
+        for(DBody body : bodies){
+            assertEquals(expected, body.getPosition().get1(), 0.0001);
+        }
+        executor.shutdown();
+    }
+
+    @UnitTest
+    public void testInterruptStopsScheduling() throws InterruptedException {
+        LoggerInterface.initLoggers();
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        RealmPhysicsScheduler scheduler = new RealmPhysicsScheduler(executor);
+        AtomicInteger count = new AtomicInteger(0);
+        List<Runnable> steps = new ArrayList<Runnable>();
+        //the first step runs on the calling thread and interrupts it before it waits on the rest
+        steps.add(() -> {
+            count.incrementAndGet();
+            Thread.currentThread().interrupt();
+        });
+        for(int i = 0; i < 4; i++){
+            steps.add(() -> {
+                count.incrementAndGet();
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        scheduler.runAll(steps);
+        //the interrupt survives for the caller to act on
+        assertTrue(Thread.interrupted());
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(count.get() < steps.size());
+
+        //an interrupted caller doesn't hand out any more work (the pool is shut down, so submitting would throw)
+        Thread.currentThread().interrupt();
+        int before = count.get();
+        scheduler.runAll(steps);
+        assertTrue(Thread.interrupted());
+        assertEquals(before, count.get());
+    }
+
+    /**
+     * Benchmarks stepping N realms serially vs on the scheduler.
+     * Each realm's engine has BENCHMARK_BODY_COUNT bodies that never touch, so the work per realm is fixed.
+     * Serial time grows linearly with realm count, scheduled time should stay roughly flat until the worker pool is saturated.
+     */
+    @BenchmarkTest
+    public void benchmarkRealmScaling(){
+        int maxRealms = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(maxRealms - 1);
+        RealmPhysicsScheduler scheduler = new RealmPhysicsScheduler(executor);
+        List<Runnable> steps = new ArrayList<Runnable>();
+        for(int realmCount = 1; realmCount <= maxRealms; realmCount = realmCount * 2){
+            while(steps.size() < realmCount){
+                CollisionEngine engine = RealmPhysicsSchedulerTests.createBenchmarkEngine("benchmark" + steps.size());
+                steps.add(engine::simulatePhysics);
+            }
+            //warm up
+            scheduler.runAll(steps);
+
+            long serialStart = System.nanoTime();
+            for(int frame = 0; frame < BENCHMARK_FRAME_COUNT; frame++){
+                for(Runnable step : steps){
+                    step.run();
+                }
+            }
+            long serialTime = System.nanoTime() - serialStart;
+
+            long scheduledStart = System.nanoTime();
+            for(int frame = 0; frame < BENCHMARK_FRAME_COUNT; frame++){
+                scheduler.runAll(steps);
+            }
+            long scheduledTime = System.nanoTime() - scheduledStart;
+
+            System.out.println(
+                "Realm physics benchmark - realms: " + realmCount +
+                " serial: " + (serialTime / BENCHMARK_FRAME_COUNT / 1000) + "us/frame" +
+                " scheduled: " + (scheduledTime / BENCHMARK_FRAME_COUNT / 1000) + "us/frame" +
+                " speedup: " + String.format("%.2f", (double)serialTime / scheduledTime)
+            );
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Creates an engine with a grid of free falling bodies spaced far enough apart that they never collide
+     * @param name The name of the engine
+     * @return The engine
+     */
+    static CollisionEngine createBenchmarkEngine(String name){
+        CollisionEngine rVal = new CollisionEngine(name);
+        int side = (int)Math.ceil(Math.sqrt(BENCHMARK_BODY_COUNT));
+        for(int i = 0; i < BENCHMARK_BODY_COUNT; i++){
+            DBody body = CollisionBodyCreation.createSphereBody(rVal, 0.5, Collidable.TYPE_CREATURE_BIT);
+            PhysicsUtils.setRigidBodyTransform(rVal, new Vector3d((i % side) * 4, 100, (i / side) * 4), new Quaterniond(), body);
+        }
+        return rVal;
+    }
+
+}
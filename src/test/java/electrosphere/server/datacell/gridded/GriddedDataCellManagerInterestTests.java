@@ -0,0 +1,334 @@
+package electrosphere.server.datacell.gridded;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.joml.Vector3d;
+import org.joml.Vector3i;
+
+import electrosphere.engine.EngineState;
+import electrosphere.engine.Globals;
+import electrosphere.entity.Entity;
+import electrosphere.entity.EntityCreationUtils;
+import electrosphere.entity.EntityDataStrings;
+import electrosphere.entity.EntityUtils;
+import electrosphere.net.parser.net.message.NetworkMessage;
+import electrosphere.net.server.player.Player;
+import electrosphere.server.datacell.Realm;
+import electrosphere.server.datacell.ServerDataCell;
+import electrosphere.server.datacell.ServerWorldData;
+import electrosphere.server.entity.ServerContentManager;
+import electrosphere.server.physics.terrain.manager.ServerTerrainChunk;
+import electrosphere.server.saves.Save;
+import electrosphere.server.saves.SaveUtils;
+import electrosphere.test.annotations.UnitTest;
+import electrosphere.util.FileUtils;
+
+/**
+ * Checks that incremental interest management keeps the same cell memberships as the full recompute
+ */
+public class GriddedDataCellManagerInterestTests {
+
+    /**
+     * The simulation radius of the test players
+     */
+    static final int TEST_RADIUS = 3;
+
+    /**
+     * The name of the save the cells read from
+     */
+    static final String SAVE_NAME = "interestTest";
+
+    /**
+     * A player without a connection
+     */
+    static class TestPlayer extends Player {
+
+        /**
+         * Constructor
+         * @param id The id of the player
+         */
+        TestPlayer(int id){
+            super(id, Player.CLIENT_DB_ID);
+            this.setSimulationRadius(TEST_RADIUS);
+        }
+
+        @Override
+        public void addMessage(NetworkMessage message){
+        }
+
+    }
+
+    /**
+     * A manager updated with the full recompute
+     */
+    GriddedDataCellManager fullManager;
+
+    /**
+     * A manager updated incrementally
+     */
+    GriddedDataCellManager incrementalManager;
+
+    /**
+     * The world both managers run over
+     */
+    ServerWorldData worldData;
+
+    /**
+     * The value of the flag before the test
+     */
+    boolean previousFlag;
+
+    /**
+     * Sets up both managers over the same world
+     */
+    void setup(){
+        Globals.initGlobals();
+        previousFlag = EngineState.EngineFlags.INCREMENTAL_INTEREST_MANAGEMENT;
+        //the cells load their content and physics in the background, give them an empty save to read from
+        FileUtils.recursivelyDelete(SaveUtils.deriveSaveDirectoryPath(SAVE_NAME));
+        FileUtils.createDirectory(SaveUtils.deriveSaveDirectoryPath(SAVE_NAME));
+        Globals.serverState.currentSave = new Save(SAVE_NAME);
+        worldData = ServerWorldData.createGenerationTestWorldData();
+        worldData.getServerTerrainManager().load(SAVE_NAME);
+        worldData.getServerBlockManager().generate();
+        Realm fullRealm = Globals.serverState.realmManager.createGriddedRealm(worldData, ServerContentManager.createServerContentManager(false, null));
+        Realm incrementalRealm = Globals.serverState.realmManager.createGriddedRealm(worldData, ServerContentManager.createServerContentManager(false, null));
+        fullManager = (GriddedDataCellManager)fullRealm.getDataCellManager();
+        incrementalManager = (GriddedDataCellManager)incrementalRealm.getDataCellManager();
+    }
+
+    /**
+     * Tears down the globals
+     */
+    void teardown(){
+        EngineState.EngineFlags.INCREMENTAL_INTEREST_MANAGEMENT = previousFlag;
+        worldData.getServerTerrainManager().closeThreads();
+        worldData.getServerBlockManager().closeThreads();
+        Globals.resetGlobals();
+        FileUtils.recursivelyDelete(SaveUtils.deriveSaveDirectoryPath(SAVE_NAME));
+    }
+
+    /**
+     * Creates a registered player whose entity is at the center of a chunk
+     * @param id The id of the player
+     * @param chunk The chunk
+     * @return The player
+     */
+    static Player createPlayer(int id, Vector3i chunk){
+        Player rVal = new TestPlayer(id);
+        Entity entity = EntityCreationUtils.createRealmlessServerEntity();
+        entity.putData(EntityDataStrings.DATA_STRING_POSITION, new Vector3d());
+        rVal.setPlayerEntity(entity);
+        GriddedDataCellManagerInterestTests.moveTo(rVal, chunk);
+        Globals.serverState.playerManager.registerPlayer(rVal);
+        return rVal;
+    }
+
+    /**
+     * Moves a player's entity to the center of a chunk
+     * @param player The player
+     * @param chunk The chunk
+     */
+    static void moveTo(Player player, Vector3i chunk){
+        double half = ServerTerrainChunk.CHUNK_PLACEMENT_OFFSET / 2.0;
+        EntityUtils.getPosition(player.getPlayerEntity()).set(
+            chunk.x * ServerTerrainChunk.CHUNK_PLACEMENT_OFFSET + half,
+            chunk.y * ServerTerrainChunk.CHUNK_PLACEMENT_OFFSET + half,
+            chunk.z * ServerTerrainChunk.CHUNK_PLACEMENT_OFFSET + half
+        );
+    }
+
+    /**
+     * Runs one update on both managers, each with its own path
+     */
+    void update(){
+        EngineState.EngineFlags.INCREMENTAL_INTEREST_MANAGEMENT = false;
+        fullManager.updatePlayerPositions();
+        //cells the full recompute creates start at a closest distance of 0 until its next pass
+        fullManager.updatePlayerPositions();
+        EngineState.EngineFlags.INCREMENTAL_INTEREST_MANAGEMENT = true;
+        incrementalManager.updatePlayerPositions();
+    }
+
+    /**
+     * Gets the positions of the cells that hold a player
+     * @param manager The manager
+     * @param player The player
+     * @return The positions
+     */
+    static Set<Vector3i> getMemberships(GriddedDataCellManager manager, Player player){
+        Set<Vector3i> rVal = new HashSet<Vector3i>();
+        manager.loadedCellsLock.lock();
+        for(ServerDataCell cell : manager.groundDataCells.values()){
+            if(cell.containsPlayer(player)){
+                rVal.add(new Vector3i(manager.getCellWorldPosition(cell)));
+            }
+        }
+        manager.loadedCellsLock.unlock();
+        return rVal;
+    }
+
+    /**
+     * Gets the closest player distance of every cell that holds a player
+     * @param manager The manager
+     * @return The distance of each cell, keyed by position
+     */
+    static Map<Vector3i,Double> getClosestDistances(GriddedDataCellManager manager){
+        Map<Vector3i,Double> rVal = new HashMap<Vector3i,Double>();
+        manager.loadedCellsLock.lock();
+        for(ServerDataCell cell : manager.groundDataCells.values()){
+            if(cell.getPlayers().size() > 0){
+                rVal.put(new Vector3i(manager.getCellWorldPosition(cell)), manager.cellTrackingMap.get(cell).getClosestPlayer());
+            }
+        }
+        manager.loadedCellsLock.unlock();
+        return rVal;
+    }
+
+    /**
+     * Asserts that both managers agree on every player's memberships and every occupied cell's closest player
+     * @param players The players
+     */
+    void assertManagersMatch(List<Player> players){
+        for(Player player : players){
+            Set<Vector3i> expected = GriddedDataCellManagerInterestTests.getMemberships(fullManager, player);
+            assertFalse(expected.isEmpty());
+            assertEquals(expected, GriddedDataCellManagerInterestTests.getMemberships(incrementalManager, player), "Memberships differ for player " + player.getId());
+        }
+        Map<Vector3i,Double> expectedDistances = GriddedDataCellManagerInterestTests.getClosestDistances(fullManager);
+        Map<Vector3i,Double> actualDistances = GriddedDataCellManagerInterestTests.getClosestDistances(incrementalManager);
+        assertEquals(expectedDistances.keySet(), actualDistances.keySet());
+        for(Map.Entry<Vector3i,Double> entry : expectedDistances.entrySet()){
+            assertEquals(entry.getValue(), actualDistances.get(entry.getKey()), 0.0001, "Closest player differs at " + entry.getKey());
+        }
+    }
+
+    /**
+     * Gets the cell at a position
+     * @param manager The manager
+     * @param position The position
+     * @return The cell
+     */
+    static ServerDataCell getCell(GriddedDataCellManager manager, Vector3i position){
+        return manager.getCellAtWorldPosition(position);
+    }
+
+    @UnitTest
+    public void testSingleChunkMoves(){
+        this.setup();
+        Vector3i chunk = new Vector3i(20, 4, 20);
+        Player player = GriddedDataCellManagerInterestTests.createPlayer(1, chunk);
+        this.update();
+        this.assertManagersMatch(List.of(player));
+        int[][] steps = new int[][]{{1,0,0},{1,0,0},{0,0,1},{0,1,0},{-1,0,0},{0,-1,-1},{-1,0,0}};
+        for(int[] step : steps){
+            chunk.add(step[0], step[1], step[2]);
+            GriddedDataCellManagerInterestTests.moveTo(player, chunk);
+            this.update();
+            this.assertManagersMatch(List.of(player));
+        }
+        this.teardown();
+    }
+
+    @UnitTest
+    public void testMultiChunkMoves(){
+        this.setup();
+        Vector3i chunk = new Vector3i(20, 4, 20);
+        Player first = GriddedDataCellManagerInterestTests.createPlayer(1, chunk);
+        Vector3i otherChunk = new Vector3i(23, 4, 21);
+        Player second = GriddedDataCellManagerInterestTests.createPlayer(2, otherChunk);
+        this.update();
+        this.assertManagersMatch(List.of(first, second));
+        for(int i = 0; i < 4; i++){
+            chunk.add(2, 0, 3);
+            otherChunk.add(-3, 1, 0);
+            GriddedDataCellManagerInterestTests.moveTo(first, chunk);
+            GriddedDataCellManagerInterestTests.moveTo(second, otherChunk);
+            this.update();
+            this.assertManagersMatch(List.of(first, second));
+        }
+        this.teardown();
+    }
+
+    @UnitTest
+    public void testTeleport(){
+        this.setup();
+        Vector3i start = new Vector3i(20, 4, 20);
+        Player player = GriddedDataCellManagerInterestTests.createPlayer(1, start);
+        this.update();
+        GriddedDataCellManagerInterestTests.moveTo(player, new Vector3i(60, 4, 45));
+        this.update();
+        this.assertManagersMatch(List.of(player));
+        assertFalse(GriddedDataCellManagerInterestTests.getMemberships(incrementalManager, player).contains(start));
+        GriddedDataCellManagerInterestTests.moveTo(player, start);
+        this.update();
+        this.assertManagersMatch(List.of(player));
+        this.teardown();
+    }
+
+    @UnitTest
+    public void testDisconnect(){
+        this.setup();
+        Player leaving = GriddedDataCellManagerInterestTests.createPlayer(1, new Vector3i(20, 4, 20));
+        Vector3i chunk = new Vector3i(22, 4, 20);
+        Player staying = GriddedDataCellManagerInterestTests.createPlayer(2, chunk);
+        this.update();
+        this.assertManagersMatch(List.of(leaving, staying));
+
+        //a disconnect destroys the player's entity, which deregisters it from its cell but leaves the player registered
+        Vector3i leavingChunk = new Vector3i(20, 4, 20);
+        for(GriddedDataCellManager manager : new GriddedDataCellManager[]{fullManager, incrementalManager}){
+            GriddedDataCellManagerInterestTests.getCell(manager, leavingChunk).getScene().registerEntity(leaving.getPlayerEntity());
+        }
+        this.update();
+        for(GriddedDataCellManager manager : new GriddedDataCellManager[]{fullManager, incrementalManager}){
+            GriddedDataCellManagerInterestTests.getCell(manager, leavingChunk).getScene().deregisterEntity(leaving.getPlayerEntity());
+        }
+        for(int i = 0; i < 3; i++){
+            chunk.add(3, 0, 0);
+            GriddedDataCellManagerInterestTests.moveTo(staying, chunk);
+            this.update();
+            this.assertManagersMatch(List.of(leaving, staying));
+        }
+        this.teardown();
+    }
+
+    @UnitTest
+    public void testCellHoldingPlayerEntityIsReleasedOnceEntityLeaves(){
+        this.setup();
+        Vector3i start = new Vector3i(20, 4, 20);
+        Player player = GriddedDataCellManagerInterestTests.createPlayer(1, start);
+        this.update();
+
+        //the entity is still filed under the starting cell when the view jumps away
+        for(GriddedDataCellManager manager : new GriddedDataCellManager[]{fullManager, incrementalManager}){
+            GriddedDataCellManagerInterestTests.getCell(manager, start).getScene().registerEntity(player.getPlayerEntity());
+        }
+        Vector3i destination = new Vector3i(40, 4, 20);
+        GriddedDataCellManagerInterestTests.moveTo(player, destination);
+        this.update();
+        this.assertManagersMatch(List.of(player));
+        assertTrue(GriddedDataCellManagerInterestTests.getMemberships(incrementalManager, player).contains(start));
+
+        //the entity moves to the cell it is actually in, the player doesn't change chunk
+        for(GriddedDataCellManager manager : new GriddedDataCellManager[]{fullManager, incrementalManager}){
+            ServerDataCell.moveEntityFromCellToCell(
+                player.getPlayerEntity(),
+                GriddedDataCellManagerInterestTests.getCell(manager, start),
+                GriddedDataCellManagerInterestTests.getCell(manager, destination)
+            );
+        }
+        this.update();
+        this.assertManagersMatch(List.of(player));
+        assertFalse(GriddedDataCellManagerInterestTests.getMemberships(incrementalManager, player).contains(start));
+        assertFalse(incrementalManager.playerLingeringCells.containsKey(player));
+        this.teardown();
+    }
+
+}
@@ -0,0 +1,216 @@
+package electrosphere.server.datacell.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.joml.Vector3d;
+
+import electrosphere.entity.Entity;
+import electrosphere.entity.EntityCreationUtils;
+import electrosphere.entity.EntityDataStrings;
+import electrosphere.entity.EntityUtils;
+import electrosphere.test.annotations.BenchmarkTest;
+import electrosphere.test.annotations.UnitTest;
+
+/**
+ * Tests for the entity spatial index
+ */
+public class EntitySpatialIndexTests {
+
+    /**
+     * Size of the benchmark world along each axis
+     */
+    static final double BENCHMARK_WORLD_SIZE = 512;
+
+    /**
+     * Radius used for benchmark queries
+     */
+    static final double BENCHMARK_RADIUS = 32;
+
+    /**
+     * Number of queries run per benchmark
+     */
+    static final int BENCHMARK_QUERY_COUNT = 1000;
+
+    @UnitTest
+    public void testRadiusQueryIsExact(){
+        EntitySpatialIndex index = new EntitySpatialIndex();
+        Entity near = EntitySpatialIndexTests.createEntity(index, new Vector3d(10,10,10));
+        Entity edge = EntitySpatialIndexTests.createEntity(index, new Vector3d(15,10,10));
+        Entity sameCellFar = EntitySpatialIndexTests.createEntity(index, new Vector3d(15.9,15.9,15.9));
+        Entity otherCell = EntitySpatialIndexTests.createEntity(index, new Vector3d(40,10,10));
+        List<Entity> results = new ArrayList<Entity>();
+        index.queryRadius(new Vector3d(10,10,10), 5, results);
+        assertTrue(results.contains(near));
+        assertTrue(results.contains(edge));
+        assertFalse(results.contains(sameCellFar));
+        assertFalse(results.contains(otherCell));
+
+        //different radii from the same cell must give different answers
+        results.clear();
+        index.queryRadius(new Vector3d(10,10,10), 31, results);
+        assertTrue(results.contains(otherCell));
+        assertEquals(4, results.size());
+    }
+
+    @UnitTest
+    public void testAABBQuery(){
+        EntitySpatialIndex index = new EntitySpatialIndex();
+        Entity inside = EntitySpatialIndexTests.createEntity(index, new Vector3d(20,20,20));
+        Entity outside = EntitySpatialIndexTests.createEntity(index, new Vector3d(20,40,20));
+        List<Entity> results = new ArrayList<Entity>();
+        index.queryAABB(new Vector3d(0,0,0), new Vector3d(32,32,32), results);
+        assertTrue(results.contains(inside));
+        assertFalse(results.contains(outside));
+    }
+
+    @UnitTest
+    public void testUpdateMovesEntities(){
+        EntitySpatialIndex index = new EntitySpatialIndex();
+        Entity entity = EntitySpatialIndexTests.createEntity(index, new Vector3d(1,1,1));
+        List<Entity> results = new ArrayList<Entity>();
+
+        //across a cell boundary
+        EntityUtils.getPosition(entity).set(100,100,100);
+        index.update(entity, EntityUtils.getPosition(entity));
+        index.queryRadius(new Vector3d(100,100,100), 1, results);
+        assertEquals(List.of(entity), results);
+        results.clear();
+        index.queryRadius(new Vector3d(1,1,1), 1, results);
+        assertTrue(results.isEmpty());
+
+        //within the same cell
+        EntityUtils.getPosition(entity).set(101,100,100);
+        index.update(entity, EntityUtils.getPosition(entity));
+        results.clear();
+        index.queryRadius(new Vector3d(101,100,100), 0.5, results);
+        assertEquals(List.of(entity), results);
+        assertEquals(1, index.size());
+    }
+
+    @UnitTest
+    public void testRemove(){
+        EntitySpatialIndex index = new EntitySpatialIndex();
+        Entity first = EntitySpatialIndexTests.createEntity(index, new Vector3d(1,1,1));
+        Entity second = EntitySpatialIndexTests.createEntity(index, new Vector3d(2,2,2));
+        Entity third = EntitySpatialIndexTests.createEntity(index, new Vector3d(3,3,3));
+        index.remove(first);
+        assertFalse(index.contains(first));
+        assertEquals(2, index.size());
+        List<Entity> results = new ArrayList<Entity>();
+        index.queryRadius(new Vector3d(2,2,2), 5, results);
+        assertEquals(2, results.size());
+        assertTrue(results.contains(second));
+        assertTrue(results.contains(third));
+    }
+
+    @UnitTest
+    public void testManyCellsSurviveRehash(){
+        EntitySpatialIndex index = new EntitySpatialIndex();
+        List<Entity> entities = new ArrayList<Entity>();
+        for(int i = 0; i < 500; i++){
+            entities.add(EntitySpatialIndexTests.createEntity(index, new Vector3d(i * 16 + 1, (i % 7) * 16 + 1, 1)));
+        }
+        //move everything so that most of the original buckets are left empty
+        for(int i = 0; i < 250; i++){
+            Entity entity = entities.get(i);
+            EntityUtils.getPosition(entity).set(1, 1, i * 16 + 1);
+            index.update(entity, EntityUtils.getPosition(entity));
+        }
+        for(int i = 0; i < entities.size(); i++){
+            Entity entity = entities.get(i);
+            List<Entity> results = new ArrayList<Entity>();
+            index.queryRadius(EntityUtils.getPosition(entity), 0.5, results);
+            assertEquals(List.of(entity), results);
+        }
+    }
+
+    @BenchmarkTest
+    public void benchmarkAgainstCellScan1k(){
+        EntitySpatialIndexTests.benchmark(1000);
+    }
+
+    @BenchmarkTest
+    public void benchmarkAgainstCellScan10k(){
+        EntitySpatialIndexTests.benchmark(10000);
+    }
+
+    /**
+     * Benchmarks the index against the previous lookup, which scanned every loaded cell and copied the entity lists of all cells near the point
+     * @param entityCount The number of entities
+     */
+    static void benchmark(int entityCount){
+        Random random = new Random(1);
+        EntitySpatialIndex index = new EntitySpatialIndex();
+        Map<Long,List<Entity>> cells = new HashMap<Long,List<Entity>>();
+        Map<Long,Vector3d> cellPositions = new HashMap<Long,Vector3d>();
+        double cellSize = EntitySpatialIndex.DEFAULT_CELL_SIZE;
+        for(int i = 0; i < entityCount; i++){
+            Vector3d position = new Vector3d(random.nextDouble() * BENCHMARK_WORLD_SIZE, random.nextDouble() * 64, random.nextDouble() * BENCHMARK_WORLD_SIZE);
+            Entity entity = EntitySpatialIndexTests.createEntity(index, position);
+            long key = EntitySpatialIndex.packKey((int)(position.x / cellSize), (int)(position.y / cellSize), (int)(position.z / cellSize));
+            if(!cells.containsKey(key)){
+                cells.put(key, new LinkedList<Entity>());
+                cellPositions.put(key, new Vector3d((int)(position.x / cellSize), (int)(position.y / cellSize), (int)(position.z / cellSize)).mul(cellSize));
+            }
+            cells.get(key).add(entity);
+        }
+        Vector3d[] queries = new Vector3d[BENCHMARK_QUERY_COUNT];
+        for(int i = 0; i < BENCHMARK_QUERY_COUNT; i++){
+            queries[i] = new Vector3d(random.nextDouble() * BENCHMARK_WORLD_SIZE, random.nextDouble() * 64, random.nextDouble() * BENCHMARK_WORLD_SIZE);
+        }
+
+        //previous implementation
+        long scanCount = 0;
+        long scanStart = System.nanoTime();
+        for(Vector3d query : queries){
+            List<Entity> rVal = new LinkedList<Entity>();
+            for(Map.Entry<Long,List<Entity>> cell : cells.entrySet()){
+                if(cellPositions.get(cell.getKey()).distance(query) > BENCHMARK_RADIUS){
+                    continue;
+                }
+                rVal.addAll(cell.getValue());
+            }
+            scanCount = scanCount + rVal.size();
+        }
+        long scanTime = System.nanoTime() - scanStart;
+
+        //index
+        final long[] indexCount = new long[1];
+        EntitySpatialIndex.EntityVisitor visitor = (Entity entity) -> {
+            indexCount[0]++;
+        };
+        long indexStart = System.nanoTime();
+        for(Vector3d query : queries){
+            index.queryRadius(query, BENCHMARK_RADIUS, visitor);
+        }
+        long indexTime = System.nanoTime() - indexStart;
+
+        assertTrue(indexCount[0] > 0);
+        System.out.println(
+            "Entity lookup benchmark - entities: " + entityCount +
+            " cell scan: " + (scanTime / BENCHMARK_QUERY_COUNT) + "ns/query (" + scanCount + " candidates)" +
+            " index: " + (indexTime / BENCHMARK_QUERY_COUNT) + "ns/query (" + indexCount[0] + " exact matches)"
+        );
+    }
+
+    /**
+     * Creates an entity at a position and adds it to the index
+     * @param index The index
+     * @param position The position
+     * @return The entity
+     */
+    static Entity createEntity(EntitySpatialIndex index, Vector3d position){
+        Entity rVal = EntityCreationUtils.createRealmlessServerEntity();
+        rVal.putData(EntityDataStrings.DATA_STRING_POSITION, new Vector3d(position));
+        index.update(rVal, EntityUtils.getPosition(rVal));
+        return rVal;
+    }
+
+}
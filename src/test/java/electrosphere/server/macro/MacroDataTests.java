@@ -2,8 +2,20 @@ package electrosphere.server.macro;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.Arrays;
+import java.util.List;
+
+import org.joml.Vector3d;
+
+import electrosphere.data.macro.struct.StructureData;
 import electrosphere.engine.Globals;
 import electrosphere.server.datacell.ServerWorldData;
+import electrosphere.server.macro.civilization.road.Road;
+import electrosphere.server.macro.civilization.town.Town;
+import electrosphere.server.macro.region.MacroRegion;
+import electrosphere.server.macro.spatial.MacroObject;
+import electrosphere.server.macro.structure.VirtualStructure;
+import electrosphere.util.math.region.RegionPrism;
 import electrosphere.test.annotations.UnitTest;
 
 /**
@@ -22,4 +34,45 @@ public class MacroDataTests {
         Globals.resetGlobals();
     }
 
+    @UnitTest
+    public void testChunkObjectsAreTownScopedAndOrdered(){
+        MacroData macroData = new MacroData();
+        StructureData data = new StructureData();
+        data.setDimensions(new Vector3d(2,2,2));
+
+        //created in an interleaved order, the way the simulation creates them at runtime
+        VirtualStructure standalone = VirtualStructure.createStructure(macroData, data, new Vector3d(1,1,1), VirtualStructure.ROT_FACE_EAST);
+        Town firstTown = Town.createTown(macroData, new Vector3d(8,8,8), 4, 0);
+        VirtualStructure firstTownStructA = VirtualStructure.createStructure(macroData, data, new Vector3d(4,4,4), VirtualStructure.ROT_FACE_EAST);
+        macroData.addTownStructure(firstTown, firstTownStructA);
+        Road firstRoad = Road.createRoad(macroData, new Vector3d(0,8,8), new Vector3d(16,8,8));
+        Town secondTown = Town.createTown(macroData, new Vector3d(10,8,10), 4, 0);
+        VirtualStructure secondTownStruct = VirtualStructure.createStructure(macroData, data, new Vector3d(10,4,10), VirtualStructure.ROT_FACE_EAST);
+        macroData.addTownStructure(secondTown, secondTownStruct);
+        VirtualStructure firstTownStructB = VirtualStructure.createStructure(macroData, data, new Vector3d(6,4,6), VirtualStructure.ROT_FACE_EAST);
+        macroData.addTownStructure(firstTown, firstTownStructB);
+        Road secondRoad = Road.createRoad(macroData, new Vector3d(8,8,0), new Vector3d(8,8,16));
+        MacroRegion firstTownPlot = MacroRegion.create(macroData, RegionPrism.create(new Vector3d[]{
+            new Vector3d(2,2,2), new Vector3d(6,2,2), new Vector3d(6,2,6), new Vector3d(2,2,6),
+        }, 2));
+        macroData.addTownFarmPlot(firstTown, firstTownPlot);
+        MacroRegion standalonePlot = MacroRegion.create(macroData, RegionPrism.create(new Vector3d[]{
+            new Vector3d(10,2,10), new Vector3d(12,2,10), new Vector3d(12,2,12), new Vector3d(10,2,12),
+        }, 2));
+
+        List<MacroObject> expected = Arrays.asList(
+            firstRoad, secondRoad,
+            firstTown, secondTown,
+            firstTownStructA, firstTownStructB, firstTownPlot, secondTownStruct
+        );
+        List<MacroObject> result = macroData.getChunkObjects(0, 0, 0);
+        assertEquals(expected, result);
+        assertEquals(false, result.contains(standalone));
+        assertEquals(false, result.contains(standalonePlot));
+
+        //reloading inserts into the index in a different order, the result must not change
+        macroData.rebuildDatastructures();
+        assertEquals(expected, macroData.getChunkObjects(0, 0, 0));
+    }
+
 }
@@ -0,0 +1,126 @@
+package electrosphere.server.macro.spatial;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.joml.AABBd;
+import org.joml.Vector3d;
+
+import electrosphere.test.annotations.BenchmarkTest;
+import electrosphere.test.annotations.UnitTest;
+
+/**
+ * Tests for the macro spatial index
+ */
+public class MacroSpatialIndexTests {
+
+    @UnitTest
+    public void testIntersectingObjectsAreFound(){
+        MacroSpatialIndex index = new MacroSpatialIndex();
+        TestObject near = new TestObject(new AABBd(10, 0, 10, 20, 10, 20));
+        TestObject far = new TestObject(new AABBd(1000, 0, 1000, 1010, 10, 1010));
+        TestObject above = new TestObject(new AABBd(10, 500, 10, 20, 510, 20));
+        index.add(near);
+        index.add(far);
+        index.add(above);
+        List<MacroObject> result = index.getIntersecting(new AABBd(0, 0, 0, 16, 16, 16));
+        assertEquals(1, result.size());
+        assertSame(near, result.get(0));
+    }
+
+    @UnitTest
+    public void testSpanningObjectIsReportedOnce(){
+        MacroSpatialIndex index = new MacroSpatialIndex();
+        TestObject road = new TestObject(new AABBd(-300, 0, -5, 900, 10, 5));
+        index.add(road);
+        List<MacroObject> result = index.getIntersecting(new AABBd(-500, -10, -500, 1000, 100, 500));
+        assertEquals(1, result.size());
+        index.remove(road);
+        assertEquals(0, index.getIntersecting(new AABBd(-500, -10, -500, 1000, 100, 500)).size());
+        assertEquals(0, index.getSize());
+    }
+
+    @BenchmarkTest
+    public void benchmarkChunkQueries(){
+        Random random = new Random(0);
+        List<MacroObject> objects = new LinkedList<MacroObject>();
+        MacroSpatialIndex index = new MacroSpatialIndex();
+        int objectCount = 20000;
+        for(int i = 0; i < objectCount; i++){
+            double x = random.nextDouble() * 16384;
+            double z = random.nextDouble() * 16384;
+            TestObject object = new TestObject(new AABBd(x, 0, z, x + 8 + random.nextDouble() * 24, 32, z + 8 + random.nextDouble() * 24));
+            objects.add(object);
+            index.add(object);
+        }
+        int queries = 20000;
+        AABBd[] chunks = new AABBd[queries];
+        for(int i = 0; i < queries; i++){
+            double x = random.nextInt(1024) * 16;
+            double z = random.nextInt(1024) * 16;
+            chunks[i] = new AABBd(x, 0, z, x + 16, 16, z + 16);
+        }
+
+        long scanStart = System.nanoTime();
+        long scanFound = 0;
+        for(AABBd chunk : chunks){
+            for(MacroObject object : objects){
+                if(MacroSpatialIndex.intersects(object, chunk)){
+                    scanFound++;
+                }
+            }
+        }
+        long scanNanos = System.nanoTime() - scanStart;
+
+        long indexStart = System.nanoTime();
+        long indexFound = 0;
+        for(AABBd chunk : chunks){
+            indexFound = indexFound + index.getIntersecting(chunk).size();
+        }
+        long indexNanos = System.nanoTime() - indexStart;
+
+        System.out.println(
+            "Macro objects, " + objectCount + " objects, " + queries + " chunk queries: " +
+            "scan " + (scanNanos / queries) + "ns/query, index " + (indexNanos / queries) + "ns/query"
+        );
+        assertEquals(scanFound, indexFound);
+    }
+
+    /**
+     * An area object with fixed bounds
+     */
+    static class TestObject implements MacroAreaObject {
+
+        /**
+         * The bounds
+         */
+        AABBd aabb;
+
+        /**
+         * Constructor
+         * @param aabb The bounds
+         */
+        TestObject(AABBd aabb){
+            this.aabb = aabb;
+        }
+
+        @Override
+        public Vector3d getPos(){
+            return new Vector3d(aabb.minX, aabb.minY, aabb.minZ);
+        }
+
+        @Override
+        public void setPos(Vector3d pos){
+        }
+
+        @Override
+        public AABBd getAABB(){
+            return aabb;
+        }
+
+    }
+
+}
@@ -0,0 +1,374 @@
+package electrosphere.server.pathfinding.voxel;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.joml.Vector3i;
+
+import electrosphere.client.block.BlockChunkData;
+import electrosphere.engine.Globals;
+import electrosphere.server.datacell.ServerWorldData;
+import electrosphere.server.datacell.interfaces.VoxelCellManager;
+import electrosphere.server.physics.fluid.manager.ServerFluidChunk;
+import electrosphere.server.physics.terrain.generation.interfaces.ChunkGenerator;
+import electrosphere.server.physics.terrain.manager.ServerChunkCache;
+import electrosphere.server.physics.terrain.manager.ServerTerrainChunk;
+import electrosphere.test.annotations.BenchmarkTest;
+import electrosphere.test.annotations.UnitTest;
+import electrosphere.util.math.HashUtils;
+
+/**
+ * Tests for the walkability grid and cache
+ */
+public class WalkabilityGridTests {
+
+    /**
+     * The minimum chunk coordinate along x and z that is checked
+     */
+    static final int MIN_CHUNK = 1;
+
+    /**
+     * The maximum chunk coordinate along x and z that is checked (exclusive)
+     */
+    static final int MAX_CHUNK = 3;
+
+    /**
+     * The maximum chunk coordinate along y that is checked (exclusive)
+     */
+    static final int MAX_CHUNK_Y = 4;
+
+    /**
+     * A voxel cell manager that generates terrain on demand and holds blocks in memory
+     */
+    static class TestCellManager implements VoxelCellManager {
+
+        /**
+         * The generator for terrain
+         */
+        ChunkGenerator generator;
+
+        /**
+         * The generated terrain chunks
+         */
+        Map<Long,ServerTerrainChunk> chunks = new HashMap<Long,ServerTerrainChunk>();
+
+        /**
+         * The block chunks
+         */
+        Map<Long,BlockChunkData> blocks = new HashMap<Long,BlockChunkData>();
+
+        /**
+         * Constructor
+         * @param generator The generator for terrain
+         */
+        TestCellManager(ChunkGenerator generator){
+            this.generator = generator;
+        }
+
+        @Override
+        public float getVoxelWeightAtLocalPosition(Vector3i worldPosition, Vector3i voxelPosition) {
+            return this.getChunkAtPosition(worldPosition).getWeight(voxelPosition);
+        }
+
+        @Override
+        public int getVoxelTypeAtLocalPosition(Vector3i worldPosition, Vector3i voxelPosition) {
+            return this.getChunkAtPosition(worldPosition).getType(voxelPosition);
+        }
+
+        @Override
+        public ServerTerrainChunk getChunkAtPosition(Vector3i worldPosition) {
+            return this.getChunkAtPosition(worldPosition.x, worldPosition.y, worldPosition.z);
+        }
+
+        @Override
+        public ServerTerrainChunk getChunkAtPosition(int worldX, int worldY, int worldZ) {
+            long key = HashUtils.hashIVec(worldX, worldY, worldZ);
+            ServerTerrainChunk rVal = chunks.get(key);
+            if(rVal == null){
+                rVal = generator.generateChunk(null, worldX, worldY, worldZ, ServerChunkCache.STRIDE_FULL_RES);
+                chunks.put(key, rVal);
+            }
+            return rVal;
+        }
+
+        @Override
+        public void editChunk(Vector3i worldPosition, Vector3i voxelPosition, float weight, int type) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public BlockChunkData getBlocksAtPosition(Vector3i worldPosition) {
+            long key = HashUtils.hashIVec(worldPosition.x, worldPosition.y, worldPosition.z);
+            BlockChunkData rVal = blocks.get(key);
+            if(rVal == null){
+                rVal = BlockChunkData.allocate(BlockChunkData.BLOCK_TYPE_EMPTY);
+                blocks.put(key, rVal);
+            }
+            return rVal;
+        }
+
+        @Override
+        public boolean hasBlocksAtPosition(Vector3i worldPosition) {
+            return true;
+        }
+
+        @Override
+        public void editBlock(Vector3i worldPosition, Vector3i voxelPosition, short type, short metadata) {
+            BlockChunkData chunk = this.getBlocksAtPosition(worldPosition);
+            chunk.setType(voxelPosition.x, voxelPosition.y, voxelPosition.z, type);
+            chunk.setHomogenousValue(BlockChunkData.NOT_HOMOGENOUS);
+        }
+
+        @Override
+        public ServerFluidChunk getFluidChunkAtPosition(Vector3i worldPosition) {
+            return null;
+        }
+
+    }
+
+    /**
+     * Checks walkability by reading the managers directly, the way the pathfinder did before it had the grid
+     * @param manager The voxel cell manager
+     * @param chunkPos The chunk position
+     * @param voxelPos The voxel position
+     * @return true if it is walkable, false otherwise
+     */
+    static boolean bruteForceWalkable(VoxelCellManager manager, Vector3i chunkPos, Vector3i voxelPos){
+        int voxelType = manager.getVoxelTypeAtLocalPosition(chunkPos, voxelPos);
+        float voxelWeight = manager.getVoxelWeightAtLocalPosition(chunkPos, voxelPos);
+        int aboveChunk = chunkPos.y + ((voxelPos.y + 1) / ServerTerrainChunk.CHUNK_PLACEMENT_OFFSET);
+        int aboveVoxel = ((voxelPos.y + 1) % ServerTerrainChunk.CHUNK_PLACEMENT_OFFSET);
+        ServerTerrainChunk chunk = manager.getChunkAtPosition(chunkPos.x, aboveChunk, chunkPos.z);
+        int aboveType = chunk.getType(voxelPos.x, aboveVoxel, voxelPos.z);
+        float aboveWeight = chunk.getWeight(voxelPos.x, aboveVoxel, voxelPos.z);
+        boolean standingOnGround = voxelType != ServerTerrainChunk.VOXEL_TYPE_AIR && voxelWeight > 0;
+        boolean aboveIsAir = (aboveType == ServerTerrainChunk.VOXEL_TYPE_AIR || aboveWeight <= 0);
+        Vector3i blockChunkPos = new Vector3i();
+        for(int x = -1; x < 4; x++){
+            for(int y = -2; y < 4; y++){
+                for(int z = -1; z < 3; z++){
+                    int blockX = voxelPos.x * BlockChunkData.BLOCKS_PER_UNIT_DISTANCE + x;
+                    int blockY = voxelPos.y * BlockChunkData.BLOCKS_PER_UNIT_DISTANCE + y + BlockChunkData.BLOCKS_PER_UNIT_DISTANCE;
+                    int blockZ = voxelPos.z * BlockChunkData.BLOCKS_PER_UNIT_DISTANCE + z;
+                    blockChunkPos.set(
+                        chunkPos.x + Math.floorDiv(blockX, BlockChunkData.CHUNK_DATA_WIDTH),
+                        chunkPos.y + Math.floorDiv(blockY, BlockChunkData.CHUNK_DATA_WIDTH),
+                        chunkPos.z + Math.floorDiv(blockZ, BlockChunkData.CHUNK_DATA_WIDTH)
+                    );
+                    BlockChunkData blockChunk = manager.getBlocksAtPosition(blockChunkPos);
+                    if(blockChunk.getType(
+                        Math.floorMod(blockX, BlockChunkData.CHUNK_DATA_WIDTH),
+                        Math.floorMod(blockY, BlockChunkData.CHUNK_DATA_WIDTH),
+                        Math.floorMod(blockZ, BlockChunkData.CHUNK_DATA_WIDTH)
+                    ) != BlockChunkData.BLOCK_TYPE_EMPTY){
+                        return false;
+                    }
+                }
+            }
+        }
+        return standingOnGround && aboveIsAir;
+    }
+
+    /**
+     * Places blocks along the edges of chunks so that the windows that cross chunk borders are exercised
+     * @param manager The manager to place the blocks in
+     */
+    static void placeBlocks(TestCellManager manager){
+        Vector3i blockPos = new Vector3i();
+        for(int x = MIN_CHUNK; x < MAX_CHUNK; x++){
+            for(int y = 0; y < MAX_CHUNK_Y; y++){
+                for(int z = MIN_CHUNK; z < MAX_CHUNK; z++){
+                    Vector3i worldPos = new Vector3i(x, y, z);
+                    for(int i = 0; i < BlockChunkData.CHUNK_DATA_WIDTH; i += 7){
+                        manager.editBlock(worldPos, blockPos.set(0, i, i), (short)1, (short)0);
+                        manager.editBlock(worldPos, blockPos.set(i, 0, BlockChunkData.CHUNK_DATA_WIDTH - 1), (short)1, (short)0);
+                        manager.editBlock(worldPos, blockPos.set(i, i, i), (short)1, (short)0);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The grid should agree with reading the managers directly for every voxel
+     */
+    @UnitTest
+    public void testGridMatchesBruteForce(){
+        Globals.initGlobals();
+        ServerWorldData worldData = ServerWorldData.createGenerationTestWorldData();
+        TestCellManager manager = new TestCellManager(worldData.getServerTerrainManager().getChunkGenerator());
+        WalkabilityGridTests.placeBlocks(manager);
+
+        int walkableCount = 0;
+        int blockedCount = 0;
+        Vector3i chunkPos = new Vector3i();
+        Vector3i voxelPos = new Vector3i();
+        for(int cx = MIN_CHUNK; cx < MAX_CHUNK; cx++){
+            for(int cy = 0; cy < MAX_CHUNK_Y; cy++){
+                for(int cz = MIN_CHUNK; cz < MAX_CHUNK; cz++){
+                    chunkPos.set(cx, cy, cz);
+                    WalkabilityGrid grid = WalkabilityGrid.build(manager, cx, cy, cz);
+                    for(int x = 0; x < WalkabilityGrid.WIDTH; x++){
+                        for(int y = 0; y < WalkabilityGrid.WIDTH; y++){
+                            for(int z = 0; z < WalkabilityGrid.WIDTH; z++){
+                                voxelPos.set(x, y, z);
+                                boolean expected = WalkabilityGridTests.bruteForceWalkable(manager, chunkPos, voxelPos);
+                                assertEquals(expected, grid.isWalkable(x, y, z), "Mismatch at " + chunkPos + " " + voxelPos);
+                                if(expected){
+                                    walkableCount++;
+                                }
+                                if(grid.isStandable(x, y, z) && grid.hasHeadroom(x, y, z) && grid.isBlocked(x, y, z)){
+                                    blockedCount++;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        assertTrue(walkableCount > 0);
+        assertTrue(blockedCount > 0);
+        Globals.resetGlobals();
+    }
+
+    /**
+     * Invalidating a chunk should pick up a block placed on a walkable voxel
+     */
+    @UnitTest
+    public void testInvalidatePicksUpEdit(){
+        Globals.initGlobals();
+        ServerWorldData worldData = ServerWorldData.createGenerationTestWorldData();
+        TestCellManager manager = new TestCellManager(worldData.getServerTerrainManager().getChunkGenerator());
+        WalkabilityCache cache = new WalkabilityCache(WalkabilityCache.DEFAULT_CAPACITY);
+
+        //find a walkable voxel
+        Vector3i chunkPos = null;
+        Vector3i voxelPos = null;
+        for(int cy = 0; cy < MAX_CHUNK_Y && chunkPos == null; cy++){
+            WalkabilityGrid grid = cache.getGrid(manager, MIN_CHUNK, cy, MIN_CHUNK);
+            for(int y = 0; y < WalkabilityGrid.WIDTH && chunkPos == null; y++){
+                if(grid.isWalkable(8, y, 8)){
+                    chunkPos = new Vector3i(MIN_CHUNK, cy, MIN_CHUNK);
+                    voxelPos = new Vector3i(8, y, 8);
+                }
+            }
+        }
+        assertNotNull(chunkPos);
+        assertSame(cache.getGrid(manager, chunkPos.x, chunkPos.y, chunkPos.z), cache.getGrid(manager, chunkPos.x, chunkPos.y, chunkPos.z));
+        assertTrue(cache.getHits() > 0);
+
+        //place a block where an entity standing on the voxel would be
+        int blockY = (voxelPos.y + 1) * BlockChunkData.BLOCKS_PER_UNIT_DISTANCE;
+        Vector3i blockChunkPos = new Vector3i(chunkPos.x, chunkPos.y + blockY / BlockChunkData.CHUNK_DATA_WIDTH, chunkPos.z);
+        manager.editBlock(
+            blockChunkPos,
+            new Vector3i(voxelPos.x * BlockChunkData.BLOCKS_PER_UNIT_DISTANCE, blockY % BlockChunkData.CHUNK_DATA_WIDTH, voxelPos.z * BlockChunkData.BLOCKS_PER_UNIT_DISTANCE),
+            (short)1,
+            (short)0
+        );
+
+        //stale until invalidated
+        assertTrue(cache.getGrid(manager, chunkPos.x, chunkPos.y, chunkPos.z).isWalkable(voxelPos.x, voxelPos.y, voxelPos.z));
+        cache.invalidate(blockChunkPos);
+        assertFalse(cache.getGrid(manager, chunkPos.x, chunkPos.y, chunkPos.z).isWalkable(voxelPos.x, voxelPos.y, voxelPos.z));
+        Globals.resetGlobals();
+    }
+
+    /**
+     * Compares the rate of walkability queries against reading the managers directly
+     */
+    @BenchmarkTest
+    public void benchmarkQueryThroughput(){
+        Globals.initGlobals();
+        ServerWorldData worldData = ServerWorldData.createGenerationTestWorldData();
+        TestCellManager manager = new TestCellManager(worldData.getServerTerrainManager().getChunkGenerator());
+        WalkabilityGridTests.placeBlocks(manager);
+        WalkabilityCache cache = new WalkabilityCache(WalkabilityCache.DEFAULT_CAPACITY);
+        int passes = 4;
+
+        //warm the generated chunks and the jit
+        for(int i = 0; i < 2; i++){
+            WalkabilityGridTests.queryBruteForce(manager, 1);
+            WalkabilityGridTests.queryCached(manager, cache, 1);
+        }
+
+        long start = System.nanoTime();
+        int bruteForceCount = WalkabilityGridTests.queryBruteForce(manager, passes);
+        long bruteForceNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int cachedCount = WalkabilityGridTests.queryCached(manager, cache, passes);
+        long cachedNanos = System.nanoTime() - start;
+
+        assertEquals(bruteForceCount, cachedCount);
+        long queries = (long)passes * (MAX_CHUNK - MIN_CHUNK) * (MAX_CHUNK - MIN_CHUNK) * MAX_CHUNK_Y * WalkabilityGrid.WIDTH * WalkabilityGrid.WIDTH * WalkabilityGrid.WIDTH;
+        System.out.println(
+            "Walkability queries/sec: brute force " + (long)(queries * 1_000_000_000.0 / bruteForceNanos) +
+            ", cached grid " + (long)(queries * 1_000_000_000.0 / cachedNanos)
+        );
+        Globals.resetGlobals();
+    }
+
+    /**
+     * Queries every voxel in the test region by reading the managers directly
+     * @param manager The manager
+     * @param passes The number of passes over the region
+     * @return The number of walkable voxels seen
+     */
+    static int queryBruteForce(VoxelCellManager manager, int passes){
+        int rVal = 0;
+        Vector3i chunkPos = new Vector3i();
+        Vector3i voxelPos = new Vector3i();
+        for(int i = 0; i < passes; i++){
+            for(int cx = MIN_CHUNK; cx < MAX_CHUNK; cx++){
+                for(int cy = 0; cy < MAX_CHUNK_Y; cy++){
+                    for(int cz = MIN_CHUNK; cz < MAX_CHUNK; cz++){
+                        chunkPos.set(cx, cy, cz);
+                        for(int x = 0; x < WalkabilityGrid.WIDTH; x++){
+                            for(int y = 0; y < WalkabilityGrid.WIDTH; y++){
+                                for(int z = 0; z < WalkabilityGrid.WIDTH; z++){
+                                    if(WalkabilityGridTests.bruteForceWalkable(manager, chunkPos, voxelPos.set(x, y, z))){
+                                        rVal++;
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return rVal;
+    }
+
+    /**
+     * Queries every voxel in the test region through the cache, one lookup per voxel like the pathfinder does
+     * @param manager The manager
+     * @param cache The cache
+     * @param passes The number of passes over the region
+     * @return The number of walkable voxels seen
+     */
+    static int queryCached(VoxelCellManager manager, WalkabilityCache cache, int passes){
+        int rVal = 0;
+        for(int i = 0; i < passes; i++){
+            for(int cx = MIN_CHUNK; cx < MAX_CHUNK; cx++){
+                for(int cy = 0; cy < MAX_CHUNK_Y; cy++){
+                    for(int cz = MIN_CHUNK; cz < MAX_CHUNK; cz++){
+                        for(int x = 0; x < WalkabilityGrid.WIDTH; x++){
+                            for(int y = 0; y < WalkabilityGrid.WIDTH; y++){
+                                for(int z = 0; z < WalkabilityGrid.WIDTH; z++){
+                                    if(cache.getGrid(manager, cx, cy, cz).isWalkable(x, y, z)){
+                                        rVal++;
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return rVal;
+    }
+
+}
@@ -0,0 +1,164 @@
+package electrosphere.server.physics.fluid.manager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import electrosphere.client.fluid.cache.FluidChunkData;
+import electrosphere.client.fluid.cells.FluidCell;
+import electrosphere.net.server.protocol.TerrainProtocol;
+import electrosphere.server.physics.fluid.simulator.FluidJavaSimulator;
+import electrosphere.test.annotations.UnitTest;
+
+/**
+ * Tests for the versioned fluid chunk wire format
+ */
+public class FluidChunkWireFormatTests {
+
+    /**
+     * Tolerance for quantized weights
+     */
+    static final float WEIGHT_EPSILON = FluidChunkWireFormat.WEIGHT_RANGE / 0xFFFF;
+
+    @UnitTest
+    public void testFullThenDeltaRoundTrip(){
+        ServerFluidChunk chunk = FluidChunkWireFormatTests.waterChunk();
+        byte[] first = FluidChunkWireFormat.encodeUpdate(chunk);
+        assertEquals(FluidChunkWireFormat.KIND_FULL, first[1]);
+        assertEquals(FluidChunkWireFormat.FULL_SIZE, first.length);
+        FluidChunkData client = FluidChunkWireFormat.decode(first, null);
+        assertEquals(0.5f, client.getWeight(4, 4, 4), WEIGHT_EPSILON);
+        assertEquals(FluidCell.ISO_SURFACE_EMPTY, client.getWeight(10, 10, 10));
+
+        chunk.setWeight(4, 4, 4, 0.25f);
+        chunk.setWeight(5, 4, 4, 0.75f);
+        chunk.setVelocity(5, 4, 4, 0, -0.5f, 0);
+        byte[] delta = FluidChunkWireFormat.encodeUpdate(chunk);
+        assertEquals(FluidChunkWireFormat.KIND_DELTA, delta[1]);
+        //one run of two cells
+        assertEquals(FluidChunkWireFormat.HEADER_SIZE + FluidChunkWireFormat.DELTA_HEADER_SIZE + FluidChunkWireFormat.RUN_HEADER_SIZE + 2 * FluidChunkWireFormat.CELL_SIZE, delta.length);
+
+        FluidChunkData updated = FluidChunkWireFormat.decode(delta, client);
+        assertEquals(0.25f, updated.getWeight(4, 4, 4), WEIGHT_EPSILON);
+        assertEquals(0.75f, updated.getWeight(5, 4, 4), WEIGHT_EPSILON);
+        assertEquals(-0.5f, updated.getVelocityY(5, 4, 4), 1.0f / Byte.MAX_VALUE);
+        assertEquals(0.5f, updated.getWeight(6, 4, 4), WEIGHT_EPSILON);
+        assertEquals(chunk.getReplicationState().getVersion(), updated.getVersion());
+        //the previous data is left alone for anything still reading it
+        assertEquals(0.5f, client.getWeight(4, 4, 4), WEIGHT_EPSILON);
+    }
+
+    @UnitTest
+    public void testMissedBaseIsResynced(){
+        ServerFluidChunk chunk = FluidChunkWireFormatTests.waterChunk();
+        FluidChunkData client = FluidChunkWireFormat.decode(FluidChunkWireFormat.encodeUpdate(chunk), null);
+
+        //the client misses an update
+        chunk.setWeight(4, 4, 4, 0.1f);
+        FluidChunkWireFormat.encodeUpdate(chunk);
+        chunk.setWeight(4, 4, 4, 0.2f);
+        byte[] delta = FluidChunkWireFormat.encodeUpdate(chunk);
+        assertNull(FluidChunkWireFormat.decode(delta, client));
+        assertNull(FluidChunkWireFormat.decode(delta, null));
+
+        //the resync lands on the current version, and later deltas apply on top of it
+        byte[] resync = FluidChunkWireFormat.encodeResync(chunk);
+        assertSame(resync, FluidChunkWireFormat.encodeResync(chunk));
+        client = FluidChunkWireFormat.decode(resync, null);
+        assertEquals(0.2f, client.getWeight(4, 4, 4), WEIGHT_EPSILON);
+        chunk.setWeight(4, 4, 4, 0.3f);
+        FluidChunkData updated = FluidChunkWireFormat.decode(FluidChunkWireFormat.encodeUpdate(chunk), client);
+        assertNotNull(updated);
+        assertEquals(0.3f, updated.getWeight(4, 4, 4), WEIGHT_EPSILON);
+    }
+
+    @UnitTest
+    public void testLargeChangeFallsBackToFull(){
+        ServerFluidChunk chunk = FluidChunkWireFormatTests.waterChunk();
+        FluidChunkWireFormat.encodeUpdate(chunk);
+        //change every cell so the delta would carry the whole chunk plus its own headers
+        for(int i = 0; i < ServerFluidChunk.BUFFER_SIZE; i++){
+            chunk.getWeights().put(i, 0.9f);
+        }
+        byte[] payload = FluidChunkWireFormat.encodeUpdate(chunk);
+        assertEquals(FluidChunkWireFormat.KIND_FULL, payload[1]);
+        assertEquals(FluidChunkWireFormat.FULL_SIZE, payload.length);
+    }
+
+    @UnitTest
+    public void testHomogenousTransitions(){
+        ServerFluidChunk chunk = new ServerFluidChunk(0, 0, 0);
+        byte[] empty = FluidChunkWireFormat.encodeUpdate(chunk);
+        assertEquals(FluidChunkWireFormat.HEADER_SIZE, empty.length);
+        FluidChunkData client = FluidChunkWireFormat.decode(empty, null);
+        assertTrue(client.isHomogenous());
+
+        //fluid flows in, sent as a delta against the empty chunk
+        chunk.isHomogenous = false;
+        chunk.setWeight(3, 3, 3, 1.0f);
+        byte[] delta = FluidChunkWireFormat.encodeUpdate(chunk);
+        assertEquals(FluidChunkWireFormat.KIND_DELTA, delta[1]);
+        FluidChunkData updated = FluidChunkWireFormat.decode(delta, client);
+        assertFalse(updated.isHomogenous());
+        assertEquals(1.0f, updated.getWeight(3, 3, 3), WEIGHT_EPSILON);
+        assertEquals(FluidCell.ISO_SURFACE_EMPTY, updated.getWeight(3, 4, 3));
+    }
+
+    @UnitTest
+    public void testLegacyPayloadIsNotVersioned(){
+        ServerFluidChunk chunk = FluidChunkWireFormatTests.waterChunk();
+        assertFalse(FluidChunkWireFormat.isVersioned(TerrainProtocol.constructFluidByteBuffer(chunk).array()));
+        chunk.isHomogenous = true;
+        assertFalse(FluidChunkWireFormat.isVersioned(TerrainProtocol.constructFluidByteBuffer(chunk).array()));
+        assertTrue(FluidChunkWireFormat.isVersioned(FluidChunkWireFormat.encodeUpdate(chunk)));
+    }
+
+    @UnitTest
+    public void testFlowingDeltasAreSmallerThanLegacy(){
+        ServerFluidChunk chunk = new ServerFluidChunk(0, 0, 0);
+        for(int x = 1; x <= ServerFluidChunk.TRUE_DATA_DIM; x++){
+            for(int y = 1; y <= ServerFluidChunk.TRUE_DATA_DIM; y++){
+                for(int z = 1; z <= ServerFluidChunk.TRUE_DATA_DIM; z++){
+                    chunk.setBound(x, y, z, -1.0f);
+                }
+            }
+        }
+        FluidJavaSimulator simulator = new FluidJavaSimulator();
+        FluidChunkData client = null;
+        long legacyBytes = 0;
+        long deltaBytes = 0;
+        int steps = 100;
+        for(int i = 0; i < steps; i++){
+            //a stream pouring in from one corner
+            chunk.setWeightDelta(2, ServerFluidChunk.TRUE_DATA_DIM, 2, 0.5f);
+            simulator.simulate(List.of(chunk), new LinkedList<ServerFluidChunk>());
+            legacyBytes = legacyBytes + TerrainProtocol.constructFluidByteBuffer(chunk).capacity();
+            byte[] payload = FluidChunkWireFormat.encodeUpdate(chunk);
+            deltaBytes = deltaBytes + payload.length;
+            client = FluidChunkWireFormat.decode(payload, client);
+            assertNotNull(client);
+        }
+        assertTrue(deltaBytes * 3 < legacyBytes);
+        for(int x = 1; x <= ServerFluidChunk.TRUE_DATA_DIM; x++){
+            float expected = chunk.getWeight(x, 1, 5) <= 0 ? FluidCell.ISO_SURFACE_EMPTY : chunk.getWeight(x, 1, 5);
+            assertEquals(expected, client.getWeight(x, 1, 5), WEIGHT_EPSILON);
+        }
+    }
+
+    /**
+     * Creates a chunk with a small body of water in it
+     * @return The chunk
+     */
+    static ServerFluidChunk waterChunk(){
+        ServerFluidChunk rVal = new ServerFluidChunk(0, 0, 0);
+        for(int x = 2; x < 8; x++){
+            for(int z = 2; z < 8; z++){
+                rVal.setWeight(x, 4, z, 0.5f);
+            }
+        }
+        rVal.isHomogenous = false;
+        return rVal;
+    }
+
+}
@@ -0,0 +1,160 @@
+package electrosphere.server.physics.fluid.manager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import electrosphere.server.physics.fluid.simulator.FluidJavaSimulator;
+import electrosphere.test.annotations.UnitTest;
+
+/**
+ * Tests for the fluid island scheduler
+ */
+public class FluidIslandSchedulerTests {
+
+    @UnitTest
+    public void testQuietIslandSleeps(){
+        ServerFluidChunk a = FluidIslandSchedulerTests.chunk(0, 0, 0, 10);
+        ServerFluidChunk b = FluidIslandSchedulerTests.chunk(1, 0, 0, 10);
+        FluidIslandSchedulerTests.link(a, b);
+        FluidIslandScheduler scheduler = new FluidIslandScheduler();
+        for(int i = 0; i < FluidIslandScheduler.QUIET_FRAMES; i++){
+            assertFalse(a.isAsleep());
+            scheduler.update(List.of(a, b));
+        }
+        assertTrue(a.isAsleep());
+        assertTrue(b.isAsleep());
+        assertEquals(0, scheduler.getActiveIslandCount());
+        assertEquals(1, scheduler.getSleptIslandCount());
+        assertEquals(2, scheduler.getSleepingChunkCount());
+    }
+
+    @UnitTest
+    public void testSleepingCountFollowsWakes(){
+        ServerFluidChunk a = FluidIslandSchedulerTests.chunk(0, 0, 0, 10);
+        ServerFluidChunk b = FluidIslandSchedulerTests.chunk(1, 0, 0, 10);
+        ServerFluidChunk c = FluidIslandSchedulerTests.chunk(5, 0, 0, 10);
+        ServerFluidChunk flowing = FluidIslandSchedulerTests.chunk(6, 0, 0, 10);
+        FluidIslandSchedulerTests.link(a, b);
+        FluidIslandSchedulerTests.link(c, flowing);
+        FluidIslandScheduler scheduler = new FluidIslandScheduler();
+        for(int i = 0; i < FluidIslandScheduler.QUIET_FRAMES; i++){
+            scheduler.update(List.of(a, b, c));
+        }
+        assertEquals(3, scheduler.getSleepingChunkCount());
+
+        //woken through the scheduler
+        scheduler.wake(a);
+        assertEquals(1, scheduler.getSleepingChunkCount());
+
+        //woken by the simulator clearing the flag of a neighbor of a chunk it simulated
+        c.asleep = false;
+        scheduler.update(List.of(flowing));
+        assertEquals(0, scheduler.getSleepingChunkCount());
+    }
+
+    @UnitTest
+    public void testIslandStaysAwakeWhileAnyChunkMoves(){
+        ServerFluidChunk moving = FluidIslandSchedulerTests.chunk(0, 0, 0, 10);
+        ServerFluidChunk still = FluidIslandSchedulerTests.chunk(1, 0, 0, 10);
+        ServerFluidChunk separate = FluidIslandSchedulerTests.chunk(5, 0, 0, 10);
+        FluidIslandSchedulerTests.link(moving, still);
+        moving.totalVelocityMag = 1;
+        FluidIslandScheduler scheduler = new FluidIslandScheduler();
+        for(int i = 0; i < FluidIslandScheduler.QUIET_FRAMES * 2; i++){
+            scheduler.update(List.of(moving, still, separate));
+        }
+        assertFalse(moving.isAsleep());
+        assertFalse(still.isAsleep());
+        assertTrue(separate.isAsleep());
+        assertEquals(1, scheduler.getActiveIslandCount());
+    }
+
+    @UnitTest
+    public void testWakeSpreadsThroughSleepingIsland(){
+        ServerFluidChunk a = FluidIslandSchedulerTests.chunk(0, 0, 0, 10);
+        ServerFluidChunk b = FluidIslandSchedulerTests.chunk(1, 0, 0, 10);
+        ServerFluidChunk empty = FluidIslandSchedulerTests.chunk(2, 0, 0, 0);
+        ServerFluidChunk beyond = FluidIslandSchedulerTests.chunk(3, 0, 0, 10);
+        FluidIslandSchedulerTests.link(a, b);
+        FluidIslandSchedulerTests.link(b, empty);
+        FluidIslandSchedulerTests.link(empty, beyond);
+        for(ServerFluidChunk chunk : List.of(a, b, empty, beyond)){
+            chunk.asleep = true;
+            chunk.quietFrames = FluidIslandScheduler.QUIET_FRAMES;
+        }
+        new FluidIslandScheduler().wake(a);
+        assertFalse(a.isAsleep());
+        assertFalse(b.isAsleep());
+        assertEquals(0, b.quietFrames);
+        //the empty chunk separates the islands
+        assertTrue(empty.isAsleep());
+        assertTrue(beyond.isAsleep());
+    }
+
+    @UnitTest
+    public void testInflowWakesNeighborIsland(){
+        ServerFluidChunk flowing = FluidIslandSchedulerTests.chunk(0, 0, 0, 10);
+        ServerFluidChunk sleeping = FluidIslandSchedulerTests.chunk(1, 0, 0, 10);
+        ServerFluidChunk sleepingFar = FluidIslandSchedulerTests.chunk(2, 0, 0, 10);
+        FluidIslandSchedulerTests.link(flowing, sleeping);
+        FluidIslandSchedulerTests.link(sleeping, sleepingFar);
+        sleeping.asleep = true;
+        sleepingFar.asleep = true;
+        flowing.totalVelocityMag = 1;
+        new FluidIslandScheduler().update(List.of(flowing));
+        assertFalse(sleeping.isAsleep());
+        assertFalse(sleepingFar.isAsleep());
+    }
+
+    @UnitTest
+    public void testSettledWaterFallsAsleep(){
+        ServerFluidChunk chunk = new ServerFluidChunk(0, 0, 0);
+        for(int x = 1; x <= ServerFluidChunk.TRUE_DATA_DIM; x++){
+            for(int y = 1; y <= ServerFluidChunk.TRUE_DATA_DIM; y++){
+                for(int z = 1; z <= ServerFluidChunk.TRUE_DATA_DIM; z++){
+                    chunk.setBound(x, y, z, -1.0f);
+                }
+            }
+        }
+        chunk.setWeight(8, 12, 8, 1.0f);
+        FluidJavaSimulator simulator = new FluidJavaSimulator();
+        FluidIslandScheduler scheduler = new FluidIslandScheduler();
+        int steps = 0;
+        while(!chunk.isAsleep() && steps < 1000){
+            simulator.simulate(List.of(chunk), new LinkedList<ServerFluidChunk>());
+            scheduler.update(List.of(chunk));
+            steps++;
+        }
+        assertTrue(chunk.isAsleep());
+        assertFalse(chunk.isHomogenous());
+    }
+
+    /**
+     * Creates a chunk with a given total density
+     * @param worldX The world x coordinate
+     * @param worldY The world y coordinate
+     * @param worldZ The world z coordinate
+     * @param totalDensity The total density
+     * @return The chunk
+     */
+    static ServerFluidChunk chunk(int worldX, int worldY, int worldZ, float totalDensity){
+        ServerFluidChunk rVal = new ServerFluidChunk(worldX, worldY, worldZ);
+        rVal.totalDensity = totalDensity;
+        rVal.lastTotalDensity = totalDensity;
+        rVal.isHomogenous = totalDensity <= 0;
+        return rVal;
+    }
+
+    /**
+     * Links two chunks that are next to each other along the x axis
+     * @param lower The chunk with the smaller x coordinate
+     * @param upper The chunk with the larger x coordinate
+     */
+    static void link(ServerFluidChunk lower, ServerFluidChunk upper){
+        lower.setNeighbor(2, 1, 1, upper);
+        upper.setNeighbor(0, 1, 1, lower);
+    }
+
+}
@@ -0,0 +1,231 @@
+package electrosphere.server.physics.fluid.simulator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import electrosphere.server.physics.fluid.manager.ServerFluidChunk;
+import electrosphere.test.annotations.BenchmarkTest;
+import electrosphere.test.annotations.UnitTest;
+
+/**
+ * Tests for the java fluid simulator
+ */
+public class FluidJavaSimulatorTests {
+
+    /**
+     * Tolerance for mass comparisons
+     */
+    static final double MASS_EPSILON = 0.001;
+
+    @UnitTest
+    public void testFluidFallsAcrossChunksWithoutLosingMass(){
+        ServerFluidChunk lower = FluidJavaSimulatorTests.openChunk(0, 0, 0);
+        ServerFluidChunk upper = FluidJavaSimulatorTests.openChunk(0, 1, 0);
+        lower.setNeighbor(1, 2, 1, upper);
+        upper.setNeighbor(1, 0, 1, lower);
+        for(int x = 4; x < 8; x++){
+            for(int z = 4; z < 8; z++){
+                upper.setWeight(x, ServerFluidChunk.TRUE_DATA_DIM, z, 1.0f);
+            }
+        }
+        List<ServerFluidChunk> chunks = List.of(lower, upper);
+        double startMass = FluidJavaSimulatorTests.sumMass(chunks);
+
+        FluidJavaSimulator simulator = new FluidJavaSimulator();
+        List<ServerFluidChunk> broadcastQueue = new LinkedList<ServerFluidChunk>();
+        for(int i = 0; i < 200; i++){
+            simulator.simulate(chunks, broadcastQueue);
+        }
+
+        assertEquals(startMass, FluidJavaSimulatorTests.sumMass(chunks), MASS_EPSILON);
+        //everything has fallen into the lower chunk and settled on its floor
+        assertEquals(0, upper.getTotalDensity(), MASS_EPSILON);
+        assertEquals(startMass, lower.getTotalDensity(), MASS_EPSILON);
+        assertTrue(lower.getWeight(5, ServerFluidChunk.TRUE_DATA_OFFSET, 5) > 0);
+        assertTrue(broadcastQueue.contains(lower));
+        FluidJavaSimulatorTests.assertNonNegative(lower);
+        FluidJavaSimulatorTests.assertNonNegative(upper);
+    }
+
+    @UnitTest
+    public void testFluidSpreadsSidewaysAcrossChunks(){
+        ServerFluidChunk left = FluidJavaSimulatorTests.openChunk(0, 0, 0);
+        ServerFluidChunk right = FluidJavaSimulatorTests.openChunk(1, 0, 0);
+        left.setNeighbor(2, 1, 1, right);
+        right.setNeighbor(0, 1, 1, left);
+        for(int y = 1; y <= 4; y++){
+            for(int z = 1; z <= ServerFluidChunk.TRUE_DATA_DIM; z++){
+                left.setWeight(ServerFluidChunk.TRUE_DATA_DIM, y, z, 1.0f);
+            }
+        }
+        List<ServerFluidChunk> chunks = List.of(left, right);
+        double startMass = FluidJavaSimulatorTests.sumMass(chunks);
+
+        FluidJavaSimulator simulator = new FluidJavaSimulator();
+        for(int i = 0; i < 100; i++){
+            simulator.simulate(chunks, new LinkedList<ServerFluidChunk>());
+        }
+
+        assertEquals(startMass, FluidJavaSimulatorTests.sumMass(chunks), MASS_EPSILON);
+        assertTrue(right.getTotalDensity() > 0);
+        assertFalse(right.isHomogenous());
+        FluidJavaSimulatorTests.assertNonNegative(left);
+        FluidJavaSimulatorTests.assertNonNegative(right);
+    }
+
+    @UnitTest
+    public void testBoundsBlockFlow(){
+        ServerFluidChunk chunk = FluidJavaSimulatorTests.openChunk(0, 0, 0);
+        //a solid floor halfway up the chunk
+        for(int x = 1; x <= ServerFluidChunk.TRUE_DATA_DIM; x++){
+            for(int z = 1; z <= ServerFluidChunk.TRUE_DATA_DIM; z++){
+                chunk.setBound(x, 8, z, 1.0f);
+            }
+        }
+        chunk.setWeight(5, 12, 5, 1.0f);
+
+        FluidJavaSimulator simulator = new FluidJavaSimulator();
+        for(int i = 0; i < 50; i++){
+            simulator.simulate(List.of(chunk), new LinkedList<ServerFluidChunk>());
+        }
+
+        double above = 0;
+        for(int x = 1; x <= ServerFluidChunk.TRUE_DATA_DIM; x++){
+            for(int z = 1; z <= ServerFluidChunk.TRUE_DATA_DIM; z++){
+                above = above + chunk.getWeight(x, 9, z);
+            }
+        }
+        assertEquals(1.0, above, MASS_EPSILON);
+        assertEquals(0, chunk.getWeight(5, 7, 5));
+    }
+
+    @UnitTest
+    public void testWeightDeltasAreApplied(){
+        ServerFluidChunk chunk = FluidJavaSimulatorTests.openChunk(0, 0, 0);
+        chunk.setWeightDelta(3, 1, 3, 0.5f);
+        List<ServerFluidChunk> broadcastQueue = new LinkedList<ServerFluidChunk>();
+        new FluidJavaSimulator().simulate(List.of(chunk), broadcastQueue);
+        assertEquals(0.5, chunk.getTotalDensity(), MASS_EPSILON);
+        assertEquals(0, chunk.getWeightDelta(3, 1, 3));
+        assertEquals(List.of(chunk), broadcastQueue);
+        assertFalse(chunk.isAsleep());
+    }
+
+    @BenchmarkTest
+    public void benchmarkSimulate(){
+        int dim = 3;
+        ServerFluidChunk[][][] grid = new ServerFluidChunk[dim][dim][dim];
+        List<ServerFluidChunk> chunks = new LinkedList<ServerFluidChunk>();
+        for(int x = 0; x < dim; x++){
+            for(int y = 0; y < dim; y++){
+                for(int z = 0; z < dim; z++){
+                    grid[x][y][z] = FluidJavaSimulatorTests.openChunk(x, y, z);
+                    chunks.add(grid[x][y][z]);
+                }
+            }
+        }
+        for(int x = 0; x < dim; x++){
+            for(int y = 0; y < dim; y++){
+                for(int z = 0; z < dim; z++){
+                    for(int i = -1; i < 2; i++){
+                        for(int j = -1; j < 2; j++){
+                            for(int k = -1; k < 2; k++){
+                                if(
+                                    (i != 0 || j != 0 || k != 0) &&
+                                    0 <= x + i && x + i < dim && 0 <= y + j && y + j < dim && 0 <= z + k && z + k < dim
+                                ){
+                                    grid[x][y][z].setNeighbor(i + 1, j + 1, k + 1, grid[x + i][y + j][z + k]);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        //a slab of water across the top chunks
+        for(ServerFluidChunk chunk : chunks){
+            if(chunk.getWorldY() == dim - 1){
+                for(int x = 1; x <= ServerFluidChunk.TRUE_DATA_DIM; x++){
+                    for(int z = 1; z <= ServerFluidChunk.TRUE_DATA_DIM; z++){
+                        chunk.setWeight(x, ServerFluidChunk.TRUE_DATA_DIM, z, 1.0f);
+                    }
+                }
+            }
+        }
+        List<ServerFluidChunk> simulated = new ArrayList<ServerFluidChunk>(chunks);
+        double startMass = FluidJavaSimulatorTests.sumMass(simulated);
+
+        FluidJavaSimulator simulator = new FluidJavaSimulator();
+        for(int i = 0; i < 20; i++){
+            simulator.simulate(simulated, new LinkedList<ServerFluidChunk>());
+        }
+        int steps = 100;
+        long start = System.nanoTime();
+        for(int i = 0; i < steps; i++){
+            simulator.simulate(simulated, new LinkedList<ServerFluidChunk>());
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.println(
+            "Java fluid simulator: " + simulated.size() + " chunks, " +
+            String.format("%.3f", elapsed / 1000000.0 / steps) + "ms per step, " +
+            String.format("%.1f", (double)simulated.size() * ServerFluidChunk.TRUE_DATA_DIM * ServerFluidChunk.TRUE_DATA_DIM * ServerFluidChunk.TRUE_DATA_DIM * steps / (elapsed / 1000000000.0) / 1000000.0) + "M cells/sec"
+        );
+        assertEquals(startMass, FluidJavaSimulatorTests.sumMass(simulated), startMass * 0.0001);
+    }
+
+    /**
+     * Creates a chunk where every cell is open
+     * @param worldX The world x coordinate
+     * @param worldY The world y coordinate
+     * @param worldZ The world z coordinate
+     * @return The chunk
+     */
+    static ServerFluidChunk openChunk(int worldX, int worldY, int worldZ){
+        ServerFluidChunk rVal = new ServerFluidChunk(worldX, worldY, worldZ);
+        for(int x = 1; x <= ServerFluidChunk.TRUE_DATA_DIM; x++){
+            for(int y = 1; y <= ServerFluidChunk.TRUE_DATA_DIM; y++){
+                for(int z = 1; z <= ServerFluidChunk.TRUE_DATA_DIM; z++){
+                    rVal.setBound(x, y, z, -1.0f);
+                }
+            }
+        }
+        return rVal;
+    }
+
+    /**
+     * Sums the true data weights of a list of chunks
+     * @param chunks The chunks
+     * @return The total mass
+     */
+    static double sumMass(List<ServerFluidChunk> chunks){
+        double rVal = 0;
+        for(ServerFluidChunk chunk : chunks){
+            for(int x = 1; x <= ServerFluidChunk.TRUE_DATA_DIM; x++){
+                for(int y = 1; y <= ServerFluidChunk.TRUE_DATA_DIM; y++){
+                    for(int z = 1; z <= ServerFluidChunk.TRUE_DATA_DIM; z++){
+                        rVal = rVal + chunk.getWeight(x, y, z);
+                    }
+                }
+            }
+        }
+        return rVal;
+    }
+
+    /**
+     * Asserts that no cell of a chunk has a negative weight
+     * @param chunk The chunk
+     */
+    static void assertNonNegative(ServerFluidChunk chunk){
+        for(int x = 1; x <= ServerFluidChunk.TRUE_DATA_DIM; x++){
+            for(int y = 1; y <= ServerFluidChunk.TRUE_DATA_DIM; y++){
+                for(int z = 1; z <= ServerFluidChunk.TRUE_DATA_DIM; z++){
+                    assertTrue(chunk.getWeight(x, y, z) >= 0);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+package electrosphere.server.physics.terrain.diskmap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import electrosphere.engine.Globals;
+import electrosphere.server.physics.terrain.manager.ServerChunkCache;
+import electrosphere.server.physics.terrain.manager.ServerTerrainChunk;
+import electrosphere.server.physics.terrain.manager.VoxelStorage;
+import electrosphere.server.saves.Save;
+import electrosphere.server.saves.SaveUtils;
+import electrosphere.server.saves.region.StorageFormat;
+import electrosphere.test.annotations.UnitTest;
+import electrosphere.util.FileUtils;
+
+/**
+ * Tests for the chunk disk map
+ */
+public class ChunkDiskMapTests {
+
+    /**
+     * Name of the save used by the tests
+     */
+    static final String SAVE_NAME = "chunkDiskMapTest";
+
+    /**
+     * Sets up an empty save
+     */
+    void setup(){
+        Globals.initGlobals();
+        FileUtils.recursivelyDelete(SaveUtils.deriveSaveDirectoryPath(SAVE_NAME));
+        FileUtils.createDirectory(SaveUtils.deriveSaveDirectoryPath(SAVE_NAME));
+        Globals.serverState.currentSave = new Save(SAVE_NAME);
+    }
+
+    /**
+     * Tears down the save
+     * @param map The map to close
+     */
+    void teardown(ChunkDiskMap map){
+        map.close();
+        Globals.resetGlobals();
+        FileUtils.recursivelyDelete(SaveUtils.deriveSaveDirectoryPath(SAVE_NAME));
+    }
+
+    @UnitTest
+    public void testStaleMipLevelIsNotSaved(){
+        this.setup();
+        ChunkDiskMap map = ChunkDiskMap.init(StorageFormat.REGION);
+        try {
+            int stride = ServerChunkCache.STRIDE_HALF_RES;
+            ServerTerrainChunk mip = new ServerTerrainChunk(2, 0, 4, 1, new VoxelStorage());
+
+            //a child is edited while the mip level is being built
+            long version = map.getMipVersion(2, 0, 4, stride);
+            map.invalidateMipLevels(3, 1, 5);
+            assertFalse(map.saveMipLevel(mip, stride, version));
+            assertFalse(map.containsTerrainAtPosition(2, 0, 4, stride));
+
+            //rebuilding after the edit saves
+            version = map.getMipVersion(2, 0, 4, stride);
+            assertTrue(map.saveMipLevel(mip, stride, version));
+            assertTrue(map.containsTerrainAtPosition(2, 0, 4, stride));
+
+            //a later edit drops the saved level
+            map.invalidateMipLevels(2, 1, 4);
+            assertFalse(map.containsTerrainAtPosition(2, 0, 4, stride));
+        } finally {
+            this.teardown(map);
+        }
+    }
+
+    @UnitTest
+    public void testEditsOnlyBumpCoveringMipLevels(){
+        this.setup();
+        ChunkDiskMap map = ChunkDiskMap.init(StorageFormat.REGION);
+        try {
+            int stride = ServerChunkCache.STRIDE_HALF_RES;
+            long version = map.getMipVersion(0, 0, 0, stride);
+            map.invalidateMipLevels(2, 0, 0);
+            assertEquals(version, map.getMipVersion(0, 0, 0, stride));
+            assertTrue(map.saveMipLevel(new ServerTerrainChunk(0, 0, 0, 1, new VoxelStorage()), stride, version));
+        } finally {
+            this.teardown(map);
+        }
+    }
+
+}
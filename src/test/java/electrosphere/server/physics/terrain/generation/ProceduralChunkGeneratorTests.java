@@ -0,0 +1,171 @@
+package electrosphere.server.physics.terrain.generation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.joml.Vector3d;
+
+import electrosphere.client.terrain.cache.ChunkData;
+import electrosphere.engine.Globals;
+import electrosphere.server.datacell.ServerWorldData;
+import electrosphere.server.macro.MacroData;
+import electrosphere.server.macro.civilization.road.Road;
+import electrosphere.server.macro.spatial.MacroObject;
+import electrosphere.server.physics.terrain.manager.ServerTerrainChunk;
+import electrosphere.server.physics.terrain.manager.VoxelStorage;
+import electrosphere.test.annotations.BenchmarkTest;
+import electrosphere.test.annotations.UnitTest;
+
+/**
+ * Tests for the procedural chunk generator
+ */
+public class ProceduralChunkGeneratorTests {
+
+    /**
+     * The number of chunks along each horizontal axis of the pregenerated region
+     */
+    static final int REGION_WIDTH = 8;
+
+    /**
+     * The number of chunks along the vertical axis of the pregenerated region
+     */
+    static final int REGION_HEIGHT = 32;
+
+    @UnitTest
+    public void testColumnCacheMatchesUncached(){
+        Globals.initGlobals();
+        ServerWorldData worldData = ServerWorldData.createGenerationTestWorldData();
+        ProceduralChunkGenerator generator = (ProceduralChunkGenerator)worldData.getServerTerrainManager().getChunkGenerator();
+        for(int y = 0; y < REGION_HEIGHT; y++){
+            generator.setColumnCache(null);
+            ServerTerrainChunk uncached = generator.generateChunk(null, 3, y, 5, 0);
+            generator.setColumnCache(new TerrainColumnCache(TerrainColumnCache.DEFAULT_CAPACITY));
+            generator.generateChunk(null, 3, y, 5, 0);
+            ServerTerrainChunk cached = generator.generateChunk(null, 3, y, 5, 0);
+            assertEquals(1, generator.getColumnCache().getHits());
+            assertEquals(uncached.getHomogenousValue(), cached.getHomogenousValue());
+            for(int i = 0; i < VoxelStorage.VOXEL_COUNT; i++){
+                assertEquals(uncached.getVoxels().getType(i), cached.getVoxels().getType(i));
+            }
+        }
+        Globals.resetGlobals();
+    }
+
+    @UnitTest
+    public void testColumnIsPopulatedOncePerCache(){
+        Globals.initGlobals();
+        ServerWorldData worldData = ServerWorldData.createGenerationTestWorldData();
+        ProceduralChunkGenerator generator = (ProceduralChunkGenerator)worldData.getServerTerrainManager().getChunkGenerator();
+        TerrainColumnCache cache = new TerrainColumnCache(TerrainColumnCache.DEFAULT_CAPACITY);
+        generator.setColumnCache(cache);
+        for(int y = 0; y < REGION_HEIGHT; y++){
+            generator.generateChunk(null, 2, y, 6, 0);
+        }
+        assertEquals(1, cache.getMisses());
+        assertEquals(REGION_HEIGHT - 1, cache.getHits());
+        Globals.resetGlobals();
+    }
+
+    @UnitTest
+    public void testSkyAndBedrockAreUniform(){
+        Globals.initGlobals();
+        ServerWorldData worldData = ServerWorldData.createGenerationTestWorldData();
+        ProceduralChunkGenerator generator = (ProceduralChunkGenerator)worldData.getServerTerrainManager().getChunkGenerator();
+        ServerTerrainChunk sky = generator.generateChunk(null, 1, REGION_HEIGHT - 1, 1, 0);
+        assertEquals(ServerTerrainChunk.VOXEL_TYPE_AIR, sky.getHomogenousValue());
+        assertEquals(-1.0f, sky.getVoxels().getWeight(8, 8, 8));
+        ServerTerrainChunk column = generator.generateChunk(null, 1, 0, 1, 0);
+        TerrainColumn surface = generator.getColumnCache().get(1, 1, 0);
+        if(surface.getMaxHeight() > ServerTerrainChunk.CHUNK_DIMENSION){
+            assertNotEquals(ChunkData.NOT_HOMOGENOUS, column.getHomogenousValue());
+        }
+        Globals.resetGlobals();
+    }
+
+    @UnitTest
+    public void testRoadIsStampedAtSurface(){
+        Globals.initGlobals();
+        ServerWorldData worldData = ServerWorldData.createGenerationTestWorldData();
+        ProceduralChunkGenerator generator = (ProceduralChunkGenerator)worldData.getServerTerrainManager().getChunkGenerator();
+        double elevation = generator.getElevation(3, 5, 8, 8);
+        int worldY = (int)(elevation / ServerTerrainChunk.CHUNK_DIMENSION);
+        Vector3d start = new Vector3d(ServerWorldData.convertVoxelToRealSpace(0, 3), elevation, ServerWorldData.convertVoxelToRealSpace(8, 5));
+        Vector3d end = new Vector3d(ServerWorldData.convertVoxelToRealSpace(0, 4), elevation, ServerWorldData.convertVoxelToRealSpace(8, 5));
+        MacroData macroData = new MacroData();
+        Road.createRoad(macroData, start, end);
+
+        List<MacroObject> objects = macroData.getChunkObjects(3, worldY, 5);
+        assertEquals(1, objects.size());
+        ServerTerrainChunk plain = generator.generateChunk(null, 3, worldY, 5, 0);
+        ServerTerrainChunk stamped = generator.generateChunk(objects, 3, worldY, 5, 0);
+        int roadVoxels = 0;
+        for(int x = 0; x < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; x++){
+            for(int y = 0; y < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; y++){
+                for(int z = 0; z < ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE; z++){
+                    int plainType = plain.getVoxels().getType(x, y, z);
+                    int stampedType = stamped.getVoxels().getType(x, y, z);
+                    if(Math.abs(z - 8) > Road.DEFAULT_RADIUS){
+                        //outside the road
+                        assertEquals(plainType, stampedType);
+                    } else if(plainType != stampedType){
+                        assertEquals(1, stampedType);
+                        roadVoxels++;
+                    }
+                }
+            }
+        }
+        assertTrue(roadVoxels > 0);
+        Globals.resetGlobals();
+    }
+
+    @BenchmarkTest
+    public void benchmarkPregen(){
+        Globals.initGlobals();
+        ServerWorldData worldData = ServerWorldData.createGenerationTestWorldData();
+        ProceduralChunkGenerator generator = (ProceduralChunkGenerator)worldData.getServerTerrainManager().getChunkGenerator();
+
+        //warm up
+        ProceduralChunkGeneratorTests.pregen(generator);
+
+        generator.setColumnCache(null);
+        long uncachedStart = System.nanoTime();
+        int uniform = ProceduralChunkGeneratorTests.pregen(generator);
+        long uncachedNanos = System.nanoTime() - uncachedStart;
+
+        TerrainColumnCache cache = new TerrainColumnCache(TerrainColumnCache.DEFAULT_CAPACITY);
+        generator.setColumnCache(cache);
+        long cachedStart = System.nanoTime();
+        ProceduralChunkGeneratorTests.pregen(generator);
+        long cachedNanos = System.nanoTime() - cachedStart;
+
+        System.out.println(
+            "Pregen of " + (REGION_WIDTH * REGION_WIDTH * REGION_HEIGHT) + " chunks (" + uniform + " uniform): " +
+            "uncached columns " + (uncachedNanos / 1000000) + "ms, " +
+            "cached columns " + (cachedNanos / 1000000) + "ms (" + cache.getHits() + " hits, " + cache.getMisses() + " misses)"
+        );
+        assertEquals(REGION_WIDTH * REGION_WIDTH, cache.getMisses());
+        Globals.resetGlobals();
+    }
+
+    /**
+     * Generates every chunk in the test region, one column at a time
+     * @param generator The generator
+     * @return The number of chunks that came out homogenous
+     */
+    static int pregen(ProceduralChunkGenerator generator){
+        int rVal = 0;
+        for(int x = 0; x < REGION_WIDTH; x++){
+            for(int z = 0; z < REGION_WIDTH; z++){
+                for(int y = 0; y < REGION_HEIGHT; y++){
+                    ServerTerrainChunk chunk = generator.generateChunk(null, x, y, z, 0);
+                    if(chunk.getHomogenousValue() != ChunkData.NOT_HOMOGENOUS){
+                        rVal++;
+                    }
+                }
+            }
+        }
+        return rVal;
+    }
+
+}
@@ -0,0 +1,87 @@
+package electrosphere.server.physics.terrain.generation.heightmap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import electrosphere.test.annotations.UnitTest;
+
+/**
+ * Tests for batched heightmap sampling
+ */
+public class HeightmapBatchTests {
+
+    @UnitTest
+    public void testSamplesEachGeneratorSeparately(){
+        CountingGenerator first = new CountingGenerator(1);
+        CountingGenerator second = new CountingGenerator(2);
+        HeightmapBatch batch = new HeightmapBatch(8);
+        batch.add(first, 1, 2, 0.25);
+        batch.add(second, 1, 2, 0.75);
+        batch.add(first, 3, 4, 0.5);
+        batch.add(second, 3, 4, 0.5);
+        batch.solve(0);
+        assertEquals(2, batch.getGeneratorCount());
+        assertEquals(2, first.samples);
+        assertEquals(2, second.samples);
+        assertEquals(0.25 * 2 + 0.75 * 3, batch.getWeightedSum(0, 2), 0);
+        assertEquals(0.5 * 4 + 0.5 * 5, batch.getWeightedSum(2, 2), 0);
+    }
+
+    @UnitTest
+    public void testSharedGeneratorIsEvaluatedOncePerPosition(){
+        CountingGenerator generator = new CountingGenerator(1);
+        HeightmapBatch batch = new HeightmapBatch(8);
+        //two columns whose four neighboring biomes all share a heightmap
+        for(int i = 0; i < 4; i++){
+            batch.add(generator, 1, 2, 0.25);
+        }
+        for(int i = 0; i < 4; i++){
+            batch.add(generator, 3, 4, 0.25);
+        }
+        batch.solve(0);
+        assertEquals(2, batch.getEvaluatedCount());
+        assertEquals(2, generator.samples);
+        assertEquals(2, batch.getWeightedSum(0, 4), 0);
+        assertEquals(4, batch.getWeightedSum(4, 4), 0);
+    }
+
+    /**
+     * A generator that returns a fixed height plus the x coordinate and counts what it is asked for
+     */
+    static class CountingGenerator implements HeightmapGenerator {
+
+        /**
+         * The height
+         */
+        float height;
+
+        /**
+         * The number of positions sampled
+         */
+        int samples = 0;
+
+        /**
+         * Constructor
+         * @param height The height
+         */
+        CountingGenerator(float height){
+            this.height = height;
+        }
+
+        @Override
+        public float getHeight(long SEED, double x, double y){
+            this.samples++;
+            return this.height + (float)x;
+        }
+
+        @Override
+        public String getTag(){
+            return "counting" + this.height;
+        }
+
+        @Override
+        public void setSeed(long seed){
+        }
+
+    }
+
+}
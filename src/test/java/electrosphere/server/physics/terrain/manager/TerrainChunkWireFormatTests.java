@@ -0,0 +1,184 @@
+package electrosphere.server.physics.terrain.manager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.joml.Vector3i;
+
+import electrosphere.client.terrain.cache.ChunkData;
+import electrosphere.client.terrain.manager.ClientTerrainManager;
+import electrosphere.net.parser.net.message.TerrainMessage;
+import electrosphere.net.parser.net.message.TypeBytes;
+import electrosphere.net.parser.net.raw.NetworkParser;
+import electrosphere.server.physics.terrain.models.TerrainModification;
+import electrosphere.test.annotations.UnitTest;
+
+/**
+ * Tests for the terrain chunk wire format
+ */
+public class TerrainChunkWireFormatTests {
+
+    @UnitTest
+    public void testCompactRoundTrip(){
+        ServerTerrainChunk chunk = TerrainChunkWireFormatTests.createChunk(1.0f);
+        byte[] payload = TerrainChunkWireFormat.encode(chunk, TerrainChunkWireFormat.FORMAT_COMPACT);
+        assertEquals(TerrainChunkWireFormat.FORMAT_COMPACT, payload[0]);
+        assertTrue((payload[1] & TerrainChunkWireFormat.FLAG_QUANTIZED) != 0);
+        ChunkData decoded = TerrainChunkWireFormatTests.decode(payload);
+        for(int x = 0; x < VoxelStorage.DIM; x++){
+            for(int y = 0; y < VoxelStorage.DIM; y++){
+                for(int z = 0; z < VoxelStorage.DIM; z++){
+                    assertEquals(chunk.getWeight(x, y, z), decoded.getWeight(x, y, z), 1.0f / TerrainChunkWireFormat.QUANTIZE_SCALE);
+                    assertEquals(chunk.getType(x, y, z), decoded.getType(x, y, z));
+                }
+            }
+        }
+    }
+
+    @UnitTest
+    public void testUnquantizableWeightsAreExact(){
+        ServerTerrainChunk chunk = TerrainChunkWireFormatTests.createChunk(3.0f);
+        byte[] payload = TerrainChunkWireFormat.encode(chunk, TerrainChunkWireFormat.FORMAT_COMPACT);
+        assertEquals(0, payload[1] & TerrainChunkWireFormat.FLAG_QUANTIZED);
+        ChunkData decoded = TerrainChunkWireFormatTests.decode(payload);
+        for(int x = 0; x < VoxelStorage.DIM; x++){
+            for(int y = 0; y < VoxelStorage.DIM; y++){
+                for(int z = 0; z < VoxelStorage.DIM; z++){
+                    assertEquals(chunk.getWeight(x, y, z), decoded.getWeight(x, y, z));
+                    assertEquals(chunk.getType(x, y, z), decoded.getType(x, y, z));
+                }
+            }
+        }
+    }
+
+    @UnitTest
+    public void testRawRoundTrip(){
+        ServerTerrainChunk chunk = TerrainChunkWireFormatTests.createChunk(3.0f);
+        byte[] payload = TerrainChunkWireFormat.encode(chunk, TerrainChunkWireFormat.FORMAT_RAW);
+        assertEquals(TerrainChunkWireFormat.FORMAT_RAW, payload[0]);
+        assertEquals(TerrainChunkWireFormat.FORMAT_TAG_SIZE + VoxelStorage.VOXEL_COUNT * 8, payload.length);
+        ChunkData decoded = TerrainChunkWireFormatTests.decode(payload);
+        for(int x = 0; x < VoxelStorage.DIM; x++){
+            for(int y = 0; y < VoxelStorage.DIM; y++){
+                for(int z = 0; z < VoxelStorage.DIM; z++){
+                    assertEquals(chunk.getWeight(x, y, z), decoded.getWeight(x, y, z));
+                    assertEquals(chunk.getType(x, y, z), decoded.getType(x, y, z));
+                }
+            }
+        }
+    }
+
+    @UnitTest
+    public void testPayloadCachedUntilEdited(){
+        ServerTerrainChunk chunk = TerrainChunkWireFormatTests.createChunk(1.0f);
+        byte[] first = TerrainChunkWireFormat.getPayload(chunk, TerrainChunkWireFormat.FORMAT_COMPACT);
+        assertSame(first, TerrainChunkWireFormat.getPayload(chunk, TerrainChunkWireFormat.FORMAT_COMPACT));
+
+        //a different format is a different payload
+        byte[] raw = TerrainChunkWireFormat.getPayload(chunk, TerrainChunkWireFormat.FORMAT_RAW);
+        assertNotSame(first, raw);
+
+        //an edit invalidates the cache
+        chunk.addModification(new TerrainModification(new Vector3i(0,0,0), new Vector3i(1,1,1), -0.5f, 9));
+        byte[] edited = TerrainChunkWireFormat.getPayload(chunk, TerrainChunkWireFormat.FORMAT_RAW);
+        assertNotSame(raw, edited);
+        ChunkData decoded = TerrainChunkWireFormatTests.decode(edited);
+        assertEquals(9, decoded.getType(1, 1, 1));
+        assertEquals(-0.5f, decoded.getWeight(1, 1, 1));
+    }
+
+    @UnitTest
+    public void testHomogenous(){
+        ServerTerrainChunk chunk = new ServerTerrainChunk(0, 0, 0, 0, new VoxelStorage(false));
+        byte[] payload = TerrainChunkWireFormat.encode(chunk, TerrainChunkWireFormat.FORMAT_COMPACT);
+        assertEquals(1, payload.length);
+        ChunkData decoded = new ChunkData();
+        decoded.setHomogenousValue(0);
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        ClientTerrainManager.decodeChunkPayload(decoded, buffer);
+        assertEquals(1, buffer.position());
+    }
+
+    @UnitTest
+    public void testCompactIsSmaller(){
+        ServerTerrainChunk chunk = TerrainChunkWireFormatTests.createChunk(1.0f);
+        int rawSize = TerrainChunkWireFormat.encode(chunk, TerrainChunkWireFormat.FORMAT_RAW).length;
+        int compactSize = TerrainChunkWireFormat.encode(chunk, TerrainChunkWireFormat.FORMAT_COMPACT).length;
+        assertTrue(compactSize < rawSize);
+    }
+
+    @UnitTest
+    public void testFormatChangeWithinOneReadBatch() throws IOException {
+        ServerTerrainChunk chunk = TerrainChunkWireFormatTests.createChunk(1.0f);
+
+        //a raw chunk queued before negotiation, the format reply, a compact chunk, then a raw chunk the reply overtook
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        TerrainMessage.constructSendReducedChunkDataMessage(1, 0, 0, 0, ChunkData.NOT_HOMOGENOUS, TerrainChunkWireFormat.encode(chunk, TerrainChunkWireFormat.FORMAT_RAW)).write(serialized);
+        TerrainMessage.constructChunkFormatMessage(TerrainChunkWireFormat.FORMAT_COMPACT).write(serialized);
+        TerrainMessage.constructSendReducedChunkDataMessage(2, 0, 0, 0, ChunkData.NOT_HOMOGENOUS, TerrainChunkWireFormat.encode(chunk, TerrainChunkWireFormat.FORMAT_COMPACT)).write(serialized);
+        TerrainMessage.constructSendReducedChunkDataMessage(3, 0, 0, 0, ChunkData.NOT_HOMOGENOUS, TerrainChunkWireFormat.encode(chunk, TerrainChunkWireFormat.FORMAT_RAW)).write(serialized);
+
+        NetworkParser parser = new NetworkParser(new ByteArrayInputStream(serialized.toByteArray()), new ByteArrayOutputStream());
+        parser.registerCustomParser(TypeBytes.MESSAGE_TYPE_TERRAIN, TypeBytes.TERRAIN_MESSAGE_TYPE_SENDREDUCEDCHUNKDATA, ClientTerrainManager::parseReducedChunkData);
+        parser.readMessagesIn();
+
+        int chunkCount = 0;
+        while(parser.hasIncomingMessaage()){
+            TerrainMessage message = (TerrainMessage)parser.popIncomingMessage();
+            if(message.getMessageSubtype() != TerrainMessage.TerrainMessageType.SENDREDUCEDCHUNKDATA){
+                continue;
+            }
+            chunkCount++;
+            ChunkData decoded = (ChunkData)message.getExtraData().get(0);
+            assertEquals(chunkCount, message.getworldX());
+            for(int x = 0; x < VoxelStorage.DIM; x++){
+                for(int y = 0; y < VoxelStorage.DIM; y++){
+                    for(int z = 0; z < VoxelStorage.DIM; z++){
+                        assertEquals(chunk.getWeight(x, y, z), decoded.getWeight(x, y, z), 1.0f / TerrainChunkWireFormat.QUANTIZE_SCALE);
+                        assertEquals(chunk.getType(x, y, z), decoded.getType(x, y, z));
+                    }
+                }
+            }
+        }
+        assertEquals(3, chunkCount);
+    }
+
+    /**
+     * Creates a chunk shaped like generated terrain (a ground plane with a few materials)
+     * @param weightScale Scale applied to the weights. Above 1 makes the weights unquantizable
+     * @return The chunk
+     */
+    static ServerTerrainChunk createChunk(float weightScale){
+        VoxelStorage voxels = new VoxelStorage(false);
+        for(int x = 0; x < VoxelStorage.DIM; x++){
+            for(int y = 0; y < VoxelStorage.DIM; y++){
+                for(int z = 0; z < VoxelStorage.DIM; z++){
+                    float height = 8 + (float)Math.sin(x * 0.3) * 2 + (float)Math.cos(z * 0.2);
+                    float weight = Math.max(-1, Math.min(1, height - y)) * weightScale;
+                    int type = y < height ? (y < 4 ? 2 : 1) : ServerTerrainChunk.VOXEL_TYPE_AIR;
+                    voxels.set(x, y, z, weight, type);
+                }
+            }
+        }
+        return new ServerTerrainChunk(0, 0, 0, ChunkData.NOT_HOMOGENOUS, voxels);
+    }
+
+    /**
+     * Decodes a payload the same way the client does
+     * @param payload The payload
+     * @return The decoded chunk
+     */
+    static ChunkData decode(byte[] payload){
+        ChunkData rVal = new ChunkData();
+        rVal.setHomogenousValue(ChunkData.NOT_HOMOGENOUS);
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        ClientTerrainManager.decodeChunkPayload(rVal, buffer);
+        assertEquals(payload.length, buffer.position());
+        return rVal;
+    }
+
+}
@@ -0,0 +1,88 @@
+package electrosphere.server.physics.terrain.manager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import electrosphere.client.terrain.cache.ChunkData;
+import electrosphere.test.annotations.FastTest;
+import electrosphere.test.annotations.UnitTest;
+
+/**
+ * Tests for terrain mip level utilities
+ */
+public class TerrainMipLevelsTests {
+
+    /**
+     * Creates a chunk whose weight at each voxel encodes the voxel's global position
+     * @param worldX The world x coordinate of the chunk
+     * @param worldY The world y coordinate of the chunk
+     * @param worldZ The world z coordinate of the chunk
+     * @param type The type of every voxel in the chunk
+     * @return The chunk
+     */
+    private static ServerTerrainChunk createChunk(int worldX, int worldY, int worldZ, int type){
+        int DIM = ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE;
+        VoxelStorage voxels = new VoxelStorage();
+        for(int x = 0; x < DIM; x++){
+            for(int y = 0; y < DIM; y++){
+                for(int z = 0; z < DIM; z++){
+                    int globalX = worldX * ServerTerrainChunk.CHUNK_DIMENSION + x;
+                    int globalY = worldY * ServerTerrainChunk.CHUNK_DIMENSION + y;
+                    int globalZ = worldZ * ServerTerrainChunk.CHUNK_DIMENSION + z;
+                    voxels.set(x, y, z, globalX * 10000 + globalY * 100 + globalZ, type);
+                }
+            }
+        }
+        return new ServerTerrainChunk(worldX, worldY, worldZ, type, voxels);
+    }
+
+    @UnitTest
+    @FastTest
+    public void testAlignment(){
+        assertTrue(TerrainMipLevels.isAligned(0, 0, 0, 4));
+        assertTrue(TerrainMipLevels.isAligned(4, 8, 12, 2));
+        assertFalse(TerrainMipLevels.isAligned(4, 8, 13, 2));
+        assertTrue(TerrainMipLevels.isAligned(3, 5, 7, 0));
+        assertEquals(8, TerrainMipLevels.getOrigin(13, 3));
+        assertEquals(12, TerrainMipLevels.getOrigin(13, 2));
+        assertEquals(13, TerrainMipLevels.getOrigin(13, 0));
+    }
+
+    @UnitTest
+    public void testDownsampleSamplesEveryOtherVoxel(){
+        ServerTerrainChunk[] children = new ServerTerrainChunk[TerrainMipLevels.CHILD_COUNT];
+        for(int x = 0; x < 2; x++){
+            for(int y = 0; y < 2; y++){
+                for(int z = 0; z < 2; z++){
+                    children[TerrainMipLevels.getChildIndex(x, y, z)] = TerrainMipLevelsTests.createChunk(2 + x, 4 + y, 6 + z, 1);
+                }
+            }
+        }
+        ServerTerrainChunk parent = TerrainMipLevels.downsample(2, 4, 6, children);
+        int DIM = ServerTerrainChunk.CHUNK_DATA_GENERATOR_SIZE;
+        for(int x = 0; x < DIM; x++){
+            for(int y = 0; y < DIM; y++){
+                for(int z = 0; z < DIM; z++){
+                    //sample i of the parent is voxel 2i from the parent's origin
+                    int globalX = 2 * ServerTerrainChunk.CHUNK_DIMENSION + x * 2;
+                    int globalY = 4 * ServerTerrainChunk.CHUNK_DIMENSION + y * 2;
+                    int globalZ = 6 * ServerTerrainChunk.CHUNK_DIMENSION + z * 2;
+                    assertEquals(globalX * 10000 + globalY * 100 + globalZ, parent.getWeight(x, y, z));
+                }
+            }
+        }
+        assertEquals(1, parent.getHomogenousValue());
+    }
+
+    @UnitTest
+    public void testDownsampleDetectsMixedTypes(){
+        ServerTerrainChunk[] children = new ServerTerrainChunk[TerrainMipLevels.CHILD_COUNT];
+        for(int i = 0; i < TerrainMipLevels.CHILD_COUNT; i++){
+            children[i] = TerrainMipLevelsTests.createChunk(0, 0, 0, 1);
+        }
+        children[TerrainMipLevels.getChildIndex(1, 1, 1)] = TerrainMipLevelsTests.createChunk(0, 0, 0, 2);
+        ServerTerrainChunk parent = TerrainMipLevels.downsample(0, 0, 0, children);
+        assertEquals(ChunkData.NOT_HOMOGENOUS, parent.getHomogenousValue());
+        assertEquals(2, parent.getType(ServerTerrainChunk.CHUNK_DIMENSION, ServerTerrainChunk.CHUNK_DIMENSION, ServerTerrainChunk.CHUNK_DIMENSION));
+    }
+
+}
@@ -0,0 +1,105 @@
+package electrosphere.server.physics.terrain.manager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import electrosphere.test.annotations.FastTest;
+import electrosphere.test.annotations.UnitTest;
+
+/**
+ * Tests for flat voxel storage
+ */
+public class VoxelStorageTests {
+
+    @UnitTest
+    @FastTest
+    public void testSetGet(){
+        VoxelStorage voxels = new VoxelStorage(false);
+        voxels.set(1, 2, 3, 0.5f, 7);
+        assertEquals(0.5f, voxels.getWeight(1, 2, 3));
+        assertEquals(7, voxels.getType(1, 2, 3));
+        assertEquals(ServerTerrainChunk.VOXEL_TYPE_AIR, voxels.getType(3, 2, 1));
+        assertEquals(2, voxels.getPaletteSize());
+    }
+
+    @UnitTest
+    public void testPaletteWidensToShorts(){
+        VoxelStorage voxels = new VoxelStorage(false);
+        for(int i = 0; i < VoxelStorage.VOXEL_COUNT; i++){
+            voxels.setType(i, i % 600);
+        }
+        assertEquals(600, voxels.getPaletteSize());
+        for(int i = 0; i < VoxelStorage.VOXEL_COUNT; i++){
+            assertEquals(i % 600, voxels.getType(i));
+        }
+    }
+
+    @UnitTest
+    public void testOffHeapMatchesHeap(){
+        VoxelStorage heap = new VoxelStorage(false);
+        VoxelStorage offHeap = new VoxelStorage(true);
+        for(int x = 0; x < VoxelStorage.DIM; x++){
+            for(int y = 0; y < VoxelStorage.DIM; y++){
+                for(int z = 0; z < VoxelStorage.DIM; z++){
+                    heap.set(x, y, z, x - y * 0.5f + z, (x + z) % 3);
+                    offHeap.set(x, y, z, x - y * 0.5f + z, (x + z) % 3);
+                }
+            }
+        }
+        assertEquals(heap.getWeightBytes(), offHeap.getWeightBytes());
+    }
+
+    @UnitTest
+    public void testSerializeRoundTrip(){
+        VoxelStorage voxels = new VoxelStorage(false);
+        for(int x = 0; x < VoxelStorage.DIM; x++){
+            for(int y = 0; y < VoxelStorage.DIM; y++){
+                for(int z = 0; z < VoxelStorage.DIM; z++){
+                    voxels.set(x, y, z, x * 0.25f - y, y < 8 ? 1 : 0);
+                }
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(VoxelStorage.WEIGHT_BYTES + voxels.getPaletteSerializedSize());
+        voxels.writeWeights(buffer);
+        voxels.writePalette(buffer);
+        assertFalse(buffer.hasRemaining());
+        buffer.flip();
+
+        VoxelStorage read = new VoxelStorage(false);
+        read.readWeights(buffer);
+        read.readPalette(buffer);
+        for(int x = 0; x < VoxelStorage.DIM; x++){
+            for(int y = 0; y < VoxelStorage.DIM; y++){
+                for(int z = 0; z < VoxelStorage.DIM; z++){
+                    assertEquals(voxels.getWeight(x, y, z), read.getWeight(x, y, z));
+                    assertEquals(voxels.getType(x, y, z), read.getType(x, y, z));
+                }
+            }
+        }
+    }
+
+    @UnitTest
+    public void testWriteTypesUsesStorageOrder(){
+        VoxelStorage voxels = new VoxelStorage(false);
+        voxels.setType(0, 1, 0, 5);
+        IntBuffer types = IntBuffer.allocate(VoxelStorage.VOXEL_COUNT);
+        voxels.writeTypes(types);
+        //y is the fastest changing index
+        assertEquals(0, types.get(0));
+        assertEquals(5, types.get(1));
+    }
+
+    @UnitTest
+    @FastTest
+    public void testFillIsHomogenous(){
+        VoxelStorage voxels = new VoxelStorage(false);
+        voxels.set(0, 0, 0, 1, 3);
+        voxels.fill(-1, 2);
+        assertEquals(1, voxels.getPaletteSize());
+        assertEquals(2, voxels.getType(16, 16, 16));
+        assertEquals(-1, voxels.getWeight(16, 16, 16));
+    }
+
+}
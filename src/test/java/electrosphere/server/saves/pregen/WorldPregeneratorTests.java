@@ -0,0 +1,176 @@
+package electrosphere.server.saves.pregen;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import electrosphere.engine.Globals;
+import electrosphere.server.datacell.ServerWorldData;
+import electrosphere.server.physics.terrain.diskmap.ChunkDiskMap;
+import electrosphere.server.physics.terrain.manager.ServerChunkCache;
+import electrosphere.server.physics.terrain.manager.ServerTerrainChunk;
+import electrosphere.server.physics.terrain.manager.VoxelStorage;
+import electrosphere.server.saves.Save;
+import electrosphere.server.saves.SaveUtils;
+import electrosphere.test.annotations.UnitTest;
+import electrosphere.util.FileUtils;
+
+/**
+ * Tests for the world pregenerator
+ */
+public class WorldPregeneratorTests {
+
+    /**
+     * The name of the save used by the tests
+     */
+    static final String SAVE_NAME = "pregenTest";
+
+    @UnitTest
+    public void testCurveVisitsEveryColumnOnce(){
+        int width = 5;
+        int depth = 3;
+        int curveWidth = WorldPregenerator.getCurveWidth(width, depth);
+        assertEquals(8, curveWidth);
+        Set<Long> visited = new HashSet<Long>();
+        for(long index = 0; index < (long)curveWidth * curveWidth; index++){
+            int x = WorldPregenerator.decodeX(index);
+            int z = WorldPregenerator.decodeZ(index);
+            assertEquals(index, WorldPregenerator.encode(x, z));
+            if(x < width && z < depth){
+                assertTrue(visited.add(((long)x << 32) | z));
+            }
+        }
+        assertEquals(width * depth, visited.size());
+    }
+
+    @UnitTest
+    public void testPregenWritesRegionAndResumes(){
+        Globals.initGlobals();
+        FileUtils.recursivelyDelete(SaveUtils.deriveSaveDirectoryPath(SAVE_NAME));
+        FileUtils.createDirectory(SaveUtils.deriveSaveDirectoryPath(SAVE_NAME));
+        Globals.serverState.currentSave = new Save(SAVE_NAME);
+        ServerWorldData worldData = ServerWorldData.createGenerationTestWorldData();
+        worldData.getServerTerrainManager().load(SAVE_NAME);
+        worldData.getServerBlockManager().generate();
+
+        PregenCheckpoint region = new PregenCheckpoint(2, 2, 7, 5, 0, 32);
+        WorldPregenerator pregenerator = new WorldPregenerator(SAVE_NAME, worldData, null, WorldPregenerator.loadCheckpoint(SAVE_NAME, region), false, 4);
+        pregenerator.run();
+        assertTrue(pregenerator.getCheckpoint().isComplete());
+        assertTrue(pregenerator.getChunkCount() >= region.getWidth() * region.getDepth());
+        assertTrue(FileUtils.checkSavePathExists(SAVE_NAME, WorldPregenerator.CHECKPOINT_FILE_NAME));
+
+        //the chunks on disk should match freshly generated ones
+        ChunkDiskMap diskMap = ChunkDiskMap.init(SAVE_NAME);
+        ServerTerrainChunk written = diskMap.getTerrainChunk(7, 0, 5, ServerChunkCache.STRIDE_FULL_RES);
+        assertNotNull(written);
+        ServerTerrainChunk generated = worldData.getServerTerrainManager().getChunkGenerator().generateChunk(null, 7, 0, 5, ServerChunkCache.STRIDE_FULL_RES);
+        for(int i = 0; i < VoxelStorage.VOXEL_COUNT; i++){
+            assertEquals(generated.getVoxels().getType(i), written.getVoxels().getType(i));
+        }
+        diskMap.close();
+
+        //a second run of the same region picks up the completed checkpoint and does nothing
+        PregenCheckpoint resumed = WorldPregenerator.loadCheckpoint(SAVE_NAME, region);
+        assertTrue(resumed.isComplete());
+        WorldPregenerator rerun = new WorldPregenerator(SAVE_NAME, worldData, null, resumed, false, 4);
+        rerun.run();
+        assertEquals(0, rerun.getChunkCount());
+
+        //a different region starts over
+        assertEquals(0, WorldPregenerator.loadCheckpoint(SAVE_NAME, new PregenCheckpoint(0, 0, 1, 1, 0, 32)).getNextIndex());
+
+        worldData.getServerTerrainManager().closeThreads();
+        worldData.getServerBlockManager().closeThreads();
+        FileUtils.recursivelyDelete(SaveUtils.deriveSaveDirectoryPath(SAVE_NAME));
+        Globals.resetGlobals();
+    }
+
+    @UnitTest
+    public void testFailedColumnIsRetriedOnResume(){
+        Globals.initGlobals();
+        FileUtils.recursivelyDelete(SaveUtils.deriveSaveDirectoryPath(SAVE_NAME));
+        FileUtils.createDirectory(SaveUtils.deriveSaveDirectoryPath(SAVE_NAME));
+        Globals.serverState.currentSave = new Save(SAVE_NAME);
+        ServerWorldData worldData = ServerWorldData.createGenerationTestWorldData();
+        worldData.getServerTerrainManager().load(SAVE_NAME);
+        worldData.getServerBlockManager().generate();
+
+        PregenCheckpoint region = new PregenCheckpoint(2, 2, 7, 5, 0, 32);
+        int failedX = 4;
+        int failedZ = 3;
+        WorldPregenerator pregenerator = new WorldPregenerator(SAVE_NAME, worldData, null, WorldPregenerator.loadCheckpoint(SAVE_NAME, region), false, 4){
+            @Override
+            void generateColumn(int worldX, int worldZ){
+                if(worldX == failedX && worldZ == failedZ){
+                    throw new Error("Simulated pregen failure");
+                }
+                super.generateColumn(worldX, worldZ);
+            }
+        };
+        pregenerator.run();
+
+        //the checkpoint stops at the failed column even though later columns finished
+        long failedIndex = WorldPregenerator.encode(failedX - region.minX, failedZ - region.minZ);
+        PregenCheckpoint partial = WorldPregenerator.loadCheckpoint(SAVE_NAME, region);
+        assertFalse(partial.isComplete());
+        assertEquals(failedIndex, partial.getNextIndex());
+        assertFalse(worldData.getServerTerrainManager().hasChunk(failedX, 0, failedZ));
+        assertTrue(worldData.getServerTerrainManager().hasChunk(7, 0, 5));
+
+        //resuming only generates the failed column, the columns after it are already on disk
+        WorldPregenerator resumed = new WorldPregenerator(SAVE_NAME, worldData, null, partial, false, 4);
+        resumed.run();
+        assertTrue(resumed.getCheckpoint().isComplete());
+        assertTrue(worldData.getServerTerrainManager().hasChunk(failedX, 0, failedZ));
+        assertTrue(resumed.getChunkCount() > 0);
+        assertTrue(resumed.getChunkCount() <= region.maxY - region.minY);
+
+        worldData.getServerTerrainManager().closeThreads();
+        worldData.getServerBlockManager().closeThreads();
+        FileUtils.recursivelyDelete(SaveUtils.deriveSaveDirectoryPath(SAVE_NAME));
+        Globals.resetGlobals();
+    }
+
+    @UnitTest
+    public void testCheckpointStopsAtFirstUnfinishedColumn(){
+        Globals.initGlobals();
+        FileUtils.recursivelyDelete(SaveUtils.deriveSaveDirectoryPath(SAVE_NAME));
+        FileUtils.createDirectory(SaveUtils.deriveSaveDirectoryPath(SAVE_NAME));
+        Globals.serverState.currentSave = new Save(SAVE_NAME);
+        ServerWorldData worldData = ServerWorldData.createGenerationTestWorldData();
+        worldData.getServerTerrainManager().load(SAVE_NAME);
+        worldData.getServerBlockManager().generate();
+
+        PregenCheckpoint region = new PregenCheckpoint(0, 0, 7, 7, 0, 32);
+        WorldPregenerator pregenerator = new WorldPregenerator(SAVE_NAME, worldData, null, region, false, 4);
+        pregenerator.lock.lock();
+
+        //the lowest column still in flight holds the checkpoint back
+        pregenerator.submittedIndex = 12;
+        pregenerator.inFlight.add(9L);
+        pregenerator.inFlight.add(5L);
+        pregenerator.writeCheckpoint();
+        assertEquals(5, WorldPregenerator.loadCheckpoint(SAVE_NAME, region).getNextIndex());
+
+        //a failed column below every in-flight column holds it back further, but the checkpoint never moves backwards
+        pregenerator.inFlight.remove(5L);
+        pregenerator.firstFailedIndex = 3;
+        pregenerator.writeCheckpoint();
+        assertEquals(5, WorldPregenerator.loadCheckpoint(SAVE_NAME, region).getNextIndex());
+
+        //once nothing is in flight the checkpoint advances to the failed column at most
+        pregenerator.inFlight.clear();
+        pregenerator.firstFailedIndex = 10;
+        pregenerator.writeCheckpoint();
+        assertEquals(10, WorldPregenerator.loadCheckpoint(SAVE_NAME, region).getNextIndex());
+        pregenerator.lock.unlock();
+
+        worldData.getServerTerrainManager().closeThreads();
+        worldData.getServerBlockManager().closeThreads();
+        FileUtils.recursivelyDelete(SaveUtils.deriveSaveDirectoryPath(SAVE_NAME));
+        Globals.resetGlobals();
+    }
+
+}
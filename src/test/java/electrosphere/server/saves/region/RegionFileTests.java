@@ -0,0 +1,177 @@
+package electrosphere.server.saves.region;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import electrosphere.test.annotations.UnitTest;
+
+/**
+ * Tests for region files
+ */
+public class RegionFileTests {
+
+    /**
+     * Creates a payload filled with a given value
+     * @param length The length of the payload
+     * @param value The value
+     * @return The payload
+     */
+    private static byte[] payload(int length, int value){
+        byte[] rVal = new byte[length];
+        for(int i = 0; i < length; i++){
+            rVal[i] = (byte)(value + i);
+        }
+        return rVal;
+    }
+
+    @UnitTest
+    public void testWriteRead() throws IOException {
+        File file = Files.createTempFile("region", ".tr").toFile();
+        file.deleteOnExit();
+        RegionFile region = new RegionFile(file);
+        assertFalse(region.contains(1, 2, 3));
+        assertNull(region.read(1, 2, 3));
+        byte[] data = RegionFileTests.payload(1000, 7);
+        region.write(1, 2, 3, data);
+        assertTrue(region.contains(1, 2, 3));
+        assertArrayEquals(data, region.read(1, 2, 3));
+        region.close();
+    }
+
+    @UnitTest
+    public void testReopenKeepsIndex() throws IOException {
+        File file = Files.createTempFile("region", ".tr").toFile();
+        file.deleteOnExit();
+        RegionFile region = new RegionFile(file);
+        byte[] first = RegionFileTests.payload(5000, 1);
+        byte[] second = RegionFileTests.payload(10, 2);
+        region.write(0, 0, 0, first);
+        region.write(31, 31, 31, second);
+        region.close();
+
+        RegionFile reopened = new RegionFile(file);
+        assertEquals(2, reopened.getChunkCount());
+        assertArrayEquals(first, reopened.read(0, 0, 0));
+        assertArrayEquals(second, reopened.read(31, 31, 31));
+        reopened.close();
+    }
+
+    @UnitTest
+    public void testRewriteNeverOverwritesInPlace() throws IOException {
+        File file = Files.createTempFile("region", ".tr").toFile();
+        file.deleteOnExit();
+        RegionFile region = new RegionFile(file);
+        byte[] original = RegionFileTests.payload(3 * RegionFile.SECTOR_SIZE, 1);
+        region.write(0, 0, 0, original);
+        region.write(0, 0, 1, RegionFileTests.payload(100, 2));
+        long originalStart = (long)RegionFile.getSectorOffset(region.offsets[RegionFile.getIndex(0, 0, 0)]) * RegionFile.SECTOR_SIZE;
+
+        //a smaller rewrite still goes to new sectors, the old payload is left intact on disk
+        byte[] smaller = RegionFileTests.payload(RegionFile.SECTOR_SIZE, 3);
+        region.write(0, 0, 0, smaller);
+        assertArrayEquals(smaller, region.read(0, 0, 0));
+        byte[] onDisk = Files.readAllBytes(file.toPath());
+        for(int i = 0; i < original.length; i++){
+            assertEquals(original[i], onDisk[(int)originalStart + RegionFile.LENGTH_PREFIX_SIZE + i]);
+        }
+
+        //until the header that moved on is flushed, the old sectors must not be reused
+        byte[] beforeFlush = RegionFileTests.payload(100, 5);
+        region.write(0, 1, 1, beforeFlush);
+        assertNotEquals(originalStart, (long)RegionFile.getSectorOffset(region.offsets[RegionFile.getIndex(0, 1, 1)]) * RegionFile.SECTOR_SIZE);
+        onDisk = Files.readAllBytes(file.toPath());
+        for(int i = 0; i < original.length; i++){
+            assertEquals(original[i], onDisk[(int)originalStart + RegionFile.LENGTH_PREFIX_SIZE + i]);
+        }
+
+        //once the header has moved on durably, the old sectors are free for new chunks
+        region.flush();
+        long size = file.length();
+        byte[] reused = RegionFileTests.payload(100, 4);
+        region.write(0, 1, 0, reused);
+        assertEquals(size, file.length());
+        assertEquals(originalStart, (long)RegionFile.getSectorOffset(region.offsets[RegionFile.getIndex(0, 1, 0)]) * RegionFile.SECTOR_SIZE);
+        assertArrayEquals(reused, region.read(0, 1, 0));
+        assertArrayEquals(beforeFlush, region.read(0, 1, 1));
+        assertArrayEquals(smaller, region.read(0, 0, 0));
+        assertArrayEquals(RegionFileTests.payload(100, 2), region.read(0, 0, 1));
+        region.close();
+    }
+
+    @UnitTest
+    public void testGrowingRewriteRelocates() throws IOException {
+        File file = Files.createTempFile("region", ".tr").toFile();
+        file.deleteOnExit();
+        RegionFile region = new RegionFile(file);
+        region.write(0, 0, 0, RegionFileTests.payload(100, 1));
+        region.write(0, 0, 1, RegionFileTests.payload(100, 2));
+        //grow a chunk past its sectors
+        region.read(0, 0, 0);
+        byte[] larger = RegionFileTests.payload(3 * RegionFile.SECTOR_SIZE, 5);
+        region.write(0, 0, 0, larger);
+        assertArrayEquals(larger, region.read(0, 0, 0));
+        assertArrayEquals(RegionFileTests.payload(100, 2), region.read(0, 0, 1));
+        region.close();
+    }
+
+    @UnitTest
+    public void testStoreHandlesNegativeCoordinates() throws IOException {
+        File directory = Files.createTempDirectory("regions").toFile();
+        RegionFileStore store = new RegionFileStore(directory, ".tr");
+        byte[] negative = RegionFileTests.payload(100, 1);
+        byte[] positive = RegionFileTests.payload(100, 2);
+        store.write(-1, -33, -32, negative);
+        store.write(31, 31, 0, positive);
+        assertArrayEquals(negative, store.read(-1, -33, -32));
+        assertArrayEquals(positive, store.read(31, 31, 0));
+        assertFalse(store.contains(31, 31, 32));
+        //-1 must land in the region below 0, not share a slot with 1
+        assertTrue(new File(directory, "r.-1.-2.-1.tr").exists());
+        assertNull(store.read(1, 33, 32));
+        store.close();
+        for(File file : directory.listFiles()){
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @UnitTest
+    public void testRemove() throws IOException {
+        File file = Files.createTempFile("region", ".tr").toFile();
+        file.deleteOnExit();
+        RegionFile region = new RegionFile(file);
+        region.write(2, 2, 2, RegionFileTests.payload(100, 1));
+        assertTrue(region.remove(2, 2, 2));
+        assertFalse(region.remove(2, 2, 2));
+        assertFalse(region.contains(2, 2, 2));
+        region.close();
+
+        RegionFile reopened = new RegionFile(file);
+        assertEquals(0, reopened.getChunkCount());
+        reopened.close();
+    }
+
+    @UnitTest
+    public void testUnflushedWritesKeepTheOldHeader() throws IOException {
+        File file = Files.createTempFile("region", ".tr").toFile();
+        file.deleteOnExit();
+        RegionFile region = new RegionFile(file);
+        byte[] original = RegionFileTests.payload(2000, 1);
+        region.write(0, 0, 0, original);
+        region.flush();
+
+        //simulate a crash: rewrite and remove without flushing, then read the file as it is on disk
+        region.write(0, 0, 0, RegionFileTests.payload(3000, 2));
+        region.write(1, 1, 1, RegionFileTests.payload(10, 3));
+        RegionFile crashed = new RegionFile(file);
+        assertEquals(1, crashed.getChunkCount());
+        assertArrayEquals(original, crashed.read(0, 0, 0));
+        assertFalse(crashed.contains(1, 1, 1));
+        crashed.channel.close();
+        region.close();
+    }
+
+}
@@ -0,0 +1,21 @@
+package electrosphere.test.annotations;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.ElementType;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A benchmark that times and prints throughput. Not part of any default test group -- run with the benchmark profile
+ */
+
+@Target({ ElementType.TYPE, ElementType.METHOD })
+@Retention(RetentionPolicy.RUNTIME)
+@Tag("benchmark")
+@Test
+public @interface BenchmarkTest {
+    
+}
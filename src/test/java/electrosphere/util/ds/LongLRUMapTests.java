@@ -0,0 +1,110 @@
+package electrosphere.util.ds;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import electrosphere.test.annotations.FastTest;
+import electrosphere.test.annotations.UnitTest;
+
+/**
+ * Unit tests for the primitive-keyed LRU map
+ */
+public class LongLRUMapTests {
+
+    @UnitTest
+    @FastTest
+    public void testPutGet(){
+        LongLRUMap<String> map = new LongLRUMap<String>(4, null);
+        map.put(1, "a");
+        map.put(2, "b");
+        assertEquals("a", map.get(1));
+        assertEquals("b", map.get(2));
+        assertNull(map.get(3));
+        assertEquals(2, map.size());
+    }
+
+    @UnitTest
+    public void testEvictsLeastRecentlyUsed(){
+        List<Long> evicted = new LinkedList<Long>();
+        LongLRUMap<String> map = new LongLRUMap<String>(3, (long key, String value) -> {
+            evicted.add(key);
+        });
+        map.put(1, "a");
+        map.put(2, "b");
+        map.put(3, "c");
+        //touch 1 so that 2 is now the oldest
+        map.get(1);
+        map.put(4, "d");
+        assertEquals(List.of(2L), evicted);
+        assertFalse(map.containsKey(2));
+        assertTrue(map.containsKey(1));
+        assertTrue(map.containsKey(3));
+        assertTrue(map.containsKey(4));
+        assertEquals(3, map.size());
+    }
+
+    @UnitTest
+    public void testPeekDoesNotAffectRecency(){
+        List<Long> evicted = new LinkedList<Long>();
+        LongLRUMap<String> map = new LongLRUMap<String>(2, (long key, String value) -> {
+            evicted.add(key);
+        });
+        map.put(1, "a");
+        map.put(2, "b");
+        assertEquals("a", map.peek(1));
+        map.put(3, "c");
+        assertEquals(List.of(1L), evicted);
+    }
+
+    @UnitTest
+    @FastTest
+    public void testRemove(){
+        LongLRUMap<String> map = new LongLRUMap<String>(4, null);
+        map.put(1, "a");
+        map.put(2, "b");
+        map.put(3, "c");
+        assertEquals("b", map.remove(2));
+        assertNull(map.remove(2));
+        assertEquals(2, map.size());
+        assertEquals("a", map.get(1));
+        assertEquals("c", map.get(3));
+    }
+
+    @UnitTest
+    @FastTest
+    public void testClear(){
+        LongLRUMap<String> map = new LongLRUMap<String>(4, null);
+        map.put(1, "a");
+        map.put(2, "b");
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get(1));
+        map.put(5, "e");
+        assertEquals("e", map.get(5));
+    }
+
+    @UnitTest
+    public void testChurnKeepsIndexConsistent(){
+        int capacity = 64;
+        LongLRUMap<Long> map = new LongLRUMap<Long>(capacity, null);
+        //insert far more keys than the capacity, interleaving removes, so that backward-shift deletion is exercised
+        for(long i = 0; i < 10000; i++){
+            map.put(i, i);
+            if(i % 3 == 0){
+                map.remove(i - 1);
+            }
+            assertTrue(map.size() <= capacity);
+        }
+        //the most recent entry that was not removed must still be resolvable
+        assertEquals(9999L, map.get(9999));
+        final int[] count = new int[1];
+        map.forEachValue((Long value) -> {
+            assertEquals(value, map.peek(value));
+            count[0]++;
+        });
+        assertEquals(map.size(), count[0]);
+    }
+
+}